@@ -21,7 +21,12 @@ import org.eclipse.kapua.commons.metric.MetricServiceFactory;
 import org.eclipse.kapua.commons.metric.MetricsService;
 import org.eclipse.kapua.locator.KapuaLocator;
 import org.eclipse.kapua.service.datastore.MessageStoreService;
+import org.eclipse.kapua.service.datastore.client.ClientCommunicationException;
+import org.eclipse.kapua.service.datastore.internal.health.DatastoreCircuitOpenException;
+import org.eclipse.kapua.service.datastore.internal.health.DatastoreHealthManager;
 import org.eclipse.kapua.service.datastore.internal.mediator.DatastoreCommunicationException;
+import org.eclipse.kapua.service.datastore.internal.setting.DatastoreSettingKey;
+import org.eclipse.kapua.service.datastore.internal.setting.DatastoreSettings;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -36,7 +41,12 @@ public class DataStorageMessageProcessor extends AbstractProcessor<CamelKapuaMes
     private static final Logger LOG = LoggerFactory.getLogger(DataStorageMessageProcessor.class);
     private static final String METRIC_COMPONENT_NAME = "datastore";
 
+    private static final String BACKPRESSURE_MSG = "Datastore concurrency limit reached";
+    private static final String CIRCUIT_OPEN_MSG = "Datastore circuit breaker is open";
+    private static final long ERROR_QUEUE_AWAIT_TIMEOUT = DatastoreSettings.getInstance().getLong(DatastoreSettingKey.CIRCUIT_BREAKER_ERROR_QUEUE_AWAIT_TIMEOUT, 1000);
+
     private final MessageStoreService messageStoreService = KapuaLocator.getInstance().getService(MessageStoreService.class);
+    private final DatastoreHealthManager healthManager = DatastoreHealthManager.getInstance();
 
     // queues counters
     private final Counter metricQueueCommunicationErrorCount;
@@ -61,17 +71,61 @@ public class DataStorageMessageProcessor extends AbstractProcessor<CamelKapuaMes
     public void processMessage(CamelKapuaMessage<?> message) throws KapuaException {
         // data messages
         LOG.debug("Received data message from device channel: client id '{}' - {}", message.getMessage().getClientId(), message.getMessage().getChannel());
+        // adaptive backpressure: if the datastore is slowing down divert the message to the communication error queue instead of blocking the consumer
+        boolean permitAcquired;
         try {
-            messageStoreService.store(message.getMessage(), message.getDatastoreId());
+            permitAcquired = healthManager.acquireStorePermit();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            permitAcquired = false;
+        }
+        if (!permitAcquired) {
+            metricQueueCommunicationErrorCount.inc();
+            throw new DatastoreCommunicationException(message.getDatastoreId(), new ClientCommunicationException(BACKPRESSURE_MSG, null));
+        }
+        long start = System.nanoTime();
+        try {
+            store(message);
         } catch (DatastoreCommunicationException e) {
-            message.setDatastoreId(e.getUuid());
+            if (e.getCause() instanceof DatastoreCircuitOpenException) {
+                // fast rejection by the open circuit breaker: it does not measure the datastore latency so it must not shrink the limit
+                healthManager.cancelStorePermit();
+            } else {
+                healthManager.releaseStorePermit(System.nanoTime() - start, false);
+            }
+            throw e;
+        } catch (KapuaException | RuntimeException e) {
+            // validation and configuration errors are not related to the datastore load
+            healthManager.releaseStorePermit(System.nanoTime() - start, true);
             throw e;
         }
+        healthManager.releaseStorePermit(System.nanoTime() - start, true);
     }
 
+    /**
+     * Process a data message diverted to the communication error queue.<br>
+     * While the circuit breaker is open the message is not stored: a {@link DatastoreCommunicationException} is raised and the route puts the message
+     * back to the communication error queue, so the consumers are not parked for the whole open interval.
+     * The diverted messages are stored one at a time, as they are consumed from the queue.
+     *
+     * @param exchange
+     * @param message
+     * @throws KapuaException
+     */
     public void processCommunicationErrorMessage(Exchange exchange, CamelKapuaMessage<?> message) throws KapuaException {
         LOG.info("Message datastoreId: '{}' - Message Id: '{}'", message.getDatastoreId(), message.getMessage().getId());
-        processMessage(message);
+        boolean storeAvailable;
+        try {
+            storeAvailable = healthManager.awaitStoreAvailable(ERROR_QUEUE_AWAIT_TIMEOUT);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            storeAvailable = false;
+        }
+        if (!storeAvailable) {
+            LOG.debug("Datastore circuit breaker still open. Putting back message datastoreId: '{}'", message.getDatastoreId());
+            throw new DatastoreCommunicationException(message.getDatastoreId(), new DatastoreCircuitOpenException(CIRCUIT_OPEN_MSG));
+        }
+        store(message);
         metricQueueCommunicationErrorCount.dec();
     }
 
@@ -85,4 +139,13 @@ public class DataStorageMessageProcessor extends AbstractProcessor<CamelKapuaMes
         metricQueueGenericErrorCount.dec();
     }
 
+    private void store(CamelKapuaMessage<?> message) throws KapuaException {
+        try {
+            messageStoreService.store(message.getMessage(), message.getDatastoreId());
+        } catch (DatastoreCommunicationException e) {
+            message.setDatastoreId(e.getUuid());
+            throw e;
+        }
+    }
+
 }
@@ -15,6 +15,7 @@ import org.apache.activemq.broker.Broker;
 import org.apache.activemq.broker.BrokerFilter;
 import org.eclipse.kapua.KapuaException;
 import org.eclipse.kapua.commons.core.ServiceModuleBundle;
+import org.eclipse.kapua.commons.jpa.DataSourceProviders;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -66,6 +67,7 @@ public class KapuaApplicationBrokerFilter extends BrokerFilter {
                 application.shutdown();
             }
         }
+        DataSourceProviders.close();
         logger.info(">>> Application broker filter: calling stop... DONE");
     }
 
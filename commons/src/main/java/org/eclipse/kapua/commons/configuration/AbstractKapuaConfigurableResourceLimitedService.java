@@ -12,6 +12,7 @@
 package org.eclipse.kapua.commons.configuration;
 
 import org.eclipse.kapua.KapuaException;
+import org.eclipse.kapua.KapuaIllegalArgumentException;
 import org.eclipse.kapua.commons.jpa.EntityManagerFactory;
 import org.eclipse.kapua.commons.model.query.predicate.AttributePredicateImpl;
 import org.eclipse.kapua.commons.security.KapuaSecurityUtils;
@@ -79,6 +80,29 @@ public abstract class AbstractKapuaConfigurableResourceLimitedService<E extends
         return allowedChildEntities(scopeId, targetScopeId, null);
     }
 
+    /**
+     * Checks that a new entity can be created in the given scope and reserves it a spot, keeping track of the entities already accepted by the same batch.<br>
+     * The number of allowed child entities of each scope is read only once for the whole batch.<br>
+     * The reserved spot is not released, so this must be the last check of the batch item: a failure of a following check would waste the spot.
+     *
+     * @param allowedChildEntities The number of allowed child entities of the scopes of the batch, updated by this method.
+     * @param scopeId              The {@link KapuaId} of the scope of the new entity.
+     * @param message              The message of the exception thrown if the limit has been reached.
+     * @throws KapuaIllegalArgumentException If the limit of child entities of the scope has been reached.
+     * @throws KapuaException
+     * @since 1.0.0
+     */
+    protected void reserveAllowedChildEntity(Map<KapuaId, Integer> allowedChildEntities, KapuaId scopeId, String message) throws KapuaException {
+        Integer allowed = allowedChildEntities.get(scopeId);
+        if (allowed == null) {
+            allowed = allowedChildEntities(scopeId);
+        }
+        if (allowed <= 0) {
+            throw new KapuaIllegalArgumentException("scopeId", message);
+        }
+        allowedChildEntities.put(scopeId, allowed - 1);
+    }
+
     /**
      * @param scopeId       The {@link KapuaId} of the account to be tested
      * @param targetScopeId Optional scopeId of the child account to be excluded when validating the new configuration for that scopeId.
@@ -14,15 +14,14 @@ package org.eclipse.kapua.commons.event;
 import org.aopalliance.intercept.MethodInterceptor;
 import org.aopalliance.intercept.MethodInvocation;
 import org.eclipse.kapua.commons.core.InterceptorBind;
-import org.eclipse.kapua.commons.model.id.KapuaEid;
+import org.eclipse.kapua.commons.jpa.EntityManagerSession;
 import org.eclipse.kapua.commons.security.KapuaSecurityUtils;
 import org.eclipse.kapua.commons.security.KapuaSession;
-import org.eclipse.kapua.commons.service.event.store.api.ServiceEventUtil;
-import org.eclipse.kapua.commons.service.event.store.internal.EventStoreDAO;
 import org.eclipse.kapua.commons.service.internal.AbstractKapuaService;
+import org.eclipse.kapua.commons.setting.system.SystemSetting;
+import org.eclipse.kapua.commons.setting.system.SystemSettingKey;
 import org.eclipse.kapua.event.RaiseServiceEvent;
 import org.eclipse.kapua.event.ServiceEvent;
-import org.eclipse.kapua.event.ServiceEvent.EventStatus;
 import org.eclipse.kapua.event.ServiceEventBusException;
 import org.eclipse.kapua.locator.KapuaProvider;
 import org.eclipse.kapua.model.KapuaEntity;
@@ -31,11 +30,18 @@ import org.eclipse.kapua.service.KapuaService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.lang.annotation.Annotation;
+import java.lang.reflect.Method;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
 import java.util.Date;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
- * Event interceptor. It builds the event object and sends it to the event bus.
+ * Event interceptor. It builds the event object and sends it to the event bus.<br>
+ * The service name and the entity type of each intercepted method are resolved once and cached.<br>
+ * The event inputs are rendered before the method execution, so they are not affected by the changes made by the method to its arguments,
+ * and they are truncated to {@link SystemSettingKey#EVENT_INTERCEPTOR_INPUTS_MAX_LENGTH} characters.
  *
  * @since 1.0
  */
@@ -45,6 +51,11 @@ public class RaiseServiceEventInterceptor implements MethodInterceptor {
 
     private static final Logger LOG = LoggerFactory.getLogger(RaiseServiceEventInterceptor.class);
 
+    private static final int INPUTS_MAX_LENGTH = SystemSetting.getInstance().getInt(SystemSettingKey.EVENT_INTERCEPTOR_INPUTS_MAX_LENGTH, 8192);
+    private static final String INPUTS_TRUNCATED = "...";
+
+    private final Map<Class<?>, Map<Method, ServiceMethodMetadata>> metadataCache = new ConcurrentHashMap<>();
+
     @Override
     public Object invoke(MethodInvocation invocation) throws Throwable {
         Object returnObject = null;
@@ -77,117 +88,133 @@ public class RaiseServiceEventInterceptor implements MethodInterceptor {
         }
     }
 
-    private void fillEvent(MethodInvocation invocation, ServiceEvent serviceEvent) {
-        // fill the inputs
-        StringBuilder inputs = new StringBuilder();
-        for (Object obj : invocation.getArguments()) {
-            inputs.append(obj != null ? obj.toString() : "null");
-            inputs.append(", ");
-        }
-        if (inputs.length() > 2) {
-            inputs.replace(inputs.length() - 2, inputs.length(), "");
+    void fillEvent(MethodInvocation invocation, ServiceEvent serviceEvent) {
+        Object[] arguments = invocation.getArguments();
+        // render the arguments now, the intercepted method may change them (e.g. the updated entity)
+        serviceEvent.setInputs(renderInputs(arguments));
+
+        ServiceMethodMetadata metadata = getMetadata(invocation);
+        serviceEvent.setService(metadata.service);
+        serviceEvent.setOperation(metadata.operation);
+        if (!metadata.kapuaService) {
+            serviceEvent.setEntityType(metadata.entityType);
+            serviceEvent.setNote(metadata.note);
+            return;
         }
-        serviceEvent.setInputs(inputs.toString());
-        if (invocation.getThis() instanceof AbstractKapuaService) {
-            // get the service name
-            // the service is wrapped by guice so getThis --> getSuperclass() should provide the intercepted class
-            // then keep the interface from this object
-            serviceEvent.setOperation(invocation.getMethod().getName());
-            Class<?> wrappedClass = ((AbstractKapuaService) invocation.getThis()).getClass().getSuperclass(); // this object should be not null
-            Class<?>[] impementedClass = wrappedClass.getInterfaces();
-            // assuming that the KapuaService implemented is specified by the first implementing interface
-            String serviceInterfaceName = impementedClass[0].getName();
-            // String splittedServiceInterfaceName[] = serviceInterfaceName.split("\\.");
-            // String serviceName = splittedServiceInterfaceName.length > 0 ? splittedServiceInterfaceName[splittedServiceInterfaceName.length-1] : "";
-            // String cleanedServiceName = serviceName.substring(0, serviceName.length()-"Service".length()).toLowerCase();
-            String cleanedServiceName = serviceInterfaceName;
-            LOG.info("Service name '{}' ", cleanedServiceName);
-            serviceEvent.setService(cleanedServiceName);
-            Object[] arguments = invocation.getArguments();
-            if (arguments != null) {
-                for (Object tmp : arguments) {
-                    LOG.info("Scan for entity. Object: {}", tmp != null ? tmp.getClass() : "null");
-                    if (tmp instanceof KapuaEntity) {
-                        serviceEvent.setEntityType(tmp.getClass().getName());
-                        serviceEvent.setEntityId(((KapuaEntity) tmp).getId());
-                        LOG.info("Entity '{}' with id '{}' found!", tmp.getClass().getName(), ((KapuaEntity) tmp).getId());
-                        return;
-                    }
+
+        if (arguments != null) {
+            for (Object tmp : arguments) {
+                if (tmp instanceof KapuaEntity) {
+                    serviceEvent.setEntityType(tmp.getClass().getName());
+                    serviceEvent.setEntityId(((KapuaEntity) tmp).getId());
+                    LOG.debug("Entity '{}' with id '{}' found!", tmp.getClass().getName(), ((KapuaEntity) tmp).getId());
+                    return;
                 }
-                // otherwise assume that the second identifier is the entity id (if there are more than one) or take the first one (if there is one)
-                int kapuaIdPosition = 0;
-                int kapuaIdFound = 0;
-                for (int i = 0; i < arguments.length; i++) {
-                    Object tmp = arguments[i];
-                    if (tmp instanceof KapuaId) {
-                        kapuaIdPosition = i;
-                        if (++kapuaIdFound > 1) {
-                            break;
-                        }
+            }
+            // otherwise assume that the second identifier is the entity id (if there are more than one) or take the first one (if there is one)
+            int kapuaIdPosition = 0;
+            int kapuaIdFound = 0;
+            for (int i = 0; i < arguments.length; i++) {
+                if (arguments[i] instanceof KapuaId) {
+                    kapuaIdPosition = i;
+                    if (++kapuaIdFound > 1) {
+                        break;
                     }
                 }
-                if (kapuaIdFound > 0) {
-                    serviceEvent.setEntityId(((KapuaId) arguments[kapuaIdPosition]));
-                    String serviceInterface = impementedClass[0].getAnnotatedInterfaces()[0].getType().getTypeName();
-                    String genericsList = serviceInterface.substring(serviceInterface.indexOf('<') + 1, serviceInterface.indexOf('>'));
-                    String[] entityClassesToScan = genericsList.replaceAll("\\,", "").split(" ");
-                    for (String str : entityClassesToScan) {
-                        try {
-                            if (KapuaEntity.class.isAssignableFrom(Class.forName(str))) {
-                                serviceEvent.setEntityType(str);
-                            }
-                        } catch (ClassNotFoundException e) {
-                            // do nothing
-                            LOG.warn("Cannon find class {}", str, e);
-                        }
+            }
+            if (kapuaIdFound > 0) {
+                serviceEvent.setEntityId((KapuaId) arguments[kapuaIdPosition]);
+                if (metadata.entityType != null) {
+                    serviceEvent.setEntityType(metadata.entityType);
+                }
+            }
+        }
+    }
+
+    ServiceMethodMetadata getMetadata(MethodInvocation invocation) {
+        Class<?> targetClass = invocation.getThis().getClass();
+        return metadataCache
+                .computeIfAbsent(targetClass, key -> new ConcurrentHashMap<>())
+                .computeIfAbsent(invocation.getMethod(), method -> newMetadata(targetClass, method));
+    }
+
+    private static ServiceMethodMetadata newMetadata(Class<?> targetClass, Method method) {
+        if (AbstractKapuaService.class.isAssignableFrom(targetClass)) {
+            // the service is wrapped by guice so the superclass of the target class should be the intercepted class.
+            // Assuming that the KapuaService implemented is specified by the first implementing interface
+            Class<?> serviceInterface = targetClass.getSuperclass().getInterfaces()[0];
+            String entityType = null;
+            // the entity type is the KapuaEntity among the generic parameters of the service interface (e.g. KapuaEntityService<Device, DeviceCreator>)
+            Type[] superInterfaces = serviceInterface.getGenericInterfaces();
+            if (superInterfaces.length > 0 && superInterfaces[0] instanceof ParameterizedType) {
+                for (Type typeArgument : ((ParameterizedType) superInterfaces[0]).getActualTypeArguments()) {
+                    if (typeArgument instanceof Class && KapuaEntity.class.isAssignableFrom((Class<?>) typeArgument)) {
+                        entityType = ((Class<?>) typeArgument).getName();
                     }
                 }
             }
+            LOG.debug("Service method '{}.{}' - entity type '{}'", serviceInterface.getName(), method.getName(), entityType);
+            return new ServiceMethodMetadata(true, serviceInterface.getName(), entityType, method.getName(), null);
         } else {
-            Annotation[] annotations = invocation.getMethod().getDeclaredAnnotations();
-            for (Annotation annotation : annotations) {
-                if (RaiseServiceEvent.class.isAssignableFrom(annotation.annotationType())) {
-                    RaiseServiceEvent raiseKapuaEvent = (RaiseServiceEvent) annotation;
-                    serviceEvent.setService(raiseKapuaEvent.service());
-                    serviceEvent.setEntityType(raiseKapuaEvent.entityType());
-                    serviceEvent.setOperation(raiseKapuaEvent.operation());
-                    serviceEvent.setNote(raiseKapuaEvent.note());
-                    break;
-                }
+            RaiseServiceEvent raiseKapuaEvent = method.getAnnotation(RaiseServiceEvent.class);
+            if (raiseKapuaEvent == null) {
+                return new ServiceMethodMetadata(false, null, null, null, null);
             }
+            return new ServiceMethodMetadata(false, raiseKapuaEvent.service(), raiseKapuaEvent.entityType(), raiseKapuaEvent.operation(), raiseKapuaEvent.note());
         }
     }
 
-    private void sendEvent(MethodInvocation invocation, ServiceEvent serviceEvent, Object returnedValue) throws ServiceEventBusException {
-        String address = ServiceMap.getAddress(serviceEvent.getService());
-        try {
-            ServiceEventBusManager.getInstance().publish(address, serviceEvent);
-            LOG.info("SENT event from service {} to {} - entity type {} - entity id {} - context id {}",
-                    serviceEvent.getService(),
-                    address,
-                    serviceEvent.getEntityType(),
-                    serviceEvent.getEntityId(),
-                    serviceEvent.getContextId());
-            // if message was sent successfully then confirm the event in the event table
-            updateEventStatus(invocation, serviceEvent, EventStatus.SENT);
-        } catch (ServiceEventBusException e) {
-            LOG.warn("Error sending event", e);
-            // mark event status as SEND_ERROR
-            updateEventStatus(invocation, serviceEvent, EventStatus.SEND_ERROR);
+    /**
+     * Render the method arguments as a comma separated list, truncated to {@link SystemSettingKey#EVENT_INTERCEPTOR_INPUTS_MAX_LENGTH} characters
+     *
+     * @param arguments
+     * @return
+     */
+    static String renderInputs(Object[] arguments) {
+        if (arguments == null || arguments.length == 0) {
+            return "";
+        }
+        StringBuilder inputs = new StringBuilder();
+        for (Object obj : arguments) {
+            if (inputs.length() > 0) {
+                inputs.append(", ");
+            }
+            inputs.append(obj != null ? obj.toString() : "null");
+            if (INPUTS_MAX_LENGTH >= 0 && inputs.length() > INPUTS_MAX_LENGTH) {
+                // no need to render the remaining arguments
+                inputs.setLength(INPUTS_MAX_LENGTH);
+                inputs.append(INPUTS_TRUNCATED);
+                break;
+            }
         }
+        return inputs.toString();
     }
 
-    private void updateEventStatus(MethodInvocation invocation, ServiceEvent serviceEventBus, EventStatus newServiceEventStatus) {
+    private void sendEvent(MethodInvocation invocation, ServiceEvent serviceEvent, Object returnedValue) throws ServiceEventBusException {
+        EntityManagerSession entityManagerSession = null;
         if (invocation.getThis() instanceof AbstractKapuaService) {
-            try {
-                serviceEventBus.setStatus(newServiceEventStatus);
-                ((AbstractKapuaService) invocation.getThis()).getEntityManagerSession().onTransactedAction(
-                        em -> EventStoreDAO.update(em,
-                                ServiceEventUtil.mergeToEntity(EventStoreDAO.find(em, KapuaEid.parseCompactId(serviceEventBus.getId())), serviceEventBus)));
-            } catch (Throwable t) {
-                // this may be a valid condition if the HouseKeeper is doing the update concurrently with this task
-                LOG.warn("Error updating event status: {}", t.getMessage(), t);
-            }
+            entityManagerSession = ((AbstractKapuaService) invocation.getThis()).getEntityManagerSession();
+        }
+        ServiceEventSender.send(serviceEvent, entityManagerSession);
+    }
+
+    /**
+     * Service method information that does not depend on the invocation arguments
+     */
+    static final class ServiceMethodMetadata {
+
+        private final boolean kapuaService;
+        private final String service;
+        private final String entityType;
+        private final String operation;
+        private final String note;
+
+        private ServiceMethodMetadata(boolean kapuaService, String service, String entityType, String operation, String note) {
+            this.kapuaService = kapuaService;
+            this.service = service;
+            this.entityType = entityType;
+            this.operation = operation;
+            this.note = note;
         }
     }
 
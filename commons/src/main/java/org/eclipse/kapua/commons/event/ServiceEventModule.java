@@ -13,16 +13,17 @@ package org.eclipse.kapua.commons.event;
 
 import org.eclipse.kapua.KapuaException;
 import org.eclipse.kapua.commons.core.ServiceModule;
+import org.eclipse.kapua.commons.service.internal.cache.EntityCacheManager;
 import org.eclipse.kapua.event.ServiceEventBus;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.ArrayList;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
-import java.util.concurrent.ScheduledExecutorService;
-import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
 
 /**
@@ -34,16 +35,13 @@ public abstract class ServiceEventModule implements ServiceModule {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(ServiceEventModule.class);
 
-    private static final int MAX_WAIT_LOOP_ON_SHUTDOWN = 30;
-    private static final int SCHEDULED_EXECUTION_TIME_WINDOW = 30;
-    private static final long WAIT_TIME = 1000;
+    private static final long MAX_WAIT_ON_SHUTDOWN = 30000;
 
     private ServiceEventModuleConfiguration serviceEventModuleConfiguration;
     private Set<String> subscriberNames = new HashSet<>();
 
-    private ScheduledExecutorService houseKeeperScheduler;
-    private ScheduledFuture<?> houseKeeperHandler;
-    private ServiceEventHousekeeper houseKeeperJob;
+    private ExecutorService relayExecutor;
+    private List<ServiceEventOutboxRelay> relays = new ArrayList<>();
 
     protected abstract ServiceEventModuleConfiguration initializeConfiguration();
 
@@ -70,21 +68,25 @@ public abstract class ServiceEventModule implements ServiceModule {
         } else {
             LOGGER.info("Configuration subscriptions are missing. No subscriptions added!");
         }
+        // Listen to the entity cache invalidations of the other nodes (once per node)
+        EntityCacheManager.subscribe(eventbus);
 
         // register events to the service map
         LOGGER.info("Starting service event module... register services names");
         ServiceMap.registerServices(serviceEventModuleConfiguration.getInternalAddress(), new ArrayList<>(subscriberNames));
 
-        // Start the House keeper
-        LOGGER.info("Starting service event module... start housekeeper");
-        houseKeeperScheduler = Executors.newScheduledThreadPool(1);
-        houseKeeperJob = new ServiceEventHousekeeper(
-                serviceEventModuleConfiguration.getEntityManagerFactory(),
-                eventbus,
-                serviceEventModuleConfiguration.getInternalAddress(),
-                new ArrayList<>(subscriberNames));
-        // Start time can be made random from 0 to 30 seconds
-        houseKeeperHandler = houseKeeperScheduler.scheduleAtFixedRate(houseKeeperJob, SCHEDULED_EXECUTION_TIME_WINDOW, SCHEDULED_EXECUTION_TIME_WINDOW, TimeUnit.SECONDS);
+        // Start the event store relays, one thread per service
+        LOGGER.info("Starting service event module... start event store relays");
+        relayExecutor = Executors.newFixedThreadPool(Math.max(subscriberNames.size(), 1));
+        for (String serviceName : subscriberNames) {
+            ServiceEventOutboxRelay relay = new ServiceEventOutboxRelay(
+                    serviceEventModuleConfiguration.getEntityManagerFactory(),
+                    eventbus,
+                    serviceEventModuleConfiguration.getInternalAddress(),
+                    serviceName);
+            relays.add(relay);
+            relayExecutor.execute(relay);
+        }
         LOGGER.info("Starting service event module... DONE");
     }
 
@@ -95,34 +97,24 @@ public abstract class ServiceEventModule implements ServiceModule {
     @Override
     public void stop() throws KapuaException {
         LOGGER.info("Stopping service event module... {}", this.getClass().getName());
-        LOGGER.info("Stopping service event module... house keeper scheduler [step 1/3]");
-        if (houseKeeperJob != null) {
-            houseKeeperJob.stop();
-        } else {
-            LOGGER.warn("Cannot shutdown the housekeeper scheduler [step 1/3] since it is null (initialization may not be successful)");
+        LOGGER.info("Stopping service event module... event store relays [step 1/2]");
+        for (ServiceEventOutboxRelay relay : relays) {
+            relay.stop();
         }
-        LOGGER.info("Stopping service event module... house keeper scheduler [step 2/3]");
-        if (houseKeeperHandler != null) {
-            int waitLoop = 0;
-            while (houseKeeperHandler.isDone()) {
-                try {
-                    Thread.sleep(WAIT_TIME);
-                } catch (InterruptedException e) {
-                    // do nothing
-                }
-                if (waitLoop++ > MAX_WAIT_LOOP_ON_SHUTDOWN) {
-                    LOGGER.warn("Cannot cancel the house keeper task afeter a while!");
-                    break;
+        relays.clear();
+        LOGGER.info("Stopping service event module... event store relays [step 2/2]");
+        if (relayExecutor != null) {
+            relayExecutor.shutdown();
+            try {
+                if (!relayExecutor.awaitTermination(MAX_WAIT_ON_SHUTDOWN, TimeUnit.MILLISECONDS)) {
+                    LOGGER.warn("Cannot stop the event store relays after a while!");
                 }
+            } catch (InterruptedException e) {
+                LOGGER.warn("Interrupted while waiting for the event store relays to stop");
+                Thread.currentThread().interrupt();
             }
         } else {
-            LOGGER.warn("Cannot shutdown the housekeeper scheduler [step 2/3] since it is null (initialization may not be successful)");
-        }
-        LOGGER.info("Stopping service event module... house keeper scheduler [step 3/3]");
-        if (houseKeeperScheduler != null) {
-            houseKeeperScheduler.shutdown();
-        } else {
-            LOGGER.warn("Cannot shutdown the housekeeper scheduler [step 3/3] since it is null (initialization may not be successful)");
+            LOGGER.warn("Cannot shutdown the event store relays [step 2/2] since the executor is null (initialization may not be successful)");
         }
         LOGGER.info("Stopping service event module... unregister services names");
         if (serviceEventModuleConfiguration != null) {
@@ -0,0 +1,368 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Eurotech and/or its affiliates and others
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Eurotech - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.kapua.commons.event;
+
+import org.eclipse.kapua.KapuaException;
+import org.eclipse.kapua.commons.jpa.EntityManager;
+import org.eclipse.kapua.commons.jpa.EntityManagerFactory;
+import org.eclipse.kapua.commons.service.event.store.api.ServiceEventUtil;
+import org.eclipse.kapua.commons.service.event.store.internal.EventStoreDAO;
+import org.eclipse.kapua.commons.service.event.store.internal.EventStoreRecordImpl;
+import org.eclipse.kapua.commons.setting.system.SystemSetting;
+import org.eclipse.kapua.commons.setting.system.SystemSettingKey;
+import org.eclipse.kapua.event.ServiceEvent;
+import org.eclipse.kapua.event.ServiceEvent.EventStatus;
+import org.eclipse.kapua.event.ServiceEventBus;
+import org.eclipse.kapua.event.ServiceEventBusException;
+import org.eclipse.kapua.model.id.KapuaId;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.persistence.LockTimeoutException;
+import javax.persistence.PersistenceException;
+import javax.persistence.PessimisticLockException;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Event store (outbox) relay. It publishes the events of a service stored in the event store to the event bus.<br>
+ * The events are stored in the same transaction of the entity changes (see {@link org.eclipse.kapua.commons.jpa.EntityManagerSession}), the relay publishes them
+ * in background so the request threads never publish to the event bus. Each run:
+ * <ul>
+ * <li>locks the {@link HousekeeperRun} row of the service, so only one node at a time relays the events of the service (the row is created if missing).
+ * If the lock is held by another node the run is skipped</li>
+ * <li>reads the oldest unsent (TRIGGERED or SEND_ERROR) events of the service, ordered by event timestamp and id, up to the batch size,
+ * skipping the failed events whose backoff time is not elapsed yet</li>
+ * <li>publishes them in a single batch to the event bus, or one by one if the batch cannot be published</li>
+ * <li>marks the published events SENT with a single update, and the failed ones SEND_ERROR with their attempt count and next attempt time, and commits</li>
+ * </ul>
+ * The relay runs again immediately while full batches are found, otherwise it waits for the poll interval or until {@link #wakeUp(String)} is called.<br>
+ * The events are delivered at least once: an event is published again if the commit fails after the publish or if the event is updated after the publish.<br>
+ * The relay also deletes the SENT events older than the retention, one time partition (a range of event timestamps) per transaction.
+ *
+ * @since 1.0
+ */
+public class ServiceEventOutboxRelay implements Runnable {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ServiceEventOutboxRelay.class);
+
+    private static final int BATCH_SIZE = SystemSetting.getInstance().getInt(SystemSettingKey.EVENT_OUTBOX_RELAY_BATCH_SIZE, 100);
+    private static final long POLL_INTERVAL = SystemSetting.getInstance().getLong(SystemSettingKey.EVENT_OUTBOX_RELAY_POLL_INTERVAL, 1000L);
+    private static final long ERROR_WAIT_TIME = SystemSetting.getInstance().getLong(SystemSettingKey.EVENT_OUTBOX_RELAY_ERROR_WAIT_TIME, 5000L);
+    private static final long MAX_BACKOFF = SystemSetting.getInstance().getLong(SystemSettingKey.EVENT_OUTBOX_RELAY_MAX_BACKOFF, 300000L);
+    private static final long PURGE_RETENTION = SystemSetting.getInstance().getLong(SystemSettingKey.EVENT_OUTBOX_PURGE_RETENTION, 604800000L);
+    private static final long PURGE_INTERVAL = SystemSetting.getInstance().getLong(SystemSettingKey.EVENT_OUTBOX_PURGE_INTERVAL, 3600000L);
+    private static final long PURGE_PARTITION = SystemSetting.getInstance().getLong(SystemSettingKey.EVENT_OUTBOX_PURGE_PARTITION, 3600000L);
+
+    private static final Map<String, ServiceEventOutboxRelay> RELAYS = new ConcurrentHashMap<>();
+
+    private final Object monitor = new Object();
+
+    private final EntityManagerFactory entityManagerFactory;
+    private final ServiceEventBus eventbus;
+    private final String serviceInternalEventAddress;
+    private final String serviceName;
+
+    private volatile boolean running;
+    private boolean wakeUpRequested;
+    private long nextPurgeOn;
+
+    /**
+     * Constructor
+     *
+     * @param entityManagerFactory
+     * @param eventbus
+     * @param serviceInternalEventAddress
+     * @param serviceName
+     */
+    public ServiceEventOutboxRelay(EntityManagerFactory entityManagerFactory, ServiceEventBus eventbus, String serviceInternalEventAddress, String serviceName) {
+        this.entityManagerFactory = entityManagerFactory;
+        this.eventbus = eventbus;
+        this.serviceInternalEventAddress = serviceInternalEventAddress;
+        this.serviceName = serviceName;
+    }
+
+    /**
+     * Wakes up the relay of the service, if running in this instance
+     *
+     * @param serviceName
+     * @return {@code true} if the relay of the service is running in this instance
+     */
+    public static boolean wakeUp(String serviceName) {
+        ServiceEventOutboxRelay relay = serviceName != null ? RELAYS.get(serviceName) : null;
+        if (relay == null) {
+            return false;
+        }
+        relay.wakeUp();
+        return true;
+    }
+
+    @Override
+    public void run() {
+        running = true;
+        RELAYS.put(serviceName, this);
+        LOGGER.info("Event store relay for service '{}' started", serviceName);
+        try {
+            while (running) {
+                long waitTime = POLL_INTERVAL;
+                try {
+                    if (relayEvents() == BATCH_SIZE) {
+                        waitTime = 0;
+                    }
+                    purgeEvents();
+                } catch (ServiceEventBusException e) {
+                    LOGGER.warn("Error publishing the events of service '{}': {}", serviceName, e.getMessage(), e);
+                    waitTime = ERROR_WAIT_TIME;
+                } catch (Exception e) {
+                    LOGGER.warn("Error relaying the events of service '{}': {}", serviceName, e.getMessage(), e);
+                    waitTime = ERROR_WAIT_TIME;
+                }
+                waitStep(waitTime);
+            }
+        } finally {
+            RELAYS.remove(serviceName, this);
+            LOGGER.info("Event store relay for service '{}' stopped", serviceName);
+        }
+    }
+
+    /**
+     * Publish a batch of unsent events.<br>
+     * If the batch cannot be published the events are published one by one, so an event that cannot be published doesn't block the others:
+     * the failed event is marked as SEND_ERROR and it is not published again before a wait time that doubles at each failed attempt.
+     * The one by one publishing stops at the first failure if no event has been published, since the event bus is likely unavailable.
+     *
+     * @return the number of events read, {@code 0} if the events of the service are relayed by another node
+     * @throws ServiceEventBusException
+     *             if no event can be published
+     * @throws KapuaException
+     */
+    int relayEvents() throws ServiceEventBusException, KapuaException {
+        EntityManager manager = entityManagerFactory.createEntityManager();
+        try {
+            HousekeeperRun housekeeperRun;
+            try {
+                housekeeperRun = lockHousekeeperRun(manager);
+            } catch (PersistenceException e) {
+                if (!isLockTimeout(e)) {
+                    throw e;
+                }
+                // the lock is held by the relay of another node
+                LOGGER.debug("The events of service '{}' are relayed by another node: {}", serviceName, e.getMessage());
+                return 0;
+            }
+
+            List<EventStoreRecordImpl> eventStoreRecords = EventStoreDAO.findUnsent(manager, serviceName, BATCH_SIZE);
+            if (eventStoreRecords.isEmpty()) {
+                manager.commit();
+                return 0;
+            }
+
+            List<ServiceEvent> serviceEvents = new ArrayList<>(eventStoreRecords.size());
+            for (EventStoreRecordImpl eventStoreRecord : eventStoreRecords) {
+                serviceEvents.add(ServiceEventUtil.toServiceEventBus(eventStoreRecord));
+            }
+
+            List<KapuaId> sentEventIds = new ArrayList<>(eventStoreRecords.size());
+            ServiceEventBusException publishException = null;
+            try {
+                eventbus.publish(serviceInternalEventAddress, serviceEvents);
+                for (EventStoreRecordImpl eventStoreRecord : eventStoreRecords) {
+                    sentEventIds.add(eventStoreRecord.getId());
+                }
+                LOGGER.debug("Published {} events of service '{}' to {}", serviceEvents.size(), serviceName, serviceInternalEventAddress);
+            } catch (ServiceEventBusException e) {
+                LOGGER.warn("Error publishing {} events of service '{}'. Publishing them one by one: {}", serviceEvents.size(), serviceName, e.getMessage());
+                for (int i = 0; i < eventStoreRecords.size(); i++) {
+                    EventStoreRecordImpl eventStoreRecord = eventStoreRecords.get(i);
+                    try {
+                        eventbus.publish(serviceInternalEventAddress, serviceEvents.get(i));
+                        sentEventIds.add(eventStoreRecord.getId());
+                    } catch (ServiceEventBusException eventException) {
+                        markSendError(manager, eventStoreRecord, eventException);
+                        if (sentEventIds.isEmpty()) {
+                            publishException = eventException;
+                            break;
+                        }
+                    }
+                }
+            }
+
+            if (!sentEventIds.isEmpty()) {
+                EventStoreDAO.updateStatus(manager, sentEventIds, EventStatus.SENT);
+            }
+            housekeeperRun.setLastRunBy(serviceName);
+            housekeeperRun.setLastRunOn(new Date());
+            manager.commit();
+
+            if (publishException != null) {
+                throw publishException;
+            }
+            return eventStoreRecords.size();
+        } finally {
+            if (manager.isTransactionActive()) {
+                manager.rollback();
+            }
+            manager.close();
+        }
+    }
+
+    /**
+     * Lock the {@link HousekeeperRun} row of the service, creating it if missing.<br>
+     * The lock is held until the end of the transaction started by this method.
+     *
+     * @param manager
+     * @return
+     * @throws KapuaException
+     */
+    private HousekeeperRun lockHousekeeperRun(EntityManager manager) throws KapuaException {
+        manager.beginTransaction();
+        HousekeeperRun housekeeperRun = manager.findWithLock(HousekeeperRun.class, serviceName);
+        if (housekeeperRun == null) {
+            // without the row there is nothing to lock and every node would relay the events
+            manager.rollback();
+            createHousekeeperRun(manager);
+            manager.beginTransaction();
+            housekeeperRun = manager.findWithLock(HousekeeperRun.class, serviceName);
+            if (housekeeperRun == null) {
+                throw KapuaException.internalError(String.format("Cannot lock the event store relay of service '%s'", serviceName));
+            }
+        }
+        return housekeeperRun;
+    }
+
+    private static boolean isLockTimeout(PersistenceException e) {
+        if (e instanceof PessimisticLockException || e instanceof LockTimeoutException) {
+            return true;
+        }
+        for (Throwable cause = e.getCause(); cause != null; cause = cause.getCause()) {
+            if (cause instanceof SQLException) {
+                SQLException sqlException = (SQLException) cause;
+                // MySQL lock wait timeout, H2 lock timeout
+                return sqlException.getErrorCode() == 1205 || "HYT00".equals(sqlException.getSQLState());
+            }
+        }
+        return false;
+    }
+
+    private void markSendError(EntityManager manager, EventStoreRecordImpl eventStoreRecord, ServiceEventBusException e) {
+        int sendAttempts = eventStoreRecord.getSendAttempts() + 1;
+        Date nextAttemptOn = new Date(System.currentTimeMillis() + getBackoff(sendAttempts));
+        LOGGER.warn("Error publishing the event {} of service '{}' (attempt {}). Next attempt on {}: {}",
+                eventStoreRecord.getContextId(), serviceName, sendAttempts, nextAttemptOn, e.getMessage());
+        EventStoreDAO.updateSendError(manager, eventStoreRecord.getId(), sendAttempts, nextAttemptOn, e.getMessage());
+    }
+
+    /**
+     * Returns the wait time before the next attempt to publish an event, doubling the error wait time at each failed attempt up to the maximum backoff
+     *
+     * @param sendAttempts
+     *            the number of failed attempts
+     * @return
+     */
+    static long getBackoff(int sendAttempts) {
+        int exponent = Math.min(Math.max(sendAttempts - 1, 0), 30);
+        return Math.min(ERROR_WAIT_TIME * (1L << exponent), MAX_BACKOFF);
+    }
+
+    /**
+     * Create the {@link HousekeeperRun} row of the service. If the row is created concurrently by another node the error is ignored.
+     *
+     * @param manager
+     */
+    private void createHousekeeperRun(EntityManager manager) {
+        HousekeeperRun housekeeperRun = new HousekeeperRun();
+        housekeeperRun.setService(serviceName);
+        housekeeperRun.setLastRunBy(serviceName);
+        housekeeperRun.setLastRunOn(new Date());
+        try {
+            manager.beginTransaction();
+            manager.persist(housekeeperRun);
+            manager.commit();
+            LOGGER.info("Created the event store relay lock for service '{}'", serviceName);
+        } catch (KapuaException | PersistenceException e) {
+            LOGGER.debug("Cannot create the event store relay lock for service '{}', it may be created by another node: {}", serviceName, e.getMessage());
+            if (manager.isTransactionActive()) {
+                manager.rollback();
+            }
+        }
+    }
+
+    /**
+     * Delete the SENT events older than the retention, one time partition per transaction
+     *
+     * @throws KapuaException
+     */
+    private void purgeEvents() throws KapuaException {
+        long now = System.currentTimeMillis();
+        if (now < nextPurgeOn) {
+            return;
+        }
+        nextPurgeOn = now + PURGE_INTERVAL;
+
+        Date purgeBound = new Date(now - PURGE_RETENTION);
+        EntityManager manager = entityManagerFactory.createEntityManager();
+        try {
+            Date oldestTimestamp = EventStoreDAO.findOldestTimestamp(manager, serviceName, EventStatus.SENT);
+            int deletedCount = 0;
+            for (Date from = oldestTimestamp; running && from != null && from.before(purgeBound);) {
+                Date to = new Date(Math.min(from.getTime() + PURGE_PARTITION, purgeBound.getTime()));
+                manager.beginTransaction();
+                deletedCount += EventStoreDAO.delete(manager, serviceName, EventStatus.SENT, from, to);
+                manager.commit();
+                from = to;
+            }
+            if (deletedCount > 0) {
+                LOGGER.info("Deleted {} sent events of service '{}' older than {}", deletedCount, serviceName, purgeBound);
+            }
+        } finally {
+            if (manager.isTransactionActive()) {
+                manager.rollback();
+            }
+            manager.close();
+        }
+    }
+
+    private void wakeUp() {
+        synchronized (monitor) {
+            wakeUpRequested = true;
+            monitor.notify();
+        }
+    }
+
+    private void waitStep(long waitTime) {
+        try {
+            synchronized (monitor) {
+                if (!wakeUpRequested && running && waitTime > 0) {
+                    monitor.wait(waitTime);
+                }
+                wakeUpRequested = false;
+            }
+        } catch (InterruptedException e) {
+            LOGGER.warn("Event store relay for service '{}' interrupted", serviceName);
+            running = false;
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    public void stop() {
+        running = false;
+        synchronized (monitor) {
+            monitor.notify();
+        }
+    }
+
+}
@@ -88,14 +88,15 @@ public class ServiceEventScope {
      */
     public static void end() {
         Stack<ServiceEvent> eventStack = eventContextThdLocal.get();
-        if (eventStack != null && !eventStack.empty()) {
-            eventContextThdLocal.set(null);
-        }
-
         if (eventStack != null) {
             eventStack.pop();
         } else {
             throw KapuaRuntimeException.internalError("Event stack shouldn't be 'null'");
         }
+
+        // keep the stack of the outer scopes, if any
+        if (eventStack.empty()) {
+            eventContextThdLocal.set(null);
+        }
     }
 }
\ No newline at end of file
@@ -0,0 +1,83 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Eurotech and/or its affiliates and others
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Eurotech - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.kapua.commons.event;
+
+import org.eclipse.kapua.commons.jpa.EntityManagerSession;
+import org.eclipse.kapua.commons.model.id.KapuaEid;
+import org.eclipse.kapua.commons.service.event.store.api.ServiceEventUtil;
+import org.eclipse.kapua.commons.service.event.store.internal.EventStoreDAO;
+import org.eclipse.kapua.event.ServiceEvent;
+import org.eclipse.kapua.event.ServiceEvent.EventStatus;
+import org.eclipse.kapua.event.ServiceEventBusException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Utility class to send the service events to the event bus.<br>
+ * The events persisted in the event store are published by the {@link ServiceEventOutboxRelay} of their service, if running in this instance,
+ * otherwise they are published here and the sending outcome is kept in the event store.
+ *
+ * @since 1.0
+ */
+public class ServiceEventSender {
+
+    private static final Logger LOG = LoggerFactory.getLogger(ServiceEventSender.class);
+
+    private ServiceEventSender() {
+    }
+
+    /**
+     * Send the service event to the address of its service.<br>
+     * If the event has been persisted and the event store relay of the service is running, the relay is woken up to publish it, otherwise the event is published
+     * and its status is updated in the event store.
+     *
+     * @param serviceEvent
+     * @param entityManagerSession
+     *            the session of the event store where the event has been persisted, {@code null} if the event has not been persisted
+     */
+    public static void send(ServiceEvent serviceEvent, EntityManagerSession entityManagerSession) {
+        if (entityManagerSession != null && serviceEvent.getId() != null && ServiceEventOutboxRelay.wakeUp(serviceEvent.getService())) {
+            return;
+        }
+        String address = ServiceMap.getAddress(serviceEvent.getService());
+        try {
+            ServiceEventBusManager.getInstance().publish(address, serviceEvent);
+            LOG.info("SENT event from service {} to {} - entity type {} - entity id {} - context id {}",
+                    serviceEvent.getService(),
+                    address,
+                    serviceEvent.getEntityType(),
+                    serviceEvent.getEntityId(),
+                    serviceEvent.getContextId());
+            // if message was sent successfully then confirm the event in the event table
+            updateEventStatus(serviceEvent, EventStatus.SENT, entityManagerSession);
+        } catch (ServiceEventBusException e) {
+            LOG.warn("Error sending event", e);
+            // mark event status as SEND_ERROR
+            updateEventStatus(serviceEvent, EventStatus.SEND_ERROR, entityManagerSession);
+        }
+    }
+
+    private static void updateEventStatus(ServiceEvent serviceEventBus, EventStatus newServiceEventStatus, EntityManagerSession entityManagerSession) {
+        if (entityManagerSession != null) {
+            try {
+                serviceEventBus.setStatus(newServiceEventStatus);
+                entityManagerSession.onTransactedAction(
+                        em -> EventStoreDAO.update(em,
+                                ServiceEventUtil.mergeToEntity(EventStoreDAO.find(em, KapuaEid.parseCompactId(serviceEventBus.getId())), serviceEventBus)));
+            } catch (Throwable t) {
+                // this may be a valid condition if the HouseKeeper is doing the update concurrently with this task
+                LOG.warn("Error updating event status: {}", t.getMessage(), t);
+            }
+        }
+    }
+
+}
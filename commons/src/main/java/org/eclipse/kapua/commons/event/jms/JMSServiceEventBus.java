@@ -125,11 +125,29 @@ public class JMSServiceEventBus implements ServiceEventBus, ServiceEventBusDrive
         eventBusJMSConnectionBridge.publish(address, kapuaEvent);
     }
 
+    @Override
+    public void publish(String address, List<ServiceEvent> kapuaEvents)
+            throws ServiceEventBusException {
+        eventBusJMSConnectionBridge.publish(address, kapuaEvents);
+    }
+
     @Override
     public synchronized void subscribe(String address, String name, final ServiceEventBusListener kapuaEventListener)
             throws ServiceEventBusException {
         try {
-            Subscription subscription = new Subscription(address, name, kapuaEventListener);
+            Subscription subscription = new Subscription(address, name, kapuaEventListener, true);
+            subscriptionList.add(subscription);
+            eventBusJMSConnectionBridge.subscribe(subscription);
+        } catch (ServiceEventBusException e) {
+            throw new ServiceEventBusException(e);
+        }
+    }
+
+    @Override
+    public synchronized void subscribeNonDurable(String address, String name, final ServiceEventBusListener kapuaEventListener)
+            throws ServiceEventBusException {
+        try {
+            Subscription subscription = new Subscription(address, name, kapuaEventListener, false);
             subscriptionList.add(subscription);
             eventBusJMSConnectionBridge.subscribe(subscription);
         } catch (ServiceEventBusException e) {
@@ -219,6 +237,7 @@ public class JMSServiceEventBus implements ServiceEventBus, ServiceEventBusDrive
 
         private Connection jmsConnection;
         private Map<String, SenderPool> senders = new HashMap<>();
+        private Map<String, SenderPool> transactedSenders = new HashMap<>();
 
         public EventBusJMSConnectionBridge(ExceptionListener exceptionListener) throws JMSException, NamingException {
             String eventbusUrl = SystemSetting.getInstance().getString(SystemSettingKey.EVENT_BUS_URL);
@@ -252,31 +271,42 @@ public class JMSServiceEventBus implements ServiceEventBus, ServiceEventBusDrive
                 jmsConnection = null;
             }
 
+            closeSenderPools(senders);
+            closeSenderPools(transactedSenders);
+        }
+
+        private void closeSenderPools(Map<String, SenderPool> senderPools) {
             // iterate over all possibles entries
-            Iterator<String> senderIterator = senders.keySet().iterator();
+            Iterator<String> senderIterator = senderPools.keySet().iterator();
             while (senderIterator.hasNext()) {
-                SenderPool senderPool = senders.get(senderIterator.next());
+                SenderPool senderPool = senderPools.get(senderIterator.next());
                 senderPool.close();
                 senderPool.clear();
                 // borrowed object will be returned to the pool soon (since the connection is gone bad) and then destroyed by the pool (since the pool is stopped)
             }
         }
 
+        private SenderPool getSenderPool(Map<String, SenderPool> senderPools, String address, boolean transacted) {
+            SenderPool senderPool = senderPools.get(address);
+            if (senderPool == null) {
+                synchronized (SenderPool.class) {
+                    senderPool = senderPools.get(address);
+                    if (senderPool == null) {
+                        senderPool = new SenderPool(new PooledSenderFactory(address, transacted));
+                        senderPools.put(address, senderPool);
+                    }
+                }
+            }
+            return senderPool;
+        }
+
         void publish(String address, ServiceEvent kapuaEvent)
                 throws ServiceEventBusException {
             if (address != null && address.trim().length() > 0) {
-                SenderPool senderPool = senders.get(address);
+                SenderPool senderPool = null;
                 Sender sender = null;
                 try {
-                    if (senderPool == null) {
-                        synchronized (SenderPool.class) {
-                            senderPool = senders.get(address);
-                            if (senderPool == null) {
-                                senderPool = new SenderPool(new PooledSenderFactory(address));
-                                senders.put(address, senderPool);
-                            }
-                        }
-                    }
+                    senderPool = getSenderPool(senders, address, false);
                     sender = senderPool.borrowObject();
                     sender.sendMessage(kapuaEvent);
                 } catch (Exception e) {
@@ -291,6 +321,27 @@ public class JMSServiceEventBus implements ServiceEventBus, ServiceEventBusDrive
             }
         }
 
+        void publish(String address, List<ServiceEvent> kapuaEvents)
+                throws ServiceEventBusException {
+            if (address != null && address.trim().length() > 0) {
+                SenderPool senderPool = null;
+                Sender sender = null;
+                try {
+                    senderPool = getSenderPool(transactedSenders, address, true);
+                    sender = senderPool.borrowObject();
+                    sender.sendMessages(kapuaEvents);
+                } catch (Exception e) {
+                    throw new ServiceEventBusException(e);
+                } finally {
+                    if (sender != null) {
+                        senderPool.returnObject(sender);
+                    }
+                }
+            } else {
+                LOGGER.warn("Discarded events publish since the publish address is empty!");
+            }
+        }
+
         synchronized void subscribe(Subscription subscription)
                 throws ServiceEventBusException {
             try {
@@ -300,7 +351,9 @@ public class JMSServiceEventBus implements ServiceEventBus, ServiceEventBusDrive
                 for (int i = 0; i < CONSUMER_POOL_SIZE; i++) {
                     final Session jmsSession = jmsConnection.createSession(false, Session.AUTO_ACKNOWLEDGE);
                     Topic jmsTopic = jmsSession.createTopic(subscriptionStr);
-                    MessageConsumer jmsConsumer = jmsSession.createSharedDurableConsumer(jmsTopic, subscription.getName());
+                    MessageConsumer jmsConsumer = subscription.isDurable() ?
+                            jmsSession.createSharedDurableConsumer(jmsTopic, subscription.getName()) :
+                            jmsSession.createSharedConsumer(jmsTopic, subscription.getName());
                     jmsConsumer.setMessageListener(new MessageListener() {
 
                         @Override
@@ -343,26 +396,50 @@ public class JMSServiceEventBus implements ServiceEventBus, ServiceEventBusDrive
             private Session jmsSession;
             private MessageProducer jmsProducer;
 
-            public Sender(Connection jmsConnection, String address) throws JMSException {
+            public Sender(Connection jmsConnection, String address, boolean transacted) throws JMSException {
                 address = String.format("events.%s", address);
-                jmsSession = jmsConnection.createSession(false, Session.AUTO_ACKNOWLEDGE);
+                jmsSession = transacted ? jmsConnection.createSession(true, Session.SESSION_TRANSACTED) : jmsConnection.createSession(false, Session.AUTO_ACKNOWLEDGE);
                 Topic jmsTopic = jmsSession.createTopic(address);
                 jmsProducer = jmsSession.createProducer(jmsTopic);
             }
 
             public void sendMessage(ServiceEvent kapuaEvent) throws Exception {
                 try {
-                    TextMessage message = jmsSession.createTextMessage();
-                    // Serialize outgoing kapua event based on platform configuration
-                    message.setText(eventBusMarshaler.marshal(kapuaEvent));
-                    message.setStringProperty(ServiceEventMarshaler.CONTENT_TYPE_KEY, eventBusMarshaler.getContentType());
-                    jmsProducer.send(message);
+                    jmsProducer.send(createMessage(kapuaEvent));
                 } catch (JMSException | KapuaException e) {
                     LOGGER.error("Message publish interrupted: {}", e.getMessage());
                     throw e;
                 }
             }
 
+            /**
+             * Send the messages in a single transaction (the session must be transacted)
+             */
+            public void sendMessages(List<ServiceEvent> kapuaEvents) throws Exception {
+                try {
+                    for (ServiceEvent kapuaEvent : kapuaEvents) {
+                        jmsProducer.send(createMessage(kapuaEvent));
+                    }
+                    jmsSession.commit();
+                } catch (JMSException | KapuaException e) {
+                    LOGGER.error("Messages publish interrupted: {}", e.getMessage());
+                    try {
+                        jmsSession.rollback();
+                    } catch (JMSException e1) {
+                        LOGGER.warn("Cannot rollback the Sender session!", e1);
+                    }
+                    throw e;
+                }
+            }
+
+            private TextMessage createMessage(ServiceEvent kapuaEvent) throws JMSException, KapuaException {
+                TextMessage message = jmsSession.createTextMessage();
+                // Serialize outgoing kapua event based on platform configuration
+                message.setText(eventBusMarshaler.marshal(kapuaEvent));
+                message.setStringProperty(ServiceEventMarshaler.CONTENT_TYPE_KEY, eventBusMarshaler.getContentType());
+                return message;
+            }
+
             public void close() {
                 try {
                     jmsSession.close();
@@ -376,16 +453,18 @@ public class JMSServiceEventBus implements ServiceEventBus, ServiceEventBusDrive
         private class PooledSenderFactory extends BasePooledObjectFactory<Sender> {
 
             private String address;
+            private boolean transacted;
 
-            public PooledSenderFactory(String address) {
+            public PooledSenderFactory(String address, boolean transacted) {
                 this.address = address;
+                this.transacted = transacted;
             }
 
             @Override
             public Sender create()
                     throws Exception {
                 try {
-                    return new Sender(jmsConnection, address);
+                    return new Sender(jmsConnection, address, transacted);
                 } catch (JMSException e) {
                     throw new ServiceEventBusException(e);
                 }
@@ -435,11 +514,13 @@ public class JMSServiceEventBus implements ServiceEventBus, ServiceEventBusDrive
         String name;
         String address;
         ServiceEventBusListener kapuaEventListener;
+        boolean durable;
 
-        public Subscription(String address, String name, ServiceEventBusListener kapuaEventListener) {
+        public Subscription(String address, String name, ServiceEventBusListener kapuaEventListener, boolean durable) {
             this.name = name;
             this.address = address;
             this.kapuaEventListener = kapuaEventListener;
+            this.durable = durable;
         }
 
         public String getName() {
@@ -454,6 +535,10 @@ public class JMSServiceEventBus implements ServiceEventBus, ServiceEventBusDrive
             return kapuaEventListener;
         }
 
+        public boolean isDurable() {
+            return durable;
+        }
+
     }
 
 }
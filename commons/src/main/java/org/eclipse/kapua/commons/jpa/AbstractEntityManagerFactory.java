@@ -12,16 +12,23 @@
 package org.eclipse.kapua.commons.jpa;
 
 import org.eclipse.kapua.KapuaException;
+import org.eclipse.kapua.commons.model.id.KapuaEid;
 import org.eclipse.kapua.commons.setting.system.SystemSetting;
 import org.eclipse.kapua.commons.setting.system.SystemSettingKey;
+import org.eclipse.kapua.model.id.KapuaId;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import javax.persistence.EntityManagerFactory;
 import javax.persistence.Persistence;
+import javax.sql.DataSource;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.Set;
 
 /**
  * Utility class for JPA operations.
@@ -34,6 +41,7 @@ public abstract class AbstractEntityManagerFactory implements org.eclipse.kapua.
 
     private static final Map<String, String> UNIQUE_CONTRAINTS = new HashMap<>();
     private EntityManagerFactory entityManagerFactory;
+    private EntityManagerFactory replicaEntityManagerFactory;
 
     /**
      * Protected constructor
@@ -43,32 +51,53 @@ public abstract class AbstractEntityManagerFactory implements org.eclipse.kapua.
      * @param uniqueConstraints
      */
     protected AbstractEntityManagerFactory(String persistenceUnitName, String datasourceName, Map<String, String> uniqueConstraints) {
+        this(persistenceUnitName, datasourceName, uniqueConstraints, Collections.emptySet());
+    }
+
+    /**
+     * Protected constructor
+     *
+     * @param persistenceUnitName
+     * @param datasourceName
+     * @param uniqueConstraints
+     * @param cacheableEntityNames
+     *            names of the entities of the persistence unit that can be kept in the shared cache (only the ones enabled by {@link SystemSettingKey#CACHE_ENTITIES} are cached)
+     */
+    protected AbstractEntityManagerFactory(String persistenceUnitName, String datasourceName, Map<String, String> uniqueConstraints, Set<String> cacheableEntityNames) {
         SystemSetting config = SystemSetting.getInstance();
 
+        Set<String> cachedEntityNames = new HashSet<>(Arrays.asList(config.getString(SystemSettingKey.CACHE_ENTITIES, "").trim().split("\\s*,\\s*")));
+        cachedEntityNames.retainAll(cacheableEntityNames);
+
         //
         // Initialize the EntityManagerFactory
         try {
-            // JPA configuration overrides
-            Map<String, Object> configOverrides = new HashMap<>();
-            configOverrides.put("javax.persistence.jdbc.driver", config.getString(SystemSettingKey.DB_JDBC_DRIVER));
-
-            configOverrides.put("eclipselink.cache.shared.default", "false"); // This has to be set to false in order to disable the local object cache of EclipseLink.
-
-            configOverrides.put("eclipselink.connection-pool.default.url", JdbcConnectionUrlResolvers.resolveJdbcUrl());
-            configOverrides.put("eclipselink.connection-pool.default.user", config.getString(SystemSettingKey.DB_USERNAME));
-            configOverrides.put("eclipselink.connection-pool.default.password", config.getString(SystemSettingKey.DB_PASSWORD));
-
-            configOverrides.put("eclipselink.connection-pool.default.dataSourceName", datasourceName);
-            configOverrides.put("eclipselink.connection-pool.default.initial", config.getString(SystemSettingKey.DB_POOL_SIZE_INITIAL));
-            configOverrides.put("eclipselink.connection-pool.default.min", config.getString(SystemSettingKey.DB_POOL_SIZE_MIN));
-            configOverrides.put("eclipselink.connection-pool.default.max", config.getString(SystemSettingKey.DB_POOL_SIZE_MAX));
-            configOverrides.put("eclipselink.connection-pool.default.wait", config.getString(SystemSettingKey.DB_POOL_BORROW_TIMEOUT));
-
-            configOverrides.put("eclipselink.logging.level", "FINE");
-            configOverrides.put("eclipselink.logging.parameters", "true");
-
             // Standalone JPA
-            entityManagerFactory = Persistence.createEntityManagerFactory(persistenceUnitName, configOverrides);
+            entityManagerFactory = Persistence.createEntityManagerFactory(persistenceUnitName,
+                    newConfigOverrides(datasourceName,
+                            DataSourceProviders.getDataSource(),
+                            JdbcConnectionUrlResolvers.resolveJdbcUrl(),
+                            config.getString(SystemSettingKey.DB_USERNAME),
+                            config.getString(SystemSettingKey.DB_PASSWORD),
+                            cachedEntityNames));
+
+            // Read replica (if configured)
+            String replicaUrl = config.getString(SystemSettingKey.DB_REPLICA_URL, "");
+            if (!replicaUrl.isEmpty()) {
+                Map<String, Object> replicaConfigOverrides = newConfigOverrides(datasourceName + "-replica",
+                        DataSourceProviders.getReplicaDataSource(),
+                        replicaUrl,
+                        config.getString(SystemSettingKey.DB_REPLICA_USERNAME, config.getString(SystemSettingKey.DB_USERNAME)),
+                        config.getString(SystemSettingKey.DB_REPLICA_PASSWORD, config.getString(SystemSettingKey.DB_PASSWORD)),
+                        cachedEntityNames);
+                // a different session name, otherwise EclipseLink returns the session of the primary database
+                replicaConfigOverrides.put("eclipselink.session-name", persistenceUnitName + "-replica");
+                replicaEntityManagerFactory = Persistence.createEntityManagerFactory(persistenceUnitName, replicaConfigOverrides);
+                LOG.info("Read replica configured for persistence unit {}", persistenceUnitName);
+            }
+            if (!cachedEntityNames.isEmpty()) {
+                LOG.info("Shared cache enabled for entities {} of persistence unit {}", cachedEntityNames, persistenceUnitName);
+            }
         } catch (Throwable ex) {
             LOG.error("Error creating EntityManagerFactory", ex);
             throw new ExceptionInInitializerError(ex);
@@ -82,6 +111,47 @@ public abstract class AbstractEntityManagerFactory implements org.eclipse.kapua.
         }
     }
 
+    private static Map<String, Object> newConfigOverrides(String datasourceName, DataSource dataSource, String url, String username, String password, Set<String> cachedEntityNames) {
+        SystemSetting config = SystemSetting.getInstance();
+
+        // JPA configuration overrides
+        Map<String, Object> configOverrides = new HashMap<>();
+        configOverrides.put("javax.persistence.jdbc.driver", config.getString(SystemSettingKey.DB_JDBC_DRIVER));
+
+        configOverrides.put("eclipselink.cache.shared.default", "false"); // This has to be set to false in order to disable the local object cache of EclipseLink.
+
+        // Hot lookup entities are kept in the shared cache. Each entity manager still works on its own copy, so the lazy relations keep working.
+        // The entries are evicted by the services on update and delete (see EntityCache), the time to live bounds the staleness if an eviction is lost.
+        for (String cachedEntityName : cachedEntityNames) {
+            configOverrides.put("eclipselink.cache.shared." + cachedEntityName, "true");
+            configOverrides.put("eclipselink.cache.size." + cachedEntityName, config.getString(SystemSettingKey.CACHE_ENTITY_SIZE, "10000"));
+            configOverrides.put("eclipselink.descriptor.customizer." + cachedEntityName, CacheTimeToLiveDescriptorCustomizer.class.getName());
+        }
+
+        if (dataSource != null) {
+            // The connections are borrowed from the pool shared by all the persistence units
+            configOverrides.put("javax.persistence.nonJtaDataSource", dataSource);
+        } else {
+            configOverrides.put("eclipselink.connection-pool.default.url", url);
+            configOverrides.put("eclipselink.connection-pool.default.user", username);
+            configOverrides.put("eclipselink.connection-pool.default.password", password);
+
+            configOverrides.put("eclipselink.connection-pool.default.dataSourceName", datasourceName);
+            configOverrides.put("eclipselink.connection-pool.default.initial", config.getString(SystemSettingKey.DB_POOL_SIZE_INITIAL));
+            configOverrides.put("eclipselink.connection-pool.default.min", config.getString(SystemSettingKey.DB_POOL_SIZE_MIN));
+            configOverrides.put("eclipselink.connection-pool.default.max", config.getString(SystemSettingKey.DB_POOL_SIZE_MAX));
+            configOverrides.put("eclipselink.connection-pool.default.wait", config.getString(SystemSettingKey.DB_POOL_BORROW_TIMEOUT));
+        }
+
+        // Group the statements of the same flush in JDBC batches
+        configOverrides.put("eclipselink.jdbc.batch-writing", "JDBC");
+        configOverrides.put("eclipselink.jdbc.batch-writing.size", config.getString(SystemSettingKey.DB_JDBC_BATCH_SIZE, "100"));
+
+        configOverrides.put("eclipselink.logging.level", "FINE");
+        configOverrides.put("eclipselink.logging.parameters", "true");
+        return configOverrides;
+    }
+
     // Entity manager factory methods
 
     /**
@@ -96,4 +166,43 @@ public abstract class AbstractEntityManagerFactory implements org.eclipse.kapua.
         return new EntityManager(entityManagerFactory.createEntityManager());
     }
 
+    /**
+     * Returns an EntityManager instance of the read replica, if configured, otherwise of the primary database.
+     *
+     * @return An entity manager for the persistence unit.
+     * @throws KapuaException If {@link EntityManagerFactory#createEntityManager()} cannot create the {@link EntityManager}
+     * @since 1.0.0
+     */
+    @Override
+    public EntityManager createReadOnlyEntityManager()
+            throws KapuaException {
+        if (replicaEntityManagerFactory == null) {
+            return createEntityManager();
+        }
+        return new EntityManager(replicaEntityManagerFactory.createEntityManager());
+    }
+
+    /**
+     * Evicts the entity from the shared cache of the primary database and of the read replica
+     *
+     * @param entityClass
+     * @param entityId
+     *            the id of the entity to evict or {@code null} to evict all the entities of the class
+     * @since 1.0.0
+     */
+    public void evict(Class<?> entityClass, KapuaId entityId) {
+        evict(entityManagerFactory, entityClass, entityId);
+        if (replicaEntityManagerFactory != null) {
+            evict(replicaEntityManagerFactory, entityClass, entityId);
+        }
+    }
+
+    private static void evict(EntityManagerFactory entityManagerFactory, Class<?> entityClass, KapuaId entityId) {
+        if (entityId != null) {
+            entityManagerFactory.getCache().evict(entityClass, KapuaEid.parseKapuaId(entityId));
+        } else {
+            entityManagerFactory.getCache().evict(entityClass);
+        }
+    }
+
 }
@@ -0,0 +1,34 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Eurotech and/or its affiliates and others
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Eurotech - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.kapua.commons.jpa;
+
+import org.eclipse.kapua.commons.setting.system.SystemSetting;
+import org.eclipse.kapua.commons.setting.system.SystemSettingKey;
+import org.eclipse.persistence.config.DescriptorCustomizer;
+import org.eclipse.persistence.descriptors.ClassDescriptor;
+import org.eclipse.persistence.descriptors.invalidation.TimeToLiveCacheInvalidationPolicy;
+
+/**
+ * Sets the time to live ({@link SystemSettingKey#CACHE_ENTITY_TTL}) of the entities kept in the EclipseLink shared cache.
+ *
+ * @since 1.0
+ */
+public class CacheTimeToLiveDescriptorCustomizer implements DescriptorCustomizer {
+
+    private static final long TTL = SystemSetting.getInstance().getLong(SystemSettingKey.CACHE_ENTITY_TTL, 300000L);
+
+    @Override
+    public void customize(ClassDescriptor descriptor) {
+        descriptor.setCacheInvalidationPolicy(new TimeToLiveCacheInvalidationPolicy(TTL));
+    }
+
+}
@@ -0,0 +1,44 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Eurotech and/or its affiliates and others
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Eurotech - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.kapua.commons.jpa;
+
+import javax.sql.DataSource;
+
+/**
+ * Provider of the {@link DataSource} shared by all the persistence units.<br>
+ * The implementation is selected through the {@link org.eclipse.kapua.commons.setting.system.SystemSettingKey#DB_POOL_PROVIDER} setting and it must have
+ * a public no argument constructor.
+ *
+ * @since 1.0
+ */
+public interface DataSourceProvider {
+
+    /**
+     * Create the {@link DataSource}.<br>
+     * The pool metrics, if any, should be reported through the {@link org.eclipse.kapua.commons.metric.MetricsService}.
+     *
+     * @return
+     */
+    DataSource createDataSource();
+
+    /**
+     * Create the {@link DataSource} of the read replica configured by the {@link org.eclipse.kapua.commons.setting.system.SystemSettingKey#DB_REPLICA_URL}
+     * setting.<br>
+     * The default implementation returns {@code null}, so the replica is accessed through the EclipseLink internal pool.
+     *
+     * @return
+     */
+    default DataSource createReplicaDataSource() {
+        return null;
+    }
+
+}
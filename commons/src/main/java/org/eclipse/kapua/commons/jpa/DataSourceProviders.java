@@ -0,0 +1,125 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Eurotech and/or its affiliates and others
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Eurotech - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.kapua.commons.jpa;
+
+import javax.sql.DataSource;
+
+import org.eclipse.kapua.commons.setting.system.SystemSetting;
+import org.eclipse.kapua.commons.setting.system.SystemSettingKey;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Holder of the {@link DataSource} shared by all the {@link AbstractEntityManagerFactory} instances.<br>
+ * The {@link SystemSettingKey#DB_POOL_PROVIDER} setting selects the connection pool:
+ * <ul>
+ * <li>'ECLIPSELINK' (default): no shared {@link DataSource}, each persistence unit uses its own EclipseLink internal pool</li>
+ * <li>'HIKARI': a HikariCP pool, see {@link HikariDataSourceProvider}</li>
+ * <li>the class name of a {@link DataSourceProvider} implementation</li>
+ * </ul>
+ *
+ * @since 1.0
+ */
+public final class DataSourceProviders {
+
+    private static final Logger LOG = LoggerFactory.getLogger(DataSourceProviders.class);
+
+    public static final String ECLIPSELINK = "ECLIPSELINK";
+    public static final String HIKARI = "HIKARI";
+
+    private static DataSourceProvider dataSourceProvider;
+    private static DataSource dataSource;
+    private static DataSource replicaDataSource;
+    private static boolean initialized;
+    private static boolean replicaInitialized;
+
+    private DataSourceProviders() {
+    }
+
+    /**
+     * Get the shared {@link DataSource}, creating it at the first call
+     *
+     * @return the shared {@link DataSource} or {@code null} if the EclipseLink internal pool is configured
+     */
+    public static synchronized DataSource getDataSource() {
+        if (!initialized) {
+            dataSourceProvider = newDataSourceProvider();
+            if (dataSourceProvider != null) {
+                dataSource = dataSourceProvider.createDataSource();
+                LOG.info("Created the shared data source with {}", dataSourceProvider.getClass().getName());
+            }
+            initialized = true;
+        }
+        return dataSource;
+    }
+
+    /**
+     * Get the shared {@link DataSource} of the read replica, creating it at the first call
+     *
+     * @return the shared {@link DataSource} of the read replica or {@code null} if the replica is accessed through the EclipseLink internal pool
+     */
+    public static synchronized DataSource getReplicaDataSource() {
+        if (!replicaInitialized) {
+            getDataSource();
+            if (dataSourceProvider != null) {
+                replicaDataSource = dataSourceProvider.createReplicaDataSource();
+            }
+            replicaInitialized = true;
+        }
+        return replicaDataSource;
+    }
+
+    /**
+     * Close the shared {@link DataSource}s, releasing their connections.<br>
+     * It must be called on shutdown, after the services have been stopped.
+     */
+    public static synchronized void close() {
+        closeDataSource(replicaDataSource);
+        closeDataSource(dataSource);
+        dataSourceProvider = null;
+        dataSource = null;
+        replicaDataSource = null;
+        initialized = false;
+        replicaInitialized = false;
+    }
+
+    static void closeDataSource(DataSource dataSource) {
+        if (dataSource instanceof AutoCloseable) {
+            try {
+                ((AutoCloseable) dataSource).close();
+                LOG.info("Closed the shared data source");
+            } catch (Exception e) {
+                LOG.warn("Cannot close the shared data source: {}", e.getMessage(), e);
+            }
+        }
+    }
+
+    private static DataSourceProvider newDataSourceProvider() {
+        return newDataSourceProvider(SystemSetting.getInstance().getString(SystemSettingKey.DB_POOL_PROVIDER, ECLIPSELINK));
+    }
+
+    static DataSourceProvider newDataSourceProvider(String providerType) {
+        LOG.debug("The following connection pool provider will be used: {}", providerType);
+        if (ECLIPSELINK.equals(providerType)) {
+            return null;
+        } else if (HIKARI.equals(providerType)) {
+            return new HikariDataSourceProvider();
+        } else {
+            try {
+                return (DataSourceProvider) Class.forName(providerType).getConstructor().newInstance();
+            } catch (ReflectiveOperationException | ClassCastException e) {
+                throw new IllegalArgumentException("Unknown connection pool provider: " + providerType, e);
+            }
+        }
+    }
+
+}
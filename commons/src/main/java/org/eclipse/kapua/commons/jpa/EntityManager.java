@@ -18,9 +18,12 @@ import javax.persistence.Query;
 import javax.persistence.TypedQuery;
 import javax.persistence.criteria.CriteriaBuilder;
 import javax.persistence.criteria.CriteriaQuery;
+import javax.persistence.metamodel.Metamodel;
 
 import org.eclipse.kapua.KapuaException;
 import org.eclipse.kapua.commons.model.id.KapuaEid;
+import org.eclipse.kapua.commons.service.internal.cache.EntityCache;
+import org.eclipse.kapua.commons.service.internal.cache.EntityCacheManager;
 import org.eclipse.kapua.model.KapuaEntity;
 import org.eclipse.kapua.model.id.KapuaId;
 import org.slf4j.Logger;
@@ -159,6 +162,10 @@ public class EntityManager {
      */
     public <E extends KapuaEntity> E find(Class<E> clazz, KapuaId id) {
         KapuaEid eid = KapuaEid.parseKapuaId(id);
+        EntityCache entityCache = EntityCacheManager.getCache(clazz);
+        if (entityCache != null) {
+            entityCache.recordLookup(javaxPersitenceEntityManager.getEntityManagerFactory().getCache().contains(clazz, eid));
+        }
         return javaxPersitenceEntityManager.find(clazz, eid);
     }
 
@@ -208,6 +215,36 @@ public class EntityManager {
         return javaxPersitenceEntityManager.createQuery(criteriaSelectQuery);
     }
 
+    /**
+     * Return the typed query based on the JPQL statement
+     * 
+     * @param jpql
+     * @param clazz
+     * @return
+     */
+    public <E> TypedQuery<E> createQuery(String jpql, Class<E> clazz) {
+        return javaxPersitenceEntityManager.createQuery(jpql, clazz);
+    }
+
+    /**
+     * Return the query based on the JPQL statement (e.g. a bulk update or delete statement)
+     * 
+     * @param jpql
+     * @return
+     */
+    public Query createQuery(String jpql) {
+        return javaxPersitenceEntityManager.createQuery(jpql);
+    }
+
+    /**
+     * Return the {@link javax.persistence.metamodel.Metamodel} of the persistence unit
+     * 
+     * @return
+     */
+    public Metamodel getMetamodel() {
+        return javaxPersitenceEntityManager.getMetamodel();
+    }
+
     /**
      * Return the typed query based on the query name
      * 
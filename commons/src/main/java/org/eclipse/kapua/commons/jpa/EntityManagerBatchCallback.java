@@ -0,0 +1,53 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Eurotech and/or its affiliates and others
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Eurotech - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.kapua.commons.jpa;
+
+import org.eclipse.kapua.KapuaException;
+
+import java.util.List;
+
+/**
+ * Entity manager callback batch item service definition.
+ *
+ * @param <T> Batch item type
+ * @param <E> Batch item execution result return type
+ * @since 1.0
+ */
+public interface EntityManagerBatchCallback<T, E> {
+
+    /**
+     * Prepare the write of the chunk items using the provided entity manager, before the items are written one by one.<br>
+     * It allows to read with a single query what the chunk items need (e.g. the current entities to be updated).<br>
+     * It is not invoked when the items of a failed chunk are written again one per transaction.
+     *
+     * @param entityManager
+     * @param chunkItems
+     * @throws KapuaException
+     */
+    default void onChunk(EntityManager entityManager, List<T> chunkItems) throws KapuaException {
+    }
+
+    /**
+     * Write the batch item using the provided entity manager.<br>
+     * <br>
+     * WARNING!<br>
+     * The transaction is shared with the other items of the same chunk, so this method must not flush the entity manager:
+     * the chunk is flushed once, to group its statements in JDBC batches.<br>
+     *
+     * @param entityManager
+     * @param item
+     * @return
+     * @throws KapuaException
+     */
+    E onItem(EntityManager entityManager, T item) throws KapuaException;
+
+}
@@ -27,4 +27,15 @@ public interface EntityManagerFactory {
      * @throws KapuaException
      */
     public EntityManager createEntityManager() throws KapuaException;
+
+    /**
+     * Creates an instance of {@link EntityManager} for read only operations. It may be served by a read replica of the database, so the data may be slightly stale.<br>
+     * The default implementation returns {@link #createEntityManager()}.
+     *
+     * @return
+     * @throws KapuaException
+     */
+    public default EntityManager createReadOnlyEntityManager() throws KapuaException {
+        return createEntityManager();
+    }
 }
@@ -15,6 +15,8 @@ import org.eclipse.kapua.KapuaEntityExistsException;
 import org.eclipse.kapua.KapuaException;
 import org.eclipse.kapua.commons.event.ServiceEventScope;
 import org.eclipse.kapua.commons.model.id.KapuaEid;
+import org.eclipse.kapua.commons.security.KapuaSecurityUtils;
+import org.eclipse.kapua.commons.security.KapuaSession;
 import org.eclipse.kapua.commons.service.event.store.api.EventStoreRecord;
 import org.eclipse.kapua.commons.service.event.store.api.ServiceEventUtil;
 import org.eclipse.kapua.commons.service.event.store.internal.EventStoreDAO;
@@ -25,10 +27,18 @@ import org.eclipse.kapua.model.KapuaEntity;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.Iterator;
+import java.util.Map.Entry;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
 import javax.persistence.PersistenceException;
 
 /**
- * Entity manager session reference implementation.
+ * Entity manager session reference implementation.<br>
+ * The {@link #onResult(EntityManagerResultCallback)} reads are served by the read only entity manager (see
+ * {@link EntityManagerFactory#createReadOnlyEntityManager()}), unless the user of the current {@link KapuaSession} performed a write,
+ * through any {@link EntityManagerSession}, in the last {@link SystemSettingKey#DB_REPLICA_READ_YOUR_WRITES_WINDOW} milliseconds.
  *
  * @since 1.0
  */
@@ -38,6 +48,17 @@ public class EntityManagerSession {
 
     private final EntityManagerFactory entityManagerFactory;
     private static final int MAX_INSERT_ALLOWED_RETRY = SystemSetting.getInstance().getInt(SystemSettingKey.KAPUA_INSERT_MAX_RETRY);
+    private static final long READ_YOUR_WRITES_WINDOW = SystemSetting.getInstance().getLong(SystemSettingKey.DB_REPLICA_READ_YOUR_WRITES_WINDOW, 5000L);
+
+    /**
+     * Last write time for each user (the writes performed without a {@link KapuaSession} are tracked under {@link #NO_SESSION_USER}).<br>
+     * The map is shared by all the {@link EntityManagerSession}s, since the same user writes through a service and reads through another one.
+     */
+    private static final ConcurrentMap<Object, Long> LAST_WRITES = new ConcurrentHashMap<>();
+    private static final Object NO_SESSION_USER = new Object();
+    private static final int LAST_WRITES_PRUNE_SIZE = 1024;
+
+    private final long readYourWritesWindow;
 
     private TransactionManager transacted = new TransactionManagerTransacted();
     private TransactionManager notTransacted = new TransactionManagerNotTransacted();
@@ -48,8 +69,19 @@ public class EntityManagerSession {
      * @param entityManagerFactory
      */
     public EntityManagerSession(EntityManagerFactory entityManagerFactory) {
-        this.entityManagerFactory = entityManagerFactory;
+        this(entityManagerFactory, READ_YOUR_WRITES_WINDOW);
+    }
 
+    /**
+     * Constructor
+     *
+     * @param entityManagerFactory
+     * @param readYourWritesWindow
+     *            time after a write during which the reads are served by the primary database (in milliseconds)
+     */
+    EntityManagerSession(EntityManagerFactory entityManagerFactory, long readYourWritesWindow) {
+        this.entityManagerFactory = entityManagerFactory;
+        this.readYourWritesWindow = readYourWritesWindow;
     }
 
     /**
@@ -97,6 +129,7 @@ public class EntityManagerSession {
             }
             throw KapuaExceptionUtils.convertPersistenceException(e);
         } finally {
+            trackWrite();
             if (manager != null) {
                 manager.close();
             }
@@ -115,7 +148,23 @@ public class EntityManagerSession {
      * @throws KapuaException
      */
     public <T> T onResult(EntityManagerResultCallback<T> entityManagerResultCallback) throws KapuaException {
-        return internalOnResult(entityManagerResultCallback, notTransacted);
+        return internalOnResult(entityManagerResultCallback, notTransacted, isReadOnlyAllowed());
+    }
+
+    /**
+     * Return the execution result invoked on a new entity manager of the primary database, never on the read only one.<br>
+     * To be used for the results cached by the caller, which must not be loaded from a lagging replica. It doesn't count as a write of the current user.<br>
+     * <br>
+     * WARNING!<br>
+     * The transactionality (if needed by the code) must be managed internally to the entityManagerResultCallback.<br>
+     * This method performs only a rollback (if the transaction is active and an error occurred)!<br>
+     *
+     * @param entityManagerResultCallback
+     * @return
+     * @throws KapuaException
+     */
+    public <T> T onPrimaryResult(EntityManagerResultCallback<T> entityManagerResultCallback) throws KapuaException {
+        return internalOnResult(entityManagerResultCallback, notTransacted, false);
     }
 
     /**
@@ -129,13 +178,13 @@ public class EntityManagerSession {
      * @throws KapuaException
      */
     public <T> T onTransactedResult(EntityManagerResultCallback<T> entityManagerResultCallback) throws KapuaException {
-        return internalOnResult(entityManagerResultCallback, transacted);
+        return internalOnResult(entityManagerResultCallback, transacted, false);
     }
 
-    private <T> T internalOnResult(EntityManagerResultCallback<T> entityManagerResultCallback, TransactionManager transactionManager) throws KapuaException {
+    private <T> T internalOnResult(EntityManagerResultCallback<T> entityManagerResultCallback, TransactionManager transactionManager, boolean readOnly) throws KapuaException {
         EntityManager manager = null;
         try {
-            manager = entityManagerFactory.createEntityManager();
+            manager = readOnly ? entityManagerFactory.createReadOnlyEntityManager() : entityManagerFactory.createEntityManager();
             transactionManager.beginTransaction(manager);
             T result = entityManagerResultCallback.onResult(manager);
 
@@ -151,6 +200,9 @@ public class EntityManagerSession {
             }
             throw KapuaExceptionUtils.convertPersistenceException(e);
         } finally {
+            if (transactionManager == transacted) {
+                trackWrite();
+            }
             if (manager != null) {
                 manager.close();
             }
@@ -228,6 +280,7 @@ public class EntityManagerSession {
             }
             throw KapuaExceptionUtils.convertPersistenceException(e);
         } finally {
+            trackWrite();
             if (manager != null) {
                 manager.close();
             }
@@ -235,6 +288,38 @@ public class EntityManagerSession {
         return instance;
     }
 
+    /**
+     * Check if the reads can be served by the read only entity manager, so if no write has been performed by the current user in the read your writes window
+     *
+     * @return
+     */
+    private boolean isReadOnlyAllowed() {
+        Long lastWriteOn = LAST_WRITES.get(getSessionUser());
+        return lastWriteOn == null || System.currentTimeMillis() - lastWriteOn >= readYourWritesWindow;
+    }
+
+    /**
+     * Track the write of the current user, removing the writes outside the read your writes window once the tracked users are too many
+     */
+    private void trackWrite() {
+        long now = System.currentTimeMillis();
+        LAST_WRITES.put(getSessionUser(), now);
+
+        if (LAST_WRITES.size() > LAST_WRITES_PRUNE_SIZE) {
+            Iterator<Entry<Object, Long>> lastWritesIterator = LAST_WRITES.entrySet().iterator();
+            while (lastWritesIterator.hasNext()) {
+                if (now - lastWritesIterator.next().getValue() >= readYourWritesWindow) {
+                    lastWritesIterator.remove();
+                }
+            }
+        }
+    }
+
+    private static Object getSessionUser() {
+        KapuaSession kapuaSession = KapuaSecurityUtils.getSession();
+        return kapuaSession != null && kapuaSession.getUserId() != null ? kapuaSession.getUserId() : NO_SESSION_USER;
+    }
+
     private <T> EventStoreRecord appendKapuaEvent(EntityManager manager) throws KapuaException {
         return appendKapuaEvent(null, manager);
     }
@@ -0,0 +1,73 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Eurotech and/or its affiliates and others
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Eurotech - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.kapua.commons.jpa;
+
+import javax.sql.DataSource;
+
+import org.eclipse.kapua.commons.metric.MetricServiceFactory;
+import org.eclipse.kapua.commons.setting.system.SystemSetting;
+import org.eclipse.kapua.commons.setting.system.SystemSettingKey;
+
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+
+/**
+ * HikariCP {@link DataSourceProvider} implementation.<br>
+ * The pool is sized by the same settings of the EclipseLink internal pool and it reports the wait time, usage, timeouts and connection gauges through the
+ * {@link org.eclipse.kapua.commons.metric.MetricsService} registry (named 'commons.pool.*' and 'commons-replica.pool.*').
+ *
+ * @since 1.0
+ */
+public class HikariDataSourceProvider implements DataSourceProvider {
+
+    private static final String POOL_NAME = "commons";
+    private static final String REPLICA_POOL_NAME = "commons-replica";
+
+    @Override
+    public DataSource createDataSource() {
+        SystemSetting config = SystemSetting.getInstance();
+        return newDataSource(POOL_NAME,
+                JdbcConnectionUrlResolvers.resolveJdbcUrl(),
+                config.getString(SystemSettingKey.DB_USERNAME),
+                config.getString(SystemSettingKey.DB_PASSWORD));
+    }
+
+    @Override
+    public DataSource createReplicaDataSource() {
+        SystemSetting config = SystemSetting.getInstance();
+        return newDataSource(REPLICA_POOL_NAME,
+                config.getString(SystemSettingKey.DB_REPLICA_URL),
+                config.getString(SystemSettingKey.DB_REPLICA_USERNAME, config.getString(SystemSettingKey.DB_USERNAME)),
+                config.getString(SystemSettingKey.DB_REPLICA_PASSWORD, config.getString(SystemSettingKey.DB_PASSWORD)));
+    }
+
+    private static DataSource newDataSource(String poolName, String jdbcUrl, String username, String password) {
+        SystemSetting config = SystemSetting.getInstance();
+
+        HikariConfig hikariConfig = new HikariConfig();
+        hikariConfig.setPoolName(poolName);
+        hikariConfig.setDriverClassName(config.getString(SystemSettingKey.DB_JDBC_DRIVER));
+        hikariConfig.setJdbcUrl(jdbcUrl);
+        hikariConfig.setUsername(username);
+        hikariConfig.setPassword(password);
+
+        hikariConfig.setMinimumIdle(config.getInt(SystemSettingKey.DB_POOL_SIZE_MIN, 2));
+        hikariConfig.setMaximumPoolSize(config.getInt(SystemSettingKey.DB_POOL_SIZE_MAX, 30));
+        hikariConfig.setConnectionTimeout(config.getLong(SystemSettingKey.DB_POOL_BORROW_TIMEOUT, 15000L));
+        hikariConfig.setLeakDetectionThreshold(config.getLong(SystemSettingKey.DB_POOL_LEAK_DETECTION_THRESHOLD, 0L));
+
+        hikariConfig.setMetricRegistry(MetricServiceFactory.getInstance().getMetricRegistry());
+
+        return new HikariDataSource(hikariConfig);
+    }
+
+}
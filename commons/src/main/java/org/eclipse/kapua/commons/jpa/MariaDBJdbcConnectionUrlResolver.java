@@ -70,6 +70,13 @@ public class MariaDBJdbcConnectionUrlResolver implements JdbcConnectionUrlResolv
                     .append("&");
         }
 
+        String rewriteBatchedStatements = config.getString(SystemSettingKey.DB_REWRITE_BATCHED_STATEMENTS);
+        if (rewriteBatchedStatements != null) {
+            dbConnectionString.append("rewriteBatchedStatements=")
+                    .append(rewriteBatchedStatements)
+                    .append("&");
+        }
+
         // Unmodifiable parameters
         dbConnectionString.append("allowMultiQueries=true");
 
@@ -0,0 +1,63 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Eurotech and/or its affiliates and others
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Eurotech - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.kapua.commons.model;
+
+import org.eclipse.kapua.KapuaException;
+import org.eclipse.kapua.model.KapuaBatchItemResult;
+import org.eclipse.kapua.model.KapuaEntity;
+
+/**
+ * {@link KapuaBatchItemResult} reference implementation.
+ *
+ * @param <E> {@link KapuaEntity} type.
+ * @since 1.0.0
+ */
+public class KapuaBatchItemResultImpl<E extends KapuaEntity> implements KapuaBatchItemResult<E> {
+
+    private final int index;
+    private final E entity;
+    private final KapuaException error;
+
+    /**
+     * Constructor.
+     *
+     * @param index  The position of the item in the batch.
+     * @param entity The written {@link KapuaEntity}, {@code null} if the item failed.
+     * @param error  The error that made the item fail, {@code null} if the item succeeded.
+     * @since 1.0.0
+     */
+    public KapuaBatchItemResultImpl(int index, E entity, KapuaException error) {
+        this.index = index;
+        this.entity = entity;
+        this.error = error;
+    }
+
+    @Override
+    public int getIndex() {
+        return index;
+    }
+
+    @Override
+    public E getEntity() {
+        return entity;
+    }
+
+    @Override
+    public KapuaException getError() {
+        return error;
+    }
+
+    @Override
+    public boolean isSucceeded() {
+        return error == null;
+    }
+}
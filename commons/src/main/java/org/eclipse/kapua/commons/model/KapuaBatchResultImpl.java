@@ -0,0 +1,91 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Eurotech and/or its affiliates and others
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Eurotech - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.kapua.commons.model;
+
+import org.eclipse.kapua.KapuaException;
+import org.eclipse.kapua.model.KapuaBatchItemResult;
+import org.eclipse.kapua.model.KapuaBatchResult;
+import org.eclipse.kapua.model.KapuaEntity;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * {@link KapuaBatchResult} reference implementation.
+ *
+ * @param <E> {@link KapuaEntity} type.
+ * @since 1.0.0
+ */
+public class KapuaBatchResultImpl<E extends KapuaEntity> implements KapuaBatchResult<E> {
+
+    private final List<KapuaBatchItemResult<E>> items;
+
+    /**
+     * Constructor.
+     *
+     * @param size The number of items of the batch.
+     * @since 1.0.0
+     */
+    public KapuaBatchResultImpl(int size) {
+        items = new ArrayList<>(Collections.nCopies(size, null));
+    }
+
+    /**
+     * Sets the item at the given position as succeeded.
+     *
+     * @param index  The position of the item in the batch.
+     * @param entity The written {@link KapuaEntity}.
+     * @since 1.0.0
+     */
+    public void setSucceeded(int index, E entity) {
+        items.set(index, new KapuaBatchItemResultImpl<>(index, entity, null));
+    }
+
+    /**
+     * Sets the item at the given position as failed.
+     *
+     * @param index The position of the item in the batch.
+     * @param error The error that made the item fail.
+     * @since 1.0.0
+     */
+    public void setFailed(int index, KapuaException error) {
+        items.set(index, new KapuaBatchItemResultImpl<>(index, null, error));
+    }
+
+    @Override
+    public List<KapuaBatchItemResult<E>> getItems() {
+        return Collections.unmodifiableList(items);
+    }
+
+    @Override
+    public List<E> getSucceededEntities() {
+        List<E> entities = new ArrayList<>(items.size());
+        for (KapuaBatchItemResult<E> item : items) {
+            if (item.isSucceeded()) {
+                entities.add(item.getEntity());
+            }
+        }
+        return entities;
+    }
+
+    @Override
+    public int getFailedCount() {
+        int failedCount = 0;
+        for (KapuaBatchItemResult<E> item : items) {
+            if (!item.isSucceeded()) {
+                failedCount++;
+            }
+        }
+        return failedCount;
+    }
+}
@@ -0,0 +1,31 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Eurotech and/or its affiliates and others
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Eurotech - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.kapua.commons.model.id;
+
+/**
+ * Entity identifier generation strategy used by {@link IdGenerator}.<br>
+ * Implementations must be thread safe and must provide a public no arguments constructor.
+ *
+ * @since 1.0
+ */
+public interface IdGenerationStrategy {
+
+    /**
+     * Generates a new identifier value.
+     *
+     * @param idSize
+     *            The identifier size in bits, between 1 and 63.
+     * @return A positive value lower than 2^idSize.
+     */
+    long generate(int idSize);
+
+}
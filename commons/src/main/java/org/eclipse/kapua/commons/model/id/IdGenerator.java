@@ -13,19 +13,24 @@ package org.eclipse.kapua.commons.model.id;
 
 import org.eclipse.kapua.commons.setting.system.SystemSetting;
 import org.eclipse.kapua.commons.setting.system.SystemSettingKey;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import java.math.BigInteger;
-import java.security.SecureRandom;
 
 /**
- * Generates random identifier
+ * Generates random identifier.<br>
+ * The identifier values are generated by the {@link IdGenerationStrategy} set by {@link SystemSettingKey#KAPUA_ID_GENERATION_STRATEGY}
+ * when the {@link SystemSettingKey#KAPUA_KEY_SIZE} fits a long (63 bits or less), otherwise they are random {@link BigInteger}s.
  *
  * @since 1.0
  */
 public class IdGenerator {
 
-    private static final SecureRandom SECURE_RANDOM = new SecureRandom();
+    private static final Logger LOG = LoggerFactory.getLogger(IdGenerator.class);
+
     private static final int ID_SIZE = SystemSetting.getInstance().getInt(SystemSettingKey.KAPUA_KEY_SIZE);
+    private static final IdGenerationStrategy STRATEGY = newStrategy(SystemSetting.getInstance().getString(SystemSettingKey.KAPUA_ID_GENERATION_STRATEGY, null));
 
     private IdGenerator() {
     }
@@ -37,7 +42,27 @@ public class IdGenerator {
      * @return
      */
     public static BigInteger generate() {
-        return new BigInteger(ID_SIZE, SECURE_RANDOM);
+        if (STRATEGY == null) {
+            return new BigInteger(ID_SIZE, ThreadLocalSecureRandom.current());
+        }
+        return BigInteger.valueOf(STRATEGY.generate(ID_SIZE));
+    }
+
+    private static IdGenerationStrategy newStrategy(String strategyClassName) {
+        if (ID_SIZE >= Long.SIZE) {
+            return null;
+        }
+        IdGenerationStrategy strategy = new RandomIdGenerationStrategy();
+        if (strategyClassName != null && !strategyClassName.trim().isEmpty()) {
+            try {
+                strategy = (IdGenerationStrategy) Class.forName(strategyClassName.trim()).getConstructor().newInstance();
+                strategy.generate(ID_SIZE);
+            } catch (ReflectiveOperationException | RuntimeException e) {
+                LOG.error("Cannot use the identifier generation strategy [{}] with identifier size {}. Check the configuration. The identifiers will be random", strategyClassName, ID_SIZE, e);
+                strategy = new RandomIdGenerationStrategy();
+            }
+        }
+        return strategy;
     }
 
 }
@@ -0,0 +1,27 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Eurotech and/or its affiliates and others
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Eurotech - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.kapua.commons.model.id;
+
+/**
+ * Random identifiers, uniformly distributed over the identifier size.<br>
+ * This is the default {@link IdGenerationStrategy}.
+ *
+ * @since 1.0
+ */
+public class RandomIdGenerationStrategy implements IdGenerationStrategy {
+
+    @Override
+    public long generate(int idSize) {
+        return ThreadLocalSecureRandom.current().nextLong() >>> (Long.SIZE - idSize);
+    }
+
+}
@@ -0,0 +1,47 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Eurotech and/or its affiliates and others
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Eurotech - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.kapua.commons.model.id;
+
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+
+/**
+ * Per thread {@link SecureRandom}, so that the threads generating identifiers don't contend on a shared instance.<br>
+ * Each instance is a pure Java PRNG seeded once from the platform (non blocking) {@link SecureRandom}.
+ *
+ * @since 1.0
+ */
+final class ThreadLocalSecureRandom {
+
+    private static final SecureRandom SEED_SOURCE = new SecureRandom();
+
+    private static final ThreadLocal<SecureRandom> RANDOM = ThreadLocal.withInitial(ThreadLocalSecureRandom::newSecureRandom);
+
+    private ThreadLocalSecureRandom() {
+    }
+
+    static SecureRandom current() {
+        return RANDOM.get();
+    }
+
+    private static SecureRandom newSecureRandom() {
+        byte[] seed = new byte[32];
+        SEED_SOURCE.nextBytes(seed);
+        try {
+            SecureRandom secureRandom = SecureRandom.getInstance("SHA1PRNG");
+            secureRandom.setSeed(seed);
+            return secureRandom;
+        } catch (NoSuchAlgorithmException e) {
+            return new SecureRandom(seed);
+        }
+    }
+}
@@ -0,0 +1,57 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Eurotech and/or its affiliates and others
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Eurotech - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.kapua.commons.model.id;
+
+/**
+ * Time ordered identifiers: the milliseconds elapsed since {@link #EPOCH} in the most significant {@link #TIMESTAMP_BITS} bits, followed by random bits.<br>
+ * Identifiers generated close in time are close in the primary key indexes, which keeps the inserts on the last index pages.<br>
+ * The identifiers generated by the same thread are strictly increasing. Collisions between threads and nodes are handled by the insert retry
+ * (see {@link org.eclipse.kapua.commons.setting.system.SystemSettingKey#KAPUA_INSERT_MAX_RETRY}).<br>
+ * It requires an identifier size of at least {@link #MIN_ID_SIZE} bits, so that at least 16 random bits are available.
+ *
+ * @since 1.0
+ */
+public class TimeOrderedIdGenerationStrategy implements IdGenerationStrategy {
+
+    /**
+     * 2018-01-01T00:00:00Z
+     */
+    public static final long EPOCH = 1514764800000L;
+
+    /**
+     * Timestamp bits, enough for about 69 years since {@link #EPOCH}
+     */
+    public static final int TIMESTAMP_BITS = 41;
+
+    public static final int MIN_ID_SIZE = TIMESTAMP_BITS + 16;
+
+    private static final ThreadLocal<long[]> LAST_ID = ThreadLocal.withInitial(() -> new long[1]);
+
+    @Override
+    public long generate(int idSize) {
+        if (idSize < MIN_ID_SIZE) {
+            throw new IllegalArgumentException("The time ordered identifiers require an identifier size of at least " + MIN_ID_SIZE + " bits: " + idSize);
+        }
+        int randomBits = idSize - TIMESTAMP_BITS;
+        long timestamp = (System.currentTimeMillis() - EPOCH) & ((1L << TIMESTAMP_BITS) - 1);
+        long id = timestamp << randomBits | ThreadLocalSecureRandom.current().nextLong() >>> (Long.SIZE - randomBits);
+
+        // Keep the identifiers of the thread increasing, within the same millisecond and after a clock step back
+        long[] lastId = LAST_ID.get();
+        if (id <= lastId[0] && (lastId[0] + 1) >>> idSize == 0) {
+            id = lastId[0] + 1;
+        }
+        lastId[0] = id;
+        return id;
+    }
+
+}
@@ -44,6 +44,10 @@ public abstract class AbstractKapuaQuery<E extends KapuaEntity> implements Kapua
     private Integer offset;
     private Integer limit;
 
+    private Object seekAfterValue;
+    private KapuaId seekAfterId;
+    private Integer countLimit;
+
     /**
      * Constructor.
      * 
@@ -136,4 +140,30 @@ public abstract class AbstractKapuaQuery<E extends KapuaEntity> implements Kapua
     public void setLimit(Integer limit) {
         this.limit = limit;
     }
+
+    @Override
+    public Object getSeekAfterValue() {
+        return seekAfterValue;
+    }
+
+    @Override
+    public KapuaId getSeekAfterId() {
+        return seekAfterId;
+    }
+
+    @Override
+    public void setSeekAfter(Object sortValue, KapuaId id) {
+        this.seekAfterValue = sortValue;
+        this.seekAfterId = KapuaEid.parseKapuaId(id);
+    }
+
+    @Override
+    public Integer getCountLimit() {
+        return countLimit;
+    }
+
+    @Override
+    public void setCountLimit(Integer countLimit) {
+        this.countLimit = countLimit;
+    }
 }
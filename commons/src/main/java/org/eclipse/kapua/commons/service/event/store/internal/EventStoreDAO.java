@@ -11,17 +11,33 @@
  *******************************************************************************/
 package org.eclipse.kapua.commons.service.event.store.internal;
 
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+
+import javax.persistence.Query;
+import javax.persistence.TypedQuery;
+
 import org.eclipse.kapua.KapuaEntityNotFoundException;
 import org.eclipse.kapua.KapuaException;
 import org.eclipse.kapua.commons.jpa.EntityManager;
 import org.eclipse.kapua.commons.service.event.store.api.EventStoreRecord;
 import org.eclipse.kapua.commons.service.event.store.api.EventStoreRecordListResult;
 import org.eclipse.kapua.commons.service.internal.ServiceDAO;
+import org.eclipse.kapua.event.ServiceEvent.EventStatus;
 import org.eclipse.kapua.model.id.KapuaId;
 import org.eclipse.kapua.model.query.KapuaQuery;
 
 public class EventStoreDAO {
 
+    private static final String UNSENT_QUERY = "SELECT e FROM EventStoreRecord e WHERE e.service = :service AND e.status IN :statuses AND (e.nextAttemptOn IS NULL OR e.nextAttemptOn <= :now) ORDER BY e.timestamp, e.id.eid";
+    private static final String UPDATE_STATUS_QUERY = "UPDATE EventStoreRecord e SET e.status = :status, e.modifiedOn = :modifiedOn, e.optlock = e.optlock + 1 WHERE e.id.eid IN :ids";
+    private static final String UPDATE_SEND_ERROR_QUERY = "UPDATE EventStoreRecord e SET e.status = :status, e.sendAttempts = :sendAttempts, e.nextAttemptOn = :nextAttemptOn, e.note = :note, e.modifiedOn = :modifiedOn, e.optlock = e.optlock + 1 WHERE e.id.eid = :id";
+    private static final String OLDEST_TIMESTAMP_QUERY = "SELECT MIN(e.timestamp) FROM EventStoreRecord e WHERE e.service = :service AND e.status = :status";
+    private static final String DELETE_QUERY = "DELETE FROM EventStoreRecord e WHERE e.service = :service AND e.status = :status AND e.timestamp >= :from AND e.timestamp < :to";
+
     private EventStoreDAO() {
     }
 
@@ -97,4 +113,97 @@ public class EventStoreDAO {
             throws KapuaException {
         return ServiceDAO.count(em, EventStoreRecord.class, EventStoreRecordImpl.class, kapuaEventQuery);
     }
-}
\ No newline at end of file
+
+    /**
+     * Returns the events of the service not sent yet (TRIGGERED or SEND_ERROR), ordered by event timestamp and id.<br>
+     * The events whose next attempt time is not reached yet are excluded.
+     * 
+     * @param em
+     * @param service
+     * @param maxResults
+     * @return
+     */
+    public static List<EventStoreRecordImpl> findUnsent(EntityManager em, String service, int maxResults) {
+        TypedQuery<EventStoreRecordImpl> query = em.createQuery(UNSENT_QUERY, EventStoreRecordImpl.class);
+        query.setParameter("service", service);
+        query.setParameter("statuses", Arrays.asList(EventStatus.TRIGGERED, EventStatus.SEND_ERROR));
+        query.setParameter("now", new Date());
+        query.setMaxResults(maxResults);
+        return query.getResultList();
+    }
+
+    /**
+     * Updates the status of the events in a single statement
+     * 
+     * @param em
+     * @param eventIds
+     * @param status
+     * @return the number of updated events
+     */
+    public static int updateStatus(EntityManager em, List<KapuaId> eventIds, EventStatus status) {
+        List<BigInteger> ids = new ArrayList<>(eventIds.size());
+        for (KapuaId eventId : eventIds) {
+            ids.add(eventId.getId());
+        }
+        Query query = em.createQuery(UPDATE_STATUS_QUERY);
+        query.setParameter("status", status);
+        query.setParameter("modifiedOn", new Date());
+        query.setParameter("ids", ids);
+        return query.executeUpdate();
+    }
+
+    /**
+     * Marks the event as SEND_ERROR, with the number of failed attempts and the time of the next attempt
+     * 
+     * @param em
+     * @param eventId
+     * @param sendAttempts
+     * @param nextAttemptOn
+     * @param note
+     * @return the number of updated events
+     */
+    public static int updateSendError(EntityManager em, KapuaId eventId, int sendAttempts, Date nextAttemptOn, String note) {
+        Query query = em.createQuery(UPDATE_SEND_ERROR_QUERY);
+        query.setParameter("status", EventStatus.SEND_ERROR);
+        query.setParameter("sendAttempts", sendAttempts);
+        query.setParameter("nextAttemptOn", nextAttemptOn);
+        query.setParameter("note", note);
+        query.setParameter("modifiedOn", new Date());
+        query.setParameter("id", eventId.getId());
+        return query.executeUpdate();
+    }
+
+    /**
+     * Returns the timestamp of the oldest event of the service with the given status, {@code null} if there are no such events
+     * 
+     * @param em
+     * @param service
+     * @param status
+     * @return
+     */
+    public static Date findOldestTimestamp(EntityManager em, String service, EventStatus status) {
+        TypedQuery<Date> query = em.createQuery(OLDEST_TIMESTAMP_QUERY, Date.class);
+        query.setParameter("service", service);
+        query.setParameter("status", status);
+        return query.getSingleResult();
+    }
+
+    /**
+     * Deletes the events of the service with the given status and timestamp in the [from, to) range
+     * 
+     * @param em
+     * @param service
+     * @param status
+     * @param from
+     * @param to
+     * @return the number of deleted events
+     */
+    public static int delete(EntityManager em, String service, EventStatus status, Date from, Date to) {
+        Query query = em.createQuery(DELETE_QUERY);
+        query.setParameter("service", service);
+        query.setParameter("status", status);
+        query.setParameter("from", from);
+        query.setParameter("to", to);
+        return query.executeUpdate();
+    }
+}
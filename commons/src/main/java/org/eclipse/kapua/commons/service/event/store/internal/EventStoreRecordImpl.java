@@ -85,6 +85,14 @@ public class EventStoreRecordImpl extends AbstractKapuaUpdatableEntity implement
     @Column(name = "note", nullable = true, updatable = true)
     private String note;
 
+    @Basic
+    @Column(name = "send_attempts", nullable = false, updatable = true)
+    private int sendAttempts;
+
+    @Temporal(TemporalType.TIMESTAMP)
+    @Column(name = "next_attempt_on", nullable = true, updatable = true)
+    private Date nextAttemptOn;
+
     public EventStoreRecordImpl() {
         status = EventStatus.TRIGGERED;
     }
@@ -209,4 +217,30 @@ public class EventStoreRecordImpl extends AbstractKapuaUpdatableEntity implement
     public void setNote(String note) {
         this.note = note;
     }
-}
\ No newline at end of file
+
+    /**
+     * Gets the number of failed attempts to publish the event
+     *
+     * @return
+     */
+    public int getSendAttempts() {
+        return sendAttempts;
+    }
+
+    public void setSendAttempts(int sendAttempts) {
+        this.sendAttempts = sendAttempts;
+    }
+
+    /**
+     * Gets the time before which the event is not published again after a failed attempt, {@code null} if the event can be published at any time
+     *
+     * @return
+     */
+    public Date getNextAttemptOn() {
+        return nextAttemptOn;
+    }
+
+    public void setNextAttemptOn(Date nextAttemptOn) {
+        this.nextAttemptOn = nextAttemptOn;
+    }
+}
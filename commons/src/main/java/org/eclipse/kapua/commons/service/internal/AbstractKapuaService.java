@@ -11,12 +11,35 @@
  *******************************************************************************/
 package org.eclipse.kapua.commons.service.internal;
 
+import org.eclipse.kapua.KapuaException;
 import org.eclipse.kapua.commons.event.ServiceEventBusManager;
+import org.eclipse.kapua.commons.event.ServiceEventScope;
+import org.eclipse.kapua.commons.event.ServiceEventSender;
+import org.eclipse.kapua.commons.event.ServiceMap;
+import org.eclipse.kapua.commons.jpa.EntityManager;
+import org.eclipse.kapua.commons.jpa.EntityManagerBatchCallback;
 import org.eclipse.kapua.commons.jpa.EntityManagerFactory;
 import org.eclipse.kapua.commons.jpa.EntityManagerSession;
+import org.eclipse.kapua.commons.model.KapuaBatchResultImpl;
+import org.eclipse.kapua.commons.security.KapuaSecurityUtils;
+import org.eclipse.kapua.commons.security.KapuaSession;
+import org.eclipse.kapua.commons.setting.system.SystemSetting;
+import org.eclipse.kapua.commons.setting.system.SystemSettingKey;
+import org.eclipse.kapua.commons.util.ArgumentValidator;
+import org.eclipse.kapua.commons.util.KapuaExceptionUtils;
+import org.eclipse.kapua.event.ServiceEvent;
 import org.eclipse.kapua.event.ServiceEventBusException;
 import org.eclipse.kapua.event.ServiceEventBusListener;
+import org.eclipse.kapua.model.KapuaBatchResult;
+import org.eclipse.kapua.model.KapuaEntity;
+import org.eclipse.kapua.model.id.KapuaId;
 import org.eclipse.kapua.service.KapuaService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
 
 /**
  * Abstract Kapua service.<br>
@@ -27,6 +50,10 @@ import org.eclipse.kapua.service.KapuaService;
  */
 public class AbstractKapuaService {
 
+    private static final Logger LOG = LoggerFactory.getLogger(AbstractKapuaService.class);
+
+    private static final int BATCH_CHUNK_SIZE = SystemSetting.getInstance().getInt(SystemSettingKey.KAPUA_BATCH_CHUNK_SIZE, 500);
+
     protected EntityManagerFactory entityManagerFactory;
     protected EntityManagerSession entityManagerSession;
 
@@ -47,4 +74,272 @@ public class AbstractKapuaService {
     protected void registerEventListener(ServiceEventBusListener listener, String address, Class<? extends KapuaService> clazz) throws ServiceEventBusException {
         ServiceEventBusManager.getInstance().subscribe(address, clazz.getName(), listener);
     }
+
+    /**
+     * Write the batch items in chunks of {@link SystemSettingKey#KAPUA_BATCH_CHUNK_SIZE} items, each chunk in its own transaction.<br>
+     * The items of each chunk are validated before the chunk is written: the items that don't pass the validation are reported as failed and they are not written.<br>
+     * If the transaction of a chunk fails, the chunk items are written again one per transaction, so only the items that caused the error are reported as failed.<br>
+     * If the service is bound to the event bus, one {@link ServiceEvent} is raised for each chunk, with the ids of the written entities as outputs.
+     *
+     * @param serviceClass
+     *            the service interface, used as the service name of the raised events
+     * @param operation
+     *            the operation name of the raised events
+     * @param items
+     * @param validator
+     * @param batchCallback
+     * @return the result of each item, in the same order of the given items
+     * @throws KapuaException
+     */
+    protected <T, E extends KapuaEntity> KapuaBatchResult<E> onTransactedBatch(Class<? extends KapuaService> serviceClass,
+            String operation,
+            List<T> items,
+            BatchItemValidator<T> validator,
+            EntityManagerBatchCallback<T, E> batchCallback)
+            throws KapuaException {
+        return internalOnBatch(serviceClass, operation, items, validator, batchCallback, false);
+    }
+
+    /**
+     * Create the batch items as {@link #onTransactedBatch(Class, String, List, BatchItemValidator, EntityManagerBatchCallback)} does.<br>
+     * The entities must be persisted by {@link ServiceDAO#createInBatch(org.eclipse.kapua.commons.jpa.EntityManager, KapuaEntity)}: when an item is written
+     * in its own transaction, the insert is retried with a new id up to {@link SystemSettingKey#KAPUA_INSERT_MAX_RETRY} times if the id is already in use,
+     * as {@link EntityManagerSession#onTransactedInsert(org.eclipse.kapua.commons.jpa.EntityManagerInsertCallback)} does for the single entity.
+     *
+     * @param serviceClass
+     *            the service interface, used as the service name of the raised events
+     * @param operation
+     *            the operation name of the raised events
+     * @param items
+     * @param validator
+     * @param batchCallback
+     * @return the result of each item, in the same order of the given items
+     * @throws KapuaException
+     */
+    protected <T, E extends KapuaEntity> KapuaBatchResult<E> onTransactedBatchInsert(Class<? extends KapuaService> serviceClass,
+            String operation,
+            List<T> items,
+            BatchItemValidator<T> validator,
+            EntityManagerBatchCallback<T, E> batchCallback)
+            throws KapuaException {
+        return internalOnBatch(serviceClass, operation, items, validator, batchCallback, true);
+    }
+
+    /**
+     * Update the batch entities as {@link #onTransactedBatch(Class, String, List, BatchItemValidator, EntityManagerBatchCallback)} does.<br>
+     * The current entities of each chunk are read with a single query at the beginning of the chunk transaction,
+     * so the lookups of the single entities by id made by the batch callback don't hit the database.
+     *
+     * @param serviceClass
+     *            the service interface, used as the service name of the raised events
+     * @param operation
+     *            the operation name of the raised events
+     * @param entities
+     * @param entityClass
+     *            the implementing class of the entities
+     * @param validator
+     * @param batchCallback
+     * @return the result of each item, in the same order of the given items
+     * @throws KapuaException
+     */
+    protected <E extends KapuaEntity> KapuaBatchResult<E> onTransactedBatchUpdate(Class<? extends KapuaService> serviceClass,
+            String operation,
+            List<E> entities,
+            Class<? extends E> entityClass,
+            BatchItemValidator<E> validator,
+            EntityManagerBatchCallback<E, E> batchCallback)
+            throws KapuaException {
+        return internalOnBatch(serviceClass, operation, entities, validator, new EntityManagerBatchCallback<E, E>() {
+
+            @Override
+            public void onChunk(EntityManager entityManager, List<E> chunkEntities) throws KapuaException {
+                List<KapuaId> ids = new ArrayList<>(chunkEntities.size());
+                for (E entity : chunkEntities) {
+                    ids.add(entity.getId());
+                }
+                ServiceDAO.findAll(entityManager, entityClass, ids);
+                batchCallback.onChunk(entityManager, chunkEntities);
+            }
+
+            @Override
+            public E onItem(EntityManager entityManager, E entity) throws KapuaException {
+                return batchCallback.onItem(entityManager, entity);
+            }
+        }, false);
+    }
+
+    private <T, E extends KapuaEntity> KapuaBatchResult<E> internalOnBatch(Class<? extends KapuaService> serviceClass,
+            String operation,
+            List<T> items,
+            BatchItemValidator<T> validator,
+            EntityManagerBatchCallback<T, E> batchCallback,
+            boolean insert)
+            throws KapuaException {
+        ArgumentValidator.notNull(items, "items");
+
+        KapuaBatchResultImpl<E> batchResult = new KapuaBatchResultImpl<>(items.size());
+        for (int chunkStart = 0; chunkStart < items.size(); chunkStart += BATCH_CHUNK_SIZE) {
+            int chunkEnd = Math.min(chunkStart + BATCH_CHUNK_SIZE, items.size());
+
+            // the items of the previous chunks are already committed, so any error must be reported on the items and not thrown
+            try {
+                validator.prepare(items.subList(chunkStart, chunkEnd));
+            } catch (KapuaException | RuntimeException e) {
+                LOG.warn("Error preparing the validation of a chunk of {} items: {}", chunkEnd - chunkStart, e.getMessage());
+                for (int i = chunkStart; i < chunkEnd; i++) {
+                    batchResult.setFailed(i, KapuaExceptionUtils.convertPersistenceException(e));
+                }
+                continue;
+            }
+
+            List<Integer> chunkIndexes = new ArrayList<>(chunkEnd - chunkStart);
+            for (int i = chunkStart; i < chunkEnd; i++) {
+                try {
+                    validator.validate(items.get(i));
+                    chunkIndexes.add(i);
+                } catch (KapuaException | RuntimeException e) {
+                    batchResult.setFailed(i, KapuaExceptionUtils.convertPersistenceException(e));
+                }
+            }
+
+            if (!chunkIndexes.isEmpty()) {
+                writeChunk(serviceClass.getName(), operation, items, chunkIndexes, batchCallback, batchResult, insert);
+            }
+        }
+        return batchResult;
+    }
+
+    private <T, E extends KapuaEntity> void writeChunk(String serviceName,
+            String operation,
+            List<T> items,
+            List<Integer> chunkIndexes,
+            EntityManagerBatchCallback<T, E> batchCallback,
+            KapuaBatchResultImpl<E> batchResult,
+            boolean insert) {
+        boolean raiseEvent = ServiceMap.getAddress(serviceName) != null;
+        ServiceEvent chunkEvent = null;
+        if (raiseEvent) {
+            // the event is persisted along with the chunk entities by the entity manager session
+            chunkEvent = ServiceEventScope.begin();
+            KapuaSession session = KapuaSecurityUtils.getSession();
+            chunkEvent.setTimestamp(new Date());
+            chunkEvent.setUserId(session.getUserId());
+            chunkEvent.setScopeId(session.getScopeId());
+            chunkEvent.setService(serviceName);
+            chunkEvent.setOperation(operation);
+        }
+
+        List<E> chunkEntities = new ArrayList<>(chunkIndexes.size());
+        try {
+            try {
+                ServiceEvent event = chunkEvent;
+                chunkEntities.addAll(entityManagerSession.onTransactedResult(em -> {
+                    List<T> chunkItems = new ArrayList<>(chunkIndexes.size());
+                    for (int index : chunkIndexes) {
+                        chunkItems.add(items.get(index));
+                    }
+                    batchCallback.onChunk(em, chunkItems);
+
+                    List<E> entities = new ArrayList<>(chunkIndexes.size());
+                    for (T item : chunkItems) {
+                        entities.add(batchCallback.onItem(em, item));
+                    }
+                    // a single flush for the whole chunk, so the statements are grouped in JDBC batches
+                    em.flush();
+
+                    setChunkEventOutputs(event, entities);
+                    return entities;
+                }));
+                for (int i = 0; i < chunkIndexes.size(); i++) {
+                    batchResult.setSucceeded(chunkIndexes.get(i), chunkEntities.get(i));
+                }
+            } catch (KapuaException e) {
+                LOG.warn("Error writing a chunk of {} items. Writing them one by one: {}", chunkIndexes.size(), e.getMessage());
+                writeChunkItems(items, chunkIndexes, batchCallback, batchResult, chunkEvent, chunkEntities, insert);
+            }
+
+            if (chunkEvent != null && !chunkEntities.isEmpty()) {
+                ServiceEventSender.send(chunkEvent, entityManagerSession);
+            }
+        } finally {
+            if (raiseEvent) {
+                ServiceEventScope.end();
+            }
+        }
+    }
+
+    private <T, E extends KapuaEntity> void writeChunkItems(List<T> items,
+            List<Integer> chunkIndexes,
+            EntityManagerBatchCallback<T, E> batchCallback,
+            KapuaBatchResultImpl<E> batchResult,
+            ServiceEvent chunkEvent,
+            List<E> chunkEntities,
+            boolean insert) {
+        // the event persisted by the failed chunk transaction has been rolled back
+        setChunkEventOutputs(chunkEvent, null);
+        if (chunkEvent != null) {
+            chunkEvent.setId(null);
+        }
+
+        for (int index : chunkIndexes) {
+            String chunkEventId = chunkEvent != null ? chunkEvent.getId() : null;
+            try {
+                E entity;
+                if (insert) {
+                    // a new entity (and id) is built by each attempt
+                    entity = entityManagerSession.onTransactedInsert(em -> writeChunkItem(em, items.get(index), batchCallback, chunkEvent, chunkEntities, true));
+                } else {
+                    entity = entityManagerSession.onTransactedResult(em -> writeChunkItem(em, items.get(index), batchCallback, chunkEvent, chunkEntities, false));
+                }
+                chunkEntities.add(entity);
+                batchResult.setSucceeded(index, entity);
+            } catch (KapuaException e) {
+                setChunkEventOutputs(chunkEvent, chunkEntities);
+                if (chunkEvent != null) {
+                    chunkEvent.setId(chunkEventId);
+                }
+                batchResult.setFailed(index, e);
+            }
+        }
+    }
+
+    private static <T, E extends KapuaEntity> E writeChunkItem(EntityManager em,
+            T item,
+            EntityManagerBatchCallback<T, E> batchCallback,
+            ServiceEvent chunkEvent,
+            List<E> chunkEntities,
+            boolean insert)
+            throws KapuaException {
+        E itemEntity = batchCallback.onItem(em, item);
+        if (insert) {
+            ServiceDAO.flushCreated(em, itemEntity);
+        } else {
+            em.flush();
+        }
+
+        List<E> writtenEntities = new ArrayList<>(chunkEntities);
+        writtenEntities.add(itemEntity);
+        setChunkEventOutputs(chunkEvent, writtenEntities);
+        return itemEntity;
+    }
+
+    private static <E extends KapuaEntity> void setChunkEventOutputs(ServiceEvent chunkEvent, List<E> entities) {
+        if (chunkEvent == null) {
+            return;
+        }
+
+        StringBuilder outputs = new StringBuilder();
+        if (entities != null) {
+            for (E entity : entities) {
+                if (outputs.length() > 0) {
+                    outputs.append(", ");
+                }
+                outputs.append(entity.getId().toCompactId());
+            }
+            if (!entities.isEmpty()) {
+                chunkEvent.setEntityType(entities.get(0).getClass().getName());
+            }
+        }
+        chunkEvent.setOutputs(outputs.toString());
+    }
 }
@@ -0,0 +1,50 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Eurotech and/or its affiliates and others
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Eurotech - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.kapua.commons.service.internal;
+
+import org.eclipse.kapua.KapuaException;
+
+import java.util.List;
+
+/**
+ * Batch item validation definition.<br>
+ * It performs the checks (arguments, access, duplicates, limits) that the single entity operation performs before opening the transaction.<br>
+ * The data needed by the checks of a chunk (e.g. the names already in use) should be read by {@link #prepare(List)} with bulk queries,
+ * so the validation of each item doesn't hit the database.<br>
+ * Checks that reserve a resource for the item (e.g. the resource limits) must be performed last, so a failing check doesn't reserve it.
+ *
+ * @param <T> Batch item type
+ * @since 1.0
+ */
+public interface BatchItemValidator<T> {
+
+    /**
+     * Read what the validation of the chunk items needs, before the items are validated one by one.<br>
+     * The chunk can contain invalid items (e.g. {@code null} items), that are reported by {@link #validate(Object)}.
+     *
+     * @param chunkItems
+     * @throws KapuaException
+     *             if the chunk cannot be validated: all its items will be reported as failed
+     */
+    default void prepare(List<T> chunkItems) throws KapuaException {
+    }
+
+    /**
+     * Validate the batch item
+     *
+     * @param item
+     * @throws KapuaException
+     *             if the item is not valid: the item will be reported as failed and it will not be written
+     */
+    void validate(T item) throws KapuaException;
+
+}
@@ -0,0 +1,628 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Eurotech and/or its affiliates and others
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Eurotech - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.kapua.commons.service.internal;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import org.apache.commons.lang.ArrayUtils;
+import org.eclipse.kapua.KapuaErrorCodes;
+import org.eclipse.kapua.KapuaException;
+import org.eclipse.kapua.commons.jpa.EntityManager;
+import org.eclipse.kapua.commons.model.id.KapuaEid;
+import org.eclipse.kapua.commons.model.query.FieldSortCriteria;
+import org.eclipse.kapua.commons.setting.system.SystemSetting;
+import org.eclipse.kapua.commons.setting.system.SystemSettingKey;
+import org.eclipse.kapua.model.KapuaEntityPredicates;
+import org.eclipse.kapua.model.id.KapuaId;
+import org.eclipse.kapua.model.query.KapuaQuery;
+import org.eclipse.kapua.model.query.KapuaSortCriteria;
+import org.eclipse.kapua.model.query.predicate.AndPredicate;
+import org.eclipse.kapua.model.query.predicate.AttributePredicate;
+import org.eclipse.kapua.model.query.predicate.OrPredicate;
+import org.eclipse.kapua.model.query.predicate.QueryPredicate;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.persistence.TypedQuery;
+import javax.persistence.metamodel.Attribute;
+import javax.persistence.metamodel.EntityType;
+import javax.persistence.metamodel.ManagedType;
+import javax.persistence.metamodel.SingularAttribute;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Query plan cache of the {@link ServiceDAO} queries and counts.<br>
+ * Plans are keyed by the structural shape of the {@link KapuaQuery} (entity class, predicates tree with attribute names and operators, sort and fetch attributes)
+ * and hold the equivalent JPQL statement with positional parameters, so a repeated query shape only binds the predicate values.
+ * The array values are bound to a number of parameters rounded up to the next power of two (the last value is repeated), so the arrays of similar lengths
+ * share the same plan.<br>
+ * The least recently used plans are evicted once the cache holds {@link SystemSettingKey#DB_QUERY_PLAN_CACHE_SIZE} shapes.<br>
+ * The JPQL statement of a shape is always the same string, so the persistence provider reuses the parsed and prepared query from its own JPQL cache
+ * instead of translating a new criteria query on each call.<br>
+ * Shapes or values not handled by the plans (e.g. {@code null} values or comparisons of identifiers) return {@code null},
+ * and the caller falls back to the criteria query. The shapes not handled are not cached.
+ *
+ * @since 1.0
+ */
+public class QueryPlanCache {
+
+    private static final Logger LOG = LoggerFactory.getLogger(QueryPlanCache.class);
+
+    private static final SystemSetting SYSTEM_SETTING = SystemSetting.getInstance();
+
+    private static final String ESCAPE = SYSTEM_SETTING.getString(SystemSettingKey.DB_CHARACTER_ESCAPE, "\\");
+    private static final String LIKE = SYSTEM_SETTING.getString(SystemSettingKey.DB_CHARACTER_WILDCARD_ANY, "%");
+    private static final String ANY = SYSTEM_SETTING.getString(SystemSettingKey.DB_CHARACTER_WILDCARD_SINGLE, "_");
+
+    private static final String ATTRIBUTE_SEPARATOR = ".";
+    private static final String ATTRIBUTE_SEPARATOR_ESCAPED = "\\.";
+    private static final String ENTITY_ALIAS = "e";
+    private static final String EID_ATTRIBUTE = "eid";
+
+    // built for the shapes that always fall back to the criteria query, never cached
+    private static final QueryPlan UNSUPPORTED = new QueryPlan(null, null);
+
+    private static final QueryPlanCache INSTANCE = new QueryPlanCache();
+
+    private final boolean enabled;
+    private final Cache<String, QueryPlan> plans;
+
+    private QueryPlanCache() {
+        enabled = SYSTEM_SETTING.getBoolean(SystemSettingKey.DB_QUERY_PLAN_CACHE_ENABLED, true);
+        plans = CacheBuilder.newBuilder().maximumSize(SYSTEM_SETTING.getInt(SystemSettingKey.DB_QUERY_PLAN_CACHE_SIZE, 1000)).build();
+    }
+
+    /**
+     * Get the query plan cache instance
+     *
+     * @return
+     */
+    public static QueryPlanCache getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Return {@code true} if the query plan cache is enabled by {@link SystemSettingKey#DB_QUERY_PLAN_CACHE_ENABLED}
+     *
+     * @return
+     */
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Return the number of cached query shapes
+     *
+     * @return
+     */
+    public int size() {
+        return (int) plans.size();
+    }
+
+    /**
+     * Remove all the cached query plans
+     */
+    public void clear() {
+        plans.invalidateAll();
+    }
+
+    /**
+     * Create the select query for the provided {@link KapuaQuery}, with all the parameters bound.<br>
+     * Offset and limit are not set.
+     *
+     * @param em
+     * @param implementingClass
+     * @param kapuaQuery
+     * @return the query or {@code null} if the {@link KapuaQuery} must be handled by the criteria query
+     * @throws KapuaException
+     *             if the {@link KapuaQuery} predicates are incorrect
+     */
+    public <E> TypedQuery<E> createQuery(EntityManager em, Class<E> implementingClass, KapuaQuery<?> kapuaQuery) throws KapuaException {
+        return createQuery(em, implementingClass, implementingClass, kapuaQuery, PlanType.QUERY);
+    }
+
+    /**
+     * Create the count query for the provided {@link KapuaQuery}, with all the parameters bound
+     *
+     * @param em
+     * @param implementingClass
+     * @param kapuaQuery
+     * @return the query or {@code null} if the {@link KapuaQuery} must be handled by the criteria query
+     * @throws KapuaException
+     *             if the {@link KapuaQuery} predicates are incorrect
+     */
+    public TypedQuery<Long> createCountQuery(EntityManager em, Class<?> implementingClass, KapuaQuery<?> kapuaQuery) throws KapuaException {
+        return createQuery(em, implementingClass, Long.class, kapuaQuery, PlanType.COUNT);
+    }
+
+    /**
+     * Create the query of the ids of the {@link KapuaQuery} results, with all the parameters bound.<br>
+     * Offset and limit are not set.
+     *
+     * @param em
+     * @param implementingClass
+     * @param kapuaQuery
+     * @return the query or {@code null} if the {@link KapuaQuery} must be handled by the criteria query
+     * @throws KapuaException
+     *             if the {@link KapuaQuery} predicates are incorrect
+     */
+    public TypedQuery<Object> createIdQuery(EntityManager em, Class<?> implementingClass, KapuaQuery<?> kapuaQuery) throws KapuaException {
+        return createQuery(em, implementingClass, Object.class, kapuaQuery, PlanType.IDS);
+    }
+
+    private <R> TypedQuery<R> createQuery(EntityManager em, Class<?> entityClass, Class<R> resultClass, KapuaQuery<?> kapuaQuery, PlanType type) throws KapuaException {
+        if (!enabled) {
+            return null;
+        }
+        QueryPredicate predicate = ServiceDAO.scopedPredicate(kapuaQuery, type == PlanType.QUERY);
+        List<AttributePredicate<?>> attributePredicates = new ArrayList<>();
+        String key = shapeKey(entityClass, kapuaQuery, predicate, type, attributePredicates);
+        if (key == null) {
+            return null;
+        }
+
+        QueryPlan plan = plans.getIfPresent(key);
+        if (plan == null) {
+            plan = buildPlan(em, entityClass, kapuaQuery, predicate, type);
+            if (plan == UNSUPPORTED) {
+                return null;
+            }
+            plans.put(key, plan);
+        }
+
+        List<Object> parameters = new ArrayList<>();
+        for (int i = 0; i < attributePredicates.size(); i++) {
+            if (!plan.binders[i].bind(attributePredicates.get(i).getAttributeValue(), parameters)) {
+                return null;
+            }
+        }
+
+        TypedQuery<R> query = em.createQuery(plan.jpql, resultClass);
+        for (int i = 0; i < parameters.size(); i++) {
+            query.setParameter(i + 1, parameters.get(i));
+        }
+        return query;
+    }
+
+    //
+    // Shape
+
+    private static String shapeKey(Class<?> entityClass, KapuaQuery<?> kapuaQuery, QueryPredicate predicate, PlanType type, List<AttributePredicate<?>> attributePredicates) {
+        StringBuilder key = new StringBuilder(128);
+        key.append(type).append('|').append(entityClass.getName());
+        if (type == PlanType.QUERY) {
+            key.append("|F");
+            if (kapuaQuery.getFetchAttributes() != null) {
+                for (String fetchAttribute : kapuaQuery.getFetchAttributes()) {
+                    key.append(fetchAttribute).append(',');
+                }
+            }
+            key.append("|S");
+            KapuaSortCriteria sortCriteria = kapuaQuery.getSortCriteria();
+            if (sortCriteria != null) {
+                if (!(sortCriteria instanceof FieldSortCriteria)) {
+                    return null;
+                }
+                FieldSortCriteria fieldSortCriteria = (FieldSortCriteria) sortCriteria;
+                key.append(fieldSortCriteria.getAttributeName()).append(':').append(fieldSortCriteria.getSortOrder());
+            }
+            if (kapuaQuery.getSeekAfterId() != null) {
+                key.append("|K");
+            }
+        }
+        key.append("|W");
+        if (predicate != null && !appendShape(predicate, key, attributePredicates)) {
+            return null;
+        }
+        return key.toString();
+    }
+
+    private static boolean appendShape(QueryPredicate predicate, StringBuilder key, List<AttributePredicate<?>> attributePredicates) {
+        if (predicate instanceof AttributePredicate) {
+            AttributePredicate<?> attributePredicate = (AttributePredicate<?>) predicate;
+            if (attributePredicate.getOperator() == null) {
+                return false;
+            }
+            key.append("A(").append(attributePredicate.getAttributeName()).append(',').append(attributePredicate.getOperator());
+            if (attributePredicate.getAttributeValue() instanceof Object[]) {
+                key.append(",[").append(parameterCount((Object[]) attributePredicate.getAttributeValue())).append(']');
+            }
+            key.append(')');
+            attributePredicates.add(attributePredicate);
+            return true;
+        }
+
+        List<QueryPredicate> predicates;
+        if (predicate instanceof AndPredicate) {
+            key.append("&(");
+            predicates = ((AndPredicate) predicate).getPredicates();
+        } else if (predicate instanceof OrPredicate) {
+            key.append("|(");
+            predicates = ((OrPredicate) predicate).getPredicates();
+        } else {
+            return false;
+        }
+        for (QueryPredicate childPredicate : predicates) {
+            if (!appendShape(childPredicate, key, attributePredicates)) {
+                return false;
+            }
+            key.append(';');
+        }
+        key.append(')');
+        return true;
+    }
+
+    //
+    // Plan
+
+    private static QueryPlan buildPlan(EntityManager em, Class<?> entityClass, KapuaQuery<?> kapuaQuery, QueryPredicate predicate, PlanType type) throws KapuaException {
+        try {
+            EntityType<?> entityType = em.getMetamodel().entity(entityClass);
+            PlanBuilder builder = new PlanBuilder(entityType);
+
+            // Duplicated rows are possible only with joins on collection attributes
+            String distinct = ServiceDAO.isDistinctRequired(entityType, kapuaQuery, type == PlanType.QUERY) ? "DISTINCT " : "";
+            StringBuilder jpql = builder.jpql;
+            switch (type) {
+            case COUNT:
+                jpql.append("SELECT COUNT(").append(distinct).append(ENTITY_ALIAS).append(')');
+                break;
+            case IDS:
+                jpql.append("SELECT ").append(distinct).append(path(entityType, KapuaEntityPredicates.ENTITY_ID));
+                break;
+            case QUERY:
+            default:
+                jpql.append("SELECT ").append(distinct).append(ENTITY_ALIAS);
+            }
+            jpql.append(" FROM ").append(entityType.getName()).append(' ').append(ENTITY_ALIAS);
+            if (type == PlanType.QUERY) {
+                if (kapuaQuery.getFetchAttributes() != null) {
+                    for (String fetchAttribute : kapuaQuery.getFetchAttributes()) {
+                        entityType.getSingularAttribute(fetchAttribute);
+                        jpql.append(" LEFT JOIN FETCH ").append(ENTITY_ALIAS).append('.').append(fetchAttribute);
+                    }
+                }
+            }
+
+            if (predicate != null) {
+                jpql.append(" WHERE ");
+                if (!appendPredicate(predicate, builder)) {
+                    return UNSUPPORTED;
+                }
+            }
+
+            if (type == PlanType.QUERY) {
+                String sortAttributeName = ServiceDAO.getSortAttributeName(kapuaQuery);
+                if (isCollection(entityType, sortAttributeName)) {
+                    return UNSUPPORTED;
+                }
+                String direction = ServiceDAO.isSortAscending(kapuaQuery) ? " ASC" : " DESC";
+                jpql.append(" ORDER BY ").append(path(entityType, sortAttributeName)).append(direction);
+
+                // The keyset pagination needs a total order: results with the same sort attribute value are ordered by id
+                if (kapuaQuery.getSeekAfterId() != null && !KapuaEntityPredicates.ENTITY_ID.equals(sortAttributeName)) {
+                    jpql.append(", ").append(path(entityType, KapuaEntityPredicates.ENTITY_ID)).append(direction);
+                }
+            }
+            return new QueryPlan(jpql.toString(), builder.binders.toArray(new ParameterBinder[builder.binders.size()]));
+        } catch (IllegalArgumentException | ClassCastException e) {
+            // unknown entity or attribute: the criteria query reports the error
+            LOG.debug("Query shape not supported by the query plan cache", e);
+            return UNSUPPORTED;
+        }
+    }
+
+    private static boolean appendPredicate(QueryPredicate predicate, PlanBuilder builder) throws KapuaException {
+        if (predicate instanceof AttributePredicate) {
+            return appendAttributePredicate((AttributePredicate<?>) predicate, builder);
+        }
+
+        StringBuilder jpql = builder.jpql;
+        boolean and = predicate instanceof AndPredicate;
+        List<QueryPredicate> predicates = and ? ((AndPredicate) predicate).getPredicates() : ((OrPredicate) predicate).getPredicates();
+        if (predicates.isEmpty()) {
+            // same as the empty conjunction and disjunction of the criteria builder
+            jpql.append(and ? "1 = 1" : "1 = 0");
+            return true;
+        }
+        jpql.append('(');
+        for (int i = 0; i < predicates.size(); i++) {
+            if (i > 0) {
+                jpql.append(and ? " AND " : " OR ");
+            }
+            if (!appendPredicate(predicates.get(i), builder)) {
+                return false;
+            }
+        }
+        jpql.append(')');
+        return true;
+    }
+
+    private static boolean appendAttributePredicate(AttributePredicate<?> attributePredicate, PlanBuilder builder) throws KapuaException {
+        EntityType<?> entityType = builder.entityType;
+        StringBuilder jpql = builder.jpql;
+        List<ParameterBinder> binders = builder.binders;
+        String attributeName = attributePredicate.getAttributeName();
+        if (isCollection(entityType, attributeName)) {
+            // JPQL needs an explicit join to navigate a collection
+            return false;
+        }
+        boolean id = isId(entityType, attributeName);
+        String path = path(entityType, attributeName);
+
+        if (attributePredicate.getAttributeValue() instanceof Object[]) {
+            int parameterCount = parameterCount((Object[]) attributePredicate.getAttributeValue());
+            if (parameterCount == 0) {
+                jpql.append("1 = 0");
+            } else {
+                jpql.append('(');
+                for (int i = 0; i < parameterCount; i++) {
+                    if (i > 0) {
+                        jpql.append(" OR ");
+                    }
+                    jpql.append(path).append(" = ?").append(builder.nextParameter());
+                }
+                jpql.append(')');
+            }
+            binders.add(id ? ParameterBinder.IDS : ParameterBinder.VALUES);
+            return true;
+        }
+
+        switch (attributePredicate.getOperator()) {
+        case LIKE:
+        case STARTS_WITH:
+            if (id) {
+                return false;
+            }
+            jpql.append(path).append(" LIKE ?").append(builder.nextParameter());
+            binders.add(attributePredicate.getOperator() == AttributePredicate.Operator.LIKE ? ParameterBinder.LIKE : ParameterBinder.STARTS_WITH);
+            break;
+        case IS_NULL:
+            jpql.append(path).append(" IS NULL");
+            binders.add(ParameterBinder.NONE);
+            break;
+        case NOT_NULL:
+            jpql.append(path).append(" IS NOT NULL");
+            binders.add(ParameterBinder.NONE);
+            break;
+        case NOT_EQUAL:
+            jpql.append(path).append(" <> ?").append(builder.nextParameter());
+            binders.add(id ? ParameterBinder.ID : ParameterBinder.VALUE);
+            break;
+        case GREATER_THAN:
+        case GREATER_THAN_OR_EQUAL:
+        case LESS_THAN:
+        case LESS_THAN_OR_EQUAL:
+            if (id) {
+                // identifiers are compared through their value, as the criteria query does for the root entity identifiers only
+                if (attributeName.contains(ATTRIBUTE_SEPARATOR)) {
+                    return false;
+                }
+                jpql.append(path).append(' ').append(comparisonOperator(attributePredicate.getOperator())).append(" ?").append(builder.nextParameter());
+                binders.add(ParameterBinder.ID);
+                break;
+            }
+            // same check of the criteria query: the comparable interface is looked up on the root entity attribute
+            Attribute<?, ?> attribute = entityType.getAttribute(attributeName.split(ATTRIBUTE_SEPARATOR_ESCAPED)[0]);
+            if (!ArrayUtils.contains(attribute.getJavaType().getInterfaces(), Comparable.class)) {
+                throw new KapuaException(KapuaErrorCodes.ILLEGAL_ARGUMENT, "Trying to compare a non-comparable value");
+            }
+            jpql.append(path).append(' ').append(comparisonOperator(attributePredicate.getOperator())).append(" ?").append(builder.nextParameter());
+            binders.add(ParameterBinder.COMPARABLE);
+            break;
+        case EQUAL:
+        default:
+            jpql.append(path).append(" = ?").append(builder.nextParameter());
+            binders.add(id ? ParameterBinder.ID : ParameterBinder.VALUE);
+        }
+        return true;
+    }
+
+    /**
+     * Return the number of parameters bound to the array value: its length rounded up to the next power of two
+     */
+    private static int parameterCount(Object[] values) {
+        return values.length <= 1 ? values.length : Integer.highestOneBit(values.length - 1) << 1;
+    }
+
+    private static String comparisonOperator(AttributePredicate.Operator operator) {
+        switch (operator) {
+        case GREATER_THAN:
+            return ">";
+        case GREATER_THAN_OR_EQUAL:
+            return ">=";
+        case LESS_THAN:
+            return "<";
+        default:
+            return "<=";
+        }
+    }
+
+    /**
+     * Return the JPQL path of the attribute.<br>
+     * Embedded identifiers are compared through their value, since JPQL doesn't allow embeddable parameters.
+     */
+    private static String path(EntityType<?> entityType, String attributeName) {
+        StringBuilder path = new StringBuilder(ENTITY_ALIAS).append('.').append(attributeName);
+        if (isId(entityType, attributeName)) {
+            path.append('.').append(EID_ATTRIBUTE);
+        }
+        return path.toString();
+    }
+
+    private static boolean isCollection(EntityType<?> entityType, String attributeName) {
+        return entityType.getAttribute(attributeName.split(ATTRIBUTE_SEPARATOR_ESCAPED)[0]).isCollection();
+    }
+
+    private static boolean isId(EntityType<?> entityType, String attributeName) {
+        Class<?> javaType;
+        if (attributeName.contains(ATTRIBUTE_SEPARATOR)) {
+            String[] names = attributeName.split(ATTRIBUTE_SEPARATOR_ESCAPED);
+            if (names.length != 2) {
+                // the attribute name is copied to the JPQL statement, so each part must be a known attribute
+                throw new IllegalArgumentException("Unsupported attribute name: " + attributeName);
+            }
+            SingularAttribute<?, ?> attribute = entityType.getSingularAttribute(names[0]);
+            javaType = ((ManagedType<?>) attribute.getType()).getAttribute(names[1]).getJavaType();
+        } else {
+            javaType = entityType.getAttribute(attributeName).getJavaType();
+        }
+        return KapuaId.class.isAssignableFrom(javaType);
+    }
+
+    /**
+     * Statement types of the plans
+     */
+    private enum PlanType {
+        QUERY,
+        COUNT,
+        IDS
+    }
+
+    /**
+     * Query plan under construction
+     */
+    private static class PlanBuilder {
+
+        private final EntityType<?> entityType;
+        private final StringBuilder jpql = new StringBuilder(256);
+        private final List<ParameterBinder> binders = new ArrayList<>();
+        private int parameters;
+
+        private PlanBuilder(EntityType<?> entityType) {
+            this.entityType = entityType;
+        }
+
+        private int nextParameter() {
+            return ++parameters;
+        }
+    }
+
+    /**
+     * Query plan: the JPQL statement and the binders of the attribute predicates values, in the predicates tree order
+     */
+    private static class QueryPlan {
+
+        private final String jpql;
+        private final ParameterBinder[] binders;
+
+        private QueryPlan(String jpql, ParameterBinder[] binders) {
+            this.jpql = jpql;
+            this.binders = binders;
+        }
+    }
+
+    /**
+     * Conversion of an attribute predicate value to the positional parameters, equal to the one of the criteria query
+     */
+    private enum ParameterBinder {
+
+        NONE {
+
+            @Override
+            boolean bind(Object value, List<Object> parameters) {
+                return true;
+            }
+        },
+        VALUE {
+
+            @Override
+            boolean bind(Object value, List<Object> parameters) {
+                if (value == null) {
+                    return false;
+                }
+                parameters.add(value instanceof KapuaId && !(value instanceof KapuaEid) ? KapuaEid.parseKapuaId((KapuaId) value) : value);
+                return true;
+            }
+        },
+        ID {
+
+            @Override
+            boolean bind(Object value, List<Object> parameters) {
+                if (!(value instanceof KapuaId)) {
+                    return false;
+                }
+                parameters.add(((KapuaId) value).getId());
+                return true;
+            }
+        },
+        VALUES {
+
+            @Override
+            boolean bind(Object value, List<Object> parameters) throws KapuaException {
+                return bindArray(VALUE, (Object[]) value, parameters);
+            }
+        },
+        IDS {
+
+            @Override
+            boolean bind(Object value, List<Object> parameters) throws KapuaException {
+                return bindArray(ID, (Object[]) value, parameters);
+            }
+        },
+        LIKE {
+
+            @Override
+            boolean bind(Object value, List<Object> parameters) {
+                if (value == null) {
+                    return false;
+                }
+                parameters.add(QueryPlanCache.LIKE + escape(value) + QueryPlanCache.LIKE);
+                return true;
+            }
+        },
+        STARTS_WITH {
+
+            @Override
+            boolean bind(Object value, List<Object> parameters) {
+                if (value == null) {
+                    return false;
+                }
+                parameters.add(escape(value) + QueryPlanCache.LIKE);
+                return true;
+            }
+        },
+        COMPARABLE {
+
+            @Override
+            boolean bind(Object value, List<Object> parameters) throws KapuaException {
+                if (!(value instanceof Comparable)) {
+                    throw new KapuaException(KapuaErrorCodes.ILLEGAL_ARGUMENT, "Trying to compare a non-comparable value");
+                }
+                return VALUE.bind(value, parameters);
+            }
+        };
+
+        abstract boolean bind(Object value, List<Object> parameters) throws KapuaException;
+
+        /**
+         * Bind the array elements, then repeat the last one up to the parameters of the plan (the equality disjunction doesn't change)
+         */
+        private static boolean bindArray(ParameterBinder elementBinder, Object[] values, List<Object> parameters) throws KapuaException {
+            for (Object element : values) {
+                if (!elementBinder.bind(element, parameters)) {
+                    return false;
+                }
+            }
+            for (int i = values.length; i < parameterCount(values); i++) {
+                parameters.add(parameters.get(parameters.size() - 1));
+            }
+            return true;
+        }
+
+        private static String escape(Object value) {
+            return value.toString().replace(QueryPlanCache.LIKE, ESCAPE + QueryPlanCache.LIKE).replace(ANY, ESCAPE + ANY);
+        }
+    }
+
+}
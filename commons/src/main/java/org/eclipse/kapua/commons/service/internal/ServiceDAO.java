@@ -16,6 +16,7 @@ import org.eclipse.kapua.KapuaEntityExistsException;
 import org.eclipse.kapua.KapuaEntityNotFoundException;
 import org.eclipse.kapua.KapuaErrorCodes;
 import org.eclipse.kapua.KapuaException;
+import org.eclipse.kapua.KapuaIllegalNullArgumentException;
 import org.eclipse.kapua.commons.jpa.EntityManager;
 import org.eclipse.kapua.commons.model.AbstractKapuaUpdatableEntity;
 import org.eclipse.kapua.commons.model.id.KapuaEid;
@@ -23,6 +24,7 @@ import org.eclipse.kapua.commons.model.query.FieldSortCriteria;
 import org.eclipse.kapua.commons.model.query.FieldSortCriteria.SortOrder;
 import org.eclipse.kapua.commons.model.query.predicate.AndPredicateImpl;
 import org.eclipse.kapua.commons.model.query.predicate.AttributePredicateImpl;
+import org.eclipse.kapua.commons.model.query.predicate.OrPredicateImpl;
 import org.eclipse.kapua.commons.security.KapuaSecurityUtils;
 import org.eclipse.kapua.commons.security.KapuaSession;
 import org.eclipse.kapua.commons.setting.system.SystemSetting;
@@ -38,6 +40,7 @@ import org.eclipse.kapua.model.query.KapuaListResult;
 import org.eclipse.kapua.model.query.KapuaQuery;
 import org.eclipse.kapua.model.query.predicate.AndPredicate;
 import org.eclipse.kapua.model.query.predicate.AttributePredicate;
+import org.eclipse.kapua.model.query.predicate.AttributePredicate.Operator;
 import org.eclipse.kapua.model.query.predicate.OrPredicate;
 import org.eclipse.kapua.model.query.predicate.QueryPredicate;
 import org.eclipse.kapua.service.authorization.access.AccessInfo;
@@ -78,8 +81,10 @@ import javax.persistence.criteria.Predicate;
 import javax.persistence.criteria.Root;
 import javax.persistence.metamodel.Attribute;
 import javax.persistence.metamodel.EntityType;
+import java.math.BigInteger;
 import java.sql.SQLException;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -112,6 +117,9 @@ public class ServiceDAO {
 
     private static final String ATTRIBUTE_SEPARATOR = ".";
     private static final String ATTRIBUTE_SEPARATOR_ESCAPED = "\\.";
+    private static final String EID_ATTRIBUTE = "eid";
+
+    private static final QueryPlanCache QUERY_PLAN_CACHE = QueryPlanCache.getInstance();
 
     static {
         KapuaLocator locator = null;
@@ -160,8 +168,27 @@ public class ServiceDAO {
         // Creating entity
         try {
             em.persist(entity);
+        } catch (EntityExistsException e) {
+            throw new KapuaEntityExistsException(e, entity.getId());
+        }
+        flushCreated(em, entity);
+        em.refresh(entity);
+
+        return entity;
+    }
+
+    /**
+     * Flush the {@link EntityManager} after the creation of the {@link KapuaEntity}.<br>
+     * This method checks for the constraint violation and, in this case, it throws a specific exception ({@link KapuaEntityExistsException})
+     * if the {@link KapuaEntity} id is already in use, so the creation can be retried with a new id.
+     *
+     * @param em     The {@link EntityManager} that holds the transaction.
+     * @param entity The {@link KapuaEntity} just persisted.
+     * @since 1.0.0
+     */
+    public static <E extends KapuaEntity> void flushCreated(EntityManager em, E entity) {
+        try {
             em.flush();
-            em.refresh(entity);
         } catch (EntityExistsException e) {
             throw new KapuaEntityExistsException(e, entity.getId());
         } catch (PersistenceException e) {
@@ -175,8 +202,6 @@ public class ServiceDAO {
                 throw e;
             }
         }
-
-        return entity;
     }
 
     private static boolean isInsertConstraintViolation(PersistenceException e) {
@@ -226,6 +251,81 @@ public class ServiceDAO {
         return entityToUpdate;
     }
 
+    /**
+     * Create {@link KapuaEntity} in batch utility method.<br>
+     * Unlike {@link #create(EntityManager, KapuaEntity)} the {@link EntityManager} is not flushed, so the inserts of the same transaction
+     * are sent to the database in JDBC batches when the caller flushes the {@link EntityManager}.
+     *
+     * @param em     The {@link EntityManager} that holds the transaction.
+     * @param entity The {@link KapuaEntity} to be created.
+     * @return The {@link KapuaEntity} to be persisted.
+     * @since 1.0.0
+     */
+    public static <E extends KapuaEntity> E createInBatch(EntityManager em, E entity) {
+        em.persist(entity);
+        return entity;
+    }
+
+    /**
+     * Update {@link KapuaUpdatableEntity} in batch utility method.<br>
+     * Unlike {@link #update(EntityManager, Class, KapuaUpdatableEntity)} the {@link EntityManager} is not flushed, so the updates of the same transaction
+     * are sent to the database in JDBC batches when the caller flushes the {@link EntityManager}.
+     *
+     * @param em     The {@link EntityManager} that holds the transaction.
+     * @param clazz  The {@link KapuaUpdatableEntity} class. This must be the implementing {@code class}.
+     * @param entity The {@link KapuaUpdatableEntity} to be updated
+     * @return The {@link KapuaUpdatableEntity} to be updated.
+     * @throws KapuaEntityNotFoundException If the {@link KapuaEntity} does not exists.
+     * @since 1.0.0
+     */
+    public static <E extends KapuaUpdatableEntity> E updateInBatch(EntityManager em, Class<E> clazz, E entity) throws KapuaEntityNotFoundException {
+        //
+        // Checking existence
+        E entityToUpdate = em.find(clazz, entity.getId());
+
+        //
+        // Updating if not null
+        if (entityToUpdate != null) {
+            AbstractKapuaUpdatableEntity updatableEntity = (AbstractKapuaUpdatableEntity) entity;
+            updatableEntity.setCreatedOn(entityToUpdate.getCreatedOn());
+            updatableEntity.setCreatedBy(entityToUpdate.getCreatedBy());
+
+            em.merge(entity);
+        } else {
+            throw new KapuaEntityNotFoundException(clazz.getSimpleName(), entity.getId());
+        }
+
+        return entityToUpdate;
+    }
+
+    /**
+     * Find the {@link KapuaEntity}es with the given ids with a single query.<br>
+     * The found {@link KapuaEntity}es are loaded into the {@link EntityManager}, so their following lookups by id in the same transaction don't hit the database.
+     *
+     * @param em    The {@link EntityManager} that holds the transaction.
+     * @param clazz The {@link KapuaEntity} class. This must be the implementing {@code class}.
+     * @param ids   The {@link KapuaEntity} {@link KapuaId}s.
+     * @return The {@link KapuaEntity}es found.
+     * @since 1.0.0
+     */
+    public static <E extends KapuaEntity> List<E> findAll(EntityManager em, Class<E> clazz, Collection<KapuaId> ids) {
+        List<BigInteger> eids = new ArrayList<>(ids.size());
+        for (KapuaId id : ids) {
+            if (id != null) {
+                eids.add(id.getId());
+            }
+        }
+        if (eids.isEmpty()) {
+            return new ArrayList<>();
+        }
+
+        CriteriaBuilder cb = em.getCriteriaBuilder();
+        CriteriaQuery<E> criteriaSelectQuery = cb.createQuery(clazz);
+        Root<E> entityRoot = criteriaSelectQuery.from(clazz);
+        criteriaSelectQuery.select(entityRoot).where(entityRoot.get(KapuaEntityPredicates.ENTITY_ID).get(EID_ATTRIBUTE).in(eids));
+        return em.createQuery(criteriaSelectQuery).getResultList();
+    }
+
     /**
      * Delete {@link KapuaEntity} utility method
      *
@@ -309,6 +409,88 @@ public class ServiceDAO {
             L resultContainer,
             KapuaQuery<I> kapuaQuery)
             throws KapuaException {
+        //
+        // QUERY!
+        TypedQuery<E> query = QUERY_PLAN_CACHE.createQuery(em, implementingClass, kapuaQuery);
+        if (query == null) {
+            query = createCriteriaQuery(em, implementingClass, kapuaQuery);
+        }
+
+        // Set offset
+        if (kapuaQuery.getOffset() != null) {
+            query.setFirstResult(kapuaQuery.getOffset());
+        }
+
+        // Set limit
+        if (kapuaQuery.getLimit() != null) {
+            query.setMaxResults(kapuaQuery.getLimit() + 1);
+        }
+
+        // Finally querying!
+        List<E> result = query.getResultList();
+
+        // Check limit exceeded
+        if (kapuaQuery.getLimit() != null &&
+                result.size() > kapuaQuery.getLimit()) {
+            result.remove(kapuaQuery.getLimit().intValue());
+            resultContainer.setLimitExceeded(true);
+        }
+
+        // Set results
+        resultContainer.addItems(result);
+        return resultContainer;
+    }
+
+    /**
+     * Count {@link KapuaEntity} utility method.
+     *
+     * @param em                The {@link EntityManager} that holds the transaction.
+     * @param interfaceClass    {@link KapuaQuery} result entity interface class
+     * @param implementingClass {@link KapuaQuery} result entity implementation class
+     * @param kapuaQuery        The {@link KapuaQuery} to perform.
+     * @return The number of {@link KapuaEntity}es that matched the filter predicates.
+     * @throws KapuaException If filter predicates in the {@link KapuaQuery} are incorrect. See {@link #handleKapuaQueryPredicates(QueryPredicate, Map, CriteriaBuilder, Root, EntityType)}.
+     * @since 1.0.0
+     */
+    public static <I extends KapuaEntity, E extends I> long count(EntityManager em,
+            Class<I> interfaceClass,
+            Class<E> implementingClass,
+            KapuaQuery<I> kapuaQuery)
+            throws KapuaException {
+        if (kapuaQuery.getCountLimit() != null) {
+            return countUpToLimit(em, implementingClass, kapuaQuery);
+        }
+
+        //
+        // COUNT!
+        TypedQuery<Long> query = QUERY_PLAN_CACHE.createCountQuery(em, implementingClass, kapuaQuery);
+        if (query == null) {
+            query = createCriteriaCountQuery(em, implementingClass, kapuaQuery);
+        }
+
+        return query.getSingleResult();
+    }
+
+    /**
+     * Count the {@link KapuaEntity}es reading their ids up to the {@link KapuaQuery#getCountLimit()}, so the cost is bounded by the limit and not by the table size.
+     */
+    private static <I extends KapuaEntity, E extends I> long countUpToLimit(EntityManager em,
+            Class<E> implementingClass,
+            KapuaQuery<I> kapuaQuery)
+            throws KapuaException {
+        TypedQuery<?> query = QUERY_PLAN_CACHE.createIdQuery(em, implementingClass, kapuaQuery);
+        if (query == null) {
+            query = createCriteriaIdQuery(em, implementingClass, kapuaQuery);
+        }
+
+        query.setMaxResults(kapuaQuery.getCountLimit());
+        return query.getResultList().size();
+    }
+
+    static <I extends KapuaEntity, E extends I> TypedQuery<E> createCriteriaQuery(EntityManager em,
+            Class<E> implementingClass,
+            KapuaQuery<I> kapuaQuery)
+            throws KapuaException {
         CriteriaBuilder cb = em.getCriteriaBuilder();
         CriteriaQuery<E> criteriaSelectQuery = cb.createQuery(implementingClass);
 
@@ -319,7 +501,8 @@ public class ServiceDAO {
 
         //
         // SELECT
-        criteriaSelectQuery.select(entityRoot).distinct(true);
+        // Duplicated rows are possible only with joins on collection attributes
+        criteriaSelectQuery.select(entityRoot).distinct(isDistinctRequired(entityType, kapuaQuery, true));
 
         // Fetch LAZY attributes if necessary
         if (kapuaQuery.getFetchAttributes() != null) {
@@ -330,21 +513,7 @@ public class ServiceDAO {
 
         //
         // WHERE
-        QueryPredicate kapuaPredicates = kapuaQuery.getPredicate();
-        if (kapuaQuery.getScopeId() != null) {
-
-            AttributePredicateImpl<KapuaId> scopeId = new AttributePredicateImpl<>(KapuaEntityPredicates.SCOPE_ID, kapuaQuery.getScopeId());
-
-            AndPredicateImpl scopedAndPredicate = new AndPredicateImpl();
-            scopedAndPredicate.and(scopeId);
-
-            // Add existing query predicates
-            if (kapuaQuery.getPredicate() != null) {
-                scopedAndPredicate.and(kapuaQuery.getPredicate());
-            }
-
-            kapuaPredicates = scopedAndPredicate;
-        }
+        QueryPredicate kapuaPredicates = scopedPredicate(kapuaQuery, true);
 
         // Manage kapua query predicates to build the where clause.
         Map<ParameterExpression, Object> binds = new HashMap<>();
@@ -361,71 +530,77 @@ public class ServiceDAO {
         //
         // ORDER BY
         // Default to the KapuaEntity id if no ordering is specified.
-        Order order;
-        if (kapuaQuery.getSortCriteria() != null) {
-            FieldSortCriteria sortCriteria = (FieldSortCriteria) kapuaQuery.getSortCriteria();
-
-            if (SortOrder.ASCENDING.equals(sortCriteria.getSortOrder())) {
-                order = cb.asc(extractAttribute(entityRoot, sortCriteria.getAttributeName()));
-            } else {
-                order = cb.desc(extractAttribute(entityRoot, sortCriteria.getAttributeName()));
-            }
-
-        } else {
-            order = cb.asc(entityRoot.get(entityType.getSingularAttribute(KapuaEntityPredicates.ENTITY_ID)));
+        String sortAttributeName = getSortAttributeName(kapuaQuery);
+        Expression<?> sortAttribute = KapuaEntityPredicates.ENTITY_ID.equals(sortAttributeName) ?
+                entityRoot.get(entityType.getSingularAttribute(KapuaEntityPredicates.ENTITY_ID)) :
+                extractAttribute(entityRoot, sortAttributeName);
+        boolean ascending = isSortAscending(kapuaQuery);
+        List<Order> orders = new ArrayList<>();
+        orders.add(ascending ? cb.asc(sortAttribute) : cb.desc(sortAttribute));
+
+        // The keyset pagination needs a total order: results with the same sort attribute value are ordered by id
+        if (kapuaQuery.getSeekAfterId() != null && !KapuaEntityPredicates.ENTITY_ID.equals(sortAttributeName)) {
+            Expression<?> idAttribute = entityRoot.get(entityType.getSingularAttribute(KapuaEntityPredicates.ENTITY_ID));
+            orders.add(ascending ? cb.asc(idAttribute) : cb.desc(idAttribute));
         }
-        criteriaSelectQuery.orderBy(order);
+        criteriaSelectQuery.orderBy(orders);
 
-        //
-        // QUERY!
         TypedQuery<E> query = em.createQuery(criteriaSelectQuery);
 
         // Populate query parameters
         binds.forEach(query::setParameter); // Whoah! This is very magic!
 
-        // Set offset
-        if (kapuaQuery.getOffset() != null) {
-            query.setFirstResult(kapuaQuery.getOffset());
-        }
+        return query;
+    }
 
-        // Set limit
-        if (kapuaQuery.getLimit() != null) {
-            query.setMaxResults(kapuaQuery.getLimit() + 1);
+    static <I extends KapuaEntity, E extends I> TypedQuery<Long> createCriteriaCountQuery(EntityManager em,
+            Class<E> implementingClass,
+            KapuaQuery<I> kapuaQuery)
+            throws KapuaException {
+        CriteriaBuilder cb = em.getCriteriaBuilder();
+        CriteriaQuery<Long> criteriaSelectQuery = cb.createQuery(Long.class);
+
+        //
+        // FROM
+        Root<E> entityRoot = criteriaSelectQuery.from(implementingClass);
+
+        //
+        // SELECT
+        if (isDistinctRequired(entityRoot.getModel(), kapuaQuery, false)) {
+            criteriaSelectQuery.select(cb.countDistinct(entityRoot));
+        } else {
+            criteriaSelectQuery.select(cb.count(entityRoot));
         }
 
-        // Finally querying!
-        List<E> result = query.getResultList();
+        //
+        // WHERE
+        QueryPredicate kapuaPredicates = scopedPredicate(kapuaQuery, false);
 
-        // Check limit exceeded
-        if (kapuaQuery.getLimit() != null &&
-                result.size() > kapuaQuery.getLimit()) {
-            result.remove(kapuaQuery.getLimit().intValue());
-            resultContainer.setLimitExceeded(true);
+        Map<ParameterExpression, Object> binds = new HashMap<>();
+        Expression<Boolean> expr = handleKapuaQueryPredicates(kapuaPredicates,
+                binds,
+                cb,
+                entityRoot,
+                entityRoot.getModel());
+
+        if (expr != null) {
+            criteriaSelectQuery.where(expr);
         }
 
-        // Set results
-        resultContainer.addItems(result);
-        return resultContainer;
+        TypedQuery<Long> query = em.createQuery(criteriaSelectQuery);
+
+        // Populate query parameters
+        binds.forEach(query::setParameter); // Whoah! This is very magic!
+
+        return query;
     }
 
-    /**
-     * Count {@link KapuaEntity} utility method.
-     *
-     * @param em                The {@link EntityManager} that holds the transaction.
-     * @param interfaceClass    {@link KapuaQuery} result entity interface class
-     * @param implementingClass {@link KapuaQuery} result entity implementation class
-     * @param kapuaQuery        The {@link KapuaQuery} to perform.
-     * @return The number of {@link KapuaEntity}es that matched the filter predicates.
-     * @throws KapuaException If filter predicates in the {@link KapuaQuery} are incorrect. See {@link #handleKapuaQueryPredicates(QueryPredicate, Map, CriteriaBuilder, Root, EntityType)}.
-     * @since 1.0.0
-     */
-    public static <I extends KapuaEntity, E extends I> long count(EntityManager em,
-            Class<I> interfaceClass,
+    static <I extends KapuaEntity, E extends I> TypedQuery<Object> createCriteriaIdQuery(EntityManager em,
             Class<E> implementingClass,
             KapuaQuery<I> kapuaQuery)
             throws KapuaException {
         CriteriaBuilder cb = em.getCriteriaBuilder();
-        CriteriaQuery<Long> criteriaSelectQuery = cb.createQuery(Long.class);
+        CriteriaQuery<Object> criteriaSelectQuery = cb.createQuery();
 
         //
         // FROM
@@ -433,44 +608,145 @@ public class ServiceDAO {
 
         //
         // SELECT
-        criteriaSelectQuery.select(cb.count(entityRoot));
+        criteriaSelectQuery.select(entityRoot.get(KapuaEntityPredicates.ENTITY_ID)).distinct(isDistinctRequired(entityRoot.getModel(), kapuaQuery, false));
 
         //
         // WHERE
+        QueryPredicate kapuaPredicates = scopedPredicate(kapuaQuery, false);
+
+        Map<ParameterExpression, Object> binds = new HashMap<>();
+        Expression<Boolean> expr = handleKapuaQueryPredicates(kapuaPredicates,
+                binds,
+                cb,
+                entityRoot,
+                entityRoot.getModel());
+
+        if (expr != null) {
+            criteriaSelectQuery.where(expr);
+        }
+
+        TypedQuery<Object> query = em.createQuery(criteriaSelectQuery);
+
+        // Populate query parameters
+        binds.forEach(query::setParameter); // Whoah! This is very magic!
+
+        return query;
+    }
+
+    /**
+     * Return the {@link KapuaQuery} predicate restricted to the {@link KapuaQuery} scope, if any
+     *
+     * @param kapuaQuery The {@link KapuaQuery} to perform.
+     * @param seek       Whether to restrict the predicate to the results after the {@link KapuaQuery#getSeekAfterId()} keyset, if any.
+     * @return The {@link QueryPredicate} of the where clause.
+     * @throws KapuaException If the {@link KapuaQuery} keyset is incomplete.
+     * @since 1.0.0
+     */
+    static QueryPredicate scopedPredicate(KapuaQuery<?> kapuaQuery, boolean seek) throws KapuaException {
         QueryPredicate kapuaPredicates = kapuaQuery.getPredicate();
-        if (kapuaQuery.getScopeId() != null) {
+        QueryPredicate seekPredicate = seek ? seekPredicate(kapuaQuery) : null;
+        if (kapuaQuery.getScopeId() != null || seekPredicate != null) {
 
             AndPredicateImpl scopedAndPredicate = new AndPredicateImpl();
 
-            AttributePredicateImpl<KapuaId> scopeId = new AttributePredicateImpl<>(KapuaEntityPredicates.SCOPE_ID, kapuaQuery.getScopeId());
-            scopedAndPredicate.and(scopeId);
+            if (kapuaQuery.getScopeId() != null) {
+                AttributePredicateImpl<KapuaId> scopeId = new AttributePredicateImpl<>(KapuaEntityPredicates.SCOPE_ID, kapuaQuery.getScopeId());
+                scopedAndPredicate.and(scopeId);
+            }
 
+            // Add existing query predicates
             if (kapuaQuery.getPredicate() != null) {
                 scopedAndPredicate.and(kapuaQuery.getPredicate());
             }
 
+            if (seekPredicate != null) {
+                scopedAndPredicate.and(seekPredicate);
+            }
+
             kapuaPredicates = scopedAndPredicate;
         }
+        return kapuaPredicates;
+    }
 
-        Map<ParameterExpression, Object> binds = new HashMap<>();
-        Expression<Boolean> expr = handleKapuaQueryPredicates(kapuaPredicates,
-                binds,
-                cb,
-                entityRoot,
-                entityRoot.getModel());
+    /**
+     * Build the keyset pagination predicate: the results that follow the {@link KapuaQuery#getSeekAfterValue()} and {@link KapuaQuery#getSeekAfterId()}
+     * in the sort order.
+     */
+    private static QueryPredicate seekPredicate(KapuaQuery<?> kapuaQuery) throws KapuaException {
+        if (kapuaQuery.getSeekAfterId() == null) {
+            return null;
+        }
 
-        if (expr != null) {
-            criteriaSelectQuery.where(expr);
+        String sortAttributeName = getSortAttributeName(kapuaQuery);
+        Operator after = isSortAscending(kapuaQuery) ? Operator.GREATER_THAN : Operator.LESS_THAN;
+        AttributePredicateImpl<KapuaId> idAfter = new AttributePredicateImpl<>(KapuaEntityPredicates.ENTITY_ID, kapuaQuery.getSeekAfterId(), after);
+        if (KapuaEntityPredicates.ENTITY_ID.equals(sortAttributeName)) {
+            return idAfter;
         }
 
-        //
-        // COUNT!
-        TypedQuery<Long> query = em.createQuery(criteriaSelectQuery);
+        Object sortValue = kapuaQuery.getSeekAfterValue();
+        if (sortValue == null) {
+            throw new KapuaIllegalNullArgumentException("seekAfterValue");
+        }
+        return new OrPredicateImpl(
+                new AttributePredicateImpl<>(sortAttributeName, sortValue, after),
+                new AndPredicateImpl(new AttributePredicateImpl<>(sortAttributeName, sortValue), idAfter));
+    }
 
-        // Populate query parameters
-        binds.forEach(query::setParameter); // Whoah! This is very magic!
+    /**
+     * Return the name of the {@link KapuaQuery} sort attribute, the {@link KapuaEntity} id if no ordering is specified
+     */
+    static String getSortAttributeName(KapuaQuery<?> kapuaQuery) {
+        FieldSortCriteria sortCriteria = (FieldSortCriteria) kapuaQuery.getSortCriteria();
+        return sortCriteria != null ? sortCriteria.getAttributeName() : KapuaEntityPredicates.ENTITY_ID;
+    }
 
-        return query.getSingleResult();
+    static boolean isSortAscending(KapuaQuery<?> kapuaQuery) {
+        FieldSortCriteria sortCriteria = (FieldSortCriteria) kapuaQuery.getSortCriteria();
+        return sortCriteria == null || SortOrder.ASCENDING.equals(sortCriteria.getSortOrder());
+    }
+
+    /**
+     * Check if the {@link KapuaQuery} joins a collection attribute, through a fetch attribute or a predicate,
+     * so the same {@link KapuaEntity} can be returned more than once and the query needs to be distinct.
+     *
+     * @param entityType The queried {@link EntityType}.
+     * @param kapuaQuery The {@link KapuaQuery} to perform.
+     * @param fetch      Whether the {@link KapuaQuery#getFetchAttributes()} are joined.
+     * @return {@code true} if the query needs to be distinct.
+     * @since 1.0.0
+     */
+    static boolean isDistinctRequired(EntityType<?> entityType, KapuaQuery<?> kapuaQuery, boolean fetch) {
+        if (fetch && kapuaQuery.getFetchAttributes() != null) {
+            for (String fetchAttribute : kapuaQuery.getFetchAttributes()) {
+                if (entityType.getAttribute(fetchAttribute).isCollection()) {
+                    return true;
+                }
+            }
+        }
+        return hasCollectionAttribute(entityType, kapuaQuery.getPredicate());
+    }
+
+    private static boolean hasCollectionAttribute(EntityType<?> entityType, QueryPredicate predicate) {
+        if (predicate instanceof AttributePredicate) {
+            String attributeName = ((AttributePredicate<?>) predicate).getAttributeName();
+            return entityType.getAttribute(attributeName.split(ATTRIBUTE_SEPARATOR_ESCAPED)[0]).isCollection();
+        }
+
+        List<QueryPredicate> predicates;
+        if (predicate instanceof AndPredicate) {
+            predicates = ((AndPredicate) predicate).getPredicates();
+        } else if (predicate instanceof OrPredicate) {
+            predicates = ((OrPredicate) predicate).getPredicates();
+        } else {
+            return false;
+        }
+        for (QueryPredicate childPredicate : predicates) {
+            if (hasCollectionAttribute(entityType, childPredicate)) {
+                return true;
+            }
+        }
+        return false;
     }
 
     /**
@@ -573,6 +849,25 @@ public class ServiceDAO {
             }
 
             expr = cb.and(cb.or(orPredicates));
+        } else if (attrValue instanceof KapuaEid && isComparison(attrPred.getOperator()) &&
+                !attrName.contains(ATTRIBUTE_SEPARATOR) && KapuaEid.class.equals(attribute.getJavaType())) {
+            // Identifiers are compared through their value (e.g. keyset pagination)
+            Expression<BigInteger> eidExpression = entityRoot.get(attrName).get(EID_ATTRIBUTE);
+            BigInteger eid = ((KapuaEid) attrValue).getId();
+            switch (attrPred.getOperator()) {
+            case GREATER_THAN:
+                expr = cb.greaterThan(eidExpression, eid);
+                break;
+            case GREATER_THAN_OR_EQUAL:
+                expr = cb.greaterThanOrEqualTo(eidExpression, eid);
+                break;
+            case LESS_THAN:
+                expr = cb.lessThan(eidExpression, eid);
+                break;
+            case LESS_THAN_OR_EQUAL:
+            default:
+                expr = cb.lessThanOrEqualTo(eidExpression, eid);
+            }
         } else {
             String strAttrValue;
             switch (attrPred.getOperator()) {
@@ -649,6 +944,13 @@ public class ServiceDAO {
         return expr;
     }
 
+    static boolean isComparison(Operator operator) {
+        return operator == Operator.GREATER_THAN ||
+                operator == Operator.GREATER_THAN_OR_EQUAL ||
+                operator == Operator.LESS_THAN ||
+                operator == Operator.LESS_THAN_OR_EQUAL;
+    }
+
     /**
      * Utility method that selects the correct {@link Root} attribute.<br>
      * This method handles {@link Embedded} attributes and nested {@link KapuaEntity}es up to one level of nesting<br>
@@ -0,0 +1,219 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Eurotech and/or its affiliates and others
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Eurotech - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.kapua.commons.service.internal.cache;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+import org.eclipse.kapua.KapuaException;
+import org.eclipse.kapua.commons.jpa.AbstractEntityManagerFactory;
+import org.eclipse.kapua.commons.jpa.EntityManager;
+import org.eclipse.kapua.commons.metric.MetricServiceFactory;
+import org.eclipse.kapua.commons.metric.MetricsService;
+import org.eclipse.kapua.commons.setting.system.SystemSetting;
+import org.eclipse.kapua.commons.setting.system.SystemSettingKey;
+import org.eclipse.kapua.model.KapuaEntity;
+import org.eclipse.kapua.model.id.KapuaId;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.RatioGauge;
+
+/**
+ * Shared cache of an entity type.<br>
+ * The entities are kept in the EclipseLink shared cache of the persistence unit (enabled by {@link SystemSettingKey#CACHE_ENTITIES}), so {@link EntityManager#find(Class, KapuaId)}
+ * is served without querying the database. This class adds:
+ * <ul>
+ * <li>a key cache, mapping a lookup key (e.g. the account name or the device client id) to the entity id, so the lookups by key are served by the shared cache too</li>
+ * <li>the invalidation of the entity on this node and, through the event bus, on the other nodes (see {@link EntityCacheManager})</li>
+ * <li>the hit and miss metrics ('commons.cache.&lt;name&gt;.*')</li>
+ * </ul>
+ * The lookup keys must not change during the entity life (the entity id is checked again on each hit, but a changed key would still resolve to the old entity).
+ *
+ * @since 1.0
+ */
+public class EntityCache {
+
+    private static final Logger LOG = LoggerFactory.getLogger(EntityCache.class);
+
+    private static final int KEYS_SIZE = SystemSetting.getInstance().getInt(SystemSettingKey.CACHE_KEYS_SIZE, 10000);
+
+    /**
+     * Lookup of an entity by key, invoked on a key cache miss
+     *
+     * @param <E>
+     */
+    @FunctionalInterface
+    public interface KeyLookup<E extends KapuaEntity> {
+
+        E lookup() throws KapuaException;
+    }
+
+    private final String name;
+    private final Class<? extends KapuaEntity> entityClass;
+    private final AbstractEntityManagerFactory entityManagerFactory;
+    private final boolean enabled;
+
+    private final Map<String, KapuaId> ids = new ConcurrentHashMap<>();
+    private final List<Consumer<KapuaId>> evictionListeners = new CopyOnWriteArrayList<>();
+
+    private final Counter hitCount;
+    private final Counter missCount;
+    private final Counter keyHitCount;
+    private final Counter keyMissCount;
+    private final Counter invalidationCount;
+
+    EntityCache(String name, Class<? extends KapuaEntity> entityClass, AbstractEntityManagerFactory entityManagerFactory) {
+        this.name = name;
+        this.entityClass = entityClass;
+        this.entityManagerFactory = entityManagerFactory;
+        enabled = Arrays.asList(SystemSetting.getInstance().getString(SystemSettingKey.CACHE_ENTITIES, "").trim().split("\\s*,\\s*")).contains(name);
+
+        MetricsService metricService = MetricServiceFactory.getInstance();
+        hitCount = metricService.getCounter("commons", "cache", name, "hit", "count");
+        missCount = metricService.getCounter("commons", "cache", name, "miss", "count");
+        keyHitCount = metricService.getCounter("commons", "cache", name, "keys", "hit", "count");
+        keyMissCount = metricService.getCounter("commons", "cache", name, "keys", "miss", "count");
+        invalidationCount = metricService.getCounter("commons", "cache", name, "invalidation", "count");
+        try {
+            metricService.registerGauge(new RatioGauge() {
+
+                @Override
+                protected Ratio getRatio() {
+                    long hits = hitCount.getCount();
+                    return Ratio.of(hits, hits + missCount.getCount());
+                }
+            }, "commons", "cache", name, "hit", "ratio");
+        } catch (KapuaException e) {
+            LOG.warn("Cannot register the hit ratio gauge of the {} cache", name, e);
+        }
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public Class<? extends KapuaEntity> getEntityClass() {
+        return entityClass;
+    }
+
+    /**
+     * @return {@code true} if the entity is kept in the shared cache
+     */
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Add a listener invoked when an entity is evicted from the cache of this node (by a local or a remote invalidation), so the data derived from the entity
+     * can be evicted too
+     *
+     * @param evictionListener
+     *            invoked with the id of the evicted entity or {@code null} if all the entities have been evicted
+     */
+    public void addEvictionListener(Consumer<KapuaId> evictionListener) {
+        evictionListeners.add(evictionListener);
+    }
+
+    /**
+     * Find the entity by key.<br>
+     * If the key is cached the entity is found by id (usually from the shared cache), otherwise the lookup is invoked and the key of the found entity is cached.
+     *
+     * @param em
+     * @param clazz
+     * @param scopeId
+     *            the scope of the key, {@code null} if the key is unique across the scopes
+     * @param key
+     * @param lookup
+     * @return the entity or {@code null} if not found
+     * @throws KapuaException
+     */
+    public <E extends KapuaEntity> E findByKey(EntityManager em, Class<? extends E> clazz, KapuaId scopeId, String key, KeyLookup<E> lookup) throws KapuaException {
+        if (!enabled) {
+            return lookup.lookup();
+        }
+        String cacheKey = scopeId != null ? scopeId.toCompactId() + "/" + key : key;
+        KapuaId id = ids.get(cacheKey);
+        if (id != null) {
+            E entity = em.find(clazz, id);
+            if (entity != null && (scopeId == null || scopeId.equals(entity.getScopeId()))) {
+                keyHitCount.inc();
+                return entity;
+            }
+            ids.remove(cacheKey, id);
+        }
+        keyMissCount.inc();
+        E entity = lookup.lookup();
+        if (entity != null) {
+            if (ids.size() >= KEYS_SIZE) {
+                LOG.debug("Key cache of {} full ({} entries): cleared", name, KEYS_SIZE);
+                ids.clear();
+            }
+            ids.put(cacheKey, entity.getId());
+        }
+        return entity;
+    }
+
+    /**
+     * Invalidate the entity on this node and on the other nodes.<br>
+     * It must be called after the changes to the entity have been committed.
+     *
+     * @param entityId
+     *            the id of the entity to invalidate or {@code null} to invalidate all the entities
+     */
+    public void invalidate(KapuaId entityId) {
+        if (!enabled) {
+            return;
+        }
+        evict(entityId);
+        EntityCacheManager.publishInvalidation(this, entityId);
+    }
+
+    /**
+     * Evict the entity from the cache of this node
+     *
+     * @param entityId
+     *            the id of the entity to evict or {@code null} to evict all the entities
+     */
+    void evict(KapuaId entityId) {
+        invalidationCount.inc();
+        entityManagerFactory.evict(entityClass, entityId);
+        if (entityId != null) {
+            ids.values().removeIf(entityId::equals);
+        } else {
+            ids.clear();
+        }
+        for (Consumer<KapuaId> evictionListener : evictionListeners) {
+            evictionListener.accept(entityId);
+        }
+    }
+
+    /**
+     * Record a lookup by id
+     *
+     * @param hit
+     *            {@code true} if the entity was found in the shared cache
+     */
+    public void recordLookup(boolean hit) {
+        if (hit) {
+            hitCount.inc();
+        } else {
+            missCount.inc();
+        }
+    }
+
+}
@@ -0,0 +1,138 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Eurotech and/or its affiliates and others
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Eurotech - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.kapua.commons.service.internal.cache;
+
+import java.util.Date;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.eclipse.kapua.commons.jpa.AbstractEntityManagerFactory;
+import org.eclipse.kapua.commons.setting.system.SystemSetting;
+import org.eclipse.kapua.commons.setting.system.SystemSettingKey;
+import org.eclipse.kapua.event.ServiceEvent;
+import org.eclipse.kapua.event.ServiceEventBus;
+import org.eclipse.kapua.event.ServiceEventBusException;
+import org.eclipse.kapua.model.KapuaEntity;
+import org.eclipse.kapua.model.id.KapuaId;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Registry of the {@link EntityCache}s.<br>
+ * The invalidations are propagated to the other nodes through the event bus ({@link SystemSettingKey#CACHE_EVENT_ADDRESS}). Each node subscribes with its own
+ * non durable subscription, so every node receives every invalidation published while it's connected (a node starting later has an empty cache anyway).
+ * Until the node is subscribed (e.g. no event bus configured) the invalidations are local only.<br>
+ * The invalidations are best effort: an invalidation lost by a node (e.g. during a broker failover) leaves the stale entity in its cache until the time to live
+ * ({@link SystemSettingKey#CACHE_ENTITY_TTL}) expires. For this reason no entity is cached by default.
+ *
+ * @since 1.0
+ */
+public class EntityCacheManager {
+
+    private static final Logger LOG = LoggerFactory.getLogger(EntityCacheManager.class);
+
+    private static final String EVENT_ADDRESS = SystemSetting.getInstance().getString(SystemSettingKey.CACHE_EVENT_ADDRESS, "cache");
+    private static final String INVALIDATE_OPERATION = "invalidate";
+    private static final String NODE_ID = UUID.randomUUID().toString();
+
+    private static final Map<String, EntityCache> CACHES = new ConcurrentHashMap<>();
+    private static final Map<Class<?>, EntityCache> CACHES_BY_CLASS = new ConcurrentHashMap<>();
+
+    private static volatile ServiceEventBus eventBus;
+
+    private EntityCacheManager() {
+    }
+
+    /**
+     * Get the cache of the entity, creating it if needed
+     *
+     * @param name
+     *            the entity name (see {@link SystemSettingKey#CACHE_ENTITIES})
+     * @param entityClass
+     * @param entityManagerFactory
+     *            the entity manager factory of the persistence unit of the entity
+     * @return
+     */
+    public static EntityCache getCache(String name, Class<? extends KapuaEntity> entityClass, AbstractEntityManagerFactory entityManagerFactory) {
+        return CACHES.computeIfAbsent(name, cacheName -> {
+            EntityCache entityCache = new EntityCache(cacheName, entityClass, entityManagerFactory);
+            if (entityCache.isEnabled()) {
+                CACHES_BY_CLASS.put(entityClass, entityCache);
+            }
+            return entityCache;
+        });
+    }
+
+    /**
+     * Get the enabled cache of the entity class
+     *
+     * @param entityClass
+     * @return the cache or {@code null} if the entity class is not cached
+     */
+    public static EntityCache getCache(Class<?> entityClass) {
+        return CACHES_BY_CLASS.get(entityClass);
+    }
+
+    /**
+     * Subscribe to the invalidations published by the other nodes (it does nothing if already subscribed)
+     *
+     * @param serviceEventBus
+     *            the event bus used to receive and to publish the invalidations
+     * @throws ServiceEventBusException
+     */
+    public static synchronized void subscribe(ServiceEventBus serviceEventBus) throws ServiceEventBusException {
+        if (eventBus != null) {
+            return;
+        }
+        serviceEventBus.subscribeNonDurable(EVENT_ADDRESS, String.format("%s-%s", EVENT_ADDRESS, NODE_ID), EntityCacheManager::onInvalidation);
+        eventBus = serviceEventBus;
+    }
+
+    /**
+     * Stop publishing the invalidations, so they are local only
+     */
+    static synchronized void unsubscribe() {
+        eventBus = null;
+    }
+
+    static void publishInvalidation(EntityCache entityCache, KapuaId entityId) {
+        ServiceEventBus serviceEventBus = eventBus;
+        if (serviceEventBus == null) {
+            return;
+        }
+        ServiceEvent serviceEvent = new ServiceEvent();
+        serviceEvent.setTimestamp(new Date());
+        serviceEvent.setOperation(INVALIDATE_OPERATION);
+        serviceEvent.setEntityType(entityCache.getName());
+        serviceEvent.setEntityId(entityId);
+        serviceEvent.setNote(NODE_ID);
+        try {
+            serviceEventBus.publish(EVENT_ADDRESS, serviceEvent);
+        } catch (ServiceEventBusException e) {
+            // the time to live of the cached entities bounds the staleness on the other nodes
+            LOG.warn("Cannot publish the invalidation of {} {}: {}", entityCache.getName(), entityId, e.getMessage(), e);
+        }
+    }
+
+    static void onInvalidation(ServiceEvent serviceEvent) {
+        if (NODE_ID.equals(serviceEvent.getNote()) || !INVALIDATE_OPERATION.equals(serviceEvent.getOperation())) {
+            return;
+        }
+        EntityCache entityCache = CACHES.get(serviceEvent.getEntityType());
+        if (entityCache != null && entityCache.isEnabled()) {
+            LOG.debug("Received invalidation of {} {}", serviceEvent.getEntityType(), serviceEvent.getEntityId());
+            entityCache.evict(serviceEvent.getEntityId());
+        }
+    }
+
+}
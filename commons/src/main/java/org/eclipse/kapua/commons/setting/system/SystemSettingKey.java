@@ -134,6 +134,10 @@ public enum SystemSettingKey implements SettingKey {
      * Database character encoding
      */
     DB_CHAR_ENCODING("commons.db.characterEncoding"),
+    /**
+     * Rewrite the JDBC batched inserts as multi-row statements (MariaDB/MySQL only)
+     */
+    DB_REWRITE_BATCHED_STATEMENTS("commons.db.rewriteBatchedStatements"),
 
     /**
      * Database pool initial pool size
@@ -151,6 +155,30 @@ public enum SystemSettingKey implements SettingKey {
      * Database pool connection borrow timeout
      */
     DB_POOL_BORROW_TIMEOUT("commons.db.pool.borrow.timeout"),
+    /**
+     * Database connection pool provider: 'ECLIPSELINK', 'HIKARI' or the class name of a {@link org.eclipse.kapua.commons.jpa.DataSourceProvider}
+     */
+    DB_POOL_PROVIDER("commons.db.pool.provider"),
+    /**
+     * Time a connection can be out of the pool before being reported as a possible leak (in milliseconds, 0 to disable). Not supported by the EclipseLink pool
+     */
+    DB_POOL_LEAK_DETECTION_THRESHOLD("commons.db.pool.leak.detection.threshold"),
+    /**
+     * JDBC connection url of the database read replica used by the read only operations (empty to disable the replica)
+     */
+    DB_REPLICA_URL("commons.db.replica.url"),
+    /**
+     * Database read replica username (the primary database username if not set)
+     */
+    DB_REPLICA_USERNAME("commons.db.replica.username"),
+    /**
+     * Database read replica password (the primary database password if not set)
+     */
+    DB_REPLICA_PASSWORD("commons.db.replica.password"),
+    /**
+     * Time after a write of a service during which its reads are still served by the primary database (in milliseconds, 0 to disable the read your writes guard)
+     */
+    DB_REPLICA_READ_YOUR_WRITES_WINDOW("commons.db.replica.readYourWrites.window"),
     /**
      * Character used in DB query to escape other special characters
      */
@@ -163,6 +191,38 @@ public enum SystemSettingKey implements SettingKey {
      * Character used in DB query to use as single character wildcard
      */
     DB_CHARACTER_WILDCARD_SINGLE("commons.db.character.wildcard.single"),
+    /**
+     * Enable the cache of the JPQL statements built by the service DAO queries and counts
+     */
+    DB_QUERY_PLAN_CACHE_ENABLED("commons.db.query.plan.cache.enabled"),
+    /**
+     * Maximum number of query shapes kept by the query plan cache
+     */
+    DB_QUERY_PLAN_CACHE_SIZE("commons.db.query.plan.cache.size"),
+    /**
+     * Maximum number of statements sent to the database in a single JDBC batch
+     */
+    DB_JDBC_BATCH_SIZE("commons.db.jdbc.batch.size"),
+    /**
+     * Comma separated names of the entities kept in the shared (second level) cache (Account, Device, Domain, Role; empty by default, so no entity is cached)
+     */
+    CACHE_ENTITIES("commons.cache.entities"),
+    /**
+     * Maximum number of entities kept in the shared cache, per entity type
+     */
+    CACHE_ENTITY_SIZE("commons.cache.entity.size"),
+    /**
+     * Time to live of the entities in the shared cache (in milliseconds). It bounds the staleness if an invalidation is lost.
+     */
+    CACHE_ENTITY_TTL("commons.cache.entity.ttl"),
+    /**
+     * Maximum number of lookup keys (e.g. account name, device client id) kept in the key caches, per entity type
+     */
+    CACHE_KEYS_SIZE("commons.cache.keys.size"),
+    /**
+     * Event bus address used to propagate the cache invalidations between the nodes
+     */
+    CACHE_EVENT_ADDRESS("commons.cache.eventAddress"),
 
     /**
      * Broker schema (e.g. mqtt, mqtts, ..)
@@ -187,11 +247,21 @@ public enum SystemSettingKey implements SettingKey {
      */
     KAPUA_KEY_SIZE("commons.entity.key.size"),
 
+    /**
+     * {@link org.eclipse.kapua.commons.model.id.IdGenerationStrategy} class name used to generate the entity identifiers, when the key size is 63 bits or less
+     */
+    KAPUA_ID_GENERATION_STRATEGY("commons.entity.id.generation.strategy"),
+
     /**
      * Maximum allowed retry (due to a {@link EntityExistsException}, so already exists key) on insert operation
      */
     KAPUA_INSERT_MAX_RETRY("commons.entity.insert.max.retry"),
 
+    /**
+     * Number of entities written in the same transaction by the batch create and update operations
+     */
+    KAPUA_BATCH_CHUNK_SIZE("commons.entity.batch.chunk.size"),
+
     /**
      * Url of the event bus
      */
@@ -243,17 +313,45 @@ public enum SystemSettingKey implements SettingKey {
     EVENT_BUS_TRANSPORT_USE_EPOLL("commons.eventbus.transport.useEpoll"),
 
     /**
-     * Wait time between housekeeper executions (in milliseconds)
+     * Maximum number of events published by the event store relay in a single batch
+     */
+    EVENT_OUTBOX_RELAY_BATCH_SIZE("commons.eventbus.outbox.relay.batchSize"),
+
+    /**
+     * Wait time of the event store relay when no more events are found (in milliseconds)
+     */
+    EVENT_OUTBOX_RELAY_POLL_INTERVAL("commons.eventbus.outbox.relay.pollInterval"),
+
+    /**
+     * Wait time of the event store relay after a publish error (in milliseconds)
      */
-    HOUSEKEEPER_EXECUTION_WAIT_TIME("commons.eventbus.houskeeper.waitTime"),
+    EVENT_OUTBOX_RELAY_ERROR_WAIT_TIME("commons.eventbus.outbox.relay.errorWaitTime"),
+
     /**
-     * Housekeeper event scan window
+     * Maximum wait time before publishing again an event that cannot be published (in milliseconds).<br>
+     * The wait time starts from the error wait time and doubles at each failed attempt.
      */
-    HOUSEKEEPER_EVENT_SCAN_WINDOW("commons.eventbus.houskeeper.eventScanWindow"),
+    EVENT_OUTBOX_RELAY_MAX_BACKOFF("commons.eventbus.outbox.relay.maxBackoff"),
+
+    /**
+     * Retention of the sent events in the event store (in milliseconds)
+     */
+    EVENT_OUTBOX_PURGE_RETENTION("commons.eventbus.outbox.purge.retention"),
+
+    /**
+     * Wait time between the sent events purges (in milliseconds)
+     */
+    EVENT_OUTBOX_PURGE_INTERVAL("commons.eventbus.outbox.purge.interval"),
+
+    /**
+     * Event timestamp range of the sent events deleted in a single transaction (in milliseconds)
+     */
+    EVENT_OUTBOX_PURGE_PARTITION("commons.eventbus.outbox.purge.partition"),
+
     /**
-     * Time window to consider FIRED messages as "old" messages so ready to be processed by the housekeeper (in milliseconds)
+     * Maximum length of the service method arguments rendered in the event inputs (a negative value means no limit)
      */
-    HOUSEKEEPER_OLD_MESSAGES_TIME_WINDOW("commons.eventbus.houskeeper.oldMessagesTimeWindow");
+    EVENT_INTERCEPTOR_INPUTS_MAX_LENGTH("commons.eventbus.interceptor.inputs.maxLength");
 
     private String key;
 
@@ -0,0 +1,194 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Eurotech and/or its affiliates and others
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Eurotech - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.kapua.commons.event;
+
+import java.lang.reflect.AccessibleObject;
+import java.lang.reflect.Method;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.aopalliance.intercept.MethodInvocation;
+import org.eclipse.kapua.commons.model.id.KapuaEid;
+import org.eclipse.kapua.commons.service.event.store.api.EventStoreRecord;
+import org.eclipse.kapua.commons.service.internal.AbstractKapuaService;
+import org.eclipse.kapua.event.ServiceEvent;
+import org.eclipse.kapua.model.KapuaEntity;
+import org.eclipse.kapua.model.id.KapuaId;
+import org.eclipse.kapua.service.KapuaService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * {@link RaiseServiceEventInterceptor} overhead benchmark on a service call carrying a large argument.<br>
+ * It compares the former event filling (unbounded inputs rendering and reflective service resolution on each call) with the cached metadata and
+ * the truncated inputs.<br>
+ * Run it from the IDE or with 'mvn test-compile exec:java -Dexec.mainClass=... -Dexec.classpathScope=test' (the profiler can be added to the options,
+ * e.g. '-prof gc' to compare the allocation rate).
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RaiseServiceEventInterceptorBenchmark {
+
+    private static final int ITEMS_COUNT = 1000;
+
+    private RaiseServiceEventInterceptor interceptor;
+    private MethodInvocation invocation;
+
+    @Setup
+    public void setup() throws NoSuchMethodException {
+        interceptor = new RaiseServiceEventInterceptor();
+        List<String> items = new ArrayList<>(ITEMS_COUNT);
+        for (int i = 0; i < ITEMS_COUNT; i++) {
+            items.add("item_" + i);
+        }
+        invocation = new BenchmarkMethodInvocation(new GuiceWrappedServiceImpl(),
+                BenchmarkServiceImpl.class.getMethod("update", KapuaId.class, KapuaId.class, List.class),
+                new Object[] { new KapuaEid(BigInteger.ONE), new KapuaEid(BigInteger.TEN), items });
+    }
+
+    @Benchmark
+    public ServiceEvent legacyFillEvent() throws ClassNotFoundException {
+        ServiceEvent serviceEvent = new ServiceEvent();
+        legacyFillEvent(invocation, serviceEvent);
+        return serviceEvent;
+    }
+
+    @Benchmark
+    public ServiceEvent cachedFillEvent() {
+        ServiceEvent serviceEvent = new ServiceEvent();
+        interceptor.fillEvent(invocation, serviceEvent);
+        return serviceEvent;
+    }
+
+    private static void legacyFillEvent(MethodInvocation invocation, ServiceEvent serviceEvent) throws ClassNotFoundException {
+        StringBuilder inputs = new StringBuilder();
+        for (Object obj : invocation.getArguments()) {
+            inputs.append(obj != null ? obj.toString() : "null");
+            inputs.append(", ");
+        }
+        if (inputs.length() > 2) {
+            inputs.replace(inputs.length() - 2, inputs.length(), "");
+        }
+        serviceEvent.setInputs(inputs.toString());
+        serviceEvent.setOperation(invocation.getMethod().getName());
+        Class<?>[] impementedClass = invocation.getThis().getClass().getSuperclass().getInterfaces();
+        serviceEvent.setService(impementedClass[0].getName());
+        Object[] arguments = invocation.getArguments();
+        int kapuaIdPosition = 0;
+        int kapuaIdFound = 0;
+        for (int i = 0; i < arguments.length; i++) {
+            if (arguments[i] instanceof KapuaId) {
+                kapuaIdPosition = i;
+                if (++kapuaIdFound > 1) {
+                    break;
+                }
+            }
+        }
+        serviceEvent.setEntityId((KapuaId) arguments[kapuaIdPosition]);
+        String serviceInterface = impementedClass[0].getAnnotatedInterfaces()[0].getType().getTypeName();
+        String genericsList = serviceInterface.substring(serviceInterface.indexOf('<') + 1, serviceInterface.indexOf('>'));
+        for (String str : genericsList.replaceAll("\\,", "").split(" ")) {
+            if (KapuaEntity.class.isAssignableFrom(Class.forName(str))) {
+                serviceEvent.setEntityType(str);
+            }
+        }
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options options = new OptionsBuilder()
+                .include(RaiseServiceEventInterceptorBenchmark.class.getSimpleName())
+                .build();
+        new Runner(options).run();
+    }
+
+    public interface BenchmarkEntityService<E extends KapuaEntity> extends KapuaService {
+    }
+
+    public interface BenchmarkService extends BenchmarkEntityService<EventStoreRecord> {
+
+        void update(KapuaId scopeId, KapuaId entityId, List<String> items);
+    }
+
+    public static class BenchmarkServiceImpl extends AbstractKapuaService implements BenchmarkService {
+
+        public BenchmarkServiceImpl() {
+            super(null);
+        }
+
+        @Override
+        public void update(KapuaId scopeId, KapuaId entityId, List<String> items) {
+        }
+    }
+
+    /**
+     * Mimics the class generated by guice to intercept the service methods
+     */
+    public static class GuiceWrappedServiceImpl extends BenchmarkServiceImpl {
+    }
+
+    private static class BenchmarkMethodInvocation implements MethodInvocation {
+
+        private final Object target;
+        private final Method method;
+        private final Object[] arguments;
+
+        BenchmarkMethodInvocation(Object target, Method method, Object[] arguments) {
+            this.target = target;
+            this.method = method;
+            this.arguments = arguments;
+        }
+
+        @Override
+        public Method getMethod() {
+            return method;
+        }
+
+        @Override
+        public Object[] getArguments() {
+            return arguments;
+        }
+
+        @Override
+        public Object proceed() {
+            return null;
+        }
+
+        @Override
+        public Object getThis() {
+            return target;
+        }
+
+        @Override
+        public AccessibleObject getStaticPart() {
+            return method;
+        }
+    }
+
+}
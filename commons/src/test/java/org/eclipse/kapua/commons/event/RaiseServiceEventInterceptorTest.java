@@ -0,0 +1,184 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Eurotech and/or its affiliates and others
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Eurotech - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.kapua.commons.event;
+
+import java.lang.reflect.AccessibleObject;
+import java.lang.reflect.Method;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.aopalliance.intercept.MethodInvocation;
+import org.eclipse.kapua.commons.model.id.KapuaEid;
+import org.eclipse.kapua.commons.service.event.store.api.EventStoreRecord;
+import org.eclipse.kapua.commons.service.internal.AbstractKapuaService;
+import org.eclipse.kapua.commons.setting.system.SystemSetting;
+import org.eclipse.kapua.commons.setting.system.SystemSettingKey;
+import org.eclipse.kapua.event.ServiceEvent;
+import org.eclipse.kapua.model.KapuaEntity;
+import org.eclipse.kapua.model.id.KapuaId;
+import org.eclipse.kapua.service.KapuaService;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class RaiseServiceEventInterceptorTest {
+
+    private static final int INPUTS_MAX_LENGTH = SystemSetting.getInstance().getInt(SystemSettingKey.EVENT_INTERCEPTOR_INPUTS_MAX_LENGTH, 8192);
+
+    private static final KapuaId SCOPE_ID = new KapuaEid(BigInteger.ONE);
+    private static final KapuaId ENTITY_ID = new KapuaEid(BigInteger.TEN);
+
+    @Test
+    public void testRenderInputs() {
+        Assert.assertEquals("", RaiseServiceEventInterceptor.renderInputs(null));
+        Assert.assertEquals("", RaiseServiceEventInterceptor.renderInputs(new Object[0]));
+        Assert.assertEquals("a, null, 1", RaiseServiceEventInterceptor.renderInputs(new Object[] { "a", null, 1 }));
+    }
+
+    @Test
+    public void testRenderInputsTruncation() {
+        Assert.assertTrue("The test needs a limited inputs length", INPUTS_MAX_LENGTH >= 0);
+
+        StringBuilder longArgument = new StringBuilder();
+        while (longArgument.length() <= INPUTS_MAX_LENGTH) {
+            longArgument.append("0123456789");
+        }
+        Object notRendered = new Object() {
+
+            @Override
+            public String toString() {
+                throw new AssertionError("The arguments after the length limit must not be rendered");
+            }
+        };
+
+        String inputs = RaiseServiceEventInterceptor.renderInputs(new Object[] { longArgument.toString(), notRendered });
+        Assert.assertEquals(INPUTS_MAX_LENGTH + 3, inputs.length());
+        Assert.assertTrue(inputs.endsWith("..."));
+        Assert.assertEquals(longArgument.substring(0, INPUTS_MAX_LENGTH), inputs.substring(0, INPUTS_MAX_LENGTH));
+    }
+
+    @Test
+    public void testFillEvent() throws NoSuchMethodException {
+        List<String> items = new ArrayList<>();
+        items.add("item");
+        MethodInvocation invocation = newInvocation(items);
+
+        ServiceEvent serviceEvent = new ServiceEvent();
+        new RaiseServiceEventInterceptor().fillEvent(invocation, serviceEvent);
+
+        Assert.assertEquals(TestService.class.getName(), serviceEvent.getService());
+        Assert.assertEquals("update", serviceEvent.getOperation());
+        Assert.assertEquals(EventStoreRecord.class.getName(), serviceEvent.getEntityType());
+        Assert.assertEquals(ENTITY_ID, serviceEvent.getEntityId());
+
+        // the inputs are rendered when the event is filled, so the later changes of the arguments are not reflected
+        String inputs = serviceEvent.getInputs();
+        Assert.assertEquals(SCOPE_ID + ", " + ENTITY_ID + ", [item]", inputs);
+        items.add("changed by the service");
+        Assert.assertEquals(inputs, serviceEvent.getInputs());
+    }
+
+    @Test
+    public void testMetadataCache() throws NoSuchMethodException {
+        RaiseServiceEventInterceptor interceptor = new RaiseServiceEventInterceptor();
+        MethodInvocation invocation = newInvocation(new ArrayList<>());
+
+        // the metadata are resolved once for each class and method
+        Assert.assertSame(interceptor.getMetadata(invocation), interceptor.getMetadata(invocation));
+        Assert.assertSame(interceptor.getMetadata(invocation), interceptor.getMetadata(newInvocation(new ArrayList<>())));
+
+        MethodInvocation otherMethodInvocation = new TestMethodInvocation(new GuiceWrappedTestServiceImpl(),
+                TestServiceImpl.class.getMethod("delete", KapuaId.class, KapuaId.class),
+                new Object[] { SCOPE_ID, ENTITY_ID });
+        Assert.assertNotSame(interceptor.getMetadata(invocation), interceptor.getMetadata(otherMethodInvocation));
+
+        ServiceEvent serviceEvent = new ServiceEvent();
+        interceptor.fillEvent(otherMethodInvocation, serviceEvent);
+        Assert.assertEquals("delete", serviceEvent.getOperation());
+        Assert.assertEquals(EventStoreRecord.class.getName(), serviceEvent.getEntityType());
+    }
+
+    private static MethodInvocation newInvocation(List<String> items) throws NoSuchMethodException {
+        return new TestMethodInvocation(new GuiceWrappedTestServiceImpl(),
+                TestServiceImpl.class.getMethod("update", KapuaId.class, KapuaId.class, List.class),
+                new Object[] { SCOPE_ID, ENTITY_ID, items });
+    }
+
+    public interface TestEntityService<E extends KapuaEntity> extends KapuaService {
+    }
+
+    public interface TestService extends TestEntityService<EventStoreRecord> {
+
+        void update(KapuaId scopeId, KapuaId entityId, List<String> items);
+
+        void delete(KapuaId scopeId, KapuaId entityId);
+    }
+
+    public static class TestServiceImpl extends AbstractKapuaService implements TestService {
+
+        public TestServiceImpl() {
+            super(null);
+        }
+
+        @Override
+        public void update(KapuaId scopeId, KapuaId entityId, List<String> items) {
+        }
+
+        @Override
+        public void delete(KapuaId scopeId, KapuaId entityId) {
+        }
+    }
+
+    /**
+     * Mimics the class generated by guice to intercept the service methods
+     */
+    public static class GuiceWrappedTestServiceImpl extends TestServiceImpl {
+    }
+
+    private static class TestMethodInvocation implements MethodInvocation {
+
+        private final Object target;
+        private final Method method;
+        private final Object[] arguments;
+
+        TestMethodInvocation(Object target, Method method, Object[] arguments) {
+            this.target = target;
+            this.method = method;
+            this.arguments = arguments;
+        }
+
+        @Override
+        public Method getMethod() {
+            return method;
+        }
+
+        @Override
+        public Object[] getArguments() {
+            return arguments;
+        }
+
+        @Override
+        public Object proceed() {
+            return null;
+        }
+
+        @Override
+        public Object getThis() {
+            return target;
+        }
+
+        @Override
+        public AccessibleObject getStaticPart() {
+            return method;
+        }
+    }
+}
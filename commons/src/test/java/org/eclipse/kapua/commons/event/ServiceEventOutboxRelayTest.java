@@ -0,0 +1,239 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Eurotech and/or its affiliates and others
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Eurotech - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.kapua.commons.event;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import javax.persistence.Query;
+
+import org.eclipse.kapua.KapuaException;
+import org.eclipse.kapua.commons.jpa.EntityManager;
+import org.eclipse.kapua.commons.model.AbstractCommonServiceTest;
+import org.eclipse.kapua.commons.model.id.KapuaEid;
+import org.eclipse.kapua.commons.model.misc.CollisionEntityManagerFactory;
+import org.eclipse.kapua.commons.service.event.store.internal.EventStoreRecordImpl;
+import org.eclipse.kapua.commons.setting.system.SystemSetting;
+import org.eclipse.kapua.commons.setting.system.SystemSettingKey;
+import org.eclipse.kapua.event.ServiceEvent;
+import org.eclipse.kapua.event.ServiceEvent.EventStatus;
+import org.eclipse.kapua.event.ServiceEventBus;
+import org.eclipse.kapua.event.ServiceEventBusException;
+import org.eclipse.kapua.event.ServiceEventBusListener;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * {@link ServiceEventOutboxRelay} tests on H2: relay lock, per event failures and backoff
+ */
+public class ServiceEventOutboxRelayTest extends AbstractCommonServiceTest {
+
+    private static final String ADDRESS = "events";
+    private static final String POISON = "poison";
+
+    private static long nextEventId = 35000;
+
+    @Test
+    public void testRelayCreatesMissingLock() throws Exception {
+        String serviceName = "relay-lock-test";
+        Assert.assertNull(findHousekeeperRun(serviceName));
+
+        Assert.assertEquals(0, newRelay(new TestEventBus(false), serviceName).relayEvents());
+        Assert.assertNotNull(findHousekeeperRun(serviceName));
+
+        // the lock is created once
+        Assert.assertEquals(0, newRelay(new TestEventBus(false), serviceName).relayEvents());
+    }
+
+    @Test
+    public void testRelayEvents() throws Exception {
+        String serviceName = "relay-batch-test";
+        BigInteger first = insertEvent(serviceName, "event-1");
+        BigInteger second = insertEvent(serviceName, "event-2");
+        TestEventBus eventBus = new TestEventBus(false);
+
+        Assert.assertEquals(2, newRelay(eventBus, serviceName).relayEvents());
+        Assert.assertEquals(1, eventBus.batches);
+        Assert.assertEquals(2, eventBus.published.size());
+        Assert.assertEquals(EventStatus.SENT, findEvent(first).getStatus());
+        Assert.assertEquals(EventStatus.SENT, findEvent(second).getStatus());
+
+        Assert.assertEquals(0, newRelay(eventBus, serviceName).relayEvents());
+    }
+
+    @Test
+    public void testRelayIsolatesFailedEvent() throws Exception {
+        String serviceName = "relay-isolation-test";
+        BigInteger first = insertEvent(serviceName, "event-1");
+        BigInteger poison = insertEvent(serviceName, POISON);
+        BigInteger third = insertEvent(serviceName, "event-3");
+        TestEventBus eventBus = new TestEventBus(false);
+
+        // the batch fails, then the events are published one by one and only the failed event is kept back
+        Assert.assertEquals(3, newRelay(eventBus, serviceName).relayEvents());
+        Assert.assertEquals(new HashSet<>(Arrays.asList("event-1", "event-3")), eventBus.published);
+        Assert.assertEquals(EventStatus.SENT, findEvent(first).getStatus());
+        Assert.assertEquals(EventStatus.SENT, findEvent(third).getStatus());
+
+        EventStoreRecordImpl failedEvent = findEvent(poison);
+        Assert.assertEquals(EventStatus.SEND_ERROR, failedEvent.getStatus());
+        Assert.assertEquals(1, failedEvent.getSendAttempts());
+        Assert.assertTrue(failedEvent.getNextAttemptOn().after(new Date()));
+
+        // the failed event is not published again before its backoff time
+        Assert.assertEquals(0, newRelay(eventBus, serviceName).relayEvents());
+    }
+
+    @Test
+    public void testRelayWithEventBusUnavailable() throws Exception {
+        String serviceName = "relay-unavailable-test";
+        BigInteger first = insertEvent(serviceName, "event-1");
+        BigInteger second = insertEvent(serviceName, "event-2");
+
+        try {
+            newRelay(new TestEventBus(true), serviceName).relayEvents();
+            Assert.fail("The publish error must be thrown");
+        } catch (ServiceEventBusException e) {
+            // expected
+        }
+
+        // the one by one publish stops at the first failure, so only the first event is backed off
+        Assert.assertEquals(EventStatus.SEND_ERROR, findEvent(first).getStatus());
+        Assert.assertEquals(1, findEvent(first).getSendAttempts());
+        Assert.assertEquals(EventStatus.TRIGGERED, findEvent(second).getStatus());
+        Assert.assertEquals(0, findEvent(second).getSendAttempts());
+    }
+
+    @Test
+    public void testRelayLockedByAnotherNode() throws Exception {
+        String serviceName = "relay-leader-test";
+        newRelay(new TestEventBus(false), serviceName).relayEvents();
+        BigInteger event = insertEvent(serviceName, "event-1");
+
+        EntityManager leader = CollisionEntityManagerFactory.getInstance().createEntityManager();
+        try {
+            leader.beginTransaction();
+            Assert.assertNotNull(leader.findWithLock(HousekeeperRun.class, serviceName));
+
+            // the lock timeout means that another node is relaying the events
+            Assert.assertEquals(0, newRelay(new TestEventBus(false), serviceName).relayEvents());
+            Assert.assertEquals(EventStatus.TRIGGERED, findEvent(event).getStatus());
+        } finally {
+            leader.rollback();
+            leader.close();
+        }
+
+        Assert.assertEquals(1, newRelay(new TestEventBus(false), serviceName).relayEvents());
+    }
+
+    @Test
+    public void testBackoff() {
+        long errorWaitTime = SystemSetting.getInstance().getLong(SystemSettingKey.EVENT_OUTBOX_RELAY_ERROR_WAIT_TIME, 5000L);
+        long maxBackoff = SystemSetting.getInstance().getLong(SystemSettingKey.EVENT_OUTBOX_RELAY_MAX_BACKOFF, 300000L);
+
+        Assert.assertEquals(Math.min(errorWaitTime, maxBackoff), ServiceEventOutboxRelay.getBackoff(1));
+        Assert.assertEquals(Math.min(errorWaitTime * 2, maxBackoff), ServiceEventOutboxRelay.getBackoff(2));
+        Assert.assertEquals(Math.min(errorWaitTime * 4, maxBackoff), ServiceEventOutboxRelay.getBackoff(3));
+        Assert.assertEquals(maxBackoff, ServiceEventOutboxRelay.getBackoff(Integer.MAX_VALUE));
+    }
+
+    private static ServiceEventOutboxRelay newRelay(ServiceEventBus eventBus, String serviceName) {
+        return new ServiceEventOutboxRelay(CollisionEntityManagerFactory.getInstance(), eventBus, ADDRESS, serviceName);
+    }
+
+    private static BigInteger insertEvent(String serviceName, String contextId) throws KapuaException {
+        BigInteger id = BigInteger.valueOf(nextEventId++);
+        EntityManager em = CollisionEntityManagerFactory.getInstance().createEntityManager();
+        try {
+            em.beginTransaction();
+            Query query = em.createNativeQuery("INSERT INTO sys_event_store " +
+                    "(scope_id, id, created_on, created_by, modified_on, modified_by, optlock, context_id, event_on, user_id, service, entity_type, entity_id, operation, inputs, status, send_attempts) " +
+                    "VALUES (1, ?, ?, 1, ?, 1, 0, ?, ?, 1, ?, 'test', 1, 'create', '', 'TRIGGERED', 0)");
+            Date now = new Date();
+            query.setParameter(1, id);
+            query.setParameter(2, now);
+            query.setParameter(3, now);
+            query.setParameter(4, contextId);
+            query.setParameter(5, now);
+            query.setParameter(6, serviceName);
+            query.executeUpdate();
+            em.commit();
+            return id;
+        } finally {
+            em.close();
+        }
+    }
+
+    private static EventStoreRecordImpl findEvent(BigInteger id) throws KapuaException {
+        EntityManager em = CollisionEntityManagerFactory.getInstance().createEntityManager();
+        try {
+            return em.find(EventStoreRecordImpl.class, new KapuaEid(id));
+        } finally {
+            em.close();
+        }
+    }
+
+    private static HousekeeperRun findHousekeeperRun(String serviceName) throws KapuaException {
+        EntityManager em = CollisionEntityManagerFactory.getInstance().createEntityManager();
+        try {
+            em.beginTransaction();
+            return em.findWithLock(HousekeeperRun.class, serviceName);
+        } finally {
+            em.rollback();
+            em.close();
+        }
+    }
+
+    /**
+     * Event bus that fails the events with the {@link #POISON} context id, or all the events if unavailable
+     */
+    private static class TestEventBus implements ServiceEventBus {
+
+        private final boolean unavailable;
+        private final Set<String> published = new HashSet<>();
+        private int batches;
+
+        TestEventBus(boolean unavailable) {
+            this.unavailable = unavailable;
+        }
+
+        @Override
+        public void publish(String address, ServiceEvent event) throws ServiceEventBusException {
+            if (unavailable || POISON.equals(event.getContextId())) {
+                throw new ServiceEventBusException("Cannot publish the event " + event.getContextId());
+            }
+            published.add(event.getContextId());
+        }
+
+        @Override
+        public void publish(String address, List<ServiceEvent> events) throws ServiceEventBusException {
+            List<String> contextIds = new ArrayList<>();
+            for (ServiceEvent event : events) {
+                if (unavailable || POISON.equals(event.getContextId())) {
+                    throw new ServiceEventBusException("Cannot publish the events");
+                }
+                contextIds.add(event.getContextId());
+            }
+            published.addAll(contextIds);
+            batches++;
+        }
+
+        @Override
+        public void subscribe(String address, String name, ServiceEventBusListener eventListener) throws ServiceEventBusException {
+        }
+    }
+}
@@ -0,0 +1,76 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Eurotech and/or its affiliates and others
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Eurotech - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.kapua.commons.jpa;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+
+import javax.sql.DataSource;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.zaxxer.hikari.HikariDataSource;
+
+public class DataSourceProvidersTest {
+
+    @Test
+    public void testEclipseLinkProvider() {
+        Assert.assertNull(DataSourceProviders.newDataSourceProvider(DataSourceProviders.ECLIPSELINK));
+    }
+
+    @Test
+    public void testHikariProvider() {
+        Assert.assertTrue(DataSourceProviders.newDataSourceProvider(DataSourceProviders.HIKARI) instanceof HikariDataSourceProvider);
+    }
+
+    @Test
+    public void testCustomProvider() {
+        Assert.assertTrue(DataSourceProviders.newDataSourceProvider(TestDataSourceProvider.class.getName()) instanceof TestDataSourceProvider);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testUnknownProvider() {
+        DataSourceProviders.newDataSourceProvider("org.eclipse.kapua.UnknownDataSourceProvider");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testNotAProvider() {
+        DataSourceProviders.newDataSourceProvider(String.class.getName());
+    }
+
+    @Test
+    public void testCloseHikariDataSource() throws SQLException {
+        DataSource dataSource = new HikariDataSourceProvider().createDataSource();
+        try (Connection connection = dataSource.getConnection()) {
+            Assert.assertTrue(connection.isValid(1));
+        }
+
+        DataSourceProviders.closeDataSource(dataSource);
+        Assert.assertTrue(((HikariDataSource) dataSource).isClosed());
+    }
+
+    @Test
+    public void testCloseWithoutDataSource() {
+        // nothing to close with the EclipseLink internal pool
+        DataSourceProviders.closeDataSource(null);
+        DataSourceProviders.close();
+    }
+
+    public static class TestDataSourceProvider implements DataSourceProvider {
+
+        @Override
+        public DataSource createDataSource() {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,183 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Eurotech and/or its affiliates and others
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Eurotech - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.kapua.commons.jpa;
+
+import java.lang.reflect.Proxy;
+import java.math.BigInteger;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import javax.persistence.EntityTransaction;
+
+import org.eclipse.kapua.KapuaException;
+import org.eclipse.kapua.commons.model.id.KapuaEid;
+import org.eclipse.kapua.commons.security.KapuaSecurityUtils;
+import org.eclipse.kapua.commons.security.KapuaSession;
+import org.eclipse.kapua.model.id.KapuaId;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class EntityManagerSessionTest {
+
+    private static final String PRIMARY = "primary";
+    private static final String REPLICA = "replica";
+
+    private static long nextUserId = 36000;
+
+    @After
+    public void clearSession() {
+        KapuaSecurityUtils.clearSession();
+    }
+
+    @Test
+    public void readsOnReplica() throws KapuaException {
+        setUser(newUserId());
+        TestEntityManagerFactory entityManagerFactory = new TestEntityManagerFactory(true);
+        EntityManagerSession entityManagerSession = new EntityManagerSession(entityManagerFactory, 60000);
+
+        Assert.assertEquals(REPLICA, entityManagerSession.onResult(entityManagerFactory::getDatabase));
+        Assert.assertEquals(PRIMARY, entityManagerSession.onTransactedResult(entityManagerFactory::getDatabase));
+    }
+
+    @Test
+    public void readYourWrites() throws KapuaException {
+        setUser(newUserId());
+        TestEntityManagerFactory entityManagerFactory = new TestEntityManagerFactory(true);
+        EntityManagerSession entityManagerSession = new EntityManagerSession(entityManagerFactory, 60000);
+
+        entityManagerSession.onTransactedAction(em -> Assert.assertEquals(PRIMARY, entityManagerFactory.getDatabase(em)));
+        Assert.assertEquals(PRIMARY, entityManagerSession.onResult(entityManagerFactory::getDatabase));
+    }
+
+    @Test
+    public void readYourWritesAcrossSessions() throws KapuaException {
+        setUser(newUserId());
+        TestEntityManagerFactory entityManagerFactory = new TestEntityManagerFactory(true);
+        EntityManagerSession writeSession = new EntityManagerSession(entityManagerFactory, 60000);
+        EntityManagerSession readSession = new EntityManagerSession(entityManagerFactory, 60000);
+
+        // the write through a service is seen by the reads of the same user through another service
+        writeSession.onTransactedAction(em -> Assert.assertEquals(PRIMARY, entityManagerFactory.getDatabase(em)));
+        Assert.assertEquals(PRIMARY, readSession.onResult(entityManagerFactory::getDatabase));
+    }
+
+    @Test
+    public void readYourWritesPerUser() throws KapuaException {
+        KapuaId writer = newUserId();
+        KapuaId reader = newUserId();
+        TestEntityManagerFactory entityManagerFactory = new TestEntityManagerFactory(true);
+        EntityManagerSession entityManagerSession = new EntityManagerSession(entityManagerFactory, 60000);
+
+        setUser(writer);
+        entityManagerSession.onTransactedAction(em -> Assert.assertEquals(PRIMARY, entityManagerFactory.getDatabase(em)));
+
+        // the write of a user doesn't move the reads of the other users to the primary database
+        setUser(reader);
+        Assert.assertEquals(REPLICA, entityManagerSession.onResult(entityManagerFactory::getDatabase));
+
+        setUser(writer);
+        Assert.assertEquals(PRIMARY, entityManagerSession.onResult(entityManagerFactory::getDatabase));
+    }
+
+    @Test
+    public void readYourWritesDisabled() throws KapuaException {
+        setUser(newUserId());
+        TestEntityManagerFactory entityManagerFactory = new TestEntityManagerFactory(true);
+        EntityManagerSession entityManagerSession = new EntityManagerSession(entityManagerFactory, 0);
+
+        entityManagerSession.onTransactedAction(em -> Assert.assertEquals(PRIMARY, entityManagerFactory.getDatabase(em)));
+        Assert.assertEquals(REPLICA, entityManagerSession.onResult(entityManagerFactory::getDatabase));
+    }
+
+    @Test
+    public void readsWithoutReplica() throws KapuaException {
+        setUser(newUserId());
+        TestEntityManagerFactory entityManagerFactory = new TestEntityManagerFactory(false);
+        EntityManagerSession entityManagerSession = new EntityManagerSession(entityManagerFactory, 60000);
+
+        Assert.assertEquals(PRIMARY, entityManagerSession.onResult(entityManagerFactory::getDatabase));
+    }
+
+    private static KapuaId newUserId() {
+        return new KapuaEid(BigInteger.valueOf(nextUserId++));
+    }
+
+    private static void setUser(KapuaId userId) {
+        KapuaSecurityUtils.setSession(new KapuaSession(null, KapuaId.ONE, userId));
+    }
+
+    private static EntityManager newEntityManager() {
+        AtomicBoolean active = new AtomicBoolean();
+        EntityTransaction transaction = (EntityTransaction) Proxy.newProxyInstance(EntityManagerSessionTest.class.getClassLoader(),
+                new Class<?>[] { EntityTransaction.class },
+                (proxy, method, args) -> {
+                    switch (method.getName()) {
+                    case "begin":
+                        active.set(true);
+                        return null;
+                    case "commit":
+                    case "rollback":
+                        active.set(false);
+                        return null;
+                    case "isActive":
+                        return active.get();
+                    default:
+                        return null;
+                    }
+                });
+        javax.persistence.EntityManager javaxEntityManager = (javax.persistence.EntityManager) Proxy.newProxyInstance(EntityManagerSessionTest.class.getClassLoader(),
+                new Class<?>[] { javax.persistence.EntityManager.class },
+                (proxy, method, args) -> {
+                    switch (method.getName()) {
+                    case "getTransaction":
+                        return transaction;
+                    default:
+                        return null;
+                    }
+                });
+        return new EntityManager(javaxEntityManager);
+    }
+
+    private static class TestEntityManagerFactory implements EntityManagerFactory {
+
+        private final boolean replicated;
+        private final Map<EntityManager, String> databases = new IdentityHashMap<>();
+
+        TestEntityManagerFactory(boolean replicated) {
+            this.replicated = replicated;
+        }
+
+        @Override
+        public EntityManager createEntityManager() {
+            EntityManager entityManager = newEntityManager();
+            databases.put(entityManager, PRIMARY);
+            return entityManager;
+        }
+
+        @Override
+        public EntityManager createReadOnlyEntityManager() throws KapuaException {
+            if (!replicated) {
+                return EntityManagerFactory.super.createReadOnlyEntityManager();
+            }
+            EntityManager entityManager = newEntityManager();
+            databases.put(entityManager, REPLICA);
+            return entityManager;
+        }
+
+        String getDatabase(EntityManager entityManager) {
+            return databases.get(entityManager);
+        }
+    }
+
+}
@@ -15,7 +15,10 @@ package org.eclipse.kapua.commons.model;
 import java.math.BigInteger;
 
 import org.eclipse.kapua.KapuaException;
+import org.eclipse.kapua.commons.model.id.IdGenerationStrategy;
 import org.eclipse.kapua.commons.model.id.IdGenerator;
+import org.eclipse.kapua.commons.model.id.RandomIdGenerationStrategy;
+import org.eclipse.kapua.commons.model.id.TimeOrderedIdGenerationStrategy;
 import org.eclipse.kapua.commons.model.misc.CollisionEntity;
 import org.eclipse.kapua.commons.model.misc.CollisionIdGenerator;
 import org.eclipse.kapua.commons.model.misc.CollisionServiceImpl;
@@ -124,4 +127,34 @@ public class KapuaIdGeneratorTest extends AbstractCommonServiceTest {
             Assert.assertFalse("The generated id is out of the expected bounds!", generated.compareTo(BigInteger.ZERO) < 0 || generated.compareTo(upperLimit) != -1);
         }
     }
+
+    @Test
+    /**
+     * Check the strategies generated ids bounds and the time ordered ids order
+     */
+    public void testIdGenerationStrategies() {
+        for (IdGenerationStrategy strategy : new IdGenerationStrategy[] { new RandomIdGenerationStrategy(), new TimeOrderedIdGenerationStrategy() }) {
+            for (int idSize : new int[] { 57, 63 }) {
+                for (int i = 0; i < 1000; i++) {
+                    long generated = strategy.generate(idSize);
+                    Assert.assertTrue("The generated id is out of the expected bounds!", generated >= 0 && generated >>> idSize == 0);
+                }
+            }
+        }
+
+        TimeOrderedIdGenerationStrategy timeOrderedStrategy = new TimeOrderedIdGenerationStrategy();
+        long timestamp = System.currentTimeMillis() - TimeOrderedIdGenerationStrategy.EPOCH;
+        long previous = timeOrderedStrategy.generate(63);
+        Assert.assertTrue("The generated id timestamp is wrong!", Math.abs((previous >>> (63 - TimeOrderedIdGenerationStrategy.TIMESTAMP_BITS)) - timestamp) < 60000);
+        for (int i = 0; i < 10000; i++) {
+            long generated = timeOrderedStrategy.generate(63);
+            Assert.assertTrue("The generated ids are not increasing!", generated > previous);
+            previous = generated;
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testTimeOrderedIdSizeTooSmall() {
+        new TimeOrderedIdGenerationStrategy().generate(TimeOrderedIdGenerationStrategy.MIN_ID_SIZE - 1);
+    }
 }
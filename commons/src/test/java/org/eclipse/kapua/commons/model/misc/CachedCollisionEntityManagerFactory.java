@@ -0,0 +1,36 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Eurotech and/or its affiliates and others
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Eurotech - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.kapua.commons.model.misc;
+
+import java.util.Collections;
+import java.util.HashMap;
+
+import org.eclipse.kapua.commons.jpa.AbstractEntityManagerFactory;
+
+/**
+ * Entity manager factory keeping the {@link CollisionEntity} in the shared cache
+ */
+public class CachedCollisionEntityManagerFactory extends AbstractEntityManagerFactory {
+
+    private static final String PERSISTENCE_UNIT_NAME = "kapua-commons-cache-unit-test";
+    private static final String DATASOURCE_NAME = "kapua-dbpool";
+
+    private static final CachedCollisionEntityManagerFactory INSTANCE = new CachedCollisionEntityManagerFactory();
+
+    private CachedCollisionEntityManagerFactory() {
+        super(PERSISTENCE_UNIT_NAME, DATASOURCE_NAME, new HashMap<>(), Collections.singleton("CollisionEntity"));
+    }
+
+    public static CachedCollisionEntityManagerFactory getInstance() {
+        return INSTANCE;
+    }
+}
@@ -13,10 +13,17 @@ package org.eclipse.kapua.commons.model.misc;
 
 import java.math.BigInteger;
 import java.util.Date;
+import java.util.HashSet;
+import java.util.Set;
 
+import javax.persistence.AttributeOverride;
+import javax.persistence.AttributeOverrides;
 import javax.persistence.Basic;
+import javax.persistence.CollectionTable;
 import javax.persistence.Column;
+import javax.persistence.ElementCollection;
 import javax.persistence.Entity;
+import javax.persistence.JoinColumn;
 import javax.persistence.PrePersist;
 import javax.persistence.Table;
 
@@ -37,6 +44,13 @@ public class CollisionEntity extends AbstractKapuaNamedEntity {
     @Column(name = "test_field")
     private String testField;
 
+    @ElementCollection
+    @CollectionTable(name = "collision_entity_tag_test", joinColumns = @JoinColumn(name = "entity_id", referencedColumnName = "id"))
+    @AttributeOverrides({
+            @AttributeOverride(name = "eid", column = @Column(name = "tag_id", nullable = false, updatable = false))
+    })
+    private Set<KapuaEid> tagIds = new HashSet<>();
+
     public String getType() {
         return TYPE;
     }
@@ -68,4 +82,8 @@ public class CollisionEntity extends AbstractKapuaNamedEntity {
         return testField;
     }
 
+    public Set<KapuaEid> getTagIds() {
+        return tagIds;
+    }
+
 }
\ No newline at end of file
@@ -9,11 +9,15 @@
  * Contributors:
  *     Eurotech - initial API and implementation
  *******************************************************************************/
-package org.eclipse.kapua.job.engine.jbatch.driver.exception;
+package org.eclipse.kapua.commons.model.misc;
 
-public class CannotCleanJobDefFileDriverException extends JbatchDriverException {
+import org.eclipse.kapua.commons.model.query.predicate.AbstractKapuaQuery;
+import org.eclipse.kapua.model.id.KapuaId;
 
-    public CannotCleanJobDefFileDriverException(String jobName, String path) {
-        super(JbatchDriverErrorCodes.CANNOT_CLEAN_XML_JOB_DEFINITION_FILE, jobName, path);
+public class CollisionEntityQuery extends AbstractKapuaQuery<CollisionEntity> {
+
+    public CollisionEntityQuery(KapuaId scopeId) {
+        super(scopeId);
     }
+
 }
@@ -0,0 +1,200 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Eurotech and/or its affiliates and others
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Eurotech - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.kapua.commons.service.internal;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.eclipse.kapua.KapuaException;
+import org.eclipse.kapua.commons.jpa.EntityManager;
+import org.eclipse.kapua.commons.model.AbstractCommonServiceTest;
+import org.eclipse.kapua.commons.model.id.KapuaEid;
+import org.eclipse.kapua.commons.model.misc.CollisionEntity;
+import org.eclipse.kapua.commons.model.misc.CollisionEntityManagerFactory;
+import org.eclipse.kapua.commons.model.misc.CollisionEntityService;
+import org.eclipse.kapua.commons.model.misc.CollisionIdGenerator;
+import org.eclipse.kapua.commons.setting.system.SystemSetting;
+import org.eclipse.kapua.commons.setting.system.SystemSettingKey;
+import org.eclipse.kapua.model.KapuaBatchResult;
+import org.eclipse.kapua.model.id.KapuaId;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/**
+ * {@link AbstractKapuaService} batch write tests on H2: chunk preparation, validation errors, id collisions and updates
+ */
+public class BatchServiceTest extends AbstractCommonServiceTest {
+
+    private static final KapuaId SCOPE_ID = new KapuaEid(BigInteger.valueOf(33));
+    private static final int CHUNK_SIZE = SystemSetting.getInstance().getInt(SystemSettingKey.KAPUA_BATCH_CHUNK_SIZE, 500);
+
+    private static final BatchService BATCH_SERVICE = new BatchService();
+
+    @BeforeClass
+    public static void createTables() throws KapuaException {
+        scriptSession(DEFAULT_TEST_PATH, "test_collision_entity_*_create.sql");
+    }
+
+    @Test
+    public void testCreateAllRetriesIdCollision() throws KapuaException {
+        CollisionEntity.initializeCollisionIdGenerator(new CollisionIdGenerator("0", new BigInteger("33000"), 0));
+        CollisionEntity existing = persist("batch-existing");
+
+        // the chunk insert and the first insert of the single item get the id in use, the retry gets a new id
+        CollisionIdGenerator collisionIdGenerator = new CollisionIdGenerator(existing.getId().getId().toString(), new BigInteger("33100"), 3);
+        CollisionEntity.initializeCollisionIdGenerator(collisionIdGenerator);
+        KapuaBatchResult<CollisionEntity> batchResult = BATCH_SERVICE.createAll(names("batch-collision", 1), new BatchItemValidator<String>() {
+
+            @Override
+            public void validate(String item) throws KapuaException {
+            }
+        });
+
+        Assert.assertTrue(batchResult.getItems().get(0).isSucceeded());
+        Assert.assertEquals(BigInteger.valueOf(33101), batchResult.getItems().get(0).getEntity().getId().getId());
+        Assert.assertEquals(3, collisionIdGenerator.getGeneretedValuesCount());
+        Assert.assertNotNull(find(existing.getId()));
+        Assert.assertNotNull(find(batchResult.getItems().get(0).getEntity().getId()));
+    }
+
+    @Test
+    public void testCreateAllValidatorRuntimeException() throws KapuaException {
+        CollisionEntity.initializeCollisionIdGenerator(new CollisionIdGenerator("0", new BigInteger("33200"), 0));
+        KapuaBatchResult<CollisionEntity> batchResult = BATCH_SERVICE.createAll(names("batch-validation", 3), new BatchItemValidator<String>() {
+
+            @Override
+            public void validate(String item) throws KapuaException {
+                if (item.endsWith("-1")) {
+                    throw new IllegalStateException("Unexpected validation error");
+                }
+            }
+        });
+
+        // the validator error is reported on its item and the other items are written
+        Assert.assertEquals(3, batchResult.getItems().size());
+        Assert.assertEquals(1, batchResult.getFailedCount());
+        Assert.assertTrue(batchResult.getItems().get(0).isSucceeded());
+        Assert.assertFalse(batchResult.getItems().get(1).isSucceeded());
+        Assert.assertNotNull(batchResult.getItems().get(1).getError());
+        Assert.assertTrue(batchResult.getItems().get(2).isSucceeded());
+        Assert.assertNotNull(find(batchResult.getItems().get(2).getEntity().getId()));
+    }
+
+    @Test
+    public void testCreateAllPreparesEachChunk() throws KapuaException {
+        CollisionEntity.initializeCollisionIdGenerator(new CollisionIdGenerator("0", new BigInteger("34000"), 0));
+        List<Integer> chunkSizes = new ArrayList<>();
+        KapuaBatchResult<CollisionEntity> batchResult = BATCH_SERVICE.createAll(names("batch-chunk", CHUNK_SIZE + 1), new BatchItemValidator<String>() {
+
+            @Override
+            public void prepare(List<String> chunkItems) throws KapuaException {
+                chunkSizes.add(chunkItems.size());
+                if (chunkSizes.size() > 1) {
+                    throw new IllegalStateException("Unexpected prepare error");
+                }
+            }
+
+            @Override
+            public void validate(String item) throws KapuaException {
+            }
+        });
+
+        // the prepare error of the second chunk fails only the items of the second chunk
+        Assert.assertEquals(2, chunkSizes.size());
+        Assert.assertEquals(CHUNK_SIZE, chunkSizes.get(0).intValue());
+        Assert.assertEquals(1, chunkSizes.get(1).intValue());
+        for (int i = 0; i < CHUNK_SIZE; i++) {
+            Assert.assertTrue(batchResult.getItems().get(i).isSucceeded());
+        }
+        Assert.assertFalse(batchResult.getItems().get(CHUNK_SIZE).isSucceeded());
+    }
+
+    @Test
+    public void testUpdateAll() throws KapuaException {
+        CollisionEntity.initializeCollisionIdGenerator(new CollisionIdGenerator("0", new BigInteger("33300"), 0));
+        List<CollisionEntity> entities = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            CollisionEntity entity = find(persist("batch-update-" + i).getId());
+            entity.setName("batch-updated-" + i);
+            entities.add(entity);
+        }
+
+        KapuaBatchResult<CollisionEntity> batchResult = BATCH_SERVICE.updateAll(entities);
+
+        for (int i = 0; i < 3; i++) {
+            Assert.assertTrue(batchResult.getItems().get(i).isSucceeded());
+            Assert.assertEquals("batch-updated-" + i, find(entities.get(i).getId()).getName());
+        }
+    }
+
+    private static List<String> names(String prefix, int count) {
+        List<String> names = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            names.add(prefix + "-" + i);
+        }
+        return names;
+    }
+
+    private static CollisionEntity persist(String name) throws KapuaException {
+        EntityManager em = CollisionEntityManagerFactory.getInstance().createEntityManager();
+        try {
+            em.beginTransaction();
+            CollisionEntity entity = new CollisionEntity(name);
+            entity.setScopeId(SCOPE_ID);
+            entity.setName(name);
+            em.persist(entity);
+            em.commit();
+            return entity;
+        } finally {
+            em.close();
+        }
+    }
+
+    private static CollisionEntity find(KapuaId id) throws KapuaException {
+        EntityManager em = CollisionEntityManagerFactory.getInstance().createEntityManager();
+        try {
+            return em.find(CollisionEntity.class, id);
+        } finally {
+            em.close();
+        }
+    }
+
+    /**
+     * Service writing {@link CollisionEntity} batches
+     */
+    private static class BatchService extends AbstractKapuaService {
+
+        BatchService() {
+            super(CollisionEntityManagerFactory.getInstance());
+        }
+
+        KapuaBatchResult<CollisionEntity> createAll(List<String> names, BatchItemValidator<String> validator) throws KapuaException {
+            return onTransactedBatchInsert(CollisionEntityService.class, "createAll", names, validator, (em, name) -> {
+                CollisionEntity entity = new CollisionEntity(name);
+                entity.setScopeId(SCOPE_ID);
+                entity.setName(name);
+                return ServiceDAO.createInBatch(em, entity);
+            });
+        }
+
+        KapuaBatchResult<CollisionEntity> updateAll(List<CollisionEntity> entities) throws KapuaException {
+            return onTransactedBatchUpdate(CollisionEntityService.class, "updateAll", entities, CollisionEntity.class, new BatchItemValidator<CollisionEntity>() {
+
+                @Override
+                public void validate(CollisionEntity entity) throws KapuaException {
+                }
+            }, (em, entity) -> ServiceDAO.updateInBatch(em, CollisionEntity.class, entity));
+        }
+    }
+}
@@ -0,0 +1,264 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Eurotech and/or its affiliates and others
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Eurotech - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.kapua.commons.service.internal;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import javax.persistence.TypedQuery;
+
+import org.eclipse.kapua.KapuaException;
+import org.eclipse.kapua.commons.jpa.EntityManager;
+import org.eclipse.kapua.commons.model.AbstractCommonServiceTest;
+import org.eclipse.kapua.commons.model.id.KapuaEid;
+import org.eclipse.kapua.commons.model.misc.CollisionEntity;
+import org.eclipse.kapua.commons.model.misc.CollisionEntityManagerFactory;
+import org.eclipse.kapua.commons.model.misc.CollisionEntityQuery;
+import org.eclipse.kapua.commons.model.misc.CollisionIdGenerator;
+import org.eclipse.kapua.commons.model.query.FieldSortCriteria;
+import org.eclipse.kapua.commons.model.query.FieldSortCriteria.SortOrder;
+import org.eclipse.kapua.commons.model.query.predicate.AndPredicateImpl;
+import org.eclipse.kapua.commons.model.query.predicate.AttributePredicateImpl;
+import org.eclipse.kapua.commons.model.query.predicate.OrPredicateImpl;
+import org.eclipse.kapua.model.KapuaEntityPredicates;
+import org.eclipse.kapua.model.KapuaNamedEntityPredicates;
+import org.eclipse.kapua.model.id.KapuaId;
+import org.eclipse.kapua.model.query.predicate.AttributePredicate.Operator;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/**
+ * Check that the {@link QueryPlanCache} statements return the same results of the {@link ServiceDAO} criteria queries
+ */
+public class QueryPlanCacheTest extends AbstractCommonServiceTest {
+
+    private static final KapuaId SCOPE_ID = new KapuaEid(BigInteger.valueOf(31));
+    private static final String TEST_FIELD = "testField";
+    private static final int ENTITY_COUNT = 10;
+
+    private static final List<KapuaId> ENTITY_IDS = new ArrayList<>();
+
+    @BeforeClass
+    public static void createEntities() throws KapuaException {
+        scriptSession(DEFAULT_TEST_PATH, "test_collision_entity_*_create.sql");
+
+        CollisionEntity.initializeCollisionIdGenerator(new CollisionIdGenerator("0", new BigInteger("31000"), 0));
+        EntityManager em = CollisionEntityManagerFactory.getInstance().createEntityManager();
+        try {
+            em.beginTransaction();
+            for (int i = 0; i < ENTITY_COUNT; i++) {
+                // odd values contain the LIKE wildcards, to check that they are escaped
+                CollisionEntity entity = new CollisionEntity((i % 2 == 0 ? "plan-even-" : "plan%odd_") + i);
+                entity.setScopeId(SCOPE_ID);
+                entity.setName("plan-" + i);
+                em.persist(entity);
+                ENTITY_IDS.add(entity.getId());
+            }
+            em.commit();
+        } finally {
+            em.close();
+        }
+    }
+
+    @Test
+    public void testScopeOnly() throws KapuaException {
+        Assert.assertEquals(ENTITY_COUNT, assertSameResults(new CollisionEntityQuery(SCOPE_ID)));
+    }
+
+    @Test
+    public void testEqualAndNotEqual() throws KapuaException {
+        CollisionEntityQuery query = new CollisionEntityQuery(SCOPE_ID);
+        query.setPredicate(new AttributePredicateImpl<>(KapuaNamedEntityPredicates.NAME, "plan-3"));
+        Assert.assertEquals(1, assertSameResults(query));
+
+        query.setPredicate(new AttributePredicateImpl<>(KapuaNamedEntityPredicates.NAME, "plan-3", Operator.NOT_EQUAL));
+        Assert.assertEquals(ENTITY_COUNT - 1, assertSameResults(query));
+    }
+
+    @Test
+    public void testComparisonsAndSort() throws KapuaException {
+        CollisionEntityQuery query = new CollisionEntityQuery(SCOPE_ID);
+        query.setSortCriteria(new FieldSortCriteria(KapuaNamedEntityPredicates.NAME, SortOrder.DESCENDING));
+
+        query.setPredicate(new AttributePredicateImpl<>(KapuaNamedEntityPredicates.NAME, "plan-4", Operator.GREATER_THAN));
+        Assert.assertEquals(5, assertSameResults(query));
+        query.setPredicate(new AttributePredicateImpl<>(KapuaNamedEntityPredicates.NAME, "plan-4", Operator.GREATER_THAN_OR_EQUAL));
+        Assert.assertEquals(6, assertSameResults(query));
+        query.setPredicate(new AttributePredicateImpl<>(KapuaNamedEntityPredicates.NAME, "plan-4", Operator.LESS_THAN));
+        Assert.assertEquals(4, assertSameResults(query));
+        query.setPredicate(new AttributePredicateImpl<>(KapuaNamedEntityPredicates.NAME, "plan-4", Operator.LESS_THAN_OR_EQUAL));
+        Assert.assertEquals(5, assertSameResults(query));
+    }
+
+    @Test
+    public void testLikeAndStartsWith() throws KapuaException {
+        CollisionEntityQuery query = new CollisionEntityQuery(SCOPE_ID);
+        query.setPredicate(new AttributePredicateImpl<>(TEST_FIELD, "%odd_", Operator.LIKE));
+        Assert.assertEquals(5, assertSameResults(query));
+
+        query.setPredicate(new AttributePredicateImpl<>(TEST_FIELD, "plan-even", Operator.STARTS_WITH));
+        Assert.assertEquals(5, assertSameResults(query));
+
+        // the wildcards are matched literally
+        query.setPredicate(new AttributePredicateImpl<>(TEST_FIELD, "plan_", Operator.STARTS_WITH));
+        Assert.assertEquals(0, assertSameResults(query));
+    }
+
+    @Test
+    public void testNullChecks() throws KapuaException {
+        CollisionEntityQuery query = new CollisionEntityQuery(SCOPE_ID);
+        query.setPredicate(new AttributePredicateImpl<>("modifiedOn", null, Operator.IS_NULL));
+        Assert.assertEquals(ENTITY_COUNT, assertSameResults(query));
+
+        query.setPredicate(new AttributePredicateImpl<>("modifiedOn", null, Operator.NOT_NULL));
+        Assert.assertEquals(0, assertSameResults(query));
+    }
+
+    @Test
+    public void testArrays() throws KapuaException {
+        CollisionEntityQuery query = new CollisionEntityQuery(SCOPE_ID);
+        query.setPredicate(new AttributePredicateImpl<>(KapuaNamedEntityPredicates.NAME, new String[] { "plan-1", "plan-2", "missing" }));
+        Assert.assertEquals(2, assertSameResults(query));
+
+        query.setPredicate(new AttributePredicateImpl<>(KapuaEntityPredicates.ENTITY_ID, new KapuaId[] { ENTITY_IDS.get(0), ENTITY_IDS.get(5) }));
+        Assert.assertEquals(2, assertSameResults(query));
+
+        query.setPredicate(new AttributePredicateImpl<>(KapuaNamedEntityPredicates.NAME, new String[0]));
+        Assert.assertEquals(0, assertSameResults(query));
+    }
+
+    @Test
+    public void testArrayLengthsShareThePlan() throws KapuaException {
+        CollisionEntityQuery query = new CollisionEntityQuery(SCOPE_ID);
+        query.setPredicate(new AttributePredicateImpl<>(KapuaNamedEntityPredicates.NAME, new String[] { "plan-1", "plan-2", "plan-3", "plan-4" }));
+        Assert.assertEquals(4, assertSameResults(query));
+        int size = QueryPlanCache.getInstance().size();
+
+        // 3 values are bound to the 4 parameters of the same plan
+        query.setPredicate(new AttributePredicateImpl<>(KapuaNamedEntityPredicates.NAME, new String[] { "plan-5", "plan-6", "missing" }));
+        Assert.assertEquals(2, assertSameResults(query));
+        Assert.assertEquals("The arrays of similar lengths should share the plan", size, QueryPlanCache.getInstance().size());
+
+        query.setPredicate(new AttributePredicateImpl<>(KapuaEntityPredicates.ENTITY_ID, new KapuaId[] { ENTITY_IDS.get(0), ENTITY_IDS.get(5), ENTITY_IDS.get(7) }));
+        Assert.assertEquals(3, assertSameResults(query));
+    }
+
+    @Test
+    public void testUnsupportedShapeNotCached() throws KapuaException {
+        CollisionEntityQuery query = new CollisionEntityQuery(SCOPE_ID);
+        query.setPredicate(new AttributePredicateImpl<>("unknownAttribute", "value"));
+        int size = QueryPlanCache.getInstance().size();
+
+        EntityManager em = CollisionEntityManagerFactory.getInstance().createEntityManager();
+        try {
+            Assert.assertNull(QueryPlanCache.getInstance().createQuery(em, CollisionEntity.class, query));
+        } finally {
+            em.close();
+        }
+        Assert.assertEquals("The unsupported shape should not be cached", size, QueryPlanCache.getInstance().size());
+    }
+
+    @Test
+    public void testIdentifiers() throws KapuaException {
+        CollisionEntityQuery query = new CollisionEntityQuery(SCOPE_ID);
+        query.setPredicate(new AttributePredicateImpl<>(KapuaEntityPredicates.ENTITY_ID, ENTITY_IDS.get(3)));
+        Assert.assertEquals(1, assertSameResults(query));
+
+        query.setPredicate(new AttributePredicateImpl<>(KapuaEntityPredicates.ENTITY_ID, ENTITY_IDS.get(3), Operator.GREATER_THAN));
+        Assert.assertEquals(ENTITY_COUNT - 4, assertSameResults(query));
+
+        query.setPredicate(new AttributePredicateImpl<>(KapuaEntityPredicates.ENTITY_ID, ENTITY_IDS.get(3), Operator.NOT_EQUAL));
+        Assert.assertEquals(ENTITY_COUNT - 1, assertSameResults(query));
+    }
+
+    @Test
+    public void testAndOr() throws KapuaException {
+        CollisionEntityQuery query = new CollisionEntityQuery(SCOPE_ID);
+        query.setPredicate(new OrPredicateImpl(
+                new AndPredicateImpl(
+                        new AttributePredicateImpl<>(TEST_FIELD, "plan-even", Operator.STARTS_WITH),
+                        new AttributePredicateImpl<>(KapuaNamedEntityPredicates.NAME, "plan-4", Operator.LESS_THAN)),
+                new AttributePredicateImpl<>(KapuaNamedEntityPredicates.NAME, "plan-9")));
+        Assert.assertEquals(3, assertSameResults(query));
+
+        query.setPredicate(new OrPredicateImpl());
+        Assert.assertEquals(0, assertSameResults(query));
+
+        query.setPredicate(new AndPredicateImpl());
+        Assert.assertEquals(ENTITY_COUNT, assertSameResults(query));
+    }
+
+    @Test
+    public void testShapeReuse() throws KapuaException {
+        CollisionEntityQuery query = new CollisionEntityQuery(SCOPE_ID);
+        query.setPredicate(new AttributePredicateImpl<>(KapuaNamedEntityPredicates.NAME, "plan-5", Operator.LESS_THAN_OR_EQUAL));
+        query.setSortCriteria(new FieldSortCriteria(TEST_FIELD, SortOrder.ASCENDING));
+        Assert.assertEquals(6, assertSameResults(query));
+        int size = QueryPlanCache.getInstance().size();
+
+        // same shape with a different value: the cached plan binds the new value
+        query.setPredicate(new AttributePredicateImpl<>(KapuaNamedEntityPredicates.NAME, "plan-1", Operator.LESS_THAN_OR_EQUAL));
+        Assert.assertEquals(2, assertSameResults(query));
+        Assert.assertEquals("The query shape should be cached once", size, QueryPlanCache.getInstance().size());
+    }
+
+    /**
+     * Run the select, count and ids statements through the query plan cache and the criteria queries and check that they match
+     *
+     * @return the number of results
+     */
+    private static int assertSameResults(CollisionEntityQuery query) throws KapuaException {
+        QueryPlanCache queryPlanCache = QueryPlanCache.getInstance();
+        EntityManager em = CollisionEntityManagerFactory.getInstance().createEntityManager();
+        try {
+            TypedQuery<CollisionEntity> planQuery = queryPlanCache.createQuery(em, CollisionEntity.class, query);
+            TypedQuery<Long> planCountQuery = queryPlanCache.createCountQuery(em, CollisionEntity.class, query);
+            TypedQuery<Object> planIdQuery = queryPlanCache.createIdQuery(em, CollisionEntity.class, query);
+            Assert.assertNotNull("The query shape should be handled by the query plan cache", planQuery);
+            Assert.assertNotNull("The count shape should be handled by the query plan cache", planCountQuery);
+            Assert.assertNotNull("The ids shape should be handled by the query plan cache", planIdQuery);
+
+            List<KapuaId> expected = ids(ServiceDAO.createCriteriaQuery(em, CollisionEntity.class, query).getResultList());
+            Assert.assertEquals("Wrong query plan results", expected, ids(planQuery.getResultList()));
+            Assert.assertEquals("Wrong query plan count", ServiceDAO.createCriteriaCountQuery(em, CollisionEntity.class, query).getSingleResult(),
+                    planCountQuery.getSingleResult());
+            Assert.assertEquals("Wrong query plan ids", idValues(ServiceDAO.createCriteriaIdQuery(em, CollisionEntity.class, query).getResultList()),
+                    idValues(planIdQuery.getResultList()));
+            return expected.size();
+        } finally {
+            em.close();
+        }
+    }
+
+    private static List<KapuaId> ids(List<CollisionEntity> entities) {
+        List<KapuaId> ids = new ArrayList<>();
+        for (CollisionEntity entity : entities) {
+            ids.add(entity.getId());
+        }
+        return ids;
+    }
+
+    /**
+     * The criteria query selects the identifiers while the plans select their values
+     */
+    private static Set<BigInteger> idValues(List<Object> ids) {
+        Set<BigInteger> idValues = new HashSet<>();
+        for (Object id : ids) {
+            idValues.add(id instanceof KapuaEid ? ((KapuaEid) id).getId() : (BigInteger) id);
+        }
+        return idValues;
+    }
+}
@@ -0,0 +1,263 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Eurotech and/or its affiliates and others
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Eurotech - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.kapua.commons.service.internal;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+import javax.persistence.TypedQuery;
+
+import org.eclipse.kapua.KapuaException;
+import org.eclipse.kapua.KapuaIllegalNullArgumentException;
+import org.eclipse.kapua.commons.jpa.EntityManager;
+import org.eclipse.kapua.commons.model.AbstractCommonServiceTest;
+import org.eclipse.kapua.commons.model.id.KapuaEid;
+import org.eclipse.kapua.commons.model.misc.CollisionEntity;
+import org.eclipse.kapua.commons.model.misc.CollisionEntityManagerFactory;
+import org.eclipse.kapua.commons.model.misc.CollisionEntityQuery;
+import org.eclipse.kapua.commons.model.misc.CollisionIdGenerator;
+import org.eclipse.kapua.commons.model.query.FieldSortCriteria;
+import org.eclipse.kapua.commons.model.query.FieldSortCriteria.SortOrder;
+import org.eclipse.kapua.commons.model.query.KapuaListResultImpl;
+import org.eclipse.kapua.commons.model.query.predicate.AttributePredicateImpl;
+import org.eclipse.kapua.model.KapuaEntityPredicates;
+import org.eclipse.kapua.model.KapuaNamedEntityPredicates;
+import org.eclipse.kapua.model.id.KapuaId;
+import org.eclipse.kapua.model.query.KapuaListResult;
+import org.eclipse.kapua.model.query.predicate.AttributePredicate.Operator;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/**
+ * {@link ServiceDAO} query and count tests on H2: keyset pagination, distinct results of the collection joins,
+ * bounded counts and identifier comparisons
+ */
+public class ServiceDAOQueryTest extends AbstractCommonServiceTest {
+
+    private static final KapuaId SCOPE_ID = new KapuaEid(BigInteger.valueOf(32));
+    private static final KapuaEid TAG_ONE = new KapuaEid(BigInteger.valueOf(321));
+    private static final KapuaEid TAG_TWO = new KapuaEid(BigInteger.valueOf(322));
+    private static final String TAG_IDS = "tagIds";
+    private static final int ENTITY_COUNT = 7;
+
+    private static final List<CollisionEntity> ENTITIES = new ArrayList<>();
+
+    @BeforeClass
+    public static void createEntities() throws KapuaException {
+        scriptSession(DEFAULT_TEST_PATH, "test_collision_entity_*_create.sql");
+
+        // ids are not in the name order, so the keyset pagination on the name must break the ties by id
+        CollisionEntity.initializeCollisionIdGenerator(new CollisionIdGenerator("0", new BigInteger("32000"), 0));
+        EntityManager em = CollisionEntityManagerFactory.getInstance().createEntityManager();
+        try {
+            em.beginTransaction();
+            for (int i = 0; i < ENTITY_COUNT; i++) {
+                CollisionEntity entity = new CollisionEntity("seek-" + i);
+                entity.setScopeId(SCOPE_ID);
+                entity.setName("seek-" + (ENTITY_COUNT - i) / 2);
+                if (i == 0) {
+                    entity.getTagIds().add(TAG_ONE);
+                    entity.getTagIds().add(TAG_TWO);
+                } else if (i == 1) {
+                    entity.getTagIds().add(TAG_ONE);
+                }
+                em.persist(entity);
+                ENTITIES.add(entity);
+            }
+            em.commit();
+        } finally {
+            em.close();
+        }
+    }
+
+    @Test
+    public void testSeekById() throws KapuaException {
+        List<KapuaId> expected = ids(sorted(Comparator.comparing(entity -> entity.getId().getId())));
+        Assert.assertEquals(expected, seekAll(new CollisionEntityQuery(SCOPE_ID), 2));
+    }
+
+    @Test
+    public void testSeekByNameAscending() throws KapuaException {
+        CollisionEntityQuery query = new CollisionEntityQuery(SCOPE_ID);
+        query.setSortCriteria(new FieldSortCriteria(KapuaNamedEntityPredicates.NAME, SortOrder.ASCENDING));
+
+        List<KapuaId> expected = ids(sorted(Comparator.comparing(CollisionEntity::getName).thenComparing(entity -> entity.getId().getId())));
+        Assert.assertEquals(expected, seekAll(query, 2));
+        Assert.assertEquals(expected, seekAll(query, 3));
+    }
+
+    @Test
+    public void testSeekByNameDescending() throws KapuaException {
+        CollisionEntityQuery query = new CollisionEntityQuery(SCOPE_ID);
+        query.setSortCriteria(new FieldSortCriteria(KapuaNamedEntityPredicates.NAME, SortOrder.DESCENDING));
+
+        Comparator<CollisionEntity> ascending = Comparator.comparing(CollisionEntity::getName).thenComparing(entity -> entity.getId().getId());
+        Assert.assertEquals(ids(sorted(ascending.reversed())), seekAll(query, 2));
+    }
+
+    @Test
+    public void testSeekCriteriaQuery() throws KapuaException {
+        CollisionEntityQuery query = new CollisionEntityQuery(SCOPE_ID);
+        query.setSortCriteria(new FieldSortCriteria(KapuaNamedEntityPredicates.NAME, SortOrder.ASCENDING));
+        List<CollisionEntity> expected = sorted(Comparator.comparing(CollisionEntity::getName).thenComparing(entity -> entity.getId().getId()));
+
+        // the criteria query used when the query plan cache is disabled follows the same keyset
+        CollisionEntity after = expected.get(2);
+        query.setSeekAfter(after.getName(), after.getId());
+        EntityManager em = CollisionEntityManagerFactory.getInstance().createEntityManager();
+        try {
+            TypedQuery<CollisionEntity> criteriaQuery = ServiceDAO.createCriteriaQuery(em, CollisionEntity.class, query);
+            Assert.assertEquals(ids(expected.subList(3, ENTITY_COUNT)), ids(criteriaQuery.getResultList()));
+        } finally {
+            em.close();
+        }
+    }
+
+    @Test(expected = KapuaIllegalNullArgumentException.class)
+    public void testSeekWithoutSortValue() throws KapuaException {
+        CollisionEntityQuery query = new CollisionEntityQuery(SCOPE_ID);
+        query.setSortCriteria(new FieldSortCriteria(KapuaNamedEntityPredicates.NAME, SortOrder.ASCENDING));
+        query.setSeekAfter(null, ENTITIES.get(0).getId());
+        query(query);
+    }
+
+    @Test
+    public void testCountUpToLimit() throws KapuaException {
+        CollisionEntityQuery query = new CollisionEntityQuery(SCOPE_ID);
+        Assert.assertEquals(ENTITY_COUNT, count(query));
+
+        query.setCountLimit(3);
+        Assert.assertEquals(3, count(query));
+
+        query.setCountLimit(ENTITY_COUNT + 10);
+        Assert.assertEquals(ENTITY_COUNT, count(query));
+
+        // the seek keyset doesn't restrict the counts
+        query.setSeekAfter(null, ENTITIES.get(ENTITY_COUNT - 1).getId());
+        Assert.assertEquals(ENTITY_COUNT, count(query));
+    }
+
+    @Test
+    public void testDistinctCollectionJoin() throws KapuaException {
+        CollisionEntityQuery query = new CollisionEntityQuery(SCOPE_ID);
+        query.setPredicate(new AttributePredicateImpl<>(TAG_IDS, new KapuaId[] { TAG_ONE, TAG_TWO }));
+
+        // the first entity matches both the tags, but it is returned and counted once
+        KapuaListResult<CollisionEntity> result = query(query);
+        Assert.assertEquals(2, result.getSize());
+        Assert.assertNotEquals(result.getItem(0).getId(), result.getItem(1).getId());
+        Assert.assertEquals(2, count(query));
+
+        query.setCountLimit(ENTITY_COUNT);
+        Assert.assertEquals(2, count(query));
+
+        query.setPredicate(new AttributePredicateImpl<>(TAG_IDS, TAG_TWO));
+        query.setCountLimit(null);
+        Assert.assertEquals(1, query(query).getSize());
+        Assert.assertEquals(1, count(query));
+    }
+
+    @Test
+    public void testIdentifierComparison() throws KapuaException {
+        List<CollisionEntity> byId = sorted(Comparator.comparing(entity -> entity.getId().getId()));
+        BigInteger pivot = byId.get(3).getId().getId();
+
+        // a KapuaId which is not a KapuaEid is compared through its value too
+        KapuaId id = () -> pivot;
+        for (Operator operator : new Operator[] { Operator.GREATER_THAN, Operator.GREATER_THAN_OR_EQUAL, Operator.LESS_THAN, Operator.LESS_THAN_OR_EQUAL }) {
+            CollisionEntityQuery query = new CollisionEntityQuery(SCOPE_ID);
+            query.setPredicate(new AttributePredicateImpl<>(KapuaEntityPredicates.ENTITY_ID, id, operator));
+
+            List<KapuaId> expected;
+            switch (operator) {
+            case GREATER_THAN:
+                expected = ids(byId.subList(4, ENTITY_COUNT));
+                break;
+            case GREATER_THAN_OR_EQUAL:
+                expected = ids(byId.subList(3, ENTITY_COUNT));
+                break;
+            case LESS_THAN:
+                expected = ids(byId.subList(0, 3));
+                break;
+            default:
+                expected = ids(byId.subList(0, 4));
+            }
+            Assert.assertEquals("Wrong results for " + operator, expected, ids(query(query).getItems()));
+
+            EntityManager em = CollisionEntityManagerFactory.getInstance().createEntityManager();
+            try {
+                Assert.assertEquals("Wrong criteria results for " + operator, expected,
+                        ids(ServiceDAO.createCriteriaQuery(em, CollisionEntity.class, query).getResultList()));
+            } finally {
+                em.close();
+            }
+        }
+    }
+
+    /**
+     * Read all the results through the keyset pagination
+     */
+    private static List<KapuaId> seekAll(CollisionEntityQuery query, int pageSize) throws KapuaException {
+        List<KapuaId> ids = new ArrayList<>();
+        query.setLimit(pageSize);
+        query.setSeekAfter(null, null);
+        KapuaListResult<CollisionEntity> page;
+        do {
+            page = query(query);
+            Assert.assertTrue("The page is bigger than the limit", page.getSize() <= pageSize);
+            for (CollisionEntity entity : page.getItems()) {
+                Assert.assertFalse("The entity is returned twice", ids.contains(entity.getId()));
+                ids.add(entity.getId());
+            }
+            if (!page.isEmpty()) {
+                CollisionEntity last = page.getItem(page.getSize() - 1);
+                query.setSeekAfter(last.getName(), last.getId());
+            }
+        } while (page.isLimitExceeded());
+        return ids;
+    }
+
+    private static KapuaListResult<CollisionEntity> query(CollisionEntityQuery query) throws KapuaException {
+        EntityManager em = CollisionEntityManagerFactory.getInstance().createEntityManager();
+        try {
+            return ServiceDAO.query(em, CollisionEntity.class, CollisionEntity.class, new KapuaListResultImpl<>(), query);
+        } finally {
+            em.close();
+        }
+    }
+
+    private static long count(CollisionEntityQuery query) throws KapuaException {
+        EntityManager em = CollisionEntityManagerFactory.getInstance().createEntityManager();
+        try {
+            return ServiceDAO.count(em, CollisionEntity.class, CollisionEntity.class, query);
+        } finally {
+            em.close();
+        }
+    }
+
+    private static List<CollisionEntity> sorted(Comparator<CollisionEntity> comparator) {
+        List<CollisionEntity> entities = new ArrayList<>(ENTITIES);
+        entities.sort(comparator);
+        return entities;
+    }
+
+    private static List<KapuaId> ids(List<CollisionEntity> entities) {
+        List<KapuaId> ids = new ArrayList<>();
+        for (CollisionEntity entity : entities) {
+            ids.add(entity.getId());
+        }
+        return ids;
+    }
+}
@@ -0,0 +1,154 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Eurotech and/or its affiliates and others
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Eurotech - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.kapua.commons.service.internal.cache;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.eclipse.kapua.commons.model.AbstractCommonServiceTest;
+import org.eclipse.kapua.commons.model.id.KapuaEid;
+import org.eclipse.kapua.commons.model.misc.CachedCollisionEntityManagerFactory;
+import org.eclipse.kapua.commons.model.misc.CollisionEntity;
+import org.eclipse.kapua.event.ServiceEvent;
+import org.eclipse.kapua.event.ServiceEventBus;
+import org.eclipse.kapua.event.ServiceEventBusException;
+import org.eclipse.kapua.event.ServiceEventBusListener;
+import org.eclipse.kapua.model.id.KapuaId;
+import org.junit.AfterClass;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/**
+ * {@link EntityCacheManager} tests: propagation of the invalidations between the nodes through the event bus
+ */
+public class EntityCacheManagerTest extends AbstractCommonServiceTest {
+
+    private static final KapuaId ENTITY_ID = new KapuaEid(BigInteger.valueOf(38000));
+
+    private static final EntityCache ENTITY_CACHE = EntityCacheManager.getCache("CollisionEntity", CollisionEntity.class, CachedCollisionEntityManagerFactory.getInstance());
+    private static final TestEventBus EVENT_BUS = new TestEventBus();
+    private static final List<KapuaId> EVICTED = new ArrayList<>();
+
+    @BeforeClass
+    public static void subscribe() throws ServiceEventBusException {
+        EntityCacheManager.subscribe(EVENT_BUS);
+        ENTITY_CACHE.addEvictionListener(EVICTED::add);
+    }
+
+    @AfterClass
+    public static void unsubscribe() {
+        EntityCacheManager.unsubscribe();
+    }
+
+    @Before
+    public void reset() {
+        EVENT_BUS.published.clear();
+        EVENT_BUS.unavailable = false;
+        EVICTED.clear();
+    }
+
+    @Test
+    public void testSubscribeOnce() throws ServiceEventBusException {
+        Assert.assertEquals(1, EVENT_BUS.subscriptions);
+
+        TestEventBus otherEventBus = new TestEventBus();
+        EntityCacheManager.subscribe(otherEventBus);
+        Assert.assertEquals(0, otherEventBus.subscriptions);
+    }
+
+    @Test
+    public void testPublishInvalidation() {
+        ENTITY_CACHE.invalidate(ENTITY_ID);
+
+        Assert.assertEquals(1, EVENT_BUS.published.size());
+        ServiceEvent serviceEvent = EVENT_BUS.published.get(0);
+        Assert.assertEquals("invalidate", serviceEvent.getOperation());
+        Assert.assertEquals("CollisionEntity", serviceEvent.getEntityType());
+        Assert.assertEquals(ENTITY_ID, serviceEvent.getEntityId());
+        Assert.assertEquals(1, EVICTED.size());
+    }
+
+    @Test
+    public void testPublishErrorKeepsLocalInvalidation() {
+        EVENT_BUS.unavailable = true;
+
+        // the publish error is logged, the entity is evicted on this node anyway
+        ENTITY_CACHE.invalidate(ENTITY_ID);
+        Assert.assertTrue(EVENT_BUS.published.isEmpty());
+        Assert.assertEquals(1, EVICTED.size());
+        Assert.assertEquals(ENTITY_ID, EVICTED.get(0));
+    }
+
+    @Test
+    public void testRemoteInvalidation() throws Exception {
+        ENTITY_CACHE.invalidate(ENTITY_ID);
+        ServiceEvent ownEvent = EVENT_BUS.published.get(0);
+        EVICTED.clear();
+
+        // the invalidations published by this node are already applied
+        EVENT_BUS.listener.onKapuaEvent(ownEvent);
+        Assert.assertTrue(EVICTED.isEmpty());
+
+        ServiceEvent remoteEvent = newInvalidation("CollisionEntity", ENTITY_ID);
+        EVENT_BUS.listener.onKapuaEvent(remoteEvent);
+        Assert.assertEquals(1, EVICTED.size());
+        Assert.assertEquals(ENTITY_ID, EVICTED.get(0));
+
+        // the remote invalidations are not published again
+        Assert.assertEquals(1, EVENT_BUS.published.size());
+    }
+
+    @Test
+    public void testRemoteInvalidationOfUnknownCache() throws Exception {
+        EVENT_BUS.listener.onKapuaEvent(newInvalidation("UnknownEntity", ENTITY_ID));
+
+        ServiceEvent otherOperation = newInvalidation("CollisionEntity", ENTITY_ID);
+        otherOperation.setOperation("create");
+        EVENT_BUS.listener.onKapuaEvent(otherOperation);
+
+        Assert.assertTrue(EVICTED.isEmpty());
+    }
+
+    private static ServiceEvent newInvalidation(String entityType, KapuaId entityId) {
+        ServiceEvent serviceEvent = new ServiceEvent();
+        serviceEvent.setOperation("invalidate");
+        serviceEvent.setEntityType(entityType);
+        serviceEvent.setEntityId(entityId);
+        serviceEvent.setNote("other-node");
+        return serviceEvent;
+    }
+
+    private static class TestEventBus implements ServiceEventBus {
+
+        private final List<ServiceEvent> published = new ArrayList<>();
+        private ServiceEventBusListener listener;
+        private int subscriptions;
+        private boolean unavailable;
+
+        @Override
+        public void publish(String address, ServiceEvent event) throws ServiceEventBusException {
+            if (unavailable) {
+                throw new ServiceEventBusException("Event bus unavailable");
+            }
+            published.add(event);
+        }
+
+        @Override
+        public void subscribe(String address, String name, ServiceEventBusListener eventListener) throws ServiceEventBusException {
+            listener = eventListener;
+            subscriptions++;
+        }
+    }
+}
@@ -0,0 +1,217 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Eurotech and/or its affiliates and others
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Eurotech - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.kapua.commons.service.internal.cache;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.persistence.Query;
+
+import org.eclipse.kapua.KapuaException;
+import org.eclipse.kapua.commons.jpa.EntityManager;
+import org.eclipse.kapua.commons.metric.MetricServiceFactory;
+import org.eclipse.kapua.commons.model.AbstractCommonServiceTest;
+import org.eclipse.kapua.commons.model.id.KapuaEid;
+import org.eclipse.kapua.commons.model.misc.CachedCollisionEntityManagerFactory;
+import org.eclipse.kapua.commons.model.misc.CollisionEntity;
+import org.eclipse.kapua.commons.model.misc.CollisionEntityManagerFactory;
+import org.eclipse.kapua.commons.model.misc.CollisionIdGenerator;
+import org.eclipse.kapua.model.id.KapuaId;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/**
+ * {@link EntityCache} tests on H2: shared cache lookups, key cache and local invalidation
+ */
+public class EntityCacheTest extends AbstractCommonServiceTest {
+
+    private static final KapuaId SCOPE_ID = new KapuaEid(BigInteger.valueOf(37));
+    private static final KapuaId OTHER_SCOPE_ID = new KapuaEid(BigInteger.valueOf(38));
+
+    private static final EntityCache ENTITY_CACHE = EntityCacheManager.getCache("CollisionEntity", CollisionEntity.class, CachedCollisionEntityManagerFactory.getInstance());
+
+    @BeforeClass
+    public static void createTables() throws KapuaException {
+        scriptSession(DEFAULT_TEST_PATH, "test_collision_entity_*_create.sql");
+        CollisionEntity.initializeCollisionIdGenerator(new CollisionIdGenerator("0", new BigInteger("37000"), 0));
+    }
+
+    @Test
+    public void testEnabled() {
+        Assert.assertTrue(ENTITY_CACHE.isEnabled());
+        Assert.assertSame(ENTITY_CACHE, EntityCacheManager.getCache(CollisionEntity.class));
+        Assert.assertSame(ENTITY_CACHE, EntityCacheManager.getCache("CollisionEntity", CollisionEntity.class, CachedCollisionEntityManagerFactory.getInstance()));
+    }
+
+    @Test
+    public void testDisabled() throws KapuaException {
+        EntityCache entityCache = EntityCacheManager.getCache("NotCachedEntity", CollisionEntity.class, CachedCollisionEntityManagerFactory.getInstance());
+        Assert.assertFalse(entityCache.isEnabled());
+        Assert.assertSame(ENTITY_CACHE, EntityCacheManager.getCache(CollisionEntity.class));
+
+        // the lookups of a disabled cache always go to the database
+        CollisionEntity entity = persist("cache-disabled");
+        AtomicInteger lookups = new AtomicInteger();
+        for (int i = 0; i < 2; i++) {
+            Assert.assertEquals(entity.getId(), findByKey(entityCache, SCOPE_ID, "cache-disabled", lookups).getId());
+        }
+        Assert.assertEquals(2, lookups.get());
+    }
+
+    @Test
+    public void testFindServedBySharedCache() throws KapuaException {
+        CollisionEntity entity = persist("cache-find");
+        long hits = MetricServiceFactory.getInstance().getCounter("commons", "cache", "CollisionEntity", "hit", "count").getCount();
+
+        Assert.assertEquals("cache-find", find(entity.getId()).getName());
+        Assert.assertEquals("cache-find", find(entity.getId()).getName());
+        Assert.assertTrue(MetricServiceFactory.getInstance().getCounter("commons", "cache", "CollisionEntity", "hit", "count").getCount() > hits);
+
+        // a change not made through the services is not seen until the entity is invalidated
+        updateName(entity.getId(), "cache-find-changed");
+        Assert.assertEquals("cache-find", find(entity.getId()).getName());
+
+        ENTITY_CACHE.invalidate(entity.getId());
+        Assert.assertEquals("cache-find-changed", find(entity.getId()).getName());
+    }
+
+    @Test
+    public void testInvalidateAll() throws KapuaException {
+        CollisionEntity first = persist("cache-all-1");
+        CollisionEntity second = persist("cache-all-2");
+        find(first.getId());
+        find(second.getId());
+
+        updateName(first.getId(), "cache-all-1-changed");
+        updateName(second.getId(), "cache-all-2-changed");
+        ENTITY_CACHE.invalidate(null);
+
+        Assert.assertEquals("cache-all-1-changed", find(first.getId()).getName());
+        Assert.assertEquals("cache-all-2-changed", find(second.getId()).getName());
+    }
+
+    @Test
+    public void testFindByKey() throws KapuaException {
+        CollisionEntity entity = persist("cache-key");
+        AtomicInteger lookups = new AtomicInteger();
+
+        // the key is looked up once, then it's resolved by the key cache
+        Assert.assertEquals(entity.getId(), findByKey(ENTITY_CACHE, SCOPE_ID, "cache-key", lookups).getId());
+        Assert.assertEquals(entity.getId(), findByKey(ENTITY_CACHE, SCOPE_ID, "cache-key", lookups).getId());
+        Assert.assertEquals(1, lookups.get());
+
+        // the key is scoped
+        Assert.assertNull(findByKey(ENTITY_CACHE, OTHER_SCOPE_ID, "cache-key", lookups));
+        Assert.assertEquals(2, lookups.get());
+
+        // the invalidation removes the keys of the entity
+        ENTITY_CACHE.invalidate(entity.getId());
+        Assert.assertEquals(entity.getId(), findByKey(ENTITY_CACHE, SCOPE_ID, "cache-key", lookups).getId());
+        Assert.assertEquals(3, lookups.get());
+    }
+
+    @Test
+    public void testFindByKeyOfDeletedEntity() throws KapuaException {
+        CollisionEntity entity = persist("cache-deleted");
+        AtomicInteger lookups = new AtomicInteger();
+        findByKey(ENTITY_CACHE, SCOPE_ID, "cache-deleted", lookups);
+
+        // the cached key of a deleted entity is dropped when the entity is not found
+        delete(entity.getId());
+        ENTITY_CACHE.invalidate(entity.getId());
+        Assert.assertNull(findByKey(ENTITY_CACHE, SCOPE_ID, "cache-deleted", lookups));
+        Assert.assertEquals(2, lookups.get());
+    }
+
+    @Test
+    public void testEvictionListener() throws KapuaException {
+        EntityCache entityCache = EntityCacheManager.getCache("CollisionEntity", CollisionEntity.class, CachedCollisionEntityManagerFactory.getInstance());
+        List<KapuaId> evicted = new ArrayList<>();
+        entityCache.addEvictionListener(evicted::add);
+
+        CollisionEntity entity = persist("cache-listener");
+        entityCache.invalidate(entity.getId());
+        entityCache.invalidate(null);
+
+        Assert.assertTrue(evicted.contains(entity.getId()));
+        Assert.assertTrue(evicted.contains(null));
+    }
+
+    private static CollisionEntity findByKey(EntityCache entityCache, KapuaId scopeId, String name, AtomicInteger lookups) throws KapuaException {
+        EntityManager em = CachedCollisionEntityManagerFactory.getInstance().createEntityManager();
+        try {
+            return entityCache.findByKey(em, CollisionEntity.class, scopeId, name, () -> {
+                lookups.incrementAndGet();
+                List<CollisionEntity> entities = em.createQuery("SELECT c FROM CollisionEntity c WHERE c.scopeId = :scopeId AND c.name = :name", CollisionEntity.class)
+                        .setParameter("scopeId", KapuaEid.parseKapuaId(scopeId))
+                        .setParameter("name", name)
+                        .getResultList();
+                return entities.isEmpty() ? null : entities.get(0);
+            });
+        } finally {
+            em.close();
+        }
+    }
+
+    private static CollisionEntity persist(String name) throws KapuaException {
+        EntityManager em = CachedCollisionEntityManagerFactory.getInstance().createEntityManager();
+        try {
+            em.beginTransaction();
+            CollisionEntity entity = new CollisionEntity(name);
+            entity.setScopeId(SCOPE_ID);
+            entity.setName(name);
+            em.persist(entity);
+            em.commit();
+            return entity;
+        } finally {
+            em.close();
+        }
+    }
+
+    private static CollisionEntity find(KapuaId id) throws KapuaException {
+        EntityManager em = CachedCollisionEntityManagerFactory.getInstance().createEntityManager();
+        try {
+            return em.find(CollisionEntity.class, id);
+        } finally {
+            em.close();
+        }
+    }
+
+    private static void updateName(KapuaId id, String name) throws KapuaException {
+        executeUpdate("UPDATE collision_entity_test SET name = ? WHERE id = ?", name, id.getId());
+    }
+
+    private static void delete(KapuaId id) throws KapuaException {
+        executeUpdate("DELETE FROM collision_entity_test WHERE id = ?", id.getId());
+    }
+
+    /**
+     * Change the table through another persistence unit, as another node would do
+     */
+    private static void executeUpdate(String sql, Object... parameters) throws KapuaException {
+        EntityManager em = CollisionEntityManagerFactory.getInstance().createEntityManager();
+        try {
+            em.beginTransaction();
+            Query query = em.createNativeQuery(sql);
+            for (int i = 0; i < parameters.length; i++) {
+                query.setParameter(i + 1, parameters[i]);
+            }
+            query.executeUpdate();
+            em.commit();
+        } finally {
+            em.close();
+        }
+    }
+}
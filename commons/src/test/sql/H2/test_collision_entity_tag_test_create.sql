@@ -9,11 +9,14 @@
  * Contributors:
  *     Eurotech - initial API and implementation
  *******************************************************************************/
-package org.eclipse.kapua.job.engine.jbatch.driver.exception;
 
-public class CannotWriteJobDefFileDriverException extends JbatchDriverException {
+CREATE TABLE IF NOT EXISTS collision_entity_tag_test (
+  entity_id                 BIGINT(21)    UNSIGNED NOT NULL,
+  tag_id                    BIGINT(21)    UNSIGNED NOT NULL,
 
-    public CannotWriteJobDefFileDriverException(Throwable t, String jobName, String path) {
-        super(JbatchDriverErrorCodes.CANNOT_WRITE_XML_JOB_DEFINITION_FILE, t, jobName, path);
-    }
-}
+  PRIMARY KEY (entity_id, tag_id),
+
+  CHECK entity_id >= 0,
+  CHECK tag_id >= 0
+
+) ENGINE = InnoDB DEFAULT CHARSET = utf8;
@@ -10,7 +10,7 @@
  *     Eurotech - initial API and implementation
  *******************************************************************************/
 
-CREATE TABLE collision_entity_test (
+CREATE TABLE IF NOT EXISTS collision_entity_test (
   scope_id             		BIGINT(21) 	  UNSIGNED NOT NULL,
   id                     	BIGINT(21) 	  UNSIGNED NOT NULL,
   name               	    VARCHAR(255)  NOT NULL,
@@ -32,4 +32,4 @@ CREATE TABLE collision_entity_test (
 
 ) ENGINE = InnoDB DEFAULT CHARSET = utf8;
 
-CREATE INDEX idx_collision_entity_test_scope_id ON collision_entity_test (scope_id);
+CREATE INDEX IF NOT EXISTS idx_collision_entity_test_scope_id ON collision_entity_test (scope_id);
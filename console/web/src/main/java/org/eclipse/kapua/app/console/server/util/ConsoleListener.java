@@ -15,6 +15,7 @@ import com.google.common.base.MoreObjects;
 import org.eclipse.kapua.KapuaException;
 import org.eclipse.kapua.app.console.ConsoleJAXBContextProvider;
 import org.eclipse.kapua.commons.core.ServiceModuleBundle;
+import org.eclipse.kapua.commons.jpa.DataSourceProviders;
 import org.eclipse.kapua.commons.jpa.JdbcConnectionUrlResolvers;
 import org.eclipse.kapua.commons.setting.system.SystemSetting;
 import org.eclipse.kapua.commons.setting.system.SystemSettingKey;
@@ -99,6 +100,9 @@ public class ConsoleListener implements ServletContextListener {
         LOG.info("Stopping job scheduler...");
         SchedulerServiceInit.close();
         LOG.info("Stopping job scheduler... DONE");
+
+        // close the database connection pool
+        DataSourceProviders.close();
     }
 
 }
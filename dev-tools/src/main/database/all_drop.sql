@@ -16,6 +16,8 @@ DROP TABLE IF EXISTS SYS_EVENT_STORE;
 
 DROP TABLE IF EXISTS SYS_HOUSEKEEPER_RUN;
 
+DROP TABLE IF EXISTS act_account_closure;
+
 DROP TABLE IF EXISTS act_account;
 
 DROP TABLE IF EXISTS atht_credential;
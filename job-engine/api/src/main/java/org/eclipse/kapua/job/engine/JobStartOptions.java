@@ -46,4 +46,21 @@ public interface JobStartOptions extends KapuaSerializable {
     Integer getFromStepIndex();
 
     void setFromStepIndex(Integer fromStepIndex);
+
+    /**
+     * Gets the number of targets processed concurrently by each target step.
+     * When {@code null} the job engine default is used.
+     *
+     * @return The number of targets processed concurrently.
+     * @since 1.0.0
+     */
+    Integer getTargetParallelism();
+
+    /**
+     * Sets the number of targets processed concurrently by each target step.
+     *
+     * @param targetParallelism The number of targets processed concurrently.
+     * @since 1.0.0
+     */
+    void setTargetParallelism(Integer targetParallelism);
 }
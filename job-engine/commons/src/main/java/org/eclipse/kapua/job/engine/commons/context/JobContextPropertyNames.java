@@ -20,4 +20,24 @@ public interface JobContextPropertyNames {
     String JOB_TARGET_SUBLIST = "job.target.sublist";
 
     String JOB_STEP_FROM_INDEX = "job.step.fromIndex";
+
+    String JOB_TARGET_PARALLELISM = "job.target.parallelism";
+
+    String JOB_TARGET_RATE_MAX = "job.target.rateMax";
+
+    String JOB_TARGET_PAGE_SIZE = "job.target.pageSize";
+
+    String JOB_TARGET_OPERATION_LEDGER = "job.target.operationLedger";
+
+    String JOB_TARGET_OPERATION_LEDGER_RESUMED_EXECUTION_ID = "job.target.operationLedger.resumedExecutionId";
+
+    String JOB_PARTITION_INDEX = "job.partition.index";
+
+    String JOB_PARTITION_EXECUTION_ID = "job.partition.executionId";
+
+    String JOB_PARTITION_FIRST_TARGET_ID = "job.partition.firstTargetId";
+
+    String JOB_PARTITION_LAST_TARGET_ID = "job.partition.lastTargetId";
+
+    String JOB_PARTITION_LEASE_COUNT = "job.partition.leaseCount";
 }
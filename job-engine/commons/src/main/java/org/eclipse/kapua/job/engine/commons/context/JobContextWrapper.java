@@ -29,6 +29,8 @@ public class JobContextWrapper {
 
     private static final String KAPUA_EXECUTION_ID = "KAPUA_EXECUTION_ID";
 
+    private static final int DEFAULT_TARGET_PAGE_SIZE = 500;
+
     private JobContext jobContext;
 
     public JobContextWrapper(JobContext jobContext) {
@@ -65,6 +67,79 @@ public class JobContextWrapper {
         return Strings.isNullOrEmpty(fromStepIndexString) ? null : Integer.valueOf(fromStepIndexString);
     }
 
+    public int getTargetParallelism() {
+        Properties jobContextProperties = jobContext.getProperties();
+        String targetParallelismString = jobContextProperties.getProperty(JobContextPropertyNames.JOB_TARGET_PARALLELISM);
+
+        return Strings.isNullOrEmpty(targetParallelismString) ? 1 : Integer.parseInt(targetParallelismString);
+    }
+
+    public double getTargetRateMax() {
+        Properties jobContextProperties = jobContext.getProperties();
+        String targetRateMaxString = jobContextProperties.getProperty(JobContextPropertyNames.JOB_TARGET_RATE_MAX);
+
+        return Strings.isNullOrEmpty(targetRateMaxString) ? 0 : Double.parseDouble(targetRateMaxString);
+    }
+
+    public int getTargetPageSize() {
+        Properties jobContextProperties = jobContext.getProperties();
+        String targetPageSizeString = jobContextProperties.getProperty(JobContextPropertyNames.JOB_TARGET_PAGE_SIZE);
+
+        return Strings.isNullOrEmpty(targetPageSizeString) ? DEFAULT_TARGET_PAGE_SIZE : Integer.parseInt(targetPageSizeString);
+    }
+
+    public boolean isTargetOperationLedgerEnabled() {
+        Properties jobContextProperties = jobContext.getProperties();
+        String targetOperationLedgerString = jobContextProperties.getProperty(JobContextPropertyNames.JOB_TARGET_OPERATION_LEDGER);
+
+        return !Strings.isNullOrEmpty(targetOperationLedgerString) && Boolean.parseBoolean(targetOperationLedgerString);
+    }
+
+    /**
+     * Gets the id of the previous Kapua job execution resumed by this job execution, whose operations recorded in the operation ledger are not sent again.
+     *
+     * @return The resumed Kapua job execution id, or {@code null} if this job execution sends the requests to all its targets.
+     */
+    public KapuaId getOperationLedgerResumedExecutionId() {
+        return getKapuaIdProperty(JobContextPropertyNames.JOB_TARGET_OPERATION_LEDGER_RESUMED_EXECUTION_ID);
+    }
+
+    /**
+     * Gets the index of the target partition processed by this job execution.
+     *
+     * @return The partition index, or {@code null} if this job execution processes all the targets of the job.
+     */
+    public Integer getPartitionIndex() {
+        Properties jobContextProperties = jobContext.getProperties();
+        String partitionIndexString = jobContextProperties.getProperty(JobContextPropertyNames.JOB_PARTITION_INDEX);
+
+        return Strings.isNullOrEmpty(partitionIndexString) ? null : Integer.valueOf(partitionIndexString);
+    }
+
+    /**
+     * Gets the id of the Kapua job execution shared by all the target partitions.
+     *
+     * @return The Kapua job execution id, or {@code null} if this job execution processes all the targets of the job.
+     */
+    public KapuaId getPartitionExecutionId() {
+        return getKapuaIdProperty(JobContextPropertyNames.JOB_PARTITION_EXECUTION_ID);
+    }
+
+    public KapuaId getPartitionFirstTargetId() {
+        return getKapuaIdProperty(JobContextPropertyNames.JOB_PARTITION_FIRST_TARGET_ID);
+    }
+
+    public KapuaId getPartitionLastTargetId() {
+        return getKapuaIdProperty(JobContextPropertyNames.JOB_PARTITION_LAST_TARGET_ID);
+    }
+
+    public int getPartitionLeaseCount() {
+        Properties jobContextProperties = jobContext.getProperties();
+        String partitionLeaseCountString = jobContextProperties.getProperty(JobContextPropertyNames.JOB_PARTITION_LEASE_COUNT);
+
+        return Strings.isNullOrEmpty(partitionLeaseCountString) ? 0 : Integer.parseInt(partitionLeaseCountString);
+    }
+
     public String getJobName() {
         return jobContext.getJobName();
     }
@@ -108,4 +183,11 @@ public class JobContextWrapper {
     public void setKapuaExecutionId(KapuaId kapuaExecutionId) {
         getProperties().put(KAPUA_EXECUTION_ID, kapuaExecutionId);
     }
+
+    private KapuaId getKapuaIdProperty(String propertyName) {
+        Properties jobContextProperties = jobContext.getProperties();
+        String kapuaIdString = jobContextProperties.getProperty(propertyName);
+
+        return Strings.isNullOrEmpty(kapuaIdString) ? null : KapuaEid.parseCompactId(kapuaIdString);
+    }
 }
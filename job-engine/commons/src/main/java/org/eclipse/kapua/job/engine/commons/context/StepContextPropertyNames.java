@@ -17,4 +17,9 @@ public interface StepContextPropertyNames {
 
     String STEP_NEXT_INDEX = "step.nextStepIndex";
 
+    /**
+     * The types of the step properties declared by the step definition, as a comma separated list of {@code name=type} pairs.
+     */
+    String STEP_PROPERTY_TYPES = "step.propertyTypes";
+
 }
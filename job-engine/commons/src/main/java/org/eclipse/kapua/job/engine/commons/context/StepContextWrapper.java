@@ -12,11 +12,16 @@
 package org.eclipse.kapua.job.engine.commons.context;
 
 import com.google.common.base.Strings;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
 import org.eclipse.kapua.KapuaIllegalArgumentException;
 import org.eclipse.kapua.KapuaRuntimeException;
 import org.eclipse.kapua.commons.model.id.KapuaEid;
 import org.eclipse.kapua.commons.util.xml.XmlUtil;
 import org.eclipse.kapua.model.id.KapuaId;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.xml.sax.SAXException;
 
 import javax.batch.runtime.BatchStatus;
@@ -27,16 +32,86 @@ import javax.xml.bind.JAXBException;
 import javax.xml.stream.FactoryConfigurationError;
 import javax.xml.stream.XMLStreamException;
 import java.io.Serializable;
+import java.util.Map;
 import java.util.Properties;
-
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * {@link StepContext} wrapper which gives typed access to the properties of the step.
+ * <p>
+ * The step properties are parsed once for each step: {@link #loadStepProperties()} parses the declared step properties when the step starts,
+ * and {@link #getStepProperty(String, Class)} parses the other ones on their first read. The parsed values are shared by all the threads which
+ * process the targets of the step, so they must be treated as immutable: the callers must not modify them (byte arrays are copied on each read since
+ * they cannot be shared safely), and must copy them before changing them.
+ *
+ * @since 1.0.0
+ */
 public class StepContextWrapper {
 
+    private static final Logger LOG = LoggerFactory.getLogger(StepContextWrapper.class);
+
+    /**
+     * Parsed step properties of each running step, released with the {@link StepContext} of the step
+     */
+    private static final LoadingCache<StepContext, Map<String, Object>> STEP_PROPERTIES_CACHE = CacheBuilder.newBuilder()
+            .weakKeys()
+            .build(new CacheLoader<StepContext, Map<String, Object>>() {
+
+                @Override
+                public Map<String, Object> load(StepContext stepContext) {
+                    return new ConcurrentHashMap<>();
+                }
+            });
+
+    private static final Object NULL_STEP_PROPERTY = new Object();
+
     private StepContext stepContext;
 
     public StepContextWrapper(StepContext stepContext) {
         this.stepContext = stepContext;
     }
 
+    /**
+     * Parses the step properties declared by the step definition (see {@link StepContextPropertyNames#STEP_PROPERTY_TYPES}) and caches them,
+     * so that the targets of the step don't pay for the parsing.
+     * <p>
+     * A step property which cannot be parsed is not cached: the error is reported again by {@link #getStepProperty(String, Class)} to each target which reads it.
+     *
+     * @since 1.0.0
+     */
+    public void loadStepProperties() {
+        String stepPropertyTypes = stepContext.getProperties().getProperty(StepContextPropertyNames.STEP_PROPERTY_TYPES);
+        if (Strings.isNullOrEmpty(stepPropertyTypes)) {
+            return;
+        }
+
+        for (String stepPropertyType : stepPropertyTypes.split(",")) {
+            int separatorIndex = stepPropertyType.indexOf('=');
+            if (separatorIndex <= 0) {
+                continue;
+            }
+
+            String stepPropertyName = stepPropertyType.substring(0, separatorIndex);
+            String typeName = stepPropertyType.substring(separatorIndex + 1);
+            try {
+                getStepProperty(stepPropertyName, Class.forName(typeName));
+            } catch (ClassNotFoundException | KapuaIllegalArgumentException | IllegalArgumentException e) {
+                LOG.warn("Cannot parse the step property {} of step {} as {}", stepPropertyName, stepContext.getStepName(), typeName, e);
+            }
+        }
+    }
+
+    /**
+     * Releases the parsed step properties of the step.
+     * <p>
+     * They would be released anyway with the {@link StepContext} of the step, but not before the next garbage collection.
+     *
+     * @since 1.0.0
+     */
+    public void releaseStepProperties() {
+        STEP_PROPERTIES_CACHE.invalidate(stepContext);
+    }
+
     public int getStepIndex() {
         Properties stepContextProperties = stepContext.getProperties();
         String stepIndexString = stepContextProperties.getProperty(StepContextPropertyNames.STEP_INDEX);
@@ -54,7 +129,38 @@ public class StepContextWrapper {
         return stepNextIndexString != null ? Integer.parseInt(stepNextIndexString) : null;
     }
 
+    /**
+     * Gets the step property converted to the given type.
+     * <p>
+     * The step properties don't change during the step, so each property is parsed once for each type and the parsed value is shared by all the invocations
+     * (and by all the threads) of the step: the returned value must not be modified. A property that cannot be parsed is not cached.
+     *
+     * @param stepPropertyName The name of the step property.
+     * @param type             The type of the step property.
+     * @param <T>              The type of the step property.
+     * @return The step property converted to the given type, or {@code null} if the property is not set.
+     * @throws KapuaIllegalArgumentException if the step property cannot be converted to the given type.
+     * @since 1.0.0
+     */
     public <T> T getStepProperty(String stepPropertyName, Class<T> type) throws KapuaIllegalArgumentException {
+        Map<String, Object> stepProperties = STEP_PROPERTIES_CACHE.getUnchecked(stepContext);
+        String stepPropertyKey = stepPropertyName + '/' + type.getName();
+
+        Object stepProperty = stepProperties.get(stepPropertyKey);
+        if (stepProperty == null) {
+            // parsing the same property concurrently is harmless: the result is the same
+            stepProperty = parseStepProperty(stepPropertyName, type);
+            stepProperties.put(stepPropertyKey, stepProperty != null ? stepProperty : NULL_STEP_PROPERTY);
+        }
+
+        if (stepProperty == NULL_STEP_PROPERTY) {
+            return null;
+        }
+
+        return stepProperty instanceof byte[] ? (T) ((byte[]) stepProperty).clone() : (T) stepProperty;
+    }
+
+    private <T> T parseStepProperty(String stepPropertyName, Class<T> type) throws KapuaIllegalArgumentException {
         Properties jobContextProperties = stepContext.getProperties();
         String stepPropertyString = jobContextProperties.getProperty(stepPropertyName);
 
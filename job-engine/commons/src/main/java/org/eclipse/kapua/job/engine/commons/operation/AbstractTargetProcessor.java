@@ -11,30 +11,128 @@
  *******************************************************************************/
 package org.eclipse.kapua.job.engine.commons.operation;
 
+import com.codahale.metrics.Timer;
+import com.google.common.hash.Hashing;
+import com.google.common.util.concurrent.RateLimiter;
 import org.eclipse.kapua.KapuaException;
 import org.eclipse.kapua.job.engine.commons.context.JobContextWrapper;
 import org.eclipse.kapua.job.engine.commons.context.StepContextWrapper;
+import org.eclipse.kapua.locator.KapuaLocator;
+import org.eclipse.kapua.model.id.KapuaId;
 import org.eclipse.kapua.service.job.operation.TargetOperation;
 import org.eclipse.kapua.service.job.targets.JobTarget;
+import org.eclipse.kapua.service.job.targets.JobTargetFactory;
+import org.eclipse.kapua.service.job.targets.JobTargetService;
 import org.eclipse.kapua.service.job.targets.JobTargetStatus;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import javax.batch.runtime.context.JobContext;
 import javax.batch.runtime.context.StepContext;
+import javax.inject.Inject;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
 
+/**
+ * Base {@link TargetOperation} processor.
+ * <p>
+ * When the {@link JobContextWrapper#getTargetParallelism()} is greater than 1 the targets are processed asynchronously: {@link #processItem(Object)} returns
+ * a {@link Future} of the processed {@link JobTarget} and the writer waits for it with {@link #getProcessedJobTarget(Object)}, so the results are written in the
+ * reading order. The chunk size of the step is the parallelism, which bounds the targets in flight.
+ * <p>
+ * Regardless of the parallelism, the targets processed per second by this job engine are limited by {@link JobContextWrapper#getTargetRateMax()}.
+ * <p>
+ * Processors whose request has no further effect when it is sent again return it from {@link #getIdempotentRequest()}. When
+ * {@link JobContextWrapper#isTargetOperationLedgerEnabled()}, the targets that process the request successfully are recorded in a {@link TargetOperationLedger},
+ * so a target partition taken over from a failed node does not send the request again to the targets already processed by the same job execution, and neither
+ * does a job execution that resumes a failed or stopped one (see {@link JobContextWrapper#getOperationLedgerResumedExecutionId()}).
+ *
+ * @since 1.0.0
+ */
 public abstract class AbstractTargetProcessor implements TargetOperation {
 
     private static final Logger LOG = LoggerFactory.getLogger(AbstractTargetProcessor.class);
 
+    private static final AtomicInteger THREAD_COUNT = new AtomicInteger();
+    private static final ExecutorService TARGET_EXECUTOR = Executors.newCachedThreadPool(runnable -> {
+        Thread thread = new Thread(runnable, "job-target-processor-" + THREAD_COUNT.incrementAndGet());
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private static RateLimiter rateLimiter;
+
+    @Inject
+    private JobContext processorJobContext;
+
+    @Inject
+    private StepContext processorStepContext;
+
     protected JobContextWrapper jobContextWrapper;
     protected StepContextWrapper stepContextWrapper;
 
+    private boolean operationLedgerResolved;
+    private TargetOperationLedger operationLedger;
+
     @Override
     public final Object processItem(Object item) throws Exception {
         JobTarget jobTarget = (JobTarget) item;
+
+        int targetParallelism = 1;
+        if (processorJobContext != null) {
+            JobContextWrapper processorJobContextWrapper = new JobContextWrapper(processorJobContext);
+            targetParallelism = processorJobContextWrapper.getTargetParallelism();
+
+            if (!operationLedgerResolved) {
+                operationLedger = newOperationLedger(processorJobContextWrapper);
+                operationLedgerResolved = true;
+            }
+
+            RateLimiter targetRateLimiter = getRateLimiter(processorJobContextWrapper.getTargetRateMax());
+            if (targetRateLimiter != null) {
+                targetRateLimiter.acquire();
+            }
+        }
+
+        TargetOperationLedger targetOperationLedger = operationLedger;
+        if (targetParallelism > 1) {
+            return CompletableFuture.supplyAsync(() -> process(jobTarget, targetOperationLedger), TARGET_EXECUTOR);
+        }
+
+        return process(jobTarget, targetOperationLedger);
+    }
+
+    private JobTarget process(JobTarget jobTarget, TargetOperationLedger targetOperationLedger) {
+        Timer.Context processTimeContext = TargetProcessorMetric.getInstance().getProcessTime(getClass()).time();
+        try {
+            return processTimed(jobTarget, targetOperationLedger);
+        } finally {
+            processTimeContext.stop();
+        }
+    }
+
+    /**
+     * Processes the {@link JobTarget}.
+     *
+     * @param jobTarget             The {@link JobTarget} to process.
+     * @param targetOperationLedger The {@link TargetOperationLedger} of the step, or {@code null} if the operations are not recorded.
+     * @return The processed {@link JobTarget}.
+     */
+    private JobTarget processTimed(JobTarget jobTarget, TargetOperationLedger targetOperationLedger) {
         LOG.info("Processing item: {}", jobTarget.getId());
 
+        if (targetOperationLedger != null && targetOperationLedger.isProcessed(jobTarget)) {
+            jobTarget.setStatus(JobTargetStatus.PROCESS_OK);
+
+            LOG.info("Processing item: {} - Skipped! The request has already been processed by this job execution or by the resumed one", jobTarget.getId());
+            return jobTarget;
+        }
+
         try {
             processTarget(jobTarget);
 
@@ -47,13 +145,101 @@ public abstract class AbstractTargetProcessor implements TargetOperation {
             jobTarget.setException(e);
         }
 
+        if (targetOperationLedger != null) {
+            targetOperationLedger.record(jobTarget);
+        }
+
         return jobTarget;
     }
 
     public abstract void processTarget(JobTarget jobTarget) throws KapuaException;
 
+    /**
+     * Gets the request sent to the {@link JobTarget}s by {@link #processTarget(JobTarget)}, if it is the same for all the targets of the step and sending it again
+     * to a target that has already processed it successfully has no further effect.
+     * <p>
+     * It is invoked once per step. By default the request is not idempotent and the targets are always processed.
+     *
+     * @return The textual representation of the request, or {@code null} if the request is not idempotent.
+     * @throws KapuaException
+     * @since 1.0.0
+     */
+    protected String getIdempotentRequest() throws KapuaException {
+        return null;
+    }
+
+    /**
+     * Creates the {@link TargetOperationLedger} of the step, computing the fingerprint of its request once.
+     *
+     * @param processorJobContextWrapper The {@link JobContextWrapper} of the step.
+     * @return The {@link TargetOperationLedger}, or {@code null} if it is disabled or the request is not idempotent.
+     */
+    private TargetOperationLedger newOperationLedger(JobContextWrapper processorJobContextWrapper) {
+        KapuaId jobExecutionId = processorJobContextWrapper.getKapuaExecutionId();
+        if (processorStepContext == null || jobExecutionId == null || !processorJobContextWrapper.isTargetOperationLedgerEnabled()) {
+            return null;
+        }
+
+        String idempotentRequest;
+        try {
+            idempotentRequest = getIdempotentRequest();
+        } catch (Exception e) {
+            LOG.warn("Cannot get the idempotent request of the step, the operations will not be recorded", e);
+            return null;
+        }
+        if (idempotentRequest == null) {
+            return null;
+        }
+
+        String requestFingerprint = Hashing.sha256().hashString(getClass().getName() + "\n" + idempotentRequest, StandardCharsets.UTF_8).toString();
+
+        KapuaLocator locator = KapuaLocator.getInstance();
+        return new TargetOperationLedger(
+                locator.getService(JobTargetService.class),
+                locator.getFactory(JobTargetFactory.class),
+                jobExecutionId,
+                processorJobContextWrapper.getOperationLedgerResumedExecutionId(),
+                new StepContextWrapper(processorStepContext).getStepIndex(),
+                requestFingerprint,
+                processorJobContextWrapper.getPartitionLeaseCount() > 1);
+    }
+
     public void setContext(JobContext jobContext, StepContext stepContext) {
         jobContextWrapper = new JobContextWrapper(jobContext);
         stepContextWrapper = new StepContextWrapper(stepContext);
     }
+
+    /**
+     * Gets the processed {@link JobTarget} from an item returned by {@link #processItem(Object)}, waiting for its processing to complete if it is processed asynchronously.
+     *
+     * @param item The item returned by {@link #processItem(Object)}.
+     * @return The processed {@link JobTarget}.
+     * @throws InterruptedException if interrupted while waiting for the processing.
+     * @throws ExecutionException   if the processing failed unexpectedly.
+     * @since 1.0.0
+     */
+    public static JobTarget getProcessedJobTarget(Object item) throws InterruptedException, ExecutionException {
+        if (item instanceof Future) {
+            return (JobTarget) ((Future<?>) item).get();
+        }
+        return (JobTarget) item;
+    }
+
+    /**
+     * Gets the rate limiter shared by all the jobs of this job engine, since they share the connection to the broker.
+     *
+     * @param targetRateMax The maximum number of targets processed per second. 0 or less means no limit.
+     * @return The {@link RateLimiter} or {@code null} if there is no limit.
+     */
+    private static synchronized RateLimiter getRateLimiter(double targetRateMax) {
+        if (targetRateMax <= 0) {
+            return null;
+        }
+        if (rateLimiter == null) {
+            rateLimiter = RateLimiter.create(targetRateMax);
+        } else if (rateLimiter.getRate() != targetRateMax) {
+            rateLimiter.setRate(targetRateMax);
+        }
+        return rateLimiter;
+    }
 }
@@ -11,12 +11,18 @@
  *******************************************************************************/
 package org.eclipse.kapua.job.engine.commons.operation;
 
+import org.eclipse.kapua.KapuaException;
+import org.eclipse.kapua.commons.model.id.KapuaEid;
+import org.eclipse.kapua.commons.model.query.FieldSortCriteria;
 import org.eclipse.kapua.commons.model.query.predicate.AndPredicateImpl;
 import org.eclipse.kapua.commons.model.query.predicate.AttributePredicateImpl;
 import org.eclipse.kapua.commons.security.KapuaSecurityUtils;
 import org.eclipse.kapua.job.engine.commons.context.JobContextWrapper;
 import org.eclipse.kapua.job.engine.commons.context.StepContextWrapper;
+import org.eclipse.kapua.job.engine.commons.model.JobTargetSublist;
 import org.eclipse.kapua.locator.KapuaLocator;
+import org.eclipse.kapua.model.KapuaEntityPredicates;
+import org.eclipse.kapua.model.id.KapuaId;
 import org.eclipse.kapua.model.query.predicate.AttributePredicate;
 import org.eclipse.kapua.service.job.operation.TargetReader;
 import org.eclipse.kapua.service.job.step.JobStepIndex;
@@ -35,13 +41,37 @@ import javax.batch.runtime.context.JobContext;
 import javax.batch.runtime.context.StepContext;
 import javax.inject.Inject;
 import java.io.Serializable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
+/**
+ * Default {@link TargetReader}.
+ * <p>
+ * It reads the {@link JobTarget}s of the step in pages of {@link JobContextWrapper#getTargetPageSize()} targets ordered by id, using keyset pagination:
+ * each page starts after the id of the last target of the previous page, so the cost of a page doesn't depend on its position and the targets
+ * that leave the step filter while the step runs (i.e. the processed ones) don't shift the following pages.
+ * The next page is fetched asynchronously while the current one is being processed.
+ * <p>
+ * The checkpoint is the id of the last read {@link JobTarget}, so a restarted step resumes after the last committed chunk.
+ *
+ * @since 1.0.0
+ */
 public class DefaultTargetReader extends AbstractItemReader implements TargetReader {
 
     private static final Logger LOG = LoggerFactory.getLogger(DefaultTargetReader.class);
 
     private static final KapuaLocator LOCATOR = KapuaLocator.getInstance();
 
+    private static final ExecutorService PREFETCH_EXECUTOR = Executors.newCachedThreadPool(runnable -> {
+        Thread thread = new Thread(runnable, "job-target-reader-prefetch");
+        thread.setDaemon(true);
+        return thread;
+    });
+
     private final JobTargetFactory jobTargetFactory = LOCATOR.getFactory(JobTargetFactory.class);
     private final JobTargetService jobTargetService = LOCATOR.getService(JobTargetService.class);
 
@@ -54,8 +84,13 @@ public class DefaultTargetReader extends AbstractItemReader implements TargetRea
     protected JobTargetListResult jobTargets;
     protected int jobTargetIndex;
 
+    private JobTargetQuery query;
+    private int pageSize;
+    private KapuaId lastReadJobTargetId;
+    private Future<JobTargetListResult> nextJobTargets;
+
     @Override
-    public void open(Serializable arg0) throws Exception {
+    public void open(Serializable checkpoint) throws Exception {
         JobContextWrapper jobContextWrapper = new JobContextWrapper(jobContext);
         StepContextWrapper stepContextWrapper = new StepContextWrapper(stepContext);
         LOG.info("JOB {} - Opening cursor...", jobContextWrapper.getJobId());
@@ -75,29 +110,103 @@ public class DefaultTargetReader extends AbstractItemReader implements TargetRea
         targetSublistFiltering(jobContextWrapper, andPredicate);
 
         //
-        // Query the targets
-        JobTargetQuery query = jobTargetFactory.newQuery(jobContextWrapper.getScopeId());
+        // Filter target partition
+        targetPartitionFiltering(jobContextWrapper, andPredicate);
+
+        //
+        // Build the paged query
+        pageSize = jobContextWrapper.getTargetPageSize();
+
+        query = jobTargetFactory.newQuery(jobContextWrapper.getScopeId());
         query.setPredicate(andPredicate);
+        query.setSortCriteria(new FieldSortCriteria(KapuaEntityPredicates.ENTITY_ID, FieldSortCriteria.SortOrder.ASCENDING));
+        query.setLimit(pageSize);
+
+        //
+        // Resume from the checkpoint
+        lastReadJobTargetId = checkpoint != null ? KapuaEid.parseCompactId((String) checkpoint) : null;
 
-        jobTargets = KapuaSecurityUtils.doPrivileged(() -> jobTargetService.query(query));
+        jobTargets = queryPage(lastReadJobTargetId);
+        jobTargetIndex = 0;
+        prefetchNextPage();
 
-        LOG.info("JOB {} - Opening cursor... Done!", jobContextWrapper.getJobId());
+        LOG.info("JOB {} - Opening cursor... Done! Resumed after target: {}", jobContextWrapper.getJobId(), lastReadJobTargetId);
     }
 
     @Override
     public Object readItem() throws Exception {
-        JobContextWrapper jobContextWrapper = new JobContextWrapper(jobContext);
-        LOG.info("JOB {} - Reading item...", jobContextWrapper.getJobId());
+        if (jobTargetIndex >= jobTargets.getSize()) {
+            if (nextJobTargets == null) {
+                return null;
+            }
 
-        JobTarget currentJobTarget = null;
-        if (jobTargetIndex < jobTargets.getSize()) {
-            currentJobTarget = jobTargets.getItem(jobTargetIndex++);
+            jobTargets = awaitNextPage();
+            jobTargetIndex = 0;
+            prefetchNextPage();
+
+            if (jobTargets.isEmpty()) {
+                return null;
+            }
         }
 
-        LOG.info("JOB {} - Reading item... Done!", jobContextWrapper.getJobId());
+        JobTarget currentJobTarget = jobTargets.getItem(jobTargetIndex++);
+        lastReadJobTargetId = currentJobTarget.getId();
+
+        LOG.debug("Read item: {}", lastReadJobTargetId);
         return currentJobTarget;
     }
 
+    @Override
+    public Serializable checkpointInfo() throws Exception {
+        return lastReadJobTargetId != null ? lastReadJobTargetId.toCompactId() : null;
+    }
+
+    @Override
+    public void close() throws Exception {
+        if (nextJobTargets != null) {
+            nextJobTargets.cancel(true);
+            nextJobTargets = null;
+        }
+    }
+
+    /**
+     * Fetches asynchronously the page that follows the current one, if the current one is full.
+     */
+    private void prefetchNextPage() {
+        if (jobTargets.getSize() < pageSize) {
+            nextJobTargets = null;
+            return;
+        }
+
+        KapuaId seekAfterId = jobTargets.getItem(jobTargets.getSize() - 1).getId();
+        nextJobTargets = CompletableFuture.supplyAsync(() -> {
+            try {
+                return queryPage(seekAfterId);
+            } catch (KapuaException e) {
+                throw new CompletionException(e);
+            }
+        }, PREFETCH_EXECUTOR);
+    }
+
+    private JobTargetListResult awaitNextPage() throws Exception {
+        try {
+            return nextJobTargets.get();
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause() instanceof CompletionException ? e.getCause().getCause() : e.getCause();
+            throw cause instanceof Exception ? (Exception) cause : e;
+        }
+    }
+
+    private JobTargetListResult queryPage(KapuaId seekAfterId) throws KapuaException {
+        JobTargetQuery pageQuery = jobTargetFactory.newQuery(query.getScopeId());
+        pageQuery.setPredicate(query.getPredicate());
+        pageQuery.setSortCriteria(query.getSortCriteria());
+        pageQuery.setLimit(query.getLimit());
+        pageQuery.setSeekAfter(null, seekAfterId);
+
+        return KapuaSecurityUtils.doPrivileged(() -> jobTargetService.query(pageQuery));
+    }
+
     /**
      * This method apply {@link AttributePredicate}s according to the parameters contained into the {@link JobContextWrapper} and {@link StepContextWrapper}.
      * <p>
@@ -122,12 +231,48 @@ public class DefaultTargetReader extends AbstractItemReader implements TargetRea
         Integer fromStepIndex = jobContextWrapper.getFromStepIndex();
         if (fromStepIndex == null || fromStepIndex < stepContextWrapper.getStepIndex()) {
             andPredicate.and(new AttributePredicateImpl<>(JobTargetPredicates.STEP_INDEX, stepContextWrapper.getStepIndex()));
-            andPredicate.and(new AttributePredicateImpl<>(JobTargetPredicates.STATUS, JobTargetStatus.PROCESS_OK, AttributePredicate.Operator.NOT_EQUAL));
+            notCompletedFiltering(andPredicate);
         } else if (fromStepIndex > stepContextWrapper.getStepIndex()) {
             andPredicate.and(new AttributePredicateImpl<>(JobTargetPredicates.STEP_INDEX, JobStepIndex.NONE));
         }
     }
 
+    /**
+     * Builds the {@link org.eclipse.kapua.model.query.predicate.AndPredicate} of the {@link JobTarget}s processed by a job execution, which are the ones
+     * read by at least one of its steps according to {@link #stepIndexFiltering(JobContextWrapper, StepContextWrapper, AndPredicateImpl)}:
+     * <ul>
+     * <li>without a {@link JobContextWrapper#getFromStepIndex()}, each step reads the {@link JobTarget}s of its step index that are not completed yet,
+     * so the job execution processes all the {@link JobTarget}s that are not completed</li>
+     * <li>with a {@link JobContextWrapper#getFromStepIndex()}, the step with that index reads all the {@link JobTarget}s</li>
+     * </ul>
+     * Only the {@link JobTarget}s of the {@link JobContextWrapper#getTargetSublist()} are selected, if any.
+     *
+     * @param jobId         The {@link org.eclipse.kapua.service.job.Job} {@link KapuaId}.
+     * @param fromStepIndex The step index from which the job execution starts, if any.
+     * @param targetSublist The {@link JobTargetSublist} of the job execution.
+     * @return The {@link AndPredicateImpl} of the {@link JobTarget}s processed by the job execution.
+     * @since 1.0.0
+     */
+    public static AndPredicateImpl buildJobExecutionTargetPredicate(KapuaId jobId, Integer fromStepIndex, JobTargetSublist targetSublist) {
+        AndPredicateImpl andPredicate = new AndPredicateImpl(
+                new AttributePredicateImpl<>(JobTargetPredicates.JOB_ID, jobId)
+        );
+
+        if (fromStepIndex == null) {
+            notCompletedFiltering(andPredicate);
+        }
+
+        if (!targetSublist.isEmpty()) {
+            andPredicate.and(new AttributePredicateImpl<>(JobTargetPredicates.ENTITY_ID, targetSublist.toArray()));
+        }
+
+        return andPredicate;
+    }
+
+    private static void notCompletedFiltering(AndPredicateImpl andPredicate) {
+        andPredicate.and(new AttributePredicateImpl<>(JobTargetPredicates.STATUS, JobTargetStatus.PROCESS_OK, AttributePredicate.Operator.NOT_EQUAL));
+    }
+
     /**
      * This method apply {@link AttributePredicate}s according to the parameters contained into the {@link JobContextWrapper#getTargetSublist()}.
      * <p>
@@ -144,4 +289,26 @@ public class DefaultTargetReader extends AbstractItemReader implements TargetRea
         }
     }
 
+    /**
+     * This method apply {@link AttributePredicate}s according to the parameters contained into the {@link JobContextWrapper#getPartitionIndex()}.
+     * <p>
+     * When the job execution processes a partition of the {@link JobTarget}s, only the {@link JobTarget}s with an id between
+     * {@link JobContextWrapper#getPartitionFirstTargetId()} and {@link JobContextWrapper#getPartitionLastTargetId()} (both included) are selected.
+     * <p>
+     * The {@link JobTarget}s of a partitioned job execution are set {@link JobTargetStatus#PROCESS_AWAITING} when the job execution starts, so only the
+     * {@link JobTarget}s still {@link JobTargetStatus#PROCESS_AWAITING} are selected: when the partition is taken over by another job engine node,
+     * the {@link JobTarget}s that have already failed the step in this job execution are not processed again.
+     *
+     * @param jobContextWrapper The {@link JobContextWrapper} from which extract data
+     * @param andPredicate      The {@link org.eclipse.kapua.model.query.predicate.AndPredicate} where to apply {@link org.eclipse.kapua.model.KapuaPredicates}
+     * @since 1.0.0
+     */
+    protected void targetPartitionFiltering(JobContextWrapper jobContextWrapper, AndPredicateImpl andPredicate) {
+        if (jobContextWrapper.getPartitionIndex() != null) {
+            andPredicate.and(new AttributePredicateImpl<>(JobTargetPredicates.ENTITY_ID, jobContextWrapper.getPartitionFirstTargetId(), AttributePredicate.Operator.GREATER_THAN_OR_EQUAL));
+            andPredicate.and(new AttributePredicateImpl<>(JobTargetPredicates.ENTITY_ID, jobContextWrapper.getPartitionLastTargetId(), AttributePredicate.Operator.LESS_THAN_OR_EQUAL));
+            andPredicate.and(new AttributePredicateImpl<>(JobTargetPredicates.STATUS, JobTargetStatus.PROCESS_AWAITING));
+        }
+    }
+
 }
@@ -15,6 +15,10 @@ import org.eclipse.kapua.commons.security.KapuaSecurityUtils;
 import org.eclipse.kapua.job.engine.commons.context.JobContextWrapper;
 import org.eclipse.kapua.job.engine.commons.context.StepContextWrapper;
 import org.eclipse.kapua.locator.KapuaLocator;
+import org.eclipse.kapua.model.id.KapuaId;
+import org.eclipse.kapua.service.job.execution.JobExecutionFactory;
+import org.eclipse.kapua.service.job.execution.JobExecutionProgress;
+import org.eclipse.kapua.service.job.execution.JobExecutionStepProgress;
 import org.eclipse.kapua.service.job.operation.TargetWriter;
 import org.eclipse.kapua.service.job.targets.JobTarget;
 import org.eclipse.kapua.service.job.targets.JobTargetService;
@@ -26,6 +30,7 @@ import javax.batch.api.chunk.AbstractItemWriter;
 import javax.batch.runtime.context.JobContext;
 import javax.batch.runtime.context.StepContext;
 import javax.inject.Inject;
+import java.util.ArrayList;
 import java.util.List;
 
 public class DefaultTargetWriter extends AbstractItemWriter implements TargetWriter {
@@ -34,6 +39,7 @@ public class DefaultTargetWriter extends AbstractItemWriter implements TargetWri
 
     private static final KapuaLocator LOCATOR = KapuaLocator.getInstance();
     private static final JobTargetService JOB_TARGET_SERVICE = LOCATOR.getService(JobTargetService.class);
+    private static final JobExecutionFactory JOB_EXECUTION_FACTORY = LOCATOR.getFactory(JobExecutionFactory.class);
 
     @Inject
     JobContext jobContext;
@@ -48,28 +54,45 @@ public class DefaultTargetWriter extends AbstractItemWriter implements TargetWri
         StepContextWrapper stepContextWrapper = new StepContextWrapper(stepContext);
         LOG.info("JOB {} - Writing items...", jobContextWrapper.getJobId());
 
-        for (Object item : items) {
-            JobTarget processedJobTarget = (JobTarget) item;
+        JobExecutionStepProgress stepProgressIncrement = JOB_EXECUTION_FACTORY.newJobExecutionStepProgress();
+        stepProgressIncrement.setStepIndex(stepContextWrapper.getStepIndex());
+
+        JobExecutionProgress progressIncrement = JOB_EXECUTION_FACTORY.newJobExecutionProgress();
+        progressIncrement.getStepProgresses().add(stepProgressIncrement);
 
-            JobTarget jobTarget = KapuaSecurityUtils.doPrivileged(() -> JOB_TARGET_SERVICE.find(processedJobTarget.getScopeId(), processedJobTarget.getId()));
+        List<JobTarget> processedJobTargets = new ArrayList<>(items.size());
+        for (Object item : items) {
+            JobTarget processedJobTarget = AbstractTargetProcessor.getProcessedJobTarget(item);
 
-            jobTarget.setStepIndex(stepContextWrapper.getStepIndex());
-            jobTarget.setStatus(processedJobTarget.getStatus());
-            jobTarget.setException(processedJobTarget.getException());
+            processedJobTarget.setStepIndex(stepContextWrapper.getStepIndex());
 
-            if (JobTargetStatus.PROCESS_OK.equals(jobTarget.getStatus())) {
+            if (JobTargetStatus.PROCESS_OK.equals(processedJobTarget.getStatus())) {
+                stepProgressIncrement.setSucceededTargets(stepProgressIncrement.getSucceededTargets() + 1);
 
                 if (stepContextWrapper.getNextStepIndex() != null) {
-                    jobTarget.setStepIndex(stepContextWrapper.getNextStepIndex());
-                    jobTarget.setStatus(JobTargetStatus.PROCESS_AWAITING);
+                    processedJobTarget.setStepIndex(stepContextWrapper.getNextStepIndex());
+                    processedJobTarget.setStatus(JobTargetStatus.PROCESS_AWAITING);
                 } else {
-                    jobTarget.setStatus(JobTargetStatus.PROCESS_OK);
+                    processedJobTarget.setStatus(JobTargetStatus.PROCESS_OK);
+                    progressIncrement.setSucceededTargets(progressIncrement.getSucceededTargets() + 1);
                 }
+            } else {
+                // A failed target is not read again by the next steps, so it has completed the job execution
+                stepProgressIncrement.setFailedTargets(stepProgressIncrement.getFailedTargets() + 1);
+                progressIncrement.setFailedTargets(progressIncrement.getFailedTargets() + 1);
             }
 
-            KapuaSecurityUtils.doPrivileged(() -> JOB_TARGET_SERVICE.update(jobTarget));
+            processedJobTargets.add(processedJobTarget);
         }
 
+        stepProgressIncrement.setProcessedTargets(processedJobTargets.size());
+        progressIncrement.setProcessedTargets(progressIncrement.getSucceededTargets() + progressIncrement.getFailedTargets());
+
+        //
+        // Update all the targets of the chunk at once, together with the progress counters of the job execution
+        KapuaId kapuaExecutionId = jobContextWrapper.getKapuaExecutionId();
+        KapuaSecurityUtils.doPrivileged(() -> JOB_TARGET_SERVICE.updateStatus(jobContextWrapper.getScopeId(), jobContextWrapper.getJobId(), processedJobTargets, kapuaExecutionId, progressIncrement));
+
         LOG.info("JOB {} - Writing items... Done!", jobContextWrapper.getJobId());
     }
 
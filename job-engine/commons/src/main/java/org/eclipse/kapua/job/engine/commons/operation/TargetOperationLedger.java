@@ -0,0 +1,144 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Eurotech and/or its affiliates and others
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Eurotech - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.kapua.job.engine.commons.operation;
+
+import org.eclipse.kapua.commons.security.KapuaSecurityUtils;
+import org.eclipse.kapua.model.id.KapuaId;
+import org.eclipse.kapua.service.job.targets.JobTarget;
+import org.eclipse.kapua.service.job.targets.JobTargetFactory;
+import org.eclipse.kapua.service.job.targets.JobTargetOperation;
+import org.eclipse.kapua.service.job.targets.JobTargetService;
+import org.eclipse.kapua.service.job.targets.JobTargetStatus;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Date;
+
+/**
+ * Operation ledger of a step of a job execution.
+ * <p>
+ * It records the {@link JobTarget}s that have processed the idempotent request of the step successfully, with the job execution that sent it.
+ * The recorded operations are read in two cases, and only the ones with the same request are not sent again:
+ * <ul>
+ * <li>when a target partition is taken over from a failed node, the targets of the chunk that the failed node has not committed are read again:
+ * the ones recorded by the same job execution are skipped</li>
+ * <li>when the job execution resumes a previous job execution that has failed or has been stopped, the targets recorded by the resumed job execution are skipped.
+ * They are recorded again by this job execution, so they are skipped also if it is resumed in turn</li>
+ * </ul>
+ * The operations recorded by the other job executions are never used, so starting the job again after a job execution that has completed all its targets
+ * sends the request to all of them.
+ *
+ * @since 1.0.0
+ */
+class TargetOperationLedger {
+
+    private static final Logger LOG = LoggerFactory.getLogger(TargetOperationLedger.class);
+
+    private final JobTargetService jobTargetService;
+    private final JobTargetFactory jobTargetFactory;
+
+    private final KapuaId jobExecutionId;
+    private final KapuaId resumedJobExecutionId;
+    private final int stepIndex;
+    private final String requestFingerprint;
+    private final boolean takenOver;
+
+    /**
+     * Constructor.
+     *
+     * @param jobTargetService   The {@link JobTargetService} storing the ledger.
+     * @param jobTargetFactory   The {@link JobTargetFactory} of the recorded {@link JobTargetOperation}s.
+     * @param jobExecutionId        The job execution running the step.
+     * @param resumedJobExecutionId The previous job execution resumed by this one, or {@code null} if it does not resume any job execution.
+     * @param stepIndex             The index of the step.
+     * @param requestFingerprint    The fingerprint of the request sent by the step.
+     * @param takenOver             Whether the target partition has been taken over from another node, so some of its targets may have already processed the request.
+     *                              Unless it is {@code true} or there is a resumed job execution, the ledger is not read.
+     */
+    TargetOperationLedger(JobTargetService jobTargetService, JobTargetFactory jobTargetFactory, KapuaId jobExecutionId, KapuaId resumedJobExecutionId, int stepIndex, String requestFingerprint,
+            boolean takenOver) {
+        this.jobTargetService = jobTargetService;
+        this.jobTargetFactory = jobTargetFactory;
+        this.jobExecutionId = jobExecutionId;
+        this.resumedJobExecutionId = resumedJobExecutionId;
+        this.stepIndex = stepIndex;
+        this.requestFingerprint = requestFingerprint;
+        this.takenOver = takenOver;
+    }
+
+    /**
+     * Checks whether the {@link JobTarget} has already processed the request of the step successfully in this job execution or in the resumed one.
+     * The operations of the resumed job execution are recorded again for this job execution.
+     *
+     * @param jobTarget The {@link JobTarget} to check.
+     * @return {@code true} if the request has already been processed, {@code false} if it must be sent or the ledger cannot be read.
+     */
+    boolean isProcessed(JobTarget jobTarget) {
+        if (!takenOver && resumedJobExecutionId == null) {
+            return false;
+        }
+
+        JobTargetOperation operation;
+        try {
+            operation = KapuaSecurityUtils.doPrivileged(() -> jobTargetService.findOperation(jobTarget.getScopeId(), jobTarget.getId(), stepIndex));
+        } catch (Exception e) {
+            LOG.warn("Processing item: {} - Cannot read the operation ledger, the request will be sent", jobTarget.getId(), e);
+            return false;
+        }
+
+        if (operation == null ||
+                !JobTargetStatus.PROCESS_OK.equals(operation.getStatus()) ||
+                !requestFingerprint.equals(operation.getRequestFingerprint())) {
+            return false;
+        }
+
+        if (takenOver && jobExecutionId.equals(operation.getJobExecutionId())) {
+            return true;
+        }
+
+        if (resumedJobExecutionId != null && resumedJobExecutionId.equals(operation.getJobExecutionId())) {
+            recordOperation(jobTarget, JobTargetStatus.PROCESS_OK);
+            return true;
+        }
+
+        return false;
+    }
+
+    /**
+     * Records the outcome of the {@link JobTarget}, if it has processed the request successfully.
+     *
+     * @param jobTarget The processed {@link JobTarget}.
+     */
+    void record(JobTarget jobTarget) {
+        if (!JobTargetStatus.PROCESS_OK.equals(jobTarget.getStatus())) {
+            return;
+        }
+
+        recordOperation(jobTarget, jobTarget.getStatus());
+    }
+
+    private void recordOperation(JobTarget jobTarget, JobTargetStatus status) {
+        JobTargetOperation operation = jobTargetFactory.newJobTargetOperation();
+        operation.setJobTargetId(jobTarget.getId());
+        operation.setStepIndex(stepIndex);
+        operation.setJobExecutionId(jobExecutionId);
+        operation.setRequestFingerprint(requestFingerprint);
+        operation.setStatus(status);
+        operation.setRecordedOn(new Date());
+
+        try {
+            KapuaSecurityUtils.doPrivileged(() -> jobTargetService.recordOperation(jobTarget.getScopeId(), operation));
+        } catch (Exception e) {
+            LOG.warn("Processing item: {} - Cannot record the operation in the ledger", jobTarget.getId(), e);
+        }
+    }
+}
@@ -0,0 +1,49 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Eurotech and/or its affiliates and others
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Eurotech - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.kapua.job.engine.commons.operation;
+
+import com.codahale.metrics.Timer;
+import org.eclipse.kapua.commons.metric.MetricServiceFactory;
+import org.eclipse.kapua.commons.metric.MetricsService;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Metrics of the {@link org.eclipse.kapua.service.job.targets.JobTarget}s processed by the {@link AbstractTargetProcessor}s.
+ *
+ * @since 1.0.0
+ */
+public class TargetProcessorMetric {
+
+    private static final TargetProcessorMetric TARGET_PROCESSOR_METRIC = new TargetProcessorMetric();
+
+    private final MetricsService metricsService = MetricServiceFactory.getInstance();
+    private final Map<Class<?>, Timer> processTimes = new ConcurrentHashMap<>();
+
+    public static TargetProcessorMetric getInstance() {
+        return TARGET_PROCESSOR_METRIC;
+    }
+
+    private TargetProcessorMetric() {
+    }
+
+    /**
+     * Time spent processing a target by the given processor, including the request to the device
+     *
+     * @param processorClass The class of the {@link AbstractTargetProcessor}.
+     * @return The {@link Timer} of the processor.
+     */
+    public Timer getProcessTime(Class<?> processorClass) {
+        return processTimes.computeIfAbsent(processorClass, clazz -> metricsService.getTimer("job_engine", "target", clazz.getSimpleName(), "time", "s"));
+    }
+}
@@ -0,0 +1,223 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Eurotech and/or its affiliates and others
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Eurotech - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.kapua.job.engine.commons.context;
+
+import org.eclipse.kapua.KapuaException;
+import org.eclipse.kapua.commons.util.xml.XmlUtil;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import javax.batch.runtime.BatchStatus;
+import javax.batch.runtime.Metric;
+import javax.batch.runtime.context.StepContext;
+import javax.xml.bind.JAXBContext;
+import javax.xml.bind.JAXBException;
+import javax.xml.bind.annotation.XmlAccessType;
+import javax.xml.bind.annotation.XmlAccessorType;
+import javax.xml.bind.annotation.XmlAttribute;
+import javax.xml.bind.annotation.XmlElement;
+import javax.xml.bind.annotation.XmlRootElement;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link StepContextWrapper#getStepProperty(String, Class)} benchmark for a configuration push step of 10k targets, where each target reads the
+ * configuration and the timeout step properties.<br>
+ * It compares the parsing of the properties for each target (a new {@link StepContext} for each target) with the parse-once properties of the step.<br>
+ * Run it from the IDE or with 'mvn test-compile exec:java -Dexec.mainClass=... -Dexec.classpathScope=test'.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class StepContextWrapperBenchmark {
+
+    private static final int TARGETS_COUNT = 10000;
+    private static final int COMPONENTS_COUNT = 10;
+    private static final int COMPONENT_PROPERTIES_COUNT = 20;
+
+    private static final String CONFIGURATION = "configuration";
+    private static final String TIMEOUT = "timeout";
+
+    private Properties stepProperties;
+
+    @Setup
+    public void setup() throws Exception {
+        XmlUtil.setContextProvider(() -> {
+            try {
+                return JAXBContext.newInstance(BenchmarkConfiguration.class);
+            } catch (JAXBException e) {
+                throw KapuaException.internalError(e);
+            }
+        });
+
+        BenchmarkConfiguration configuration = new BenchmarkConfiguration();
+        for (int i = 0; i < COMPONENTS_COUNT; i++) {
+            BenchmarkComponentConfiguration componentConfiguration = new BenchmarkComponentConfiguration();
+            componentConfiguration.id = "org.eclipse.kura.component." + i;
+            for (int j = 0; j < COMPONENT_PROPERTIES_COUNT; j++) {
+                BenchmarkProperty property = new BenchmarkProperty();
+                property.name = "property." + j;
+                property.value = "value-" + i + "-" + j;
+                componentConfiguration.properties.add(property);
+            }
+            configuration.components.add(componentConfiguration);
+        }
+
+        stepProperties = new Properties();
+        stepProperties.setProperty(CONFIGURATION, XmlUtil.marshal(configuration));
+        stepProperties.setProperty(TIMEOUT, "30000");
+    }
+
+    @Benchmark
+    public void parseForEachTarget(Blackhole blackhole) throws Exception {
+        for (int i = 0; i < TARGETS_COUNT; i++) {
+            // the properties were parsed for each target, as if the step context changed on each target
+            StepContextWrapper stepContextWrapper = new StepContextWrapper(new BenchmarkStepContext(stepProperties));
+            processTarget(stepContextWrapper, blackhole);
+        }
+    }
+
+    @Benchmark
+    public void parseOncePerStep(Blackhole blackhole) throws Exception {
+        StepContext stepContext = new BenchmarkStepContext(stepProperties);
+        for (int i = 0; i < TARGETS_COUNT; i++) {
+            // target processors wrap the step context on each target
+            StepContextWrapper stepContextWrapper = new StepContextWrapper(stepContext);
+            processTarget(stepContextWrapper, blackhole);
+        }
+    }
+
+    private static void processTarget(StepContextWrapper stepContextWrapper, Blackhole blackhole) throws Exception {
+        blackhole.consume(stepContextWrapper.getStepProperty(CONFIGURATION, BenchmarkConfiguration.class));
+        blackhole.consume(stepContextWrapper.getStepProperty(TIMEOUT, Long.class));
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options options = new OptionsBuilder()
+                .include(StepContextWrapperBenchmark.class.getSimpleName())
+                .build();
+        new Runner(options).run();
+    }
+
+    @XmlRootElement(name = "configurations")
+    @XmlAccessorType(XmlAccessType.FIELD)
+    public static class BenchmarkConfiguration {
+
+        @XmlElement(name = "configuration")
+        private List<BenchmarkComponentConfiguration> components = new ArrayList<>();
+    }
+
+    @XmlAccessorType(XmlAccessType.FIELD)
+    public static class BenchmarkComponentConfiguration {
+
+        @XmlElement(name = "id")
+        private String id;
+
+        @XmlElement(name = "property")
+        private List<BenchmarkProperty> properties = new ArrayList<>();
+    }
+
+    @XmlAccessorType(XmlAccessType.FIELD)
+    public static class BenchmarkProperty {
+
+        @XmlAttribute(name = "name")
+        private String name;
+
+        @XmlElement(name = "value")
+        private String value;
+    }
+
+    private static class BenchmarkStepContext implements StepContext {
+
+        private final Properties properties;
+
+        BenchmarkStepContext(Properties properties) {
+            this.properties = properties;
+        }
+
+        @Override
+        public Properties getProperties() {
+            return properties;
+        }
+
+        @Override
+        public String getStepName() {
+            return "step-0";
+        }
+
+        @Override
+        public Object getTransientUserData() {
+            return null;
+        }
+
+        @Override
+        public void setTransientUserData(Object data) {
+        }
+
+        @Override
+        public long getStepExecutionId() {
+            return 0;
+        }
+
+        @Override
+        public Serializable getPersistentUserData() {
+            return null;
+        }
+
+        @Override
+        public void setPersistentUserData(Serializable data) {
+        }
+
+        @Override
+        public BatchStatus getBatchStatus() {
+            return BatchStatus.STARTED;
+        }
+
+        @Override
+        public String getExitStatus() {
+            return null;
+        }
+
+        @Override
+        public void setExitStatus(String status) {
+        }
+
+        @Override
+        public Exception getException() {
+            return null;
+        }
+
+        @Override
+        public Metric[] getMetrics() {
+            return new Metric[0];
+        }
+    }
+}
@@ -0,0 +1,123 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Eurotech and/or its affiliates and others
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Eurotech - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.kapua.job.engine.commons.context;
+
+import org.eclipse.kapua.KapuaIllegalArgumentException;
+import org.eclipse.kapua.service.job.targets.JobTargetStatus;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Properties;
+
+/**
+ * {@link StepContextWrapper} tests: the step properties are parsed once for each type, missing properties are cached and parse failures are not
+ */
+public class StepContextWrapperTest {
+
+    private static final String TIMEOUT = "timeout";
+    private static final String STATUS = "status";
+    private static final String MISSING = "missing";
+
+    @Test
+    public void testStepPropertyByType() throws Exception {
+        Properties stepProperties = new Properties();
+        stepProperties.setProperty(TIMEOUT, "30000");
+        TestStepContext stepContext = new TestStepContext(stepProperties);
+        StepContextWrapper stepContextWrapper = new StepContextWrapper(stepContext);
+
+        Long timeout = stepContextWrapper.getStepProperty(TIMEOUT, Long.class);
+        String timeoutString = stepContextWrapper.getStepProperty(TIMEOUT, String.class);
+
+        // the same property is parsed for each type
+        Assert.assertEquals(Long.valueOf(30000), timeout);
+        Assert.assertEquals("30000", timeoutString);
+
+        // and the parsed value is shared by the following reads, also through other wrappers of the same step
+        Assert.assertSame(timeout, stepContextWrapper.getStepProperty(TIMEOUT, Long.class));
+        Assert.assertSame(timeout, new StepContextWrapper(stepContext).getStepProperty(TIMEOUT, Long.class));
+    }
+
+    @Test
+    public void testMissingStepProperty() throws Exception {
+        Properties stepProperties = new Properties();
+        StepContextWrapper stepContextWrapper = new StepContextWrapper(new TestStepContext(stepProperties));
+
+        Assert.assertNull(stepContextWrapper.getStepProperty(MISSING, Long.class));
+
+        // the missing property is cached too: the step properties don't change during the step
+        stepProperties.setProperty(MISSING, "1");
+        Assert.assertNull(stepContextWrapper.getStepProperty(MISSING, Long.class));
+    }
+
+    @Test
+    public void testParseFailureNotCached() throws Exception {
+        Properties stepProperties = new Properties();
+        stepProperties.setProperty(STATUS, "NOT_A_STATUS");
+        StepContextWrapper stepContextWrapper = new StepContextWrapper(new TestStepContext(stepProperties));
+
+        try {
+            stepContextWrapper.getStepProperty(STATUS, JobTargetStatus.class);
+            Assert.fail("The step property is not a JobTargetStatus");
+        } catch (KapuaIllegalArgumentException e) {
+            // expected
+        }
+
+        stepProperties.setProperty(STATUS, JobTargetStatus.PROCESS_OK.name());
+        Assert.assertEquals(JobTargetStatus.PROCESS_OK, stepContextWrapper.getStepProperty(STATUS, JobTargetStatus.class));
+    }
+
+    @Test
+    public void testByteArrayNotShared() throws Exception {
+        Properties stepProperties = new Properties();
+        stepProperties.setProperty(STATUS, "AQID");
+        StepContextWrapper stepContextWrapper = new StepContextWrapper(new TestStepContext(stepProperties));
+
+        byte[] bytes = stepContextWrapper.getStepProperty(STATUS, byte[].class);
+        bytes[0] = 0;
+
+        Assert.assertArrayEquals(new byte[] { 1, 2, 3 }, stepContextWrapper.getStepProperty(STATUS, byte[].class));
+    }
+
+    @Test
+    public void testLoadStepProperties() throws Exception {
+        Properties stepProperties = new Properties();
+        stepProperties.setProperty(TIMEOUT, "30000");
+        stepProperties.setProperty(STATUS, "NOT_A_STATUS");
+        stepProperties.setProperty(StepContextPropertyNames.STEP_PROPERTY_TYPES,
+                TIMEOUT + '=' + Long.class.getName() + ',' + STATUS + '=' + JobTargetStatus.class.getName() + ',' + MISSING + "=org.eclipse.kapua.UnknownType");
+        StepContextWrapper stepContextWrapper = new StepContextWrapper(new TestStepContext(stepProperties));
+
+        // the parse failures and the unknown types don't fail the step
+        stepContextWrapper.loadStepProperties();
+
+        // the declared properties are parsed when the step starts
+        stepProperties.setProperty(TIMEOUT, "60000");
+        Assert.assertEquals(Long.valueOf(30000), stepContextWrapper.getStepProperty(TIMEOUT, Long.class));
+
+        // but not the ones which cannot be parsed
+        stepProperties.setProperty(STATUS, JobTargetStatus.PROCESS_OK.name());
+        Assert.assertEquals(JobTargetStatus.PROCESS_OK, stepContextWrapper.getStepProperty(STATUS, JobTargetStatus.class));
+    }
+
+    @Test
+    public void testReleaseStepProperties() throws Exception {
+        Properties stepProperties = new Properties();
+        stepProperties.setProperty(TIMEOUT, "30000");
+        StepContextWrapper stepContextWrapper = new StepContextWrapper(new TestStepContext(stepProperties));
+        Assert.assertEquals(Long.valueOf(30000), stepContextWrapper.getStepProperty(TIMEOUT, Long.class));
+
+        stepContextWrapper.releaseStepProperties();
+
+        stepProperties.setProperty(TIMEOUT, "60000");
+        Assert.assertEquals(Long.valueOf(60000), stepContextWrapper.getStepProperty(TIMEOUT, Long.class));
+    }
+}
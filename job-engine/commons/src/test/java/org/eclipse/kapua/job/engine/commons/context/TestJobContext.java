@@ -0,0 +1,73 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Eurotech and/or its affiliates and others
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Eurotech - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.kapua.job.engine.commons.context;
+
+import javax.batch.runtime.BatchStatus;
+import javax.batch.runtime.context.JobContext;
+import java.util.Properties;
+
+/**
+ * {@link JobContext} of the tests, backed by the given job properties
+ */
+public class TestJobContext implements JobContext {
+
+    private final Properties properties;
+    private Object transientUserData;
+
+    public TestJobContext(Properties properties) {
+        this.properties = properties;
+    }
+
+    @Override
+    public String getJobName() {
+        return "test-job";
+    }
+
+    @Override
+    public Object getTransientUserData() {
+        return transientUserData;
+    }
+
+    @Override
+    public void setTransientUserData(Object data) {
+        transientUserData = data;
+    }
+
+    @Override
+    public long getInstanceId() {
+        return 1;
+    }
+
+    @Override
+    public long getExecutionId() {
+        return 1;
+    }
+
+    @Override
+    public Properties getProperties() {
+        return properties;
+    }
+
+    @Override
+    public BatchStatus getBatchStatus() {
+        return BatchStatus.STARTED;
+    }
+
+    @Override
+    public String getExitStatus() {
+        return null;
+    }
+
+    @Override
+    public void setExitStatus(String status) {
+    }
+}
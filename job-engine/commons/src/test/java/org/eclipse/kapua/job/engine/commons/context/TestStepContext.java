@@ -0,0 +1,91 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Eurotech and/or its affiliates and others
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Eurotech - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.kapua.job.engine.commons.context;
+
+import javax.batch.runtime.BatchStatus;
+import javax.batch.runtime.Metric;
+import javax.batch.runtime.context.StepContext;
+import java.io.Serializable;
+import java.util.Properties;
+
+/**
+ * {@link StepContext} of the tests, backed by the given step properties
+ */
+public class TestStepContext implements StepContext {
+
+    private final Properties properties;
+    private Object transientUserData;
+    private Serializable persistentUserData;
+
+    public TestStepContext(Properties properties) {
+        this.properties = properties;
+    }
+
+    @Override
+    public Properties getProperties() {
+        return properties;
+    }
+
+    @Override
+    public String getStepName() {
+        return "step-0";
+    }
+
+    @Override
+    public Object getTransientUserData() {
+        return transientUserData;
+    }
+
+    @Override
+    public void setTransientUserData(Object data) {
+        transientUserData = data;
+    }
+
+    @Override
+    public long getStepExecutionId() {
+        return 1;
+    }
+
+    @Override
+    public Serializable getPersistentUserData() {
+        return persistentUserData;
+    }
+
+    @Override
+    public void setPersistentUserData(Serializable data) {
+        persistentUserData = data;
+    }
+
+    @Override
+    public BatchStatus getBatchStatus() {
+        return BatchStatus.STARTED;
+    }
+
+    @Override
+    public String getExitStatus() {
+        return null;
+    }
+
+    @Override
+    public void setExitStatus(String status) {
+    }
+
+    @Override
+    public Exception getException() {
+        return null;
+    }
+
+    @Override
+    public Metric[] getMetrics() {
+        return new Metric[0];
+    }
+}
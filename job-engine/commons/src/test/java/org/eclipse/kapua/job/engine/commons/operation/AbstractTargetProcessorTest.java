@@ -0,0 +1,458 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Eurotech and/or its affiliates and others
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Eurotech - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.kapua.job.engine.commons.operation;
+
+import org.eclipse.kapua.KapuaException;
+import org.eclipse.kapua.commons.model.id.KapuaEid;
+import org.eclipse.kapua.job.engine.commons.context.JobContextPropertyNames;
+import org.eclipse.kapua.job.engine.commons.context.JobContextWrapper;
+import org.eclipse.kapua.job.engine.commons.context.StepContextPropertyNames;
+import org.eclipse.kapua.job.engine.commons.context.TestJobContext;
+import org.eclipse.kapua.job.engine.commons.context.TestStepContext;
+import org.eclipse.kapua.locator.KapuaLocator;
+import org.eclipse.kapua.model.id.KapuaId;
+import org.eclipse.kapua.service.job.targets.JobTarget;
+import org.eclipse.kapua.service.job.targets.JobTargetFactory;
+import org.eclipse.kapua.service.job.targets.JobTargetOperation;
+import org.eclipse.kapua.service.job.targets.JobTargetService;
+import org.eclipse.kapua.service.job.targets.JobTargetStatus;
+import org.eclipse.kapua.service.job.targets.internal.JobTargetImpl;
+import org.eclipse.kapua.service.job.targets.internal.JobTargetOperationImpl;
+import org.eclipse.kapua.test.MockedLocator;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Matchers;
+import org.mockito.Mockito;
+
+import java.lang.reflect.Field;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * {@link AbstractTargetProcessor} tests: synchronous and asynchronous processing, failures, the order of the processed targets
+ * and the operation ledger of the job executions
+ */
+public class AbstractTargetProcessorTest {
+
+    private static final long TIMEOUT_SECONDS = 10;
+
+    private static final KapuaId JOB_EXECUTION_ID = new KapuaEid(BigInteger.valueOf(20));
+    private static final KapuaId OTHER_JOB_EXECUTION_ID = new KapuaEid(BigInteger.valueOf(21));
+
+    private static final String IDEMPOTENT_REQUEST = "<configuration/>";
+
+    private JobTargetService jobTargetService;
+
+    @Before
+    public void setUp() {
+        jobTargetService = Mockito.mock(JobTargetService.class);
+        JobTargetFactory jobTargetFactory = Mockito.mock(JobTargetFactory.class);
+        Mockito.when(jobTargetFactory.newJobTargetOperation()).thenAnswer(invocation -> new JobTargetOperationImpl());
+
+        MockedLocator mockedLocator = (MockedLocator) KapuaLocator.getInstance();
+        mockedLocator.setMockedService(JobTargetService.class, jobTargetService);
+        mockedLocator.setMockedFactory(JobTargetFactory.class, jobTargetFactory);
+    }
+
+    @Test
+    public void testProcessWithoutJobContext() throws Exception {
+        TestTargetProcessor processor = new TestTargetProcessor(jobTarget -> {
+        });
+
+        Object item = processor.processItem(newJobTarget(1));
+
+        Assert.assertTrue(item instanceof JobTarget);
+        Assert.assertEquals(JobTargetStatus.PROCESS_OK, ((JobTarget) item).getStatus());
+        Assert.assertSame(item, AbstractTargetProcessor.getProcessedJobTarget(item));
+    }
+
+    @Test
+    public void testProcessSynchronously() throws Exception {
+        List<String> processingThreads = new ArrayList<>();
+        TestTargetProcessor processor = new TestTargetProcessor(jobTarget -> processingThreads.add(Thread.currentThread().getName()));
+        processor.inject(1);
+
+        Object item = processor.processItem(newJobTarget(1));
+
+        // with no parallelism the target is processed by the thread of the step
+        Assert.assertTrue(item instanceof JobTarget);
+        Assert.assertEquals(JobTargetStatus.PROCESS_OK, ((JobTarget) item).getStatus());
+        Assert.assertEquals(Thread.currentThread().getName(), processingThreads.get(0));
+    }
+
+    @Test
+    public void testProcessAsynchronously() throws Exception {
+        CountDownLatch processingTargets = new CountDownLatch(2);
+        TestTargetProcessor processor = new TestTargetProcessor(jobTarget -> {
+            // each target waits for the other one, so they complete only if they are processed at the same time
+            processingTargets.countDown();
+            await(processingTargets);
+        });
+        processor.inject(2);
+
+        Object firstItem = processor.processItem(newJobTarget(1));
+        Object secondItem = processor.processItem(newJobTarget(2));
+
+        Assert.assertTrue(firstItem instanceof Future);
+        Assert.assertTrue(secondItem instanceof Future);
+        Assert.assertEquals(JobTargetStatus.PROCESS_OK, AbstractTargetProcessor.getProcessedJobTarget(firstItem).getStatus());
+        Assert.assertEquals(JobTargetStatus.PROCESS_OK, AbstractTargetProcessor.getProcessedJobTarget(secondItem).getStatus());
+    }
+
+    @Test
+    public void testProcessAsynchronouslyFailure() throws Exception {
+        KapuaException processingException = KapuaException.internalError("Device not available");
+        TestTargetProcessor processor = new TestTargetProcessor(jobTarget -> {
+            if (BigInteger.ONE.equals(jobTarget.getId().getId())) {
+                throw processingException;
+            }
+        });
+        processor.inject(2);
+
+        Object failedItem = processor.processItem(newJobTarget(1));
+        Object processedItem = processor.processItem(newJobTarget(2));
+
+        // the failure is reported on its target, not thrown to the writer
+        JobTarget failedJobTarget = AbstractTargetProcessor.getProcessedJobTarget(failedItem);
+        Assert.assertEquals(JobTargetStatus.PROCESS_FAILED, failedJobTarget.getStatus());
+        Assert.assertSame(processingException, failedJobTarget.getException());
+        Assert.assertEquals(JobTargetStatus.PROCESS_OK, AbstractTargetProcessor.getProcessedJobTarget(processedItem).getStatus());
+    }
+
+    @Test
+    public void testProcessedInReadingOrder() throws Exception {
+        CountDownLatch otherTargetsProcessed = new CountDownLatch(2);
+        List<BigInteger> completionOrder = new ArrayList<>();
+        TestTargetProcessor processor = new TestTargetProcessor(jobTarget -> {
+            // the first target completes after the other ones
+            if (BigInteger.ONE.equals(jobTarget.getId().getId())) {
+                await(otherTargetsProcessed);
+            }
+            synchronized (completionOrder) {
+                completionOrder.add(jobTarget.getId().getId());
+            }
+            if (!BigInteger.ONE.equals(jobTarget.getId().getId())) {
+                otherTargetsProcessed.countDown();
+            }
+        });
+        processor.inject(3);
+
+        List<Object> items = new ArrayList<>();
+        for (int i = 1; i <= 3; i++) {
+            items.add(processor.processItem(newJobTarget(i)));
+        }
+
+        List<BigInteger> writeOrder = new ArrayList<>();
+        for (Object item : items) {
+            writeOrder.add(AbstractTargetProcessor.getProcessedJobTarget(item).getId().getId());
+        }
+
+        Assert.assertEquals(BigInteger.ONE, completionOrder.get(2));
+        Assert.assertEquals(3, writeOrder.size());
+        for (int i = 0; i < writeOrder.size(); i++) {
+            Assert.assertEquals(BigInteger.valueOf(i + 1L), writeOrder.get(i));
+        }
+    }
+
+    @Test
+    public void testOperationLedgerRecordsProcessedTargets() throws Exception {
+        TestTargetProcessor processor = new TestTargetProcessor(jobTarget -> {
+            if (BigInteger.ONE.equals(jobTarget.getId().getId())) {
+                throw KapuaException.internalError("Device not available");
+            }
+        });
+        processor.setIdempotentRequest(IDEMPOTENT_REQUEST);
+        processor.inject(1, JOB_EXECUTION_ID, 1, true);
+
+        processor.processItem(newJobTarget(1));
+        processor.processItem(newJobTarget(2));
+        processor.processItem(newJobTarget(3));
+
+        // the request of the step is read once
+        Assert.assertEquals(1, processor.getIdempotentRequestCount());
+
+        // the ledger is not read by the first lease of the partition, and only the successful operations are recorded
+        Mockito.verify(jobTargetService, Mockito.never()).findOperation(Matchers.any(KapuaId.class), Matchers.any(KapuaId.class), Matchers.anyInt());
+        ArgumentCaptor<JobTargetOperation> operationCaptor = ArgumentCaptor.forClass(JobTargetOperation.class);
+        Mockito.verify(jobTargetService, Mockito.times(2)).recordOperation(Matchers.eq(KapuaId.ONE), operationCaptor.capture());
+
+        JobTargetOperation operation = operationCaptor.getAllValues().get(0);
+        Assert.assertEquals(BigInteger.valueOf(2), operation.getJobTargetId().getId());
+        Assert.assertEquals(JOB_EXECUTION_ID, operation.getJobExecutionId());
+        Assert.assertEquals(0, operation.getStepIndex());
+        Assert.assertEquals(JobTargetStatus.PROCESS_OK, operation.getStatus());
+        Assert.assertNotNull(operation.getRequestFingerprint());
+    }
+
+    @Test
+    public void testOperationLedgerTakenOverPartition() throws Exception {
+        JobTargetOperation operation = recordOperation(JOB_EXECUTION_ID);
+        Mockito.when(jobTargetService.findOperation(KapuaId.ONE, operation.getJobTargetId(), 0)).thenReturn(operation);
+
+        List<JobTarget> processedJobTargets = new ArrayList<>();
+        TestTargetProcessor processor = new TestTargetProcessor(processedJobTargets::add);
+        processor.setIdempotentRequest(IDEMPOTENT_REQUEST);
+        processor.inject(1, JOB_EXECUTION_ID, 2, true);
+
+        JobTarget jobTarget = (JobTarget) processor.processItem(newJobTarget(1));
+
+        // the target has already processed the request in this job execution before the partition was taken over
+        Assert.assertEquals(JobTargetStatus.PROCESS_OK, jobTarget.getStatus());
+        Assert.assertTrue(processedJobTargets.isEmpty());
+    }
+
+    @Test
+    public void testOperationLedgerOtherJobExecution() throws Exception {
+        JobTargetOperation operation = recordOperation(OTHER_JOB_EXECUTION_ID);
+        Mockito.when(jobTargetService.findOperation(KapuaId.ONE, operation.getJobTargetId(), 0)).thenReturn(operation);
+
+        List<JobTarget> processedJobTargets = new ArrayList<>();
+        TestTargetProcessor processor = new TestTargetProcessor(processedJobTargets::add);
+        processor.setIdempotentRequest(IDEMPOTENT_REQUEST);
+        processor.inject(1, JOB_EXECUTION_ID, 2, true);
+
+        processor.processItem(newJobTarget(1));
+
+        // the operations of the previous runs of the job are not trusted: the device may have drifted since then
+        Assert.assertEquals(1, processedJobTargets.size());
+    }
+
+    @Test
+    public void testOperationLedgerNotPartitioned() throws Exception {
+        TestTargetProcessor processor = new TestTargetProcessor(jobTarget -> {
+        });
+        processor.setIdempotentRequest(IDEMPOTENT_REQUEST);
+        processor.inject(1, JOB_EXECUTION_ID, 0, true);
+
+        processor.processItem(newJobTarget(1));
+
+        // the operations are recorded, so a job execution resuming this one can read them, but the ledger is not read
+        Mockito.verify(jobTargetService, Mockito.never()).findOperation(Matchers.any(KapuaId.class), Matchers.any(KapuaId.class), Matchers.anyInt());
+        ArgumentCaptor<JobTargetOperation> operationCaptor = ArgumentCaptor.forClass(JobTargetOperation.class);
+        Mockito.verify(jobTargetService).recordOperation(Matchers.eq(KapuaId.ONE), operationCaptor.capture());
+        Assert.assertEquals(JOB_EXECUTION_ID, operationCaptor.getValue().getJobExecutionId());
+    }
+
+    @Test
+    public void testOperationLedgerResumedJobExecution() throws Exception {
+        JobTargetOperation operation = recordOperation(OTHER_JOB_EXECUTION_ID);
+        Mockito.when(jobTargetService.findOperation(KapuaId.ONE, operation.getJobTargetId(), 0)).thenReturn(operation);
+
+        List<JobTarget> processedJobTargets = new ArrayList<>();
+        TestTargetProcessor processor = new TestTargetProcessor(processedJobTargets::add);
+        processor.setIdempotentRequest(IDEMPOTENT_REQUEST);
+        processor.inject(1, JOB_EXECUTION_ID, 0, true, OTHER_JOB_EXECUTION_ID);
+
+        JobTarget jobTarget = (JobTarget) processor.processItem(newJobTarget(1));
+
+        // the target has already processed the request in the failed job execution resumed by this one
+        Assert.assertEquals(JobTargetStatus.PROCESS_OK, jobTarget.getStatus());
+        Assert.assertTrue(processedJobTargets.isEmpty());
+
+        // and the operation is recorded again for this job execution, in case it is resumed in turn
+        ArgumentCaptor<JobTargetOperation> operationCaptor = ArgumentCaptor.forClass(JobTargetOperation.class);
+        Mockito.verify(jobTargetService, Mockito.times(2)).recordOperation(Matchers.eq(KapuaId.ONE), operationCaptor.capture());
+        Assert.assertEquals(JOB_EXECUTION_ID, operationCaptor.getAllValues().get(1).getJobExecutionId());
+    }
+
+    @Test
+    public void testOperationLedgerNotResumedJobExecution() throws Exception {
+        JobTargetOperation operation = recordOperation(OTHER_JOB_EXECUTION_ID);
+        Mockito.when(jobTargetService.findOperation(KapuaId.ONE, operation.getJobTargetId(), 0)).thenReturn(operation);
+
+        List<JobTarget> processedJobTargets = new ArrayList<>();
+
+        // fresh run
+        TestTargetProcessor processor = new TestTargetProcessor(processedJobTargets::add);
+        processor.setIdempotentRequest(IDEMPOTENT_REQUEST);
+        processor.inject(1, JOB_EXECUTION_ID, 0, true);
+        processor.processItem(newJobTarget(1));
+
+        // resuming another job execution
+        processor = new TestTargetProcessor(processedJobTargets::add);
+        processor.setIdempotentRequest(IDEMPOTENT_REQUEST);
+        processor.inject(1, JOB_EXECUTION_ID, 0, true, new KapuaEid(BigInteger.valueOf(22)));
+        processor.processItem(newJobTarget(1));
+
+        // resuming the job execution with another request
+        processor = new TestTargetProcessor(processedJobTargets::add);
+        processor.setIdempotentRequest("<configuration updated=\"true\"/>");
+        processor.inject(1, JOB_EXECUTION_ID, 0, true, OTHER_JOB_EXECUTION_ID);
+        processor.processItem(newJobTarget(1));
+
+        Assert.assertEquals(3, processedJobTargets.size());
+    }
+
+    @Test
+    public void testOperationLedgerOtherRequest() throws Exception {
+        JobTargetOperation operation = recordOperation(JOB_EXECUTION_ID);
+        Mockito.when(jobTargetService.findOperation(KapuaId.ONE, operation.getJobTargetId(), 0)).thenReturn(operation);
+
+        List<JobTarget> processedJobTargets = new ArrayList<>();
+        TestTargetProcessor processor = new TestTargetProcessor(processedJobTargets::add);
+        processor.setIdempotentRequest("<configuration updated=\"true\"/>");
+        processor.inject(1, JOB_EXECUTION_ID, 2, true);
+
+        processor.processItem(newJobTarget(1));
+
+        Assert.assertEquals(1, processedJobTargets.size());
+    }
+
+    @Test
+    public void testOperationLedgerNotUsed() throws Exception {
+        List<JobTarget> processedJobTargets = new ArrayList<>();
+
+        // disabled
+        TestTargetProcessor processor = new TestTargetProcessor(processedJobTargets::add);
+        processor.setIdempotentRequest(IDEMPOTENT_REQUEST);
+        processor.inject(1, JOB_EXECUTION_ID, 2, false);
+        processor.processItem(newJobTarget(1));
+
+        // no job execution
+        processor = new TestTargetProcessor(processedJobTargets::add);
+        processor.setIdempotentRequest(IDEMPOTENT_REQUEST);
+        processor.inject(1, null, 0, true);
+        processor.processItem(newJobTarget(2));
+
+        // not idempotent
+        processor = new TestTargetProcessor(processedJobTargets::add);
+        processor.inject(1, JOB_EXECUTION_ID, 2, true);
+        processor.processItem(newJobTarget(3));
+
+        Assert.assertEquals(3, processedJobTargets.size());
+        Mockito.verifyZeroInteractions(jobTargetService);
+    }
+
+    /**
+     * Processes the target 1 with the first lease of a partition of the given job execution and returns the recorded operation
+     */
+    private JobTargetOperation recordOperation(KapuaId jobExecutionId) throws Exception {
+        TestTargetProcessor processor = new TestTargetProcessor(jobTarget -> {
+        });
+        processor.setIdempotentRequest(IDEMPOTENT_REQUEST);
+        processor.inject(1, jobExecutionId, 1, true);
+        processor.processItem(newJobTarget(1));
+
+        ArgumentCaptor<JobTargetOperation> operationCaptor = ArgumentCaptor.forClass(JobTargetOperation.class);
+        Mockito.verify(jobTargetService).recordOperation(Matchers.eq(KapuaId.ONE), operationCaptor.capture());
+        return operationCaptor.getValue();
+    }
+
+    private static JobTarget newJobTarget(long id) {
+        JobTargetImpl jobTarget = new JobTargetImpl(KapuaId.ONE);
+        jobTarget.setId(new KapuaEid(BigInteger.valueOf(id)));
+        jobTarget.setStatus(JobTargetStatus.PROCESS_AWAITING);
+        return jobTarget;
+    }
+
+    private static void await(CountDownLatch latch) throws KapuaException {
+        try {
+            if (!latch.await(TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+                throw KapuaException.internalError("The targets are not processed concurrently");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw KapuaException.internalError(e);
+        }
+    }
+
+    @FunctionalInterface
+    private interface TargetProcessing {
+
+        void process(JobTarget jobTarget) throws KapuaException;
+    }
+
+    private static class TestTargetProcessor extends AbstractTargetProcessor {
+
+        private final TargetProcessing targetProcessing;
+
+        private String idempotentRequest;
+        private final AtomicInteger idempotentRequestCount = new AtomicInteger();
+
+        TestTargetProcessor(TargetProcessing targetProcessing) {
+            this.targetProcessing = targetProcessing;
+        }
+
+        /**
+         * Injects the job and step contexts as the batch runtime does
+         */
+        void inject(int targetParallelism) throws ReflectiveOperationException {
+            inject(targetParallelism, null, 0, false);
+        }
+
+        void inject(int targetParallelism, KapuaId jobExecutionId, int partitionLeaseCount, boolean operationLedger) throws ReflectiveOperationException {
+            inject(targetParallelism, jobExecutionId, partitionLeaseCount, operationLedger, null);
+        }
+
+        /**
+         * Injects the job and step contexts of the given job execution, if any, as the batch runtime and the job listener do.
+         * The job execution runs a partition when the partition lease count is greater than 0.
+         */
+        void inject(int targetParallelism, KapuaId jobExecutionId, int partitionLeaseCount, boolean operationLedger, KapuaId resumedJobExecutionId)
+                throws ReflectiveOperationException {
+            Properties jobProperties = new Properties();
+            jobProperties.setProperty(JobContextPropertyNames.JOB_TARGET_PARALLELISM, Integer.toString(targetParallelism));
+            jobProperties.setProperty(JobContextPropertyNames.JOB_TARGET_OPERATION_LEDGER, Boolean.toString(operationLedger));
+            if (jobExecutionId != null && partitionLeaseCount > 0) {
+                jobProperties.setProperty(JobContextPropertyNames.JOB_PARTITION_INDEX, "0");
+                jobProperties.setProperty(JobContextPropertyNames.JOB_PARTITION_EXECUTION_ID, jobExecutionId.toCompactId());
+                jobProperties.setProperty(JobContextPropertyNames.JOB_PARTITION_LEASE_COUNT, Integer.toString(partitionLeaseCount));
+            }
+            if (resumedJobExecutionId != null) {
+                jobProperties.setProperty(JobContextPropertyNames.JOB_TARGET_OPERATION_LEDGER_RESUMED_EXECUTION_ID, resumedJobExecutionId.toCompactId());
+            }
+            Properties stepProperties = new Properties();
+            stepProperties.setProperty(StepContextPropertyNames.STEP_INDEX, "0");
+
+            TestJobContext jobContext = new TestJobContext(jobProperties);
+            if (jobExecutionId != null) {
+                new JobContextWrapper(jobContext).setKapuaExecutionId(jobExecutionId);
+            }
+
+            setField("processorJobContext", jobContext);
+            setField("processorStepContext", new TestStepContext(stepProperties));
+        }
+
+        private void setField(String name, Object value) throws ReflectiveOperationException {
+            Field field = AbstractTargetProcessor.class.getDeclaredField(name);
+            field.setAccessible(true);
+            field.set(this, value);
+        }
+
+        void setIdempotentRequest(String idempotentRequest) {
+            this.idempotentRequest = idempotentRequest;
+        }
+
+        int getIdempotentRequestCount() {
+            return idempotentRequestCount.get();
+        }
+
+        @Override
+        public void processTarget(JobTarget jobTarget) throws KapuaException {
+            targetProcessing.process(jobTarget);
+        }
+
+        @Override
+        protected String getIdempotentRequest() {
+            idempotentRequestCount.incrementAndGet();
+            return idempotentRequest;
+        }
+    }
+}
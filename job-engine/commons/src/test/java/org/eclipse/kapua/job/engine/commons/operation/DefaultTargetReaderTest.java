@@ -0,0 +1,244 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Eurotech and/or its affiliates and others
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Eurotech - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.kapua.job.engine.commons.operation;
+
+import org.eclipse.kapua.KapuaException;
+import org.eclipse.kapua.commons.model.id.KapuaEid;
+import org.eclipse.kapua.commons.util.xml.XmlUtil;
+import org.eclipse.kapua.job.engine.commons.context.JobContextPropertyNames;
+import org.eclipse.kapua.job.engine.commons.context.StepContextPropertyNames;
+import org.eclipse.kapua.job.engine.commons.context.TestJobContext;
+import org.eclipse.kapua.job.engine.commons.context.TestStepContext;
+import org.eclipse.kapua.job.engine.commons.model.JobTargetSublist;
+import org.eclipse.kapua.locator.KapuaLocator;
+import org.eclipse.kapua.model.id.KapuaId;
+import org.eclipse.kapua.model.query.KapuaQuery;
+import org.eclipse.kapua.service.job.targets.JobTarget;
+import org.eclipse.kapua.service.job.targets.JobTargetFactory;
+import org.eclipse.kapua.service.job.targets.JobTargetListResult;
+import org.eclipse.kapua.service.job.targets.JobTargetService;
+import org.eclipse.kapua.service.job.targets.JobTargetStatus;
+import org.eclipse.kapua.service.job.targets.internal.JobTargetFactoryImpl;
+import org.eclipse.kapua.service.job.targets.internal.JobTargetImpl;
+import org.eclipse.kapua.service.job.targets.internal.JobTargetListResultImpl;
+import org.eclipse.kapua.test.MockedLocator;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.mockito.Matchers;
+import org.mockito.Mockito;
+
+import javax.batch.runtime.context.JobContext;
+import javax.batch.runtime.context.StepContext;
+import javax.xml.bind.JAXBContext;
+import javax.xml.bind.JAXBException;
+import java.io.Serializable;
+import java.lang.reflect.Field;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+/**
+ * {@link DefaultTargetReader} tests: keyset pagination, prefetch of the next page and checkpoints.<br>
+ * The {@link JobTargetService} returns the targets of the step that are not processed yet, ordered by id and starting after the seek id of the query.
+ */
+public class DefaultTargetReaderTest {
+
+    private static final int PAGE_SIZE = 2;
+
+    private final List<JobTarget> storedJobTargets = new CopyOnWriteArrayList<>();
+    private final AtomicInteger queryCount = new AtomicInteger();
+    private volatile KapuaException prefetchException;
+
+    @BeforeClass
+    public static void setUpXml() {
+        XmlUtil.setContextProvider(() -> {
+            try {
+                return JAXBContext.newInstance(JobTargetSublist.class);
+            } catch (JAXBException e) {
+                throw KapuaException.internalError(e);
+            }
+        });
+    }
+
+    @Before
+    public void setUpLocator() throws KapuaException {
+        JobTargetService jobTargetService = Mockito.mock(JobTargetService.class);
+        Mockito.when(jobTargetService.query(Matchers.<KapuaQuery<JobTarget>> any())).thenAnswer(invocation -> query((KapuaQuery<JobTarget>) invocation.getArguments()[0]));
+
+        MockedLocator mockedLocator = (MockedLocator) KapuaLocator.getInstance();
+        mockedLocator.setMockedService(JobTargetService.class, jobTargetService);
+        mockedLocator.setMockedFactory(JobTargetFactory.class, new JobTargetFactoryImpl());
+    }
+
+    @Test
+    public void testReadWithoutTargets() throws Exception {
+        DefaultTargetReader reader = openReader(null);
+
+        Assert.assertNull(reader.readItem());
+        Assert.assertNull(reader.checkpointInfo());
+        Assert.assertEquals(1, queryCount.get());
+        reader.close();
+    }
+
+    @Test
+    public void testReadPages() throws Exception {
+        storeJobTargets(5);
+        DefaultTargetReader reader = openReader(null);
+
+        Assert.assertEquals(ids(1, 5), readAll(reader, false));
+
+        // the last page is not full, so no page follows it
+        Assert.assertEquals(3, queryCount.get());
+        reader.close();
+    }
+
+    @Test
+    public void testReadPagesExactMultiple() throws Exception {
+        storeJobTargets(4);
+        DefaultTargetReader reader = openReader(null);
+
+        Assert.assertEquals(ids(1, 4), readAll(reader, false));
+
+        // the last page is full, so the empty page that follows it is queried too
+        Assert.assertEquals(3, queryCount.get());
+        reader.close();
+    }
+
+    @Test
+    public void testReadProcessedTargets() throws Exception {
+        storeJobTargets(7);
+        DefaultTargetReader reader = openReader(null);
+
+        // the processed targets leave the step filter, but the following pages start after the last read target so no target is skipped
+        Assert.assertEquals(ids(1, 7), readAll(reader, true));
+        reader.close();
+    }
+
+    @Test
+    public void testResumeFromCheckpoint() throws Exception {
+        storeJobTargets(5);
+        DefaultTargetReader reader = openReader(null);
+        for (int i = 0; i < 3; i++) {
+            reader.readItem();
+        }
+        Serializable checkpoint = reader.checkpointInfo();
+        reader.close();
+
+        Assert.assertEquals(new KapuaEid(BigInteger.valueOf(3)).toCompactId(), checkpoint);
+
+        DefaultTargetReader restartedReader = openReader(checkpoint);
+        Assert.assertEquals(ids(4, 5), readAll(restartedReader, false));
+        restartedReader.close();
+    }
+
+    @Test
+    public void testPrefetchFailure() throws Exception {
+        storeJobTargets(4);
+        prefetchException = KapuaException.internalError("Database not available");
+        DefaultTargetReader reader = openReader(null);
+
+        Assert.assertNotNull(reader.readItem());
+        Assert.assertNotNull(reader.readItem());
+        try {
+            reader.readItem();
+            Assert.fail("The error of the prefetched page must be thrown by the read of its first target");
+        } catch (KapuaException e) {
+            Assert.assertSame(prefetchException, e);
+        }
+        reader.close();
+    }
+
+    private JobTargetListResult query(KapuaQuery<JobTarget> query) throws KapuaException {
+        queryCount.incrementAndGet();
+        KapuaId seekAfterId = query.getSeekAfterId();
+        if (seekAfterId != null && prefetchException != null) {
+            throw prefetchException;
+        }
+
+        List<JobTarget> jobTargets = storedJobTargets.stream()
+                .filter(jobTarget -> !JobTargetStatus.PROCESS_OK.equals(jobTarget.getStatus()))
+                .filter(jobTarget -> seekAfterId == null || jobTarget.getId().getId().compareTo(seekAfterId.getId()) > 0)
+                .sorted(Comparator.comparing(jobTarget -> jobTarget.getId().getId()))
+                .collect(Collectors.toList());
+
+        JobTargetListResult result = new JobTargetListResultImpl();
+        result.addItems(jobTargets.subList(0, Math.min(query.getLimit(), jobTargets.size())));
+        result.setLimitExceeded(jobTargets.size() > query.getLimit());
+        return result;
+    }
+
+    private void storeJobTargets(int count) {
+        for (int i = 1; i <= count; i++) {
+            JobTargetImpl jobTarget = new JobTargetImpl(KapuaId.ONE);
+            jobTarget.setId(new KapuaEid(BigInteger.valueOf(i)));
+            jobTarget.setStepIndex(0);
+            jobTarget.setStatus(JobTargetStatus.PROCESS_AWAITING);
+            storedJobTargets.add(jobTarget);
+        }
+    }
+
+    private static DefaultTargetReader openReader(Serializable checkpoint) throws Exception {
+        Properties jobProperties = new Properties();
+        jobProperties.setProperty(JobContextPropertyNames.JOB_SCOPE_ID, KapuaId.ONE.toCompactId());
+        jobProperties.setProperty(JobContextPropertyNames.JOB_ID, KapuaId.ONE.toCompactId());
+        jobProperties.setProperty(JobContextPropertyNames.JOB_TARGET_PAGE_SIZE, Integer.toString(PAGE_SIZE));
+        jobProperties.setProperty(JobContextPropertyNames.JOB_TARGET_SUBLIST, XmlUtil.marshal(new JobTargetSublist()));
+        Properties stepProperties = new Properties();
+        stepProperties.setProperty(StepContextPropertyNames.STEP_INDEX, "0");
+
+        // inject the job and step contexts as the batch runtime does
+        DefaultTargetReader reader = new DefaultTargetReader();
+        setField(reader, "jobContext", new TestJobContext(jobProperties), JobContext.class);
+        setField(reader, "stepContext", new TestStepContext(stepProperties), StepContext.class);
+
+        reader.open(checkpoint);
+        return reader;
+    }
+
+    private static void setField(DefaultTargetReader reader, String name, Object value, Class<?> type) throws ReflectiveOperationException {
+        Field field = DefaultTargetReader.class.getDeclaredField(name);
+        Assert.assertEquals(type, field.getType());
+        field.setAccessible(true);
+        field.set(reader, value);
+    }
+
+    /**
+     * Reads all the targets, marking them as processed if requested as the writer of the step does
+     */
+    private static List<BigInteger> readAll(DefaultTargetReader reader, boolean process) throws Exception {
+        List<BigInteger> readIds = new ArrayList<>();
+        JobTarget jobTarget;
+        while ((jobTarget = (JobTarget) reader.readItem()) != null) {
+            Assert.assertFalse("The target is read twice", readIds.contains(jobTarget.getId().getId()));
+            readIds.add(jobTarget.getId().getId());
+            if (process) {
+                jobTarget.setStatus(JobTargetStatus.PROCESS_OK);
+            }
+        }
+        return readIds;
+    }
+
+    private static List<BigInteger> ids(int first, int last) {
+        List<BigInteger> ids = new ArrayList<>();
+        for (int i = first; i <= last; i++) {
+            ids.add(BigInteger.valueOf(i));
+        }
+        return ids;
+    }
+}
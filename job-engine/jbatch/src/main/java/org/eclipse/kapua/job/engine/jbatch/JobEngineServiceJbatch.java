@@ -62,6 +62,8 @@ public class JobEngineServiceJbatch implements JobEngineService {
     private static final JobTargetService JOB_TARGET_SERVICE = LOCATOR.getService(JobTargetService.class);
     private static final JobTargetFactory JOB_TARGET_FACTORY = LOCATOR.getFactory(JobTargetFactory.class);
 
+    private static final int MAX_TARGET_PARALLELISM = 1000;
+
     @Override
     public void startJob(KapuaId scopeId, KapuaId jobId) throws KapuaException {
         startJob(scopeId, jobId, new JobStartOptionsImpl());
@@ -74,6 +76,9 @@ public class JobEngineServiceJbatch implements JobEngineService {
         ArgumentValidator.notNull(scopeId, "scopeId");
         ArgumentValidator.notNull(jobId, "jobId");
         ArgumentValidator.notNull(jobStartOptions, "jobStartOptions");
+        if (jobStartOptions.getTargetParallelism() != null) {
+            ArgumentValidator.numRange(jobStartOptions.getTargetParallelism(), 1, MAX_TARGET_PARALLELISM, "jobStartOptions.targetParallelism");
+        }
 
         //
         // Check Access
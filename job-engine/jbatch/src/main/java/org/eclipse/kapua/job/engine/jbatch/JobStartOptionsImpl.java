@@ -23,6 +23,8 @@ public class JobStartOptionsImpl implements JobStartOptions {
 
     private Integer fromStepIndex;
 
+    private Integer targetParallelism;
+
     public JobStartOptionsImpl() {
     }
 
@@ -59,4 +61,14 @@ public class JobStartOptionsImpl implements JobStartOptions {
     public void setFromStepIndex(Integer fromStepIndex) {
         this.fromStepIndex = fromStepIndex;
     }
+
+    @Override
+    public Integer getTargetParallelism() {
+        return targetParallelism;
+    }
+
+    @Override
+    public void setTargetParallelism(Integer targetParallelism) {
+        this.targetParallelism = targetParallelism;
+    }
 }
@@ -0,0 +1,39 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Eurotech and/or its affiliates and others
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Eurotech - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.kapua.job.engine.jbatch.cluster;
+
+import org.eclipse.kapua.KapuaException;
+import org.eclipse.kapua.commons.core.ServiceModule;
+import org.eclipse.kapua.locator.KapuaProvider;
+
+/**
+ * {@link ServiceModule} that starts the {@link JobPartitionLeaseWorker} of this job engine node when {@link JobPartitionLeaseWorker#isClusterEnabled()}.
+ *
+ * @since 1.0.0
+ */
+@KapuaProvider
+public class JobEngineClusterModule implements ServiceModule {
+
+    @Override
+    public void start() throws KapuaException {
+        if (JobPartitionLeaseWorker.isClusterEnabled()) {
+            JobPartitionLeaseWorker.getInstance().start();
+        }
+    }
+
+    @Override
+    public void stop() throws KapuaException {
+        if (JobPartitionLeaseWorker.isClusterEnabled()) {
+            JobPartitionLeaseWorker.getInstance().stop();
+        }
+    }
+}
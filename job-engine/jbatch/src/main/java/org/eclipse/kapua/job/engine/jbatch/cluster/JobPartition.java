@@ -0,0 +1,175 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Eurotech and/or its affiliates and others
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Eurotech - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.kapua.job.engine.jbatch.cluster;
+
+import org.eclipse.kapua.model.id.KapuaId;
+
+import java.util.Date;
+import java.util.Properties;
+
+/**
+ * A range of the {@link org.eclipse.kapua.service.job.targets.JobTarget}s of a job execution, identified by the ids of its first and last target.
+ * <p>
+ * Each {@link JobPartition} is run as a separate jBatch job by the job engine node that holds its lease,
+ * so all the nodes sharing the database cooperate to process the targets of the same job execution.
+ *
+ * @since 1.0.0
+ */
+public class JobPartition {
+
+    private KapuaId scopeId;
+    private KapuaId jobId;
+    private int partitionIndex;
+    private KapuaId jobExecutionId;
+    private KapuaId firstTargetId;
+    private KapuaId lastTargetId;
+    private Properties jobParameters;
+    private JobPartitionStatus status;
+    private String owner;
+    private Date leaseExpiresOn;
+    private int leaseCount;
+    private int optlock;
+
+    public KapuaId getScopeId() {
+        return scopeId;
+    }
+
+    public void setScopeId(KapuaId scopeId) {
+        this.scopeId = scopeId;
+    }
+
+    public KapuaId getJobId() {
+        return jobId;
+    }
+
+    public void setJobId(KapuaId jobId) {
+        this.jobId = jobId;
+    }
+
+    public int getPartitionIndex() {
+        return partitionIndex;
+    }
+
+    public void setPartitionIndex(int partitionIndex) {
+        this.partitionIndex = partitionIndex;
+    }
+
+    /**
+     * Gets the id of the {@link org.eclipse.kapua.service.job.execution.JobExecution} shared by all the {@link JobPartition}s of the job execution.
+     *
+     * @return The id of the {@link org.eclipse.kapua.service.job.execution.JobExecution}.
+     */
+    public KapuaId getJobExecutionId() {
+        return jobExecutionId;
+    }
+
+    public void setJobExecutionId(KapuaId jobExecutionId) {
+        this.jobExecutionId = jobExecutionId;
+    }
+
+    public KapuaId getFirstTargetId() {
+        return firstTargetId;
+    }
+
+    public void setFirstTargetId(KapuaId firstTargetId) {
+        this.firstTargetId = firstTargetId;
+    }
+
+    public KapuaId getLastTargetId() {
+        return lastTargetId;
+    }
+
+    public void setLastTargetId(KapuaId lastTargetId) {
+        this.lastTargetId = lastTargetId;
+    }
+
+    /**
+     * Gets the jBatch job parameters used to start the {@link JobPartition}.
+     *
+     * @return The jBatch job parameters.
+     */
+    public Properties getJobParameters() {
+        if (jobParameters == null) {
+            jobParameters = new Properties();
+        }
+
+        return jobParameters;
+    }
+
+    public void setJobParameters(Properties jobParameters) {
+        this.jobParameters = jobParameters;
+    }
+
+    public JobPartitionStatus getStatus() {
+        return status;
+    }
+
+    public void setStatus(JobPartitionStatus status) {
+        this.status = status;
+    }
+
+    /**
+     * Gets the id of the job engine node that holds the lease of the {@link JobPartition}.
+     *
+     * @return The job engine node id, or {@code null} if the {@link JobPartition} is not leased.
+     */
+    public String getOwner() {
+        return owner;
+    }
+
+    public void setOwner(String owner) {
+        this.owner = owner;
+    }
+
+    /**
+     * Gets the expiration of the lease, as read from the database.
+     * <p>
+     * The expiration is computed by the database when the {@link JobPartition} is leased or its lease is renewed, so it is not updated by them.
+     *
+     * @return The expiration of the lease, or {@code null} if the {@link JobPartition} is not leased.
+     */
+    public Date getLeaseExpiresOn() {
+        return leaseExpiresOn;
+    }
+
+    public void setLeaseExpiresOn(Date leaseExpiresOn) {
+        this.leaseExpiresOn = leaseExpiresOn;
+    }
+
+    /**
+     * Gets the number of times the {@link JobPartition} has been leased.
+     * <p>
+     * It identifies the current lease: a node that lost the lease cannot renew or complete the {@link JobPartition} anymore.
+     *
+     * @return The number of times the {@link JobPartition} has been leased.
+     */
+    public int getLeaseCount() {
+        return leaseCount;
+    }
+
+    public void setLeaseCount(int leaseCount) {
+        this.leaseCount = leaseCount;
+    }
+
+    public int getOptlock() {
+        return optlock;
+    }
+
+    public void setOptlock(int optlock) {
+        this.optlock = optlock;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s-%s-p%d", scopeId.toCompactId(), jobId.toCompactId(), partitionIndex);
+    }
+}
@@ -0,0 +1,366 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Eurotech and/or its affiliates and others
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Eurotech - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.kapua.job.engine.jbatch.cluster;
+
+import org.eclipse.kapua.commons.jpa.DataSourceProviders;
+import org.eclipse.kapua.commons.jpa.JdbcConnectionUrlResolvers;
+import org.eclipse.kapua.commons.model.id.KapuaEid;
+import org.eclipse.kapua.commons.setting.system.SystemSetting;
+import org.eclipse.kapua.commons.setting.system.SystemSettingKey;
+import org.eclipse.kapua.model.id.KapuaId;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Properties;
+
+/**
+ * Stores the {@link JobPartition}s and their leases in the job_engine_partition_lease table of the database shared by the job engine nodes.
+ * <p>
+ * A {@link JobPartition} is leased by a conditional update on its optlock, so only one node can lease it. The lease must then be renewed before it expires:
+ * the {@link JobPartition}s whose lease is expired (i.e. the owner node crashed or lost the database connection) are leased again by the other nodes.
+ * Lease expiration is computed and checked with the clock of the database, so it does not depend on the clocks of the nodes.
+ *
+ * @since 1.0.0
+ */
+public class JobPartitionLeaseDAO {
+
+    private static final String COLUMNS = "scope_id, job_id, partition_index, job_execution_id, first_target_id, last_target_id, job_parameters, status, owner, lease_expires_on, lease_count, optlock";
+
+    /**
+     * Expiration of a lease taken or renewed now, for the duration in seconds given as parameter.
+     */
+    private static final String LEASE_EXPIRES_ON = "TIMESTAMPADD(SECOND, ?, CURRENT_TIMESTAMP)";
+
+    private static final String INSERT = "INSERT INTO job_engine_partition_lease (" + COLUMNS + ") VALUES (?, ?, ?, ?, ?, ?, ?, ?, NULL, NULL, 0, 0)";
+
+    private static final String DELETE = "DELETE FROM job_engine_partition_lease WHERE scope_id = ? AND job_id = ?";
+
+    private static final String SELECT_LEASABLE = "SELECT " + COLUMNS + " FROM job_engine_partition_lease "
+            + "WHERE status = 'PENDING' OR (status = 'RUNNING' AND lease_expires_on < CURRENT_TIMESTAMP) "
+            + "ORDER BY partition_index";
+
+    private static final String LEASE = "UPDATE job_engine_partition_lease "
+            + "SET status = 'RUNNING', owner = ?, lease_expires_on = " + LEASE_EXPIRES_ON + ", lease_count = lease_count + 1, optlock = optlock + 1 "
+            + "WHERE scope_id = ? AND job_id = ? AND partition_index = ? AND optlock = ?";
+
+    private static final String RENEW = "UPDATE job_engine_partition_lease "
+            + "SET lease_expires_on = " + LEASE_EXPIRES_ON + ", optlock = optlock + 1 "
+            + "WHERE scope_id = ? AND job_id = ? AND partition_index = ? AND status = 'RUNNING' AND owner = ? AND lease_count = ?";
+
+    private static final String RELEASE = "UPDATE job_engine_partition_lease "
+            + "SET status = ?, owner = NULL, lease_expires_on = NULL, optlock = optlock + 1 "
+            + "WHERE scope_id = ? AND job_id = ? AND partition_index = ? AND status = 'RUNNING' AND owner = ? AND lease_count = ?";
+
+    private static final String CANCEL = "UPDATE job_engine_partition_lease "
+            + "SET status = 'CANCELLED', owner = NULL, lease_expires_on = NULL, optlock = optlock + 1 "
+            + "WHERE scope_id = ? AND job_id = ? AND status IN ('PENDING', 'RUNNING')";
+
+    private static final String COUNT_UNFINISHED = "SELECT COUNT(*) FROM job_engine_partition_lease "
+            + "WHERE scope_id = ? AND job_id = ? AND status IN ('PENDING', 'RUNNING')";
+
+    /**
+     * Maximum number of leasable {@link JobPartition}s read by a lease attempt. They are tried in random order, to limit the conflicts between nodes leasing at the same time.
+     */
+    private static final int LEASE_CANDIDATES_MAX = 16;
+
+    private final DataSource dataSource;
+
+    /**
+     * Constructor.
+     * <p>
+     * It connects to the Kapua database through the shared {@link DataSource} of the services. When the services use the EclipseLink internal pool instead,
+     * it opens a connection for each operation like the jBatch persistence manager does, since the leases are read and written only every lease renew interval.
+     */
+    public JobPartitionLeaseDAO() {
+        this(DataSourceProviders.getDataSource());
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param dataSource The {@link DataSource} of the database shared by the job engine nodes, or {@code null} to connect to the Kapua database without pooling.
+     */
+    public JobPartitionLeaseDAO(DataSource dataSource) {
+        this.dataSource = dataSource;
+    }
+
+    /**
+     * Replaces the {@link JobPartition}s of the job with the given ones, which are all {@link JobPartitionStatus#PENDING}.
+     *
+     * @param scopeId       The scope id of the job.
+     * @param jobId         The id of the job.
+     * @param jobPartitions The {@link JobPartition}s of the new job execution.
+     * @throws SQLException
+     */
+    public void replace(KapuaId scopeId, KapuaId jobId, List<JobPartition> jobPartitions) throws SQLException {
+        try (Connection connection = getConnection()) {
+            connection.setAutoCommit(false);
+            try {
+                try (PreparedStatement statement = connection.prepareStatement(DELETE)) {
+                    setJobKey(statement, 1, scopeId, jobId);
+                    statement.executeUpdate();
+                }
+
+                try (PreparedStatement statement = connection.prepareStatement(INSERT)) {
+                    for (JobPartition jobPartition : jobPartitions) {
+                        setJobKey(statement, 1, jobPartition.getScopeId(), jobPartition.getJobId());
+                        statement.setInt(3, jobPartition.getPartitionIndex());
+                        statement.setBigDecimal(4, toBigDecimal(jobPartition.getJobExecutionId()));
+                        statement.setBigDecimal(5, toBigDecimal(jobPartition.getFirstTargetId()));
+                        statement.setBigDecimal(6, toBigDecimal(jobPartition.getLastTargetId()));
+                        statement.setString(7, storeJobParameters(jobPartition.getJobParameters()));
+                        statement.setString(8, JobPartitionStatus.PENDING.name());
+                        statement.addBatch();
+                    }
+                    statement.executeBatch();
+                }
+
+                connection.commit();
+            } catch (SQLException e) {
+                connection.rollback();
+                throw e;
+            }
+        }
+    }
+
+    /**
+     * Leases a {@link JobPartition} that is {@link JobPartitionStatus#PENDING} or whose lease is expired.
+     *
+     * @param owner         The id of the job engine node leasing the {@link JobPartition}.
+     * @param leaseDuration The duration of the lease, in milliseconds. It is rounded up to seconds.
+     * @return The leased {@link JobPartition}, or {@code null} if there is no {@link JobPartition} to lease.
+     * @throws SQLException
+     */
+    public JobPartition lease(String owner, long leaseDuration) throws SQLException {
+        try (Connection connection = getConnection()) {
+            List<JobPartition> candidates = new ArrayList<>();
+            try (PreparedStatement statement = connection.prepareStatement(SELECT_LEASABLE)) {
+                statement.setMaxRows(LEASE_CANDIDATES_MAX);
+                try (ResultSet resultSet = statement.executeQuery()) {
+                    while (resultSet.next()) {
+                        candidates.add(readJobPartition(resultSet));
+                    }
+                }
+            }
+            Collections.shuffle(candidates);
+
+            try (PreparedStatement statement = connection.prepareStatement(LEASE)) {
+                for (JobPartition candidate : candidates) {
+                    statement.setString(1, owner);
+                    statement.setLong(2, toLeaseSeconds(leaseDuration));
+                    setJobKey(statement, 3, candidate.getScopeId(), candidate.getJobId());
+                    statement.setInt(5, candidate.getPartitionIndex());
+                    statement.setInt(6, candidate.getOptlock());
+
+                    if (statement.executeUpdate() == 1) {
+                        candidate.setStatus(JobPartitionStatus.RUNNING);
+                        candidate.setOwner(owner);
+                        candidate.setLeaseCount(candidate.getLeaseCount() + 1);
+                        candidate.setOptlock(candidate.getOptlock() + 1);
+                        return candidate;
+                    }
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Extends the lease of the {@link JobPartition}.
+     *
+     * @param jobPartition  The leased {@link JobPartition}.
+     * @param leaseDuration The duration of the lease from now, in milliseconds. It is rounded up to seconds.
+     * @return {@code true} if the lease has been extended, {@code false} if the lease is lost (i.e. expired and taken by another node, or the job has been stopped).
+     * @throws SQLException
+     */
+    public boolean renew(JobPartition jobPartition, long leaseDuration) throws SQLException {
+        try (Connection connection = getConnection();
+                PreparedStatement statement = connection.prepareStatement(RENEW)) {
+            statement.setLong(1, toLeaseSeconds(leaseDuration));
+            setJobKey(statement, 2, jobPartition.getScopeId(), jobPartition.getJobId());
+            statement.setInt(4, jobPartition.getPartitionIndex());
+            statement.setString(5, jobPartition.getOwner());
+            statement.setInt(6, jobPartition.getLeaseCount());
+
+            return statement.executeUpdate() == 1;
+        }
+    }
+
+    /**
+     * Marks the {@link JobPartition} as {@link JobPartitionStatus#COMPLETED}, if the lease is still held by the owner.
+     *
+     * @param scopeId        The scope id of the job.
+     * @param jobId          The id of the job.
+     * @param partitionIndex The index of the {@link JobPartition}.
+     * @param owner          The id of the job engine node holding the lease.
+     * @param leaseCount     The {@link JobPartition#getLeaseCount()} of the lease.
+     * @return {@code true} if the {@link JobPartition} has been completed, {@code false} if the lease was lost.
+     * @throws SQLException
+     */
+    public boolean complete(KapuaId scopeId, KapuaId jobId, int partitionIndex, String owner, int leaseCount) throws SQLException {
+        return release(scopeId, jobId, partitionIndex, owner, leaseCount, JobPartitionStatus.COMPLETED);
+    }
+
+    /**
+     * Gives back the lease of the {@link JobPartition}, which is set {@link JobPartitionStatus#PENDING} to be leased again immediately by any node.
+     *
+     * @param jobPartition The leased {@link JobPartition}.
+     * @return {@code true} if the lease has been given back, {@code false} if the lease was already lost.
+     * @throws SQLException
+     */
+    public boolean release(JobPartition jobPartition) throws SQLException {
+        return release(jobPartition.getScopeId(), jobPartition.getJobId(), jobPartition.getPartitionIndex(), jobPartition.getOwner(), jobPartition.getLeaseCount(), JobPartitionStatus.PENDING);
+    }
+
+    /**
+     * Marks the {@link JobPartitionStatus#PENDING} and {@link JobPartitionStatus#RUNNING} {@link JobPartition}s of the job as {@link JobPartitionStatus#CANCELLED}.
+     * <p>
+     * The nodes running them stop their executions when they fail to renew the lease.
+     *
+     * @param scopeId The scope id of the job.
+     * @param jobId   The id of the job.
+     * @return The number of cancelled {@link JobPartition}s.
+     * @throws SQLException
+     */
+    public int cancel(KapuaId scopeId, KapuaId jobId) throws SQLException {
+        try (Connection connection = getConnection();
+                PreparedStatement statement = connection.prepareStatement(CANCEL)) {
+            setJobKey(statement, 1, scopeId, jobId);
+            return statement.executeUpdate();
+        }
+    }
+
+    /**
+     * Counts the {@link JobPartitionStatus#PENDING} and {@link JobPartitionStatus#RUNNING} {@link JobPartition}s of the job.
+     *
+     * @param scopeId The scope id of the job.
+     * @param jobId   The id of the job.
+     * @return The number of {@link JobPartition}s not yet completed nor cancelled.
+     * @throws SQLException
+     */
+    public long countUnfinished(KapuaId scopeId, KapuaId jobId) throws SQLException {
+        try (Connection connection = getConnection();
+                PreparedStatement statement = connection.prepareStatement(COUNT_UNFINISHED)) {
+            setJobKey(statement, 1, scopeId, jobId);
+            try (ResultSet resultSet = statement.executeQuery()) {
+                return resultSet.next() ? resultSet.getLong(1) : 0;
+            }
+        }
+    }
+
+    /**
+     * Deletes the {@link JobPartition}s of the job.
+     *
+     * @param scopeId The scope id of the job.
+     * @param jobId   The id of the job.
+     * @throws SQLException
+     */
+    public void delete(KapuaId scopeId, KapuaId jobId) throws SQLException {
+        try (Connection connection = getConnection();
+                PreparedStatement statement = connection.prepareStatement(DELETE)) {
+            setJobKey(statement, 1, scopeId, jobId);
+            statement.executeUpdate();
+        }
+    }
+
+    //
+    // Private methods
+    //
+    private boolean release(KapuaId scopeId, KapuaId jobId, int partitionIndex, String owner, int leaseCount, JobPartitionStatus status) throws SQLException {
+        try (Connection connection = getConnection();
+                PreparedStatement statement = connection.prepareStatement(RELEASE)) {
+            statement.setString(1, status.name());
+            setJobKey(statement, 2, scopeId, jobId);
+            statement.setInt(4, partitionIndex);
+            statement.setString(5, owner);
+            statement.setInt(6, leaseCount);
+            return statement.executeUpdate() == 1;
+        }
+    }
+
+    private Connection getConnection() throws SQLException {
+        if (dataSource != null) {
+            return dataSource.getConnection();
+        }
+
+        SystemSetting systemSetting = SystemSetting.getInstance();
+        return DriverManager.getConnection(JdbcConnectionUrlResolvers.resolveJdbcUrl(),
+                systemSetting.getString(SystemSettingKey.DB_USERNAME),
+                systemSetting.getString(SystemSettingKey.DB_PASSWORD));
+    }
+
+    private static long toLeaseSeconds(long leaseDuration) {
+        return (leaseDuration + 999) / 1000;
+    }
+
+    private static void setJobKey(PreparedStatement statement, int parameterIndex, KapuaId scopeId, KapuaId jobId) throws SQLException {
+        statement.setBigDecimal(parameterIndex, toBigDecimal(scopeId));
+        statement.setBigDecimal(parameterIndex + 1, toBigDecimal(jobId));
+    }
+
+    private static JobPartition readJobPartition(ResultSet resultSet) throws SQLException {
+        JobPartition jobPartition = new JobPartition();
+        jobPartition.setScopeId(toKapuaId(resultSet.getBigDecimal("scope_id")));
+        jobPartition.setJobId(toKapuaId(resultSet.getBigDecimal("job_id")));
+        jobPartition.setPartitionIndex(resultSet.getInt("partition_index"));
+        jobPartition.setJobExecutionId(toKapuaId(resultSet.getBigDecimal("job_execution_id")));
+        jobPartition.setFirstTargetId(toKapuaId(resultSet.getBigDecimal("first_target_id")));
+        jobPartition.setLastTargetId(toKapuaId(resultSet.getBigDecimal("last_target_id")));
+        jobPartition.setJobParameters(loadJobParameters(resultSet.getString("job_parameters")));
+        jobPartition.setStatus(JobPartitionStatus.valueOf(resultSet.getString("status")));
+        jobPartition.setOwner(resultSet.getString("owner"));
+        jobPartition.setLeaseExpiresOn(resultSet.getTimestamp("lease_expires_on"));
+        jobPartition.setLeaseCount(resultSet.getInt("lease_count"));
+        jobPartition.setOptlock(resultSet.getInt("optlock"));
+        return jobPartition;
+    }
+
+    private static BigDecimal toBigDecimal(KapuaId kapuaId) {
+        return new BigDecimal(kapuaId.getId());
+    }
+
+    private static KapuaId toKapuaId(BigDecimal id) {
+        return id != null ? new KapuaEid(id.toBigInteger()) : null;
+    }
+
+    private static String storeJobParameters(Properties jobParameters) throws SQLException {
+        try (StringWriter writer = new StringWriter()) {
+            jobParameters.store(writer, null);
+            return writer.toString();
+        } catch (IOException e) {
+            throw new SQLException("Cannot store the job partition parameters", e);
+        }
+    }
+
+    private static Properties loadJobParameters(String jobParametersString) throws SQLException {
+        Properties jobParameters = new Properties();
+        if (jobParametersString != null) {
+            try (StringReader reader = new StringReader(jobParametersString)) {
+                jobParameters.load(reader);
+            } catch (IOException e) {
+                throw new SQLException("Cannot load the job partition parameters", e);
+            }
+        }
+        return jobParameters;
+    }
+}
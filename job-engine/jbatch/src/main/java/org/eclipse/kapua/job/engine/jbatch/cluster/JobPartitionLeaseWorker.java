@@ -0,0 +1,362 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Eurotech and/or its affiliates and others
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Eurotech - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.kapua.job.engine.jbatch.cluster;
+
+import com.google.common.base.Strings;
+import org.eclipse.kapua.KapuaException;
+import org.eclipse.kapua.commons.security.KapuaSecurityUtils;
+import org.eclipse.kapua.job.engine.jbatch.driver.JbatchDriver;
+import org.eclipse.kapua.job.engine.jbatch.driver.JbatchJobRunningStatuses;
+import org.eclipse.kapua.job.engine.jbatch.setting.KapuaJobEngineSetting;
+import org.eclipse.kapua.job.engine.jbatch.setting.KapuaJobEngineSettingKeys;
+import org.eclipse.kapua.locator.KapuaLocator;
+import org.eclipse.kapua.model.id.KapuaId;
+import org.eclipse.kapua.service.job.execution.JobExecution;
+import org.eclipse.kapua.service.job.execution.JobExecutionService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.batch.runtime.BatchRuntime;
+import javax.batch.runtime.BatchStatus;
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.sql.SQLException;
+import java.util.Date;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Leases the {@link JobPartition}s of the running jobs and runs them on this job engine node.
+ * <p>
+ * Every {@link KapuaJobEngineSettingKeys#JOB_ENGINE_CLUSTER_LEASE_RENEW_INTERVAL} the worker renews the leases of the {@link JobPartition}s it runs,
+ * stopping the ones whose lease has been lost, and then leases new {@link JobPartition}s up to {@link KapuaJobEngineSettingKeys#JOB_ENGINE_CLUSTER_PARTITION_MAX}.
+ * It also looks for new {@link JobPartition}s as soon as a job is started or a {@link JobPartition} ends on this node.
+ * <p>
+ * A {@link JobPartition} taken over from a failed node resumes from the targets it did not process: the targets of a partitioned job execution are
+ * {@link org.eclipse.kapua.service.job.targets.JobTargetStatus#PROCESS_AWAITING} until a step processes them, and the target reader of a {@link JobPartition}
+ * skips the other ones. So a target is processed and counted in the progress of the job execution only once for each step, even when its {@link JobPartition} is taken over.
+ *
+ * @since 1.0.0
+ */
+public class JobPartitionLeaseWorker {
+
+    private static final Logger LOG = LoggerFactory.getLogger(JobPartitionLeaseWorker.class);
+
+    private static final KapuaJobEngineSetting JOB_ENGINE_SETTING = KapuaJobEngineSetting.getInstance();
+
+    private static JobPartitionLeaseWorker instance;
+
+    private final JobPartitionLeaseDAO jobPartitionLeaseDAO;
+
+    private final String nodeId;
+    private final int partitionMax;
+    private final long leaseDuration;
+    private final long leaseRenewInterval;
+
+    private final Map<String, LeasedJobPartition> leasedJobPartitions = new ConcurrentHashMap<>();
+
+    private ScheduledExecutorService executor;
+
+    private JobPartitionLeaseWorker() {
+        this(new JobPartitionLeaseDAO(),
+                resolveNodeId(),
+                JOB_ENGINE_SETTING.getInt(KapuaJobEngineSettingKeys.JOB_ENGINE_CLUSTER_PARTITION_MAX, 2),
+                JOB_ENGINE_SETTING.getLong(KapuaJobEngineSettingKeys.JOB_ENGINE_CLUSTER_LEASE_DURATION, 60000L),
+                JOB_ENGINE_SETTING.getLong(KapuaJobEngineSettingKeys.JOB_ENGINE_CLUSTER_LEASE_RENEW_INTERVAL, 10000L));
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param jobPartitionLeaseDAO The {@link JobPartitionLeaseDAO} of the database shared by the job engine nodes.
+     * @param nodeId               The id of this job engine node.
+     * @param partitionMax         The maximum number of {@link JobPartition}s run at the same time by this node.
+     * @param leaseDuration        The duration of the leases, in milliseconds.
+     * @param leaseRenewInterval   The interval between the renewals of the leases, in milliseconds.
+     */
+    JobPartitionLeaseWorker(JobPartitionLeaseDAO jobPartitionLeaseDAO, String nodeId, int partitionMax, long leaseDuration, long leaseRenewInterval) {
+        this.jobPartitionLeaseDAO = jobPartitionLeaseDAO;
+        this.nodeId = nodeId;
+        this.partitionMax = partitionMax;
+        this.leaseDuration = leaseDuration;
+        this.leaseRenewInterval = leaseRenewInterval;
+    }
+
+    public static synchronized JobPartitionLeaseWorker getInstance() {
+        if (instance == null) {
+            instance = new JobPartitionLeaseWorker();
+        }
+        return instance;
+    }
+
+    /**
+     * Checks whether or not the targets of the jobs are split in {@link JobPartition}s processed by all the job engine nodes.
+     *
+     * @return The {@link KapuaJobEngineSettingKeys#JOB_ENGINE_CLUSTER_ENABLED} value.
+     */
+    public static boolean isClusterEnabled() {
+        return JOB_ENGINE_SETTING.getBoolean(KapuaJobEngineSettingKeys.JOB_ENGINE_CLUSTER_ENABLED, false);
+    }
+
+    /**
+     * Gets the {@link JobPartitionLeaseDAO} of this job engine node, shared with the {@link JbatchDriver}.
+     * <p>
+     * It must be used only when {@link #isClusterEnabled()}.
+     *
+     * @return The {@link JobPartitionLeaseDAO} of this job engine node.
+     */
+    public JobPartitionLeaseDAO getJobPartitionLeaseDAO() {
+        return jobPartitionLeaseDAO;
+    }
+
+    /**
+     * Gets the id of this job engine node, used as owner of the {@link JobPartition} leases.
+     *
+     * @return The id of this job engine node.
+     */
+    public String getNodeId() {
+        return nodeId;
+    }
+
+    public synchronized void start() {
+        if (executor != null) {
+            return;
+        }
+
+        LOG.info("Starting job partition lease worker on node {}...", nodeId);
+        executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "job-engine-partition-lease");
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.scheduleWithFixedDelay(this::poll, 0, leaseRenewInterval, TimeUnit.MILLISECONDS);
+        LOG.info("Starting job partition lease worker on node {}... DONE!", nodeId);
+    }
+
+    /**
+     * Stops the worker and the {@link JobPartition}s running on this node. Their leases are given back, so the other nodes can take them over without waiting for the lease expiration.
+     */
+    public synchronized void stop() {
+        if (executor == null) {
+            return;
+        }
+
+        LOG.info("Stopping job partition lease worker on node {}...", nodeId);
+        executor.shutdownNow();
+        executor = null;
+
+        for (LeasedJobPartition leasedJobPartition : leasedJobPartitions.values()) {
+            stopJbatchExecution(leasedJobPartition);
+            try {
+                jobPartitionLeaseDAO.release(leasedJobPartition.getJobPartition());
+            } catch (SQLException e) {
+                LOG.warn("Cannot release job partition {}. It will be taken over when the lease expires", leasedJobPartition.getJobPartition(), e);
+            }
+        }
+        leasedJobPartitions.clear();
+        LOG.info("Stopping job partition lease worker on node {}... DONE!", nodeId);
+    }
+
+    /**
+     * Looks for {@link JobPartition}s to lease without waiting for the next renewal.
+     */
+    public synchronized void wakeUp() {
+        if (executor != null) {
+            executor.execute(this::poll);
+        }
+    }
+
+    /**
+     * Stops the {@link JobPartition}s of the job running on this node.
+     *
+     * @param scopeId The scope id of the job.
+     * @param jobId   The id of the job.
+     */
+    public void stopJobPartitions(KapuaId scopeId, KapuaId jobId) {
+        leasedJobPartitions.values().stream()
+                .filter(ljp -> ljp.getJobPartition().getScopeId().equals(scopeId) && ljp.getJobPartition().getJobId().equals(jobId))
+                .forEach(this::stopJbatchExecution);
+    }
+
+    /**
+     * Marks the {@link JobPartition} as {@link JobPartitionStatus#COMPLETED} when its jBatch job ends on this node.
+     * <p>
+     * When the job has no more {@link JobPartition}s to process, the {@link JobExecution} shared by the {@link JobPartition}s is ended.
+     *
+     * @param scopeId        The scope id of the job.
+     * @param jobId          The id of the job.
+     * @param partitionIndex The index of the {@link JobPartition}.
+     * @param leaseCount     The {@link JobPartition#getLeaseCount()} of the lease held by this node.
+     * @param jobExecutionId The id of the {@link JobExecution} shared by the {@link JobPartition}s.
+     * @throws SQLException    if the {@link JobPartition} cannot be updated.
+     * @throws KapuaException if the {@link JobExecution} cannot be updated.
+     */
+    public void completeJobPartition(KapuaId scopeId, KapuaId jobId, int partitionIndex, int leaseCount, KapuaId jobExecutionId) throws SQLException, KapuaException {
+        leasedJobPartitions.remove(getJobPartitionKey(scopeId, jobId, partitionIndex));
+
+        if (!jobPartitionLeaseDAO.complete(scopeId, jobId, partitionIndex, nodeId, leaseCount)) {
+            LOG.info("Job partition {}-{}-p{} ended after its lease was lost", scopeId.toCompactId(), jobId.toCompactId(), partitionIndex);
+        }
+
+        if (jobPartitionLeaseDAO.countUnfinished(scopeId, jobId) == 0) {
+            endJobExecution(scopeId, jobExecutionId);
+        }
+
+        wakeUp();
+    }
+
+    /**
+     * Ends the {@link JobExecution} shared by the {@link JobPartition}s of a job, unless it has already been ended.
+     *
+     * @param scopeId        The scope id of the job.
+     * @param jobExecutionId The id of the {@link JobExecution}.
+     * @throws KapuaException if the {@link JobExecution} cannot be updated.
+     */
+    void endJobExecution(KapuaId scopeId, KapuaId jobExecutionId) throws KapuaException {
+        JobExecutionService jobExecutionService = KapuaLocator.getInstance().getService(JobExecutionService.class);
+        KapuaSecurityUtils.doPrivileged(() -> {
+            JobExecution jobExecution = jobExecutionService.find(scopeId, jobExecutionId);
+            if (jobExecution != null && jobExecution.getEndedOn() == null) {
+                jobExecution.setEndedOn(new Date());
+                jobExecutionService.update(jobExecution);
+            }
+        });
+    }
+
+    /**
+     * Starts the jBatch job of a {@link JobPartition} leased by this node.
+     *
+     * @param jobPartition The leased {@link JobPartition}.
+     * @return The id of the jBatch job execution.
+     * @throws KapuaException if the jBatch job cannot be started.
+     */
+    long startJbatchExecution(JobPartition jobPartition) throws KapuaException {
+        return JbatchDriver.startJobPartition(jobPartition, jobPartition.getLeaseCount());
+    }
+
+    /**
+     * Checks whether or not the jBatch job execution of a {@link JobPartition} is still running.
+     *
+     * @param jbatchExecutionId The id of the jBatch job execution.
+     * @return {@code true} if the jBatch job execution has one of the {@link JbatchJobRunningStatuses}, {@code false} otherwise.
+     */
+    boolean isJbatchExecutionRunning(long jbatchExecutionId) {
+        BatchStatus batchStatus = BatchRuntime.getJobOperator().getJobExecution(jbatchExecutionId).getBatchStatus();
+        return JbatchJobRunningStatuses.getStatuses().contains(batchStatus);
+    }
+
+    /**
+     * Stops the jBatch job execution of a {@link JobPartition}.
+     *
+     * @param jbatchExecutionId The id of the jBatch job execution.
+     */
+    void stopJbatchExecution(long jbatchExecutionId) {
+        BatchRuntime.getJobOperator().stop(jbatchExecutionId);
+    }
+
+    /**
+     * Renews the leases of the {@link JobPartition}s running on this node, then leases new ones.
+     */
+    void poll() {
+        try {
+            renewLeases();
+            leaseJobPartitions();
+        } catch (Exception e) {
+            LOG.error("Error while polling job partitions on node {}", nodeId, e);
+        }
+    }
+
+    private void renewLeases() throws SQLException, KapuaException {
+        for (LeasedJobPartition leasedJobPartition : leasedJobPartitions.values()) {
+            JobPartition jobPartition = leasedJobPartition.getJobPartition();
+
+            if (!isJbatchExecutionRunning(leasedJobPartition.getJbatchExecutionId())) {
+                // The job listener has not completed the partition, i.e. the jBatch job failed before running it
+                LOG.warn("Job partition {} ended without being completed", jobPartition);
+                completeJobPartition(jobPartition.getScopeId(), jobPartition.getJobId(), jobPartition.getPartitionIndex(), jobPartition.getLeaseCount(), jobPartition.getJobExecutionId());
+            } else if (!jobPartitionLeaseDAO.renew(jobPartition, leaseDuration)) {
+                LOG.warn("Lease of job partition {} lost. Stopping it...", jobPartition);
+                leasedJobPartitions.remove(getJobPartitionKey(jobPartition.getScopeId(), jobPartition.getJobId(), jobPartition.getPartitionIndex()));
+                stopJbatchExecution(leasedJobPartition);
+            }
+        }
+    }
+
+    private void leaseJobPartitions() throws SQLException {
+        while (leasedJobPartitions.size() < partitionMax) {
+            JobPartition jobPartition = jobPartitionLeaseDAO.lease(nodeId, leaseDuration);
+            if (jobPartition == null) {
+                return;
+            }
+
+            LOG.info("Leased job partition {} (lease {})", jobPartition, jobPartition.getLeaseCount());
+            try {
+                long jbatchExecutionId = startJbatchExecution(jobPartition);
+                leasedJobPartitions.put(getJobPartitionKey(jobPartition.getScopeId(), jobPartition.getJobId(), jobPartition.getPartitionIndex()), new LeasedJobPartition(jobPartition, jbatchExecutionId));
+            } catch (Exception e) {
+                LOG.error("Cannot start job partition {}. Releasing it...", jobPartition, e);
+                jobPartitionLeaseDAO.release(jobPartition);
+                return;
+            }
+        }
+    }
+
+    private void stopJbatchExecution(LeasedJobPartition leasedJobPartition) {
+        try {
+            stopJbatchExecution(leasedJobPartition.getJbatchExecutionId());
+        } catch (Exception e) {
+            LOG.debug("Cannot stop job partition {}", leasedJobPartition.getJobPartition(), e);
+        }
+    }
+
+    private static String getJobPartitionKey(KapuaId scopeId, KapuaId jobId, int partitionIndex) {
+        return String.format("%s-%s-p%d", scopeId.toCompactId(), jobId.toCompactId(), partitionIndex);
+    }
+
+    private static String resolveNodeId() {
+        String nodeId = JOB_ENGINE_SETTING.getString(KapuaJobEngineSettingKeys.JOB_ENGINE_CLUSTER_NODE_ID, null);
+        if (!Strings.isNullOrEmpty(nodeId)) {
+            return nodeId;
+        }
+
+        String hostName;
+        try {
+            hostName = InetAddress.getLocalHost().getHostName();
+        } catch (UnknownHostException e) {
+            hostName = "job-engine";
+        }
+        return hostName + "-" + UUID.randomUUID().toString().substring(0, 8);
+    }
+
+    private static class LeasedJobPartition {
+
+        private final JobPartition jobPartition;
+        private final long jbatchExecutionId;
+
+        private LeasedJobPartition(JobPartition jobPartition, long jbatchExecutionId) {
+            this.jobPartition = jobPartition;
+            this.jbatchExecutionId = jbatchExecutionId;
+        }
+
+        public JobPartition getJobPartition() {
+            return jobPartition;
+        }
+
+        public long getJbatchExecutionId() {
+            return jbatchExecutionId;
+        }
+    }
+}
@@ -0,0 +1,40 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Eurotech and/or its affiliates and others
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Eurotech - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.kapua.job.engine.jbatch.cluster;
+
+/**
+ * {@link JobPartition} statuses.
+ *
+ * @since 1.0.0
+ */
+public enum JobPartitionStatus {
+
+    /**
+     * The {@link JobPartition} is waiting for a job engine node to lease it.
+     */
+    PENDING,
+
+    /**
+     * The {@link JobPartition} is leased by a job engine node, which is processing its targets.
+     */
+    RUNNING,
+
+    /**
+     * The targets of the {@link JobPartition} have been processed.
+     */
+    COMPLETED,
+
+    /**
+     * The job has been stopped before the {@link JobPartition} was completed.
+     */
+    CANCELLED
+}
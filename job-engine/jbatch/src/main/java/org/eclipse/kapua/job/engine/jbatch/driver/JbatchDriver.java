@@ -12,35 +12,49 @@
 package org.eclipse.kapua.job.engine.jbatch.driver;
 
 import com.google.common.collect.Lists;
+import com.ibm.jbatch.container.exception.PersistenceException;
 import com.ibm.jbatch.container.jsl.ExecutionElement;
 import com.ibm.jbatch.container.jsl.ModelSerializerFactory;
 import com.ibm.jbatch.container.servicesmanager.ServicesManagerImpl;
 import com.ibm.jbatch.jsl.model.JSLJob;
 import com.ibm.jbatch.jsl.model.Step;
-import org.apache.commons.io.IOUtils;
-import org.apache.commons.lang3.SystemUtils;
 
+import org.eclipse.kapua.KapuaEntityNotFoundException;
+import org.eclipse.kapua.KapuaException;
 import org.eclipse.kapua.KapuaIllegalArgumentException;
+import org.eclipse.kapua.commons.model.query.FieldSortCriteria;
 import org.eclipse.kapua.commons.model.query.predicate.AttributePredicateImpl;
+import org.eclipse.kapua.commons.security.KapuaSecurityUtils;
 import org.eclipse.kapua.job.engine.JobStartOptions;
+import org.eclipse.kapua.job.engine.commons.context.JobContextPropertyNames;
+import org.eclipse.kapua.job.engine.jbatch.cluster.JobPartition;
+import org.eclipse.kapua.job.engine.jbatch.cluster.JobPartitionLeaseDAO;
+import org.eclipse.kapua.job.engine.jbatch.cluster.JobPartitionLeaseWorker;
 import org.eclipse.kapua.job.engine.jbatch.driver.exception.CannotBuildJobDefDriverException;
-import org.eclipse.kapua.job.engine.jbatch.driver.exception.CannotCleanJobDefFileDriverException;
-import org.eclipse.kapua.job.engine.jbatch.driver.exception.CannotCreateTmpDirDriverException;
-import org.eclipse.kapua.job.engine.jbatch.driver.exception.CannotWriteJobDefFileDriverException;
 import org.eclipse.kapua.job.engine.jbatch.driver.exception.CleanJobDataDriverException;
 import org.eclipse.kapua.job.engine.jbatch.driver.exception.ExecutionNotFoundDriverException;
 import org.eclipse.kapua.job.engine.jbatch.driver.exception.ExecutionNotRunningDriverException;
 import org.eclipse.kapua.job.engine.jbatch.driver.exception.JbatchDriverException;
 import org.eclipse.kapua.job.engine.jbatch.driver.exception.JobExecutionIsRunningDriverException;
 import org.eclipse.kapua.job.engine.jbatch.driver.exception.JobStartingDriverException;
+import org.eclipse.kapua.job.engine.jbatch.driver.exception.JobStoppingDriverException;
 import org.eclipse.kapua.job.engine.jbatch.driver.utils.JbatchUtil;
 import org.eclipse.kapua.job.engine.jbatch.driver.utils.JobDefinitionBuildUtils;
+import org.eclipse.kapua.job.engine.jbatch.driver.utils.KapuaJobXMLLoaderServiceImpl;
 import org.eclipse.kapua.job.engine.jbatch.persistence.KapuaJDBCPersistenceManagerImpl;
 import org.eclipse.kapua.job.engine.jbatch.setting.KapuaJobEngineSetting;
 import org.eclipse.kapua.job.engine.jbatch.setting.KapuaJobEngineSettingKeys;
 import org.eclipse.kapua.locator.KapuaLocator;
+import org.eclipse.kapua.model.KapuaEntityPredicates;
 import org.eclipse.kapua.model.id.KapuaId;
 import org.eclipse.kapua.service.job.Job;
+import org.eclipse.kapua.service.job.execution.JobExecutionCreator;
+import org.eclipse.kapua.service.job.execution.JobExecutionFactory;
+import org.eclipse.kapua.service.job.execution.JobExecutionListResult;
+import org.eclipse.kapua.service.job.execution.JobExecutionPredicates;
+import org.eclipse.kapua.service.job.execution.JobExecutionProgress;
+import org.eclipse.kapua.service.job.execution.JobExecutionQuery;
+import org.eclipse.kapua.service.job.execution.JobExecutionService;
 import org.eclipse.kapua.service.job.step.JobStep;
 import org.eclipse.kapua.service.job.step.JobStepFactory;
 import org.eclipse.kapua.service.job.step.JobStepListResult;
@@ -49,6 +63,13 @@ import org.eclipse.kapua.service.job.step.JobStepQuery;
 import org.eclipse.kapua.service.job.step.JobStepService;
 import org.eclipse.kapua.service.job.step.definition.JobStepDefinition;
 import org.eclipse.kapua.service.job.step.definition.JobStepDefinitionService;
+import org.eclipse.kapua.service.job.targets.JobTarget;
+import org.eclipse.kapua.service.job.targets.JobTargetFactory;
+import org.eclipse.kapua.service.job.targets.JobTargetListResult;
+import org.eclipse.kapua.service.job.targets.JobTargetPredicates;
+import org.eclipse.kapua.service.job.targets.JobTargetQuery;
+import org.eclipse.kapua.service.job.targets.JobTargetService;
+import org.eclipse.kapua.service.job.targets.JobTargetStatus;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -63,14 +84,15 @@ import javax.batch.runtime.BatchRuntime;
 import javax.batch.runtime.JobExecution;
 import javax.batch.runtime.JobInstance;
 import javax.validation.constraints.NotNull;
-import java.io.File;
-import java.io.FileOutputStream;
-import java.io.IOException;
+import java.sql.SQLException;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Comparator;
+import java.util.Date;
+import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.Properties;
 
 /**
@@ -93,6 +115,12 @@ public class JbatchDriver {
 
     private static final JobStepDefinitionService STEP_DEFINITION_SERVICE = LOCATOR.getService(JobStepDefinitionService.class);
 
+    private static final JobExecutionService JOB_EXECUTION_SERVICE = LOCATOR.getService(JobExecutionService.class);
+    private static final JobExecutionFactory JOB_EXECUTION_FACTORY = LOCATOR.getFactory(JobExecutionFactory.class);
+
+    private static final JobTargetService JOB_TARGET_SERVICE = LOCATOR.getService(JobTargetService.class);
+    private static final JobTargetFactory JOB_TARGET_FACTORY = LOCATOR.getFactory(JobTargetFactory.class);
+
     private JbatchDriver() {
     }
 
@@ -110,107 +138,120 @@ public class JbatchDriver {
         return String.format("job-%s-%s", scopeId.toCompactId(), jobId.toCompactId());
     }
 
+    /**
+     * Builds the jBatch job name of the {@link JobPartition}s of the {@link Job}.
+     * <p>
+     * Format is: job-{scopeIdShort}-{jobIdShort}-partition
+     * <p>
+     * The {@link JobPartition}s use their own jBatch job name, so they don't count as running executions of the {@link Job} when they are left
+     * in a running status by a failed node.
+     *
+     * @param scopeId The scopeId of the {@link Job}
+     * @param jobId   The id of the {@link Job}
+     * @return The jBatch {@link Job} name of the {@link JobPartition}s
+     * @since 1.0.0
+     */
+    public static String getJbatchPartitionJobName(@NotNull KapuaId scopeId, @NotNull KapuaId jobId) {
+        return getJbatchJobName(scopeId, jobId) + "-partition";
+    }
+
     /**
      * Starts a jBatch job with data sourced from the Kapua {@link Job} definition.
      * <p>
      * It builds the XML jBatch job definition using the {@link JSLJob} model definition.
-     * The generated XML is store in the {@link SystemUtils#getJavaIoTmpDir()} since the default configuration of jBatch requires a path name to start the jBatch job
+     * The generated XML is kept in memory by the {@link KapuaJobXMLLoaderServiceImpl} and it is rebuilt only when the {@link JobStep}s of the {@link Job} change,
+     * while the {@link JobStartOptions} are passed to jBatch as job parameters.
+     * <p>
+     * When {@link JobPartitionLeaseWorker#isClusterEnabled()} and the {@link JobStartOptions#getTargetIdSublist()} is empty, the targets are split in {@link JobPartition}s instead,
+     * which are leased and run by all the job engine nodes.
+     * <p>
+     * When {@link KapuaJobEngineSettingKeys#JOB_ENGINE_TARGET_OPERATION_LEDGER_RESUME_ENABLED} and the previous job execution has failed or has been stopped,
+     * the new job execution resumes its operation ledger (see {@link #findResumedJobExecutionId(KapuaId, KapuaId)}).
      *
      * @param scopeId         The scopeId of the {@link Job}
      * @param jobId           The id of the {@link Job}
      * @param jobStartOptions The {@link JobStartOptions} for this start {@link org.eclipse.kapua.service.job.Job} request.
      * @throws CannotBuildJobDefDriverException     if the creation of the {@link JSLJob} fails
-     * @throws CannotCreateTmpDirDriverException    if the temp directory for storing the XML job definition file cannot be created
-     * @throws CannotCleanJobDefFileDriverException if the XML job definition file cannot be deleted, when existing
-     * @throws CannotWriteJobDefFileDriverException if the XML job definition file cannot be created and written in the tmp directory
      * @throws JobExecutionIsRunningDriverException if the jBatch job has another {@link JobExecution} running
      * @throws JobStartingDriverException           if invoking {@link JobOperator#start(String, Properties)} throws an {@link Exception}
      */
     public static void startJob(@NotNull KapuaId scopeId, @NotNull KapuaId jobId, @NotNull JobStartOptions jobStartOptions)
             throws JbatchDriverException {
 
-        String jobXmlDefinition;
+        boolean partitioned = JobPartitionLeaseWorker.isClusterEnabled() && jobStartOptions.getTargetIdSublist().isEmpty();
+
+        String jobXmlName = null;
+        Properties jobParameters;
         String jobName = JbatchDriver.getJbatchJobName(scopeId, jobId);
         try {
-            JobStepQuery jobStepQuery = JOB_STEP_FACTORY.newQuery(scopeId);
-            jobStepQuery.setPredicate(new AttributePredicateImpl<>(JobStepPredicates.JOB_ID, jobId));
-
-            JobStepListResult jobSteps = JOB_STEP_SERVICE.query(jobStepQuery);
-            jobSteps.sort(Comparator.comparing(JobStep::getStepIndex));
-
-            List<ExecutionElement> jslExecutionElements = new ArrayList<>();
-            Iterator<JobStep> jobStepIterator = jobSteps.getItems().iterator();
-            while (jobStepIterator.hasNext()) {
-                JobStep jobStep = jobStepIterator.next();
-
-                Step jslStep = new Step();
-                JobStepDefinition jobStepDefinition = STEP_DEFINITION_SERVICE.find(jobStep.getScopeId(), jobStep.getJobStepDefinitionId());
-                switch (jobStepDefinition.getStepType()) {
-                    case GENERIC:
-                        jslStep.setBatchlet(JobDefinitionBuildUtils.buildGenericStep(jobStepDefinition));
-                        break;
-                    case TARGET:
-                        jslStep.setChunk(JobDefinitionBuildUtils.buildChunkStep(jobStepDefinition));
-                        break;
-                    default:
-                        throw new KapuaIllegalArgumentException(jobStepDefinition.getStepType().name(), "jobStepDefinition.stepType");
-                }
-
-                jslStep.setId("step-" + jobStep.getStepIndex());
-
-                if (jobStepIterator.hasNext()) {
-                    jslStep.setNextFromAttribute("step-" + (jobStep.getStepIndex() + 1));
-                }
-
-                jslStep.setProperties(JobDefinitionBuildUtils.buildStepProperties(jobStepDefinition, jobStep, jobStepIterator.hasNext()));
-
-                jslExecutionElements.add(jslStep);
+            if (!partitioned) {
+                jobXmlName = getJobXmlName(scopeId, jobId, jobName);
             }
 
-            JSLJob jslJob = new JSLJob();
-            jslJob.setRestartable("true");
-            jslJob.setId(jobName);
-            jslJob.setVersion("1.0");
-            jslJob.setProperties(JobDefinitionBuildUtils.buildJobProperties(scopeId, jobId, jobStartOptions));
-            jslJob.setListeners(JobDefinitionBuildUtils.buildListener());
-            jslJob.getExecutionElements().addAll(jslExecutionElements);
-
-            jobXmlDefinition = ModelSerializerFactory.createJobModelSerializer().serializeModel(jslJob);
+            jobParameters = JobDefinitionBuildUtils.buildJobParameters(scopeId, jobId, jobStartOptions);
         } catch (Exception e) {
             throw new CannotBuildJobDefDriverException(e, jobName);
         }
 
         //
-        // Retrieve temporary directory for job XML definition
-        String tmpDirectory = SystemUtils.getJavaIoTmpDir().getAbsolutePath();
-        File jobTempDirectory = new File(tmpDirectory, "kapua-job/" + scopeId.toCompactId());
-        if (!jobTempDirectory.exists() && !jobTempDirectory.mkdirs()) {
-            throw new CannotCreateTmpDirDriverException(jobName, jobTempDirectory.getAbsolutePath());
+        // Check job running
+        if (isRunningJob(scopeId, jobId)) {
+            throw new JobExecutionIsRunningDriverException(JbatchDriver.getJbatchJobName(scopeId, jobId));
         }
 
         //
-        // Retrieve job XML definition file. Delete it if exist
-        File jobXmlDefinitionFile = new File(jobTempDirectory, jobId.toCompactId().concat(".xml"));
-        if (jobXmlDefinitionFile.exists() && !jobXmlDefinitionFile.delete()) {
-            throw new CannotCleanJobDefFileDriverException(jobName, jobXmlDefinitionFile.getAbsolutePath());
+        // Resume the operation ledger of the previous job execution
+        if (JOB_ENGINE_SETTING.getBoolean(KapuaJobEngineSettingKeys.JOB_ENGINE_TARGET_OPERATION_LEDGER_ENABLED, false) &&
+                JOB_ENGINE_SETTING.getBoolean(KapuaJobEngineSettingKeys.JOB_ENGINE_TARGET_OPERATION_LEDGER_RESUME_ENABLED, false)) {
+            try {
+                KapuaId resumedJobExecutionId = findResumedJobExecutionId(scopeId, jobId);
+                if (resumedJobExecutionId != null) {
+                    jobParameters.setProperty(JobContextPropertyNames.JOB_TARGET_OPERATION_LEDGER_RESUMED_EXECUTION_ID, resumedJobExecutionId.toCompactId());
+                }
+            } catch (KapuaException e) {
+                throw new JobStartingDriverException(e, jobName);
+            }
         }
 
-        try (FileOutputStream tmpStream = new FileOutputStream(jobXmlDefinitionFile)) {
-            IOUtils.write(jobXmlDefinition, tmpStream);
-        } catch (IOException e) {
-            throw new CannotWriteJobDefFileDriverException(e, jobName, jobXmlDefinitionFile.getAbsolutePath());
+        //
+        // Start job
+        try {
+            if (partitioned) {
+                startJobPartitions(scopeId, jobId, jobStartOptions.getFromStepIndex(), jobParameters);
+            } else {
+                JOB_OPERATOR.start(jobXmlName, jobParameters);
+            }
+        } catch (NoSuchJobExecutionException | NoSuchJobException | JobSecurityException | KapuaException | SQLException e) {
+            throw new JobStartingDriverException(e, jobName);
         }
+    }
 
-        //
-        // Check job running
-        if (isRunningJob(scopeId, jobId)) {
-            throw new JobExecutionIsRunningDriverException(JbatchDriver.getJbatchJobName(scopeId, jobId));
+    /**
+     * Starts the jBatch job of a {@link JobPartition} leased by this job engine node.
+     *
+     * @param jobPartition The leased {@link JobPartition}.
+     * @param leaseCount   The {@link JobPartition#getLeaseCount()} of the lease, which the job listener needs to complete the {@link JobPartition}.
+     * @return The id of the jBatch {@link JobExecution}.
+     * @throws CannotBuildJobDefDriverException if the creation of the {@link JSLJob} fails
+     * @throws JobStartingDriverException       if invoking {@link JobOperator#start(String, Properties)} throws an {@link Exception}
+     * @since 1.0.0
+     */
+    public static long startJobPartition(@NotNull JobPartition jobPartition, int leaseCount) throws JbatchDriverException {
+        String jobName = getJbatchPartitionJobName(jobPartition.getScopeId(), jobPartition.getJobId());
+
+        String jobXmlName;
+        try {
+            jobXmlName = KapuaSecurityUtils.doPrivileged(() -> getJobXmlName(jobPartition.getScopeId(), jobPartition.getJobId(), jobName));
+        } catch (Exception e) {
+            throw new CannotBuildJobDefDriverException(e, jobName);
         }
 
-        //
-        // Start job
+        Properties jobParameters = new Properties();
+        jobParameters.putAll(jobPartition.getJobParameters());
+        jobParameters.setProperty(JobContextPropertyNames.JOB_PARTITION_LEASE_COUNT, String.valueOf(leaseCount));
+
         try {
-            JOB_OPERATOR.start(jobXmlDefinitionFile.getAbsolutePath().replaceAll("\\.xml$", ""), new Properties());
+            return JOB_OPERATOR.start(jobXmlName, jobParameters);
         } catch (NoSuchJobExecutionException | NoSuchJobException | JobSecurityException e) {
             throw new JobStartingDriverException(e, jobName);
         }
@@ -224,20 +265,39 @@ public class JbatchDriver {
      * to be able to invoke {@link JobOperator#abandon(long)} which terminate the jBatch Job.
      * <p>
      * A jBatch job cannot be resumed after this method is invoked on it.
+     * <p>
+     * When {@link JobPartitionLeaseWorker#isClusterEnabled()}, the {@link JobPartition}s of the job are cancelled: the ones running on this node are stopped immediately,
+     * the ones running on other nodes are stopped when those nodes fail to renew their leases.
      *
      * @param scopeId The scopeId of the {@link Job}
      * @param jobId   The id of the {@link Job}
      * @throws ExecutionNotFoundDriverException   when there isn't a corresponding job execution in jBatch tables
      * @throws ExecutionNotRunningDriverException when the corresponding job execution is not running.
+     * @throws JobStoppingDriverException         when the {@link JobPartition}s of the job cannot be cancelled.
      */
     public static void stopJob(@NotNull KapuaId scopeId, @NotNull KapuaId jobId) throws JbatchDriverException {
 
         String jobName = getJbatchJobName(scopeId, jobId);
 
+        //
+        // Stop the job partitions
+        boolean jobPartitionsCancelled = false;
+        if (JobPartitionLeaseWorker.isClusterEnabled()) {
+            try {
+                jobPartitionsCancelled = getJobPartitionLeaseDAO().cancel(scopeId, jobId) > 0;
+            } catch (SQLException e) {
+                throw new JobStoppingDriverException(e, jobName);
+            }
+            JobPartitionLeaseWorker.getInstance().stopJobPartitions(scopeId, jobId);
+        }
+
         //
         // Check running
         JobExecution runningExecution = getRunningJobExecution(scopeId, jobId);
         if (runningExecution == null) {
+            if (jobPartitionsCancelled) {
+                return;
+            }
             throw new ExecutionNotRunningDriverException(jobName);
         }
 
@@ -259,20 +319,41 @@ public class JbatchDriver {
     /**
      * Checks whether or not the {@link Job} identified by the parametersis in a running status.
      * <p>
-     * jBatch {@link Job} running statuses are listed in {@link JbatchJobRunningStatuses}
+     * jBatch {@link Job} running statuses are listed in {@link JbatchJobRunningStatuses}.
+     * When {@link JobPartitionLeaseWorker#isClusterEnabled()}, the {@link Job} is also running while it has {@link JobPartition}s to process.
      *
      * @param scopeId The scopeId of the {@link Job}
      * @param jobId   The id of the {@link Job}
      * @return {@code true} if the jBatch {@link Job} is running, {@code false} otherwise,
      */
     public static boolean isRunningJob(@NotNull KapuaId scopeId, @NotNull KapuaId jobId) {
-        return getRunningJobExecution(scopeId, jobId) != null;
+        if (getRunningJobExecution(scopeId, jobId) != null) {
+            return true;
+        }
+
+        if (JobPartitionLeaseWorker.isClusterEnabled()) {
+            try {
+                return getJobPartitionLeaseDAO().countUnfinished(scopeId, jobId) > 0;
+            } catch (SQLException e) {
+                throw new PersistenceException(e);
+            }
+        }
+
+        return false;
     }
 
     public static void cleanJobData(@NotNull KapuaId scopeId, @NotNull KapuaId jobId) throws CleanJobDataDriverException {
         String jobName = getJbatchJobName(scopeId, jobId);
+        String partitionJobName = getJbatchPartitionJobName(scopeId, jobId);
+        KapuaJobXMLLoaderServiceImpl.unregisterJobXml(jobName);
+        KapuaJobXMLLoaderServiceImpl.unregisterJobXml(partitionJobName);
         try {
-            ((KapuaJDBCPersistenceManagerImpl) ServicesManagerImpl.getInstance().getPersistenceManagerService()).purgeByName(jobName);
+            KapuaJDBCPersistenceManagerImpl persistenceManager = (KapuaJDBCPersistenceManagerImpl) ServicesManagerImpl.getInstance().getPersistenceManagerService();
+            persistenceManager.purgeByName(jobName);
+            persistenceManager.purgeByName(partitionJobName);
+            if (JobPartitionLeaseWorker.isClusterEnabled()) {
+                getJobPartitionLeaseDAO().delete(scopeId, jobId);
+            }
         } catch (Exception ex) {
             throw new CleanJobDataDriverException(ex, jobName);
         }
@@ -281,6 +362,229 @@ public class JbatchDriver {
     //
     // Private methods
     //
+
+    /**
+     * Finds the previous job execution of the {@link Job} if it has failed or has been stopped, that is if not all the targets it had to process have completed it successfully.
+     * The targets that have processed successfully the same request of a step in that job execution, according to its operation ledger, do not process it again.
+     * <p>
+     * A job execution that has completed all its targets is never resumed, so starting the job again sends the requests to all the targets.
+     *
+     * @param scopeId The scopeId of the {@link Job}
+     * @param jobId   The id of the {@link Job}
+     * @return The id of the job execution to resume, or {@code null} if there is none.
+     * @throws KapuaException
+     */
+    private static KapuaId findResumedJobExecutionId(KapuaId scopeId, KapuaId jobId) throws KapuaException {
+        JobExecutionQuery jobExecutionQuery = JOB_EXECUTION_FACTORY.newQuery(scopeId);
+        jobExecutionQuery.setPredicate(new AttributePredicateImpl<>(JobExecutionPredicates.JOB_ID, jobId));
+        jobExecutionQuery.setSortCriteria(new FieldSortCriteria(JobExecutionPredicates.STARTED_ON, FieldSortCriteria.SortOrder.DESCENDING));
+        jobExecutionQuery.setLimit(1);
+
+        JobExecutionListResult jobExecutions = KapuaSecurityUtils.doPrivileged(() -> JOB_EXECUTION_SERVICE.query(jobExecutionQuery));
+        if (jobExecutions.isEmpty()) {
+            return null;
+        }
+
+        KapuaId previousJobExecutionId = jobExecutions.getFirstItem().getId();
+        JobExecutionProgress previousJobExecutionProgress = KapuaSecurityUtils.doPrivileged(() -> JOB_EXECUTION_SERVICE.findProgress(scopeId, previousJobExecutionId));
+
+        return previousJobExecutionProgress != null && previousJobExecutionProgress.getSucceededTargets() < previousJobExecutionProgress.getTotalTargets() ? previousJobExecutionId : null;
+    }
+
+    /**
+     * Gets the {@link JobPartitionLeaseDAO} of the {@link JobPartitionLeaseWorker}, which is created only when {@link JobPartitionLeaseWorker#isClusterEnabled()}.
+     *
+     * @return The {@link JobPartitionLeaseDAO} of this job engine node.
+     */
+    private static JobPartitionLeaseDAO getJobPartitionLeaseDAO() {
+        return JobPartitionLeaseWorker.getInstance().getJobPartitionLeaseDAO();
+    }
+
+    /**
+     * Gets the name of the job XML definition of the {@link Job}, building it unless the {@link JobStep}s and their {@link JobStepDefinition}s are unchanged
+     * since the last build.
+     */
+    private static String getJobXmlName(KapuaId scopeId, KapuaId jobId, String jobName) throws KapuaException {
+        JobStepQuery jobStepQuery = JOB_STEP_FACTORY.newQuery(scopeId);
+        jobStepQuery.setPredicate(new AttributePredicateImpl<>(JobStepPredicates.JOB_ID, jobId));
+
+        JobStepListResult jobSteps = JOB_STEP_SERVICE.query(jobStepQuery);
+        jobSteps.sort(Comparator.comparing(JobStep::getStepIndex));
+
+        Map<KapuaId, JobStepDefinition> jobStepDefinitions = new HashMap<>();
+        for (JobStep jobStep : jobSteps.getItems()) {
+            if (!jobStepDefinitions.containsKey(jobStep.getJobStepDefinitionId())) {
+                jobStepDefinitions.put(jobStep.getJobStepDefinitionId(), STEP_DEFINITION_SERVICE.find(jobStep.getScopeId(), jobStep.getJobStepDefinitionId()));
+            }
+        }
+
+        String jobXmlVersion = JobDefinitionBuildUtils.buildJobXmlVersion(jobSteps.getItems(), jobStepDefinitions);
+        String jobXmlName = KapuaJobXMLLoaderServiceImpl.getJobXmlName(jobName, jobXmlVersion);
+        if (jobXmlName == null) {
+            jobXmlName = KapuaJobXMLLoaderServiceImpl.registerJobXml(jobName, jobXmlVersion, buildJobXmlDefinition(jobName, jobSteps, jobStepDefinitions));
+            LOG.debug("Built job XML definition: {}", jobXmlName);
+        }
+        return jobXmlName;
+    }
+
+    /**
+     * Creates the {@link org.eclipse.kapua.service.job.execution.JobExecution} of the {@link Job} and splits its targets in {@link JobPartition}s
+     * of {@link KapuaJobEngineSettingKeys#JOB_ENGINE_CLUSTER_PARTITION_SIZE} targets, ranging over consecutive target ids.
+     * <p>
+     * The targets to process are set {@link JobTargetStatus#PROCESS_AWAITING} at the step from which they are processed, so the target reader of a {@link JobPartition}
+     * reads each of them once for each step even when the {@link JobPartition} is taken over by another node (see {@link JobPartitionLeaseWorker}).
+     * The {@link JobPartition}s without targets to process are not created, and the {@link org.eclipse.kapua.service.job.execution.JobExecution}
+     * ends immediately when there are no targets to process at all.
+     * <p>
+     * The {@link JobPartition}s are then leased and run by the {@link JobPartitionLeaseWorker}s of all the job engine nodes.
+     */
+    private static void startJobPartitions(KapuaId scopeId, KapuaId jobId, Integer fromStepIndex, Properties jobParameters) throws KapuaException, SQLException {
+        int partitionSize = JOB_ENGINE_SETTING.getInt(KapuaJobEngineSettingKeys.JOB_ENGINE_CLUSTER_PARTITION_SIZE, 1000);
+
+        //
+        // Split the targets to process, setting them to be processed from their step
+        List<JobPartition> jobPartitions = new ArrayList<>();
+        long totalTargets = 0;
+        KapuaId lastTargetId = null;
+        JobTargetListResult jobTargets;
+        do {
+            JobTargetQuery jobTargetQuery = JOB_TARGET_FACTORY.newQuery(scopeId);
+            jobTargetQuery.setPredicate(new AttributePredicateImpl<>(JobTargetPredicates.JOB_ID, jobId));
+            jobTargetQuery.setSortCriteria(new FieldSortCriteria(KapuaEntityPredicates.ENTITY_ID, FieldSortCriteria.SortOrder.ASCENDING));
+            jobTargetQuery.setLimit(partitionSize);
+            jobTargetQuery.setSeekAfter(null, lastTargetId);
+
+            jobTargets = KapuaSecurityUtils.doPrivileged(() -> JOB_TARGET_SERVICE.query(jobTargetQuery));
+            if (jobTargets.isEmpty()) {
+                break;
+            }
+            lastTargetId = jobTargets.getItem(jobTargets.getSize() - 1).getId();
+
+            int partitionTargets = 0;
+            List<JobTarget> awaitingJobTargets = new ArrayList<>();
+            for (JobTarget jobTarget : jobTargets.getItems()) {
+                if (fromStepIndex != null) {
+                    // All the targets are processed from the given step
+                    if (jobTarget.getStepIndex() != fromStepIndex || !JobTargetStatus.PROCESS_AWAITING.equals(jobTarget.getStatus())) {
+                        jobTarget.setStepIndex(fromStepIndex);
+                        jobTarget.setStatus(JobTargetStatus.PROCESS_AWAITING);
+                        awaitingJobTargets.add(jobTarget);
+                    }
+                    partitionTargets++;
+                } else if (!JobTargetStatus.PROCESS_OK.equals(jobTarget.getStatus())) {
+                    // The targets not completed are processed again from the step where they stopped
+                    if (JobTargetStatus.PROCESS_FAILED.equals(jobTarget.getStatus())) {
+                        jobTarget.setStatus(JobTargetStatus.PROCESS_AWAITING);
+                        awaitingJobTargets.add(jobTarget);
+                    }
+                    partitionTargets++;
+                }
+            }
+
+            if (!awaitingJobTargets.isEmpty()) {
+                KapuaSecurityUtils.doPrivileged(() -> JOB_TARGET_SERVICE.updateStatus(scopeId, jobId, awaitingJobTargets));
+            }
+
+            if (partitionTargets > 0) {
+                JobPartition jobPartition = new JobPartition();
+                jobPartition.setScopeId(scopeId);
+                jobPartition.setJobId(jobId);
+                jobPartition.setPartitionIndex(jobPartitions.size());
+                jobPartition.setFirstTargetId(jobTargets.getFirstItem().getId());
+                jobPartition.setLastTargetId(lastTargetId);
+                jobPartitions.add(jobPartition);
+
+                totalTargets += partitionTargets;
+            }
+        } while (jobTargets.getSize() == partitionSize);
+
+        //
+        // Create the job execution, with the progress counters of all its steps since the partitions update them concurrently
+        JobStepQuery jobStepQuery = JOB_STEP_FACTORY.newQuery(scopeId);
+        jobStepQuery.setPredicate(new AttributePredicateImpl<>(JobStepPredicates.JOB_ID, jobId));
+        long stepCount = KapuaSecurityUtils.doPrivileged(() -> JOB_STEP_SERVICE.count(jobStepQuery));
+
+        JobExecutionCreator jobExecutionCreator = JOB_EXECUTION_FACTORY.newCreator(scopeId);
+        jobExecutionCreator.setJobId(jobId);
+        jobExecutionCreator.setStartedOn(new Date());
+        jobExecutionCreator.setTotalTargets(totalTargets);
+        jobExecutionCreator.setStepCount((int) stepCount);
+
+        org.eclipse.kapua.service.job.execution.JobExecution jobExecution = KapuaSecurityUtils.doPrivileged(() -> JOB_EXECUTION_SERVICE.create(jobExecutionCreator));
+
+        //
+        // Store the partitions. The targets are already set to be processed from their step, so the partitions don't start from the given step.
+        Properties partitionJobParameters = new Properties();
+        partitionJobParameters.putAll(jobParameters);
+        partitionJobParameters.remove(JobContextPropertyNames.JOB_STEP_FROM_INDEX);
+
+        for (JobPartition jobPartition : jobPartitions) {
+            jobPartition.setJobExecutionId(jobExecution.getId());
+            jobPartition.getJobParameters().putAll(partitionJobParameters);
+            jobPartition.getJobParameters().setProperty(JobContextPropertyNames.JOB_PARTITION_INDEX, String.valueOf(jobPartition.getPartitionIndex()));
+            jobPartition.getJobParameters().setProperty(JobContextPropertyNames.JOB_PARTITION_EXECUTION_ID, jobExecution.getId().toCompactId());
+            jobPartition.getJobParameters().setProperty(JobContextPropertyNames.JOB_PARTITION_FIRST_TARGET_ID, jobPartition.getFirstTargetId().toCompactId());
+            jobPartition.getJobParameters().setProperty(JobContextPropertyNames.JOB_PARTITION_LAST_TARGET_ID, jobPartition.getLastTargetId().toCompactId());
+        }
+
+        getJobPartitionLeaseDAO().replace(scopeId, jobId, jobPartitions);
+        LOG.info("Job {} split in {} partitions", jobId.toCompactId(), jobPartitions.size());
+
+        if (jobPartitions.isEmpty()) {
+            // No partition will end the job execution
+            jobExecution.setEndedOn(jobExecution.getStartedOn());
+            KapuaSecurityUtils.doPrivileged(() -> JOB_EXECUTION_SERVICE.update(jobExecution));
+            return;
+        }
+
+        JobPartitionLeaseWorker.getInstance().wakeUp();
+    }
+
+    private static String buildJobXmlDefinition(String jobName, JobStepListResult jobSteps, Map<KapuaId, JobStepDefinition> jobStepDefinitions) throws KapuaException {
+        List<ExecutionElement> jslExecutionElements = new ArrayList<>();
+        Iterator<JobStep> jobStepIterator = jobSteps.getItems().iterator();
+        while (jobStepIterator.hasNext()) {
+            JobStep jobStep = jobStepIterator.next();
+
+            Step jslStep = new Step();
+            JobStepDefinition jobStepDefinition = jobStepDefinitions.get(jobStep.getJobStepDefinitionId());
+            if (jobStepDefinition == null) {
+                throw new KapuaEntityNotFoundException(JobStepDefinition.TYPE, jobStep.getJobStepDefinitionId());
+            }
+            switch (jobStepDefinition.getStepType()) {
+                case GENERIC:
+                    jslStep.setBatchlet(JobDefinitionBuildUtils.buildGenericStep(jobStepDefinition));
+                    break;
+                case TARGET:
+                    jslStep.setChunk(JobDefinitionBuildUtils.buildChunkStep(jobStepDefinition));
+                    break;
+                default:
+                    throw new KapuaIllegalArgumentException(jobStepDefinition.getStepType().name(), "jobStepDefinition.stepType");
+            }
+
+            jslStep.setId("step-" + jobStep.getStepIndex());
+
+            if (jobStepIterator.hasNext()) {
+                jslStep.setNextFromAttribute("step-" + (jobStep.getStepIndex() + 1));
+            }
+
+            jslStep.setProperties(JobDefinitionBuildUtils.buildStepProperties(jobStepDefinition, jobStep, jobStepIterator.hasNext()));
+            jslStep.setListeners(JobDefinitionBuildUtils.buildStepListener());
+
+            jslExecutionElements.add(jslStep);
+        }
+
+        JSLJob jslJob = new JSLJob();
+        jslJob.setRestartable("true");
+        jslJob.setId(jobName);
+        jslJob.setVersion("1.0");
+        jslJob.setProperties(JobDefinitionBuildUtils.buildJobProperties());
+        jslJob.setListeners(JobDefinitionBuildUtils.buildListener());
+        jslJob.getExecutionElements().addAll(jslExecutionElements);
+
+        return ModelSerializerFactory.createJobModelSerializer().serializeModel(jslJob);
+    }
+
     private static JobExecution getRunningJobExecution(@NotNull KapuaId scopeId, @NotNull KapuaId jobId) {
         return getJobExecutions(scopeId, jobId).stream().filter(je -> JbatchJobRunningStatuses.getStatuses().contains(je.getBatchStatus())).findFirst().orElse(null);
     }
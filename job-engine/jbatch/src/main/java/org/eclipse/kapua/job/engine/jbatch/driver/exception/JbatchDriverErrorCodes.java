@@ -26,11 +26,7 @@ public enum JbatchDriverErrorCodes implements KapuaErrorCode {
 
     JOB_STARTING,
 
-    CANNOT_CREATE_TMP_DIRECTORY,
-
-    CANNOT_CLEAN_XML_JOB_DEFINITION_FILE,
-
-    CANNOT_WRITE_XML_JOB_DEFINITION_FILE,
+    JOB_STOPPING,
 
     CANNOT_BUILD_JOB_DEFINITION,
 
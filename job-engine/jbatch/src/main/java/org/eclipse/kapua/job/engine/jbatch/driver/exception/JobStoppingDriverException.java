@@ -11,9 +11,9 @@
  *******************************************************************************/
 package org.eclipse.kapua.job.engine.jbatch.driver.exception;
 
-public class CannotCreateTmpDirDriverException extends JbatchDriverException {
+public class JobStoppingDriverException extends JbatchDriverException {
 
-    public CannotCreateTmpDirDriverException(String jobName, String path) {
-        super(JbatchDriverErrorCodes.CANNOT_CREATE_TMP_DIRECTORY, jobName, path);
+    public JobStoppingDriverException(Throwable t, String jobName) {
+        super(JbatchDriverErrorCodes.JOB_STOPPING, t, jobName);
     }
 }
@@ -11,6 +11,7 @@
  *******************************************************************************/
 package org.eclipse.kapua.job.engine.jbatch.driver.utils;
 
+import com.google.common.hash.Hashing;
 import com.ibm.jbatch.jsl.model.Batchlet;
 import com.ibm.jbatch.jsl.model.Chunk;
 import com.ibm.jbatch.jsl.model.ItemProcessor;
@@ -28,20 +29,47 @@ import org.eclipse.kapua.job.engine.commons.model.JobTargetSublist;
 import org.eclipse.kapua.job.engine.commons.operation.DefaultTargetReader;
 import org.eclipse.kapua.job.engine.commons.operation.DefaultTargetWriter;
 import org.eclipse.kapua.job.engine.jbatch.listener.KapuaJobListener;
+import org.eclipse.kapua.job.engine.jbatch.listener.KapuaStepListener;
+import org.eclipse.kapua.job.engine.jbatch.setting.KapuaJobEngineSetting;
+import org.eclipse.kapua.job.engine.jbatch.setting.KapuaJobEngineSettingKeys;
 import org.eclipse.kapua.model.id.KapuaId;
 import org.eclipse.kapua.service.job.step.JobStep;
 import org.eclipse.kapua.service.job.step.definition.JobStepDefinition;
 import org.eclipse.kapua.service.job.step.definition.JobStepProperty;
 
 import javax.xml.bind.JAXBException;
-import java.util.ArrayList;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Properties;
+import java.util.stream.Collectors;
 
 public class JobDefinitionBuildUtils {
 
+    private static final KapuaJobEngineSetting JOB_ENGINE_SETTING = KapuaJobEngineSetting.getInstance();
+
+    private static final String JOB_TARGET_CHUNK_SIZE_PARAMETER = "job.target.chunkSize";
+    private static final int DEFAULT_CHUNK_SIZE = 10;
+
+    private static final List<String> JOB_PROPERTY_NAMES = Arrays.asList(
+            JobContextPropertyNames.JOB_SCOPE_ID,
+            JobContextPropertyNames.JOB_ID,
+            JobContextPropertyNames.JOB_TARGET_SUBLIST,
+            JobContextPropertyNames.JOB_STEP_FROM_INDEX,
+            JobContextPropertyNames.JOB_TARGET_PARALLELISM,
+            JobContextPropertyNames.JOB_TARGET_RATE_MAX,
+            JobContextPropertyNames.JOB_TARGET_PAGE_SIZE,
+            JobContextPropertyNames.JOB_TARGET_OPERATION_LEDGER,
+            JobContextPropertyNames.JOB_TARGET_OPERATION_LEDGER_RESUMED_EXECUTION_ID,
+            JobContextPropertyNames.JOB_PARTITION_INDEX,
+            JobContextPropertyNames.JOB_PARTITION_EXECUTION_ID,
+            JobContextPropertyNames.JOB_PARTITION_FIRST_TARGET_ID,
+            JobContextPropertyNames.JOB_PARTITION_LAST_TARGET_ID,
+            JobContextPropertyNames.JOB_PARTITION_LEASE_COUNT);
+
     private JobDefinitionBuildUtils() {
     }
 
@@ -55,41 +83,111 @@ public class JobDefinitionBuildUtils {
         return listeners;
     }
 
-    public static JSLProperties buildJobProperties(KapuaId scopeId, KapuaId jobId, JobStartOptions jobStartOptions) throws JAXBException {
+    /**
+     * Builds the listeners of a step, which parse the step properties when the step starts.
+     *
+     * @return The step {@link Listeners}.
+     * @since 1.0.0
+     */
+    public static Listeners buildStepListener() {
+        Listener jslListener = new Listener();
+        jslListener.setRef(KapuaStepListener.class.getName());
 
-        List<Property> jslPropertyList = new ArrayList<>();
+        Listeners listeners = new Listeners();
+        listeners.getListenerList().add(jslListener);
+
+        return listeners;
+    }
+
+    /**
+     * Builds the job level properties of the jBatch job definition.
+     * <p>
+     * The values are not part of the job definition: each property refers to the job parameter with the same name (see {@link #buildJobParameters(KapuaId, KapuaId, JobStartOptions)}),
+     * so the same job definition can be started with different {@link JobStartOptions}.
+     *
+     * @return The job level {@link JSLProperties}.
+     * @since 1.0.0
+     */
+    public static JSLProperties buildJobProperties() {
+        JSLProperties jslProperties = new JSLProperties();
+        for (String jobPropertyName : JOB_PROPERTY_NAMES) {
+            Property jslProperty = new Property();
+            jslProperty.setName(jobPropertyName);
+            jslProperty.setValue(jobParameterReference(jobPropertyName));
+            jslProperties.getPropertyList().add(jslProperty);
+        }
+        return jslProperties;
+    }
+
+    /**
+     * Builds the job parameters of a job start, which are the values of the job level properties (see {@link #buildJobProperties()}).
+     *
+     * @param scopeId         The scopeId of the {@link org.eclipse.kapua.service.job.Job}
+     * @param jobId           The id of the {@link org.eclipse.kapua.service.job.Job}
+     * @param jobStartOptions The {@link JobStartOptions} for this start request.
+     * @return The job parameters to pass to {@link javax.batch.operations.JobOperator#start(String, Properties)}.
+     * @throws JAXBException if the target sublist cannot be marshalled.
+     * @since 1.0.0
+     */
+    public static Properties buildJobParameters(KapuaId scopeId, KapuaId jobId, JobStartOptions jobStartOptions) throws JAXBException {
+        Properties jobParameters = new Properties();
 
         // Scope id
-        Property scopeIdProperty = new Property();
-        scopeIdProperty.setName(JobContextPropertyNames.JOB_SCOPE_ID);
-        scopeIdProperty.setValue(scopeId.toCompactId());
-        jslPropertyList.add(scopeIdProperty);
+        jobParameters.setProperty(JobContextPropertyNames.JOB_SCOPE_ID, scopeId.toCompactId());
 
         // Job id
-        Property jobIdProperty = new Property();
-        jobIdProperty.setName(JobContextPropertyNames.JOB_ID);
-        jobIdProperty.setValue(jobId.toCompactId());
-        jslPropertyList.add(jobIdProperty);
+        jobParameters.setProperty(JobContextPropertyNames.JOB_ID, jobId.toCompactId());
 
         // Job target sublist
-        Property targetSublistProperty = new Property();
-        targetSublistProperty.setName(JobContextPropertyNames.JOB_TARGET_SUBLIST);
-        targetSublistProperty.setValue(XmlUtil.marshal(new JobTargetSublist(jobStartOptions.getTargetIdSublist())));
-        jslPropertyList.add(targetSublistProperty);
+        jobParameters.setProperty(JobContextPropertyNames.JOB_TARGET_SUBLIST, XmlUtil.marshal(new JobTargetSublist(jobStartOptions.getTargetIdSublist())));
 
         // Job from step index
         if (jobStartOptions.getFromStepIndex() != null) {
-            Property stepFromIndexProperty = new Property();
-            stepFromIndexProperty.setName(JobContextPropertyNames.JOB_STEP_FROM_INDEX);
-            stepFromIndexProperty.setValue(jobStartOptions.getFromStepIndex().toString());
-            jslPropertyList.add(stepFromIndexProperty);
+            jobParameters.setProperty(JobContextPropertyNames.JOB_STEP_FROM_INDEX, jobStartOptions.getFromStepIndex().toString());
         }
 
-        //
-        // Add them to the JBatch properties
-        JSLProperties jslProperties = new JSLProperties();
-        jslProperties.getPropertyList().addAll(jslPropertyList);
-        return jslProperties;
+        // Target parallelism and chunk size
+        int targetParallelism = getTargetParallelism(jobStartOptions);
+        jobParameters.setProperty(JobContextPropertyNames.JOB_TARGET_PARALLELISM, String.valueOf(targetParallelism));
+        jobParameters.setProperty(JOB_TARGET_CHUNK_SIZE_PARAMETER, String.valueOf(targetParallelism > 1 ? targetParallelism : DEFAULT_CHUNK_SIZE));
+
+        // Target rate limit
+        jobParameters.setProperty(JobContextPropertyNames.JOB_TARGET_RATE_MAX, JOB_ENGINE_SETTING.getString(KapuaJobEngineSettingKeys.JOB_ENGINE_TARGET_RATE_MAX, "0"));
+
+        // Target page size
+        jobParameters.setProperty(JobContextPropertyNames.JOB_TARGET_PAGE_SIZE, String.valueOf(JOB_ENGINE_SETTING.getInt(KapuaJobEngineSettingKeys.JOB_ENGINE_TARGET_PAGE_SIZE, 500)));
+
+        // Target operation ledger
+        jobParameters.setProperty(JobContextPropertyNames.JOB_TARGET_OPERATION_LEDGER, String.valueOf(JOB_ENGINE_SETTING.getBoolean(KapuaJobEngineSettingKeys.JOB_ENGINE_TARGET_OPERATION_LEDGER_ENABLED, false)));
+
+        return jobParameters;
+    }
+
+    /**
+     * Builds the version of the job XML definition: it changes when a {@link JobStep} is added, updated or removed, or when the {@link JobStepDefinition}
+     * of a {@link JobStep} is updated.
+     *
+     * @param jobSteps           The {@link JobStep}s of the {@link org.eclipse.kapua.service.job.Job}, ordered by {@link JobStep#getStepIndex()}.
+     * @param jobStepDefinitions The {@link JobStepDefinition}s of the {@link JobStep}s, by their id.
+     * @return The version of the job XML definition.
+     * @since 1.0.0
+     */
+    public static String buildJobXmlVersion(List<JobStep> jobSteps, Map<KapuaId, JobStepDefinition> jobStepDefinitions) {
+        StringBuilder jobStepsFingerprint = new StringBuilder();
+        for (JobStep jobStep : jobSteps) {
+            jobStepsFingerprint.append(jobStep.getId().toCompactId()).append(':').append(jobStep.getOptlock());
+
+            JobStepDefinition jobStepDefinition = jobStepDefinitions.get(jobStep.getJobStepDefinitionId());
+            if (jobStepDefinition != null) {
+                jobStepsFingerprint.append('/').append(jobStepDefinition.getId().toCompactId()).append(':').append(jobStepDefinition.getOptlock());
+            }
+            jobStepsFingerprint.append(',');
+        }
+        return Hashing.sha256().hashString(jobStepsFingerprint, StandardCharsets.UTF_8).toString().substring(0, 16);
+    }
+
+    private static String jobParameterReference(String jobParameterName) {
+        return String.format("#{jobParameters['%s']}", jobParameterName);
     }
 
     public static JSLProperties buildStepProperties(JobStepDefinition jobStepDefinition, JobStep jobStep, boolean hasNext) {
@@ -108,6 +206,17 @@ public class JobDefinitionBuildUtils {
             jslPropertyList.add(jslStepNextIndexProperty);
         }
 
+        String stepPropertyTypes = jobStepDefinition.getStepProperties().stream()
+                .filter(jobStepProperty -> jobStepProperty.getPropertyType() != null)
+                .map(jobStepProperty -> jobStepProperty.getName() + '=' + jobStepProperty.getPropertyType())
+                .collect(Collectors.joining(","));
+        if (!stepPropertyTypes.isEmpty()) {
+            Property jslStepPropertyTypesProperty = new Property();
+            jslStepPropertyTypesProperty.setName(StepContextPropertyNames.STEP_PROPERTY_TYPES);
+            jslStepPropertyTypesProperty.setValue(stepPropertyTypes);
+            jslPropertyList.add(jslStepPropertyTypesProperty);
+        }
+
         jslPropertyList.addAll(buildCustomStepProperties(jobStepDefinition, jobStep));
 
         return jslProperties;
@@ -147,8 +256,32 @@ public class JobDefinitionBuildUtils {
         return batchlet;
     }
 
+    /**
+     * Gets the number of targets processed concurrently by the target steps: the one of the {@link JobStartOptions} if set, otherwise the
+     * {@link KapuaJobEngineSettingKeys#JOB_ENGINE_TARGET_PARALLELISM} default.
+     *
+     * @param jobStartOptions The {@link JobStartOptions} of the job start request.
+     * @return The number of targets processed concurrently.
+     * @since 1.0.0
+     */
+    public static int getTargetParallelism(JobStartOptions jobStartOptions) {
+        Integer targetParallelism = jobStartOptions.getTargetParallelism();
+        return Math.max(targetParallelism != null ? targetParallelism : JOB_ENGINE_SETTING.getInt(KapuaJobEngineSettingKeys.JOB_ENGINE_TARGET_PARALLELISM, 1), 1);
+    }
+
+    /**
+     * Builds the jBatch chunk of a target step.
+     * <p>
+     * When the targets are processed concurrently the chunk holds as many targets as the parallelism, since the {@link DefaultTargetWriter} waits for all the targets
+     * of the chunk to be processed: this bounds the targets in flight of the step. The chunk size is a job parameter (see {@link #buildJobParameters(KapuaId, KapuaId, JobStartOptions)}).
+     *
+     * @param jobStepDefinition The {@link JobStepDefinition} of the step.
+     * @return The jBatch {@link Chunk}.
+     * @since 1.0.0
+     */
     public static Chunk buildChunkStep(JobStepDefinition jobStepDefinition) {
         Chunk chunk = new Chunk();
+        chunk.setItemCount(jobParameterReference(JOB_TARGET_CHUNK_SIZE_PARAMETER));
 
         ItemReader itemReader = new ItemReader();
         itemReader.setRef(jobStepDefinition.getReaderName() != null ? jobStepDefinition.getReaderName() : DefaultTargetReader.class.getName());
@@ -0,0 +1,108 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Eurotech and/or its affiliates and others
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Eurotech - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.kapua.job.engine.jbatch.driver.utils;
+
+import com.ibm.jbatch.container.services.impl.DirectoryJobXMLLoaderServiceImpl;
+import com.ibm.jbatch.spi.services.IJobXMLLoaderService;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * jBatch job XML loader that serves the job definitions built by {@link org.eclipse.kapua.job.engine.jbatch.driver.JbatchDriver} from memory,
+ * instead of writing them to the file system.
+ * <p>
+ * Each job has at most one definition, identified by the jBatch job name and a version that changes when the job steps change.
+ * Registering a new version of the definition replaces the previous one.
+ * The ids that are not registered are loaded by the default {@link DirectoryJobXMLLoaderServiceImpl}.
+ *
+ * @since 1.0.0
+ */
+public class KapuaJobXMLLoaderServiceImpl extends DirectoryJobXMLLoaderServiceImpl implements IJobXMLLoaderService {
+
+    private static final Map<String, JobXmlDefinition> JOB_XML_DEFINITIONS = new ConcurrentHashMap<>();
+
+    @Override
+    public String loadJSL(String id) {
+        int versionSeparatorIndex = id.lastIndexOf('@');
+        if (versionSeparatorIndex > 0) {
+            JobXmlDefinition jobXmlDefinition = JOB_XML_DEFINITIONS.get(id.substring(0, versionSeparatorIndex));
+            if (jobXmlDefinition != null && jobXmlDefinition.getXmlName().equals(id)) {
+                return jobXmlDefinition.getXml();
+            }
+        }
+        return super.loadJSL(id);
+    }
+
+    /**
+     * Gets the name of the registered job XML definition of the given version.
+     *
+     * @param jobName The jBatch job name.
+     * @param version The version of the job XML definition.
+     * @return The job XML name to pass to {@link javax.batch.operations.JobOperator#start(String, java.util.Properties)}, or {@code null} if the version is not registered.
+     * @since 1.0.0
+     */
+    public static String getJobXmlName(String jobName, String version) {
+        JobXmlDefinition jobXmlDefinition = JOB_XML_DEFINITIONS.get(jobName);
+        return jobXmlDefinition != null && jobXmlDefinition.getVersion().equals(version) ? jobXmlDefinition.getXmlName() : null;
+    }
+
+    /**
+     * Registers the job XML definition of the given version, replacing the previous one of the job.
+     *
+     * @param jobName The jBatch job name.
+     * @param version The version of the job XML definition.
+     * @param xml     The job XML definition.
+     * @return The job XML name to pass to {@link javax.batch.operations.JobOperator#start(String, java.util.Properties)}.
+     * @since 1.0.0
+     */
+    public static String registerJobXml(String jobName, String version, String xml) {
+        JobXmlDefinition jobXmlDefinition = new JobXmlDefinition(jobName + "@" + version, version, xml);
+        JOB_XML_DEFINITIONS.put(jobName, jobXmlDefinition);
+        return jobXmlDefinition.getXmlName();
+    }
+
+    /**
+     * Removes the job XML definition of the job.
+     *
+     * @param jobName The jBatch job name.
+     * @since 1.0.0
+     */
+    public static void unregisterJobXml(String jobName) {
+        JOB_XML_DEFINITIONS.remove(jobName);
+    }
+
+    private static class JobXmlDefinition {
+
+        private final String xmlName;
+        private final String version;
+        private final String xml;
+
+        private JobXmlDefinition(String xmlName, String version, String xml) {
+            this.xmlName = xmlName;
+            this.version = version;
+            this.xml = xml;
+        }
+
+        public String getXmlName() {
+            return xmlName;
+        }
+
+        public String getVersion() {
+            return version;
+        }
+
+        public String getXml() {
+            return xml;
+        }
+    }
+}
@@ -12,14 +12,20 @@
 package org.eclipse.kapua.job.engine.jbatch.listener;
 
 import org.eclipse.kapua.KapuaIllegalStateException;
+import org.eclipse.kapua.KapuaException;
 import org.eclipse.kapua.commons.security.KapuaSecurityUtils;
 import org.eclipse.kapua.job.engine.commons.context.JobContextWrapper;
+import org.eclipse.kapua.job.engine.commons.operation.DefaultTargetReader;
+import org.eclipse.kapua.job.engine.jbatch.cluster.JobPartitionLeaseWorker;
 import org.eclipse.kapua.locator.KapuaLocator;
 import org.eclipse.kapua.model.id.KapuaId;
 import org.eclipse.kapua.service.job.execution.JobExecution;
 import org.eclipse.kapua.service.job.execution.JobExecutionCreator;
 import org.eclipse.kapua.service.job.execution.JobExecutionFactory;
 import org.eclipse.kapua.service.job.execution.JobExecutionService;
+import org.eclipse.kapua.service.job.targets.JobTargetFactory;
+import org.eclipse.kapua.service.job.targets.JobTargetQuery;
+import org.eclipse.kapua.service.job.targets.JobTargetService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -42,6 +48,9 @@ public class KapuaJobListener extends AbstractJobListener implements JobListener
     private static final JobExecutionService JOB_EXECUTION_SERVICE = LOCATOR.getService(JobExecutionService.class);
     private static final JobExecutionFactory JOB_EXECUTION_FACTORY = LOCATOR.getFactory(JobExecutionFactory.class);
 
+    private static final JobTargetService JOB_TARGET_SERVICE = LOCATOR.getService(JobTargetService.class);
+    private static final JobTargetFactory JOB_TARGET_FACTORY = LOCATOR.getFactory(JobTargetFactory.class);
+
     @Inject
     private JobContext jobContext;
 
@@ -51,10 +60,20 @@ public class KapuaJobListener extends AbstractJobListener implements JobListener
 
         LOG.info("JOB {} - {} - Running before job...", jobContextWrapper.getJobId(), jobContextWrapper.getJobName());
 
+        if (jobContextWrapper.getPartitionIndex() != null) {
+            // The job execution is shared by all the partitions and it has been created when the job has been started.
+            // Only the node holding the lease of the partition runs it, so there is no need to check for other running instances.
+            jobContextWrapper.setKapuaExecutionId(jobContextWrapper.getPartitionExecutionId());
+
+            LOG.info("JOB {} - {} - Running before job partition {}... DONE!", jobContextWrapper.getJobId(), jobContextWrapper.getJobName(), jobContextWrapper.getPartitionIndex());
+            return;
+        }
+
         JobExecutionCreator jobExecutionCreator = JOB_EXECUTION_FACTORY.newCreator(jobContextWrapper.getScopeId());
 
         jobExecutionCreator.setJobId(jobContextWrapper.getJobId());
         jobExecutionCreator.setStartedOn(new Date());
+        jobExecutionCreator.setTotalTargets(countTargets(jobContextWrapper));
         jobExecutionCreator.getEntityAttributes().put(JBATCH_EXECUTION_ID, Long.toString(jobContextWrapper.getExecutionId()));
 
         JobExecution jobExecution = KapuaSecurityUtils.doPrivileged(() -> JOB_EXECUTION_SERVICE.create(jobExecutionCreator));
@@ -84,6 +103,17 @@ public class KapuaJobListener extends AbstractJobListener implements JobListener
             LOG.error(msg);
             // TODO will send service events when the feature will be implemented
         }
+
+        Integer partitionIndex = jobContextWrapper.getPartitionIndex();
+        if (partitionIndex != null) {
+            // The job execution ends with its last partition
+            JobPartitionLeaseWorker.getInstance().completeJobPartition(jobContextWrapper.getScopeId(), jobContextWrapper.getJobId(), partitionIndex,
+                    jobContextWrapper.getPartitionLeaseCount(), kapuaExecutionId);
+
+            LOG.info("JOB {} - {} - Running after job partition {}... DONE!", jobContextWrapper.getJobId(), jobContextWrapper.getJobName(), partitionIndex);
+            return;
+        }
+
         JobExecution jobExecution = KapuaSecurityUtils.doPrivileged(() -> JOB_EXECUTION_SERVICE.find(jobContextWrapper.getScopeId(), kapuaExecutionId));
 
         jobExecution.setEndedOn(new Date());
@@ -92,4 +122,19 @@ public class KapuaJobListener extends AbstractJobListener implements JobListener
 
         LOG.info("JOB {} - {} - Running after job... DONE!", jobContextWrapper.getJobId(), jobContextWrapper.getJobName());
     }
+
+    /**
+     * Counts the targets that the job execution will process, so the progress of the execution can be computed without querying the targets again.
+     * The targets are filtered as the {@link DefaultTargetReader} of the steps of the job execution filters them.
+     *
+     * @param jobContextWrapper The {@link JobContextWrapper} of the job execution.
+     * @return The number of targets that the job execution will process.
+     * @throws KapuaException
+     */
+    private long countTargets(JobContextWrapper jobContextWrapper) throws KapuaException {
+        JobTargetQuery jobTargetQuery = JOB_TARGET_FACTORY.newQuery(jobContextWrapper.getScopeId());
+        jobTargetQuery.setPredicate(DefaultTargetReader.buildJobExecutionTargetPredicate(jobContextWrapper.getJobId(), jobContextWrapper.getFromStepIndex(), jobContextWrapper.getTargetSublist()));
+
+        return KapuaSecurityUtils.doPrivileged(() -> JOB_TARGET_SERVICE.count(jobTargetQuery));
+    }
 }
@@ -0,0 +1,40 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Eurotech and/or its affiliates and others
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Eurotech - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.kapua.job.engine.jbatch.listener;
+
+import org.eclipse.kapua.job.engine.commons.context.StepContextWrapper;
+
+import javax.batch.api.listener.AbstractStepListener;
+import javax.batch.api.listener.StepListener;
+import javax.batch.runtime.context.StepContext;
+import javax.inject.Inject;
+
+/**
+ * Parses the step properties when the step starts, so that the first targets of the step don't pay for it, and releases them when the step ends.
+ *
+ * @since 1.0.0
+ */
+public class KapuaStepListener extends AbstractStepListener implements StepListener {
+
+    @Inject
+    private StepContext stepContext;
+
+    @Override
+    public void beforeStep() throws Exception {
+        new StepContextWrapper(stepContext).loadStepProperties();
+    }
+
+    @Override
+    public void afterStep() throws Exception {
+        new StepContextWrapper(stepContext).releaseStepProperties();
+    }
+}
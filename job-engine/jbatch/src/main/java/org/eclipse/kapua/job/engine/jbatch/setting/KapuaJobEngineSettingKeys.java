@@ -23,7 +23,66 @@ public enum KapuaJobEngineSettingKeys implements SettingKey {
 
     JOB_ENGINE_STOP_WAIT_CHECK_TIME_MAX("jobEngine.stop.wait.check.time.max"),
 
-    JOB_ENGINE_STOP_WAIT_CHECK_TIME_INTERVAL("jobEngine.stop.wait.check.time.interval");
+    JOB_ENGINE_STOP_WAIT_CHECK_TIME_INTERVAL("jobEngine.stop.wait.check.time.interval"),
+
+    /**
+     * Default number of targets processed concurrently by a target step, when not set by the {@link org.eclipse.kapua.job.engine.JobStartOptions}
+     */
+    JOB_ENGINE_TARGET_PARALLELISM("jobEngine.target.parallelism"),
+
+    /**
+     * Maximum number of targets processed per second by this job engine (shared by all the running jobs, since they share the broker connection). 0 means no limit.
+     */
+    JOB_ENGINE_TARGET_RATE_MAX("jobEngine.target.rate.max"),
+
+    /**
+     * Number of targets read by each query of the target steps
+     */
+    JOB_ENGINE_TARGET_PAGE_SIZE("jobEngine.target.page.size"),
+
+    /**
+     * Whether the outcome of the idempotent operations sent to the targets of a job execution is recorded, so that a target partition taken over from a failed node
+     * does not send again the requests already processed successfully in the same job execution. It costs a database write for each target, and a read for each target of the
+     * partitions taken over
+     */
+    JOB_ENGINE_TARGET_OPERATION_LEDGER_ENABLED("jobEngine.target.operation.ledger.enabled"),
+
+    /**
+     * Whether a job started again after a job execution that has not completed all its targets successfully (i.e. failed or stopped) does not send the requests
+     * that the targets have already processed successfully in that job execution, when the request is the same. It requires {@link #JOB_ENGINE_TARGET_OPERATION_LEDGER_ENABLED}
+     * and costs a read for each target of the job execution. Jobs started after a job execution that completed all its targets always send the requests to all the targets
+     */
+    JOB_ENGINE_TARGET_OPERATION_LEDGER_RESUME_ENABLED("jobEngine.target.operation.ledger.resume.enabled"),
+
+    /**
+     * Whether the targets of a job are split in partitions leased by all the job engine nodes sharing the database, instead of being processed by the node that starts the job
+     */
+    JOB_ENGINE_CLUSTER_ENABLED("jobEngine.cluster.enabled"),
+
+    /**
+     * Identifier of this job engine node in the partition leases. When empty, it is generated from the host name
+     */
+    JOB_ENGINE_CLUSTER_NODE_ID("jobEngine.cluster.node.id"),
+
+    /**
+     * Maximum number of targets of a partition
+     */
+    JOB_ENGINE_CLUSTER_PARTITION_SIZE("jobEngine.cluster.partition.size"),
+
+    /**
+     * Maximum number of partitions processed concurrently by this job engine node
+     */
+    JOB_ENGINE_CLUSTER_PARTITION_MAX("jobEngine.cluster.partition.max"),
+
+    /**
+     * Duration (in milliseconds) of a partition lease. A partition whose lease is not renewed within this time is taken over by another node
+     */
+    JOB_ENGINE_CLUSTER_LEASE_DURATION("jobEngine.cluster.lease.duration"),
+
+    /**
+     * Interval (in milliseconds) between two renewals of the partition leases of this node, which is also the interval between two lookups of pending partitions
+     */
+    JOB_ENGINE_CLUSTER_LEASE_RENEW_INTERVAL("jobEngine.cluster.lease.renew.interval");
 
     private String key;
 
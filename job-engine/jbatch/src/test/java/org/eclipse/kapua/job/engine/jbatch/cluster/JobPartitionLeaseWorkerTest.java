@@ -0,0 +1,228 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Eurotech and/or its affiliates and others
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Eurotech - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.kapua.job.engine.jbatch.cluster;
+
+import org.eclipse.kapua.commons.model.id.KapuaEid;
+import org.eclipse.kapua.model.id.KapuaId;
+import org.eclipse.kapua.service.liquibase.KapuaLiquibaseClient;
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.math.BigInteger;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * {@link JobPartitionLeaseWorker} tests: job engine nodes leasing the {@link JobPartition}s of a job from the job_engine_partition_lease table created by liquibase.<br>
+ * The jBatch jobs of the {@link JobPartition}s are simulated by the workers.
+ */
+public class JobPartitionLeaseWorkerTest {
+
+    private static final String JDBC_URL = "jdbc:h2:mem:jobPartitionLease;MODE=MySQL;DB_CLOSE_DELAY=-1";
+    private static final String USERNAME = "kapua";
+    private static final String PASSWORD = "kapua";
+
+    private static final KapuaId JOB_ID = new KapuaEid(BigInteger.valueOf(10));
+    private static final KapuaId JOB_EXECUTION_ID = new KapuaEid(BigInteger.valueOf(20));
+
+    private static final long TIMEOUT = 10000;
+
+    private static JdbcDataSource dataSource;
+
+    private final List<TestJobPartitionLeaseWorker> workers = new ArrayList<>();
+    private JobPartitionLeaseDAO jobPartitionLeaseDAO;
+
+    @BeforeClass
+    public static void setUpDatabase() {
+        new KapuaLiquibaseClient(JDBC_URL, USERNAME, PASSWORD).update();
+
+        dataSource = new JdbcDataSource();
+        dataSource.setURL(JDBC_URL);
+        dataSource.setUser(USERNAME);
+        dataSource.setPassword(PASSWORD);
+    }
+
+    @Before
+    public void setUp() throws SQLException {
+        try (Connection connection = dataSource.getConnection();
+                Statement statement = connection.createStatement()) {
+            statement.executeUpdate("DELETE FROM job_engine_partition_lease");
+        }
+
+        jobPartitionLeaseDAO = new JobPartitionLeaseDAO(dataSource);
+    }
+
+    @After
+    public void tearDown() {
+        workers.forEach(JobPartitionLeaseWorker::stop);
+    }
+
+    @Test
+    public void testNoDoubleProcessing() throws Exception {
+        int partitionCount = 12;
+        jobPartitionLeaseDAO.replace(KapuaId.ONE, JOB_ID, newJobPartitions(partitionCount));
+
+        for (int i = 1; i <= 3; i++) {
+            newWorker("node-" + i, 60000, true).start();
+        }
+
+        waitFinished();
+
+        // each partition has been run by one node only
+        Map<Integer, String> runningNodes = new HashMap<>();
+        List<KapuaId> endedJobExecutionIds = new ArrayList<>();
+        for (TestJobPartitionLeaseWorker worker : workers) {
+            for (JobPartition jobPartition : worker.startedJobPartitions) {
+                String previousNode = runningNodes.put(jobPartition.getPartitionIndex(), worker.getNodeId());
+                Assert.assertNull("Partition " + jobPartition.getPartitionIndex() + " run also by " + previousNode, previousNode);
+                Assert.assertEquals(1, jobPartition.getLeaseCount());
+            }
+            endedJobExecutionIds.addAll(worker.endedJobExecutionIds);
+        }
+        Assert.assertEquals(partitionCount, runningNodes.size());
+
+        // the job execution ends with the last partition
+        Assert.assertFalse(endedJobExecutionIds.isEmpty());
+        endedJobExecutionIds.forEach(jobExecutionId -> Assert.assertEquals(JOB_EXECUTION_ID, jobExecutionId));
+    }
+
+    @Test
+    public void testTakeoverAfterLeaseExpiry() throws Exception {
+        jobPartitionLeaseDAO.replace(KapuaId.ONE, JOB_ID, newJobPartitions(1));
+
+        // The first node leases the partition and then stops renewing the lease, as if it crashed
+        TestJobPartitionLeaseWorker crashedWorker = newWorker("node-crashed", 1000, false);
+        crashedWorker.poll();
+        Assert.assertEquals(1, crashedWorker.startedJobPartitions.size());
+        long crashedJbatchExecutionId = crashedWorker.runningJbatchExecutionIds.iterator().next();
+
+        TestJobPartitionLeaseWorker worker = newWorker("node-alive", 1000, true);
+        worker.start();
+
+        // the lease is not taken over before it expires
+        Thread.sleep(300);
+        Assert.assertTrue(worker.startedJobPartitions.isEmpty());
+
+        // and it is taken over after it expires
+        waitFinished();
+        Assert.assertEquals(1, worker.startedJobPartitions.size());
+        Assert.assertEquals(2, worker.startedJobPartitions.get(0).getLeaseCount());
+        Assert.assertEquals(1, worker.endedJobExecutionIds.size());
+
+        // the first node stops its execution of the partition as soon as it finds out that the lease is lost
+        crashedWorker.poll();
+        Assert.assertTrue(crashedWorker.stoppedJbatchExecutionIds.contains(crashedJbatchExecutionId));
+
+        // and a late completion of its execution does not complete the partition again
+        Assert.assertFalse(jobPartitionLeaseDAO.complete(KapuaId.ONE, JOB_ID, 0, crashedWorker.getNodeId(), 1));
+    }
+
+    private TestJobPartitionLeaseWorker newWorker(String nodeId, long leaseDuration, boolean completeJobPartitions) {
+        TestJobPartitionLeaseWorker worker = new TestJobPartitionLeaseWorker(new JobPartitionLeaseDAO(dataSource), nodeId, leaseDuration, completeJobPartitions);
+        workers.add(worker);
+        return worker;
+    }
+
+    private void waitFinished() throws Exception {
+        long deadline = System.currentTimeMillis() + TIMEOUT;
+        while (jobPartitionLeaseDAO.countUnfinished(KapuaId.ONE, JOB_ID) > 0) {
+            Assert.assertTrue("The job partitions have not been processed in time", System.currentTimeMillis() < deadline);
+            Thread.sleep(50);
+        }
+    }
+
+    private static List<JobPartition> newJobPartitions(int partitionCount) {
+        List<JobPartition> jobPartitions = new ArrayList<>();
+        for (int partitionIndex = 0; partitionIndex < partitionCount; partitionIndex++) {
+            JobPartition jobPartition = new JobPartition();
+            jobPartition.setScopeId(KapuaId.ONE);
+            jobPartition.setJobId(JOB_ID);
+            jobPartition.setPartitionIndex(partitionIndex);
+            jobPartition.setJobExecutionId(JOB_EXECUTION_ID);
+            jobPartition.setFirstTargetId(new KapuaEid(BigInteger.valueOf(partitionIndex * 100L + 1)));
+            jobPartition.setLastTargetId(new KapuaEid(BigInteger.valueOf(partitionIndex * 100L + 100)));
+            jobPartitions.add(jobPartition);
+        }
+        return jobPartitions;
+    }
+
+    /**
+     * {@link JobPartitionLeaseWorker} whose jBatch jobs are simulated: each of them completes its {@link JobPartition} shortly after being started,
+     * as the job listener does, unless the node is simulating a crash.
+     */
+    private static class TestJobPartitionLeaseWorker extends JobPartitionLeaseWorker {
+
+        private static final AtomicLong JBATCH_EXECUTION_ID = new AtomicLong();
+
+        private final boolean completeJobPartitions;
+
+        private final List<JobPartition> startedJobPartitions = new CopyOnWriteArrayList<>();
+        private final Set<Long> runningJbatchExecutionIds = ConcurrentHashMap.newKeySet();
+        private final Set<Long> stoppedJbatchExecutionIds = ConcurrentHashMap.newKeySet();
+        private final List<KapuaId> endedJobExecutionIds = new CopyOnWriteArrayList<>();
+
+        private TestJobPartitionLeaseWorker(JobPartitionLeaseDAO jobPartitionLeaseDAO, String nodeId, long leaseDuration, boolean completeJobPartitions) {
+            super(jobPartitionLeaseDAO, nodeId, 2, leaseDuration, 100);
+            this.completeJobPartitions = completeJobPartitions;
+        }
+
+        @Override
+        long startJbatchExecution(JobPartition jobPartition) {
+            long jbatchExecutionId = JBATCH_EXECUTION_ID.incrementAndGet();
+            startedJobPartitions.add(jobPartition);
+            runningJbatchExecutionIds.add(jbatchExecutionId);
+
+            if (completeJobPartitions) {
+                Thread jbatchThread = new Thread(() -> {
+                    try {
+                        Thread.sleep(20);
+                        runningJbatchExecutionIds.remove(jbatchExecutionId);
+                        completeJobPartition(jobPartition.getScopeId(), jobPartition.getJobId(), jobPartition.getPartitionIndex(), jobPartition.getLeaseCount(), jobPartition.getJobExecutionId());
+                    } catch (Exception e) {
+                        throw new IllegalStateException(e);
+                    }
+                });
+                jbatchThread.setDaemon(true);
+                jbatchThread.start();
+            }
+            return jbatchExecutionId;
+        }
+
+        @Override
+        boolean isJbatchExecutionRunning(long jbatchExecutionId) {
+            return runningJbatchExecutionIds.contains(jbatchExecutionId);
+        }
+
+        @Override
+        void stopJbatchExecution(long jbatchExecutionId) {
+            stoppedJbatchExecutionIds.add(jbatchExecutionId);
+        }
+
+        @Override
+        void endJobExecution(KapuaId scopeId, KapuaId jobExecutionId) {
+            endedJobExecutionIds.add(jobExecutionId);
+        }
+    }
+}
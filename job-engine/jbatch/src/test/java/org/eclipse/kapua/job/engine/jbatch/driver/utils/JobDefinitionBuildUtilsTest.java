@@ -0,0 +1,109 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Eurotech and/or its affiliates and others
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Eurotech - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.kapua.job.engine.jbatch.driver.utils;
+
+import org.eclipse.kapua.commons.model.id.KapuaEid;
+import org.eclipse.kapua.model.id.KapuaId;
+import org.eclipse.kapua.service.job.step.JobStep;
+import org.eclipse.kapua.service.job.step.definition.JobStepDefinition;
+import org.eclipse.kapua.service.job.step.definition.internal.JobStepDefinitionImpl;
+import org.eclipse.kapua.service.job.step.internal.JobStepImpl;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * {@link JobDefinitionBuildUtils#buildJobXmlVersion(List, Map)} tests: the version of the job XML definition follows the job steps and their definitions
+ */
+public class JobDefinitionBuildUtilsTest {
+
+    private static final KapuaId FIRST_DEFINITION_ID = new KapuaEid(BigInteger.valueOf(11));
+    private static final KapuaId SECOND_DEFINITION_ID = new KapuaEid(BigInteger.valueOf(12));
+
+    @Test
+    public void testSameVersion() {
+        List<JobStep> jobSteps = newJobSteps();
+        Map<KapuaId, JobStepDefinition> jobStepDefinitions = newJobStepDefinitions();
+
+        String jobXmlVersion = JobDefinitionBuildUtils.buildJobXmlVersion(jobSteps, jobStepDefinitions);
+
+        Assert.assertEquals(16, jobXmlVersion.length());
+        Assert.assertEquals(jobXmlVersion, JobDefinitionBuildUtils.buildJobXmlVersion(newJobSteps(), newJobStepDefinitions()));
+    }
+
+    @Test
+    public void testJobStepUpdated() {
+        String jobXmlVersion = JobDefinitionBuildUtils.buildJobXmlVersion(newJobSteps(), newJobStepDefinitions());
+
+        List<JobStep> jobSteps = newJobSteps();
+        jobSteps.get(1).setOptlock(jobSteps.get(1).getOptlock() + 1);
+
+        Assert.assertNotEquals(jobXmlVersion, JobDefinitionBuildUtils.buildJobXmlVersion(jobSteps, newJobStepDefinitions()));
+    }
+
+    @Test
+    public void testJobStepAddedOrRemoved() {
+        String jobXmlVersion = JobDefinitionBuildUtils.buildJobXmlVersion(newJobSteps(), newJobStepDefinitions());
+
+        List<JobStep> jobSteps = newJobSteps();
+        jobSteps.add(newJobStep(3, 2, FIRST_DEFINITION_ID));
+        Assert.assertNotEquals(jobXmlVersion, JobDefinitionBuildUtils.buildJobXmlVersion(jobSteps, newJobStepDefinitions()));
+
+        jobSteps = newJobSteps();
+        jobSteps.remove(1);
+        Assert.assertNotEquals(jobXmlVersion, JobDefinitionBuildUtils.buildJobXmlVersion(jobSteps, newJobStepDefinitions()));
+    }
+
+    @Test
+    public void testJobStepDefinitionUpdated() {
+        String jobXmlVersion = JobDefinitionBuildUtils.buildJobXmlVersion(newJobSteps(), newJobStepDefinitions());
+
+        // the processor or the properties of a step definition can change without changing the job steps
+        Map<KapuaId, JobStepDefinition> jobStepDefinitions = newJobStepDefinitions();
+        JobStepDefinition jobStepDefinition = jobStepDefinitions.get(SECOND_DEFINITION_ID);
+        jobStepDefinition.setOptlock(jobStepDefinition.getOptlock() + 1);
+
+        Assert.assertNotEquals(jobXmlVersion, JobDefinitionBuildUtils.buildJobXmlVersion(newJobSteps(), jobStepDefinitions));
+    }
+
+    private static List<JobStep> newJobSteps() {
+        List<JobStep> jobSteps = new ArrayList<>();
+        jobSteps.add(newJobStep(1, 0, FIRST_DEFINITION_ID));
+        jobSteps.add(newJobStep(2, 1, SECOND_DEFINITION_ID));
+        return jobSteps;
+    }
+
+    private static JobStep newJobStep(long id, int stepIndex, KapuaId jobStepDefinitionId) {
+        JobStepImpl jobStep = new JobStepImpl(KapuaId.ONE);
+        jobStep.setId(new KapuaEid(BigInteger.valueOf(id)));
+        jobStep.setStepIndex(stepIndex);
+        jobStep.setJobStepDefinitionId(jobStepDefinitionId);
+        jobStep.setOptlock(1);
+        return jobStep;
+    }
+
+    private static Map<KapuaId, JobStepDefinition> newJobStepDefinitions() {
+        Map<KapuaId, JobStepDefinition> jobStepDefinitions = new HashMap<>();
+        for (KapuaId jobStepDefinitionId : new KapuaId[] { FIRST_DEFINITION_ID, SECOND_DEFINITION_ID }) {
+            JobStepDefinitionImpl jobStepDefinition = new JobStepDefinitionImpl(KapuaId.ONE);
+            jobStepDefinition.setId(jobStepDefinitionId);
+            jobStepDefinition.setOptlock(1);
+            jobStepDefinitions.put(jobStepDefinitionId, jobStepDefinition);
+        }
+        return jobStepDefinitions;
+    }
+}
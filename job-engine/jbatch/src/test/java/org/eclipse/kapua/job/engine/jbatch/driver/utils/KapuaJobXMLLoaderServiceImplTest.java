@@ -0,0 +1,75 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Eurotech and/or its affiliates and others
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Eurotech - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.kapua.job.engine.jbatch.driver.utils;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * {@link KapuaJobXMLLoaderServiceImpl} tests: registration, replacement and removal of the job XML definitions served from memory
+ */
+public class KapuaJobXMLLoaderServiceImplTest {
+
+    private static final String JOB_XML_V1 = "<job id=\"job\" version=\"1.0\"><step id=\"step-0\"/></job>";
+    private static final String JOB_XML_V2 = "<job id=\"job\" version=\"1.0\"><step id=\"step-0\" next=\"step-1\"/><step id=\"step-1\"/></job>";
+
+    private final KapuaJobXMLLoaderServiceImpl jobXmlLoaderService = new KapuaJobXMLLoaderServiceImpl();
+
+    @Test
+    public void testRegisterJobXml() {
+        String jobName = "job-register";
+        Assert.assertNull(KapuaJobXMLLoaderServiceImpl.getJobXmlName(jobName, "v1"));
+
+        String jobXmlName = KapuaJobXMLLoaderServiceImpl.registerJobXml(jobName, "v1", JOB_XML_V1);
+
+        Assert.assertEquals(jobName + "@v1", jobXmlName);
+        Assert.assertEquals(jobXmlName, KapuaJobXMLLoaderServiceImpl.getJobXmlName(jobName, "v1"));
+        Assert.assertEquals(JOB_XML_V1, jobXmlLoaderService.loadJSL(jobXmlName));
+    }
+
+    @Test
+    public void testRegisterNewVersion() {
+        String jobName = "job-version";
+        String previousJobXmlName = KapuaJobXMLLoaderServiceImpl.registerJobXml(jobName, "v1", JOB_XML_V1);
+
+        String jobXmlName = KapuaJobXMLLoaderServiceImpl.registerJobXml(jobName, "v2", JOB_XML_V2);
+
+        // the new version replaces the previous one
+        Assert.assertNotEquals(previousJobXmlName, jobXmlName);
+        Assert.assertNull(KapuaJobXMLLoaderServiceImpl.getJobXmlName(jobName, "v1"));
+        Assert.assertEquals(jobXmlName, KapuaJobXMLLoaderServiceImpl.getJobXmlName(jobName, "v2"));
+        Assert.assertEquals(JOB_XML_V2, jobXmlLoaderService.loadJSL(jobXmlName));
+    }
+
+    @Test
+    public void testRegisterJobsWithSameVersion() {
+        String firstJobXmlName = KapuaJobXMLLoaderServiceImpl.registerJobXml("job-first", "v1", JOB_XML_V1);
+        String secondJobXmlName = KapuaJobXMLLoaderServiceImpl.registerJobXml("job-second", "v1", JOB_XML_V2);
+
+        // the definitions of different jobs are independent
+        Assert.assertEquals(JOB_XML_V1, jobXmlLoaderService.loadJSL(firstJobXmlName));
+        Assert.assertEquals(JOB_XML_V2, jobXmlLoaderService.loadJSL(secondJobXmlName));
+    }
+
+    @Test
+    public void testUnregisterJobXml() {
+        String jobName = "job-unregister";
+        KapuaJobXMLLoaderServiceImpl.registerJobXml(jobName, "v1", JOB_XML_V1);
+
+        KapuaJobXMLLoaderServiceImpl.unregisterJobXml(jobName);
+
+        Assert.assertNull(KapuaJobXMLLoaderServiceImpl.getJobXmlName(jobName, "v1"));
+
+        // unregistering a job without definition is harmless
+        KapuaJobXMLLoaderServiceImpl.unregisterJobXml(jobName);
+    }
+}
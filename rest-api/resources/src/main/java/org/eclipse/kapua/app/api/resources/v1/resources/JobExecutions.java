@@ -0,0 +1,114 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Eurotech and/or its affiliates and others
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Eurotech - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.kapua.app.api.resources.v1.resources;
+
+import javax.ws.rs.DefaultValue;
+import javax.ws.rs.GET;
+import javax.ws.rs.Path;
+import javax.ws.rs.PathParam;
+import javax.ws.rs.Produces;
+import javax.ws.rs.QueryParam;
+import javax.ws.rs.core.MediaType;
+
+import io.swagger.annotations.Authorization;
+import org.eclipse.kapua.KapuaEntityNotFoundException;
+import org.eclipse.kapua.app.api.resources.v1.resources.model.EntityId;
+import org.eclipse.kapua.app.api.resources.v1.resources.model.ScopeId;
+import org.eclipse.kapua.commons.model.query.predicate.AttributePredicateImpl;
+import org.eclipse.kapua.locator.KapuaLocator;
+import org.eclipse.kapua.service.KapuaService;
+import org.eclipse.kapua.service.job.Job;
+import org.eclipse.kapua.service.job.execution.JobExecution;
+import org.eclipse.kapua.service.job.execution.JobExecutionFactory;
+import org.eclipse.kapua.service.job.execution.JobExecutionListResult;
+import org.eclipse.kapua.service.job.execution.JobExecutionPredicates;
+import org.eclipse.kapua.service.job.execution.JobExecutionProgress;
+import org.eclipse.kapua.service.job.execution.JobExecutionQuery;
+import org.eclipse.kapua.service.job.execution.JobExecutionService;
+
+import io.swagger.annotations.Api;
+import io.swagger.annotations.ApiOperation;
+import io.swagger.annotations.ApiParam;
+
+@Api(value = "Jobs", authorizations = { @Authorization(value = "kapuaAccessToken") })
+@Path("{scopeId}/jobs/{jobId}/executions")
+public class JobExecutions extends AbstractKapuaResource {
+
+    private final KapuaLocator locator = KapuaLocator.getInstance();
+    private final JobExecutionService jobExecutionService = locator.getService(JobExecutionService.class);
+    private final JobExecutionFactory jobExecutionFactory = locator.getFactory(JobExecutionFactory.class);
+
+    /**
+     * Gets the {@link JobExecution} list of the {@link Job}.
+     *
+     * @param scopeId
+     *            The {@link ScopeId} in which to search results.
+     * @param jobId
+     *            The id of the {@link Job} in which to search results
+     * @param offset
+     *            The result set offset.
+     * @param limit
+     *            The result set limit.
+     * @return The {@link JobExecutionListResult} of all the jobExecutions of the {@link Job}.
+     * @throws Exception
+     *             Whenever something bad happens. See specific {@link KapuaService} exceptions.
+     * @since 1.0.0
+     */
+    @ApiOperation(nickname = "jobExecutionSimpleQuery", value = "Gets the JobExecution list of the Job", notes = "Returns the list of all the jobExecutions of the Job.", response = JobExecutionListResult.class)
+    @GET
+    @Produces({ MediaType.APPLICATION_JSON, MediaType.APPLICATION_XML })
+    public JobExecutionListResult simpleQuery(
+            @ApiParam(value = "The ScopeId in which to search results.", required = true, defaultValue = DEFAULT_SCOPE_ID) @PathParam("scopeId") ScopeId scopeId,
+            @ApiParam(value = "The id of the Job in which to search results", required = true) @PathParam("jobId") EntityId jobId,
+            @ApiParam(value = "The result set offset.", defaultValue = "0") @QueryParam("offset") @DefaultValue("0") int offset,
+            @ApiParam(value = "The result set limit.", defaultValue = "50") @QueryParam("limit") @DefaultValue("50") int limit) throws Exception {
+        JobExecutionQuery query = jobExecutionFactory.newQuery(scopeId);
+        query.setPredicate(new AttributePredicateImpl<>(JobExecutionPredicates.JOB_ID, jobId));
+
+        query.setOffset(offset);
+        query.setLimit(limit);
+
+        return jobExecutionService.query(query);
+    }
+
+    /**
+     * Returns the live progress of the {@link JobExecution} specified by the "executionId" path parameter.<br>
+     * The counters are maintained by the job engine while the {@link JobExecution} runs, so this call does not query the job targets.
+     *
+     * @param scopeId
+     *            The {@link ScopeId} of the requested {@link JobExecution}.
+     * @param jobId
+     *            The {@link Job} id of the requested {@link JobExecution}.
+     * @param executionId
+     *            The id of the requested {@link JobExecution}.
+     * @return The {@link JobExecutionProgress} of the requested {@link JobExecution}.
+     * @throws Exception
+     *             Whenever something bad happens. See specific {@link KapuaService} exceptions.
+     * @since 1.0.0
+     */
+    @ApiOperation(nickname = "jobExecutionProgress", value = "Get the progress of a JobExecution", notes = "Returns the target counters of the JobExecution specified by the \"executionId\" path parameter.", response = JobExecutionProgress.class)
+    @GET
+    @Path("{executionId}/progress")
+    @Produces({ MediaType.APPLICATION_JSON, MediaType.APPLICATION_XML })
+    public JobExecutionProgress findProgress(
+            @ApiParam(value = "The ScopeId of the requested JobExecution.", required = true, defaultValue = DEFAULT_SCOPE_ID) @PathParam("scopeId") ScopeId scopeId,
+            @ApiParam(value = "The id of the Job of the requested JobExecution", required = true) @PathParam("jobId") EntityId jobId,
+            @ApiParam(value = "The id of the requested JobExecution", required = true) @PathParam("executionId") EntityId executionId) throws Exception {
+        JobExecutionProgress jobExecutionProgress = jobExecutionService.findProgress(scopeId, executionId);
+
+        if (jobExecutionProgress == null || !jobId.getId().equals(jobExecutionProgress.getJobId().getId())) {
+            throw new KapuaEntityNotFoundException(JobExecution.TYPE, executionId);
+        }
+
+        return jobExecutionProgress;
+    }
+}
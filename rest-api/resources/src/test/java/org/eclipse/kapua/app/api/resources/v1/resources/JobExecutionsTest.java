@@ -0,0 +1,105 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Eurotech and/or its affiliates and others
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Eurotech - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.kapua.app.api.resources.v1.resources;
+
+import java.math.BigInteger;
+
+import org.eclipse.kapua.KapuaEntityNotFoundException;
+import org.eclipse.kapua.app.api.resources.v1.resources.model.EntityId;
+import org.eclipse.kapua.app.api.resources.v1.resources.model.ScopeId;
+import org.eclipse.kapua.commons.model.id.KapuaEid;
+import org.eclipse.kapua.locator.KapuaLocator;
+import org.eclipse.kapua.model.id.KapuaId;
+import org.eclipse.kapua.model.query.predicate.QueryPredicate;
+import org.eclipse.kapua.service.job.execution.JobExecutionFactory;
+import org.eclipse.kapua.service.job.execution.JobExecutionListResult;
+import org.eclipse.kapua.service.job.execution.JobExecutionProgress;
+import org.eclipse.kapua.service.job.execution.JobExecutionQuery;
+import org.eclipse.kapua.service.job.execution.JobExecutionService;
+import org.eclipse.kapua.test.MockedLocator;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Matchers;
+import org.mockito.Mockito;
+
+/**
+ * {@link JobExecutions} tests: the executions of a job and the progress of an execution, which must belong to the job of the path
+ */
+public class JobExecutionsTest {
+
+    private static final ScopeId SCOPE_ID = new ScopeId(KapuaId.ONE.toCompactId());
+    private static final EntityId JOB_ID = new EntityId(new KapuaEid(BigInteger.valueOf(10)).toCompactId());
+    private static final EntityId OTHER_JOB_ID = new EntityId(new KapuaEid(BigInteger.valueOf(11)).toCompactId());
+    private static final EntityId EXECUTION_ID = new EntityId(new KapuaEid(BigInteger.valueOf(20)).toCompactId());
+
+    private JobExecutionService jobExecutionService;
+    private JobExecutionFactory jobExecutionFactory;
+    private JobExecutions jobExecutions;
+
+    @Before
+    public void setUp() {
+        jobExecutionService = Mockito.mock(JobExecutionService.class);
+        jobExecutionFactory = Mockito.mock(JobExecutionFactory.class);
+
+        MockedLocator mockedLocator = (MockedLocator) KapuaLocator.getInstance();
+        mockedLocator.setMockedService(JobExecutionService.class, jobExecutionService);
+        mockedLocator.setMockedFactory(JobExecutionFactory.class, jobExecutionFactory);
+
+        jobExecutions = new JobExecutions();
+    }
+
+    @Test
+    public void testSimpleQuery() throws Exception {
+        JobExecutionQuery query = Mockito.mock(JobExecutionQuery.class);
+        JobExecutionListResult result = Mockito.mock(JobExecutionListResult.class);
+        Mockito.when(jobExecutionFactory.newQuery(SCOPE_ID)).thenReturn(query);
+        Mockito.when(jobExecutionService.query(query)).thenReturn(result);
+
+        Assert.assertSame(result, jobExecutions.simpleQuery(SCOPE_ID, JOB_ID, 10, 20));
+
+        Mockito.verify(query).setPredicate(Matchers.any(QueryPredicate.class));
+        Mockito.verify(query).setOffset(10);
+        Mockito.verify(query).setLimit(20);
+    }
+
+    @Test
+    public void testFindProgress() throws Exception {
+        JobExecutionProgress progress = newProgress(JOB_ID);
+        Mockito.when(jobExecutionService.findProgress(SCOPE_ID, EXECUTION_ID)).thenReturn(progress);
+
+        Assert.assertSame(progress, jobExecutions.findProgress(SCOPE_ID, JOB_ID, EXECUTION_ID));
+
+        // the progress is read from the counters only
+        Mockito.verify(jobExecutionService).findProgress(SCOPE_ID, EXECUTION_ID);
+        Mockito.verifyNoMoreInteractions(jobExecutionService);
+    }
+
+    @Test(expected = KapuaEntityNotFoundException.class)
+    public void testFindProgressNotFound() throws Exception {
+        jobExecutions.findProgress(SCOPE_ID, JOB_ID, EXECUTION_ID);
+    }
+
+    @Test(expected = KapuaEntityNotFoundException.class)
+    public void testFindProgressOfOtherJob() throws Exception {
+        JobExecutionProgress progress = newProgress(OTHER_JOB_ID);
+        Mockito.when(jobExecutionService.findProgress(SCOPE_ID, EXECUTION_ID)).thenReturn(progress);
+
+        jobExecutions.findProgress(SCOPE_ID, JOB_ID, EXECUTION_ID);
+    }
+
+    private static JobExecutionProgress newProgress(KapuaId jobId) {
+        JobExecutionProgress progress = Mockito.mock(JobExecutionProgress.class);
+        Mockito.when(progress.getJobId()).thenReturn(new KapuaEid(jobId.getId()));
+        return progress;
+    }
+}
@@ -163,6 +163,12 @@ import org.eclipse.kapua.service.endpoint.EndpointInfoListResult;
 import org.eclipse.kapua.service.endpoint.EndpointInfoQuery;
 import org.eclipse.kapua.service.endpoint.EndpointInfoXmlRegistry;
 import org.eclipse.kapua.service.endpoint.EndpointUsage;
+import org.eclipse.kapua.service.job.execution.JobExecution;
+import org.eclipse.kapua.service.job.execution.JobExecutionListResult;
+import org.eclipse.kapua.service.job.execution.JobExecutionProgress;
+import org.eclipse.kapua.service.job.execution.JobExecutionQuery;
+import org.eclipse.kapua.service.job.execution.JobExecutionStepProgress;
+import org.eclipse.kapua.service.job.execution.JobExecutionXmlRegistry;
 import org.eclipse.kapua.service.tag.Tag;
 import org.eclipse.kapua.service.tag.TagCreator;
 import org.eclipse.kapua.service.tag.TagListResult;
@@ -413,6 +419,14 @@ public class JaxbContextResolver implements ContextResolver<JAXBContext> {
                     AccessRoleQuery.class,
                     AccessRoleXmlRegistry.class,
 
+                    // Job Execution
+                    JobExecution.class,
+                    JobExecutionListResult.class,
+                    JobExecutionQuery.class,
+                    JobExecutionProgress.class,
+                    JobExecutionStepProgress.class,
+                    JobExecutionXmlRegistry.class,
+
                     // Tag
                     Tag.class,
                     TagListResult.class,
@@ -14,6 +14,7 @@ package org.eclipse.kapua.app.api.web;
 import com.google.common.base.MoreObjects;
 import org.eclipse.kapua.KapuaException;
 import org.eclipse.kapua.commons.core.ServiceModuleBundle;
+import org.eclipse.kapua.commons.jpa.DataSourceProviders;
 import org.eclipse.kapua.commons.jpa.JdbcConnectionUrlResolvers;
 import org.eclipse.kapua.commons.setting.system.SystemSetting;
 import org.eclipse.kapua.commons.setting.system.SystemSettingKey;
@@ -78,6 +79,9 @@ public class RestApiListener implements ServletContextListener {
         } catch (KapuaException e) {
             LOG.error("Cannot stop service modules: {}", e.getMessage(), e);
         }
+
+        // close the database connection pool
+        DataSourceProviders.close();
     }
 
 }
@@ -20,6 +20,8 @@ import org.eclipse.kapua.service.KapuaNamedEntityService;
 import org.eclipse.kapua.service.KapuaUpdatableEntityService;
 import org.eclipse.kapua.service.config.KapuaConfigurableService;
 
+import java.util.List;
+
 /**
  * AccountService exposes APIs to manage Account objects.<br>
  * It includes APIs to create, update, find, list and delete Accounts.<br>
@@ -68,4 +70,27 @@ public interface AccountService extends KapuaEntityService<Account, AccountCreat
      * @throws KapuaException
      */
     AccountListResult findChildsRecursively(KapuaId accountId) throws KapuaException;
+
+    /**
+     * Checks if an account is an ancestor (the parent, the parent of the parent and so on) of the given account.<br>
+     * The check is served by the cached account hierarchy.
+     *
+     * @param ancestorId the Id of the ancestor Account
+     * @param accountId  the Id of the Account
+     * @return {@code true} if the first account is an ancestor of the second one
+     * @throws KapuaException
+     * @since 1.0.0
+     */
+    boolean isAncestor(KapuaId ancestorId, KapuaId accountId) throws KapuaException;
+
+    /**
+     * Returns the Ids of the direct child accounts of the provided account identifier.<br>
+     * The result is served by the cached account hierarchy.
+     *
+     * @param accountId the Id of the parent Account
+     * @return the Ids of the direct child accounts
+     * @throws KapuaException
+     * @since 1.0.0
+     */
+    List<KapuaId> findChildIds(KapuaId accountId) throws KapuaException;
 }
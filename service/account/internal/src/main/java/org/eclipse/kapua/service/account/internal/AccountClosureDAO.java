@@ -0,0 +1,94 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Eurotech and/or its affiliates and others
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Eurotech - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.kapua.service.account.internal;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.eclipse.kapua.commons.jpa.EntityManager;
+import org.eclipse.kapua.commons.model.id.KapuaEid;
+import org.eclipse.kapua.model.id.KapuaId;
+import org.eclipse.kapua.service.account.Account;
+
+/**
+ * Account hierarchy closure table DAO
+ *
+ * @since 1.0
+ */
+public class AccountClosureDAO {
+
+    private AccountClosureDAO() {
+    }
+
+    /**
+     * Creates the closure rows of a new account, from its parent account path
+     *
+     * @param em
+     * @param account
+     */
+    public static void create(EntityManager em, Account account) {
+        BigInteger descendantId = account.getId().getId();
+        // the path is '/<root id>/.../<parent id>/<account id>', so the depth is the distance from the end of the path
+        String[] pathIds = account.getParentAccountPath().substring(1).split("/");
+        for (int i = 0; i < pathIds.length; i++) {
+            em.persist(new AccountClosureImpl(new BigInteger(pathIds[i]), descendantId, pathIds.length - 1 - i));
+        }
+    }
+
+    /**
+     * Deletes the closure rows of the account
+     *
+     * @param em
+     * @param accountId
+     */
+    public static void delete(EntityManager em, KapuaId accountId) {
+        em.createQuery("DELETE FROM AccountClosure c WHERE c.descendantId = :descendantId OR c.ancestorId = :descendantId")
+                .setParameter("descendantId", accountId.getId())
+                .executeUpdate();
+    }
+
+    /**
+     * Finds the ids of the ancestors of the account, from the root account to the parent account
+     *
+     * @param em
+     * @param accountId
+     * @return
+     */
+    public static List<KapuaId> findAncestorIds(EntityManager em, KapuaId accountId) {
+        return toKapuaIds(em.createNamedQuery("AccountClosure.findAncestorIds", BigInteger.class)
+                .setParameter("descendantId", accountId.getId())
+                .getResultList());
+    }
+
+    /**
+     * Finds the ids of the direct child accounts of the account
+     *
+     * @param em
+     * @param accountId
+     * @return
+     */
+    public static List<KapuaId> findChildIds(EntityManager em, KapuaId accountId) {
+        return toKapuaIds(em.createNamedQuery("AccountClosure.findChildIds", BigInteger.class)
+                .setParameter("ancestorId", accountId.getId())
+                .getResultList());
+    }
+
+    private static List<KapuaId> toKapuaIds(List<BigInteger> ids) {
+        List<KapuaId> kapuaIds = new ArrayList<>(ids.size());
+        for (BigInteger id : ids) {
+            kapuaIds.add(new KapuaEid(id));
+        }
+        return kapuaIds;
+    }
+
+}
@@ -0,0 +1,124 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Eurotech and/or its affiliates and others
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Eurotech - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.kapua.service.account.internal;
+
+import java.io.Serializable;
+import java.math.BigInteger;
+import java.util.Objects;
+
+import javax.persistence.Basic;
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import javax.persistence.IdClass;
+import javax.persistence.NamedQueries;
+import javax.persistence.NamedQuery;
+import javax.persistence.Table;
+
+/**
+ * Account hierarchy closure table row: it relates an account to each of its ancestors (and to itself, with depth 0).<br>
+ * The rows are written when the account is created and deleted with it (an account cannot change parent).
+ *
+ * @since 1.0
+ */
+@Entity(name = "AccountClosure")
+@IdClass(AccountClosureImpl.AccountClosureId.class)
+@NamedQueries({
+        @NamedQuery(name = "AccountClosure.findAncestorIds", query = "SELECT c.ancestorId FROM AccountClosure c WHERE c.descendantId = :descendantId AND c.depth > 0 ORDER BY c.depth DESC"),
+        @NamedQuery(name = "AccountClosure.findChildIds", query = "SELECT c.descendantId FROM AccountClosure c WHERE c.ancestorId = :ancestorId AND c.depth = 1")
+})
+@Table(name = "act_account_closure")
+public class AccountClosureImpl implements Serializable {
+
+    private static final long serialVersionUID = -3036937823582936498L;
+
+    @Id
+    @Column(name = "ancestor_id", nullable = false, updatable = false)
+    private BigInteger ancestorId;
+
+    @Id
+    @Column(name = "descendant_id", nullable = false, updatable = false)
+    private BigInteger descendantId;
+
+    @Basic
+    @Column(name = "depth", nullable = false, updatable = false)
+    private int depth;
+
+    /**
+     * Constructor
+     */
+    protected AccountClosureImpl() {
+    }
+
+    /**
+     * Constructor
+     *
+     * @param ancestorId
+     * @param descendantId
+     * @param depth
+     *            the number of levels between the ancestor and the descendant (0 if the ancestor is the descendant)
+     */
+    public AccountClosureImpl(BigInteger ancestorId, BigInteger descendantId, int depth) {
+        this.ancestorId = ancestorId;
+        this.descendantId = descendantId;
+        this.depth = depth;
+    }
+
+    public BigInteger getAncestorId() {
+        return ancestorId;
+    }
+
+    public BigInteger getDescendantId() {
+        return descendantId;
+    }
+
+    public int getDepth() {
+        return depth;
+    }
+
+    /**
+     * {@link AccountClosureImpl} primary key
+     */
+    public static class AccountClosureId implements Serializable {
+
+        private static final long serialVersionUID = 2419528126512046364L;
+
+        private BigInteger ancestorId;
+        private BigInteger descendantId;
+
+        public AccountClosureId() {
+        }
+
+        public AccountClosureId(BigInteger ancestorId, BigInteger descendantId) {
+            this.ancestorId = ancestorId;
+            this.descendantId = descendantId;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (!(obj instanceof AccountClosureId)) {
+                return false;
+            }
+            AccountClosureId other = (AccountClosureId) obj;
+            return Objects.equals(ancestorId, other.ancestorId) && Objects.equals(descendantId, other.descendantId);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(ancestorId, descendantId);
+        }
+    }
+
+}
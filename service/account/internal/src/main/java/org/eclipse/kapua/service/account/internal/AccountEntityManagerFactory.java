@@ -11,6 +11,7 @@
  *******************************************************************************/
 package org.eclipse.kapua.service.account.internal;
 
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -38,7 +39,8 @@ public class AccountEntityManagerFactory extends AbstractEntityManagerFactory im
     private AccountEntityManagerFactory() {
         super(PERSISTENCE_UNIT_NAME,
                 DATASOURCE_NAME,
-                UNIQUE_CONTRAINTS);
+                UNIQUE_CONTRAINTS,
+                Collections.singleton("Account"));
     }
 
     /**
@@ -0,0 +1,141 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Eurotech and/or its affiliates and others
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Eurotech - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.kapua.service.account.internal;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.eclipse.kapua.KapuaException;
+import org.eclipse.kapua.commons.model.id.KapuaEid;
+import org.eclipse.kapua.commons.service.internal.cache.EntityCache;
+import org.eclipse.kapua.commons.setting.system.SystemSetting;
+import org.eclipse.kapua.commons.setting.system.SystemSettingKey;
+import org.eclipse.kapua.model.id.KapuaId;
+
+/**
+ * In memory cache of the account hierarchy (the ancestors and the direct children of the accounts), loaded from the {@link AccountClosureImpl} table.<br>
+ * The ancestors of an account never change, while the children change when a child account is created or deleted: in that case the parent account is invalidated
+ * through the account {@link EntityCache}, so its children are evicted on this node and, on a best effort basis, on the other nodes. The cache is kept per node and
+ * no service event invalidates it, so the entries expire after the entity time to live ({@link SystemSettingKey#CACHE_ENTITY_TTL}), as the cached accounts do.<br>
+ * The loaders must read the primary database: an entry loaded from a lagging replica would miss the accounts just created.<br>
+ * The cache is enabled together with the account {@link EntityCache}, otherwise the hierarchy is loaded on each call.
+ *
+ * @since 1.0
+ */
+class AccountHierarchyCache {
+
+    private static final int MAX_SIZE = SystemSetting.getInstance().getInt(SystemSettingKey.CACHE_KEYS_SIZE, 10000);
+    private static final long TTL = SystemSetting.getInstance().getLong(SystemSettingKey.CACHE_ENTITY_TTL, 300000L);
+
+    /**
+     * Loader of the account ids related to an account
+     */
+    @FunctionalInterface
+    interface IdsLoader {
+
+        List<KapuaId> load(KapuaId accountId) throws KapuaException;
+    }
+
+    private final boolean enabled;
+    private final long ttl;
+    private final Map<KapuaId, Entry> ancestorIds = new ConcurrentHashMap<>();
+    private final Map<KapuaId, Entry> childIds = new ConcurrentHashMap<>();
+    private final AtomicLong evictionCount = new AtomicLong();
+
+    AccountHierarchyCache(EntityCache accountCache) {
+        this(accountCache, TTL);
+    }
+
+    /**
+     * @param accountCache
+     * @param ttl
+     *            time to live of the cached ids, in milliseconds
+     */
+    AccountHierarchyCache(EntityCache accountCache, long ttl) {
+        enabled = accountCache.isEnabled();
+        this.ttl = ttl;
+        accountCache.addEvictionListener(this::evict);
+    }
+
+    /**
+     * @param accountId
+     * @param loader
+     * @return the ids of the ancestors of the account, from the root account to the parent account
+     * @throws KapuaException
+     */
+    List<KapuaId> getAncestorIds(KapuaId accountId, IdsLoader loader) throws KapuaException {
+        return get(ancestorIds, accountId, loader);
+    }
+
+    /**
+     * @param accountId
+     * @param loader
+     * @return the ids of the direct child accounts of the account
+     * @throws KapuaException
+     */
+    List<KapuaId> getChildIds(KapuaId accountId, IdsLoader loader) throws KapuaException {
+        return get(childIds, accountId, loader);
+    }
+
+    private List<KapuaId> get(Map<KapuaId, Entry> cache, KapuaId accountId, IdsLoader loader) throws KapuaException {
+        if (!enabled) {
+            return loader.load(accountId);
+        }
+        KapuaEid key = KapuaEid.parseKapuaId(accountId);
+        Entry entry = cache.get(key);
+        if (entry != null && System.currentTimeMillis() - entry.loadedOn < ttl) {
+            return entry.ids;
+        }
+
+        // an eviction during the load may concern the loaded ids, in that case they are not cached
+        long evictionCountBeforeLoad = evictionCount.get();
+        long loadedOn = System.currentTimeMillis();
+        List<KapuaId> ids = Collections.unmodifiableList(loader.load(accountId));
+        if (cache.size() >= MAX_SIZE) {
+            cache.clear();
+        }
+        if (evictionCount.get() == evictionCountBeforeLoad) {
+            cache.put(key, new Entry(ids, loadedOn));
+        }
+        return ids;
+    }
+
+    private void evict(KapuaId accountId) {
+        evictionCount.incrementAndGet();
+        if (accountId != null) {
+            KapuaEid key = KapuaEid.parseKapuaId(accountId);
+            ancestorIds.remove(key);
+            childIds.remove(key);
+        } else {
+            ancestorIds.clear();
+            childIds.clear();
+        }
+    }
+
+    /**
+     * Cached ids, with their load time
+     */
+    private static class Entry {
+
+        private final List<KapuaId> ids;
+        private final long loadedOn;
+
+        private Entry(List<KapuaId> ids, long loadedOn) {
+            this.ids = ids;
+            this.loadedOn = loadedOn;
+        }
+    }
+
+}
@@ -40,7 +40,7 @@ import java.util.List;
 @Entity(name = "Account")
 @NamedQueries({
         @NamedQuery(name = "Account.findChildAccounts", query = "SELECT a FROM Account a WHERE a.scopeId = :scopeId ORDER BY a.name"),
-        @NamedQuery(name = "Account.findChildAccountsRecursive", query = "SELECT a FROM Account a WHERE a.parentAccountPath LIKE :parentAccountPath ORDER BY a.name")
+        @NamedQuery(name = "Account.findChildAccountsRecursive", query = "SELECT a FROM Account a, AccountClosure c WHERE c.ancestorId = :ancestorId AND c.depth > 0 AND a.id.eid = c.descendantId ORDER BY a.name")
 })
 @Table(name = "act_account")
 public class AccountImpl extends AbstractKapuaNamedEntity implements Account {
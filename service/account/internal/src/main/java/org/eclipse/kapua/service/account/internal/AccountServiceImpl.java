@@ -22,6 +22,8 @@ import org.eclipse.kapua.KapuaIllegalArgumentException;
 import org.eclipse.kapua.commons.configuration.AbstractKapuaConfigurableResourceLimitedService;
 import org.eclipse.kapua.commons.model.query.predicate.AttributePredicateImpl;
 import org.eclipse.kapua.commons.security.KapuaSecurityUtils;
+import org.eclipse.kapua.commons.service.internal.cache.EntityCache;
+import org.eclipse.kapua.commons.service.internal.cache.EntityCacheManager;
 import org.eclipse.kapua.commons.setting.system.SystemSetting;
 import org.eclipse.kapua.commons.setting.system.SystemSettingKey;
 import org.eclipse.kapua.commons.util.ArgumentValidator;
@@ -42,6 +44,7 @@ import org.eclipse.kapua.service.authorization.permission.PermissionFactory;
 
 import javax.inject.Inject;
 import javax.persistence.TypedQuery;
+import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 
@@ -54,6 +57,12 @@ import java.util.Objects;
 public class AccountServiceImpl extends AbstractKapuaConfigurableResourceLimitedService<Account, AccountCreator, AccountService, AccountListResult, AccountQuery, AccountFactory>
         implements AccountService {
 
+    // The account and hierarchy caches are kept per node. The create, update and delete methods don't raise service events (the annotations are disabled),
+    // so the other nodes are invalidated only by the best effort invalidations of the EntityCacheManager: a lost invalidation leaves the stale entries until
+    // the time to live expires
+    private static final EntityCache ACCOUNT_CACHE = EntityCacheManager.getCache("Account", AccountImpl.class, AccountEntityManagerFactory.getInstance());
+    private static final AccountHierarchyCache HIERARCHY_CACHE = new AccountHierarchyCache(ACCOUNT_CACHE);
+
     @Inject
     private AuthorizationService authorizationService;
 
@@ -118,15 +127,19 @@ public class AccountServiceImpl extends AbstractKapuaConfigurableResourceLimited
             throw new KapuaDuplicateNameInAnotherAccountError(accountCreator.getName());
         }
 
-        return entityManagerSession.onTransactedInsert(em -> {
+        Account createdAccount = entityManagerSession.onTransactedInsert(em -> {
             Account account = AccountDAO.create(em, accountCreator);
             em.persist(account);
 
             // Set the parent account path
             String parentAccountPath = AccountDAO.find(em, accountCreator.getScopeId()).getParentAccountPath() + "/" + account.getId();
             account.setParentAccountPath(parentAccountPath);
+            AccountClosureDAO.create(em, account);
             return AccountDAO.update(em, account);
         });
+        // the children of the parent account are changed
+        ACCOUNT_CACHE.invalidate(accountCreator.getScopeId());
+        return createdAccount;
     }
 
     @Override
@@ -158,7 +171,7 @@ public class AccountServiceImpl extends AbstractKapuaConfigurableResourceLimited
 
         //
         // Do update
-        return entityManagerSession.onTransactedResult(em -> {
+        Account updatedAccount = entityManagerSession.onTransactedResult(em -> {
 
             //
             // Verify unchanged parent account ID and parent account path
@@ -175,6 +188,8 @@ public class AccountServiceImpl extends AbstractKapuaConfigurableResourceLimited
             // Update
             return AccountDAO.update(em, account);
         });
+        ACCOUNT_CACHE.invalidate(account.getId());
+        return updatedAccount;
     }
 
     @Override
@@ -215,8 +230,12 @@ public class AccountServiceImpl extends AbstractKapuaConfigurableResourceLimited
                 throw new KapuaIllegalAccessException(action.name());
             }
 
+            AccountClosureDAO.delete(em, accountId);
             AccountDAO.delete(em, accountId);
         });
+        ACCOUNT_CACHE.invalidate(accountId);
+        // the children of the parent account are changed
+        ACCOUNT_CACHE.invalidate(scopeId);
     }
 
     @Override
@@ -259,7 +278,7 @@ public class AccountServiceImpl extends AbstractKapuaConfigurableResourceLimited
         //
         // Do find
         return entityManagerSession.onResult(em -> {
-            Account account = AccountDAO.findByName(em, name);
+            Account account = ACCOUNT_CACHE.findByKey(em, AccountImpl.class, null, name, () -> AccountDAO.findByName(em, name));
 
             //
             // Check Access
@@ -292,7 +311,7 @@ public class AccountServiceImpl extends AbstractKapuaConfigurableResourceLimited
             AccountListResult result = null;
             TypedQuery<Account> q;
             q = em.createNamedQuery("Account.findChildAccountsRecursive", Account.class);
-            q.setParameter("parentAccountPath", "\\" + account.getParentAccountPath() + "/%");
+            q.setParameter("ancestorId", account.getId().getId());
 
             result = new AccountListResultImpl();
             result.addItems(q.getResultList());
@@ -300,6 +319,42 @@ public class AccountServiceImpl extends AbstractKapuaConfigurableResourceLimited
         });
     }
 
+    @Override
+    public boolean isAncestor(KapuaId ancestorId, KapuaId accountId) throws KapuaException {
+        //
+        // Argument validation
+        ArgumentValidator.notNull(ancestorId, "ancestorId");
+        ArgumentValidator.notNull(accountId, "accountId");
+
+        //
+        // Check Access
+        authorizationService.checkPermission(permissionFactory.newPermission(ACCOUNT_DOMAIN, Actions.read, accountId));
+
+        //
+        // Do check
+        for (KapuaId id : HIERARCHY_CACHE.getAncestorIds(accountId, this::findAncestorIdsTrusted)) {
+            if (id.getId().equals(ancestorId.getId())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public List<KapuaId> findChildIds(KapuaId accountId) throws KapuaException {
+        //
+        // Argument validation
+        ArgumentValidator.notNull(accountId, "accountId");
+
+        //
+        // Check Access
+        authorizationService.checkPermission(permissionFactory.newPermission(ACCOUNT_DOMAIN, Actions.read, accountId));
+
+        //
+        // Do find
+        return HIERARCHY_CACHE.getChildIds(accountId, this::findChildIdsTrusted);
+    }
+
     @Override
     public AccountListResult query(KapuaQuery<Account> query) throws KapuaException {
         //
@@ -360,6 +415,15 @@ public class AccountServiceImpl extends AbstractKapuaConfigurableResourceLimited
         return entityManagerSession.onResult(em -> AccountDAO.query(em, new AccountQueryImpl(accountId)));
     }
 
+    // the hierarchy is cached, so it is loaded from the primary database
+    private List<KapuaId> findAncestorIdsTrusted(KapuaId accountId) throws KapuaException {
+        return entityManagerSession.onPrimaryResult(em -> AccountClosureDAO.findAncestorIds(em, accountId));
+    }
+
+    private List<KapuaId> findChildIdsTrusted(KapuaId accountId) throws KapuaException {
+        return entityManagerSession.onPrimaryResult(em -> AccountClosureDAO.findChildIds(em, accountId));
+    }
+
     @Override
     protected Map<String, Object> getConfigValues(Account entity) throws KapuaException {
         return super.getConfigValues(entity.getId());
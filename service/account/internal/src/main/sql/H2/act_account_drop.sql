@@ -10,5 +10,6 @@
  *     Eurotech - initial API and implementation
  *******************************************************************************/
 
+DROP TABLE IF EXISTS act_account_closure;
 DROP TABLE IF EXISTS act_account;
 DROP TABLE IF EXISTS DATABASECHANGELOG;
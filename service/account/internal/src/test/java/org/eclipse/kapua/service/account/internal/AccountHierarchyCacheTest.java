@@ -0,0 +1,147 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Eurotech and/or its affiliates and others
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Eurotech - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.kapua.service.account.internal;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.eclipse.kapua.KapuaException;
+import org.eclipse.kapua.commons.model.id.KapuaEid;
+import org.eclipse.kapua.commons.service.internal.cache.EntityCache;
+import org.eclipse.kapua.commons.service.internal.cache.EntityCacheManager;
+import org.eclipse.kapua.model.id.KapuaId;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * {@link AccountHierarchyCache} tests: caching of the loaded ids, expiration and eviction through the account cache
+ */
+public class AccountHierarchyCacheTest {
+
+    private static final EntityCache ACCOUNT_CACHE = EntityCacheManager.getCache("Account", AccountImpl.class, AccountEntityManagerFactory.getInstance());
+
+    private static long nextAccountId = 39000;
+
+    @Test
+    public void testCachedIds() throws KapuaException {
+        AccountHierarchyCache hierarchyCache = new AccountHierarchyCache(ACCOUNT_CACHE);
+        KapuaId accountId = newAccountId();
+        KapuaId childId = newAccountId();
+        CountingLoader childLoader = new CountingLoader(childId);
+        CountingLoader ancestorLoader = new CountingLoader(KapuaId.ONE);
+
+        Assert.assertEquals(Collections.singletonList(childId), hierarchyCache.getChildIds(accountId, childLoader));
+        Assert.assertEquals(Collections.singletonList(childId), hierarchyCache.getChildIds(new KapuaEid(accountId.getId()), childLoader));
+        Assert.assertEquals(1, childLoader.loads.get());
+
+        // the ancestors and the children are cached separately
+        Assert.assertEquals(Collections.singletonList(KapuaId.ONE), hierarchyCache.getAncestorIds(accountId, ancestorLoader));
+        Assert.assertEquals(1, ancestorLoader.loads.get());
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void testCachedIdsAreUnmodifiable() throws KapuaException {
+        AccountHierarchyCache hierarchyCache = new AccountHierarchyCache(ACCOUNT_CACHE);
+        hierarchyCache.getChildIds(newAccountId(), new CountingLoader(newAccountId())).add(KapuaId.ONE);
+    }
+
+    @Test
+    public void testEviction() throws KapuaException {
+        AccountHierarchyCache hierarchyCache = new AccountHierarchyCache(ACCOUNT_CACHE);
+        KapuaId accountId = newAccountId();
+        KapuaId otherAccountId = newAccountId();
+        CountingLoader loader = new CountingLoader(newAccountId());
+        CountingLoader otherLoader = new CountingLoader(newAccountId());
+        hierarchyCache.getChildIds(accountId, loader);
+        hierarchyCache.getChildIds(otherAccountId, otherLoader);
+
+        // the invalidation of an account evicts only its ids
+        ACCOUNT_CACHE.invalidate(accountId);
+        hierarchyCache.getChildIds(accountId, loader);
+        hierarchyCache.getChildIds(otherAccountId, otherLoader);
+        Assert.assertEquals(2, loader.loads.get());
+        Assert.assertEquals(1, otherLoader.loads.get());
+
+        ACCOUNT_CACHE.invalidate(null);
+        hierarchyCache.getChildIds(accountId, loader);
+        hierarchyCache.getChildIds(otherAccountId, otherLoader);
+        Assert.assertEquals(3, loader.loads.get());
+        Assert.assertEquals(2, otherLoader.loads.get());
+    }
+
+    @Test
+    public void testEvictionDuringLoad() throws KapuaException {
+        AccountHierarchyCache hierarchyCache = new AccountHierarchyCache(ACCOUNT_CACHE);
+        KapuaId accountId = newAccountId();
+        KapuaId childId = newAccountId();
+        AtomicInteger loads = new AtomicInteger();
+        AccountHierarchyCache.IdsLoader evictingLoader = id -> {
+            // an account is changed while the ids are loaded, so the loaded ids may be stale
+            if (loads.incrementAndGet() == 1) {
+                ACCOUNT_CACHE.invalidate(childId);
+            }
+            return new ArrayList<>(Collections.singletonList(childId));
+        };
+
+        Assert.assertEquals(Collections.singletonList(childId), hierarchyCache.getChildIds(accountId, evictingLoader));
+        hierarchyCache.getChildIds(accountId, evictingLoader);
+        hierarchyCache.getChildIds(accountId, evictingLoader);
+        Assert.assertEquals(2, loads.get());
+    }
+
+    @Test
+    public void testExpiredIds() throws KapuaException {
+        // the ids cached by this node are reloaded once expired, even if no invalidation is received
+        AccountHierarchyCache hierarchyCache = new AccountHierarchyCache(ACCOUNT_CACHE, 0L);
+        KapuaId accountId = newAccountId();
+        CountingLoader loader = new CountingLoader(newAccountId());
+        hierarchyCache.getChildIds(accountId, loader);
+        hierarchyCache.getChildIds(accountId, loader);
+        Assert.assertEquals(2, loader.loads.get());
+    }
+
+    @Test
+    public void testDisabledCache() throws KapuaException {
+        EntityCache disabledCache = EntityCacheManager.getCache("NotCachedAccount", AccountImpl.class, AccountEntityManagerFactory.getInstance());
+        Assert.assertFalse(disabledCache.isEnabled());
+
+        AccountHierarchyCache hierarchyCache = new AccountHierarchyCache(disabledCache);
+        KapuaId accountId = newAccountId();
+        CountingLoader loader = new CountingLoader(newAccountId());
+        hierarchyCache.getChildIds(accountId, loader);
+        hierarchyCache.getChildIds(accountId, loader);
+        Assert.assertEquals(2, loader.loads.get());
+    }
+
+    private static KapuaId newAccountId() {
+        return new KapuaEid(BigInteger.valueOf(nextAccountId++));
+    }
+
+    private static class CountingLoader implements AccountHierarchyCache.IdsLoader {
+
+        private final KapuaId id;
+        private final AtomicInteger loads = new AtomicInteger();
+
+        CountingLoader(KapuaId id) {
+            this.id = id;
+        }
+
+        @Override
+        public List<KapuaId> load(KapuaId accountId) {
+            loads.incrementAndGet();
+            return new ArrayList<>(Collections.singletonList(id));
+        }
+    }
+}
@@ -27,10 +27,12 @@ import org.eclipse.kapua.KapuaException;
 import org.eclipse.kapua.KapuaIllegalNullArgumentException;
 import org.eclipse.kapua.commons.configuration.KapuaConfigurableServiceSchemaUtils;
 import org.eclipse.kapua.commons.configuration.metatype.KapuaMetatypeFactoryImpl;
+import org.eclipse.kapua.commons.jpa.EntityManager;
 import org.eclipse.kapua.commons.model.id.IdGenerator;
 import org.eclipse.kapua.commons.model.id.KapuaEid;
 import org.eclipse.kapua.commons.security.KapuaSecurityUtils;
 import org.eclipse.kapua.commons.security.KapuaSession;
+import org.eclipse.kapua.commons.service.internal.cache.EntityCacheManager;
 import org.eclipse.kapua.commons.setting.system.SystemSetting;
 import org.eclipse.kapua.commons.setting.system.SystemSettingKey;
 import org.eclipse.kapua.commons.util.xml.XmlUtil;
@@ -58,7 +60,9 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.math.BigInteger;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Properties;
@@ -188,6 +192,8 @@ public class AccountServiceTestSteps extends AbstractKapuaSteps {
     public void afterScenario() throws Exception {
         // Drop the Account Service tables
         scriptSession(AccountEntityManagerFactory.getInstance(), DROP_ACCOUNT_TABLES);
+        // The tables are dropped without the service, so the cached accounts are stale
+        EntityCacheManager.getCache("Account", AccountImpl.class, AccountEntityManagerFactory.getInstance()).invalidate(null);
         KapuaConfigurableServiceSchemaUtils.dropSchemaObjects(DEFAULT_COMMONS_PATH);
         KapuaSecurityUtils.clearSession();
     }
@@ -254,6 +260,15 @@ public class AccountServiceTestSteps extends AbstractKapuaSteps {
         }
     }
 
+    @Given("^An existing child account with the name \"(.*)\" of the account \"(.*)\"$")
+    public void createChildAccountWithName(String name, String parentName)
+            throws KapuaException {
+        Account parentAccount = accountService.findByName(parentName);
+        accountCreator = prepareRegularAccountCreator(parentAccount.getId(), name);
+        account = accountService.create(accountCreator);
+        accountId = account.getId();
+    }
+
     @Given("^I create (\\d+) accounts with organization name \"(.*)\"$")
     public void createANumberOfChildrenForAccountWithOrganizationName(int num, String name)
             throws Exception {
@@ -386,6 +401,25 @@ public class AccountServiceTestSteps extends AbstractKapuaSteps {
         accountService.delete(tmpAcc.getScopeId(), tmpAcc.getId());
     }
 
+    @When("^I rebuild the account closure from the account paths$")
+    public void rebuildAccountClosure()
+            throws Exception {
+        // Run again the liquibase change set that fills the closure table of the existing accounts
+        EntityManager em = AccountEntityManagerFactory.getInstance().createEntityManager();
+        try {
+            em.beginTransaction();
+            em.createNativeQuery("DELETE FROM act_account_closure").executeUpdate();
+            em.createNativeQuery("DELETE FROM DATABASECHANGELOG WHERE id = 'changelog-account-closure-1.0.0_seed'").executeUpdate();
+            em.commit();
+        } finally {
+            em.close();
+        }
+        new KapuaLiquibaseClient("jdbc:h2:mem:kapua;MODE=MySQL", "kapua", "kapua").update();
+
+        // The closure has been changed without the service, so the cached hierarchy is stale
+        EntityCacheManager.getCache("Account", AccountImpl.class, AccountEntityManagerFactory.getInstance()).invalidate(null);
+    }
+
     @When("^I try to delete the system account$")
     public void deleteSystemAccount()
             throws Exception {
@@ -551,6 +585,53 @@ public class AccountServiceTestSteps extends AbstractKapuaSteps {
         assertEquals(num, accountCnt);
     }
 
+    @Then("^Account \"(.*)\" is an ancestor of account \"(.*)\"$")
+    public void checkAncestor(String ancestorName, String name)
+            throws KapuaException {
+        assertTrue(accountService.isAncestor(accountService.findByName(ancestorName).getId(), accountService.findByName(name).getId()));
+    }
+
+    @Then("^Account \"(.*)\" is not an ancestor of account \"(.*)\"$")
+    public void checkNotAncestor(String ancestorName, String name)
+            throws KapuaException {
+        assertFalse(accountService.isAncestor(accountService.findByName(ancestorName).getId(), accountService.findByName(name).getId()));
+    }
+
+    @Then("^The ancestors of account \"(.*)\" are \"(.*)\"$")
+    public void checkAncestors(String name, String ancestorNames)
+            throws KapuaException {
+        Account tmpAcc = accountService.findByName(name);
+        EntityManager em = AccountEntityManagerFactory.getInstance().createEntityManager();
+        try {
+            // The ancestors are sorted from the root account to the parent account
+            assertEquals(findIds(ancestorNames), AccountClosureDAO.findAncestorIds(em, tmpAcc.getId()));
+        } finally {
+            em.close();
+        }
+    }
+
+    @Then("^The child accounts of account \"(.*)\" are \"(.*)\"$")
+    public void checkChildIds(String name, String childNames)
+            throws KapuaException {
+        Account tmpAcc = accountService.findByName(name);
+        assertEquals(new HashSet<>(findIds(childNames)), new HashSet<>(accountService.findChildIds(tmpAcc.getId())));
+    }
+
+    @Then("^The account closure of the current account is deleted$")
+    public void checkAccountClosureDeleted()
+            throws KapuaException {
+        EntityManager em = AccountEntityManagerFactory.getInstance().createEntityManager();
+        try {
+            Number count = (Number) em.createNativeQuery("SELECT COUNT(*) FROM act_account_closure WHERE ancestor_id = ? OR descendant_id = ?")
+                    .setParameter(1, accountId.getId())
+                    .setParameter(2, accountId.getId())
+                    .getSingleResult();
+            assertEquals(0, count.intValue());
+        } finally {
+            em.close();
+        }
+    }
+
     @Then("^An exception is caught$")
     public void checkThatAnExceptionWasCaught() {
         assertTrue("An exception was expected but it was not raised!", exceptionCaught);
@@ -653,6 +734,17 @@ public class AccountServiceTestSteps extends AbstractKapuaSteps {
         return tmpAccCreator;
     }
 
+    private List<KapuaId> findIds(String names)
+            throws KapuaException {
+        List<KapuaId> ids = new ArrayList<>();
+        for (String name : names.split(",")) {
+            if (!name.isEmpty()) {
+                ids.add(accountService.findByName(name).getId());
+            }
+        }
+        return ids;
+    }
+
     private void primeException() {
         exceptionCaught = false;
     }
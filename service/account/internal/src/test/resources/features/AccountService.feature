@@ -207,3 +207,48 @@ Scenario: Account name must not be mutable
     When I change the account "test_acc" name to "test_acc_new"
     Then An exception is caught
     And Account "test_acc" exists
+
+Scenario: The account hierarchy is indexed by the closure table
+    Each account is related to all its ancestors, so the ancestor checks and the child lookups
+    don't need the parent account path.
+
+    Given An existing account with the name "closure_a"
+    And I configure "integer" item "maxNumberChildEntities" to "5"
+    And An existing child account with the name "closure_b" of the account "closure_a"
+    And I configure "integer" item "maxNumberChildEntities" to "5"
+    And An existing child account with the name "closure_c" of the account "closure_b"
+    Then Account "closure_a" is an ancestor of account "closure_c"
+    And Account "closure_b" is an ancestor of account "closure_c"
+    And Account "closure_c" is not an ancestor of account "closure_a"
+    And Account "closure_c" is not an ancestor of account "closure_c"
+    And The ancestors of account "closure_c" are "kapua-sys,closure_a,closure_b"
+    And The child accounts of account "closure_a" are "closure_b"
+    And The child accounts of account "closure_c" are ""
+
+Scenario: The closure of a deleted account is deleted
+    The closure rows of a deleted account are deleted and the account is not a child
+    of its parent account any more.
+
+    Given An existing account with the name "closure_a"
+    And I configure "integer" item "maxNumberChildEntities" to "5"
+    And An existing child account with the name "closure_d" of the account "closure_a"
+    And An existing child account with the name "closure_b" of the account "closure_a"
+    When I delete account "closure_b"
+    Then The account closure of the current account is deleted
+    And The child accounts of account "closure_a" are "closure_d"
+
+Scenario: The account closure is filled from the account paths
+    The closure of the accounts existing before the closure table is filled by liquibase
+    from the parent account paths.
+
+    Given An existing account with the name "closure_a"
+    And I configure "integer" item "maxNumberChildEntities" to "5"
+    And An existing child account with the name "closure_b" of the account "closure_a"
+    And I configure "integer" item "maxNumberChildEntities" to "5"
+    And An existing child account with the name "closure_c" of the account "closure_b"
+    When I rebuild the account closure from the account paths
+    Then The ancestors of account "closure_c" are "kapua-sys,closure_a,closure_b"
+    And The ancestors of account "closure_a" are "kapua-sys"
+    And The child accounts of account "closure_a" are "closure_b"
+    And The child accounts of account "closure_b" are "closure_c"
+    And Account "closure_a" is an ancestor of account "closure_c"
@@ -11,6 +11,8 @@
  *******************************************************************************/
 package org.eclipse.kapua.event;
 
+import java.util.List;
+
 /**
  * Service event bus definition.
  *
@@ -27,6 +29,20 @@ public interface ServiceEventBus {
      */
     void publish(String address, ServiceEvent event) throws ServiceEventBusException;
 
+    /**
+     * Publish the events to the bus, in the list order.<br>
+     * Implementations should publish the events all together (e.g. in a single transaction), the default implementation publishes them one by one.
+     *
+     * @param address address in which to publish the events
+     * @param events  events to publish
+     * @throws ServiceEventBusException
+     */
+    default void publish(String address, List<ServiceEvent> events) throws ServiceEventBusException {
+        for (ServiceEvent event : events) {
+            publish(address, event);
+        }
+    }
+
     /**
      * Subscribe for a specific address event
      *
@@ -36,4 +52,17 @@ public interface ServiceEventBus {
      * @throws ServiceEventBusException
      */
     void subscribe(String address, String name, ServiceEventBusListener eventListener) throws ServiceEventBusException;
+
+    /**
+     * Subscribe for a specific address event, receiving only the events published while the subscriber is connected (the events are not kept for a disconnected subscriber).<br>
+     * The default implementation falls back to {@link #subscribe(String, String, ServiceEventBusListener)}.
+     *
+     * @param address       address to listen for events
+     * @param name          subscriber name. It's used to share events between multiple instances of the same consumer.
+     * @param eventListener listener to invoke when an event is received
+     * @throws ServiceEventBusException
+     */
+    default void subscribeNonDurable(String address, String name, ServiceEventBusListener eventListener) throws ServiceEventBusException {
+        subscribe(address, name, eventListener);
+    }
 }
\ No newline at end of file
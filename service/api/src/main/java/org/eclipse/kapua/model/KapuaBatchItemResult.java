@@ -0,0 +1,55 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Eurotech and/or its affiliates and others
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Eurotech - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.kapua.model;
+
+import org.eclipse.kapua.KapuaException;
+
+/**
+ * Result of a single item of a batch operation.
+ *
+ * @param <E> {@link KapuaEntity} type.
+ * @since 1.0.0
+ */
+public interface KapuaBatchItemResult<E extends KapuaEntity> {
+
+    /**
+     * Gets the position of the item in the batch.
+     *
+     * @return The position of the item in the batch.
+     * @since 1.0.0
+     */
+    int getIndex();
+
+    /**
+     * Gets the written {@link KapuaEntity}.
+     *
+     * @return The written {@link KapuaEntity}, or {@code null} if the item failed.
+     * @since 1.0.0
+     */
+    E getEntity();
+
+    /**
+     * Gets the error that made the item fail.
+     *
+     * @return The error that made the item fail, or {@code null} if the item succeeded.
+     * @since 1.0.0
+     */
+    KapuaException getError();
+
+    /**
+     * Gets whether the item has been successfully written.
+     *
+     * @return {@code true} if the item has been successfully written, {@code false} otherwise.
+     * @since 1.0.0
+     */
+    boolean isSucceeded();
+}
@@ -0,0 +1,47 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Eurotech and/or its affiliates and others
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Eurotech - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.kapua.model;
+
+import java.util.List;
+
+/**
+ * Result of a batch operation on many {@link KapuaEntity}.
+ *
+ * @param <E> {@link KapuaEntity} type.
+ * @since 1.0.0
+ */
+public interface KapuaBatchResult<E extends KapuaEntity> {
+
+    /**
+     * Gets the result of each item of the batch, in the same order of the batch items.
+     *
+     * @return The result of each item of the batch.
+     * @since 1.0.0
+     */
+    List<KapuaBatchItemResult<E>> getItems();
+
+    /**
+     * Gets the {@link KapuaEntity}es successfully written by the batch.
+     *
+     * @return The {@link KapuaEntity}es successfully written by the batch.
+     * @since 1.0.0
+     */
+    List<E> getSucceededEntities();
+
+    /**
+     * Gets the number of items of the batch that failed.
+     *
+     * @return The number of items of the batch that failed.
+     * @since 1.0.0
+     */
+    int getFailedCount();
+}
@@ -153,4 +153,58 @@ public interface KapuaQuery<E extends KapuaEntity> {
      * @since 1.0.0
      */
     void setLimit(Integer limit);
+
+    /**
+     * Gets the value of the sort attribute of the last result of the previous page.
+     *
+     * @return The value of the sort attribute of the last result of the previous page.
+     * @see #setSeekAfter(Object, KapuaId)
+     * @since 1.0.0
+     */
+    @XmlTransient
+    Object getSeekAfterValue();
+
+    /**
+     * Gets the {@link KapuaId} of the last result of the previous page.
+     *
+     * @return The {@link KapuaId} of the last result of the previous page.
+     * @see #setSeekAfter(Object, KapuaId)
+     * @since 1.0.0
+     */
+    @XmlTransient
+    KapuaId getSeekAfterId();
+
+    /**
+     * Sets the keyset of the last result of the previous page, to paginate through the result set without an offset.<br>
+     * The {@link KapuaQuery} will return the results that follow the given keyset according to the {@link KapuaSortCriteria},
+     * using the {@link KapuaEntity} id to order the results with the same sort attribute value.
+     * Unlike {@link #setOffset(Integer)}, the cost of each page doesn't depend on its position in the result set.<br>
+     * The sort attribute must not be {@code null} for the paginated results.
+     * If set to {@code null} the {@link KapuaQuery} will start from the first result found.
+     *
+     * @param sortValue The value of the sort attribute of the last result of the previous page.
+     * @param id        The {@link KapuaId} of the last result of the previous page.
+     * @since 1.0.0
+     */
+    void setSeekAfter(Object sortValue, KapuaId id);
+
+    /**
+     * Gets the {@link KapuaQuery} count limit.
+     *
+     * @return The {@link KapuaQuery} count limit.
+     * @since 1.0.0
+     */
+    @XmlElement(name = "countLimit")
+    Integer getCountLimit();
+
+    /**
+     * Sets the max number of results that will be counted for this {@link KapuaQuery}.<br>
+     * The count is exact up to the given limit, otherwise the count is the limit itself (an estimation by defect of the total count),
+     * so its cost doesn't depend on the size of the result set.<br>
+     * If set to {@code null} the count will be exact.
+     *
+     * @param countLimit The max number of results that will be counted.
+     * @since 1.0.0
+     */
+    void setCountLimit(Integer countLimit);
 }
@@ -0,0 +1,48 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Eurotech and/or its affiliates and others
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Eurotech - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.kapua.service;
+
+import org.eclipse.kapua.KapuaException;
+import org.eclipse.kapua.model.KapuaBatchResult;
+import org.eclipse.kapua.model.KapuaEntity;
+import org.eclipse.kapua.model.KapuaEntityCreator;
+
+import java.util.List;
+
+/**
+ * Common interface for all KapuaService that are able to create and update many entities in batch.<br>
+ * The entities are written in chunks, each one in its own transaction, so the failure of an entity doesn't prevent the others to be written.
+ *
+ * @param <E> - Class of the KapuaEntity being managed by this Service
+ * @param <C> - Creator Class of the KapuaEntity being managed by this Service
+ * @since 1.0
+ */
+public interface KapuaBatchEntityService<E extends KapuaEntity, C extends KapuaEntityCreator<E>> extends KapuaService {
+
+    /**
+     * Creates the entities using information provided via the entity creators
+     *
+     * @param creators
+     * @return the result of each creator, in the same order of the given creators
+     * @throws KapuaException
+     */
+    KapuaBatchResult<E> createAll(List<C> creators) throws KapuaException;
+
+    /**
+     * Update the provided entities
+     *
+     * @param entities
+     * @return the result of each entity, in the same order of the given entities
+     * @throws KapuaException
+     */
+    KapuaBatchResult<E> updateAll(List<E> entities) throws KapuaException;
+}
@@ -0,0 +1,100 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Eurotech and/or its affiliates and others
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Eurotech - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.kapua.service.datastore.client.model;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Scripted update request.<br>
+ * The document is updated by the provided script (painless language) instead of merging the storable object.<br>
+ * If the storable object is not null, it is inserted as it is when the document doesn't exist (upsert) and it is also passed to the script as the
+ * {@link #UPSERT_PARAM} parameter, so the script can merge it into the existing document.<br>
+ * If the storable object is null, the update fails if the document doesn't exist.
+ *
+ * @since 1.0
+ */
+public class ScriptUpdateRequest extends UpdateRequest {
+
+    /**
+     * Name of the script parameter holding the marshalled storable object
+     */
+    public static final String UPSERT_PARAM = "upsert";
+
+    /**
+     * Script language
+     */
+    public static final String SCRIPT_LANG = "painless";
+
+    private String script;
+    private Map<String, Object> params;
+    private int retryOnConflict;
+
+    /**
+     * Default constructor
+     *
+     * @param id
+     *            object identifier
+     * @param typeDescriptor
+     *            index/type descriptor
+     * @param storable
+     *            object to insert if the document doesn't exist (may be null)
+     * @param script
+     *            the update script source
+     * @param retryOnConflict
+     *            how many times the update is retried if the document is concurrently updated
+     */
+    public ScriptUpdateRequest(String id, TypeDescriptor typeDescriptor, Object storable, String script, int retryOnConflict) {
+        super(id, typeDescriptor, storable);
+        this.script = script;
+        this.retryOnConflict = retryOnConflict;
+        params = new HashMap<>();
+    }
+
+    /**
+     * Get the update script source
+     *
+     * @return
+     */
+    public String getScript() {
+        return script;
+    }
+
+    /**
+     * Get the script parameters (the {@link #UPSERT_PARAM} parameter is added by the client)
+     *
+     * @return
+     */
+    public Map<String, Object> getParams() {
+        return params;
+    }
+
+    /**
+     * Add a script parameter
+     *
+     * @param name
+     * @param value
+     */
+    public void addParam(String name, Object value) {
+        params.put(name, value);
+    }
+
+    /**
+     * Get how many times the update is retried if the document is concurrently updated
+     *
+     * @return
+     */
+    public int getRetryOnConflict() {
+        return retryOnConflict;
+    }
+
+}
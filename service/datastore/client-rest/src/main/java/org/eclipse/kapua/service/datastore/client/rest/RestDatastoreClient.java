@@ -43,6 +43,7 @@ import org.eclipse.kapua.service.datastore.client.model.IndexResponse;
 import org.eclipse.kapua.service.datastore.client.model.InsertRequest;
 import org.eclipse.kapua.service.datastore.client.model.InsertResponse;
 import org.eclipse.kapua.service.datastore.client.model.ResultList;
+import org.eclipse.kapua.service.datastore.client.model.ScriptUpdateRequest;
 import org.eclipse.kapua.service.datastore.client.model.TypeDescriptor;
 import org.eclipse.kapua.service.datastore.client.model.UpdateRequest;
 import org.eclipse.kapua.service.datastore.client.model.UpdateResponse;
@@ -85,7 +86,14 @@ public class RestDatastoreClient implements org.eclipse.kapua.service.datastore.
     private static final String KEY_DOC_ID = "_id";
     private static final String KEY_DOC_INDEX = "_index";
     private static final String KEY_DOC_TYPE = "_type";
-
+    private static final String KEY_RETRY_ON_CONFLICT = "retry_on_conflict";
+    private static final String KEY_SCRIPT = "script";
+    private static final String KEY_SCRIPT_INLINE = "inline";
+    private static final String KEY_SCRIPT_LANG = "lang";
+    private static final String KEY_SCRIPT_PARAMS = "params";
+    private static final String KEY_UPSERT = "upsert";
+
+    private static final String KEY_ERROR = "error";
     private static final String KEY_ITEMS = "items";
     private static final String KEY_RESULT = "result";
     private static final String KEY_STATUS = "status";
@@ -267,10 +275,10 @@ public class RestDatastoreClient implements org.eclipse.kapua.service.datastore.
     @Override
     public UpdateResponse upsert(UpdateRequest updateRequest) throws ClientException {
         checkClient();
-        Map<String, Object> storableMap = modelContext.marshal(updateRequest.getStorable());
-        Map<String, Object> updateRequestMap = new HashMap<>();
-        updateRequestMap.put(KEY_DOC, storableMap);
-        updateRequestMap.put(KEY_DOC_AS_UPSERT, true);
+        Map<String, Object> updateRequestMap = getUpdateRequestMap(updateRequest);
+        Map<String, String> updateParams = updateRequest instanceof ScriptUpdateRequest ?
+                Collections.singletonMap(KEY_RETRY_ON_CONFLICT, Integer.toString(((ScriptUpdateRequest) updateRequest).getRetryOnConflict())) :
+                Collections.<String, String>emptyMap();
         logger.debug("Upsert - converted object: '{}'", updateRequestMap);
         String json = null;
         try {
@@ -286,7 +294,7 @@ public class RestDatastoreClient implements org.eclipse.kapua.service.datastore.
                 return esClientProvider.getClient().performRequest(
                         POST_ACTION,
                         getUpsertPath(updateRequest.getTypeDescriptor(), updateRequest.getId()),
-                        Collections.<String, String>emptyMap(),
+                        updateParams,
                         entity);
             }
 
@@ -313,23 +321,24 @@ public class RestDatastoreClient implements org.eclipse.kapua.service.datastore.
         checkClient();
         StringBuilder bulkOperation = new StringBuilder();
         for (UpdateRequest upsertRequest : bulkUpdateRequest.getRequest()) {
-            Map<String, Object> storableMap = modelContext.marshal(upsertRequest.getStorable());
             bulkOperation.append("{ \"update\": {\"_id\": \"")
                     .append(upsertRequest.getId())
                     .append("\", \"_type\": \"")
                     .append(upsertRequest.getTypeDescriptor().getType())
                     .append("\", \"_index\": \"")
                     .append(upsertRequest.getTypeDescriptor().getIndex())
-                    .append("\"}\n");
-
-            bulkOperation.append("{ \"doc\": ");
+                    .append("\"");
+            if (upsertRequest instanceof ScriptUpdateRequest) {
+                bulkOperation.append(", \"_retry_on_conflict\": ")
+                        .append(((ScriptUpdateRequest) upsertRequest).getRetryOnConflict());
+            }
+            bulkOperation.append("}\n");
             try {
-
-                bulkOperation.append(MAPPER.writeValueAsString(storableMap));
+                bulkOperation.append(MAPPER.writeValueAsString(getUpdateRequestMap(upsertRequest)));
             } catch (IOException e) {
                 throw new ClientException(ClientErrorCodes.ACTION_ERROR, e);
             }
-            bulkOperation.append(", \"doc_as_upsert\": true }\n");
+            bulkOperation.append("\n");
         }
         Response updateResponse = restCallTimeoutHandler(new Callable<Response>() {
 
@@ -365,9 +374,13 @@ public class RestDatastoreClient implements org.eclipse.kapua.service.datastore.
                     String typeName = jsonNode.get(KEY_DOC_TYPE).asText();
                     int responseCode = jsonNode.get(KEY_STATUS).asInt();
                     if (!isRequestSuccessful(responseCode)) {
+                        // the failed items carry the error (with the nested causes) instead of the result
+                        JsonNode errorNode = jsonNode.get(KEY_ERROR);
                         JsonNode failureNode = jsonNode.get(KEY_RESULT);
                         String failureMessage = MSG_EMPTY_ERROR;
-                        if (failureNode != null) {
+                        if (errorNode != null) {
+                            failureMessage = errorNode.isTextual() ? errorNode.asText() : errorNode.toString();
+                        } else if (failureNode != null) {
                             failureMessage = failureNode.asText();
                         }
                         bulkResponse.add(new UpdateResponse(metricId, new TypeDescriptor(indexName, typeName), failureMessage));
@@ -387,6 +400,36 @@ public class RestDatastoreClient implements org.eclipse.kapua.service.datastore.
         }
     }
 
+    /**
+     * Get the update request body: the partial document merged by the update (inserted as it is if the document doesn't exist) or, for the
+     * {@link ScriptUpdateRequest}, the update script and the optional upsert document
+     *
+     * @param updateRequest
+     * @return
+     * @throws ClientException
+     */
+    private Map<String, Object> getUpdateRequestMap(UpdateRequest updateRequest) throws ClientException {
+        Map<String, Object> storableMap = updateRequest.getStorable() != null ? modelContext.marshal(updateRequest.getStorable()) : null;
+        Map<String, Object> updateRequestMap = new HashMap<>();
+        if (updateRequest instanceof ScriptUpdateRequest) {
+            ScriptUpdateRequest scriptUpdateRequest = (ScriptUpdateRequest) updateRequest;
+            Map<String, Object> scriptParams = new HashMap<>(scriptUpdateRequest.getParams());
+            Map<String, Object> scriptMap = new HashMap<>();
+            scriptMap.put(KEY_SCRIPT_INLINE, scriptUpdateRequest.getScript());
+            scriptMap.put(KEY_SCRIPT_LANG, ScriptUpdateRequest.SCRIPT_LANG);
+            scriptMap.put(KEY_SCRIPT_PARAMS, scriptParams);
+            updateRequestMap.put(KEY_SCRIPT, scriptMap);
+            if (storableMap != null) {
+                scriptParams.put(ScriptUpdateRequest.UPSERT_PARAM, storableMap);
+                updateRequestMap.put(KEY_UPSERT, storableMap);
+            }
+        } else {
+            updateRequestMap.put(KEY_DOC, storableMap);
+            updateRequestMap.put(KEY_DOC_AS_UPSERT, true);
+        }
+        return updateRequestMap;
+    }
+
     @Override
     public <T> T find(TypeDescriptor typeDescriptor, Object query, Class<T> clazz) throws ClientException {
         checkClient();
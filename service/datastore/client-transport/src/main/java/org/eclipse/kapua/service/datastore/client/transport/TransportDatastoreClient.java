@@ -14,6 +14,7 @@ package org.eclipse.kapua.service.datastore.client.transport;
 
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -32,6 +33,7 @@ import org.eclipse.kapua.service.datastore.client.model.IndexResponse;
 import org.eclipse.kapua.service.datastore.client.model.InsertRequest;
 import org.eclipse.kapua.service.datastore.client.model.InsertResponse;
 import org.eclipse.kapua.service.datastore.client.model.ResultList;
+import org.eclipse.kapua.service.datastore.client.model.ScriptUpdateRequest;
 import org.eclipse.kapua.service.datastore.client.model.TypeDescriptor;
 import org.eclipse.kapua.service.datastore.client.model.UpdateRequest;
 import org.eclipse.kapua.service.datastore.client.model.UpdateResponse;
@@ -66,6 +68,8 @@ import org.elasticsearch.index.IndexNotFoundException;
 import org.elasticsearch.index.VersionType;
 import org.elasticsearch.index.query.QueryParseContext;
 import org.elasticsearch.indices.InvalidIndexNameException;
+import org.elasticsearch.script.Script;
+import org.elasticsearch.script.ScriptType;
 import org.elasticsearch.search.SearchHit;
 import org.elasticsearch.search.SearchHits;
 import org.elasticsearch.search.SearchModule;
@@ -224,12 +228,8 @@ public class TransportDatastoreClient implements org.eclipse.kapua.service.datas
     @Override
     public UpdateResponse upsert(UpdateRequest upsertRequest) throws ClientException {
         checkClient();
-        Map<String, Object> storableMap = modelContext.marshal(upsertRequest.getStorable());
-        logger.debug("Upsert - converted object: '{}'", storableMap);
-        org.elasticsearch.action.index.IndexRequest idxRequest = new org.elasticsearch.action.index.IndexRequest(upsertRequest.getTypeDescriptor().getIndex(), upsertRequest.getTypeDescriptor().getType(), upsertRequest.getId()).source(storableMap);
-        org.elasticsearch.action.update.UpdateRequest updateRequest = new org.elasticsearch.action.update.UpdateRequest(upsertRequest.getTypeDescriptor().getIndex(),
-                upsertRequest.getTypeDescriptor().getType(), upsertRequest.getId()).doc(storableMap);
-        org.elasticsearch.action.update.UpdateResponse response = esClientProvider.getClient().update(updateRequest.upsert(idxRequest)).actionGet(getQueryTimeout());
+        org.elasticsearch.action.update.UpdateRequest updateRequest = toUpdateRequest(upsertRequest);
+        org.elasticsearch.action.update.UpdateResponse response = esClientProvider.getClient().update(updateRequest).actionGet(getQueryTimeout());
         return new UpdateResponse(response.getId(), upsertRequest.getTypeDescriptor());
     }
 
@@ -238,15 +238,7 @@ public class TransportDatastoreClient implements org.eclipse.kapua.service.datas
         checkClient();
         BulkRequest bulkRequest = new BulkRequest();
         for (UpdateRequest upsertRequest : bulkUpsertRequest.getRequest()) {
-            String type = upsertRequest.getTypeDescriptor().getType();
-            String index = upsertRequest.getTypeDescriptor().getIndex();
-            String id = upsertRequest.getId();
-            Map<String, Object> mappedObject = modelContext.marshal(upsertRequest.getStorable());
-            logger.debug("Upsert - converted object: '{}'", mappedObject);
-            org.elasticsearch.action.index.IndexRequest idxRequest = new org.elasticsearch.action.index.IndexRequest(index, type, id).source(mappedObject);
-            org.elasticsearch.action.update.UpdateRequest updateRequest = new org.elasticsearch.action.update.UpdateRequest(index, type, id).doc(mappedObject);
-            updateRequest.upsert(idxRequest);
-            bulkRequest.add(updateRequest);
+            bulkRequest.add(toUpdateRequest(upsertRequest));
         }
 
         BulkResponse bulkResponse = esClientProvider.getClient().bulk(bulkRequest).actionGet(getQueryTimeout());
@@ -272,6 +264,37 @@ public class TransportDatastoreClient implements org.eclipse.kapua.service.datas
         return response;
     }
 
+    /**
+     * Convert the update request: the partial document is merged by the update (and inserted as it is if the document doesn't exist) or, for the
+     * {@link ScriptUpdateRequest}, the document is updated by the script
+     *
+     * @param upsertRequest
+     * @return
+     * @throws ClientException
+     */
+    private org.elasticsearch.action.update.UpdateRequest toUpdateRequest(UpdateRequest upsertRequest) throws ClientException {
+        String type = upsertRequest.getTypeDescriptor().getType();
+        String index = upsertRequest.getTypeDescriptor().getIndex();
+        String id = upsertRequest.getId();
+        Map<String, Object> mappedObject = upsertRequest.getStorable() != null ? modelContext.marshal(upsertRequest.getStorable()) : null;
+        logger.debug("Upsert - converted object: '{}'", mappedObject);
+        org.elasticsearch.action.update.UpdateRequest updateRequest = new org.elasticsearch.action.update.UpdateRequest(index, type, id);
+        if (upsertRequest instanceof ScriptUpdateRequest) {
+            ScriptUpdateRequest scriptUpdateRequest = (ScriptUpdateRequest) upsertRequest;
+            Map<String, Object> scriptParams = new HashMap<>(scriptUpdateRequest.getParams());
+            if (mappedObject != null) {
+                scriptParams.put(ScriptUpdateRequest.UPSERT_PARAM, mappedObject);
+                updateRequest.upsert(new org.elasticsearch.action.index.IndexRequest(index, type, id).source(mappedObject));
+            }
+            updateRequest.script(new Script(ScriptType.INLINE, ScriptUpdateRequest.SCRIPT_LANG, scriptUpdateRequest.getScript(), scriptParams))
+                    .retryOnConflict(scriptUpdateRequest.getRetryOnConflict());
+        } else {
+            updateRequest.doc(mappedObject)
+                    .upsert(new org.elasticsearch.action.index.IndexRequest(index, type, id).source(mappedObject));
+        }
+        return updateRequest;
+    }
+
     @Override
     public <T> T find(TypeDescriptor typeDescriptor, Object query, Class<T> clazz) throws ClientException {
         ResultList<T> result = query(typeDescriptor, query, clazz);
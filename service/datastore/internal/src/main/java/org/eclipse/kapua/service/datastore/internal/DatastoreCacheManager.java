@@ -11,40 +11,78 @@
  *******************************************************************************/
 package org.eclipse.kapua.service.datastore.internal;
 
+import org.eclipse.kapua.commons.cache.Cache;
 import org.eclipse.kapua.commons.cache.LocalCache;
+import org.eclipse.kapua.service.datastore.internal.cache.BloomFilterRegistryCache;
+import org.eclipse.kapua.service.datastore.internal.cache.LocalRegistryCacheProvider;
+import org.eclipse.kapua.service.datastore.internal.cache.RegistryCacheProvider;
+import org.eclipse.kapua.service.datastore.internal.cache.TieredRegistryCache;
 import org.eclipse.kapua.service.datastore.internal.schema.Metadata;
 import org.eclipse.kapua.service.datastore.internal.setting.DatastoreSettingKey;
 import org.eclipse.kapua.service.datastore.internal.setting.DatastoreSettings;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 /**
  * Datastore cache manager.<br>
- * It keeps informations about channels, metrics and clients to speed up the store operation and avoid time consuming unnecessary operations.
+ * It keeps informations about channels, metrics and clients to speed up the store operation and avoid time consuming unnecessary operations.<br>
+ * The registry caches are local to the broker unless a shared {@link RegistryCacheProvider} is configured, and they can be backed by a Bloom filter tier
+ * (see {@link BloomFilterRegistryCache}).
  * 
  * @since 1.0.0
  */
 public class DatastoreCacheManager {
 
+    private static final Logger logger = LoggerFactory.getLogger(DatastoreCacheManager.class);
+
     private static final DatastoreCacheManager INSTANCE = new DatastoreCacheManager();
 
     private final LocalCache<String, Metadata> schemaCache;
-    private final LocalCache<String, Boolean> channelsCache;
-    private final LocalCache<String, Boolean> metricsCache;
-    private final LocalCache<String, Boolean> clientsCache;
+    private final Cache<String, Boolean> channelsCache;
+    private final Cache<String, Boolean> metricsCache;
+    private final Cache<String, Boolean> clientsCache;
 
     private DatastoreCacheManager() {
         DatastoreSettings config = DatastoreSettings.getInstance();
         int expireAfter = config.getInt(DatastoreSettingKey.CONFIG_CACHE_LOCAL_EXPIRE_AFTER);
         int sizeMax = config.getInt(DatastoreSettingKey.CONFIG_CACHE_LOCAL_SIZE_MAXIMUM);
         int sizeMaxMetadata = config.getInt(DatastoreSettingKey.CONFIG_CACHE_METADATA_LOCAL_SIZE_MAXIMUM);
+        RegistryCacheProvider sharedCacheProvider = getSharedCacheProvider(config.getString(DatastoreSettingKey.CONFIG_CACHE_REGISTRY_PROVIDER, null));
 
         // TODO set expiration to happen frequently because the reset cache method will not get
         // called from service clients any more
-        channelsCache = new LocalCache<>(sizeMax, expireAfter, false);
-        metricsCache = new LocalCache<>(sizeMax, expireAfter, false);
-        clientsCache = new LocalCache<>(sizeMax, expireAfter, false);
+        channelsCache = newRegistryCache("channels", sizeMax, expireAfter, sharedCacheProvider, config);
+        metricsCache = newRegistryCache("metrics", sizeMax, expireAfter, sharedCacheProvider, config);
+        clientsCache = newRegistryCache("clients", sizeMax, expireAfter, sharedCacheProvider, config);
         schemaCache = new LocalCache<>(sizeMaxMetadata, null);
     }
 
+    private static RegistryCacheProvider getSharedCacheProvider(String providerClassName) {
+        if (providerClassName == null || providerClassName.trim().isEmpty()) {
+            return null;
+        }
+        try {
+            return (RegistryCacheProvider) Class.forName(providerClassName.trim()).getConstructor().newInstance();
+        } catch (ReflectiveOperationException | ClassCastException e) {
+            logger.error("Cannot load the registry cache provider [{}]. Check the configuration. The registry caches will be local", providerClassName, e);
+            return null;
+        }
+    }
+
+    private static Cache<String, Boolean> newRegistryCache(String name, int sizeMax, int expireAfter, RegistryCacheProvider sharedCacheProvider, DatastoreSettings config) {
+        Cache<String, Boolean> cache = new LocalRegistryCacheProvider().getCache(name, sizeMax, expireAfter);
+        if (sharedCacheProvider != null) {
+            cache = new TieredRegistryCache(cache, sharedCacheProvider.getCache(name, sizeMax, expireAfter));
+        }
+        if (config.getBoolean(DatastoreSettingKey.CONFIG_CACHE_BLOOM_ENABLED, false)) {
+            cache = new BloomFilterRegistryCache(cache,
+                    config.getInt(DatastoreSettingKey.CONFIG_CACHE_BLOOM_EXPECTED_INSERTIONS, 1000000),
+                    config.getDouble(DatastoreSettingKey.CONFIG_CACHE_BLOOM_FPP, 0.000001),
+                    config.getInt(DatastoreSettingKey.CONFIG_CACHE_BLOOM_EXPIRE_AFTER, 86400));
+        }
+        return cache;
+    }
+
     /**
      * Get the cache manager instance
      * 
@@ -63,7 +101,7 @@ public class DatastoreCacheManager {
      * 
      * @since 1.0.0
      */
-    public LocalCache<String, Boolean> getChannelsCache() {
+    public Cache<String, Boolean> getChannelsCache() {
         return channelsCache;
     }
 
@@ -74,7 +112,7 @@ public class DatastoreCacheManager {
      * 
      * @since 1.0.0
      */
-    public LocalCache<String, Boolean> getMetricsCache() {
+    public Cache<String, Boolean> getMetricsCache() {
         return metricsCache;
     }
 
@@ -85,7 +123,7 @@ public class DatastoreCacheManager {
      * 
      * @since 1.0.0
      */
-    public LocalCache<String, Boolean> getClientsCache() {
+    public Cache<String, Boolean> getClientsCache() {
         return clientsCache;
     }
 
@@ -13,22 +13,32 @@ package org.eclipse.kapua.service.datastore.internal;
 
 import com.codahale.metrics.Counter;
 import org.eclipse.kapua.KapuaIllegalArgumentException;
-import org.eclipse.kapua.commons.cache.LocalCache;
+import org.eclipse.kapua.commons.cache.Cache;
 import org.eclipse.kapua.commons.metric.MetricServiceFactory;
 import org.eclipse.kapua.commons.metric.MetricsService;
 import org.eclipse.kapua.commons.util.ArgumentValidator;
 import org.eclipse.kapua.commons.util.KapuaDateUtils;
 import org.eclipse.kapua.message.KapuaMessage;
+import org.eclipse.kapua.message.KapuaPayload;
 import org.eclipse.kapua.model.id.KapuaId;
 import org.eclipse.kapua.service.datastore.client.ClientException;
 import org.eclipse.kapua.service.datastore.client.ClientUnavailableException;
 import org.eclipse.kapua.service.datastore.client.DatastoreClient;
 import org.eclipse.kapua.service.datastore.client.QueryMappingException;
+import org.eclipse.kapua.service.datastore.client.model.BulkUpdateRequest;
+import org.eclipse.kapua.service.datastore.client.model.BulkUpdateResponse;
 import org.eclipse.kapua.service.datastore.client.model.InsertRequest;
 import org.eclipse.kapua.service.datastore.client.model.InsertResponse;
 import org.eclipse.kapua.service.datastore.client.model.ResultList;
 import org.eclipse.kapua.service.datastore.client.model.TypeDescriptor;
+import org.eclipse.kapua.service.datastore.client.model.UpdateRequest;
+import org.eclipse.kapua.service.datastore.client.model.UpdateResponse;
+import org.eclipse.kapua.service.datastore.internal.cache.RegistryCacheWarmer;
 import org.eclipse.kapua.service.datastore.internal.client.DatastoreClientFactory;
+import org.eclipse.kapua.service.datastore.internal.compact.CompactMessageMatcher;
+import org.eclipse.kapua.service.datastore.internal.compact.CompactMessageReader;
+import org.eclipse.kapua.service.datastore.internal.compact.CompactMessageWindow;
+import org.eclipse.kapua.service.datastore.internal.compact.CompactMessageWriter;
 import org.eclipse.kapua.service.datastore.internal.mediator.ConfigurationException;
 import org.eclipse.kapua.service.datastore.internal.mediator.DatastoreChannel;
 import org.eclipse.kapua.service.datastore.internal.mediator.DatastoreException;
@@ -54,6 +64,8 @@ import org.eclipse.kapua.service.datastore.internal.schema.MessageSchema;
 import org.eclipse.kapua.service.datastore.internal.schema.Metadata;
 import org.eclipse.kapua.service.datastore.internal.schema.MetricInfoSchema;
 import org.eclipse.kapua.service.datastore.internal.schema.SchemaUtil;
+import org.eclipse.kapua.service.datastore.internal.setting.DatastoreSettingKey;
+import org.eclipse.kapua.service.datastore.internal.setting.DatastoreSettings;
 import org.eclipse.kapua.service.datastore.model.ChannelInfo;
 import org.eclipse.kapua.service.datastore.model.ClientInfo;
 import org.eclipse.kapua.service.datastore.model.DatastoreMessage;
@@ -65,8 +77,12 @@ import org.eclipse.kapua.service.datastore.model.query.StorableFetchStyle;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 
 /**
@@ -85,6 +101,8 @@ public final class MessageStoreFacade {
     private final MessageStoreMediator mediator;
     private final ConfigurationProvider configProvider;
     private DatastoreClient client;
+    private final CompactMessageWriter compactWriter;
+    private final CompactMessageReader compactReader;
 
     /**
      * Constructs the message store facade
@@ -98,6 +116,18 @@ public final class MessageStoreFacade {
         configProvider = confProvider;
         this.mediator = mediator;
         client = DatastoreClientFactory.getInstance();
+        DatastoreSettings settings = DatastoreSettings.getInstance();
+        compactWriter = new CompactMessageWriter(client,
+                settings.getLong(DatastoreSettingKey.COMPACT_WINDOW_SIZE, 600000),
+                settings.getLong(DatastoreSettingKey.COMPACT_COMMIT_TIMEOUT, 30000),
+                settings.getInt(DatastoreSettingKey.COMPACT_COMMIT_MAX_SIZE, 500),
+                settings.getInt(DatastoreSettingKey.COMPACT_WINDOW_MAX_MESSAGES, 1000),
+                settings.getInt(DatastoreSettingKey.COMPACT_COMMIT_THREADS, 4));
+        compactWriter.start();
+        compactReader = new CompactMessageReader(client,
+                settings.getInt(DatastoreSettingKey.COMPACT_QUERY_PAGE_SIZE, 500),
+                settings.getInt(DatastoreSettingKey.COMPACT_QUERY_MAX_WINDOWS, 10000));
+        RegistryCacheWarmer.startIfEnabled(client);
         MetricsService metricService = MetricServiceFactory.getInstance();
         metricMessagesAlreadyInTheDatastoreCount = metricService.getCounter(METRIC_COMPONENT_NAME, "datastore", "store", "messages", "already_in_the_datastore", "count");
     }
@@ -132,17 +162,9 @@ public final class MessageStoreFacade {
             throw new ConfigurationException(msg);
         }
 
-        Date capturedOn = message.getCapturedOn();
-        // Overwrite timestamp if necessary
-        // Use the account service plan to determine whether we will give
-        // precede to the device time
-        long indexedOn = KapuaDateUtils.getKapuaSysDate().toEpochMilli();
-        if (DataIndexBy.DEVICE_TIMESTAMP.equals(accountServicePlan.getDataIndexBy())) {
-            if (capturedOn != null) {
-                indexedOn = capturedOn.getTime();
-            } else {
-                logger.debug("The account is set to use, as date indexing, the device timestamp but the device timestamp is null! Current system date will be used to indexing the message by date!");
-            }
+        long indexedOn = getIndexedOn(message, accountServicePlan);
+        if (accountServicePlan.getCompactMetrics() && CompactMessageWriter.isCompactable(message)) {
+            return storeCompact(message, messageId, messageInfo, indexedOn);
         }
         // Extract schema metadata
         Metadata schemaMetadata = mediator.getMetadata(message.getScopeId(), indexedOn);
@@ -164,21 +186,7 @@ public final class MessageStoreFacade {
         messageToStore.setTimestamp(indexedOnDate);
         InsertRequest insertRequest = new InsertRequest(messageToStore.getDatastoreId().toString(), typeDescriptor, messageToStore);
         // Possibly update the schema with new metric mappings
-        Map<String, Metric> metrics = new HashMap<>();
-        if (message.getPayload() != null && message.getPayload().getMetrics() != null && !message.getPayload().getMetrics().isEmpty()) {
-
-            Map<String, Object> messageMetrics = message.getPayload().getMetrics();
-            for (Map.Entry<String, Object> messageMetric : messageMetrics.entrySet()) {
-                String metricName = DatastoreUtils.normalizeMetricName(messageMetric.getKey());
-                String clientMetricType = DatastoreUtils.getClientMetricFromType(messageMetric.getValue().getClass());
-                Metric metric = new Metric(metricName, clientMetricType);
-
-                // each metric is potentially a dynamic field so report it a new mapping
-                String mappedName = DatastoreUtils.getMetricValueQualifier(metricName, clientMetricType);
-                metrics.put(mappedName, metric);
-            }
-        }
-        mediator.onUpdatedMappings(message.getScopeId(), indexedOn, metrics);
+        mediator.onUpdatedMappings(message.getScopeId(), indexedOn, getMessageMetrics(message.getPayload()));
 
         InsertResponse insertResponse = client.insert(insertRequest);
         messageToStore.setDatastoreId(new StorableIdImpl(insertResponse.getId()));
@@ -187,6 +195,114 @@ public final class MessageStoreFacade {
         return new StorableIdImpl(insertResponse.getId());
     }
 
+    /**
+     * Store a metrics only message in the compact layout
+     *
+     * @param message
+     * @param messageId
+     * @param messageInfo
+     * @param indexedOn
+     * @return
+     * @throws KapuaIllegalArgumentException
+     * @throws ConfigurationException
+     * @throws ClientException
+     */
+    private StorableId storeCompact(KapuaMessage<?, ?> message, String messageId, MessageInfo messageInfo, long indexedOn)
+            throws KapuaIllegalArgumentException,
+            ConfigurationException,
+            ClientException {
+        // the window document is stored in the data index of the window start
+        long windowStart = compactWriter.getWindowStart(indexedOn);
+        Metadata schemaMetadata = mediator.getMetadata(message.getScopeId(), windowStart);
+        DatastoreMessage messageToStore = convertTo(message, messageId);
+        messageToStore.setTimestamp(new Date(indexedOn));
+        mediator.onUpdatedMappings(message.getScopeId(), windowStart, getMessageMetrics(message.getPayload()));
+
+        StorableId storableId = compactWriter.store(messageToStore, messageId, schemaMetadata.getDataIndexName());
+        messageToStore.setDatastoreId(storableId);
+
+        mediator.onAfterMessageStore(messageInfo, messageToStore);
+        return storableId;
+    }
+
+    /**
+     * Convert the message to the insert request that {@link #store(KapuaMessage, String, boolean)} would send to the datastore, without performing any
+     * datastore operation.<br>
+     * The returned request can be spilled to a local journal and stored later through {@link #storeSpilled(List)}.
+     *
+     * @param message
+     * @param messageId
+     * @return
+     * @throws KapuaIllegalArgumentException
+     * @throws ConfigurationException
+     */
+    public InsertRequest prepareInsert(KapuaMessage<?, ?> message, String messageId)
+            throws KapuaIllegalArgumentException,
+            ConfigurationException {
+        ArgumentValidator.notNull(message, "message");
+        ArgumentValidator.notNull(message.getScopeId(), "scopeId");
+        ArgumentValidator.notNull(message.getReceivedOn(), "receivedOn");
+        ArgumentValidator.notNull(messageId, "messageId");
+
+        MessageStoreConfiguration accountServicePlan = configProvider.getConfiguration(message.getScopeId());
+        long ttlSecs = accountServicePlan.getDataTimeToLiveMilliseconds();
+        if (!accountServicePlan.getDataStorageEnabled() || ttlSecs == MessageStoreConfiguration.DISABLED) {
+            String msg = String.format("Message Store not enabled for account %s", message.getScopeId());
+            logger.debug(msg);
+            throw new ConfigurationException(msg);
+        }
+
+        long indexedOn = getIndexedOn(message, accountServicePlan);
+        TypeDescriptor typeDescriptor = new TypeDescriptor(DatastoreUtils.getDataIndexName(message.getScopeId(), indexedOn), MessageSchema.MESSAGE_TYPE_NAME);
+        DatastoreMessage messageToStore = convertTo(message, messageId);
+        messageToStore.setTimestamp(new Date(indexedOn));
+        return new InsertRequest(messageId, typeDescriptor, messageToStore);
+    }
+
+    /**
+     * Store, with a single bulk operation, the insert requests previously built by {@link #prepareInsert(KapuaMessage, String)}.<br>
+     * The messages are upserted by id, so storing the same request more than once doesn't create duplicates.<br>
+     * The outcome of each message is checked separately: the registries are updated only for the stored messages, while the rejected ones are returned
+     * to the caller.
+     *
+     * @param insertRequests
+     * @return the messages rejected by the datastore, by id, with the rejection reason
+     * @throws KapuaIllegalArgumentException
+     * @throws ConfigurationException
+     * @throws ClientException
+     *             if the whole bulk operation failed
+     */
+    public Map<String, String> storeSpilled(List<InsertRequest> insertRequests)
+            throws KapuaIllegalArgumentException,
+            ConfigurationException,
+            ClientException {
+        ArgumentValidator.notNull(insertRequests, "insertRequests");
+
+        BulkUpdateRequest bulkRequest = new BulkUpdateRequest();
+        for (InsertRequest insertRequest : insertRequests) {
+            DatastoreMessage message = (DatastoreMessage) insertRequest.getStorable();
+            long indexedOn = message.getTimestamp().getTime();
+            mediator.getMetadata(message.getScopeId(), indexedOn);
+            mediator.onUpdatedMappings(message.getScopeId(), indexedOn, getMessageMetrics(message.getPayload()));
+            bulkRequest.add(new UpdateRequest(insertRequest.getId(), insertRequest.getTypeDescriptor(), message));
+        }
+        BulkUpdateResponse bulkResponse = client.upsert(bulkRequest);
+        Map<String, String> rejected = new HashMap<>();
+        for (UpdateResponse updateResponse : bulkResponse.getResponse()) {
+            if (!updateResponse.isResult()) {
+                rejected.put(updateResponse.getId(), updateResponse.getDescription());
+            }
+        }
+
+        for (InsertRequest insertRequest : insertRequests) {
+            if (!rejected.containsKey(insertRequest.getId())) {
+                DatastoreMessage message = (DatastoreMessage) insertRequest.getStorable();
+                mediator.onAfterMessageStore(configProvider.getInfo(message.getScopeId()), message);
+            }
+        }
+        return rejected;
+    }
+
     /**
      * Delete message by identifier.<br>
      * <b>Be careful using this function since it doesn't guarantee the datastore consistency.<br>
@@ -212,6 +328,10 @@ public final class MessageStoreFacade {
             logger.debug("Storage not enabled for account {}, return", scopeId);
             return;
         }
+        if (CompactMessageWindow.isCompactMessageId(id.toString())) {
+            deleteCompact(scopeId, id);
+            return;
+        }
 
         // get the index by finding the object by id
         DatastoreMessage messageToBeDeleted = find(scopeId, id, StorableFetchStyle.FIELDS);
@@ -244,6 +364,10 @@ public final class MessageStoreFacade {
         ArgumentValidator.notNull(id, "id");
         ArgumentValidator.notNull(fetchStyle, "fetchStyle");
 
+        if (CompactMessageWindow.isCompactMessageId(id.toString())) {
+            return compactReader.find(scopeId, id);
+        }
+
         MessageQueryImpl idsQuery = new MessageQueryImpl(scopeId);
         idsQuery.setLimit(1);
 
@@ -283,7 +407,41 @@ public final class MessageStoreFacade {
 
         String dataIndexName = SchemaUtil.getDataIndexName(query.getScopeId());
         TypeDescriptor typeDescriptor = new TypeDescriptor(dataIndexName, MessageSchema.MESSAGE_TYPE_NAME);
-        return new MessageListResultImpl(client.query(typeDescriptor, query, DatastoreMessage.class));
+        // the compact windows are read only for the accounts storing them
+        if (!accountServicePlan.getCompactMetrics()) {
+            return new MessageListResultImpl(client.query(typeDescriptor, query, DatastoreMessage.class));
+        }
+
+        // merge the messages of both layouts before applying the query offset and limit
+        Integer offset = query.getOffset();
+        Integer limit = query.getLimit();
+        int from = offset != null ? offset : 0;
+        ResultList<DatastoreMessage> compactMessages = compactReader.query(query, limit != null ? from + limit : Integer.MAX_VALUE);
+        if (compactMessages.getTotalCount() == 0) {
+            return new MessageListResultImpl(client.query(typeDescriptor, query, DatastoreMessage.class));
+        }
+
+        ResultList<DatastoreMessage> messages;
+        try {
+            query.setOffset(0);
+            if (limit != null) {
+                query.setLimit(from + limit);
+            }
+            messages = client.query(typeDescriptor, query, DatastoreMessage.class);
+        } finally {
+            query.setOffset(offset);
+            query.setLimit(limit);
+        }
+        List<DatastoreMessage> mergedMessages = new ArrayList<>(messages.getResult());
+        mergedMessages.addAll(compactMessages.getResult());
+        mergedMessages.sort(CompactMessageMatcher.getComparator(query.getSortFields()));
+        from = Math.min(from, mergedMessages.size());
+        int to = limit != null ? Math.min(from + limit, mergedMessages.size()) : mergedMessages.size();
+
+        MessageListResultImpl result = new MessageListResultImpl();
+        result.addItems(mergedMessages.subList(from, to));
+        result.setTotalCount(messages.getTotalCount() + compactMessages.getTotalCount());
+        return result;
     }
 
     /**
@@ -313,7 +471,8 @@ public final class MessageStoreFacade {
 
         String indexName = SchemaUtil.getDataIndexName(query.getScopeId());
         TypeDescriptor typeDescriptor = new TypeDescriptor(indexName, MessageSchema.MESSAGE_TYPE_NAME);
-        return client.count(typeDescriptor, query);
+        long count = client.count(typeDescriptor, query);
+        return accountServicePlan.getCompactMetrics() ? count + compactReader.count(query) : count;
     }
 
     /**
@@ -344,7 +503,55 @@ public final class MessageStoreFacade {
 
         String indexName = SchemaUtil.getDataIndexName(query.getScopeId());
         TypeDescriptor typeDescriptor = new TypeDescriptor(indexName, MessageSchema.MESSAGE_TYPE_NAME);
+
+        // the compact windows may hold messages not matching the query, so the matching messages are removed from the windows.
+        // The compact messages are selected first, so an unsupported query is rejected before deleting anything
+        Map<CompactMessageWindow, List<String>> matchingMessages = new LinkedHashMap<>();
+        compactReader.forEachWindow(query, StorableFetchStyle.SOURCE_FULL, window -> {
+            List<String> messageKeys = new ArrayList<>();
+            for (int i = 0; i < window.size(); i++) {
+                if (CompactMessageMatcher.matches(query.getPredicate(), window.getMessage(i))) {
+                    messageKeys.add(window.getMessageIds().get(i));
+                }
+            }
+            if (!messageKeys.isEmpty()) {
+                matchingMessages.put(window, messageKeys);
+            }
+        });
         client.deleteByQuery(typeDescriptor, query);
+        BulkUpdateRequest removeRequest = new BulkUpdateRequest();
+        for (Map.Entry<CompactMessageWindow, List<String>> windowMessages : matchingMessages.entrySet()) {
+            CompactMessageWindow window = windowMessages.getKey();
+            Metadata schemaMetadata = mediator.getMetadata(query.getScopeId(), window.getWindowStart().getTime());
+            removeRequest.add(CompactMessageWriter.getRemoveRequest(schemaMetadata.getDataIndexName(), window.getId(), windowMessages.getValue()));
+        }
+        compactWriter.remove(removeRequest);
+    }
+
+    /**
+     * Delete the message stored in the compact layout
+     *
+     * @param scopeId
+     * @param id
+     * @throws KapuaIllegalArgumentException
+     * @throws ConfigurationException
+     * @throws ClientException
+     */
+    private void deleteCompact(KapuaId scopeId, StorableId id)
+            throws KapuaIllegalArgumentException,
+            ConfigurationException,
+            ClientException {
+        String windowId = CompactMessageWindow.getWindowIdFromMessageId(id.toString());
+        String messageKey = CompactMessageWindow.getMessageKeyFromMessageId(id.toString());
+        CompactMessageWindow window = compactReader.findWindow(scopeId, windowId, StorableFetchStyle.FIELDS);
+        if (window == null || window.indexOf(messageKey) < 0) {
+            logger.warn("Cannot find the message to be deleted. scopeId: '{}' - id: '{}'", scopeId, id);
+            return;
+        }
+        Metadata schemaMetadata = mediator.getMetadata(scopeId, window.getWindowStart().getTime());
+        BulkUpdateRequest removeRequest = new BulkUpdateRequest();
+        removeRequest.add(CompactMessageWriter.getRemoveRequest(schemaMetadata.getDataIndexName(), windowId, Collections.singletonList(messageKey)));
+        compactWriter.remove(removeRequest);
     }
 
     /**
@@ -405,7 +612,7 @@ public final class MessageStoreFacade {
             ResultList<MetricInfo> metrics = client.query(typeDescriptor, metricQuery, MetricInfo.class);
 
             totalHits = metrics.getTotalCount();
-            LocalCache<String, Boolean> metricsCache = DatastoreCacheManager.getInstance().getMetricsCache();
+            Cache<String, Boolean> metricsCache = DatastoreCacheManager.getInstance().getMetricsCache();
             long toBeProcessed = totalHits > pageSize ? pageSize : totalHits;
 
             for (int i = 0; i < toBeProcessed; i++) {
@@ -438,7 +645,7 @@ public final class MessageStoreFacade {
             ResultList<ChannelInfo> channels = client.query(typeDescriptor, channelQuery, ChannelInfo.class);
 
             totalHits = channels.getTotalCount();
-            LocalCache<String, Boolean> channelsCache = DatastoreCacheManager.getInstance().getChannelsCache();
+            Cache<String, Boolean> channelsCache = DatastoreCacheManager.getInstance().getChannelsCache();
             long toBeProcessed = totalHits > pageSize ? pageSize : totalHits;
 
             for (int i = 0; i < toBeProcessed; i++) {
@@ -472,7 +679,7 @@ public final class MessageStoreFacade {
                 ResultList<ClientInfo> clients = client.query(typeDescriptor, clientInfoQuery, ClientInfo.class);
 
                 totalHits = clients.getTotalCount();
-                LocalCache<String, Boolean> clientsCache = DatastoreCacheManager.getInstance().getClientsCache();
+                Cache<String, Boolean> clientsCache = DatastoreCacheManager.getInstance().getClientsCache();
                 long toBeProcessed = totalHits > pageSize ? pageSize : totalHits;
 
                 for (int i = 0; i < toBeProcessed; i++) {
@@ -519,6 +726,53 @@ public final class MessageStoreFacade {
         return DatastoreChannel.SINGLE_LEVEL_WCARD.equals(clientId);
     }
 
+    /**
+     * Get the date used to index the message, according to the account service plan
+     *
+     * @param message
+     * @param accountServicePlan
+     * @return
+     */
+    private long getIndexedOn(KapuaMessage<?, ?> message, MessageStoreConfiguration accountServicePlan) {
+        Date capturedOn = message.getCapturedOn();
+        // Overwrite timestamp if necessary
+        // Use the account service plan to determine whether we will give
+        // precede to the device time
+        long indexedOn = KapuaDateUtils.getKapuaSysDate().toEpochMilli();
+        if (DataIndexBy.DEVICE_TIMESTAMP.equals(accountServicePlan.getDataIndexBy())) {
+            if (capturedOn != null) {
+                indexedOn = capturedOn.getTime();
+            } else {
+                logger.debug("The account is set to use, as date indexing, the device timestamp but the device timestamp is null! Current system date will be used to indexing the message by date!");
+            }
+        }
+        return indexedOn;
+    }
+
+    /**
+     * Get the metric mappings of the message payload
+     *
+     * @param payload
+     * @return
+     */
+    private Map<String, Metric> getMessageMetrics(KapuaPayload payload) {
+        Map<String, Metric> metrics = new HashMap<>();
+        if (payload != null && payload.getMetrics() != null && !payload.getMetrics().isEmpty()) {
+
+            Map<String, Object> messageMetrics = payload.getMetrics();
+            for (Map.Entry<String, Object> messageMetric : messageMetrics.entrySet()) {
+                String metricName = DatastoreUtils.normalizeMetricName(messageMetric.getKey());
+                String clientMetricType = DatastoreUtils.getClientMetricFromType(messageMetric.getValue().getClass());
+                Metric metric = new Metric(metricName, clientMetricType);
+
+                // each metric is potentially a dynamic field so report it a new mapping
+                String mappedName = DatastoreUtils.getMetricValueQualifier(metricName, clientMetricType);
+                metrics.put(mappedName, metric);
+            }
+        }
+        return metrics;
+    }
+
     /**
      * This constructor should be used for wrapping Kapua message into datastore message for insert purpose
      *
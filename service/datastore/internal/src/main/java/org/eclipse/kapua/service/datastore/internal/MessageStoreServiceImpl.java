@@ -33,10 +33,14 @@ import org.eclipse.kapua.service.authorization.permission.PermissionFactory;
 import org.eclipse.kapua.service.datastore.MessageStoreService;
 import org.eclipse.kapua.service.datastore.client.ClientCommunicationException;
 import org.eclipse.kapua.service.datastore.client.ClientUnavailableException;
+import org.eclipse.kapua.service.datastore.internal.health.DatastoreCircuitOpenException;
+import org.eclipse.kapua.service.datastore.internal.health.DatastoreHealthManager;
+import org.eclipse.kapua.service.datastore.internal.journal.DatastoreSpillManager;
 import org.eclipse.kapua.service.datastore.internal.mediator.ConfigurationException;
 import org.eclipse.kapua.service.datastore.internal.mediator.DatastoreCommunicationException;
 import org.eclipse.kapua.service.datastore.internal.mediator.DatastoreException;
 import org.eclipse.kapua.service.datastore.internal.mediator.DatastoreMediator;
+import org.eclipse.kapua.service.datastore.internal.model.StorableIdImpl;
 import org.eclipse.kapua.service.datastore.internal.setting.DatastoreSettingKey;
 import org.eclipse.kapua.service.datastore.internal.setting.DatastoreSettings;
 import org.eclipse.kapua.service.datastore.model.DatastoreMessage;
@@ -57,6 +61,8 @@ public class MessageStoreServiceImpl extends AbstractKapuaConfigurableService im
 
     protected static final String METRIC_COMPONENT_NAME = "datastore";
 
+    private static final String CIRCUIT_OPEN_MSG = "Datastore circuit breaker is open";
+
     protected static final KapuaLocator LOCATOR = KapuaLocator.getInstance();
     // metrics
     private final Counter metricMessageCount;
@@ -77,6 +83,8 @@ public class MessageStoreServiceImpl extends AbstractKapuaConfigurableService im
     protected static final Integer MAX_ENTRIES_ON_DELETE = DatastoreSettings.getInstance().get(Integer.class, DatastoreSettingKey.CONFIG_MAX_ENTRIES_ON_DELETE);
 
     protected final MessageStoreFacade messageStoreFacade;
+    protected final DatastoreHealthManager healthManager = DatastoreHealthManager.getInstance();
+    protected final DatastoreSpillManager spillManager;
 
     /**
      * Default constructor
@@ -88,6 +96,7 @@ public class MessageStoreServiceImpl extends AbstractKapuaConfigurableService im
         ConfigurationProviderImpl configurationProvider = new ConfigurationProviderImpl(this, accountService);
         messageStoreFacade = new MessageStoreFacade(configurationProvider, DatastoreMediator.getInstance());
         DatastoreMediator.getInstance().setMessageStoreFacade(messageStoreFacade);
+        spillManager = DatastoreSpillManager.newInstance(messageStoreFacade);
         // data message
         MetricsService metricService = MetricServiceFactory.getInstance();
         metricMessageCount = metricService.getCounter(METRIC_COMPONENT_NAME, "datastore", "store", "messages", "count");
@@ -111,7 +120,7 @@ public class MessageStoreServiceImpl extends AbstractKapuaConfigurableService im
         try {
             checkDataAccess(message.getScopeId(), Actions.write);
             metricMessageCount.inc();
-            return messageStoreFacade.store(message, datastoreId, true);
+            return storeIfAvailable(message, datastoreId, true);
         } catch (ConfigurationException e) {
             metricConfigurationErrorCount.inc();
             metricQueueConfigurationErrorCount.inc();
@@ -141,7 +150,7 @@ public class MessageStoreServiceImpl extends AbstractKapuaConfigurableService im
         try {
             checkDataAccess(message.getScopeId(), Actions.write);
             metricMessageCount.inc();
-            return messageStoreFacade.store(message, datastoreId, false);
+            return storeIfAvailable(message, datastoreId, false);
         } catch (ConfigurationException e) {
             metricConfigurationErrorCount.inc();
             metricQueueConfigurationErrorCount.inc();
@@ -163,6 +172,56 @@ public class MessageStoreServiceImpl extends AbstractKapuaConfigurableService im
         }
     }
 
+    /**
+     * Store the message if the datastore circuit breaker allows it, otherwise spill it to the local journal (if enabled) or fail fast with a
+     * {@link ClientCommunicationException} so the message is diverted to the communication error queue without waiting for the client timeouts.
+     *
+     * @param message
+     * @param datastoreId
+     * @param newInsert
+     * @return
+     * @throws KapuaException
+     */
+    private StorableId storeIfAvailable(KapuaMessage<?, ?> message, String datastoreId, boolean newInsert)
+            throws KapuaException {
+        if (!healthManager.isStoreAllowed()) {
+            if (spill(message, datastoreId)) {
+                return new StorableIdImpl(datastoreId);
+            }
+            throw new DatastoreCircuitOpenException(CIRCUIT_OPEN_MSG);
+        }
+        long start = System.nanoTime();
+        StorableId storableId;
+        try {
+            storableId = messageStoreFacade.store(message, datastoreId, newInsert);
+        } catch (ClientCommunicationException e) {
+            healthManager.onStoreError(System.nanoTime() - start);
+            if (spill(message, datastoreId)) {
+                return new StorableIdImpl(datastoreId);
+            }
+            throw e;
+        } catch (Exception e) {
+            // not an Elasticsearch availability issue (validation, configuration...): it says nothing about the datastore health
+            healthManager.onStoreAborted();
+            throw e;
+        }
+        healthManager.onStoreSuccess(System.nanoTime() - start);
+        return storableId;
+    }
+
+    /**
+     * Spill the message to the local journal
+     *
+     * @param message
+     * @param datastoreId
+     * @return true if the message has been spilled, false if the journal is disabled or cannot accept the message
+     * @throws KapuaException
+     */
+    private boolean spill(KapuaMessage<?, ?> message, String datastoreId)
+            throws KapuaException {
+        return spillManager != null && spillManager.spill(messageStoreFacade.prepareInsert(message, datastoreId));
+    }
+
     @Override
     public void delete(KapuaId scopeId, StorableId id)
             throws KapuaException {
@@ -0,0 +1,139 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Eurotech and/or its affiliates and others
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Eurotech - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.kapua.service.datastore.internal.cache;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.eclipse.kapua.commons.cache.Cache;
+
+import com.google.common.hash.BloomFilter;
+import com.google.common.hash.Funnels;
+
+/**
+ * Registry cache with a Bloom filter tier.<br>
+ * The Bloom filter remembers the registry entries already stored with a few bits per entry, so it can hold many more entries than the size bounded
+ * cache it wraps, and keeps them after the wrapped cache entries expire.<br>
+ * <b>A false positive makes the datastore skip the registry update of a new entry</b>, so the false positive probability must be kept low. Since single
+ * entries cannot be removed from a Bloom filter, any removal clears the whole filter. The filter is also cleared periodically (and when it holds more
+ * than the expected entries) to bound the staleness of the entries removed by other broker nodes.
+ *
+ * @since 1.0
+ */
+public class BloomFilterRegistryCache implements Cache<String, Boolean> {
+
+    private final Cache<String, Boolean> cache;
+    private final int expectedInsertions;
+    private final double fpp;
+    private final long expireAfterMillis;
+
+    private volatile BloomFilter<CharSequence> bloomFilter;
+    private volatile long bloomFilterCreatedOn;
+    private final AtomicLong insertions = new AtomicLong();
+
+    /**
+     * Constructs the cache
+     *
+     * @param cache
+     *            the wrapped cache
+     * @param expectedInsertions
+     *            expected number of entries
+     * @param fpp
+     *            false positive probability
+     * @param expireAfter
+     *            filter reset interval in seconds
+     */
+    public BloomFilterRegistryCache(Cache<String, Boolean> cache, int expectedInsertions, double fpp, int expireAfter) {
+        this.cache = cache;
+        this.expectedInsertions = expectedInsertions;
+        this.fpp = fpp;
+        this.expireAfterMillis = expireAfter * 1000L;
+        reset();
+    }
+
+    @Override
+    public String getNamespace() {
+        return cache.getNamespace();
+    }
+
+    @Override
+    public void setNamespace(String namespace) {
+        cache.setNamespace(namespace);
+    }
+
+    @Override
+    public Boolean get(String key) {
+        if (Boolean.TRUE.equals(cache.get(key))) {
+            return true;
+        }
+        if (System.currentTimeMillis() - bloomFilterCreatedOn > expireAfterMillis) {
+            synchronized (this) {
+                if (System.currentTimeMillis() - bloomFilterCreatedOn > expireAfterMillis) {
+                    reset();
+                }
+            }
+            return false;
+        }
+        // the reads are not synchronized: a concurrent put can only produce a false negative (so an additional registry lookup)
+        return bloomFilter.mightContain(key);
+    }
+
+    @Override
+    public void put(String key, Boolean value) {
+        cache.put(key, value);
+        if (Boolean.TRUE.equals(value)) {
+            synchronized (this) {
+                if (insertions.incrementAndGet() > expectedInsertions) {
+                    // the false positive probability grows quickly over the expected insertions
+                    reset();
+                    insertions.incrementAndGet();
+                }
+                bloomFilter.put(key);
+            }
+        }
+    }
+
+    @Override
+    public void remove(String key) {
+        cache.remove(key);
+        clearBloomFilter();
+    }
+
+    @Override
+    public void invalidateAll() {
+        cache.invalidateAll();
+        clearBloomFilter();
+    }
+
+    /**
+     * Get the number of entries added to the Bloom filter since its last reset
+     *
+     * @return
+     */
+    public long getInsertions() {
+        return insertions.get();
+    }
+
+    private synchronized void clearBloomFilter() {
+        // avoid to allocate a new filter for each removal of a bulk delete
+        if (insertions.get() > 0) {
+            reset();
+        }
+    }
+
+    private synchronized void reset() {
+        bloomFilter = BloomFilter.create(Funnels.stringFunnel(StandardCharsets.UTF_8), expectedInsertions, fpp);
+        bloomFilterCreatedOn = System.currentTimeMillis();
+        insertions.set(0);
+    }
+
+}
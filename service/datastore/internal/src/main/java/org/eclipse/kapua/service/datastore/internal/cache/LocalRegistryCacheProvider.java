@@ -0,0 +1,31 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Eurotech and/or its affiliates and others
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Eurotech - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.kapua.service.datastore.internal.cache;
+
+import org.eclipse.kapua.commons.cache.Cache;
+import org.eclipse.kapua.commons.cache.LocalCache;
+
+/**
+ * Default registry cache provider. The caches are local to the broker.
+ *
+ * @since 1.0
+ */
+public class LocalRegistryCacheProvider implements RegistryCacheProvider {
+
+    @Override
+    public Cache<String, Boolean> getCache(String name, int sizeMax, int expireAfter) {
+        LocalCache<String, Boolean> cache = new LocalCache<>(sizeMax, expireAfter, false);
+        cache.setNamespace(name);
+        return cache;
+    }
+
+}
@@ -0,0 +1,40 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Eurotech and/or its affiliates and others
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Eurotech - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.kapua.service.datastore.internal.cache;
+
+import org.eclipse.kapua.commons.cache.Cache;
+
+/**
+ * Registry cache provider definition.<br>
+ * It provides the caches holding the channel, metric and client registry entries already stored by the datastore. A provider backed by a distributed
+ * cache lets the broker nodes share the registry entries (see {@link org.eclipse.kapua.service.datastore.internal.setting.DatastoreSettingKey#CONFIG_CACHE_REGISTRY_PROVIDER}).<br>
+ * The implementations must expose an empty constructor.
+ *
+ * @since 1.0
+ */
+public interface RegistryCacheProvider {
+
+    /**
+     * Get the cache with the provided name.<br>
+     * The returned cache must return {@link Boolean#FALSE} for the missing keys.
+     *
+     * @param name
+     *            the cache name (channels, metrics or clients)
+     * @param sizeMax
+     *            maximum number of entries (this value may be ignored by the distributed implementations)
+     * @param expireAfter
+     *            entries ttl in seconds
+     * @return
+     */
+    Cache<String, Boolean> getCache(String name, int sizeMax, int expireAfter);
+
+}
@@ -0,0 +1,159 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Eurotech and/or its affiliates and others
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Eurotech - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.kapua.service.datastore.internal.cache;
+
+import java.math.BigInteger;
+import java.util.function.Function;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.eclipse.kapua.commons.cache.Cache;
+import org.eclipse.kapua.commons.metric.MetricServiceFactory;
+import org.eclipse.kapua.commons.model.id.KapuaEid;
+import org.eclipse.kapua.model.id.KapuaId;
+import org.eclipse.kapua.service.datastore.client.ClientException;
+import org.eclipse.kapua.service.datastore.client.DatastoreClient;
+import org.eclipse.kapua.service.datastore.client.model.IndexRequest;
+import org.eclipse.kapua.service.datastore.client.model.IndexResponse;
+import org.eclipse.kapua.service.datastore.client.model.ResultList;
+import org.eclipse.kapua.service.datastore.client.model.TypeDescriptor;
+import org.eclipse.kapua.service.datastore.internal.AbstractStorableQuery;
+import org.eclipse.kapua.service.datastore.internal.DatastoreCacheManager;
+import org.eclipse.kapua.service.datastore.internal.model.query.ChannelInfoQueryImpl;
+import org.eclipse.kapua.service.datastore.internal.model.query.ClientInfoQueryImpl;
+import org.eclipse.kapua.service.datastore.internal.model.query.MetricInfoQueryImpl;
+import org.eclipse.kapua.service.datastore.internal.schema.ChannelInfoSchema;
+import org.eclipse.kapua.service.datastore.internal.schema.ClientInfoSchema;
+import org.eclipse.kapua.service.datastore.internal.schema.MetricInfoSchema;
+import org.eclipse.kapua.service.datastore.internal.setting.DatastoreSettingKey;
+import org.eclipse.kapua.service.datastore.internal.setting.DatastoreSettings;
+import org.eclipse.kapua.service.datastore.model.ChannelInfo;
+import org.eclipse.kapua.service.datastore.model.ClientInfo;
+import org.eclipse.kapua.service.datastore.model.MetricInfo;
+import org.eclipse.kapua.service.datastore.model.Storable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.codahale.metrics.Counter;
+
+/**
+ * Registry caches warm up.<br>
+ * It reads the channel, metric and client entries of every registry index, one page at a time, and adds their identifiers to the
+ * {@link DatastoreCacheManager} registry caches, so a restarted broker doesn't look up the datastore for each registry entry already stored.<br>
+ * The warm up is useful mainly with the Bloom filter tier enabled, since the local registry caches are size bounded and their entries expire quickly.
+ *
+ * @since 1.0
+ */
+public class RegistryCacheWarmer implements Runnable {
+
+    private static final Logger logger = LoggerFactory.getLogger(RegistryCacheWarmer.class);
+
+    private static final String METRIC_COMPONENT_NAME = "datastore";
+
+    // registry indexes are named as the account id prefixed by a dot (see DatastoreUtils.getRegistryIndexName)
+    private static final Pattern REGISTRY_INDEX_PATTERN = Pattern.compile("\\.([0-9]+)");
+
+    private final DatastoreClient client;
+    private final int pageSize;
+    private final int maxEntries;
+    private final Counter metricWarmUpEntriesCount;
+
+    /**
+     * Constructs the warmer
+     *
+     * @param client
+     * @param pageSize
+     *            number of registry entries read by each query
+     * @param maxEntries
+     *            maximum number of entries loaded for each registry type and account
+     */
+    public RegistryCacheWarmer(DatastoreClient client, int pageSize, int maxEntries) {
+        this.client = client;
+        this.pageSize = pageSize;
+        this.maxEntries = maxEntries;
+        metricWarmUpEntriesCount = MetricServiceFactory.getInstance().getCounter(METRIC_COMPONENT_NAME, "cache", "warmup", "entries", "count");
+    }
+
+    /**
+     * Start the registry caches warm up in background, if enabled by {@link DatastoreSettingKey#CONFIG_CACHE_WARMUP_ENABLED}
+     *
+     * @param client
+     */
+    public static void startIfEnabled(DatastoreClient client) {
+        DatastoreSettings config = DatastoreSettings.getInstance();
+        if (!config.getBoolean(DatastoreSettingKey.CONFIG_CACHE_WARMUP_ENABLED, false)) {
+            return;
+        }
+        RegistryCacheWarmer warmer = new RegistryCacheWarmer(client,
+                config.getInt(DatastoreSettingKey.CONFIG_CACHE_WARMUP_PAGE_SIZE, 1000),
+                config.getInt(DatastoreSettingKey.CONFIG_CACHE_WARMUP_MAX_ENTRIES, 10000));
+        Thread thread = new Thread(warmer, "datastore-cache-warmup");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    @Override
+    public void run() {
+        long start = System.currentTimeMillis();
+        long entries = 0;
+        try {
+            IndexResponse indexResponse = client.findIndexes(new IndexRequest(".*"));
+            if (indexResponse.getIndexes() == null) {
+                return;
+            }
+            DatastoreCacheManager cacheManager = DatastoreCacheManager.getInstance();
+            for (String indexName : indexResponse.getIndexes()) {
+                Matcher matcher = REGISTRY_INDEX_PATTERN.matcher(indexName.trim());
+                if (!matcher.matches()) {
+                    continue;
+                }
+                KapuaId scopeId = new KapuaEid(new BigInteger(matcher.group(1)));
+                String registryIndexName = matcher.group();
+                entries += warmUp(new TypeDescriptor(registryIndexName, ChannelInfoSchema.CHANNEL_TYPE_NAME), new ChannelInfoQueryImpl(scopeId), ChannelInfo.class,
+                        channelInfo -> channelInfo.getId().toString(), cacheManager.getChannelsCache());
+                entries += warmUp(new TypeDescriptor(registryIndexName, MetricInfoSchema.METRIC_TYPE_NAME), new MetricInfoQueryImpl(scopeId), MetricInfo.class,
+                        metricInfo -> metricInfo.getId().toString(), cacheManager.getMetricsCache());
+                // the clients cache is keyed by client id (see ClientInfoRegistryFacade.upstore)
+                entries += warmUp(new TypeDescriptor(registryIndexName, ClientInfoSchema.CLIENT_TYPE_NAME), new ClientInfoQueryImpl(scopeId), ClientInfo.class,
+                        ClientInfo::getClientId, cacheManager.getClientsCache());
+            }
+            logger.info("Registry caches warm up completed: {} entries loaded in {} ms", entries, System.currentTimeMillis() - start);
+        } catch (Exception e) {
+            logger.warn("Registry caches warm up failed after loading {} entries. The missing entries will be loaded on demand", entries, e);
+        }
+    }
+
+    private <T extends Storable> long warmUp(TypeDescriptor typeDescriptor, AbstractStorableQuery<T> query, Class<T> clazz, Function<T, String> keyExtractor, Cache<String, Boolean> cache)
+            throws ClientException {
+        long loaded = 0;
+        int offset = 0;
+        while (offset < maxEntries) {
+            query.setOffset(offset);
+            query.setLimit(Math.min(pageSize, maxEntries - offset));
+            ResultList<T> page = client.query(typeDescriptor, query, clazz);
+            for (T entry : page.getResult()) {
+                String key = keyExtractor.apply(entry);
+                if (key != null) {
+                    cache.put(key, true);
+                    loaded++;
+                }
+            }
+            metricWarmUpEntriesCount.inc(page.getResult().size());
+            offset += page.getResult().size();
+            if (page.getResult().size() < query.getLimit() || offset >= page.getTotalCount()) {
+                break;
+            }
+        }
+        return loaded;
+    }
+
+}
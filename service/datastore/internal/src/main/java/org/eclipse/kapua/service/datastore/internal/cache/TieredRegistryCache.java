@@ -0,0 +1,80 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Eurotech and/or its affiliates and others
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Eurotech - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.kapua.service.datastore.internal.cache;
+
+import org.eclipse.kapua.commons.cache.Cache;
+
+/**
+ * Registry cache composed by a local (near) cache in front of a shared cache.<br>
+ * The shared cache is queried only on local cache misses and its hits are copied in the local cache, so the shared backend is not hit by every store
+ * operation.
+ *
+ * @since 1.0
+ */
+public class TieredRegistryCache implements Cache<String, Boolean> {
+
+    private final Cache<String, Boolean> localCache;
+    private final Cache<String, Boolean> sharedCache;
+
+    /**
+     * Constructs the tiered cache
+     *
+     * @param localCache
+     * @param sharedCache
+     */
+    public TieredRegistryCache(Cache<String, Boolean> localCache, Cache<String, Boolean> sharedCache) {
+        this.localCache = localCache;
+        this.sharedCache = sharedCache;
+    }
+
+    @Override
+    public String getNamespace() {
+        return localCache.getNamespace();
+    }
+
+    @Override
+    public void setNamespace(String namespace) {
+        localCache.setNamespace(namespace);
+        sharedCache.setNamespace(namespace);
+    }
+
+    @Override
+    public Boolean get(String key) {
+        if (Boolean.TRUE.equals(localCache.get(key))) {
+            return true;
+        }
+        if (Boolean.TRUE.equals(sharedCache.get(key))) {
+            localCache.put(key, true);
+            return true;
+        }
+        return false;
+    }
+
+    @Override
+    public void put(String key, Boolean value) {
+        localCache.put(key, value);
+        sharedCache.put(key, value);
+    }
+
+    @Override
+    public void remove(String key) {
+        localCache.remove(key);
+        sharedCache.remove(key);
+    }
+
+    @Override
+    public void invalidateAll() {
+        localCache.invalidateAll();
+        sharedCache.invalidateAll();
+    }
+
+}
@@ -0,0 +1,283 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Eurotech and/or its affiliates and others
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Eurotech - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.kapua.service.datastore.internal.compact;
+
+import org.eclipse.kapua.model.id.KapuaId;
+import org.eclipse.kapua.service.datastore.client.QueryMappingException;
+import org.eclipse.kapua.service.datastore.internal.mediator.DatastoreUtils;
+import org.eclipse.kapua.service.datastore.internal.model.query.ChannelMatchPredicateImpl;
+import org.eclipse.kapua.service.datastore.internal.schema.MessageSchema;
+import org.eclipse.kapua.service.datastore.model.DatastoreMessage;
+import org.eclipse.kapua.service.datastore.model.StorableId;
+import org.eclipse.kapua.service.datastore.model.query.AndPredicate;
+import org.eclipse.kapua.service.datastore.model.query.ChannelMatchPredicate;
+import org.eclipse.kapua.service.datastore.model.query.ExistsPredicate;
+import org.eclipse.kapua.service.datastore.model.query.IdsPredicate;
+import org.eclipse.kapua.service.datastore.model.query.RangePredicate;
+import org.eclipse.kapua.service.datastore.model.query.SortDirection;
+import org.eclipse.kapua.service.datastore.model.query.SortField;
+import org.eclipse.kapua.service.datastore.model.query.StorablePredicate;
+import org.eclipse.kapua.service.datastore.model.query.TermPredicate;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Evaluates the message query predicates and sort fields on the messages rebuilt from the compact windows.<br>
+ * Elasticsearch selects a compact window if any of its messages matches each query condition, so the single messages of the window must be filtered again
+ * before being returned.
+ *
+ * @since 1.0
+ */
+public class CompactMessageMatcher {
+
+    private static final String METRICS_PREFIX = MessageSchema.MESSAGE_METRICS + ".";
+
+    private static final Set<String> WINDOW_FIELDS = new HashSet<>(Arrays.asList(
+            MessageSchema.MESSAGE_SCOPE_ID,
+            MessageSchema.MESSAGE_DEVICE_ID,
+            MessageSchema.MESSAGE_CLIENT_ID,
+            MessageSchema.MESSAGE_CHANNEL));
+
+    private CompactMessageMatcher() {
+    }
+
+    /**
+     * Check if the predicate can be evaluated on the compact messages
+     *
+     * @param predicate
+     * @throws QueryMappingException
+     *             if the predicate (or any of its inner predicates) is not supported
+     */
+    public static void validate(StorablePredicate predicate) throws QueryMappingException {
+        if (predicate instanceof AndPredicate) {
+            for (StorablePredicate innerPredicate : ((AndPredicate) predicate).getPredicates()) {
+                validate(innerPredicate);
+            }
+        } else if (predicate != null && !isSupported(predicate)) {
+            throw new QueryMappingException(String.format("Predicate %s is not supported by the compact message queries", predicate.getClass().getName()));
+        }
+    }
+
+    /**
+     * Check if the predicate only constrains the fields having a single value in the compact window (scope, device, client and channel).<br>
+     * Such a predicate is applied exactly by the datastore, so all the messages of the selected windows match it.
+     *
+     * @param predicate
+     * @return
+     */
+    public static boolean isWindowLevel(StorablePredicate predicate) {
+        if (predicate == null) {
+            return true;
+        } else if (predicate instanceof AndPredicate) {
+            for (StorablePredicate innerPredicate : ((AndPredicate) predicate).getPredicates()) {
+                if (!isWindowLevel(innerPredicate)) {
+                    return false;
+                }
+            }
+            return true;
+        } else if (predicate instanceof TermPredicate) {
+            return WINDOW_FIELDS.contains(((TermPredicate) predicate).getField().field());
+        } else if (predicate instanceof ChannelMatchPredicate) {
+            return !(predicate instanceof ChannelMatchPredicateImpl) || WINDOW_FIELDS.contains(((ChannelMatchPredicateImpl) predicate).getField());
+        }
+        return false;
+    }
+
+    /**
+     * Check if the message matches the predicate
+     *
+     * @param predicate
+     * @param message
+     * @return
+     * @throws QueryMappingException
+     *             if the predicate (or any of its inner predicates) is not supported
+     */
+    public static boolean matches(StorablePredicate predicate, DatastoreMessage message) throws QueryMappingException {
+        if (predicate == null) {
+            return true;
+        }
+        if (predicate instanceof AndPredicate) {
+            for (StorablePredicate innerPredicate : ((AndPredicate) predicate).getPredicates()) {
+                if (!matches(innerPredicate, message)) {
+                    return false;
+                }
+            }
+            return true;
+        } else if (predicate instanceof TermPredicate) {
+            TermPredicate termPredicate = (TermPredicate) predicate;
+            Object value = getFieldValue(message, termPredicate.getField().field());
+            return value != null && compare(value, termPredicate.getValue()) == 0;
+        } else if (predicate instanceof RangePredicate) {
+            RangePredicate rangePredicate = (RangePredicate) predicate;
+            Object value = getFieldValue(message, rangePredicate.getField());
+            if (value == null) {
+                return false;
+            }
+            return (rangePredicate.getMinValue() == null || compare(value, rangePredicate.getMinValue()) >= 0) &&
+                    (rangePredicate.getMaxValue() == null || compare(value, rangePredicate.getMaxValue()) <= 0);
+        } else if (predicate instanceof ChannelMatchPredicate) {
+            String field = predicate instanceof ChannelMatchPredicateImpl ? ((ChannelMatchPredicateImpl) predicate).getField() : MessageSchema.MESSAGE_CHANNEL;
+            Object value = getFieldValue(message, field);
+            return value != null && value.toString().startsWith(((ChannelMatchPredicate) predicate).getExpression());
+        } else if (predicate instanceof ExistsPredicate) {
+            return getFieldValue(message, ((ExistsPredicate) predicate).getName()) != null;
+        } else if (predicate instanceof IdsPredicate) {
+            for (StorableId id : ((IdsPredicate) predicate).getIdSet()) {
+                if (id.toString().equals(message.getDatastoreId().toString())) {
+                    return true;
+                }
+            }
+            return false;
+        }
+        throw new QueryMappingException(String.format("Predicate %s is not supported by the compact message queries", predicate.getClass().getName()));
+    }
+
+    private static boolean isSupported(StorablePredicate predicate) {
+        return predicate instanceof TermPredicate ||
+                predicate instanceof RangePredicate ||
+                predicate instanceof ChannelMatchPredicate ||
+                predicate instanceof ExistsPredicate ||
+                predicate instanceof IdsPredicate;
+    }
+
+    /**
+     * Get the comparator sorting the messages by the provided sort fields
+     *
+     * @param sortFields
+     * @return
+     */
+    public static Comparator<DatastoreMessage> getComparator(List<SortField> sortFields) {
+        return (message1, message2) -> {
+            if (sortFields != null) {
+                for (SortField sortField : sortFields) {
+                    Object value1 = getFieldValue(message1, sortField.getField());
+                    Object value2 = getFieldValue(message2, sortField.getField());
+                    int result;
+                    if (value1 == null || value2 == null) {
+                        // missing values last, whatever the sort direction
+                        result = value1 == null ? (value2 == null ? 0 : 1) : -1;
+                    } else {
+                        result = compare(value1, value2);
+                        if (SortDirection.DESC.equals(sortField.getSortDirection())) {
+                            result = -result;
+                        }
+                    }
+                    if (result != 0) {
+                        return result;
+                    }
+                }
+            }
+            return 0;
+        };
+    }
+
+    /**
+     * Get the value of the provided message field.<br>
+     * The field names are the ones of the {@link MessageSchema}
+     *
+     * @param message
+     * @param field
+     * @return the field value or null if the message has no value for the field
+     */
+    public static Object getFieldValue(DatastoreMessage message, String field) {
+        switch (field) {
+        case MessageSchema.MESSAGE_ID:
+            return message.getId();
+        case MessageSchema.MESSAGE_SCOPE_ID:
+            return message.getScopeId();
+        case MessageSchema.MESSAGE_DEVICE_ID:
+            return message.getDeviceId();
+        case MessageSchema.MESSAGE_CLIENT_ID:
+            return message.getClientId();
+        case MessageSchema.MESSAGE_CHANNEL:
+            return message.getChannel() != null ? message.getChannel().toString() : null;
+        case MessageSchema.MESSAGE_TIMESTAMP:
+            return message.getTimestamp();
+        case MessageSchema.MESSAGE_RECEIVED_ON:
+            return message.getReceivedOn();
+        case MessageSchema.MESSAGE_CAPTURED_ON:
+            return message.getCapturedOn();
+        case MessageSchema.MESSAGE_SENT_ON:
+            return message.getSentOn();
+        default:
+            if (field.startsWith(METRICS_PREFIX)) {
+                return getMetricValue(message, field.substring(METRICS_PREFIX.length()));
+            }
+            return null;
+        }
+    }
+
+    /**
+     * Get the metric value
+     *
+     * @param message
+     * @param metricField
+     *            the normalized metric name, optionally followed by the metric type acronym (as in 'temperature.dbl')
+     * @return
+     */
+    private static Object getMetricValue(DatastoreMessage message, String metricField) {
+        if (message.getPayload() == null || message.getPayload().getMetrics() == null) {
+            return null;
+        }
+        int typeSeparator = metricField.indexOf('.');
+        String metricName = typeSeparator < 0 ? metricField : metricField.substring(0, typeSeparator);
+        Object value = null;
+        for (Map.Entry<String, Object> metric : message.getPayload().getMetrics().entrySet()) {
+            if (metricName.equals(DatastoreUtils.normalizeMetricName(metric.getKey()))) {
+                value = metric.getValue();
+                break;
+            }
+        }
+        if (value != null && typeSeparator >= 0) {
+            String metricType = DatastoreUtils.getClientMetricFromAcronym(DatastoreUtils.getClientMetricFromType(value.getClass()));
+            if (!metricType.equals(metricField.substring(typeSeparator + 1))) {
+                return null;
+            }
+        }
+        return value;
+    }
+
+    /**
+     * Compare two field values.<br>
+     * Dates and numbers are compared by their numeric value, any other value by its string representation.
+     *
+     * @param value1
+     * @param value2
+     * @return
+     */
+    private static int compare(Object value1, Object value2) {
+        Object normalized1 = normalize(value1);
+        Object normalized2 = normalize(value2);
+        if (normalized1 instanceof Number && normalized2 instanceof Number) {
+            return Double.compare(((Number) normalized1).doubleValue(), ((Number) normalized2).doubleValue());
+        }
+        return normalized1.toString().compareTo(normalized2.toString());
+    }
+
+    private static Object normalize(Object value) {
+        if (value instanceof Date) {
+            return ((Date) value).getTime();
+        } else if (value instanceof KapuaId) {
+            return ((KapuaId) value).toStringId();
+        } else if (value instanceof Boolean || value instanceof Number) {
+            return value;
+        }
+        return value.toString();
+    }
+
+}
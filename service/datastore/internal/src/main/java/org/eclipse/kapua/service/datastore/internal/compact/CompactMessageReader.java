@@ -0,0 +1,225 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Eurotech and/or its affiliates and others
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Eurotech - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.kapua.service.datastore.internal.compact;
+
+import org.eclipse.kapua.model.id.KapuaId;
+import org.eclipse.kapua.service.datastore.client.ClientErrorCodes;
+import org.eclipse.kapua.service.datastore.client.ClientException;
+import org.eclipse.kapua.service.datastore.client.DatastoreClient;
+import org.eclipse.kapua.service.datastore.client.model.ResultList;
+import org.eclipse.kapua.service.datastore.client.model.TypeDescriptor;
+import org.eclipse.kapua.service.datastore.internal.model.StorableIdImpl;
+import org.eclipse.kapua.service.datastore.internal.model.query.CompactMessageQueryImpl;
+import org.eclipse.kapua.service.datastore.internal.model.query.IdsPredicateImpl;
+import org.eclipse.kapua.service.datastore.internal.schema.CompactMessageSchema;
+import org.eclipse.kapua.service.datastore.internal.schema.MessageSchema;
+import org.eclipse.kapua.service.datastore.internal.schema.SchemaUtil;
+import org.eclipse.kapua.service.datastore.model.DatastoreMessage;
+import org.eclipse.kapua.service.datastore.model.StorableId;
+import org.eclipse.kapua.service.datastore.model.query.MessageQuery;
+import org.eclipse.kapua.service.datastore.model.query.SortField;
+import org.eclipse.kapua.service.datastore.model.query.StorableFetchStyle;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * Compact message reader.<br>
+ * It reads the compact windows matching the message query page by page, rebuilds the single messages and filters them again with the
+ * {@link CompactMessageMatcher}.<br>
+ * The queries matching more than the configured maximum number of windows are rejected, instead of returning partial results.
+ *
+ * @since 1.0
+ */
+public class CompactMessageReader {
+
+    // the window start, client, channel and segment identify the window document in the scope, so the paging is stable
+    private static final List<SortField> WINDOW_SORT = Arrays.asList(
+            SortField.ascending(CompactMessageSchema.COMPACT_MESSAGE_WINDOW_START),
+            SortField.ascending(MessageSchema.MESSAGE_CLIENT_ID),
+            SortField.ascending(MessageSchema.MESSAGE_CHANNEL),
+            SortField.ascending(CompactMessageSchema.COMPACT_MESSAGE_SEGMENT));
+
+    private final DatastoreClient client;
+    private final int pageSize;
+    private final int maxWindows;
+
+    /**
+     * Window visitor
+     */
+    public interface WindowVisitor {
+
+        /**
+         * Visit the window
+         *
+         * @param window
+         * @throws ClientException
+         */
+        void visit(CompactMessageWindow window) throws ClientException;
+    }
+
+    /**
+     * Constructs the compact message reader
+     *
+     * @param client
+     * @param pageSize
+     *            number of compact windows read by a single datastore query
+     * @param maxWindows
+     *            maximum number of compact windows matched by a message query
+     */
+    public CompactMessageReader(DatastoreClient client, int pageSize, int maxWindows) {
+        this.client = client;
+        this.pageSize = pageSize;
+        this.maxWindows = maxWindows;
+    }
+
+    /**
+     * Get the first compact messages matching the query, by the query sort fields.<br>
+     * The query offset and limit are not applied, since the messages must be merged with the ones stored with the full layout before paging: the caller
+     * provides the number of messages needed to fill the requested page.
+     *
+     * @param query
+     * @param maxMessages
+     *            maximum number of messages returned
+     * @return the first matching messages, sorted by the query sort fields, and the count of all the matching messages
+     * @throws ClientException
+     */
+    public ResultList<DatastoreMessage> query(MessageQuery query, int maxMessages) throws ClientException {
+        Comparator<DatastoreMessage> comparator = CompactMessageMatcher.getComparator(query.getSortFields());
+        // the last message by sort order is the head, so it is the one discarded when the queue is full
+        PriorityQueue<DatastoreMessage> firstMessages = new PriorityQueue<>(Math.max(1, Math.min(maxMessages, pageSize)), comparator.reversed());
+        long[] totalCount = new long[1];
+        forEachWindow(query, StorableFetchStyle.SOURCE_FULL, window -> {
+            for (DatastoreMessage message : window.getMessages()) {
+                if (CompactMessageMatcher.matches(query.getPredicate(), message)) {
+                    totalCount[0]++;
+                    firstMessages.add(message);
+                    if (firstMessages.size() > maxMessages) {
+                        firstMessages.poll();
+                    }
+                }
+            }
+        });
+
+        List<DatastoreMessage> messages = new ArrayList<>(firstMessages);
+        messages.sort(comparator);
+        ResultList<DatastoreMessage> result = new ResultList<>(totalCount[0]);
+        for (DatastoreMessage message : messages) {
+            result.add(message);
+        }
+        return result;
+    }
+
+    /**
+     * Count the compact messages matching the query.<br>
+     * If the query only constrains the window fields (see {@link CompactMessageMatcher#isWindowLevel(org.eclipse.kapua.service.datastore.model.query.StorablePredicate)})
+     * only the message identifiers of the windows are read, otherwise the messages are rebuilt and filtered.
+     *
+     * @param query
+     * @return
+     * @throws ClientException
+     */
+    public long count(MessageQuery query) throws ClientException {
+        long[] count = new long[1];
+        if (CompactMessageMatcher.isWindowLevel(query.getPredicate())) {
+            forEachWindow(query, StorableFetchStyle.FIELDS, window -> count[0] += window.size());
+        } else {
+            forEachWindow(query, StorableFetchStyle.SOURCE_FULL, window -> {
+                for (DatastoreMessage message : window.getMessages()) {
+                    if (CompactMessageMatcher.matches(query.getPredicate(), message)) {
+                        count[0]++;
+                    }
+                }
+            });
+        }
+        return count[0];
+    }
+
+    /**
+     * Visit the compact windows selected by the query predicate, reading the windows page by page.<br>
+     * The windows hold the messages matching the predicate, but they may hold other messages too.
+     *
+     * @param query
+     * @param fetchStyle
+     *            {@link StorableFetchStyle#SOURCE_FULL} to read the whole windows, {@link StorableFetchStyle#FIELDS} to read the window fields and the
+     *            message identifiers only
+     * @param visitor
+     * @throws ClientException
+     *             if the query matches more than the maximum number of windows or if the query predicate is not supported by the compact messages
+     */
+    public void forEachWindow(MessageQuery query, StorableFetchStyle fetchStyle, WindowVisitor visitor) throws ClientException {
+        CompactMessageQueryImpl windowQuery = new CompactMessageQueryImpl(query.getScopeId());
+        windowQuery.setPredicate(query.getPredicate());
+        windowQuery.setFetchStyle(fetchStyle);
+        windowQuery.setSortFields(WINDOW_SORT);
+        windowQuery.setLimit(pageSize);
+        TypeDescriptor typeDescriptor = new TypeDescriptor(SchemaUtil.getDataIndexName(query.getScopeId()), CompactMessageSchema.COMPACT_MESSAGE_TYPE_NAME);
+        int offset = 0;
+        ResultList<CompactMessageWindow> windows;
+        do {
+            windowQuery.setOffset(offset);
+            windows = client.query(typeDescriptor, windowQuery, CompactMessageWindow.class);
+            if (windows.getTotalCount() > maxWindows) {
+                throw new ClientException(ClientErrorCodes.ACTION_ERROR,
+                        String.format("The query matches %d compact windows for scope %s, more than the %d allowed. Please narrow the query time range",
+                                windows.getTotalCount(), query.getScopeId(), maxWindows));
+            }
+            if (offset == 0 && windows.getTotalCount() > 0) {
+                CompactMessageMatcher.validate(query.getPredicate());
+            }
+            for (CompactMessageWindow window : windows.getResult()) {
+                visitor.visit(window);
+            }
+            offset += windows.getResult().size();
+        } while (!windows.getResult().isEmpty() && offset < windows.getTotalCount());
+    }
+
+    /**
+     * Find the compact message by identifier
+     *
+     * @param scopeId
+     * @param id
+     *            the compact message identifier (see {@link CompactMessageWindow#isCompactMessageId(String)})
+     * @return the message or null if the message doesn't exist
+     * @throws ClientException
+     */
+    public DatastoreMessage find(KapuaId scopeId, StorableId id) throws ClientException {
+        CompactMessageWindow window = findWindow(scopeId, CompactMessageWindow.getWindowIdFromMessageId(id.toString()), StorableFetchStyle.SOURCE_FULL);
+        int position = window != null ? window.indexOf(CompactMessageWindow.getMessageKeyFromMessageId(id.toString())) : -1;
+        return position >= 0 ? window.getMessage(position) : null;
+    }
+
+    /**
+     * Find the compact window by identifier
+     *
+     * @param scopeId
+     * @param windowId
+     * @param fetchStyle
+     *            see {@link #forEachWindow(MessageQuery, StorableFetchStyle, WindowVisitor)}
+     * @return the window or null if the window doesn't exist
+     * @throws ClientException
+     */
+    public CompactMessageWindow findWindow(KapuaId scopeId, String windowId, StorableFetchStyle fetchStyle) throws ClientException {
+        CompactMessageQueryImpl idsQuery = new CompactMessageQueryImpl(scopeId);
+        idsQuery.setFetchStyle(fetchStyle);
+        idsQuery.setLimit(1);
+        IdsPredicateImpl idsPredicate = new IdsPredicateImpl(CompactMessageSchema.COMPACT_MESSAGE_TYPE_NAME);
+        idsPredicate.addValue(new StorableIdImpl(windowId));
+        idsQuery.setPredicate(idsPredicate);
+        TypeDescriptor typeDescriptor = new TypeDescriptor(SchemaUtil.getDataIndexName(scopeId), CompactMessageSchema.COMPACT_MESSAGE_TYPE_NAME);
+        return client.find(typeDescriptor, idsQuery, CompactMessageWindow.class);
+    }
+
+}
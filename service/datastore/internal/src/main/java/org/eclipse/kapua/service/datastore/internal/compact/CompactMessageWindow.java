@@ -0,0 +1,344 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Eurotech and/or its affiliates and others
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Eurotech - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.kapua.service.datastore.internal.compact;
+
+import org.eclipse.kapua.message.internal.device.data.KapuaDataChannelImpl;
+import org.eclipse.kapua.message.internal.device.data.KapuaDataPayloadImpl;
+import org.eclipse.kapua.model.id.KapuaId;
+import org.eclipse.kapua.service.datastore.internal.mediator.DatastoreUtils;
+import org.eclipse.kapua.service.datastore.internal.model.DatastoreMessageImpl;
+import org.eclipse.kapua.service.datastore.internal.model.StorableIdImpl;
+import org.eclipse.kapua.service.datastore.model.DatastoreMessage;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compact message window.<br>
+ * It holds the metrics only messages published by a client on a channel during a time window as a single document: the message identifiers, the message
+ * timestamps and the metric values are kept as arrays, one entry per message, in arrival order.<br>
+ * A busy time window is split in segments, each one a document holding a bounded number of messages (see {@link #getSegmentId(String, int)}), so appending a
+ * message never rewrites an unbounded document.<br>
+ * Each message is identified by the window identifier followed by the identifier assigned to the message by the broker (see
+ * {@link #getMessageId(String, String)}), so the redelivered messages are recognized by any broker appending to the window.
+ *
+ * @since 1.0
+ */
+public class CompactMessageWindow {
+
+    private static final char MESSAGE_ID_SEPARATOR = '#';
+
+    private String id;
+    private KapuaId scopeId;
+    private KapuaId deviceId;
+    private String clientId;
+    private String channel;
+    private List<String> channelParts;
+    private Date windowStart;
+    private int segment;
+
+    private final List<String> messageIds = new ArrayList<>();
+    private final List<Date> timestamps = new ArrayList<>();
+    private final List<Date> receivedOn = new ArrayList<>();
+    private final List<Date> capturedOn = new ArrayList<>();
+    private final List<Date> sentOn = new ArrayList<>();
+    // normalized metric name -> metric type acronym -> values (aligned with the timestamps, null if the message didn't carry the metric)
+    private final Map<String, Map<String, List<Object>>> metrics = new HashMap<>();
+
+    /**
+     * Get the identifier of the window holding the messages of the provided client and channel
+     *
+     * @param scopeId
+     * @param clientId
+     * @param channel
+     * @param windowStart
+     * @return
+     */
+    public static String getWindowId(KapuaId scopeId, String clientId, String channel, long windowStart) {
+        return DatastoreUtils.getHashCode(scopeId.toStringId(), clientId, channel, Long.toString(windowStart));
+    }
+
+    /**
+     * Get the identifier of the segment of the window.<br>
+     * The first segment is identified by the window identifier itself.
+     *
+     * @param windowId
+     *            the window identifier (see {@link #getWindowId(KapuaId, String, String, long)})
+     * @param segment
+     * @return
+     */
+    public static String getSegmentId(String windowId, int segment) {
+        return segment == 0 ? windowId : DatastoreUtils.getHashCode(windowId, Integer.toString(segment));
+    }
+
+    /**
+     * Get the identifier of the message stored in the window
+     *
+     * @param windowId
+     * @param messageKey
+     *            the identifier assigned to the message by the broker
+     * @return
+     */
+    public static String getMessageId(String windowId, String messageKey) {
+        return windowId + MESSAGE_ID_SEPARATOR + messageKey;
+    }
+
+    /**
+     * Check if the message identifier refers to a message stored in a compact window
+     *
+     * @param messageId
+     * @return
+     */
+    public static boolean isCompactMessageId(String messageId) {
+        return messageId != null && messageId.indexOf(MESSAGE_ID_SEPARATOR) > 0;
+    }
+
+    /**
+     * Get the window identifier from the message identifier
+     *
+     * @param messageId
+     * @return
+     */
+    public static String getWindowIdFromMessageId(String messageId) {
+        // the window identifier is an hash code, so the first separator ends it (the broker message identifier may contain the separator)
+        return messageId.substring(0, messageId.indexOf(MESSAGE_ID_SEPARATOR));
+    }
+
+    /**
+     * Get the identifier assigned by the broker from the message identifier
+     *
+     * @param messageId
+     * @return
+     */
+    public static String getMessageKeyFromMessageId(String messageId) {
+        return messageId.substring(messageId.indexOf(MESSAGE_ID_SEPARATOR) + 1);
+    }
+
+    /**
+     * Append the message to the window.<br>
+     * The message must belong to the window (same scope, client and channel)
+     *
+     * @param message
+     * @param messageKey
+     *            the identifier assigned to the message by the broker
+     * @return true if the message is appended, false if the message with the provided identifier is already in the window (redelivered message)
+     */
+    public synchronized boolean append(DatastoreMessage message, String messageKey) {
+        if (messageIds.contains(messageKey)) {
+            return false;
+        }
+        int position = timestamps.size();
+        messageIds.add(messageKey);
+        timestamps.add(message.getTimestamp());
+        receivedOn.add(message.getReceivedOn());
+        capturedOn.add(message.getCapturedOn());
+        sentOn.add(message.getSentOn());
+        for (Map.Entry<String, Object> metric : message.getPayload().getMetrics().entrySet()) {
+            String metricName = DatastoreUtils.normalizeMetricName(metric.getKey());
+            String metricType = DatastoreUtils.getClientMetricFromAcronym(DatastoreUtils.getClientMetricFromType(metric.getValue().getClass()));
+            List<Object> values = metrics.computeIfAbsent(metricName, name -> new HashMap<>()).computeIfAbsent(metricType, type -> new ArrayList<>());
+            pad(values, position);
+            values.add(metric.getValue());
+        }
+        return true;
+    }
+
+    /**
+     * Get the position of the message in the window
+     *
+     * @param messageKey
+     *            the identifier assigned to the message by the broker
+     * @return the message position or -1 if the message is not in the window
+     */
+    public synchronized int indexOf(String messageKey) {
+        return messageIds.indexOf(messageKey);
+    }
+
+    /**
+     * Get the number of messages in the window
+     *
+     * @return
+     */
+    public synchronized int size() {
+        return messageIds.size();
+    }
+
+    /**
+     * Get the message stored at the provided position
+     *
+     * @param position
+     * @return
+     */
+    public synchronized DatastoreMessage getMessage(int position) {
+        DatastoreMessageImpl message = new DatastoreMessageImpl();
+        message.setDatastoreId(new StorableIdImpl(getMessageId(id, messageIds.get(position))));
+        message.setScopeId(scopeId);
+        message.setDeviceId(deviceId);
+        message.setClientId(clientId);
+        KapuaDataChannelImpl dataChannel = new KapuaDataChannelImpl();
+        dataChannel.setSemanticParts(channelParts);
+        message.setChannel(dataChannel);
+        message.setTimestamp(timestamps.get(position));
+        message.setReceivedOn(receivedOn.get(position));
+        message.setCapturedOn(get(capturedOn, position));
+        message.setSentOn(get(sentOn, position));
+
+        Map<String, Object> payloadMetrics = new HashMap<>();
+        for (Map.Entry<String, Map<String, List<Object>>> metric : metrics.entrySet()) {
+            for (Map.Entry<String, List<Object>> typedValues : metric.getValue().entrySet()) {
+                Object value = get(typedValues.getValue(), position);
+                if (value != null) {
+                    payloadMetrics.put(DatastoreUtils.restoreMetricName(metric.getKey()), DatastoreUtils.convertToCorrectType(typedValues.getKey(), value));
+                }
+            }
+        }
+        KapuaDataPayloadImpl payload = new KapuaDataPayloadImpl();
+        payload.setMetrics(payloadMetrics);
+        message.setPayload(payload);
+        return message;
+    }
+
+    /**
+     * Get all the messages stored in the window
+     *
+     * @return
+     */
+    public synchronized List<DatastoreMessage> getMessages() {
+        List<DatastoreMessage> messages = new ArrayList<>(timestamps.size());
+        for (int i = 0; i < timestamps.size(); i++) {
+            messages.add(getMessage(i));
+        }
+        return messages;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public void setId(String id) {
+        this.id = id;
+    }
+
+    public KapuaId getScopeId() {
+        return scopeId;
+    }
+
+    public void setScopeId(KapuaId scopeId) {
+        this.scopeId = scopeId;
+    }
+
+    public KapuaId getDeviceId() {
+        return deviceId;
+    }
+
+    public void setDeviceId(KapuaId deviceId) {
+        this.deviceId = deviceId;
+    }
+
+    public String getClientId() {
+        return clientId;
+    }
+
+    public void setClientId(String clientId) {
+        this.clientId = clientId;
+    }
+
+    public String getChannel() {
+        return channel;
+    }
+
+    public void setChannel(String channel) {
+        this.channel = channel;
+    }
+
+    public List<String> getChannelParts() {
+        return channelParts;
+    }
+
+    public void setChannelParts(List<String> channelParts) {
+        this.channelParts = channelParts;
+    }
+
+    public Date getWindowStart() {
+        return windowStart;
+    }
+
+    public void setWindowStart(Date windowStart) {
+        this.windowStart = windowStart;
+    }
+
+    /**
+     * Get the segment of the time window held by this document (0 for the first one)
+     *
+     * @return
+     */
+    public int getSegment() {
+        return segment;
+    }
+
+    public void setSegment(int segment) {
+        this.segment = segment;
+    }
+
+    /**
+     * Get the identifiers assigned by the broker to the messages. The returned list is modifiable and it is aligned with the other message fields
+     *
+     * @return
+     */
+    public List<String> getMessageIds() {
+        return messageIds;
+    }
+
+    /**
+     * Get the message timestamps. The returned list is modifiable and it is aligned with the other message fields
+     *
+     * @return
+     */
+    public List<Date> getTimestamps() {
+        return timestamps;
+    }
+
+    public List<Date> getReceivedOn() {
+        return receivedOn;
+    }
+
+    public List<Date> getCapturedOn() {
+        return capturedOn;
+    }
+
+    public List<Date> getSentOn() {
+        return sentOn;
+    }
+
+    /**
+     * Get the metric values indexed by normalized metric name and metric type acronym
+     *
+     * @return
+     */
+    public Map<String, Map<String, List<Object>>> getMetrics() {
+        return metrics;
+    }
+
+    private static void pad(List<Object> values, int size) {
+        while (values.size() < size) {
+            values.add(null);
+        }
+    }
+
+    private static <T> T get(List<T> values, int position) {
+        return position < values.size() ? values.get(position) : null;
+    }
+
+}
@@ -0,0 +1,586 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Eurotech and/or its affiliates and others
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Eurotech - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.kapua.service.datastore.internal.compact;
+
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.Gauge;
+import org.eclipse.kapua.KapuaException;
+import org.eclipse.kapua.commons.metric.MetricServiceFactory;
+import org.eclipse.kapua.commons.metric.MetricsService;
+import org.eclipse.kapua.message.KapuaMessage;
+import org.eclipse.kapua.message.KapuaPayload;
+import org.eclipse.kapua.model.id.KapuaId;
+import org.eclipse.kapua.service.datastore.client.ClientCommunicationException;
+import org.eclipse.kapua.service.datastore.client.ClientErrorCodes;
+import org.eclipse.kapua.service.datastore.client.ClientException;
+import org.eclipse.kapua.service.datastore.client.DatastoreClient;
+import org.eclipse.kapua.service.datastore.client.model.BulkUpdateRequest;
+import org.eclipse.kapua.service.datastore.client.model.BulkUpdateResponse;
+import org.eclipse.kapua.service.datastore.client.model.ScriptUpdateRequest;
+import org.eclipse.kapua.service.datastore.client.model.TypeDescriptor;
+import org.eclipse.kapua.service.datastore.client.model.UpdateResponse;
+import org.eclipse.kapua.service.datastore.internal.model.StorableIdImpl;
+import org.eclipse.kapua.service.datastore.internal.model.query.CompactMessageQueryImpl;
+import org.eclipse.kapua.service.datastore.internal.model.query.IdsPredicateImpl;
+import org.eclipse.kapua.service.datastore.internal.schema.CompactMessageSchema;
+import org.eclipse.kapua.service.datastore.model.DatastoreMessage;
+import org.eclipse.kapua.service.datastore.model.StorableId;
+import org.eclipse.kapua.service.datastore.model.query.StorableFetchStyle;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Compact message writer.<br>
+ * The metrics only messages are appended to the {@link CompactMessageWindow} document of their client, channel and time window by a scripted update,
+ * so the brokers sharing the datastore append to the same document without overwriting each other and a message already in the window (redelivered
+ * message) is skipped.<br>
+ * A window document holds a bounded number of messages: once full, the script rejects the new messages and the following messages of the time window are
+ * appended to the next segment of the window (see {@link CompactMessageWindow#getSegmentId(String, int)}), so the cost of an append doesn't grow with the
+ * time window traffic. The segment open for each window is kept in memory and found again (one read for each full segment) after a restart.<br>
+ * The messages are committed in groups: the messages stored while a commit is running are sent together by the next one, with a single update for each
+ * window. The windows are spread over several commit threads, the messages of the same window are always committed by the same thread.<br>
+ * {@link #store(DatastoreMessage, String, String)} returns only when the message commit completes, so a message is never acknowledged before
+ * being stored and the commit errors reach the caller (and the datastore health checks) as they would for the messages stored with the full layout.
+ *
+ * @since 1.0
+ */
+public class CompactMessageWriter {
+
+    private static final Logger logger = LoggerFactory.getLogger(CompactMessageWriter.class);
+
+    private static final String METRIC_COMPONENT_NAME = "datastore";
+
+    private static final Set<CompactMessageWriter> STARTED = new CopyOnWriteArraySet<>();
+
+    private static final int RETRY_ON_CONFLICT = 5;
+
+    private static final int OPEN_SEGMENTS_MAX_SIZE = 10000;
+
+    private static final String REMOVED_MESSAGE_IDS_PARAM = "removed_message_ids";
+    private static final String MAX_MESSAGES_PARAM = "max_messages";
+
+    /**
+     * Error raised by the append script when the window segment is full
+     */
+    static final String WINDOW_FULL_ERROR = "compact_window_full";
+
+    // appends the messages of the upsert window not yet in the stored window, padding the metric values of the messages without the metric.
+    // The stored identifiers are hashed once, and the window is rejected if already full (the window may exceed the limit by one commit at most)
+    private static final String APPEND_SCRIPT = "def source = ctx._source; def upsert = params." + ScriptUpdateRequest.UPSERT_PARAM + "; " +
+            "def storedIds = new HashSet(source.message_ids); List appended = new ArrayList(); " +
+            "for (int i = 0; i < upsert.message_ids.size(); i++) { " +
+            "  if (!storedIds.contains(upsert.message_ids[i])) { appended.add(i); } " +
+            "} " +
+            "if (!appended.isEmpty() && source.message_ids.size() >= params." + MAX_MESSAGES_PARAM + ") { " +
+            "  throw new IllegalStateException('" + WINDOW_FULL_ERROR + "'); " +
+            "} " +
+            "for (def i : appended) { " +
+            "  int position = source.message_ids.size(); " +
+            "  source.message_ids.add(upsert.message_ids[i]); " +
+            "  source.timestamp.add(upsert.timestamp[i]); " +
+            "  source.received_on.add(upsert.received_on[i]); " +
+            "  source.captured_on.add(upsert.captured_on[i]); " +
+            "  source.sent_on.add(upsert.sent_on[i]); " +
+            "  for (def metric : upsert.metrics.entrySet()) { " +
+            "    if (!source.metrics.containsKey(metric.getKey())) { source.metrics.put(metric.getKey(), new HashMap()); } " +
+            "    def typedValues = source.metrics.get(metric.getKey()); " +
+            "    for (def values : metric.getValue().entrySet()) { " +
+            "      def value = i < values.getValue().size() ? values.getValue()[i] : null; " +
+            "      if (value == null) { continue; } " +
+            "      if (!typedValues.containsKey(values.getKey())) { typedValues.put(values.getKey(), new ArrayList()); } " +
+            "      def storedValues = typedValues.get(values.getKey()); " +
+            "      while (storedValues.size() < position) { storedValues.add(null); } " +
+            "      storedValues.add(value); " +
+            "    } " +
+            "  } " +
+            "} " +
+            "if (appended.isEmpty()) { ctx.op = 'none'; }";
+
+    // removes the messages from the stored window and deletes the window once empty
+    private static final String REMOVE_SCRIPT = "def source = ctx._source; " +
+            "for (int i = source.message_ids.size() - 1; i >= 0; i--) { " +
+            "  if (!params." + REMOVED_MESSAGE_IDS_PARAM + ".contains(source.message_ids[i])) { continue; } " +
+            "  source.message_ids.remove(i); " +
+            "  source.timestamp.remove(i); " +
+            "  source.received_on.remove(i); " +
+            "  source.captured_on.remove(i); " +
+            "  source.sent_on.remove(i); " +
+            "  for (def typedValues : source.metrics.values()) { " +
+            "    for (def values : typedValues.values()) { " +
+            "      if (i < values.size()) { values.remove(i); } " +
+            "    } " +
+            "  } " +
+            "} " +
+            "if (source.message_ids.isEmpty()) { ctx.op = 'delete'; }";
+
+    private final DatastoreClient client;
+    private final long windowSize;
+    private final long commitTimeout;
+    private final int maxCommitSize;
+    private final int maxWindowMessages;
+    private final List<BlockingQueue<PendingMessage>> pendingMessages = new ArrayList<>();
+    private final ExecutorService commitExecutor;
+    private volatile boolean running;
+
+    // open segment of the recent windows, the windows not in the map start from the first segment
+    private final Map<String, Integer> openSegments = Collections.synchronizedMap(new LinkedHashMap<String, Integer>(16, 0.75f, true) {
+
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Integer> eldest) {
+            return size() > OPEN_SEGMENTS_MAX_SIZE;
+        }
+    });
+
+    private final Counter metricMessageCount;
+    private final Counter metricCommitCount;
+    private final Counter metricCommitErrorCount;
+
+    /**
+     * Constructs the compact message writer
+     *
+     * @param client
+     * @param windowSize
+     *            the time window (in milliseconds) covered by a single compact document
+     * @param commitTimeout
+     *            maximum time (in milliseconds) a message store waits for the message commit
+     * @param maxCommitSize
+     *            maximum number of messages committed by a single datastore bulk operation
+     * @param maxWindowMessages
+     *            number of messages after which a window segment is full
+     * @param commitThreads
+     *            number of threads committing the messages
+     */
+    public CompactMessageWriter(DatastoreClient client, long windowSize, long commitTimeout, int maxCommitSize, int maxWindowMessages, int commitThreads) {
+        this.client = client;
+        this.windowSize = windowSize;
+        this.commitTimeout = commitTimeout;
+        this.maxCommitSize = maxCommitSize;
+        this.maxWindowMessages = maxWindowMessages;
+        for (int i = 0; i < commitThreads; i++) {
+            pendingMessages.add(new LinkedBlockingQueue<>());
+        }
+        AtomicInteger threadCount = new AtomicInteger();
+        commitExecutor = Executors.newFixedThreadPool(commitThreads, runnable -> {
+            Thread thread = new Thread(runnable, "datastore-compact-commit-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        MetricsService metricService = MetricServiceFactory.getInstance();
+        metricMessageCount = metricService.getCounter(METRIC_COMPONENT_NAME, "compact", "messages", "count");
+        metricCommitCount = metricService.getCounter(METRIC_COMPONENT_NAME, "compact", "commit", "count");
+        metricCommitErrorCount = metricService.getCounter(METRIC_COMPONENT_NAME, "compact", "commit", "error", "count");
+        try {
+            metricService.registerGauge((Gauge<Integer>) () -> pendingMessages.stream().mapToInt(BlockingQueue::size).sum(), METRIC_COMPONENT_NAME, "compact", "pending");
+        } catch (KapuaException e) {
+            logger.warn("Cannot register datastore compact pending messages gauge", e);
+        }
+    }
+
+    /**
+     * Check if the message can be stored in the compact layout: the message must carry only numeric metrics (no body and no position)
+     *
+     * @param message
+     * @return
+     */
+    public static boolean isCompactable(KapuaMessage<?, ?> message) {
+        KapuaPayload payload = message.getPayload();
+        if (message.getPosition() != null || message.getChannel() == null || payload == null || payload.getMetrics() == null || payload.getMetrics().isEmpty()) {
+            return false;
+        }
+        if (payload.getBody() != null && payload.getBody().length > 0) {
+            return false;
+        }
+        for (Object value : payload.getMetrics().values()) {
+            if (!(value instanceof Integer || value instanceof Long || value instanceof Float || value instanceof Double)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Get the start of the time window including the provided timestamp
+     *
+     * @param timestamp
+     * @return
+     */
+    public long getWindowStart(long timestamp) {
+        return timestamp - Math.floorMod(timestamp, windowSize);
+    }
+
+    /**
+     * Append the message to its compact window and wait for the commit.<br>
+     * If the commit times out the message may be stored anyway by the running commit: storing it again is safe, since the message is skipped if already
+     * in the window.
+     *
+     * @param message
+     *            the message to store. The message timestamp must be already set
+     * @param messageKey
+     *            the identifier assigned to the message by the broker
+     * @param indexName
+     *            the data index of the window (the data index of the window start)
+     * @return the identifier of the message in the compact window segment
+     * @throws ClientException
+     *             if the message cannot be stored ({@link ClientCommunicationException} if the datastore cannot be reached or the commit times out)
+     */
+    public StorableId store(DatastoreMessage message, String messageKey, String indexName) throws ClientException {
+        if (!running) {
+            throw new ClientCommunicationException("The compact message writer is not running", null);
+        }
+        long windowStart = getWindowStart(message.getTimestamp().getTime());
+        String windowId = CompactMessageWindow.getWindowId(message.getScopeId(), message.getClientId(), message.getChannel().toString(), windowStart);
+        PendingMessage pendingMessage = new PendingMessage(windowId, windowStart, indexName, message, messageKey);
+        getPendingMessages(windowId).add(pendingMessage);
+        String segmentId;
+        try {
+            segmentId = pendingMessage.result.get(commitTimeout, TimeUnit.MILLISECONDS);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof ClientException) {
+                throw (ClientException) e.getCause();
+            }
+            throw new ClientException(ClientErrorCodes.ACTION_ERROR, e.getCause());
+        } catch (TimeoutException e) {
+            throw new ClientCommunicationException(String.format("Compact message commit timed out after %d ms", commitTimeout), e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ClientCommunicationException("Interrupted while waiting for the compact message commit", e);
+        }
+        metricMessageCount.inc();
+        return new StorableIdImpl(CompactMessageWindow.getMessageId(segmentId, messageKey));
+    }
+
+    /**
+     * Get the request removing the provided messages from the window. The window document is deleted once it holds no more messages.
+     *
+     * @param indexName
+     *            the data index of the window
+     * @param windowId
+     *            the window segment identifier
+     * @param messageKeys
+     *            the identifiers assigned to the messages by the broker
+     * @return
+     */
+    public static ScriptUpdateRequest getRemoveRequest(String indexName, String windowId, Collection<String> messageKeys) {
+        ScriptUpdateRequest removeRequest = new ScriptUpdateRequest(windowId, new TypeDescriptor(indexName, CompactMessageSchema.COMPACT_MESSAGE_TYPE_NAME), null,
+                REMOVE_SCRIPT, RETRY_ON_CONFLICT);
+        removeRequest.addParam(REMOVED_MESSAGE_IDS_PARAM, new ArrayList<>(messageKeys));
+        return removeRequest;
+    }
+
+    /**
+     * Remove the messages from their windows
+     *
+     * @param removeRequest
+     *            the bulk of requests built by {@link #getRemoveRequest(String, String, Collection)}
+     * @throws ClientException
+     *             if any window cannot be updated
+     */
+    public void remove(BulkUpdateRequest removeRequest) throws ClientException {
+        if (removeRequest.getRequest().isEmpty()) {
+            return;
+        }
+        BulkUpdateResponse removeResponse = client.upsert(removeRequest);
+        for (UpdateResponse updateResponse : removeResponse.getResponse()) {
+            if (updateResponse.getDescription() != null) {
+                throw new ClientException(ClientErrorCodes.ACTION_ERROR,
+                        String.format("Cannot remove the messages from the compact window '%s': %s", updateResponse.getId(), updateResponse.getDescription()));
+            }
+        }
+    }
+
+    /**
+     * Start the commit task
+     */
+    public void start() {
+        running = true;
+        for (BlockingQueue<PendingMessage> queue : pendingMessages) {
+            commitExecutor.submit(() -> commitLoop(queue));
+        }
+        STARTED.add(this);
+    }
+
+    /**
+     * Stop the commit task.<br>
+     * The messages already queued are committed before stopping, the messages stored afterwards are rejected.
+     */
+    public void stop() {
+        STARTED.remove(this);
+        running = false;
+        commitExecutor.shutdown();
+        try {
+            if (!commitExecutor.awaitTermination(commitTimeout, TimeUnit.MILLISECONDS)) {
+                logger.warn("Compact message commit still running. Stopping it");
+                commitExecutor.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        failPending(new ClientCommunicationException("The compact message writer is stopped", null));
+    }
+
+    /**
+     * Stop all the started writers
+     */
+    public static void stopAll() {
+        for (CompactMessageWriter writer : STARTED) {
+            writer.stop();
+        }
+    }
+
+    private BlockingQueue<PendingMessage> getPendingMessages(String windowId) {
+        return pendingMessages.get(Math.floorMod(windowId.hashCode(), pendingMessages.size()));
+    }
+
+    private void commitLoop(BlockingQueue<PendingMessage> queue) {
+        List<PendingMessage> commitGroup = new ArrayList<>();
+        while (running || !queue.isEmpty()) {
+            try {
+                PendingMessage pendingMessage = queue.poll(1, TimeUnit.SECONDS);
+                if (pendingMessage != null) {
+                    commitGroup.add(pendingMessage);
+                    queue.drainTo(commitGroup, maxCommitSize - 1);
+                    commit(commitGroup);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            } finally {
+                commitGroup.clear();
+            }
+        }
+    }
+
+    /**
+     * Send the messages to the datastore with a single update for each window and complete the pending stores.<br>
+     * The messages rejected by a full window segment are sent again to the next segment.
+     *
+     * @param commitGroup
+     */
+    void commit(List<PendingMessage> commitGroup) {
+        Map<String, List<PendingMessage>> windowMessages = new LinkedHashMap<>();
+        for (PendingMessage pendingMessage : commitGroup) {
+            windowMessages.computeIfAbsent(pendingMessage.windowId, windowId -> new ArrayList<>()).add(pendingMessage);
+        }
+        while (!windowMessages.isEmpty()) {
+            windowMessages = commitSegments(windowMessages);
+        }
+    }
+
+    /**
+     * Append the messages to the open segment of their windows
+     *
+     * @param windowMessages
+     * @return the messages to append to the next segment of their windows
+     */
+    private Map<String, List<PendingMessage>> commitSegments(Map<String, List<PendingMessage>> windowMessages) {
+        Map<String, Integer> segments = new HashMap<>();
+        BulkUpdateRequest bulkRequest = new BulkUpdateRequest();
+        for (Map.Entry<String, List<PendingMessage>> messages : windowMessages.entrySet()) {
+            int segment = getOpenSegment(messages.getKey());
+            segments.put(messages.getKey(), segment);
+            CompactMessageWindow window = newWindow(messages.getValue().get(0), segment);
+            for (PendingMessage pendingMessage : messages.getValue()) {
+                window.append(pendingMessage.message, pendingMessage.messageKey);
+            }
+            String indexName = messages.getValue().get(0).indexName;
+            ScriptUpdateRequest appendRequest = new ScriptUpdateRequest(window.getId(), new TypeDescriptor(indexName, CompactMessageSchema.COMPACT_MESSAGE_TYPE_NAME), window,
+                    APPEND_SCRIPT, RETRY_ON_CONFLICT);
+            appendRequest.addParam(MAX_MESSAGES_PARAM, maxWindowMessages);
+            bulkRequest.add(appendRequest);
+        }
+
+        List<UpdateResponse> updateResponses;
+        try {
+            BulkUpdateResponse bulkResponse = client.upsert(bulkRequest);
+            updateResponses = bulkResponse.getResponse();
+        } catch (Exception e) {
+            metricCommitErrorCount.inc();
+            for (List<PendingMessage> messages : windowMessages.values()) {
+                logger.warn("Cannot commit {} compact message(s): {}", messages.size(), e.getMessage());
+                fail(messages, e);
+            }
+            return Collections.emptyMap();
+        }
+        metricCommitCount.inc();
+
+        // the bulk responses follow the requests order
+        Map<String, List<PendingMessage>> nextSegmentMessages = new LinkedHashMap<>();
+        int windowIndex = 0;
+        for (Map.Entry<String, List<PendingMessage>> messages : windowMessages.entrySet()) {
+            UpdateResponse updateResponse = windowIndex < updateResponses.size() ? updateResponses.get(windowIndex) : null;
+            int segment = segments.get(messages.getKey());
+            String segmentId = CompactMessageWindow.getSegmentId(messages.getKey(), segment);
+            windowIndex++;
+            if (updateResponse != null && updateResponse.getDescription() != null && updateResponse.getDescription().contains(WINDOW_FULL_ERROR)) {
+                List<PendingMessage> remainingMessages = closeSegment(messages.getKey(), segment, messages.getValue());
+                if (!remainingMessages.isEmpty()) {
+                    nextSegmentMessages.put(messages.getKey(), remainingMessages);
+                }
+                continue;
+            }
+            ClientException error = null;
+            if (updateResponse == null) {
+                error = new ClientException(ClientErrorCodes.ACTION_ERROR, String.format("No response for the compact window '%s'", segmentId));
+            } else if (updateResponse.getDescription() != null) {
+                error = new ClientException(ClientErrorCodes.ACTION_ERROR,
+                        String.format("Cannot store the compact window '%s': %s", segmentId, updateResponse.getDescription()));
+            }
+            if (error != null) {
+                metricCommitErrorCount.inc();
+                logger.warn(error.getMessage());
+                fail(messages.getValue(), error);
+            } else {
+                for (PendingMessage pendingMessage : messages.getValue()) {
+                    pendingMessage.result.complete(segmentId);
+                }
+            }
+        }
+        return nextSegmentMessages;
+    }
+
+    /**
+     * Move the window to the segment following the full one. The messages already in the full segment (redelivered messages) are completed.
+     *
+     * @param windowId
+     * @param segment
+     *            the full segment
+     * @param messages
+     *            the messages rejected by the full segment
+     * @return the messages to append to the next segment
+     */
+    private List<PendingMessage> closeSegment(String windowId, int segment, List<PendingMessage> messages) {
+        String segmentId = CompactMessageWindow.getSegmentId(windowId, segment);
+        PendingMessage firstMessage = messages.get(0);
+        CompactMessageWindow fullWindow;
+        try {
+            fullWindow = findSegment(firstMessage.message.getScopeId(), firstMessage.indexName, segmentId);
+        } catch (ClientException e) {
+            metricCommitErrorCount.inc();
+            logger.warn("Cannot read the full compact window '{}': {}", segmentId, e.getMessage());
+            fail(messages, e);
+            return Collections.emptyList();
+        }
+        openSegments.merge(windowId, segment + 1, Math::max);
+
+        Set<String> storedMessageKeys = fullWindow != null ? new HashSet<>(fullWindow.getMessageIds()) : Collections.emptySet();
+        List<PendingMessage> remainingMessages = new ArrayList<>();
+        for (PendingMessage pendingMessage : messages) {
+            if (storedMessageKeys.contains(pendingMessage.messageKey)) {
+                pendingMessage.result.complete(segmentId);
+            } else {
+                remainingMessages.add(pendingMessage);
+            }
+        }
+        return remainingMessages;
+    }
+
+    private CompactMessageWindow findSegment(KapuaId scopeId, String indexName, String segmentId) throws ClientException {
+        CompactMessageQueryImpl idsQuery = new CompactMessageQueryImpl(scopeId);
+        idsQuery.setFetchStyle(StorableFetchStyle.FIELDS);
+        idsQuery.setLimit(1);
+        IdsPredicateImpl idsPredicate = new IdsPredicateImpl(CompactMessageSchema.COMPACT_MESSAGE_TYPE_NAME);
+        idsPredicate.addValue(new StorableIdImpl(segmentId));
+        idsQuery.setPredicate(idsPredicate);
+        return client.find(new TypeDescriptor(indexName, CompactMessageSchema.COMPACT_MESSAGE_TYPE_NAME), idsQuery, CompactMessageWindow.class);
+    }
+
+    private int getOpenSegment(String windowId) {
+        Integer segment = openSegments.get(windowId);
+        return segment != null ? segment : 0;
+    }
+
+    private static void fail(List<PendingMessage> messages, Exception error) {
+        for (PendingMessage pendingMessage : messages) {
+            pendingMessage.result.completeExceptionally(error);
+        }
+    }
+
+    private void failPending(ClientException error) {
+        List<PendingMessage> droppedMessages = new ArrayList<>();
+        for (BlockingQueue<PendingMessage> queue : pendingMessages) {
+            queue.drainTo(droppedMessages);
+        }
+        if (!droppedMessages.isEmpty()) {
+            logger.warn("Rejecting {} compact message(s) not yet committed", droppedMessages.size());
+        }
+        fail(droppedMessages, error);
+    }
+
+    private static CompactMessageWindow newWindow(PendingMessage pendingMessage, int segment) {
+        DatastoreMessage message = pendingMessage.message;
+        CompactMessageWindow window = new CompactMessageWindow();
+        window.setId(CompactMessageWindow.getSegmentId(pendingMessage.windowId, segment));
+        window.setSegment(segment);
+        window.setScopeId(message.getScopeId());
+        window.setDeviceId(message.getDeviceId());
+        window.setClientId(message.getClientId());
+        window.setChannel(message.getChannel().toString());
+        window.setChannelParts(message.getChannel().getSemanticParts());
+        window.setWindowStart(new Date(pendingMessage.windowStart));
+        return window;
+    }
+
+    /**
+     * Message waiting for the commit
+     */
+    static class PendingMessage {
+
+        private final String windowId;
+        private final long windowStart;
+        private final String indexName;
+        private final DatastoreMessage message;
+        private final String messageKey;
+        // completed with the identifier of the window segment storing the message
+        private final CompletableFuture<String> result = new CompletableFuture<>();
+
+        PendingMessage(String windowId, long windowStart, String indexName, DatastoreMessage message, String messageKey) {
+            this.windowId = windowId;
+            this.windowStart = windowStart;
+            this.indexName = indexName;
+            this.message = message;
+            this.messageKey = messageKey;
+        }
+
+        String getWindowId() {
+            return windowId;
+        }
+
+        CompletableFuture<String> getResult() {
+            return result;
+        }
+    }
+
+}
@@ -14,6 +14,7 @@ package org.eclipse.kapua.service.datastore.internal.converter;
 import java.io.IOException;
 import java.math.BigInteger;
 import java.text.ParseException;
+import java.util.ArrayList;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.List;
@@ -31,6 +32,7 @@ import org.eclipse.kapua.model.id.KapuaId;
 import org.eclipse.kapua.service.datastore.client.DatamodelMappingException;
 import org.eclipse.kapua.service.datastore.client.ModelContext;
 import org.eclipse.kapua.service.datastore.client.QueryConverter;
+import org.eclipse.kapua.service.datastore.internal.compact.CompactMessageWindow;
 import org.eclipse.kapua.service.datastore.internal.mediator.DatastoreUtils;
 import org.eclipse.kapua.service.datastore.internal.model.ChannelInfoImpl;
 import org.eclipse.kapua.service.datastore.internal.model.ClientInfoImpl;
@@ -39,6 +41,7 @@ import org.eclipse.kapua.service.datastore.internal.model.MetricInfoImpl;
 import org.eclipse.kapua.service.datastore.internal.model.StorableIdImpl;
 import org.eclipse.kapua.service.datastore.internal.schema.ChannelInfoSchema;
 import org.eclipse.kapua.service.datastore.internal.schema.ClientInfoSchema;
+import org.eclipse.kapua.service.datastore.internal.schema.CompactMessageSchema;
 import org.eclipse.kapua.service.datastore.internal.schema.MessageSchema;
 import org.eclipse.kapua.service.datastore.internal.schema.MetricInfoSchema;
 import org.eclipse.kapua.service.datastore.model.ChannelInfo;
@@ -83,6 +86,8 @@ public class ModelContextImpl implements ModelContext {
                 return (T) unmarshalMetricInfo(serializedObject);
             } else if (ChannelInfo.class.isAssignableFrom(clazz)) {
                 return (T) unmarshalChannelInfo(serializedObject);
+            } else if (CompactMessageWindow.class.isAssignableFrom(clazz)) {
+                return (T) unmarshalCompactMessageWindow(serializedObject);
             }
         } catch (IOException | ParseException e) {
             throw new DatamodelMappingException(CONVERSION_ERROR_MSG, e);
@@ -108,6 +113,9 @@ public class ModelContextImpl implements ModelContext {
             if (object instanceof MetricInfo) {
                 return marshalMetricInfo((MetricInfo) object);
             }
+            if (object instanceof CompactMessageWindow) {
+                return marshalCompactMessageWindow((CompactMessageWindow) object);
+            }
         } catch (ParseException e) {
             throw new DatamodelMappingException(DATE_CONVERSION_ERROR_MSG, e);
         }
@@ -288,6 +296,50 @@ public class ModelContextImpl implements ModelContext {
         return clientInfo;
     }
 
+    @SuppressWarnings("unchecked")
+    private CompactMessageWindow unmarshalCompactMessageWindow(Map<String, Object> windowMap) throws ParseException {
+        CompactMessageWindow window = new CompactMessageWindow();
+        window.setId((String) windowMap.get(ModelContext.DATASTORE_ID_KEY));
+        window.setScopeId(new KapuaEid(new BigInteger((String) windowMap.get(MessageSchema.MESSAGE_SCOPE_ID))));
+        String deviceIdStr = (String) windowMap.get(MessageSchema.MESSAGE_DEVICE_ID);
+        if (deviceIdStr != null) {
+            window.setDeviceId(new KapuaEid(new BigInteger(deviceIdStr)));
+        }
+        window.setClientId((String) windowMap.get(MessageSchema.MESSAGE_CLIENT_ID));
+        window.setChannel((String) windowMap.get(MessageSchema.MESSAGE_CHANNEL));
+        window.setChannelParts((List<String>) windowMap.get(MessageSchema.MESSAGE_CHANNEL_PARTS));
+        window.setWindowStart(KapuaDateUtils.parseDate((String) windowMap.get(CompactMessageSchema.COMPACT_MESSAGE_WINDOW_START)));
+        Number segment = (Number) windowMap.get(CompactMessageSchema.COMPACT_MESSAGE_SEGMENT);
+        window.setSegment(segment != null ? segment.intValue() : 0);
+        List<String> messageIds = (List<String>) windowMap.get(CompactMessageSchema.COMPACT_MESSAGE_IDS);
+        if (messageIds != null) {
+            window.getMessageIds().addAll(messageIds);
+        }
+        unmarshalDates((List<String>) windowMap.get(MessageSchema.MESSAGE_TIMESTAMP), window.getTimestamps());
+        unmarshalDates((List<String>) windowMap.get(MessageSchema.MESSAGE_RECEIVED_ON), window.getReceivedOn());
+        unmarshalDates((List<String>) windowMap.get(MessageSchema.MESSAGE_CAPTURED_ON), window.getCapturedOn());
+        unmarshalDates((List<String>) windowMap.get(MessageSchema.MESSAGE_SENT_ON), window.getSentOn());
+        Map<String, Object> metrics = (Map<String, Object>) windowMap.get(MessageSchema.MESSAGE_METRICS);
+        if (metrics != null) {
+            for (Map.Entry<String, Object> metric : metrics.entrySet()) {
+                Map<String, List<Object>> typedValues = new HashMap<>();
+                for (Map.Entry<String, Object> values : ((Map<String, Object>) metric.getValue()).entrySet()) {
+                    typedValues.put(values.getKey(), new ArrayList<>((List<Object>) values.getValue()));
+                }
+                window.getMetrics().put(metric.getKey(), typedValues);
+            }
+        }
+        return window;
+    }
+
+    private void unmarshalDates(List<String> serializedDates, List<Date> dates) throws ParseException {
+        if (serializedDates != null) {
+            for (String date : serializedDates) {
+                dates.add(KapuaDateUtils.parseDate(date));
+            }
+        }
+    }
+
     /*
      * 
      * marshal section
@@ -390,6 +442,32 @@ public class ModelContextImpl implements ModelContext {
         return unmarshalledMetricInfo;
     }
 
+    private Map<String, Object> marshalCompactMessageWindow(CompactMessageWindow window) throws ParseException {
+        Map<String, Object> unmarshalledWindow = new HashMap<>();
+        unmarshalledWindow.put(MessageSchema.MESSAGE_SCOPE_ID, window.getScopeId().toStringId());
+        unmarshalledWindow.put(MessageSchema.MESSAGE_DEVICE_ID, window.getDeviceId() == null ? null : window.getDeviceId().toStringId());
+        unmarshalledWindow.put(MessageSchema.MESSAGE_CLIENT_ID, window.getClientId());
+        unmarshalledWindow.put(MessageSchema.MESSAGE_CHANNEL, window.getChannel());
+        unmarshalledWindow.put(MessageSchema.MESSAGE_CHANNEL_PARTS, window.getChannelParts());
+        unmarshalledWindow.put(CompactMessageSchema.COMPACT_MESSAGE_WINDOW_START, KapuaDateUtils.formatDate(window.getWindowStart()));
+        unmarshalledWindow.put(CompactMessageSchema.COMPACT_MESSAGE_SEGMENT, window.getSegment());
+        unmarshalledWindow.put(CompactMessageSchema.COMPACT_MESSAGE_IDS, window.getMessageIds());
+        unmarshalledWindow.put(MessageSchema.MESSAGE_TIMESTAMP, marshalDates(window.getTimestamps()));
+        unmarshalledWindow.put(MessageSchema.MESSAGE_RECEIVED_ON, marshalDates(window.getReceivedOn()));
+        unmarshalledWindow.put(MessageSchema.MESSAGE_CAPTURED_ON, marshalDates(window.getCapturedOn()));
+        unmarshalledWindow.put(MessageSchema.MESSAGE_SENT_ON, marshalDates(window.getSentOn()));
+        unmarshalledWindow.put(MessageSchema.MESSAGE_METRICS, window.getMetrics());
+        return unmarshalledWindow;
+    }
+
+    private List<String> marshalDates(List<Date> dates) throws ParseException {
+        List<String> serializedDates = new ArrayList<>(dates.size());
+        for (Date date : dates) {
+            serializedDates.add(KapuaDateUtils.formatDate(date));
+        }
+        return serializedDates;
+    }
+
     private StorableFetchStyle getStorableFetchStyle(Map<String, Object> objectMap) {
         Object storableFetchStyle = objectMap.get(QueryConverter.QUERY_FETCH_STYLE_KEY);
         if (storableFetchStyle instanceof StorableFetchStyle) {
@@ -0,0 +1,151 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Eurotech and/or its affiliates and others
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Eurotech - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.kapua.service.datastore.internal.health;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Adaptive limit of the concurrent store operations.<br>
+ * The limit follows an additive increase/multiplicative decrease policy: it grows by one every "limit" operations completed under the latency target
+ * and it is reduced by the decrease ratio every time an operation fails or exceeds the latency target.
+ *
+ * @since 1.0
+ */
+public class AdaptiveConcurrencyLimiter {
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition permitReleased = lock.newCondition();
+
+    private final int minLimit;
+    private final int maxLimit;
+    private final long latencyTargetNanos;
+    private final double decreaseRatio;
+
+    private double limit;
+    private int inFlight;
+
+    /**
+     * Constructs the limiter. The initial limit is the maximum limit.
+     *
+     * @param minLimit
+     *            the lowest allowed limit
+     * @param maxLimit
+     *            the highest allowed limit
+     * @param latencyTargetMillis
+     *            the operation duration under which the limit is increased
+     * @param decreaseRatio
+     *            the ratio (between 0 and 1) applied to the limit on a failed or slow operation
+     */
+    public AdaptiveConcurrencyLimiter(int minLimit, int maxLimit, long latencyTargetMillis, double decreaseRatio) {
+        if (minLimit <= 0 || maxLimit < minLimit) {
+            throw new IllegalArgumentException("Concurrency limits must satisfy 0 < min <= max");
+        }
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.latencyTargetNanos = latencyTargetMillis * 1000000L;
+        this.decreaseRatio = decreaseRatio;
+        limit = maxLimit;
+    }
+
+    /**
+     * Acquire a permit waiting, at most, the provided timeout
+     *
+     * @param timeout
+     * @param unit
+     * @return true if the permit is acquired. In that case {@link #release(long, boolean)} or {@link #cancel()} must be called once the operation is completed.
+     * @throws InterruptedException
+     */
+    public boolean tryAcquire(long timeout, TimeUnit unit) throws InterruptedException {
+        long remaining = unit.toNanos(timeout);
+        lock.lock();
+        try {
+            while (inFlight >= (int) limit) {
+                if (remaining <= 0) {
+                    return false;
+                }
+                remaining = permitReleased.awaitNanos(remaining);
+            }
+            inFlight++;
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Release a permit and adapt the limit with the operation outcome
+     *
+     * @param elapsedNanos
+     *            operation duration
+     * @param succeeded
+     *            operation outcome
+     */
+    public void release(long elapsedNanos, boolean succeeded) {
+        lock.lock();
+        try {
+            inFlight--;
+            if (succeeded && elapsedNanos <= latencyTargetNanos) {
+                limit = Math.min(maxLimit, limit + 1 / limit);
+            } else {
+                limit = Math.max(minLimit, limit * decreaseRatio);
+            }
+            permitReleased.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Release a permit without adapting the limit.<br>
+     * To be used when the operation did not measure the datastore (e.g. it was rejected by the open circuit breaker).
+     */
+    public void cancel() {
+        lock.lock();
+        try {
+            inFlight--;
+            permitReleased.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Get the current concurrency limit
+     *
+     * @return
+     */
+    public int getLimit() {
+        lock.lock();
+        try {
+            return (int) limit;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Get the number of operations currently holding a permit
+     *
+     * @return
+     */
+    public int getInFlight() {
+        lock.lock();
+        try {
+            return inFlight;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+}
@@ -0,0 +1,259 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Eurotech and/or its affiliates and others
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Eurotech - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.kapua.service.datastore.internal.health;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Circuit breaker guarding the calls from the message store to Elasticsearch.<br>
+ * The outcomes of the last store operations are kept in a fixed size sliding window. When the rate of failed (or slow) operations
+ * reaches the configured threshold the circuit is opened and the store operations are rejected without reaching Elasticsearch.<br>
+ * After the open interval the circuit moves to the half open state and lets a limited number of probe operations through: if all of them succeed the circuit
+ * is closed again, otherwise it is opened for another interval.
+ *
+ * @since 1.0
+ */
+public class DatastoreCircuitBreaker {
+
+    private static final Logger logger = LoggerFactory.getLogger(DatastoreCircuitBreaker.class);
+
+    /**
+     * Circuit breaker states
+     *
+     * @since 1.0
+     */
+    public enum State {
+        /**
+         * Store operations are allowed
+         */
+        CLOSED,
+        /**
+         * Store operations are rejected
+         */
+        OPEN,
+        /**
+         * A limited number of probe store operations are allowed
+         */
+        HALF_OPEN
+    }
+
+    private final int minimumCalls;
+    private final double failureRateThreshold;
+    private final long slowCallThresholdNanos;
+    private final long openIntervalMillis;
+    private final int halfOpenProbes;
+
+    // sliding window (true = failed or slow call)
+    private final boolean[] window;
+    private int windowPosition;
+    private int windowCount;
+    private int windowFailures;
+
+    private State state = State.CLOSED;
+    private long openedOn;
+    private int halfOpenInFlight;
+    private int halfOpenSucceeded;
+    private long tripCount;
+
+    /**
+     * Constructs the circuit breaker
+     *
+     * @param windowSize
+     *            number of outcomes kept in the sliding window
+     * @param minimumCalls
+     *            minimum number of outcomes in the window before evaluating the failure rate
+     * @param failureRateThreshold
+     *            failure rate (between 0 and 1) that opens the circuit
+     * @param slowCallThresholdMillis
+     *            duration over which a successful call is considered as failed
+     * @param openIntervalMillis
+     *            time the circuit stays open before moving to the half open state
+     * @param halfOpenProbes
+     *            number of successful probes needed to close the circuit
+     */
+    public DatastoreCircuitBreaker(int windowSize, int minimumCalls, double failureRateThreshold, long slowCallThresholdMillis, long openIntervalMillis, int halfOpenProbes) {
+        if (windowSize <= 0) {
+            throw new IllegalArgumentException("Window size must be greater than 0");
+        }
+        window = new boolean[windowSize];
+        this.minimumCalls = Math.min(Math.max(minimumCalls, 1), windowSize);
+        this.failureRateThreshold = failureRateThreshold;
+        this.slowCallThresholdNanos = slowCallThresholdMillis * 1000000L;
+        this.openIntervalMillis = openIntervalMillis;
+        this.halfOpenProbes = Math.max(halfOpenProbes, 1);
+    }
+
+    /**
+     * Check if a store operation can be performed.<br>
+     * Every allowed operation must be followed by a call to {@link #onSuccess(long)}, {@link #onError(long)} or {@link #onAborted()}.
+     *
+     * @return true if the operation is allowed
+     */
+    public synchronized boolean allowRequest() {
+        switch (state) {
+        case CLOSED:
+            return true;
+        case OPEN:
+            if (System.currentTimeMillis() - openedOn < openIntervalMillis) {
+                return false;
+            }
+            logger.info("Datastore circuit breaker is half open. Allowing {} probe operation(s)", halfOpenProbes);
+            state = State.HALF_OPEN;
+            halfOpenInFlight = 0;
+            halfOpenSucceeded = 0;
+            // fall through the half open check
+        case HALF_OPEN:
+        default:
+            if (halfOpenInFlight + halfOpenSucceeded < halfOpenProbes) {
+                halfOpenInFlight++;
+                return true;
+            }
+            return false;
+        }
+    }
+
+    /**
+     * Record a completed store operation
+     *
+     * @param elapsedNanos
+     *            operation duration
+     */
+    public synchronized void onSuccess(long elapsedNanos) {
+        if (elapsedNanos > slowCallThresholdNanos) {
+            onError(elapsedNanos);
+            return;
+        }
+        if (state == State.HALF_OPEN) {
+            halfOpenInFlight = Math.max(halfOpenInFlight - 1, 0);
+            if (++halfOpenSucceeded >= halfOpenProbes) {
+                logger.info("Datastore circuit breaker closed");
+                state = State.CLOSED;
+                resetWindow();
+            }
+        } else if (state == State.CLOSED) {
+            record(false);
+        }
+    }
+
+    /**
+     * Record a failed store operation
+     *
+     * @param elapsedNanos
+     *            operation duration
+     */
+    public synchronized void onError(long elapsedNanos) {
+        if (state == State.HALF_OPEN) {
+            trip();
+        } else if (state == State.CLOSED) {
+            record(true);
+            if (windowCount >= minimumCalls && getFailureRate() >= failureRateThreshold) {
+                trip();
+            }
+        }
+    }
+
+    /**
+     * Record a store operation that ended without a meaningful outcome (e.g. rejected by a validation before reaching Elasticsearch).<br>
+     * The operation is not recorded in the sliding window, it only frees its half open probe slot.
+     */
+    public synchronized void onAborted() {
+        if (state == State.HALF_OPEN) {
+            halfOpenInFlight = Math.max(halfOpenInFlight - 1, 0);
+        }
+    }
+
+    /**
+     * Wait until the circuit breaker lets store operations through or the timeout expires
+     *
+     * @param timeoutMillis
+     * @return true if the circuit is no longer open
+     * @throws InterruptedException
+     */
+    public boolean awaitNotOpen(long timeoutMillis) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + timeoutMillis;
+        long remaining;
+        while ((remaining = deadline - System.currentTimeMillis()) > 0) {
+            long openRemaining;
+            synchronized (this) {
+                if (state != State.OPEN) {
+                    return true;
+                }
+                openRemaining = openIntervalMillis - (System.currentTimeMillis() - openedOn);
+                if (openRemaining <= 0) {
+                    return true;
+                }
+            }
+            Thread.sleep(Math.min(remaining, openRemaining));
+        }
+        return getState() != State.OPEN;
+    }
+
+    /**
+     * Get the current state
+     *
+     * @return
+     */
+    public synchronized State getState() {
+        return state;
+    }
+
+    /**
+     * Get the failure rate (between 0 and 1) of the operations in the sliding window
+     *
+     * @return
+     */
+    public synchronized double getFailureRate() {
+        return windowCount > 0 ? (double) windowFailures / windowCount : 0;
+    }
+
+    /**
+     * Get how many times the circuit has been opened
+     *
+     * @return
+     */
+    public synchronized long getTripCount() {
+        return tripCount;
+    }
+
+    private void record(boolean failed) {
+        if (windowCount == window.length) {
+            if (window[windowPosition]) {
+                windowFailures--;
+            }
+        } else {
+            windowCount++;
+        }
+        window[windowPosition] = failed;
+        if (failed) {
+            windowFailures++;
+        }
+        windowPosition = (windowPosition + 1) % window.length;
+    }
+
+    private void trip() {
+        logger.warn("Datastore circuit breaker opened (failure rate {}). Store operations will be rejected for {} ms", getFailureRate(), openIntervalMillis);
+        state = State.OPEN;
+        openedOn = System.currentTimeMillis();
+        halfOpenInFlight = 0;
+        halfOpenSucceeded = 0;
+        tripCount++;
+        resetWindow();
+    }
+
+    private void resetWindow() {
+        windowPosition = 0;
+        windowCount = 0;
+        windowFailures = 0;
+    }
+
+}
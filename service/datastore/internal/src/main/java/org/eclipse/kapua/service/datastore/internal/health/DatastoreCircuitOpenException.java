@@ -0,0 +1,35 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Eurotech and/or its affiliates and others
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Eurotech - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.kapua.service.datastore.internal.health;
+
+import org.eclipse.kapua.service.datastore.client.ClientCommunicationException;
+
+/**
+ * Store operation rejected without reaching Elasticsearch because the {@link DatastoreCircuitBreaker} is open.<br>
+ * The rejection says nothing about the Elasticsearch latency, so it must not be reported to the {@link AdaptiveConcurrencyLimiter}.
+ *
+ * @since 1.0
+ */
+public class DatastoreCircuitOpenException extends ClientCommunicationException {
+
+    private static final long serialVersionUID = -2475290934839436342L;
+
+    /**
+     * Construct the exception with the provided message
+     *
+     * @param message
+     */
+    public DatastoreCircuitOpenException(String message) {
+        super(message, null);
+    }
+
+}
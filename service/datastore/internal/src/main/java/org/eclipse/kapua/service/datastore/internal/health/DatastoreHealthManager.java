@@ -0,0 +1,205 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Eurotech and/or its affiliates and others
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Eurotech - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.kapua.service.datastore.internal.health;
+
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Timer;
+import org.eclipse.kapua.KapuaException;
+import org.eclipse.kapua.commons.metric.MetricServiceFactory;
+import org.eclipse.kapua.commons.metric.MetricsService;
+import org.eclipse.kapua.service.datastore.internal.setting.DatastoreSettingKey;
+import org.eclipse.kapua.service.datastore.internal.setting.DatastoreSettings;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Datastore health and backpressure manager.<br>
+ * It keeps the {@link DatastoreCircuitBreaker} tracking the Elasticsearch latency and error rate and the {@link AdaptiveConcurrencyLimiter} used by the broker
+ * consumers to reduce the concurrent store operations while Elasticsearch is slowing down.<br>
+ * The state of both is exposed through the {@link MetricsService}.
+ *
+ * @since 1.0
+ */
+public class DatastoreHealthManager {
+
+    private static final Logger logger = LoggerFactory.getLogger(DatastoreHealthManager.class);
+
+    private static final String METRIC_COMPONENT_NAME = "datastore";
+
+    private static final DatastoreHealthManager INSTANCE = new DatastoreHealthManager();
+
+    private final boolean enabled;
+    private final long acquireTimeout;
+    private final DatastoreCircuitBreaker circuitBreaker;
+    private final AdaptiveConcurrencyLimiter concurrencyLimiter;
+
+    private final Timer metricStoreTime;
+    private final Counter metricCircuitRejectedCount;
+    private final Counter metricBackpressureDivertedCount;
+
+    private DatastoreHealthManager() {
+        DatastoreSettings config = DatastoreSettings.getInstance();
+        enabled = config.getBoolean(DatastoreSettingKey.CIRCUIT_BREAKER_ENABLED, true);
+        acquireTimeout = config.getLong(DatastoreSettingKey.BACKPRESSURE_ACQUIRE_TIMEOUT, 500);
+        circuitBreaker = new DatastoreCircuitBreaker(
+                config.getInt(DatastoreSettingKey.CIRCUIT_BREAKER_WINDOW_SIZE, 100),
+                config.getInt(DatastoreSettingKey.CIRCUIT_BREAKER_MINIMUM_CALLS, 20),
+                config.getDouble(DatastoreSettingKey.CIRCUIT_BREAKER_FAILURE_RATE_THRESHOLD, 0.5),
+                config.getLong(DatastoreSettingKey.CIRCUIT_BREAKER_SLOW_CALL_THRESHOLD, 5000),
+                config.getLong(DatastoreSettingKey.CIRCUIT_BREAKER_OPEN_INTERVAL, 30000),
+                config.getInt(DatastoreSettingKey.CIRCUIT_BREAKER_HALF_OPEN_PROBES, 5));
+        concurrencyLimiter = new AdaptiveConcurrencyLimiter(
+                config.getInt(DatastoreSettingKey.BACKPRESSURE_CONCURRENCY_MIN, 2),
+                config.getInt(DatastoreSettingKey.BACKPRESSURE_CONCURRENCY_MAX, 50),
+                config.getLong(DatastoreSettingKey.BACKPRESSURE_LATENCY_TARGET, 1000),
+                config.getDouble(DatastoreSettingKey.BACKPRESSURE_DECREASE_RATIO, 0.75));
+
+        MetricsService metricService = MetricServiceFactory.getInstance();
+        metricStoreTime = metricService.getTimer(METRIC_COMPONENT_NAME, "health", "store", "time", "s");
+        metricCircuitRejectedCount = metricService.getCounter(METRIC_COMPONENT_NAME, "health", "circuit", "rejected", "count");
+        metricBackpressureDivertedCount = metricService.getCounter(METRIC_COMPONENT_NAME, "health", "backpressure", "diverted", "count");
+        try {
+            metricService.registerGauge((Gauge<Integer>) () -> circuitBreaker.getState().ordinal(), METRIC_COMPONENT_NAME, "health", "circuit", "state");
+            metricService.registerGauge((Gauge<Double>) circuitBreaker::getFailureRate, METRIC_COMPONENT_NAME, "health", "circuit", "failure_rate");
+            metricService.registerGauge((Gauge<Long>) circuitBreaker::getTripCount, METRIC_COMPONENT_NAME, "health", "circuit", "trip", "count");
+            metricService.registerGauge((Gauge<Integer>) concurrencyLimiter::getLimit, METRIC_COMPONENT_NAME, "health", "backpressure", "limit");
+            metricService.registerGauge((Gauge<Integer>) concurrencyLimiter::getInFlight, METRIC_COMPONENT_NAME, "health", "backpressure", "in_flight");
+        } catch (KapuaException e) {
+            logger.warn("Cannot register datastore health gauges", e);
+        }
+    }
+
+    /**
+     * Get the datastore health manager instance
+     *
+     * @return
+     */
+    public static DatastoreHealthManager getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Check if a store operation can reach Elasticsearch.<br>
+     * If the operation is allowed, its outcome must be reported through {@link #onStoreSuccess(long)}, {@link #onStoreError(long)} or {@link #onStoreAborted()}.
+     *
+     * @return false if the circuit breaker is open
+     */
+    public boolean isStoreAllowed() {
+        if (!enabled || circuitBreaker.allowRequest()) {
+            return true;
+        }
+        metricCircuitRejectedCount.inc();
+        return false;
+    }
+
+    /**
+     * Report a successful store operation
+     *
+     * @param elapsedNanos
+     */
+    public void onStoreSuccess(long elapsedNanos) {
+        metricStoreTime.update(elapsedNanos, TimeUnit.NANOSECONDS);
+        if (enabled) {
+            circuitBreaker.onSuccess(elapsedNanos);
+        }
+    }
+
+    /**
+     * Report a store operation failed because of an Elasticsearch communication error
+     *
+     * @param elapsedNanos
+     */
+    public void onStoreError(long elapsedNanos) {
+        metricStoreTime.update(elapsedNanos, TimeUnit.NANOSECONDS);
+        if (enabled) {
+            circuitBreaker.onError(elapsedNanos);
+        }
+    }
+
+    /**
+     * Report a store operation failed for a reason not related to Elasticsearch communication (e.g. a validation error)
+     */
+    public void onStoreAborted() {
+        if (enabled) {
+            circuitBreaker.onAborted();
+        }
+    }
+
+    /**
+     * Acquire a store permit from the adaptive concurrency limiter, waiting at most the configured acquire timeout.<br>
+     * If the permit is acquired it must be released through {@link #releaseStorePermit(long, boolean)} or {@link #cancelStorePermit()}.
+     *
+     * @return false if no permit is available (the caller should divert the message)
+     * @throws InterruptedException
+     */
+    public boolean acquireStorePermit() throws InterruptedException {
+        if (!enabled || concurrencyLimiter.tryAcquire(acquireTimeout, TimeUnit.MILLISECONDS)) {
+            return true;
+        }
+        metricBackpressureDivertedCount.inc();
+        return false;
+    }
+
+    /**
+     * Release a store permit previously acquired with {@link #acquireStorePermit()}
+     *
+     * @param elapsedNanos
+     * @param succeeded
+     */
+    public void releaseStorePermit(long elapsedNanos, boolean succeeded) {
+        if (enabled) {
+            concurrencyLimiter.release(elapsedNanos, succeeded);
+        }
+    }
+
+    /**
+     * Release a store permit previously acquired with {@link #acquireStorePermit()} without adapting the concurrency limit
+     */
+    public void cancelStorePermit() {
+        if (enabled) {
+            concurrencyLimiter.cancel();
+        }
+    }
+
+    /**
+     * Wait until the circuit breaker is no longer open or the timeout expires
+     *
+     * @param timeoutMillis
+     * @return true if the circuit breaker is no longer open
+     * @throws InterruptedException
+     */
+    public boolean awaitStoreAvailable(long timeoutMillis) throws InterruptedException {
+        return !enabled || circuitBreaker.awaitNotOpen(timeoutMillis);
+    }
+
+    /**
+     * Get the circuit breaker
+     *
+     * @return
+     */
+    public DatastoreCircuitBreaker getCircuitBreaker() {
+        return circuitBreaker;
+    }
+
+    /**
+     * Get the adaptive concurrency limiter
+     *
+     * @return
+     */
+    public AdaptiveConcurrencyLimiter getConcurrencyLimiter() {
+        return concurrencyLimiter;
+    }
+
+}
@@ -0,0 +1,239 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Eurotech and/or its affiliates and others
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Eurotech - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.kapua.service.datastore.internal.journal;
+
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.Gauge;
+import org.eclipse.kapua.KapuaException;
+import org.eclipse.kapua.commons.metric.MetricServiceFactory;
+import org.eclipse.kapua.commons.metric.MetricsService;
+import org.eclipse.kapua.service.datastore.client.ClientCommunicationException;
+import org.eclipse.kapua.service.datastore.client.ClientException;
+import org.eclipse.kapua.service.datastore.client.model.InsertRequest;
+import org.eclipse.kapua.service.datastore.internal.MessageStoreFacade;
+import org.eclipse.kapua.service.datastore.internal.converter.ModelContextImpl;
+import org.eclipse.kapua.service.datastore.internal.health.DatastoreHealthManager;
+import org.eclipse.kapua.service.datastore.internal.setting.DatastoreSettingKey;
+import org.eclipse.kapua.service.datastore.internal.setting.DatastoreSettings;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Datastore spill manager.<br>
+ * While Elasticsearch is unavailable the messages, already converted to {@link InsertRequest}, are appended to a local {@link SpillJournal} instead of
+ * being held by the broker queues.<br>
+ * A background task replays the journal to Elasticsearch, with bulk operations, as soon as the {@link DatastoreHealthManager} circuit breaker lets the
+ * store operations through.
+ *
+ * @since 1.0
+ */
+public class DatastoreSpillManager {
+
+    private static final Logger logger = LoggerFactory.getLogger(DatastoreSpillManager.class);
+
+    private static final String METRIC_COMPONENT_NAME = "datastore";
+
+    private static final Set<DatastoreSpillManager> STARTED = new CopyOnWriteArraySet<>();
+
+    private final SpillJournal journal;
+    private final InsertRequestCodec codec;
+    private final MessageStoreFacade messageStoreFacade;
+    private final DatastoreHealthManager healthManager;
+    private final int replayBatchSize;
+    private final ScheduledExecutorService replayExecutor;
+
+    private final Counter metricSpilledCount;
+    private final Counter metricSpillRejectedCount;
+    private final Counter metricReplayedCount;
+    private final Counter metricDiscardedCount;
+
+    /**
+     * Constructs the spill manager
+     *
+     * @param journal
+     * @param codec
+     * @param messageStoreFacade
+     * @param healthManager
+     * @param replayBatchSize
+     */
+    public DatastoreSpillManager(SpillJournal journal, InsertRequestCodec codec, MessageStoreFacade messageStoreFacade, DatastoreHealthManager healthManager, int replayBatchSize) {
+        this.journal = journal;
+        this.codec = codec;
+        this.messageStoreFacade = messageStoreFacade;
+        this.healthManager = healthManager;
+        this.replayBatchSize = replayBatchSize;
+        replayExecutor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "datastore-spill-replay");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        MetricsService metricService = MetricServiceFactory.getInstance();
+        metricSpilledCount = metricService.getCounter(METRIC_COMPONENT_NAME, "journal", "spilled", "count");
+        metricSpillRejectedCount = metricService.getCounter(METRIC_COMPONENT_NAME, "journal", "rejected", "count");
+        metricReplayedCount = metricService.getCounter(METRIC_COMPONENT_NAME, "journal", "replayed", "count");
+        metricDiscardedCount = metricService.getCounter(METRIC_COMPONENT_NAME, "journal", "discarded", "count");
+        try {
+            metricService.registerGauge((Gauge<Integer>) journal::getSegmentCount, METRIC_COMPONENT_NAME, "journal", "segments");
+        } catch (KapuaException e) {
+            logger.warn("Cannot register datastore journal gauge", e);
+        }
+    }
+
+    /**
+     * Create and start the spill manager, if enabled by {@link DatastoreSettingKey#SPILL_JOURNAL_ENABLED}
+     *
+     * @param messageStoreFacade
+     * @return the spill manager or null if the spill journal is disabled or cannot be opened
+     */
+    public static DatastoreSpillManager newInstance(MessageStoreFacade messageStoreFacade) {
+        DatastoreSettings config = DatastoreSettings.getInstance();
+        if (!config.getBoolean(DatastoreSettingKey.SPILL_JOURNAL_ENABLED, false)) {
+            return null;
+        }
+        String directory = config.getString(DatastoreSettingKey.SPILL_JOURNAL_DIRECTORY, Paths.get(System.getProperty("java.io.tmpdir"), "kapua-datastore-journal").toString());
+        try {
+            SpillJournal journal = new SpillJournal(Paths.get(directory),
+                    config.getInt(DatastoreSettingKey.SPILL_JOURNAL_SEGMENT_SIZE, 64 * 1024 * 1024),
+                    config.getInt(DatastoreSettingKey.SPILL_JOURNAL_MAX_SEGMENTS, 64));
+            DatastoreSpillManager spillManager = new DatastoreSpillManager(journal,
+                    new InsertRequestCodec(new ModelContextImpl()),
+                    messageStoreFacade,
+                    DatastoreHealthManager.getInstance(),
+                    config.getInt(DatastoreSettingKey.SPILL_JOURNAL_REPLAY_BATCH_SIZE, 500));
+            spillManager.start(config.getLong(DatastoreSettingKey.SPILL_JOURNAL_REPLAY_INTERVAL, 5000));
+            logger.info("Datastore spill journal enabled on {}", directory);
+            return spillManager;
+        } catch (IOException e) {
+            logger.error("Cannot open the datastore spill journal on {}. The spill journal will be disabled", directory, e);
+            return null;
+        }
+    }
+
+    /**
+     * Append the insert request to the journal
+     *
+     * @param insertRequest
+     * @return false if the request cannot be spilled (journal full or not writable)
+     */
+    public boolean spill(InsertRequest insertRequest) {
+        try {
+            if (journal.append(codec.encode(insertRequest))) {
+                metricSpilledCount.inc();
+                return true;
+            }
+            logger.warn("Datastore spill journal is full. Message '{}' not spilled", insertRequest.getId());
+        } catch (IOException | ClientException | IllegalArgumentException e) {
+            logger.error("Cannot spill message '{}'", insertRequest.getId(), e);
+        }
+        metricSpillRejectedCount.inc();
+        return false;
+    }
+
+    /**
+     * Start the replay task
+     *
+     * @param replayInterval
+     *            interval (in milliseconds) between the replay checks
+     */
+    public void start(long replayInterval) {
+        replayExecutor.scheduleWithFixedDelay(this::replay, replayInterval, replayInterval, TimeUnit.MILLISECONDS);
+        STARTED.add(this);
+    }
+
+    /**
+     * Stop the replay task, flush the journal and release its segments
+     */
+    public void stop() {
+        STARTED.remove(this);
+        replayExecutor.shutdownNow();
+        try {
+            if (!replayExecutor.awaitTermination(10, TimeUnit.SECONDS)) {
+                logger.warn("Journal replay still running. The journal will be closed anyway");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        journal.close();
+    }
+
+    /**
+     * Stop every started spill manager
+     */
+    public static void stopAll() {
+        for (DatastoreSpillManager spillManager : STARTED) {
+            spillManager.stop();
+        }
+    }
+
+    /**
+     * Replay the journal while the datastore is available
+     */
+    void replay() {
+        try {
+            journal.force();
+            while (!journal.isEmpty() && healthManager.isStoreAllowed()) {
+                SpillJournal.Batch batch = journal.read(replayBatchSize);
+                List<InsertRequest> insertRequests = new ArrayList<>(batch.getRecords().size());
+                for (byte[] record : batch.getRecords()) {
+                    try {
+                        insertRequests.add(codec.decode(record));
+                    } catch (ClientException e) {
+                        logger.error("Cannot decode a journal record. The record will be skipped", e);
+                    }
+                }
+                long start = System.nanoTime();
+                Map<String, String> rejected = Collections.emptyMap();
+                try {
+                    if (!insertRequests.isEmpty()) {
+                        rejected = messageStoreFacade.storeSpilled(insertRequests);
+                    }
+                    healthManager.onStoreSuccess(System.nanoTime() - start);
+                } catch (ClientCommunicationException e) {
+                    healthManager.onStoreError(System.nanoTime() - start);
+                    logger.warn("Datastore still unavailable. Journal replay postponed");
+                    return;
+                } catch (KapuaException e) {
+                    // the datastore is reachable but refused the whole batch: retrying it would stop the replay forever
+                    healthManager.onStoreAborted();
+                    logger.error("Cannot store {} message(s) from the journal. The messages will be discarded", insertRequests.size(), e);
+                    journal.commit(batch);
+                    metricDiscardedCount.inc(insertRequests.size());
+                    continue;
+                }
+                // the messages rejected one by one (e.g. mapping errors) would be rejected again: only those are discarded
+                for (Map.Entry<String, String> rejection : rejected.entrySet()) {
+                    logger.error("Message '{}' from the journal rejected by the datastore and discarded: {}", rejection.getKey(), rejection.getValue());
+                }
+                journal.commit(batch);
+                metricDiscardedCount.inc(rejected.size());
+                metricReplayedCount.inc(insertRequests.size() - rejected.size());
+                logger.debug("Replayed {} message(s) from the journal", insertRequests.size() - rejected.size());
+            }
+        } catch (Exception e) {
+            logger.error("Journal replay failed", e);
+        }
+    }
+
+}
@@ -0,0 +1,36 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Eurotech and/or its affiliates and others
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Eurotech - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.kapua.service.datastore.internal.journal;
+
+import org.eclipse.kapua.KapuaException;
+import org.eclipse.kapua.commons.core.ServiceModule;
+import org.eclipse.kapua.locator.KapuaProvider;
+
+/**
+ * {@link ServiceModule} that stops the {@link DatastoreSpillManager}s on shutdown, so the journal is flushed and its segments unmapped.<br>
+ * The spill managers are started by the message store service that owns them.
+ *
+ * @since 1.0
+ */
+@KapuaProvider
+public class DatastoreSpillModule implements ServiceModule {
+
+    @Override
+    public void start() throws KapuaException {
+        // started together with the message store service
+    }
+
+    @Override
+    public void stop() throws KapuaException {
+        DatastoreSpillManager.stopAll();
+    }
+}
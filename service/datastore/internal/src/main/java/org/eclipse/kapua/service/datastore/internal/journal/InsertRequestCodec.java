@@ -0,0 +1,100 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Eurotech and/or its affiliates and others
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Eurotech - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.kapua.service.datastore.internal.journal;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.eclipse.kapua.service.datastore.client.ClientErrorCodes;
+import org.eclipse.kapua.service.datastore.client.ClientException;
+import org.eclipse.kapua.service.datastore.client.ModelContext;
+import org.eclipse.kapua.service.datastore.client.QueryConverter;
+import org.eclipse.kapua.service.datastore.client.model.InsertRequest;
+import org.eclipse.kapua.service.datastore.client.model.TypeDescriptor;
+import org.eclipse.kapua.service.datastore.model.DatastoreMessage;
+import org.eclipse.kapua.service.datastore.model.query.StorableFetchStyle;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Converts the message {@link InsertRequest} from/to the journal records.<br>
+ * The message is stored as the same document sent to the datastore, so it is converted back with the {@link ModelContext} used to read the datastore documents.
+ *
+ * @since 1.0
+ */
+public class InsertRequestCodec {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private static final String KEY_ID = "id";
+    private static final String KEY_INDEX = "index";
+    private static final String KEY_TYPE = "type";
+    private static final String KEY_DOC = "doc";
+
+    private final ModelContext modelContext;
+
+    /**
+     * Constructs the codec
+     *
+     * @param modelContext
+     */
+    public InsertRequestCodec(ModelContext modelContext) {
+        this.modelContext = modelContext;
+    }
+
+    /**
+     * Convert the insert request to a journal record
+     *
+     * @param insertRequest
+     * @return
+     * @throws ClientException
+     */
+    public byte[] encode(InsertRequest insertRequest) throws ClientException {
+        Map<String, Object> record = new HashMap<>();
+        record.put(KEY_ID, insertRequest.getId());
+        record.put(KEY_INDEX, insertRequest.getTypeDescriptor().getIndex());
+        record.put(KEY_TYPE, insertRequest.getTypeDescriptor().getType());
+        record.put(KEY_DOC, modelContext.marshal(insertRequest.getStorable()));
+        try {
+            return MAPPER.writeValueAsBytes(record);
+        } catch (IOException e) {
+            throw new ClientException(ClientErrorCodes.ACTION_ERROR, e);
+        }
+    }
+
+    /**
+     * Convert the journal record to an insert request
+     *
+     * @param record
+     * @return
+     * @throws ClientException
+     */
+    @SuppressWarnings("unchecked")
+    public InsertRequest decode(byte[] record) throws ClientException {
+        Map<String, Object> recordMap;
+        try {
+            recordMap = MAPPER.readValue(record, new TypeReference<Map<String, Object>>() {
+            });
+        } catch (IOException e) {
+            throw new ClientException(ClientErrorCodes.ACTION_ERROR, e);
+        }
+        String id = (String) recordMap.get(KEY_ID);
+        TypeDescriptor typeDescriptor = new TypeDescriptor((String) recordMap.get(KEY_INDEX), (String) recordMap.get(KEY_TYPE));
+        Map<String, Object> doc = (Map<String, Object>) recordMap.get(KEY_DOC);
+        doc.put(ModelContext.TYPE_DESCRIPTOR_KEY, typeDescriptor);
+        doc.put(ModelContext.DATASTORE_ID_KEY, id);
+        doc.put(QueryConverter.QUERY_FETCH_STYLE_KEY, StorableFetchStyle.SOURCE_FULL);
+        return new InsertRequest(id, typeDescriptor, modelContext.unmarshal(DatastoreMessage.class, doc));
+    }
+
+}
@@ -0,0 +1,381 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Eurotech and/or its affiliates and others
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Eurotech - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.kapua.service.datastore.internal.journal;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.zip.CRC32;
+
+/**
+ * Append only journal made of memory mapped segment files.<br>
+ * Each record is stored as record length, record CRC32 and record bytes. A zero length marks the end of the written records of a segment.<br>
+ * When a record doesn't fit in the current segment a new segment is created. The read position is persisted in a checkpoint file by
+ * {@link #commit(Batch)} and the segments fully behind the read position are deleted.<br>
+ * The journal is not bound to any record format: records are plain byte arrays.
+ *
+ * @since 1.0
+ */
+public class SpillJournal implements Closeable {
+
+    private static final Logger logger = LoggerFactory.getLogger(SpillJournal.class);
+
+    private static final String SEGMENT_SUFFIX = ".journal";
+    private static final String CHECKPOINT_FILE = "checkpoint";
+    private static final String CHECKPOINT_TMP_FILE = "checkpoint.tmp";
+    private static final int RECORD_HEADER_SIZE = 8;
+
+    private final Path directory;
+    private final int segmentSize;
+    private final int maxSegments;
+    private final TreeMap<Long, MappedByteBuffer> segments = new TreeMap<>();
+
+    private long writeSegment;
+    private int writePosition;
+    private long readSegment;
+    private int readPosition;
+
+    /**
+     * Read records batch.<br>
+     * It keeps the journal position following the last record of the batch.
+     *
+     * @since 1.0
+     */
+    public static class Batch {
+
+        private final List<byte[]> records;
+        private final long endSegment;
+        private final int endPosition;
+
+        private Batch(List<byte[]> records, long endSegment, int endPosition) {
+            this.records = records;
+            this.endSegment = endSegment;
+            this.endPosition = endPosition;
+        }
+
+        /**
+         * Get the records of the batch
+         *
+         * @return
+         */
+        public List<byte[]> getRecords() {
+            return records;
+        }
+    }
+
+    /**
+     * Open (or create) the journal in the provided directory, recovering the segments and the read position left by a previous run
+     *
+     * @param directory
+     *            the journal directory
+     * @param segmentSize
+     *            the size (in bytes) of each segment file
+     * @param maxSegments
+     *            the maximum number of segment files
+     * @throws IOException
+     */
+    public SpillJournal(Path directory, int segmentSize, int maxSegments) throws IOException {
+        if (segmentSize <= RECORD_HEADER_SIZE) {
+            throw new IllegalArgumentException("Segment size must be greater than " + RECORD_HEADER_SIZE);
+        }
+        this.directory = directory;
+        this.segmentSize = segmentSize;
+        this.maxSegments = Math.max(maxSegments, 1);
+        Files.createDirectories(directory);
+        recover();
+    }
+
+    /**
+     * Append a record
+     *
+     * @param record
+     * @return false if the record cannot be appended because the journal reached the maximum number of segments
+     * @throws IOException
+     */
+    public synchronized boolean append(byte[] record) throws IOException {
+        if (record.length + RECORD_HEADER_SIZE > segmentSize) {
+            throw new IllegalArgumentException(String.format("Record size %s exceeds the journal segment size %s", record.length, segmentSize));
+        }
+        if (writePosition + RECORD_HEADER_SIZE + record.length > segmentSize) {
+            if (segments.size() >= maxSegments) {
+                return false;
+            }
+            writeSegment++;
+            writePosition = 0;
+            segments.put(writeSegment, mapSegment(writeSegment));
+            logger.debug("Journal segment {} created", writeSegment);
+        }
+        MappedByteBuffer buffer = segments.get(writeSegment);
+        CRC32 crc = new CRC32();
+        crc.update(record, 0, record.length);
+
+        // write the payload first, the length last, so a partially written record is never read as valid
+        int position = writePosition;
+        buffer.putInt(position + 4, (int) crc.getValue());
+        ByteBuffer recordBuffer = buffer.duplicate();
+        recordBuffer.position(position + RECORD_HEADER_SIZE);
+        recordBuffer.put(record);
+        int nextPosition = position + RECORD_HEADER_SIZE + record.length;
+        if (nextPosition + 4 <= segmentSize) {
+            buffer.putInt(nextPosition, 0);
+        }
+        buffer.putInt(position, record.length);
+        writePosition = nextPosition;
+        return true;
+    }
+
+    /**
+     * Read, starting from the committed position, up to the provided number of records.<br>
+     * The read position is not moved until the batch is committed.
+     *
+     * @param maxRecords
+     * @return
+     */
+    public synchronized Batch read(int maxRecords) {
+        List<byte[]> records = new ArrayList<>();
+        long segment = readSegment;
+        int position = readPosition;
+        while (records.size() < maxRecords) {
+            MappedByteBuffer buffer = segments.get(segment);
+            int length = position + RECORD_HEADER_SIZE <= segmentSize ? buffer.getInt(position) : 0;
+            if (length > 0 && position + RECORD_HEADER_SIZE + length <= segmentSize) {
+                byte[] record = readRecord(buffer, position, length);
+                if (record != null) {
+                    records.add(record);
+                    position += RECORD_HEADER_SIZE + length;
+                    continue;
+                }
+                logger.warn("Corrupted record found in journal segment {} at position {}. Skipping the remaining records of the segment", segment, position);
+            }
+            // end of the segment
+            Long nextSegment = segments.higherKey(segment);
+            if (nextSegment == null) {
+                break;
+            }
+            segment = nextSegment;
+            position = 0;
+        }
+        return new Batch(records, segment, position);
+    }
+
+    /**
+     * Move the read position after the last record of the batch and delete the segments no longer needed
+     *
+     * @param batch
+     * @throws IOException
+     */
+    public synchronized void commit(Batch batch) throws IOException {
+        readSegment = batch.endSegment;
+        readPosition = batch.endPosition;
+        writeCheckpoint();
+        Iterator<Map.Entry<Long, MappedByteBuffer>> iterator = segments.headMap(readSegment, false).entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<Long, MappedByteBuffer> entry = iterator.next();
+            unmap(entry.getValue());
+            Files.deleteIfExists(getSegmentPath(entry.getKey()));
+            iterator.remove();
+            logger.debug("Journal segment {} deleted", entry.getKey());
+        }
+    }
+
+    /**
+     * Check if every appended record has been committed
+     *
+     * @return
+     */
+    public synchronized boolean isEmpty() {
+        return readSegment == writeSegment && readPosition == writePosition;
+    }
+
+    /**
+     * Get the number of segment files
+     *
+     * @return
+     */
+    public synchronized int getSegmentCount() {
+        return segments.size();
+    }
+
+    /**
+     * Flush the appended records to the disk
+     */
+    public synchronized void force() {
+        for (MappedByteBuffer buffer : segments.values()) {
+            buffer.force();
+        }
+    }
+
+    /**
+     * Flush the appended records and unmap the segment files.<br>
+     * The journal cannot be used once closed.
+     */
+    @Override
+    public synchronized void close() {
+        force();
+        for (MappedByteBuffer buffer : segments.values()) {
+            unmap(buffer);
+        }
+        segments.clear();
+    }
+
+    private void recover() throws IOException {
+        List<Long> segmentIds = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, "*" + SEGMENT_SUFFIX)) {
+            for (Path path : stream) {
+                String fileName = path.getFileName().toString();
+                try {
+                    segmentIds.add(Long.parseLong(fileName.substring(0, fileName.length() - SEGMENT_SUFFIX.length())));
+                } catch (NumberFormatException e) {
+                    logger.warn("Unexpected file {} in the journal directory", path);
+                }
+            }
+        }
+        Collections.sort(segmentIds);
+        if (segmentIds.isEmpty()) {
+            segmentIds.add(0L);
+        }
+        for (Long segmentId : segmentIds) {
+            segments.put(segmentId, mapSegment(segmentId));
+        }
+
+        // find the write position scanning the last segment
+        writeSegment = segments.lastKey();
+        MappedByteBuffer buffer = segments.get(writeSegment);
+        writePosition = 0;
+        while (writePosition + RECORD_HEADER_SIZE <= segmentSize) {
+            int length = buffer.getInt(writePosition);
+            if (length <= 0 || writePosition + RECORD_HEADER_SIZE + length > segmentSize) {
+                break;
+            }
+            if (readRecord(buffer, writePosition, length) == null) {
+                logger.warn("Corrupted record found in journal segment {} at position {}. The journal will be truncated", writeSegment, writePosition);
+                break;
+            }
+            writePosition += RECORD_HEADER_SIZE + length;
+        }
+        if (writePosition + 4 <= segmentSize) {
+            buffer.putInt(writePosition, 0);
+        }
+
+        // restore the read position
+        readSegment = segments.firstKey();
+        readPosition = 0;
+        Path checkpoint = directory.resolve(CHECKPOINT_FILE);
+        if (Files.exists(checkpoint)) {
+            try (DataInputStream input = new DataInputStream(Files.newInputStream(checkpoint))) {
+                long checkpointSegment = input.readLong();
+                int checkpointPosition = input.readInt();
+                if (segments.containsKey(checkpointSegment)) {
+                    readSegment = checkpointSegment;
+                    readPosition = checkpointSegment == writeSegment ? Math.min(checkpointPosition, writePosition) : checkpointPosition;
+                }
+            }
+        }
+        if (!isEmpty()) {
+            logger.info("Journal recovered from {} with {} segment(s) to be replayed", directory, segments.size());
+        }
+    }
+
+    /**
+     * Read the record at the provided position
+     *
+     * @param buffer
+     * @param position
+     * @param length
+     * @return the record or null if the record CRC doesn't match
+     */
+    private byte[] readRecord(MappedByteBuffer buffer, int position, int length) {
+        byte[] record = new byte[length];
+        ByteBuffer recordBuffer = buffer.duplicate();
+        recordBuffer.position(position + RECORD_HEADER_SIZE);
+        recordBuffer.get(record);
+        CRC32 crc = new CRC32();
+        crc.update(record, 0, length);
+        return (int) crc.getValue() == buffer.getInt(position + 4) ? record : null;
+    }
+
+    private void writeCheckpoint() throws IOException {
+        Path tmp = directory.resolve(CHECKPOINT_TMP_FILE);
+        try (DataOutputStream output = new DataOutputStream(Files.newOutputStream(tmp))) {
+            output.writeLong(readSegment);
+            output.writeInt(readPosition);
+        }
+        Files.move(tmp, directory.resolve(CHECKPOINT_FILE), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private MappedByteBuffer mapSegment(long segmentId) throws IOException {
+        try (RandomAccessFile file = new RandomAccessFile(getSegmentPath(segmentId).toFile(), "rw")) {
+            if (file.length() != segmentSize) {
+                file.setLength(segmentSize);
+            }
+            return file.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, segmentSize);
+        }
+    }
+
+    /**
+     * Release the segment mapping without waiting for the buffer to be garbage collected.<br>
+     * There is no public API to unmap a buffer before Java 9 ({@code Unsafe.invokeCleaner}): the Java 8 buffer cleaner is used through reflection.
+     * If neither is available the mapping is released by the garbage collector.
+     *
+     * @param buffer
+     */
+    private static void unmap(MappedByteBuffer buffer) {
+        try {
+            Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+            Method invokeCleaner = unsafeClass.getMethod("invokeCleaner", ByteBuffer.class);
+            Field theUnsafe = unsafeClass.getDeclaredField("theUnsafe");
+            theUnsafe.setAccessible(true);
+            invokeCleaner.invoke(theUnsafe.get(null), buffer);
+            return;
+        } catch (NoSuchMethodException e) {
+            // Java 8
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            logger.debug("Cannot unmap journal segment", e);
+            return;
+        }
+        try {
+            Method cleanerMethod = buffer.getClass().getMethod("cleaner");
+            cleanerMethod.setAccessible(true);
+            Object cleaner = cleanerMethod.invoke(buffer);
+            if (cleaner != null) {
+                cleaner.getClass().getMethod("clean").invoke(cleaner);
+            }
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            logger.debug("Cannot unmap journal segment", e);
+        }
+    }
+
+    private Path getSegmentPath(long segmentId) {
+        return directory.resolve(String.format("%020d%s", segmentId, SEGMENT_SUFFIX));
+    }
+
+}
@@ -75,6 +75,20 @@ public enum ChannelInfoField implements StorableField {
         }
     }
 
+    /**
+     * Get the hasher state of the channel identifier components.<br>
+     * The prefix hash code is the channel identifier and it is also the prefix of the identifiers of the channel metrics (see
+     * {@link MetricInfoField#deriveId(RegistryIdHasher.Prefix, String, Class)}).
+     *
+     * @param scopeId
+     * @param clientId
+     * @param channel
+     * @return
+     */
+    public static RegistryIdHasher.Prefix getIdPrefix(KapuaId scopeId, String clientId, String channel) {
+        return RegistryIdHasher.newPrefix(scopeId.toCompactId(), clientId, channel);
+    }
+
     /**
      * Get the channel identifier getting parameters from the metricInfoCreator. Then it calls {@link ChannelInfoField#getOrDeriveId(StorableId id, KapuaId scopeId, String clientId, String channel)}
      * 
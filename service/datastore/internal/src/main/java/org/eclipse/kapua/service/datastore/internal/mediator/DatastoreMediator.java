@@ -156,7 +156,9 @@ public class DatastoreMediator implements MessageStoreMediator,
         channelInfo.setName(semanticChannel);
         channelInfo.setFirstMessageId(message.getDatastoreId());
         channelInfo.setFirstMessageOn(message.getTimestamp());
-        channelInfo.setId(new StorableIdImpl(ChannelInfoField.getOrDeriveId(null, channelInfo)));
+        // the channel id hasher state is reused to derive the ids of all the message metrics
+        RegistryIdHasher.Prefix channelIdPrefix = ChannelInfoField.getIdPrefix(message.getScopeId(), message.getClientId(), semanticChannel);
+        channelInfo.setId(new StorableIdImpl(channelIdPrefix.getHashCode()));
         clientInfo.setFirstMessageId(message.getDatastoreId());
         clientInfo.setFirstMessageOn(message.getTimestamp());
         channelInfoStoreFacade.upstore(channelInfo);
@@ -179,7 +181,7 @@ public class DatastoreMediator implements MessageStoreMediator,
             metricInfo.setChannel(semanticChannel);
             metricInfo.setName(entry.getKey());
             metricInfo.setMetricType(entry.getValue().getClass());
-            metricInfo.setId(new StorableIdImpl(MetricInfoField.getOrDeriveId(null, metricInfo)));
+            metricInfo.setId(new StorableIdImpl(MetricInfoField.deriveId(channelIdPrefix, entry.getKey(), metricInfo.getMetricType())));
             metricInfo.setFirstMessageId(message.getDatastoreId());
             metricInfo.setFirstMessageOn(message.getTimestamp());
             messageMetrics[i++] = metricInfo;
@@ -12,13 +12,11 @@
  *******************************************************************************/
 package org.eclipse.kapua.service.datastore.internal.mediator;
 
-import com.google.common.hash.Hashing;
 import org.eclipse.kapua.commons.util.KapuaDateUtils;
 import org.eclipse.kapua.model.id.KapuaId;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.nio.charset.StandardCharsets;
 import java.text.ParseException;
 import java.time.Instant;
 import java.time.LocalDate;
@@ -29,7 +27,6 @@ import java.time.temporal.ChronoUnit;
 import java.time.temporal.TemporalField;
 import java.time.temporal.WeekFields;
 import java.util.ArrayList;
-import java.util.Base64;
 import java.util.Calendar;
 import java.util.Date;
 import java.util.List;
@@ -89,18 +86,8 @@ public class DatastoreUtils {
      * @return
      */
     public static String getHashCode(String... components) {
-        String concatString = "";
-        for (String str : components) {
-            concatString = concatString.concat(str);
-        }
-
-        byte[] hashCode = Hashing.sha256()
-                .hashString(concatString, StandardCharsets.UTF_8)
-                .asBytes();
-
-        // ES 5.2 FIX
-        // return Base64.encodeBytes(hashCode);
-        return Base64.getEncoder().encodeToString(hashCode);
+        // the hasher streams the components UTF-8 bytes to the digest, so the hash code is the same of the SHA-256 of the concatenated components
+        return RegistryIdHasher.getHashCode(components);
     }
 
     private static String normalizeIndexName(String name) {
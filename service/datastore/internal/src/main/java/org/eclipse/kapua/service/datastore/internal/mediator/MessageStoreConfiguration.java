@@ -68,6 +68,12 @@ public class MessageStoreConfiguration {
      */
     public static final String CONFIGURATION_METRICS_INDEX_BY_KEY = "metricsIndexBy";
 
+    /**
+     * Compact metrics layout key.<br>
+     * <b>The key must be aligned with the key used in org.eclipse.kapua.service.datastore.MessageStoreService.xml meta data configuration file).</b>
+     */
+    public static final String CONFIGURATION_COMPACT_METRICS_KEY = "compactMetrics";
+
     /**
      * Defines a value in service plan as unlimited resource
      */
@@ -86,6 +92,7 @@ public class MessageStoreConfiguration {
     private long rxByteLimit = 1000000;
     private DataIndexBy dataIndexBy = DataIndexBy.SERVER_TIMESTAMP;
     private MetricsIndexBy metricsIndexBy = MetricsIndexBy.TIMESTAMP;
+    private boolean compactMetrics;
 
     private Map<String, Object> values;
 
@@ -119,6 +126,9 @@ public class MessageStoreConfiguration {
             if (this.values.get(CONFIGURATION_METRICS_INDEX_BY_KEY) != null) {
                 setMetricsIndexBy(MetricsIndexBy.valueOf((String) this.values.get(CONFIGURATION_METRICS_INDEX_BY_KEY)));
             }
+            if (this.values.get(CONFIGURATION_COMPACT_METRICS_KEY) != null) {
+                setCompactMetrics(Boolean.parseBoolean(this.values.get(CONFIGURATION_COMPACT_METRICS_KEY).toString()));
+            }
         }
     }
 
@@ -230,4 +240,20 @@ public class MessageStoreConfiguration {
     public void setMetricsIndexBy(MetricsIndexBy metricsIndexBy) {
         this.metricsIndexBy = metricsIndexBy;
     }
+
+    /**
+     * Get the compact metrics layout parameter ({@link MessageStoreConfiguration#CONFIGURATION_COMPACT_METRICS_KEY}
+     *
+     * @return
+     */
+    public boolean getCompactMetrics() {
+        return compactMetrics;
+    }
+
+    /**
+     * Set the compact metrics layout parameter ({@link MessageStoreConfiguration#CONFIGURATION_COMPACT_METRICS_KEY}
+     */
+    public void setCompactMetrics(boolean compactMetrics) {
+        this.compactMetrics = compactMetrics;
+    }
 }
@@ -79,14 +79,26 @@ public enum MetricInfoField implements StorableField {
      */
     private static String getOrDeriveId(StorableId id, KapuaId scopeId, String clientId, String channel, String metricName, Class<?> metricType) {
         if (id == null) {
-            String metricMappedName = DatastoreUtils.getMetricValueQualifier(metricName, DatastoreUtils.convertToClientMetricType(metricType));
-
-            return DatastoreUtils.getHashCode(scopeId.toCompactId(), clientId, channel, metricMappedName);
+            return deriveId(RegistryIdHasher.newPrefix(scopeId.toCompactId(), clientId, channel), metricName, metricType);
         } else {
             return id.toString();
         }
     }
 
+    /**
+     * Get the metric identifier starting from the hasher state of the metric scope, client id and channel (see {@link ChannelInfoField#getIdPrefix(KapuaId, String, String)}).<br>
+     * The identifier is the same returned by {@link #getOrDeriveId(StorableId, MetricInfo)}, but the prefix can be reused for all the metrics of a message.
+     *
+     * @param prefix
+     * @param metricName
+     * @param metricType
+     * @return
+     */
+    public static String deriveId(RegistryIdHasher.Prefix prefix, String metricName, Class<?> metricType) {
+        // same components of the metric value qualifier (name.type)
+        return prefix.getHashCode(metricName, ".", DatastoreUtils.getClientMetricFromAcronym(DatastoreUtils.convertToClientMetricType(metricType)));
+    }
+
     /**
      * Get the metric identifier getting parameters from the metricInfoCreator. Then it calls {@link MetricInfoField#getOrDeriveId(StorableId id, KapuaId scopeId, String clientId, String channel, String
      * metricName, Class metricType)}
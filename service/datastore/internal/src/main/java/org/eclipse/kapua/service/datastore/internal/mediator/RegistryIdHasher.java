@@ -0,0 +1,246 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Eurotech and/or its affiliates and others
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Eurotech - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.kapua.service.datastore.internal.mediator;
+
+import java.security.DigestException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * Registry identifiers hasher.<br>
+ * It computes the same hash code of {@link DatastoreUtils#getHashCode(String...)} (Base64 of the SHA-256 of the UTF-8 bytes of the concatenated components)
+ * streaming the components bytes into a per thread digest, so neither the concatenated string nor its bytes are allocated.<br>
+ * The digest state of a common components prefix (scope, client and channel) can be kept in a {@link Prefix} and reused to derive the identifiers of all
+ * the metrics of a message.
+ *
+ * @since 1.0
+ */
+public final class RegistryIdHasher {
+
+    private static final String HASH_ALGORITHM = "SHA-256";
+    private static final int HASH_LENGTH = 32;
+    private static final char[] BASE64_ALPHABET = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789+/".toCharArray();
+    // same replacement used by String.getBytes for the malformed surrogates
+    private static final byte REPLACEMENT = '?';
+
+    private static final ThreadLocal<HashContext> CONTEXT = ThreadLocal.withInitial(() -> new HashContext(newDigest()));
+
+    private RegistryIdHasher() {
+    }
+
+    /**
+     * Return the hash code for the provided components
+     *
+     * @param components
+     * @return
+     */
+    public static String getHashCode(String... components) {
+        HashContext context = CONTEXT.get();
+        MessageDigest digest = context.digest;
+        digest.reset();
+        context.start(digest, (char) 0);
+        for (String component : components) {
+            context.append(component);
+        }
+        return context.finish();
+    }
+
+    /**
+     * Return the hasher state of the provided components, to be used as prefix of other hash codes
+     *
+     * @param components
+     * @return
+     */
+    public static Prefix newPrefix(String... components) {
+        HashContext context = CONTEXT.get();
+        MessageDigest digest = newDigest();
+        context.start(digest, (char) 0);
+        for (String component : components) {
+            context.append(component);
+        }
+        return new Prefix(digest, context.suspend());
+    }
+
+    /**
+     * Hasher state of a components prefix.<br>
+     * The state is immutable, so it can be shared between threads.
+     *
+     * @since 1.0
+     */
+    public static final class Prefix {
+
+        private final MessageDigest digest;
+        private final char pendingHighSurrogate;
+
+        private Prefix(MessageDigest digest, char pendingHighSurrogate) {
+            this.digest = digest;
+            this.pendingHighSurrogate = pendingHighSurrogate;
+        }
+
+        /**
+         * Return the hash code of the prefix components followed by the provided components.<br>
+         * The result is equal to {@link RegistryIdHasher#getHashCode(String...)} invoked with all the components.
+         *
+         * @param components
+         * @return
+         */
+        public String getHashCode(String... components) {
+            HashContext context = CONTEXT.get();
+            context.start(cloneDigest(digest), pendingHighSurrogate);
+            for (String component : components) {
+                context.append(component);
+            }
+            return context.finish();
+        }
+    }
+
+    private static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance(HASH_ALGORITHM);
+        } catch (NoSuchAlgorithmException e) {
+            // every Java platform must support SHA-256
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static MessageDigest cloneDigest(MessageDigest digest) {
+        try {
+            return (MessageDigest) digest.clone();
+        } catch (CloneNotSupportedException e) {
+            throw new IllegalStateException(String.format("The %s digest provider doesn't support the clone operation", HASH_ALGORITHM), e);
+        }
+    }
+
+    /**
+     * Per thread hasher state: it encodes the components to UTF-8 into a small buffer flushed to the digest when full
+     */
+    private static final class HashContext {
+
+        private final MessageDigest digest;
+        private final byte[] buffer = new byte[256];
+        private final byte[] hash = new byte[HASH_LENGTH];
+        private final char[] encodedHash = new char[(HASH_LENGTH + 2) / 3 * 4];
+
+        private MessageDigest target;
+        private int position;
+        // a surrogate pair can be split between two components
+        private char pendingHighSurrogate;
+
+        private HashContext(MessageDigest digest) {
+            this.digest = digest;
+        }
+
+        private void start(MessageDigest target, char pendingHighSurrogate) {
+            this.target = target;
+            this.pendingHighSurrogate = pendingHighSurrogate;
+            position = 0;
+        }
+
+        private void append(String component) {
+            int length = component.length();
+            for (int i = 0; i < length; i++) {
+                char c = component.charAt(i);
+                if (pendingHighSurrogate != 0) {
+                    char highSurrogate = pendingHighSurrogate;
+                    pendingHighSurrogate = 0;
+                    if (Character.isLowSurrogate(c)) {
+                        appendCodePoint(Character.toCodePoint(highSurrogate, c));
+                        continue;
+                    }
+                    write(REPLACEMENT);
+                }
+                if (c < 0x80) {
+                    write((byte) c);
+                } else if (c < 0x800) {
+                    ensureCapacity(2);
+                    buffer[position++] = (byte) (0xc0 | (c >> 6));
+                    buffer[position++] = (byte) (0x80 | (c & 0x3f));
+                } else if (Character.isHighSurrogate(c)) {
+                    pendingHighSurrogate = c;
+                } else if (Character.isLowSurrogate(c)) {
+                    write(REPLACEMENT);
+                } else {
+                    ensureCapacity(3);
+                    buffer[position++] = (byte) (0xe0 | (c >> 12));
+                    buffer[position++] = (byte) (0x80 | ((c >> 6) & 0x3f));
+                    buffer[position++] = (byte) (0x80 | (c & 0x3f));
+                }
+            }
+        }
+
+        private void appendCodePoint(int codePoint) {
+            ensureCapacity(4);
+            buffer[position++] = (byte) (0xf0 | (codePoint >> 18));
+            buffer[position++] = (byte) (0x80 | ((codePoint >> 12) & 0x3f));
+            buffer[position++] = (byte) (0x80 | ((codePoint >> 6) & 0x3f));
+            buffer[position++] = (byte) (0x80 | (codePoint & 0x3f));
+        }
+
+        private void write(byte b) {
+            ensureCapacity(1);
+            buffer[position++] = b;
+        }
+
+        private void ensureCapacity(int size) {
+            if (position + size > buffer.length) {
+                flush();
+            }
+        }
+
+        private void flush() {
+            target.update(buffer, 0, position);
+            position = 0;
+        }
+
+        private char suspend() {
+            flush();
+            target = null;
+            return pendingHighSurrogate;
+        }
+
+        private String finish() {
+            if (pendingHighSurrogate != 0) {
+                pendingHighSurrogate = 0;
+                write(REPLACEMENT);
+            }
+            flush();
+            try {
+                target.digest(hash, 0, HASH_LENGTH);
+            } catch (DigestException e) {
+                throw new IllegalStateException(e);
+            } finally {
+                target = null;
+            }
+            return encodeHash();
+        }
+
+        private String encodeHash() {
+            int out = 0;
+            int i = 0;
+            for (; i + 2 < HASH_LENGTH; i += 3) {
+                int bits = (hash[i] & 0xff) << 16 | (hash[i + 1] & 0xff) << 8 | (hash[i + 2] & 0xff);
+                encodedHash[out++] = BASE64_ALPHABET[(bits >>> 18) & 0x3f];
+                encodedHash[out++] = BASE64_ALPHABET[(bits >>> 12) & 0x3f];
+                encodedHash[out++] = BASE64_ALPHABET[(bits >>> 6) & 0x3f];
+                encodedHash[out++] = BASE64_ALPHABET[bits & 0x3f];
+            }
+            // 32 bytes hash: 2 remaining bytes, so a single padding char
+            int bits = (hash[i] & 0xff) << 16 | (hash[i + 1] & 0xff) << 8;
+            encodedHash[out++] = BASE64_ALPHABET[(bits >>> 18) & 0x3f];
+            encodedHash[out++] = BASE64_ALPHABET[(bits >>> 12) & 0x3f];
+            encodedHash[out++] = BASE64_ALPHABET[(bits >>> 6) & 0x3f];
+            encodedHash[out] = '=';
+            return new String(encodedHash);
+        }
+    }
+
+}
@@ -54,6 +54,15 @@ public class ChannelMatchPredicateImpl implements ChannelMatchPredicate {
         this.expression = expression;
     }
 
+    /**
+     * Get the field name
+     * 
+     * @return
+     */
+    public String getField() {
+        return this.field;
+    }
+
     @Override
     public String getExpression() {
         return this.expression;
@@ -0,0 +1,72 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Eurotech and/or its affiliates and others
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Eurotech - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.kapua.service.datastore.internal.model.query;
+
+import org.eclipse.kapua.model.id.KapuaId;
+import org.eclipse.kapua.service.datastore.internal.AbstractStorableQuery;
+import org.eclipse.kapua.service.datastore.internal.mediator.MessageField;
+import org.eclipse.kapua.service.datastore.internal.schema.CompactMessageSchema;
+import org.eclipse.kapua.service.datastore.internal.schema.MessageSchema;
+import org.eclipse.kapua.service.datastore.model.DatastoreMessage;
+import org.eclipse.kapua.service.datastore.model.query.StorableFetchStyle;
+
+/**
+ * Compact message window query implementation.<br>
+ * The compact windows are fetched with the full source, since the messages are rebuilt from the window arrays. The {@link StorableFetchStyle#FIELDS}
+ * fetch style reads only the window fields and the message identifiers, enough to count the window messages.
+ *
+ * @since 1.0
+ */
+public class CompactMessageQueryImpl extends AbstractStorableQuery<DatastoreMessage> {
+
+    /**
+     * Constructor.
+     *
+     * @param scopeId
+     */
+    public CompactMessageQueryImpl(KapuaId scopeId) {
+        super(scopeId);
+        setFetchStyle(StorableFetchStyle.SOURCE_FULL);
+    }
+
+    @Override
+    public String[] getIncludes(StorableFetchStyle fetchStyle) {
+        if (StorableFetchStyle.FIELDS.equals(fetchStyle)) {
+            return new String[] {
+                    MessageSchema.MESSAGE_SCOPE_ID,
+                    MessageSchema.MESSAGE_DEVICE_ID,
+                    MessageSchema.MESSAGE_CLIENT_ID,
+                    MessageSchema.MESSAGE_CHANNEL,
+                    MessageSchema.MESSAGE_CHANNEL_PARTS,
+                    CompactMessageSchema.COMPACT_MESSAGE_WINDOW_START,
+                    CompactMessageSchema.COMPACT_MESSAGE_SEGMENT,
+                    CompactMessageSchema.COMPACT_MESSAGE_IDS };
+        }
+        return new String[] { "*" };
+    }
+
+    @Override
+    public String[] getExcludes(StorableFetchStyle fetchStyle) {
+        return new String[] { "" };
+    }
+
+    @Override
+    public String[] getFields() {
+        return new String[] {
+                MessageField.SCOPE_ID.field(),
+                MessageField.DEVICE_ID.field(),
+                MessageField.CLIENT_ID.field(),
+                MessageField.CHANNEL.field(),
+                MessageField.TIMESTAMP.field() };
+    }
+
+}
@@ -0,0 +1,74 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Eurotech and/or its affiliates and others
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Eurotech - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.kapua.service.datastore.internal.schema;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.eclipse.kapua.commons.util.KapuaDateUtils;
+import org.eclipse.kapua.service.datastore.client.DatamodelMappingException;
+import org.eclipse.kapua.service.datastore.client.SchemaKeys;
+
+/**
+ * Compact message schema definition.<br>
+ * A compact message document holds the metrics only messages published by a client on a channel during a time window.<br>
+ * The document uses the same field names of the {@link MessageSchema} but the timestamps and the metric values are stored as arrays (one entry per message),
+ * so the message queries can be applied as they are to select the candidate documents.
+ *
+ * @since 1.0
+ */
+public class CompactMessageSchema {
+
+    private CompactMessageSchema() {
+
+    }
+
+    /**
+     * Compact message schema name
+     */
+    public static final String COMPACT_MESSAGE_TYPE_NAME = "compact_message";
+    /**
+     * Compact message window start timestamp
+     */
+    public static final String COMPACT_MESSAGE_WINDOW_START = "window_start";
+    /**
+     * Compact message identifiers (the identifiers assigned by the broker, one entry per message)
+     */
+    public static final String COMPACT_MESSAGE_IDS = "message_ids";
+    /**
+     * Compact message window segment (the documents holding the same time window are numbered from 0)
+     */
+    public static final String COMPACT_MESSAGE_SEGMENT = "segment";
+
+    /**
+     * Create and return the Json representation of the compact message schema
+     *
+     * @param allEnable
+     * @param sourceEnable
+     * @return
+     * @throws DatamodelMappingException
+     */
+    public static JsonNode getCompactMessageTypeSchema(boolean allEnable, boolean sourceEnable) throws DatamodelMappingException {
+        // the fields shared with the message type must have the same mapping, since they live in the same index
+        ObjectNode compactMessageNode = (ObjectNode) MessageSchema.getMesageTypeSchema(allEnable, sourceEnable);
+        ObjectNode propertiesNode = (ObjectNode) compactMessageNode.get(SchemaKeys.FIELD_NAME_PROPERTIES);
+        ObjectNode windowStart = SchemaUtil.getField(
+                new KeyValueEntry[] { new KeyValueEntry(SchemaKeys.KEY_TYPE, SchemaKeys.TYPE_DATE), new KeyValueEntry(SchemaKeys.KEY_FORMAT, KapuaDateUtils.ISO_DATE_PATTERN) });
+        propertiesNode.set(COMPACT_MESSAGE_WINDOW_START, windowStart);
+        ObjectNode messageIds = SchemaUtil.getField(
+                new KeyValueEntry[] { new KeyValueEntry(SchemaKeys.KEY_TYPE, SchemaKeys.TYPE_KEYWORD), new KeyValueEntry(SchemaKeys.KEY_INDEX, SchemaKeys.VALUE_TRUE) });
+        propertiesNode.set(COMPACT_MESSAGE_IDS, messageIds);
+        ObjectNode segment = SchemaUtil.getField(new KeyValueEntry[] { new KeyValueEntry(SchemaKeys.KEY_TYPE, SchemaKeys.TYPE_INTEGER) });
+        propertiesNode.set(COMPACT_MESSAGE_SEGMENT, segment);
+        return compactMessageNode;
+    }
+
+}
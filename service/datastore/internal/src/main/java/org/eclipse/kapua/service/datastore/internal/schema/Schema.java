@@ -80,6 +80,8 @@ public class Schema {
             boolean enableSourceField = true;
 
             datastoreClient.putMapping(new TypeDescriptor(dataIndexName, MessageSchema.MESSAGE_TYPE_NAME), MessageSchema.getMesageTypeSchema(enableAllField, enableSourceField));
+            datastoreClient.putMapping(new TypeDescriptor(dataIndexName, CompactMessageSchema.COMPACT_MESSAGE_TYPE_NAME),
+                    CompactMessageSchema.getCompactMessageTypeSchema(enableAllField, enableSourceField));
             // Check existence of the kapua internal index
             String registryIndexName = DatastoreUtils.getRegistryIndexName(scopeId);
             IndexResponse registryIndexExistsResponse = datastoreClient.isIndexExists(new IndexRequest(registryIndexName));
@@ -122,6 +124,7 @@ public class Schema {
         Metadata currentMetadata = DatastoreCacheManager.getInstance().getMetadataCache().get(newIndex);
 
         ObjectNode metricsMapping = null;
+        ObjectNode compactMetricsMapping = null;
         Map<String, Metric> diffs = null;
 
         synchronized (Schema.class) {
@@ -130,14 +133,18 @@ public class Schema {
             if (diffs == null || diffs.isEmpty()) {
                 return;
             }
-            metricsMapping = getNewMessageMappingsBuilder(diffs);
+            metricsMapping = getNewMessageMappingsBuilder(SchemaKeys.FIELD_NAME_MESSAGE, diffs);
+            compactMetricsMapping = getNewMessageMappingsBuilder(CompactMessageSchema.COMPACT_MESSAGE_TYPE_NAME, diffs);
         }
 
         LOG.trace("Sending dynamic message mappings: " + metricsMapping);
-        DatastoreClientFactory.getInstance().putMapping(new TypeDescriptor(currentMetadata.getDataIndexName(), MessageSchema.MESSAGE_TYPE_NAME), metricsMapping);
+        DatastoreClient datastoreClient = DatastoreClientFactory.getInstance();
+        datastoreClient.putMapping(new TypeDescriptor(currentMetadata.getDataIndexName(), MessageSchema.MESSAGE_TYPE_NAME), metricsMapping);
+        // the compact documents share the metric fields, so they must be mapped with the same type
+        datastoreClient.putMapping(new TypeDescriptor(currentMetadata.getDataIndexName(), CompactMessageSchema.COMPACT_MESSAGE_TYPE_NAME), compactMetricsMapping);
     }
 
-    private ObjectNode getNewMessageMappingsBuilder(Map<String, Metric> esMetrics) throws DatamodelMappingException {
+    private ObjectNode getNewMessageMappingsBuilder(String typeName, Map<String, Metric> esMetrics) throws DatamodelMappingException {
         if (esMetrics == null) {
             return null;
         }
@@ -147,7 +154,7 @@ public class Schema {
         ObjectNode typePropertiesNode = SchemaUtil.getObjectNode(); // properties
         ObjectNode metricsNode = SchemaUtil.getObjectNode(); // metrics
         ObjectNode metricsPropertiesNode = SchemaUtil.getObjectNode(); // properties (metric properties)
-        typeNode.set(SchemaKeys.FIELD_NAME_MESSAGE, messageNode);
+        typeNode.set(typeName, messageNode);
         messageNode.set(SchemaKeys.FIELD_NAME_PROPERTIES, typePropertiesNode);
         typePropertiesNode.set(SchemaKeys.FIELD_NAME_METRICS, metricsNode);
         metricsNode.set(SchemaKeys.FIELD_NAME_PROPERTIES, metricsPropertiesNode);
@@ -38,6 +38,38 @@ public enum DatastoreSettingKey implements SettingKey {
      * Metadata cache maximum size
      */
     CONFIG_CACHE_METADATA_LOCAL_SIZE_MAXIMUM("datastore.cache.metadata.local.size.maximum"),
+    /**
+     * Registry cache provider class name (shared cache backend behind the local registry caches)
+     */
+    CONFIG_CACHE_REGISTRY_PROVIDER("datastore.cache.registry.provider"),
+    /**
+     * Enable the Bloom filter tier of the registry caches
+     */
+    CONFIG_CACHE_BLOOM_ENABLED("datastore.cache.bloom.enabled"),
+    /**
+     * Expected number of entries of each registry cache Bloom filter
+     */
+    CONFIG_CACHE_BLOOM_EXPECTED_INSERTIONS("datastore.cache.bloom.expected_insertions"),
+    /**
+     * False positive probability of the registry cache Bloom filters
+     */
+    CONFIG_CACHE_BLOOM_FPP("datastore.cache.bloom.fpp"),
+    /**
+     * Registry cache Bloom filters reset interval
+     */
+    CONFIG_CACHE_BLOOM_EXPIRE_AFTER("datastore.cache.bloom.expire.after"),
+    /**
+     * Enable the registry caches warm up at startup
+     */
+    CONFIG_CACHE_WARMUP_ENABLED("datastore.cache.warmup.enabled"),
+    /**
+     * Number of registry entries read by each warm up query
+     */
+    CONFIG_CACHE_WARMUP_PAGE_SIZE("datastore.cache.warmup.page_size"),
+    /**
+     * Maximum number of registry entries loaded by the warm up for each registry type and account
+     */
+    CONFIG_CACHE_WARMUP_MAX_ENTRIES("datastore.cache.warmup.max_entries"),
     /**
      * Enable datastore timing profile
      */
@@ -61,7 +93,111 @@ public enum DatastoreSettingKey implements SettingKey {
     /**
      * Elasticsearch index refresh interval (the data is available for a search operation only if it is indexed)
      */
-    CONFIG_MAX_ENTRIES_ON_DELETE("datastore.delete.max_entries_on_delete");
+    CONFIG_MAX_ENTRIES_ON_DELETE("datastore.delete.max_entries_on_delete"),
+    /**
+     * Enable the circuit breaker between the message store and Elasticsearch
+     */
+    CIRCUIT_BREAKER_ENABLED("datastore.circuit_breaker.enabled"),
+    /**
+     * Number of store outcomes kept in the circuit breaker sliding window
+     */
+    CIRCUIT_BREAKER_WINDOW_SIZE("datastore.circuit_breaker.window_size"),
+    /**
+     * Minimum number of store outcomes in the sliding window before the failure rate is evaluated
+     */
+    CIRCUIT_BREAKER_MINIMUM_CALLS("datastore.circuit_breaker.minimum_calls"),
+    /**
+     * Failure rate (errors and slow calls over the window size, between 0 and 1) that trips the circuit breaker
+     */
+    CIRCUIT_BREAKER_FAILURE_RATE_THRESHOLD("datastore.circuit_breaker.failure_rate_threshold"),
+    /**
+     * Store duration (in milliseconds) over which a successful call is counted as a slow call
+     */
+    CIRCUIT_BREAKER_SLOW_CALL_THRESHOLD("datastore.circuit_breaker.slow_call_threshold"),
+    /**
+     * Time (in milliseconds) the circuit breaker stays open before letting probe calls through
+     */
+    CIRCUIT_BREAKER_OPEN_INTERVAL("datastore.circuit_breaker.open_interval"),
+    /**
+     * Number of successful probe calls needed to close an half open circuit breaker
+     */
+    CIRCUIT_BREAKER_HALF_OPEN_PROBES("datastore.circuit_breaker.half_open_probes"),
+    /**
+     * Maximum time (in milliseconds) a communication error queue consumer waits for the circuit breaker to leave the open state before putting the message back
+     */
+    CIRCUIT_BREAKER_ERROR_QUEUE_AWAIT_TIMEOUT("datastore.circuit_breaker.error_queue.await_timeout"),
+    /**
+     * Minimum number of concurrent store operations allowed by the adaptive backpressure
+     */
+    BACKPRESSURE_CONCURRENCY_MIN("datastore.backpressure.concurrency.min"),
+    /**
+     * Maximum number of concurrent store operations allowed by the adaptive backpressure
+     */
+    BACKPRESSURE_CONCURRENCY_MAX("datastore.backpressure.concurrency.max"),
+    /**
+     * Store duration (in milliseconds) under which the adaptive backpressure increases the concurrency limit
+     */
+    BACKPRESSURE_LATENCY_TARGET("datastore.backpressure.latency_target"),
+    /**
+     * Ratio applied to the concurrency limit when a store operation fails or exceeds the latency target
+     */
+    BACKPRESSURE_DECREASE_RATIO("datastore.backpressure.decrease_ratio"),
+    /**
+     * Maximum time (in milliseconds) a consumer waits for a store permit before the message is diverted to the error queue
+     */
+    BACKPRESSURE_ACQUIRE_TIMEOUT("datastore.backpressure.acquire_timeout"),
+    /**
+     * Enable the local spill journal used to hold the messages while Elasticsearch is unavailable
+     */
+    SPILL_JOURNAL_ENABLED("datastore.spill_journal.enabled"),
+    /**
+     * Spill journal directory
+     */
+    SPILL_JOURNAL_DIRECTORY("datastore.spill_journal.directory"),
+    /**
+     * Spill journal segment file size (in bytes)
+     */
+    SPILL_JOURNAL_SEGMENT_SIZE("datastore.spill_journal.segment_size"),
+    /**
+     * Maximum number of spill journal segment files. Once reached the messages are no longer spilled
+     */
+    SPILL_JOURNAL_MAX_SEGMENTS("datastore.spill_journal.max_segments"),
+    /**
+     * Number of spilled messages stored by a single bulk operation during the replay
+     */
+    SPILL_JOURNAL_REPLAY_BATCH_SIZE("datastore.spill_journal.replay.batch_size"),
+    /**
+     * Interval (in milliseconds) between the spill journal replay checks
+     */
+    SPILL_JOURNAL_REPLAY_INTERVAL("datastore.spill_journal.replay.interval"),
+    /**
+     * Time window (in milliseconds) covered by a single compact metrics document
+     */
+    COMPACT_WINDOW_SIZE("datastore.compact.window_size"),
+    /**
+     * Number of messages after which a compact metrics document is full and the following messages of its time window go to a new document
+     */
+    COMPACT_WINDOW_MAX_MESSAGES("datastore.compact.window.max_messages"),
+    /**
+     * Maximum time (in milliseconds) a message store waits for the commit of its compact metrics document
+     */
+    COMPACT_COMMIT_TIMEOUT("datastore.compact.commit.timeout"),
+    /**
+     * Maximum number of messages committed to the compact metrics documents by a single bulk operation
+     */
+    COMPACT_COMMIT_MAX_SIZE("datastore.compact.commit.max_size"),
+    /**
+     * Number of threads committing the compact metrics documents (the messages of the same document are always committed by the same thread)
+     */
+    COMPACT_COMMIT_THREADS("datastore.compact.commit.threads"),
+    /**
+     * Number of compact metrics documents read by a single datastore query
+     */
+    COMPACT_QUERY_PAGE_SIZE("datastore.compact.query.page_size"),
+    /**
+     * Maximum number of compact metrics documents matched by a single message query. The queries matching more documents are rejected
+     */
+    COMPACT_QUERY_MAX_WINDOWS("datastore.compact.query.max_windows");
 
     private String key;
 
@@ -0,0 +1,52 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Eurotech and/or its affiliates and others
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Eurotech - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.kapua.service.datastore.internal.cache;
+
+import org.eclipse.kapua.commons.cache.LocalCache;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class BloomFilterRegistryCacheTest {
+
+    @Test
+    public void keepEntriesEvictedFromTheWrappedCache() {
+        BloomFilterRegistryCache cache = new BloomFilterRegistryCache(new LocalCache<>(1, 60, false), 1000, 0.000001, 3600);
+        cache.put("channel-1", true);
+        cache.put("channel-2", true);
+        Assert.assertTrue(cache.get("channel-1"));
+        Assert.assertTrue(cache.get("channel-2"));
+        Assert.assertFalse(cache.get("channel-3"));
+    }
+
+    @Test
+    public void removeClearsTheFilter() {
+        BloomFilterRegistryCache cache = new BloomFilterRegistryCache(new LocalCache<>(1, 60, false), 1000, 0.000001, 3600);
+        cache.put("channel-1", true);
+        cache.put("channel-2", true);
+        cache.remove("channel-2");
+        Assert.assertFalse(cache.get("channel-2"));
+        Assert.assertEquals(0, cache.getInsertions());
+    }
+
+    @Test
+    public void resetWhenFull() {
+        BloomFilterRegistryCache cache = new BloomFilterRegistryCache(new LocalCache<>(1, 60, false), 10, 0.000001, 3600);
+        for (int i = 0; i < 10; i++) {
+            cache.put("metric-" + i, true);
+        }
+        Assert.assertEquals(10, cache.getInsertions());
+        cache.put("metric-10", true);
+        Assert.assertEquals(1, cache.getInsertions());
+        Assert.assertTrue(cache.get("metric-10"));
+    }
+
+}
@@ -0,0 +1,68 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Eurotech and/or its affiliates and others
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Eurotech - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.kapua.service.datastore.internal.compact;
+
+import java.util.Date;
+
+import org.eclipse.kapua.service.datastore.client.QueryMappingException;
+import org.eclipse.kapua.service.datastore.internal.mediator.MessageField;
+import org.eclipse.kapua.service.datastore.internal.model.query.AndPredicateImpl;
+import org.eclipse.kapua.service.datastore.internal.model.query.ChannelMatchPredicateImpl;
+import org.eclipse.kapua.service.datastore.internal.model.query.RangePredicateImpl;
+import org.eclipse.kapua.service.datastore.internal.model.query.TermPredicateImpl;
+import org.eclipse.kapua.service.datastore.model.DatastoreMessage;
+import org.eclipse.kapua.service.datastore.model.query.StorablePredicate;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class CompactMessageMatcherTest {
+
+    private static final StorablePredicate UNSUPPORTED_PREDICATE = () -> null;
+
+    @Test
+    public void matchesTheSingleMessages() throws Exception {
+        DatastoreMessage message = CompactMessageWindowTest.newMessage(1000L, "temperature", 21.5d);
+        AndPredicateImpl predicate = new AndPredicateImpl();
+        predicate.addPredicate(new TermPredicateImpl(MessageField.CLIENT_ID, "client-1"));
+        predicate.addPredicate(new RangePredicateImpl(MessageField.TIMESTAMP, new Date(500L), new Date(1500L)));
+        Assert.assertTrue(CompactMessageMatcher.matches(predicate, message));
+
+        predicate.addPredicate(new RangePredicateImpl("metrics.temperature.dbl", 22.0d, null));
+        Assert.assertFalse(CompactMessageMatcher.matches(predicate, message));
+    }
+
+    @Test(expected = QueryMappingException.class)
+    public void unsupportedPredicateIsRejected() throws Exception {
+        AndPredicateImpl predicate = new AndPredicateImpl();
+        predicate.addPredicate(new TermPredicateImpl(MessageField.CLIENT_ID, "client-1"));
+        predicate.addPredicate(UNSUPPORTED_PREDICATE);
+        CompactMessageMatcher.matches(predicate, CompactMessageWindowTest.newMessage(1000L, "temperature", 21.5d));
+    }
+
+    @Test(expected = QueryMappingException.class)
+    public void unsupportedPredicateIsRejectedByTheValidation() throws Exception {
+        CompactMessageMatcher.validate(new AndPredicateImpl().addPredicate(UNSUPPORTED_PREDICATE));
+    }
+
+    @Test
+    public void windowLevelPredicates() {
+        AndPredicateImpl predicate = new AndPredicateImpl();
+        predicate.addPredicate(new TermPredicateImpl(MessageField.CLIENT_ID, "client-1"));
+        predicate.addPredicate(new ChannelMatchPredicateImpl("sensors/"));
+        Assert.assertTrue(CompactMessageMatcher.isWindowLevel(null));
+        Assert.assertTrue(CompactMessageMatcher.isWindowLevel(predicate));
+
+        predicate.addPredicate(new RangePredicateImpl(MessageField.TIMESTAMP, new Date(500L), new Date(1500L)));
+        Assert.assertFalse(CompactMessageMatcher.isWindowLevel(predicate));
+    }
+
+}
@@ -0,0 +1,90 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Eurotech and/or its affiliates and others
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Eurotech - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.kapua.service.datastore.internal.compact;
+
+import java.math.BigInteger;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.eclipse.kapua.commons.model.id.KapuaEid;
+import org.eclipse.kapua.message.internal.device.data.KapuaDataChannelImpl;
+import org.eclipse.kapua.message.internal.device.data.KapuaDataPayloadImpl;
+import org.eclipse.kapua.service.datastore.internal.model.DatastoreMessageImpl;
+import org.eclipse.kapua.service.datastore.model.DatastoreMessage;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class CompactMessageWindowTest {
+
+    @Test
+    public void messageIdRoundTrip() {
+        String windowId = CompactMessageWindow.getWindowId(new KapuaEid(BigInteger.ONE), "client-1", "sensors/temp", 600000L);
+        String messageId = CompactMessageWindow.getMessageId(windowId, "broker#1:12");
+        Assert.assertTrue(CompactMessageWindow.isCompactMessageId(messageId));
+        Assert.assertFalse(CompactMessageWindow.isCompactMessageId(windowId));
+        Assert.assertEquals(windowId, CompactMessageWindow.getWindowIdFromMessageId(messageId));
+        // the broker message identifier may contain the separator
+        Assert.assertEquals("broker#1:12", CompactMessageWindow.getMessageKeyFromMessageId(messageId));
+    }
+
+    @Test
+    public void appendAndRebuild() {
+        CompactMessageWindow window = newWindow();
+        Assert.assertTrue(window.append(newMessage(1000L, "temperature", 21.5d), "m1"));
+        Assert.assertTrue(window.append(newMessage(2000L, "humidity", 40), "m2"));
+        // redelivered message
+        Assert.assertFalse(window.append(newMessage(1000L, "temperature", 21.5d), "m1"));
+        Assert.assertEquals(2, window.size());
+        Assert.assertEquals(Arrays.asList("m1", "m2"), window.getMessageIds());
+        Assert.assertEquals(1, window.indexOf("m2"));
+        Assert.assertEquals(-1, window.indexOf("m3"));
+
+        DatastoreMessage first = window.getMessage(0);
+        Assert.assertEquals(new Date(1000L), first.getTimestamp());
+        Assert.assertEquals(21.5d, first.getPayload().getMetrics().get("temperature"));
+        Assert.assertNull(first.getPayload().getMetrics().get("humidity"));
+        DatastoreMessage second = window.getMessage(1);
+        Assert.assertEquals(40, second.getPayload().getMetrics().get("humidity"));
+        Assert.assertEquals(CompactMessageWindow.getMessageId(window.getId(), "m2"), second.getDatastoreId().toString());
+    }
+
+    static CompactMessageWindow newWindow() {
+        CompactMessageWindow window = new CompactMessageWindow();
+        window.setId(CompactMessageWindow.getWindowId(new KapuaEid(BigInteger.ONE), "client-1", "sensors/temp", 0L));
+        window.setScopeId(new KapuaEid(BigInteger.ONE));
+        window.setClientId("client-1");
+        window.setChannel("sensors/temp");
+        window.setChannelParts(Arrays.asList("sensors", "temp"));
+        window.setWindowStart(new Date(0L));
+        return window;
+    }
+
+    static DatastoreMessage newMessage(long timestamp, String metricName, Object metricValue) {
+        DatastoreMessageImpl message = new DatastoreMessageImpl();
+        message.setScopeId(new KapuaEid(BigInteger.ONE));
+        message.setClientId("client-1");
+        KapuaDataChannelImpl channel = new KapuaDataChannelImpl();
+        channel.setSemanticParts(Arrays.asList("sensors", "temp"));
+        message.setChannel(channel);
+        message.setTimestamp(new Date(timestamp));
+        message.setReceivedOn(new Date(timestamp));
+        Map<String, Object> metrics = new HashMap<>();
+        metrics.put(metricName, metricValue);
+        KapuaDataPayloadImpl payload = new KapuaDataPayloadImpl();
+        payload.setMetrics(metrics);
+        message.setPayload(payload);
+        return message;
+    }
+
+}
@@ -0,0 +1,194 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Eurotech and/or its affiliates and others
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Eurotech - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.kapua.service.datastore.internal.compact;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import org.eclipse.kapua.model.id.KapuaId;
+import org.eclipse.kapua.service.datastore.client.ClientCommunicationException;
+import org.eclipse.kapua.service.datastore.client.ClientException;
+import org.eclipse.kapua.service.datastore.client.DatastoreClient;
+import org.eclipse.kapua.service.datastore.client.model.BulkUpdateRequest;
+import org.eclipse.kapua.service.datastore.client.model.BulkUpdateResponse;
+import org.eclipse.kapua.service.datastore.client.model.ScriptUpdateRequest;
+import org.eclipse.kapua.service.datastore.client.model.UpdateRequest;
+import org.eclipse.kapua.service.datastore.client.model.UpdateResponse;
+import org.eclipse.kapua.service.datastore.model.DatastoreMessage;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class CompactMessageWriterTest {
+
+    private final List<BulkUpdateRequest> bulkRequests = new CopyOnWriteArrayList<>();
+    private volatile String itemFailure;
+    private volatile ClientException bulkFailure;
+    private volatile String fullSegmentId;
+    private volatile CompactMessageWindow fullSegment;
+    private CompactMessageWriter writer;
+
+    @After
+    public void tearDown() {
+        if (writer != null) {
+            writer.stop();
+        }
+    }
+
+    @Test
+    public void storeWaitsForTheScriptedAppend() throws Exception {
+        writer = startWriter();
+        DatastoreMessage message = CompactMessageWindowTest.newMessage(1000L, "temperature", 21.5d);
+        String messageId = writer.store(message, "m1", "index-1").toString();
+
+        Assert.assertEquals(1, bulkRequests.size());
+        UpdateRequest updateRequest = bulkRequests.get(0).getRequest().get(0);
+        Assert.assertTrue(updateRequest instanceof ScriptUpdateRequest);
+        Assert.assertEquals("index-1", updateRequest.getTypeDescriptor().getIndex());
+        CompactMessageWindow window = (CompactMessageWindow) updateRequest.getStorable();
+        Assert.assertEquals(Arrays.asList("m1"), window.getMessageIds());
+        Assert.assertEquals(0, window.getSegment());
+        Assert.assertEquals(CompactMessageWindow.getMessageId(window.getId(), "m1"), messageId);
+        Assert.assertEquals(1000, ((ScriptUpdateRequest) updateRequest).getParams().get("max_messages"));
+    }
+
+    @Test
+    public void fullSegmentMovesTheMessagesToTheNextSegment() {
+        writer = new CompactMessageWriter(newClient(), 600000L, 1000L, 100, 1000, 1);
+        List<CompactMessageWriter.PendingMessage> commitGroup = new ArrayList<>();
+        commitGroup.add(newPendingMessage(1000L, "m1"));
+        commitGroup.add(newPendingMessage(2000L, "m2"));
+        String windowId = commitGroup.get(0).getWindowId();
+        // the first segment is full and already holds the redelivered m1
+        fullSegmentId = CompactMessageWindow.getSegmentId(windowId, 0);
+        fullSegment = CompactMessageWindowTest.newWindow();
+        fullSegment.append(CompactMessageWindowTest.newMessage(1000L, "temperature", 21.5d), "m1");
+        writer.commit(commitGroup);
+
+        Assert.assertEquals(2, bulkRequests.size());
+        CompactMessageWindow window = (CompactMessageWindow) bulkRequests.get(1).getRequest().get(0).getStorable();
+        Assert.assertEquals(1, window.getSegment());
+        Assert.assertEquals(CompactMessageWindow.getSegmentId(windowId, 1), window.getId());
+        Assert.assertEquals(Arrays.asList("m2"), window.getMessageIds());
+        Assert.assertEquals(fullSegmentId, commitGroup.get(0).getResult().join());
+        Assert.assertEquals(window.getId(), commitGroup.get(1).getResult().join());
+
+        // the following messages of the window go straight to the open segment
+        List<CompactMessageWriter.PendingMessage> nextCommitGroup = new ArrayList<>();
+        nextCommitGroup.add(newPendingMessage(3000L, "m3"));
+        writer.commit(nextCommitGroup);
+
+        Assert.assertEquals(3, bulkRequests.size());
+        Assert.assertEquals(window.getId(), bulkRequests.get(2).getRequest().get(0).getId());
+        Assert.assertEquals(window.getId(), nextCommitGroup.get(0).getResult().join());
+    }
+
+    @Test
+    public void segmentIdentifiers() {
+        String windowId = CompactMessageWindow.getWindowId(KapuaId.ONE, "client-1", "telemetry/temperature", 0L);
+        Assert.assertEquals(windowId, CompactMessageWindow.getSegmentId(windowId, 0));
+        Assert.assertNotEquals(windowId, CompactMessageWindow.getSegmentId(windowId, 1));
+        Assert.assertNotEquals(CompactMessageWindow.getSegmentId(windowId, 1), CompactMessageWindow.getSegmentId(windowId, 2));
+        Assert.assertEquals(CompactMessageWindow.getSegmentId(windowId, 1), CompactMessageWindow.getSegmentId(windowId, 1));
+    }
+
+    @Test
+    public void commitGroupsTheMessagesByWindow() {
+        writer = new CompactMessageWriter(newClient(), 600000L, 1000L, 100, 1000, 1);
+        List<CompactMessageWriter.PendingMessage> commitGroup = new ArrayList<>();
+        commitGroup.add(newPendingMessage(1000L, "m1"));
+        commitGroup.add(newPendingMessage(2000L, "m2"));
+        // redelivered while the first delivery is waiting for the commit
+        commitGroup.add(newPendingMessage(1000L, "m1"));
+        writer.commit(commitGroup);
+
+        Assert.assertEquals(1, bulkRequests.size());
+        Assert.assertEquals(1, bulkRequests.get(0).getRequest().size());
+        CompactMessageWindow window = (CompactMessageWindow) bulkRequests.get(0).getRequest().get(0).getStorable();
+        Assert.assertEquals(Arrays.asList("m1", "m2"), window.getMessageIds());
+        for (CompactMessageWriter.PendingMessage pendingMessage : commitGroup) {
+            Assert.assertTrue(pendingMessage.getResult().isDone());
+            Assert.assertFalse(pendingMessage.getResult().isCompletedExceptionally());
+        }
+    }
+
+    @Test
+    public void rejectedWindowFailsTheStore() throws Exception {
+        writer = startWriter();
+        itemFailure = "mapper_parsing_exception";
+        try {
+            writer.store(CompactMessageWindowTest.newMessage(1000L, "temperature", 21.5d), "m1", "index-1");
+            Assert.fail("The store must fail");
+        } catch (ClientException e) {
+            Assert.assertFalse(e instanceof ClientCommunicationException);
+        }
+    }
+
+    @Test
+    public void communicationErrorReachesTheCaller() throws Exception {
+        writer = startWriter();
+        bulkFailure = new ClientCommunicationException("unreachable", null);
+        try {
+            writer.store(CompactMessageWindowTest.newMessage(1000L, "temperature", 21.5d), "m1", "index-1");
+            Assert.fail("The store must fail");
+        } catch (ClientCommunicationException e) {
+            Assert.assertSame(bulkFailure, e);
+        }
+    }
+
+    @Test(expected = ClientCommunicationException.class)
+    public void stoppedWriterRejectsTheMessages() throws Exception {
+        writer = startWriter();
+        writer.stop();
+        writer.store(CompactMessageWindowTest.newMessage(1000L, "temperature", 21.5d), "m1", "index-1");
+    }
+
+    private CompactMessageWriter startWriter() {
+        CompactMessageWriter startedWriter = new CompactMessageWriter(newClient(), 600000L, 5000L, 100, 1000, 2);
+        startedWriter.start();
+        return startedWriter;
+    }
+
+    private CompactMessageWriter.PendingMessage newPendingMessage(long timestamp, String messageKey) {
+        DatastoreMessage message = CompactMessageWindowTest.newMessage(timestamp, "temperature", 21.5d);
+        String windowId = CompactMessageWindow.getWindowId(message.getScopeId(), message.getClientId(), message.getChannel().toString(), 0L);
+        return new CompactMessageWriter.PendingMessage(windowId, 0L, "index-1", message, messageKey);
+    }
+
+    private DatastoreClient newClient() {
+        return (DatastoreClient) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[] { DatastoreClient.class }, (proxy, method, args) -> {
+            if ("upsert".equals(method.getName()) && args[0] instanceof BulkUpdateRequest) {
+                if (bulkFailure != null) {
+                    throw bulkFailure;
+                }
+                BulkUpdateRequest bulkRequest = (BulkUpdateRequest) args[0];
+                bulkRequests.add(bulkRequest);
+                BulkUpdateResponse bulkResponse = new BulkUpdateResponse();
+                for (UpdateRequest updateRequest : bulkRequest.getRequest()) {
+                    String failure = updateRequest.getId().equals(fullSegmentId) ? CompactMessageWriter.WINDOW_FULL_ERROR : itemFailure;
+                    bulkResponse.add(failure != null ?
+                            new UpdateResponse(updateRequest.getId(), updateRequest.getTypeDescriptor(), failure) :
+                            new UpdateResponse(updateRequest.getId(), updateRequest.getTypeDescriptor()));
+                }
+                return bulkResponse;
+            }
+            if ("find".equals(method.getName())) {
+                return fullSegment;
+            }
+            throw new UnsupportedOperationException(method.getName());
+        });
+    }
+
+}
@@ -0,0 +1,123 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Eurotech and/or its affiliates and others
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Eurotech - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.kapua.service.datastore.internal.health;
+
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.kapua.service.datastore.internal.health.DatastoreCircuitBreaker.State;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class DatastoreCircuitBreakerTest {
+
+    private static final long FAST = TimeUnit.MILLISECONDS.toNanos(10);
+    private static final long SLOW = TimeUnit.MILLISECONDS.toNanos(2000);
+
+    @Test
+    public void tripOnFailureRate() {
+        DatastoreCircuitBreaker breaker = new DatastoreCircuitBreaker(10, 4, 0.5, 1000, 60000, 1);
+        breaker.onSuccess(FAST);
+        breaker.onError(FAST);
+        breaker.onSuccess(FAST);
+        Assert.assertEquals(State.CLOSED, breaker.getState());
+        breaker.onError(FAST);
+        Assert.assertEquals(State.OPEN, breaker.getState());
+        Assert.assertFalse(breaker.allowRequest());
+        Assert.assertEquals(1, breaker.getTripCount());
+    }
+
+    @Test
+    public void slowCallsCountAsFailures() {
+        DatastoreCircuitBreaker breaker = new DatastoreCircuitBreaker(4, 4, 0.75, 1000, 60000, 1);
+        breaker.onSuccess(FAST);
+        breaker.onSuccess(SLOW);
+        breaker.onSuccess(SLOW);
+        Assert.assertEquals(State.CLOSED, breaker.getState());
+        breaker.onSuccess(SLOW);
+        Assert.assertEquals(State.OPEN, breaker.getState());
+    }
+
+    @Test
+    public void halfOpenProbes() throws InterruptedException {
+        DatastoreCircuitBreaker breaker = new DatastoreCircuitBreaker(2, 1, 0.5, 1000, 50, 2);
+        breaker.onError(FAST);
+        Assert.assertEquals(State.OPEN, breaker.getState());
+        Assert.assertTrue(breaker.awaitNotOpen(1000));
+
+        // only the configured number of probes is let through
+        Assert.assertTrue(breaker.allowRequest());
+        Assert.assertTrue(breaker.allowRequest());
+        Assert.assertFalse(breaker.allowRequest());
+        Assert.assertEquals(State.HALF_OPEN, breaker.getState());
+
+        breaker.onSuccess(FAST);
+        Assert.assertEquals(State.HALF_OPEN, breaker.getState());
+        breaker.onSuccess(FAST);
+        Assert.assertEquals(State.CLOSED, breaker.getState());
+    }
+
+    @Test
+    public void halfOpenFailureReopens() throws InterruptedException {
+        DatastoreCircuitBreaker breaker = new DatastoreCircuitBreaker(2, 1, 0.5, 1000, 50, 1);
+        breaker.onError(FAST);
+        Assert.assertTrue(breaker.awaitNotOpen(1000));
+        Assert.assertTrue(breaker.allowRequest());
+        breaker.onError(FAST);
+        Assert.assertEquals(State.OPEN, breaker.getState());
+        Assert.assertEquals(2, breaker.getTripCount());
+    }
+
+    @Test
+    public void abortedProbeFreesSlot() throws InterruptedException {
+        DatastoreCircuitBreaker breaker = new DatastoreCircuitBreaker(2, 1, 0.5, 1000, 50, 1);
+        breaker.onError(FAST);
+        Assert.assertTrue(breaker.awaitNotOpen(1000));
+        Assert.assertTrue(breaker.allowRequest());
+        Assert.assertFalse(breaker.allowRequest());
+
+        // an aborted probe neither closes nor reopens the circuit
+        breaker.onAborted();
+        Assert.assertEquals(State.HALF_OPEN, breaker.getState());
+        Assert.assertTrue(breaker.allowRequest());
+        breaker.onSuccess(FAST);
+        Assert.assertEquals(State.CLOSED, breaker.getState());
+    }
+
+    @Test
+    public void concurrencyLimitAdapts() throws InterruptedException {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(1, 4, 1000, 0.5);
+        Assert.assertEquals(4, limiter.getLimit());
+
+        Assert.assertTrue(limiter.tryAcquire(0, TimeUnit.MILLISECONDS));
+        limiter.release(SLOW, true);
+        Assert.assertEquals(2, limiter.getLimit());
+
+        Assert.assertTrue(limiter.tryAcquire(0, TimeUnit.MILLISECONDS));
+        Assert.assertTrue(limiter.tryAcquire(0, TimeUnit.MILLISECONDS));
+        Assert.assertFalse(limiter.tryAcquire(10, TimeUnit.MILLISECONDS));
+        limiter.release(FAST, false);
+        limiter.release(FAST, false);
+        Assert.assertEquals(1, limiter.getLimit());
+        Assert.assertEquals(0, limiter.getInFlight());
+    }
+
+    @Test
+    public void cancelledPermitKeepsLimit() throws InterruptedException {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(1, 2, 1000, 0.5);
+        Assert.assertTrue(limiter.tryAcquire(0, TimeUnit.MILLISECONDS));
+        Assert.assertTrue(limiter.tryAcquire(0, TimeUnit.MILLISECONDS));
+        limiter.cancel();
+        limiter.cancel();
+        Assert.assertEquals(2, limiter.getLimit());
+        Assert.assertEquals(0, limiter.getInFlight());
+    }
+}
@@ -0,0 +1,121 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Eurotech and/or its affiliates and others
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Eurotech - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.kapua.service.datastore.internal.journal;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+public class SpillJournalTest {
+
+    private Path directory;
+
+    @Before
+    public void createDirectory() throws IOException {
+        directory = Files.createTempDirectory("spill-journal-test");
+    }
+
+    @After
+    public void deleteDirectory() throws IOException {
+        Files.walk(directory)
+                .sorted(Comparator.reverseOrder())
+                .forEach(path -> path.toFile().delete());
+    }
+
+    @Test
+    public void appendReadCommit() throws IOException {
+        SpillJournal journal = new SpillJournal(directory, 1024, 4);
+        Assert.assertTrue(journal.isEmpty());
+        Assert.assertTrue(journal.append(record(1)));
+        Assert.assertTrue(journal.append(record(2)));
+        Assert.assertTrue(journal.append(record(3)));
+        Assert.assertFalse(journal.isEmpty());
+
+        SpillJournal.Batch batch = journal.read(2);
+        Assert.assertEquals(2, batch.getRecords().size());
+        Assert.assertEquals("record-1", value(batch.getRecords().get(0)));
+        Assert.assertEquals("record-2", value(batch.getRecords().get(1)));
+
+        // not committed batches are read again
+        Assert.assertEquals(2, journal.read(2).getRecords().size());
+        journal.commit(batch);
+
+        batch = journal.read(10);
+        Assert.assertEquals(1, batch.getRecords().size());
+        Assert.assertEquals("record-3", value(batch.getRecords().get(0)));
+        journal.commit(batch);
+        Assert.assertTrue(journal.isEmpty());
+        journal.close();
+    }
+
+    @Test
+    public void segmentRotation() throws IOException {
+        // each record takes 8 + 10 bytes, so 3 records fit in a segment
+        SpillJournal journal = new SpillJournal(directory, 60, 3);
+        for (int i = 0; i < 9; i++) {
+            Assert.assertTrue(journal.append(record(i)));
+        }
+        Assert.assertEquals(3, journal.getSegmentCount());
+        // maximum number of segments reached
+        Assert.assertFalse(journal.append(record(9)));
+
+        SpillJournal.Batch batch = journal.read(7);
+        Assert.assertEquals(7, batch.getRecords().size());
+        Assert.assertEquals("record-6", value(batch.getRecords().get(6)));
+        journal.commit(batch);
+        Assert.assertEquals(1, journal.getSegmentCount());
+
+        Assert.assertTrue(journal.append(record(9)));
+        batch = journal.read(10);
+        Assert.assertEquals(3, batch.getRecords().size());
+        Assert.assertEquals("record-9", value(batch.getRecords().get(2)));
+        journal.commit(batch);
+        Assert.assertTrue(journal.isEmpty());
+        journal.close();
+    }
+
+    @Test
+    public void recovery() throws IOException {
+        SpillJournal journal = new SpillJournal(directory, 60, 10);
+        for (int i = 0; i < 5; i++) {
+            journal.append(record(i));
+        }
+        journal.commit(journal.read(2));
+        journal.close();
+
+        SpillJournal recovered = new SpillJournal(directory, 60, 10);
+        SpillJournal.Batch batch = recovered.read(10);
+        Assert.assertEquals(3, batch.getRecords().size());
+        Assert.assertEquals("record-2", value(batch.getRecords().get(0)));
+        Assert.assertEquals("record-4", value(batch.getRecords().get(2)));
+
+        // appends continue after the recovered records
+        recovered.append(record(5));
+        Assert.assertEquals(4, recovered.read(10).getRecords().size());
+        recovered.close();
+    }
+
+    private static byte[] record(int i) {
+        return ("record-" + i).getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static String value(byte[] record) {
+        return new String(record, StandardCharsets.UTF_8);
+    }
+}
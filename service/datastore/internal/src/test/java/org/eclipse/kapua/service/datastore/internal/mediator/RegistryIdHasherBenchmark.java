@@ -0,0 +1,112 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Eurotech and/or its affiliates and others
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Eurotech - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.kapua.service.datastore.internal.mediator;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import com.google.common.hash.Hashing;
+
+/**
+ * Registry identifiers derivation benchmark: channel and metric identifiers of a message carrying 50 metrics.<br>
+ * Run it from the IDE or with 'mvn test-compile exec:java -Dexec.mainClass=... -Dexec.classpathScope=test' (the profiler can be added to the options,
+ * e.g. '-prof gc' to compare the allocation rate).
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RegistryIdHasherBenchmark {
+
+    private static final int METRICS_COUNT = 50;
+
+    private String scopeId;
+    private String clientId;
+    private String channel;
+    private String[] metricNames;
+    private Class<?>[] metricTypes;
+
+    @Setup
+    public void setup() {
+        scopeId = "AQ";
+        clientId = "gateway-00:11:22:33:44:55";
+        channel = "plant-1/line-4/sensors/environment";
+        metricNames = new String[METRICS_COUNT];
+        metricTypes = new Class<?>[METRICS_COUNT];
+        for (int i = 0; i < METRICS_COUNT; i++) {
+            metricNames[i] = "metric_" + i;
+            metricTypes[i] = i % 2 == 0 ? Double.class : Integer.class;
+        }
+    }
+
+    @Benchmark
+    public void concatenateAndHash(Blackhole blackhole) {
+        blackhole.consume(legacyHashCode(scopeId, clientId, channel));
+        for (int i = 0; i < METRICS_COUNT; i++) {
+            String metricMappedName = String.format("%s.%s", metricNames[i], DatastoreUtils.getClientMetricFromAcronym(DatastoreUtils.convertToClientMetricType(metricTypes[i])));
+            blackhole.consume(legacyHashCode(scopeId, clientId, channel, metricMappedName));
+        }
+    }
+
+    @Benchmark
+    public void streamingHash(Blackhole blackhole) {
+        blackhole.consume(RegistryIdHasher.getHashCode(scopeId, clientId, channel));
+        for (int i = 0; i < METRICS_COUNT; i++) {
+            blackhole.consume(RegistryIdHasher.getHashCode(scopeId, clientId, channel, metricNames[i], ".",
+                    DatastoreUtils.getClientMetricFromAcronym(DatastoreUtils.convertToClientMetricType(metricTypes[i]))));
+        }
+    }
+
+    @Benchmark
+    public void streamingHashWithPrefix(Blackhole blackhole) {
+        RegistryIdHasher.Prefix prefix = RegistryIdHasher.newPrefix(scopeId, clientId, channel);
+        blackhole.consume(prefix.getHashCode());
+        for (int i = 0; i < METRICS_COUNT; i++) {
+            blackhole.consume(MetricInfoField.deriveId(prefix, metricNames[i], metricTypes[i]));
+        }
+    }
+
+    private static String legacyHashCode(String... components) {
+        String concatString = "";
+        for (String str : components) {
+            concatString = concatString.concat(str);
+        }
+        return Base64.getEncoder().encodeToString(Hashing.sha256().hashString(concatString, StandardCharsets.UTF_8).asBytes());
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options options = new OptionsBuilder()
+                .include(RegistryIdHasherBenchmark.class.getSimpleName())
+                .build();
+        new Runner(options).run();
+    }
+
+}
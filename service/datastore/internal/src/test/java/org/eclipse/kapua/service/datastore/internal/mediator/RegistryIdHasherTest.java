@@ -0,0 +1,72 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Eurotech and/or its affiliates and others
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Eurotech - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.kapua.service.datastore.internal.mediator;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.google.common.hash.Hashing;
+
+public class RegistryIdHasherTest {
+
+    @Test
+    public void sameHashCodeOfConcatenatedComponents() {
+        assertCompatible("AQ", "client-1", "sensors/temperature", "temperature.dbl");
+        assertCompatible("AQ", "", "");
+        assertCompatible("caf\u00e9", "\u6e29\u5ea6", "\ud83d\ude00");
+        // surrogate pair split between two components
+        assertCompatible("AQ", "client\ud83d", "\ude00channel");
+        // malformed surrogates
+        assertCompatible("\ud83d", "x\ude00", "\ud83d");
+    }
+
+    @Test
+    public void randomComponents() {
+        Random random = new Random(42);
+        for (int i = 0; i < 1000; i++) {
+            String[] components = new String[1 + random.nextInt(4)];
+            for (int j = 0; j < components.length; j++) {
+                char[] chars = new char[random.nextInt(300)];
+                for (int k = 0; k < chars.length; k++) {
+                    chars[k] = (char) (random.nextBoolean() ? random.nextInt(0x80) : random.nextInt(0x10000));
+                }
+                components[j] = new String(chars);
+            }
+            assertCompatible(components);
+        }
+    }
+
+    @Test
+    public void prefixHashCode() {
+        RegistryIdHasher.Prefix prefix = RegistryIdHasher.newPrefix("AQ", "client-1", "sensors/temperature");
+        Assert.assertEquals(legacyHashCode("AQ", "client-1", "sensors/temperature"), prefix.getHashCode());
+        Assert.assertEquals(legacyHashCode("AQ", "client-1", "sensors/temperature", "temperature.dbl"), prefix.getHashCode("temperature", ".", "dbl"));
+        Assert.assertEquals(legacyHashCode("AQ", "client-1", "sensors/temperature", "humidity.int"), prefix.getHashCode("humidity", ".", "int"));
+    }
+
+    private static void assertCompatible(String... components) {
+        Assert.assertEquals(legacyHashCode(components), RegistryIdHasher.getHashCode(components));
+    }
+
+    private static String legacyHashCode(String... components) {
+        String concatString = "";
+        for (String str : components) {
+            concatString = concatString.concat(str);
+        }
+        return Base64.getEncoder().encodeToString(Hashing.sha256().hashString(concatString, StandardCharsets.UTF_8).asBytes());
+    }
+
+}
@@ -44,4 +44,14 @@ public class DeviceBundleStartTargetProcessor extends AbstractTargetProcessor im
 
         KapuaSecurityUtils.doPrivileged(() -> BUNDLE_MANAGEMENT_SERVICE.start(jobTarget.getScopeId(), jobTarget.getJobTargetId(), bundleId, timeout));
     }
+
+    /**
+     * Starting a bundle that has already been started has no further effect, so the request is the bundle id.
+     */
+    @Override
+    protected String getIdempotentRequest() throws KapuaException {
+        setContext(jobContext, stepContext);
+
+        return stepContextWrapper.getStepProperty(DeviceBundlePropertyKeys.BUNDLE_ID, String.class);
+    }
 }
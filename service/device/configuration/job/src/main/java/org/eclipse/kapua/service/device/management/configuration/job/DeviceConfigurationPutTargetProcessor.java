@@ -13,6 +13,7 @@ package org.eclipse.kapua.service.device.management.configuration.job;
 
 import org.eclipse.kapua.KapuaException;
 import org.eclipse.kapua.commons.security.KapuaSecurityUtils;
+import org.eclipse.kapua.commons.util.xml.XmlUtil;
 import org.eclipse.kapua.job.engine.commons.operation.AbstractTargetProcessor;
 import org.eclipse.kapua.locator.KapuaLocator;
 import org.eclipse.kapua.service.device.management.configuration.DeviceConfiguration;
@@ -24,6 +25,7 @@ import org.eclipse.kapua.service.job.targets.JobTarget;
 import javax.batch.runtime.context.JobContext;
 import javax.batch.runtime.context.StepContext;
 import javax.inject.Inject;
+import javax.xml.bind.JAXBException;
 
 public class DeviceConfigurationPutTargetProcessor extends AbstractTargetProcessor implements TargetOperation {
 
@@ -45,4 +47,20 @@ public class DeviceConfigurationPutTargetProcessor extends AbstractTargetProcess
 
         KapuaSecurityUtils.doPrivileged(() -> CONFIGURATION_MANAGEMENT_SERVICE.put(jobTarget.getScopeId(), jobTarget.getJobTargetId(), configuration, timeout));
     }
+
+    /**
+     * Putting the same {@link DeviceConfiguration} again leaves the device configuration unchanged, so the request is the marshalled {@link DeviceConfiguration}.
+     */
+    @Override
+    protected String getIdempotentRequest() throws KapuaException {
+        setContext(jobContext, stepContext);
+
+        DeviceConfiguration configuration = stepContextWrapper.getStepProperty(DeviceConfigurationPutPropertyKeys.CONFIGURATION, DeviceConfiguration.class);
+
+        try {
+            return XmlUtil.marshal(configuration);
+        } catch (JAXBException e) {
+            throw KapuaException.internalError(e, "Cannot marshal the device configuration");
+        }
+    }
 }
@@ -14,6 +14,7 @@ package org.eclipse.kapua.service.device.registry;
 import org.eclipse.kapua.KapuaException;
 import org.eclipse.kapua.model.id.KapuaId;
 import org.eclipse.kapua.model.query.KapuaQuery;
+import org.eclipse.kapua.service.KapuaBatchEntityService;
 import org.eclipse.kapua.service.KapuaDomainService;
 import org.eclipse.kapua.service.KapuaEntityService;
 import org.eclipse.kapua.service.KapuaUpdatableEntityService;
@@ -26,6 +27,7 @@ import org.eclipse.kapua.service.config.KapuaConfigurableService;
  */
 public interface DeviceRegistryService extends KapuaEntityService<Device, DeviceCreator>,
         KapuaUpdatableEntityService<Device>,
+        KapuaBatchEntityService<Device, DeviceCreator>,
         KapuaDomainService<DeviceDomain>,
         KapuaConfigurableService {
 
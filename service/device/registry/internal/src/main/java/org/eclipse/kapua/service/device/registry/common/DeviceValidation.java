@@ -14,16 +14,20 @@ package org.eclipse.kapua.service.device.registry.common;
 
 import org.eclipse.kapua.KapuaEntityNotFoundException;
 import org.eclipse.kapua.KapuaException;
+import org.eclipse.kapua.KapuaIllegalNullArgumentException;
 import org.eclipse.kapua.commons.model.query.predicate.AttributePredicateImpl;
 import org.eclipse.kapua.commons.security.KapuaSecurityUtils;
 import org.eclipse.kapua.commons.util.ArgumentValidator;
 import org.eclipse.kapua.locator.KapuaLocator;
 import org.eclipse.kapua.model.KapuaEntity;
+import org.eclipse.kapua.model.KapuaEntityPredicates;
 import org.eclipse.kapua.model.domain.Actions;
 import org.eclipse.kapua.model.id.KapuaId;
 import org.eclipse.kapua.model.query.KapuaQuery;
 import org.eclipse.kapua.service.authorization.AuthorizationService;
 import org.eclipse.kapua.service.authorization.group.Group;
+import org.eclipse.kapua.service.authorization.group.GroupFactory;
+import org.eclipse.kapua.service.authorization.group.GroupQuery;
 import org.eclipse.kapua.service.authorization.group.GroupService;
 import org.eclipse.kapua.service.authorization.permission.PermissionFactory;
 import org.eclipse.kapua.service.device.registry.Device;
@@ -35,9 +39,15 @@ import org.eclipse.kapua.service.device.registry.DevicePredicates;
 import org.eclipse.kapua.service.device.registry.DeviceQuery;
 import org.eclipse.kapua.service.device.registry.DeviceRegistryService;
 import org.eclipse.kapua.service.tag.Tag;
+import org.eclipse.kapua.service.tag.TagFactory;
+import org.eclipse.kapua.service.tag.TagQuery;
 import org.eclipse.kapua.service.tag.TagService;
 
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 /**
  * Provides logic used to validate preconditions required to execute the device service operation.
@@ -50,7 +60,9 @@ public final class DeviceValidation {
 
     private static AuthorizationService authorizationService;
     private static GroupService groupService;
+    private static GroupFactory groupFactory;
     private static TagService tagService;
+    private static TagFactory tagFactory;
     private static PermissionFactory permissionFactory;
 
     private static DeviceRegistryService deviceRegistryService;
@@ -60,7 +72,9 @@ public final class DeviceValidation {
         try {
             authorizationService = KapuaLocator.getInstance().getService(AuthorizationService.class);
             groupService = KapuaLocator.getInstance().getService(GroupService.class);
+            groupFactory = KapuaLocator.getInstance().getFactory(GroupFactory.class);
             tagService = KapuaLocator.getInstance().getService(TagService.class);
+            tagFactory = KapuaLocator.getInstance().getFactory(TagFactory.class);
             permissionFactory = KapuaLocator.getInstance().getFactory(PermissionFactory.class);
 
             deviceRegistryService = KapuaLocator.getInstance().getService(DeviceRegistryService.class);
@@ -255,4 +269,191 @@ public final class DeviceValidation {
 
         return groupId;
     }
+
+    /**
+     * Batch preconditions validation.<br>
+     * The devices, groups and tags referenced by the items of a chunk are read by {@link #prepareCreate(List)} and {@link #prepareUpdate(List)}
+     * with one query for each scope, instead of one query for each item, and each permission is checked once for the whole batch.<br>
+     * The checks are the same of {@link DeviceValidation#validateCreatePreconditions(DeviceCreator)} and {@link DeviceValidation#validateUpdatePreconditions(Device)}.
+     *
+     * @since 1.0.0
+     */
+    public static final class BatchPreconditions {
+
+        private final Set<String> checkedPermissions = new HashSet<>();
+
+        private Set<String> existingGroups = new HashSet<>();
+        private Set<String> existingTags = new HashSet<>();
+        private Set<String> existingClientIds = new HashSet<>();
+        private Map<String, Device> currentDevices = new HashMap<>();
+
+        /**
+         * Reads the groups and the devices referenced by the chunk {@link DeviceCreator}s
+         *
+         * @param deviceCreators
+         * @throws KapuaException
+         */
+        public void prepareCreate(List<DeviceCreator> deviceCreators) throws KapuaException {
+            Map<KapuaId, Set<KapuaId>> groupIds = new HashMap<>();
+            Map<KapuaId, Set<String>> clientIds = new HashMap<>();
+            for (DeviceCreator deviceCreator : deviceCreators) {
+                if (deviceCreator == null || deviceCreator.getScopeId() == null) {
+                    continue;
+                }
+                if (deviceCreator.getGroupId() != null) {
+                    groupIds.computeIfAbsent(deviceCreator.getScopeId(), scopeId -> new HashSet<>()).add(deviceCreator.getGroupId());
+                }
+                if (deviceCreator.getClientId() != null) {
+                    clientIds.computeIfAbsent(deviceCreator.getScopeId(), scopeId -> new HashSet<>()).add(deviceCreator.getClientId());
+                }
+            }
+
+            existingGroups = findGroups(groupIds);
+            existingClientIds = new HashSet<>();
+            for (Map.Entry<KapuaId, Set<String>> scopeClientIds : clientIds.entrySet()) {
+                DeviceQuery query = deviceFactory.newQuery(scopeClientIds.getKey());
+                query.setPredicate(new AttributePredicateImpl<>(DevicePredicates.CLIENT_ID, scopeClientIds.getValue().toArray(new String[0])));
+                for (Device device : KapuaSecurityUtils.doPrivileged(() -> deviceRegistryService.query(query)).getItems()) {
+                    existingClientIds.add(key(device.getScopeId(), device.getClientId()));
+                }
+            }
+        }
+
+        /**
+         * Validates the device creates precondition, with the data read by {@link #prepareCreate(List)}
+         *
+         * @param deviceCreator
+         * @return
+         * @throws KapuaException
+         */
+        public DeviceCreator validateCreatePreconditions(DeviceCreator deviceCreator) throws KapuaException {
+            ArgumentValidator.notNull(deviceCreator, "deviceCreator");
+            ArgumentValidator.notNull(deviceCreator.getScopeId(), "deviceCreator.scopeId");
+            ArgumentValidator.notEmptyOrNull(deviceCreator.getClientId(), "deviceCreator.clientId");
+
+            if (deviceCreator.getGroupId() != null && !existingGroups.contains(key(deviceCreator.getScopeId(), deviceCreator.getGroupId()))) {
+                throw new KapuaIllegalNullArgumentException("deviceCreator.groupId");
+            }
+
+            checkWritePermission(deviceCreator.getScopeId(), deviceCreator.getGroupId());
+
+            return deviceCreator;
+        }
+
+        /**
+         * Return {@code true} if a device with the given client id was found by {@link #prepareCreate(List)}
+         *
+         * @param scopeId
+         * @param clientId
+         * @return
+         */
+        public boolean isClientIdInUse(KapuaId scopeId, String clientId) {
+            return existingClientIds.contains(key(scopeId, clientId));
+        }
+
+        /**
+         * Reads the current devices and the groups and the tags referenced by the chunk {@link Device}s
+         *
+         * @param devices
+         * @throws KapuaException
+         */
+        public void prepareUpdate(List<Device> devices) throws KapuaException {
+            Map<KapuaId, Set<KapuaId>> deviceIds = new HashMap<>();
+            Map<KapuaId, Set<KapuaId>> groupIds = new HashMap<>();
+            Map<KapuaId, Set<KapuaId>> tagIds = new HashMap<>();
+            for (Device device : devices) {
+                if (device == null || device.getScopeId() == null) {
+                    continue;
+                }
+                if (device.getId() != null) {
+                    deviceIds.computeIfAbsent(device.getScopeId(), scopeId -> new HashSet<>()).add(device.getId());
+                }
+                if (device.getGroupId() != null) {
+                    groupIds.computeIfAbsent(device.getScopeId(), scopeId -> new HashSet<>()).add(device.getGroupId());
+                }
+                if (device.getTagIds() != null) {
+                    tagIds.computeIfAbsent(device.getScopeId(), scopeId -> new HashSet<>()).addAll(device.getTagIds());
+                }
+            }
+
+            currentDevices = new HashMap<>();
+            for (Map.Entry<KapuaId, Set<KapuaId>> scopeDeviceIds : deviceIds.entrySet()) {
+                DeviceQuery query = deviceFactory.newQuery(scopeDeviceIds.getKey());
+                query.setPredicate(new AttributePredicateImpl<>(KapuaEntityPredicates.ENTITY_ID, scopeDeviceIds.getValue().toArray(new KapuaId[0])));
+                for (Device device : KapuaSecurityUtils.doPrivileged(() -> deviceRegistryService.query(query)).getItems()) {
+                    currentDevices.put(key(device.getScopeId(), device.getId()), device);
+                }
+            }
+            existingGroups = findGroups(groupIds);
+            existingTags = new HashSet<>();
+            for (Map.Entry<KapuaId, Set<KapuaId>> scopeTagIds : tagIds.entrySet()) {
+                if (scopeTagIds.getValue().isEmpty()) {
+                    continue;
+                }
+                TagQuery query = tagFactory.newQuery(scopeTagIds.getKey());
+                query.setPredicate(new AttributePredicateImpl<>(KapuaEntityPredicates.ENTITY_ID, scopeTagIds.getValue().toArray(new KapuaId[0])));
+                for (Tag tag : KapuaSecurityUtils.doPrivileged(() -> tagService.query(query)).getItems()) {
+                    existingTags.add(key(tag.getScopeId(), tag.getId()));
+                }
+            }
+        }
+
+        /**
+         * Validates the device updates precondition, with the data read by {@link #prepareUpdate(List)}
+         *
+         * @param device
+         * @return
+         * @throws KapuaException
+         */
+        public Device validateUpdatePreconditions(Device device) throws KapuaException {
+            ArgumentValidator.notNull(device, "device");
+            ArgumentValidator.notNull(device.getId(), "device.id");
+            ArgumentValidator.notNull(device.getScopeId(), "device.scopeId");
+
+            // Check that current user can manage the current group of the device
+            Device currentDevice = currentDevices.get(key(device.getScopeId(), device.getId()));
+            checkWritePermission(device.getScopeId(), currentDevice != null ? currentDevice.getGroupId() : null);
+
+            // Check that current user can manage the target group of the device
+            if (device.getGroupId() != null && !existingGroups.contains(key(device.getScopeId(), device.getGroupId()))) {
+                throw new KapuaIllegalNullArgumentException("device.groupId");
+            }
+            checkWritePermission(device.getScopeId(), device.getGroupId());
+
+            for (KapuaId tagId : device.getTagIds()) {
+                if (!existingTags.contains(key(device.getScopeId(), tagId))) {
+                    throw new KapuaEntityNotFoundException(Tag.TYPE, tagId);
+                }
+            }
+
+            return device;
+        }
+
+        private void checkWritePermission(KapuaId scopeId, KapuaId groupId) throws KapuaException {
+            if (checkedPermissions.add(key(scopeId, groupId))) {
+                try {
+                    authorizationService.checkPermission(permissionFactory.newPermission(DEVICE_DOMAIN, Actions.write, scopeId, groupId));
+                } catch (KapuaException | RuntimeException e) {
+                    checkedPermissions.remove(key(scopeId, groupId));
+                    throw e;
+                }
+            }
+        }
+
+        private static Set<String> findGroups(Map<KapuaId, Set<KapuaId>> groupIds) throws KapuaException {
+            Set<String> groups = new HashSet<>();
+            for (Map.Entry<KapuaId, Set<KapuaId>> scopeGroupIds : groupIds.entrySet()) {
+                GroupQuery query = groupFactory.newQuery(scopeGroupIds.getKey());
+                query.setPredicate(new AttributePredicateImpl<>(KapuaEntityPredicates.ENTITY_ID, scopeGroupIds.getValue().toArray(new KapuaId[0])));
+                for (Group group : KapuaSecurityUtils.doPrivileged(() -> groupService.query(query)).getItems()) {
+                    groups.add(key(group.getScopeId(), group.getId()));
+                }
+            }
+            return groups;
+        }
+
+        private static String key(KapuaId scopeId, Object value) {
+            return scopeId.toCompactId() + "/" + (value instanceof KapuaId ? ((KapuaId) value).toCompactId() : value);
+        }
+    }
 }
@@ -40,6 +40,21 @@ public class DeviceDAO extends ServiceDAO {
      * @return
      */
     public static Device create(EntityManager em, DeviceCreator deviceCreator) {
+        return ServiceDAO.create(em, newDevice(deviceCreator));
+    }
+
+    /**
+     * Creates a new Device in batch, without flushing the entity manager
+     *
+     * @param em
+     * @param deviceCreator
+     * @return
+     */
+    public static Device createInBatch(EntityManager em, DeviceCreator deviceCreator) {
+        return ServiceDAO.createInBatch(em, newDevice(deviceCreator));
+    }
+
+    private static Device newDevice(DeviceCreator deviceCreator) {
         Device device = new DeviceImpl(deviceCreator.getScopeId());
 
         device.setGroupId(deviceCreator.getGroupId());
@@ -70,7 +85,7 @@ public class DeviceDAO extends ServiceDAO {
         device.setConnectionId(deviceCreator.getConnectionId());
         device.setLastEventId(deviceCreator.getLastEventId());
 
-        return ServiceDAO.create(em, device);
+        return device;
     }
 
     /**
@@ -86,6 +101,19 @@ public class DeviceDAO extends ServiceDAO {
         return ServiceDAO.update(em, DeviceImpl.class, deviceImpl);
     }
 
+    /**
+     * Updates the provided device in batch, without flushing the entity manager
+     *
+     * @param em
+     * @param device
+     * @return
+     * @throws KapuaEntityNotFoundException If {@link Device} is not found.
+     */
+    public static Device updateInBatch(EntityManager em, Device device) throws KapuaEntityNotFoundException {
+        DeviceImpl deviceImpl = (DeviceImpl) device;
+        return ServiceDAO.updateInBatch(em, DeviceImpl.class, deviceImpl);
+    }
+
     /**
      * Finds the device by device identifier
      *
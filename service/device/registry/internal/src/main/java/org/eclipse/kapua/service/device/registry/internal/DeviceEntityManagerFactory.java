@@ -11,6 +11,7 @@
  *******************************************************************************/
 package org.eclipse.kapua.service.device.registry.internal;
 
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -37,7 +38,8 @@ public class DeviceEntityManagerFactory extends AbstractEntityManagerFactory {
     private DeviceEntityManagerFactory() {
         super(PERSISTENCE_UNIT_NAME,
                 DATASOURCE_NAME,
-                UNIQUE_CONSTRAINTS);
+                UNIQUE_CONSTRAINTS,
+                Collections.singleton("Device"));
     }
 
     /**
@@ -17,10 +17,16 @@ import org.eclipse.kapua.KapuaEntityNotFoundException;
 import org.eclipse.kapua.KapuaException;
 import org.eclipse.kapua.KapuaIllegalArgumentException;
 import org.eclipse.kapua.commons.configuration.AbstractKapuaConfigurableResourceLimitedService;
+import org.eclipse.kapua.commons.jpa.EntityManager;
 import org.eclipse.kapua.commons.model.query.predicate.AttributePredicateImpl;
+import org.eclipse.kapua.commons.service.internal.BatchItemValidator;
+import org.eclipse.kapua.commons.service.internal.cache.EntityCache;
+import org.eclipse.kapua.commons.service.internal.cache.EntityCacheManager;
 import org.eclipse.kapua.event.ServiceEvent;
 import org.eclipse.kapua.locator.KapuaLocator;
 import org.eclipse.kapua.locator.KapuaProvider;
+import org.eclipse.kapua.model.KapuaBatchItemResult;
+import org.eclipse.kapua.model.KapuaBatchResult;
 import org.eclipse.kapua.model.id.KapuaId;
 import org.eclipse.kapua.model.query.KapuaQuery;
 import org.eclipse.kapua.model.query.predicate.QueryPredicate;
@@ -35,6 +41,12 @@ import org.eclipse.kapua.service.device.registry.common.DeviceValidation;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
 /**
  * {@link DeviceRegistryService} implementation.
  *
@@ -46,6 +58,8 @@ public class DeviceRegistryServiceImpl extends AbstractKapuaConfigurableResource
 
     private static final Logger LOGGER = LoggerFactory.getLogger(DeviceRegistryServiceImpl.class);
 
+    private final EntityCache deviceCache;
+
     /**
      * Constructor
      *
@@ -53,6 +67,7 @@ public class DeviceRegistryServiceImpl extends AbstractKapuaConfigurableResource
      */
     public DeviceRegistryServiceImpl(DeviceEntityManagerFactory deviceEntityManagerFactory) {
         super(DeviceRegistryService.class.getName(), DEVICE_DOMAIN, deviceEntityManagerFactory, DeviceRegistryService.class, DeviceFactory.class);
+        deviceCache = EntityCacheManager.getCache("Device", DeviceImpl.class, deviceEntityManagerFactory);
     }
 
     /**
@@ -80,45 +95,104 @@ public class DeviceRegistryServiceImpl extends AbstractKapuaConfigurableResource
         return entityManagerSession.onTransactedInsert(entityManager -> DeviceDAO.create(entityManager, deviceCreator));
     }
 
+    @Override
+    public KapuaBatchResult<Device> createAll(List<DeviceCreator> deviceCreators) throws KapuaException {
+        DeviceValidation.BatchPreconditions preconditions = new DeviceValidation.BatchPreconditions();
+        Map<KapuaId, Integer> allowedDevices = new HashMap<>();
+        Set<String> batchClientIds = new HashSet<>();
+        return onTransactedBatchInsert(DeviceRegistryService.class, "createAll", deviceCreators, new BatchItemValidator<DeviceCreator>() {
+
+            @Override
+            public void prepare(List<DeviceCreator> chunkItems) throws KapuaException {
+                preconditions.prepareCreate(chunkItems);
+            }
+
+            @Override
+            public void validate(DeviceCreator deviceCreator) throws KapuaException {
+                preconditions.validateCreatePreconditions(deviceCreator);
+
+                // Check duplicates in the batch and in the registry
+                String clientIdKey = deviceCreator.getScopeId().toCompactId() + "/" + deviceCreator.getClientId();
+                if (batchClientIds.contains(clientIdKey) || preconditions.isClientIdInUse(deviceCreator.getScopeId(), deviceCreator.getClientId())) {
+                    throw new KapuaDuplicateNameException(deviceCreator.getClientId());
+                }
+
+                reserveAllowedChildEntity(allowedDevices, deviceCreator.getScopeId(), "max devices reached");
+                batchClientIds.add(clientIdKey);
+            }
+        }, DeviceDAO::createInBatch);
+    }
+
     @Override
     public Device update(Device device) throws KapuaException {
         DeviceValidation.validateUpdatePreconditions(device);
 
-        return entityManagerSession.onTransactedResult(entityManager -> {
-            Device currentDevice = DeviceDAO.find(entityManager, device.getId());
-            if (currentDevice == null) {
-                throw new KapuaEntityNotFoundException(Device.TYPE, device.getId());
+        Device updatedDevice = entityManagerSession.onTransactedResult(entityManager -> DeviceDAO.update(entityManager, mergeDevice(entityManager, device)));
+        deviceCache.invalidate(device.getId());
+        return updatedDevice;
+    }
+
+    @Override
+    public KapuaBatchResult<Device> updateAll(List<Device> devices) throws KapuaException {
+        DeviceValidation.BatchPreconditions preconditions = new DeviceValidation.BatchPreconditions();
+        KapuaBatchResult<Device> batchResult = onTransactedBatchUpdate(DeviceRegistryService.class, "updateAll", devices, DeviceImpl.class,
+                new BatchItemValidator<Device>() {
+
+                    @Override
+                    public void prepare(List<Device> chunkItems) throws KapuaException {
+                        preconditions.prepareUpdate(chunkItems);
+                    }
+
+                    @Override
+                    public void validate(Device device) throws KapuaException {
+                        preconditions.validateUpdatePreconditions(device);
+                    }
+                },
+                (entityManager, device) -> DeviceDAO.updateInBatch(entityManager, mergeDevice(entityManager, device)));
+        for (KapuaBatchItemResult<Device> itemResult : batchResult.getItems()) {
+            if (itemResult.isSucceeded()) {
+                deviceCache.invalidate(itemResult.getEntity().getId());
             }
+        }
+        return batchResult;
+    }
 
-            currentDevice.setStatus(device.getStatus());
-            currentDevice.setDisplayName(device.getDisplayName());
-            currentDevice.setGroupId(device.getGroupId());
-            currentDevice.setSerialNumber(device.getSerialNumber());
-            currentDevice.setModelId(device.getModelId());
-            currentDevice.setImei(device.getImei());
-            currentDevice.setImsi(device.getImsi());
-            currentDevice.setIccid(device.getIccid());
-            currentDevice.setBiosVersion(device.getBiosVersion());
-            currentDevice.setFirmwareVersion(device.getFirmwareVersion());
-            currentDevice.setOsVersion(device.getOsVersion());
-            currentDevice.setJvmVersion(device.getJvmVersion());
-            currentDevice.setOsgiFrameworkVersion(device.getOsgiFrameworkVersion());
-            currentDevice.setApplicationFrameworkVersion(device.getApplicationFrameworkVersion());
-            currentDevice.setApplicationIdentifiers(device.getApplicationIdentifiers());
-            currentDevice.setAcceptEncoding(device.getAcceptEncoding());
-            currentDevice.setCustomAttribute1(device.getCustomAttribute1());
-            currentDevice.setCustomAttribute2(device.getCustomAttribute2());
-            currentDevice.setCustomAttribute3(device.getCustomAttribute3());
-            currentDevice.setCustomAttribute4(device.getCustomAttribute4());
-            currentDevice.setCustomAttribute5(device.getCustomAttribute5());
-
-            currentDevice.setConnectionId(device.getConnectionId());
-            currentDevice.setLastEventId(device.getLastEventId());
-
-            currentDevice.setTagIds(device.getTagIds());
-            // Update
-            return DeviceDAO.update(entityManager, currentDevice);
-        });
+    /**
+     * Copies the updatable fields of the given {@link Device} to the current {@link Device}
+     */
+    private static Device mergeDevice(EntityManager entityManager, Device device) throws KapuaEntityNotFoundException {
+        Device currentDevice = DeviceDAO.find(entityManager, device.getId());
+        if (currentDevice == null) {
+            throw new KapuaEntityNotFoundException(Device.TYPE, device.getId());
+        }
+
+        currentDevice.setStatus(device.getStatus());
+        currentDevice.setDisplayName(device.getDisplayName());
+        currentDevice.setGroupId(device.getGroupId());
+        currentDevice.setSerialNumber(device.getSerialNumber());
+        currentDevice.setModelId(device.getModelId());
+        currentDevice.setImei(device.getImei());
+        currentDevice.setImsi(device.getImsi());
+        currentDevice.setIccid(device.getIccid());
+        currentDevice.setBiosVersion(device.getBiosVersion());
+        currentDevice.setFirmwareVersion(device.getFirmwareVersion());
+        currentDevice.setOsVersion(device.getOsVersion());
+        currentDevice.setJvmVersion(device.getJvmVersion());
+        currentDevice.setOsgiFrameworkVersion(device.getOsgiFrameworkVersion());
+        currentDevice.setApplicationFrameworkVersion(device.getApplicationFrameworkVersion());
+        currentDevice.setApplicationIdentifiers(device.getApplicationIdentifiers());
+        currentDevice.setAcceptEncoding(device.getAcceptEncoding());
+        currentDevice.setCustomAttribute1(device.getCustomAttribute1());
+        currentDevice.setCustomAttribute2(device.getCustomAttribute2());
+        currentDevice.setCustomAttribute3(device.getCustomAttribute3());
+        currentDevice.setCustomAttribute4(device.getCustomAttribute4());
+        currentDevice.setCustomAttribute5(device.getCustomAttribute5());
+
+        currentDevice.setConnectionId(device.getConnectionId());
+        currentDevice.setLastEventId(device.getLastEventId());
+
+        currentDevice.setTagIds(device.getTagIds());
+        return currentDevice;
     }
 
     @Override
@@ -143,6 +217,7 @@ public class DeviceRegistryServiceImpl extends AbstractKapuaConfigurableResource
     public void delete(KapuaId scopeId, KapuaId deviceId) throws KapuaException {
         DeviceValidation.validateDeletePreconditions(scopeId, deviceId);
         entityManagerSession.onTransactedAction(entityManager -> DeviceDAO.delete(entityManager, deviceId));
+        deviceCache.invalidate(deviceId);
     }
 
     @Override
@@ -153,16 +228,14 @@ public class DeviceRegistryServiceImpl extends AbstractKapuaConfigurableResource
         QueryPredicate predicate = new AttributePredicateImpl<>(DevicePredicates.CLIENT_ID, clientId);
         query.setFetchAttributes(Lists.newArrayList(DevicePredicates.CONNECTION, DevicePredicates.LAST_EVENT));
         query.setPredicate(predicate);
+        DeviceValidation.validateQueryPreconditions(query);
 
         //
-        // Query and parse result
-        Device device = null;
-        DeviceListResult result = query(query);
-        if (!result.isEmpty()) {
-            device = result.getFirstItem();
-        }
-
-        return device;
+        // Query and parse result (the device id is cached by client id, the connection and the last event are loaded on access)
+        return entityManagerSession.onResult(entityManager -> deviceCache.findByKey(entityManager, DeviceImpl.class, scopeId, clientId, () -> {
+            DeviceListResult result = DeviceDAO.query(entityManager, query);
+            return result.isEmpty() ? null : result.getFirstItem();
+        }));
     }
 
     //@ListenServiceEvent(fromAddress="account")
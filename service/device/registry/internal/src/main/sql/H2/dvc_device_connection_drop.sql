@@ -12,6 +12,7 @@
 
 DROP TABLE IF EXISTS DATABASECHANGELOG;
 
+DROP TABLE IF EXISTS act_account_closure;
 DROP TABLE IF EXISTS act_account;
 
 DROP TABLE IF EXISTS atht_credential;
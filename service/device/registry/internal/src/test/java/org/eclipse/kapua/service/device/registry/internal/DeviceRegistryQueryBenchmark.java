@@ -0,0 +1,167 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Eurotech and/or its affiliates and others
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Eurotech - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.kapua.service.device.registry.internal;
+
+import java.math.BigInteger;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.kapua.KapuaException;
+import org.eclipse.kapua.commons.configuration.KapuaConfigurableServiceSchemaUtils;
+import org.eclipse.kapua.commons.configuration.metatype.KapuaMetatypeFactoryImpl;
+import org.eclipse.kapua.commons.model.id.KapuaEid;
+import org.eclipse.kapua.commons.model.query.FieldSortCriteria;
+import org.eclipse.kapua.commons.model.query.FieldSortCriteria.SortOrder;
+import org.eclipse.kapua.commons.model.query.predicate.AndPredicateImpl;
+import org.eclipse.kapua.commons.model.query.predicate.AttributePredicateImpl;
+import org.eclipse.kapua.commons.security.KapuaSecurityUtils;
+import org.eclipse.kapua.commons.security.KapuaSession;
+import org.eclipse.kapua.commons.service.internal.QueryPlanCache;
+import org.eclipse.kapua.commons.util.xml.XmlUtil;
+import org.eclipse.kapua.model.id.KapuaId;
+import org.eclipse.kapua.model.query.predicate.AttributePredicate.Operator;
+import org.eclipse.kapua.service.authorization.AuthorizationService;
+import org.eclipse.kapua.service.authorization.permission.Permission;
+import org.eclipse.kapua.service.authorization.permission.PermissionFactory;
+import org.eclipse.kapua.service.device.registry.DeviceCreator;
+import org.eclipse.kapua.service.device.registry.DeviceFactory;
+import org.eclipse.kapua.service.device.registry.DevicePredicates;
+import org.eclipse.kapua.service.device.registry.DeviceQuery;
+import org.eclipse.kapua.service.device.registry.DeviceRegistryService;
+import org.eclipse.kapua.service.device.registry.DeviceStatus;
+import org.eclipse.kapua.service.device.registry.RegistryJAXBContextProvider;
+import org.eclipse.kapua.service.liquibase.KapuaLiquibaseClient;
+import org.eclipse.kapua.test.KapuaTest;
+import org.eclipse.kapua.test.MockedLocator;
+import org.mockito.Matchers;
+import org.mockito.Mockito;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * {@link DeviceRegistryService#query} and {@link DeviceRegistryService#count} benchmark on the H2 in memory database.<br>
+ * It compares the criteria query path (query plan cache disabled), the cold query plan path (plan built on each call) and the warm query plan path.<br>
+ * Run it from the IDE or with 'mvn test-compile exec:java -Dexec.mainClass=... -Dexec.classpathScope=test'.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DeviceRegistryQueryBenchmark extends KapuaTest {
+
+    private static final String CREATE_DEVICE_TABLES = "dvc_*_create.sql";
+    private static final String DROP_DEVICE_TABLES = "dvc_*_drop.sql";
+    private static final String DEFAULT_COMMONS_PATH = "../../../../commons";
+    private static final String QUERY_PLAN_CACHE_DISABLED = "-Dcommons.db.query.plan.cache.enabled=false";
+
+    private static final int DEVICES_COUNT = 1000;
+
+    private final KapuaId scopeId = new KapuaEid(BigInteger.ONE);
+
+    private DeviceRegistryService deviceRegistryService;
+    private DeviceQuery query;
+
+    @Setup
+    public void setup() throws Exception {
+        enableH2Connection();
+        new KapuaLiquibaseClient("jdbc:h2:mem:kapua;MODE=MySQL", "kapua", "kapua").update();
+        scriptSession(DeviceEntityManagerFactory.instance(), CREATE_DEVICE_TABLES);
+        KapuaConfigurableServiceSchemaUtils.createSchemaObjects(DEFAULT_COMMONS_PATH);
+
+        MockedLocator mockLocator = (MockedLocator) locator;
+        AuthorizationService mockedAuthorization = Mockito.mock(AuthorizationService.class);
+        Mockito.doNothing().when(mockedAuthorization).checkPermission(Matchers.any(Permission.class));
+        mockLocator.setMockedService(AuthorizationService.class, mockedAuthorization);
+        mockLocator.setMockedFactory(PermissionFactory.class, Mockito.mock(PermissionFactory.class));
+
+        deviceRegistryService = new DeviceRegistryServiceImpl();
+        mockLocator.setMockedService(DeviceRegistryService.class, deviceRegistryService);
+        DeviceFactory deviceFactory = new DeviceFactoryImpl();
+        mockLocator.setMockedFactory(DeviceFactory.class, deviceFactory);
+        mockLocator.setMockedFactory(org.eclipse.kapua.model.config.metatype.KapuaMetatypeFactory.class, new KapuaMetatypeFactoryImpl());
+
+        KapuaSecurityUtils.setSession(new KapuaSession(null, scopeId, scopeId));
+        XmlUtil.setContextProvider(new RegistryJAXBContextProvider());
+
+        for (int i = 0; i < DEVICES_COUNT; i++) {
+            DeviceCreator deviceCreator = deviceFactory.newCreator(scopeId, String.format("device_%04d", i));
+            deviceCreator.setDisplayName("Device " + i);
+            deviceCreator.setStatus(i % 10 == 0 ? DeviceStatus.DISABLED : DeviceStatus.ENABLED);
+            deviceRegistryService.create(deviceCreator);
+        }
+
+        query = new DeviceQueryImpl(scopeId);
+        AndPredicateImpl andPredicate = new AndPredicateImpl();
+        andPredicate.and(new AttributePredicateImpl<>(DevicePredicates.CLIENT_ID, "device_01", Operator.STARTS_WITH));
+        andPredicate.and(new AttributePredicateImpl<>(DevicePredicates.STATUS, DeviceStatus.ENABLED));
+        query.setPredicate(andPredicate);
+        query.setSortCriteria(new FieldSortCriteria(DevicePredicates.CLIENT_ID, SortOrder.DESCENDING));
+        query.setLimit(50);
+    }
+
+    @TearDown
+    public void tearDown() throws KapuaException {
+        scriptSession(DeviceEntityManagerFactory.instance(), DROP_DEVICE_TABLES);
+        KapuaConfigurableServiceSchemaUtils.dropSchemaObjects(DEFAULT_COMMONS_PATH);
+        KapuaSecurityUtils.clearSession();
+    }
+
+    @Benchmark
+    @Fork(value = 1, jvmArgsAppend = QUERY_PLAN_CACHE_DISABLED)
+    public Object criteriaQuery() throws KapuaException {
+        return deviceRegistryService.query(query);
+    }
+
+    @Benchmark
+    public Object coldPlanQuery() throws KapuaException {
+        QueryPlanCache.getInstance().clear();
+        return deviceRegistryService.query(query);
+    }
+
+    @Benchmark
+    public Object warmPlanQuery() throws KapuaException {
+        return deviceRegistryService.query(query);
+    }
+
+    @Benchmark
+    @Fork(value = 1, jvmArgsAppend = QUERY_PLAN_CACHE_DISABLED)
+    public long criteriaCount() throws KapuaException {
+        return deviceRegistryService.count(query);
+    }
+
+    @Benchmark
+    public long warmPlanCount() throws KapuaException {
+        return deviceRegistryService.count(query);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options options = new OptionsBuilder()
+                .include(DeviceRegistryQueryBenchmark.class.getSimpleName())
+                .build();
+        new Runner(options).run();
+    }
+
+}
@@ -38,4 +38,38 @@ public interface JobExecutionCreator extends KapuaUpdatableEntityCreator<JobExec
     Date getStartedOn();
 
     void setStartedOn(Date startedOn);
+
+    /**
+     * Gets the number of {@link org.eclipse.kapua.service.job.targets.JobTarget}s that the {@link JobExecution} will process.
+     *
+     * @return The number of targets of the {@link JobExecution}.
+     * @since 1.0.0
+     */
+    long getTotalTargets();
+
+    /**
+     * Sets the number of {@link org.eclipse.kapua.service.job.targets.JobTarget}s that the {@link JobExecution} will process.
+     *
+     * @param totalTargets The number of targets of the {@link JobExecution}.
+     * @since 1.0.0
+     */
+    void setTotalTargets(long totalTargets);
+
+    /**
+     * Gets the number of {@link org.eclipse.kapua.service.job.step.JobStep}s of the {@link JobExecution} whose progress counters are created with it.
+     *
+     * @return The number of steps of the {@link JobExecution}.
+     * @since 1.0.0
+     */
+    int getStepCount();
+
+    /**
+     * Sets the number of {@link org.eclipse.kapua.service.job.step.JobStep}s of the {@link JobExecution} whose progress counters are created with it.<br>
+     * The counters of a step which are not created with the {@link JobExecution} are created by the first update of its progress,
+     * so the step count must be set when the targets of a step are processed concurrently by more job engine nodes.
+     *
+     * @param stepCount The number of steps of the {@link JobExecution}.
+     * @since 1.0.0
+     */
+    void setStepCount(int stepCount);
 }
@@ -21,4 +21,19 @@ import org.eclipse.kapua.model.KapuaEntityFactory;
  */
 public interface JobExecutionFactory extends KapuaEntityFactory<JobExecution, JobExecutionCreator, JobExecutionQuery, JobExecutionListResult> {
 
+    /**
+     * Instantiates a new {@link JobExecutionProgress}.
+     *
+     * @return The newly instantiated {@link JobExecutionProgress}.
+     * @since 1.0.0
+     */
+    JobExecutionProgress newJobExecutionProgress();
+
+    /**
+     * Instantiates a new {@link JobExecutionStepProgress}.
+     *
+     * @return The newly instantiated {@link JobExecutionStepProgress}.
+     * @since 1.0.0
+     */
+    JobExecutionStepProgress newJobExecutionStepProgress();
 }
@@ -0,0 +1,114 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Eurotech and/or its affiliates and others
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Eurotech - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.kapua.service.job.execution;
+
+import org.eclipse.kapua.model.id.KapuaId;
+import org.eclipse.kapua.model.id.KapuaIdAdapter;
+
+import javax.xml.bind.annotation.XmlAccessType;
+import javax.xml.bind.annotation.XmlAccessorType;
+import javax.xml.bind.annotation.XmlElement;
+import javax.xml.bind.annotation.XmlElementWrapper;
+import javax.xml.bind.annotation.XmlRootElement;
+import javax.xml.bind.annotation.XmlType;
+import javax.xml.bind.annotation.adapters.XmlJavaTypeAdapter;
+import java.util.List;
+
+/**
+ * {@link JobExecutionProgress} definition.
+ * <p>
+ * It holds the counters of the {@link org.eclipse.kapua.service.job.targets.JobTarget}s processed by a {@link JobExecution}, as a whole and for each step.<br>
+ * A target is counted as processed by the {@link JobExecution} when it has completed all the steps or when it has failed one of them.
+ *
+ * @since 1.0.0
+ */
+@XmlRootElement(name = "jobExecutionProgress")
+@XmlAccessorType(XmlAccessType.PROPERTY)
+@XmlType(propOrder = {
+        "jobId",
+        "jobExecutionId",
+        "totalTargets",
+        "processedTargets",
+        "succeededTargets",
+        "failedTargets",
+        "stepProgresses"
+}, factoryClass = JobExecutionXmlRegistry.class, factoryMethod = "newJobExecutionProgress")
+public interface JobExecutionProgress {
+
+    @XmlElement(name = "jobId")
+    @XmlJavaTypeAdapter(KapuaIdAdapter.class)
+    KapuaId getJobId();
+
+    void setJobId(KapuaId jobId);
+
+    @XmlElement(name = "jobExecutionId")
+    @XmlJavaTypeAdapter(KapuaIdAdapter.class)
+    KapuaId getJobExecutionId();
+
+    void setJobExecutionId(KapuaId jobExecutionId);
+
+    /**
+     * Gets the number of targets that the {@link JobExecution} processes.
+     *
+     * @return The number of targets that the {@link JobExecution} processes.
+     * @since 1.0.0
+     */
+    @XmlElement(name = "totalTargets")
+    long getTotalTargets();
+
+    void setTotalTargets(long totalTargets);
+
+    /**
+     * Gets the number of targets that have completed the {@link JobExecution}, either successfully or not.
+     *
+     * @return The number of targets that have completed the {@link JobExecution}.
+     * @since 1.0.0
+     */
+    @XmlElement(name = "processedTargets")
+    long getProcessedTargets();
+
+    void setProcessedTargets(long processedTargets);
+
+    /**
+     * Gets the number of targets that have successfully completed all the steps.
+     *
+     * @return The number of targets that have successfully completed all the steps.
+     * @since 1.0.0
+     */
+    @XmlElement(name = "succeededTargets")
+    long getSucceededTargets();
+
+    void setSucceededTargets(long succeededTargets);
+
+    /**
+     * Gets the number of targets that have failed one of the steps.
+     *
+     * @return The number of targets that have failed one of the steps.
+     * @since 1.0.0
+     */
+    @XmlElement(name = "failedTargets")
+    long getFailedTargets();
+
+    void setFailedTargets(long failedTargets);
+
+    /**
+     * Gets the counters of each step, ordered by step index.
+     *
+     * @return The counters of each step.
+     * @since 1.0.0
+     */
+    @XmlElementWrapper(name = "stepProgresses")
+    @XmlElement(name = "stepProgress")
+    List<JobExecutionStepProgress> getStepProgresses();
+
+    void setStepProgresses(List<JobExecutionStepProgress> stepProgresses);
+}
@@ -12,6 +12,7 @@
 package org.eclipse.kapua.service.job.execution;
 
 import org.eclipse.kapua.KapuaException;
+import org.eclipse.kapua.model.id.KapuaId;
 import org.eclipse.kapua.model.query.KapuaQuery;
 import org.eclipse.kapua.service.KapuaDomainService;
 import org.eclipse.kapua.service.KapuaEntityService;
@@ -49,4 +50,17 @@ public interface JobExecutionService extends KapuaEntityService<JobExecution, Jo
     @Override
     JobExecutionListResult query(KapuaQuery<JobExecution> query)
             throws KapuaException;
+
+    /**
+     * Returns the {@link JobExecutionProgress} of the {@link JobExecution}.<br>
+     * The counters are maintained while the {@link JobExecution} runs (see {@link org.eclipse.kapua.service.job.targets.JobTargetService#updateStatus(KapuaId, KapuaId, java.util.List, KapuaId, JobExecutionProgress)}), so reading them does not query the {@link org.eclipse.kapua.service.job.targets.JobTarget}s.
+     *
+     * @param scopeId        The {@link KapuaId} of the scope of the {@link JobExecution}.
+     * @param jobExecutionId The {@link KapuaId} of the {@link JobExecution}.
+     * @return The {@link JobExecutionProgress} of the {@link JobExecution}, or {@code null} if the {@link JobExecution} does not exist.
+     * @throws KapuaException
+     * @since 1.0.0
+     */
+    JobExecutionProgress findProgress(KapuaId scopeId, KapuaId jobExecutionId)
+            throws KapuaException;
 }
@@ -0,0 +1,56 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Eurotech and/or its affiliates and others
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Eurotech - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.kapua.service.job.execution;
+
+import javax.xml.bind.annotation.XmlAccessType;
+import javax.xml.bind.annotation.XmlAccessorType;
+import javax.xml.bind.annotation.XmlElement;
+import javax.xml.bind.annotation.XmlRootElement;
+import javax.xml.bind.annotation.XmlType;
+
+/**
+ * {@link JobExecutionStepProgress} definition.
+ * <p>
+ * It holds the counters of the {@link org.eclipse.kapua.service.job.targets.JobTarget}s processed by a step of a {@link JobExecution}.
+ *
+ * @since 1.0.0
+ */
+@XmlRootElement(name = "jobExecutionStepProgress")
+@XmlAccessorType(XmlAccessType.PROPERTY)
+@XmlType(propOrder = {
+        "stepIndex",
+        "processedTargets",
+        "succeededTargets",
+        "failedTargets"
+}, factoryClass = JobExecutionXmlRegistry.class, factoryMethod = "newJobExecutionStepProgress")
+public interface JobExecutionStepProgress {
+
+    @XmlElement(name = "stepIndex")
+    int getStepIndex();
+
+    void setStepIndex(int stepIndex);
+
+    @XmlElement(name = "processedTargets")
+    long getProcessedTargets();
+
+    void setProcessedTargets(long processedTargets);
+
+    @XmlElement(name = "succeededTargets")
+    long getSucceededTargets();
+
+    void setSucceededTargets(long succeededTargets);
+
+    @XmlElement(name = "failedTargets")
+    long getFailedTargets();
+
+    void setFailedTargets(long failedTargets);
+}
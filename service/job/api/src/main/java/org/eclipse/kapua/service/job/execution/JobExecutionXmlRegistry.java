@@ -56,4 +56,22 @@ public class JobExecutionXmlRegistry {
     public JobExecutionQuery newQuery() {
         return JOB_EXECUTION_FACTORY.newQuery(null);
     }
+
+    /**
+     * Creates a new job execution progress instance
+     *
+     * @return
+     */
+    public JobExecutionProgress newJobExecutionProgress() {
+        return JOB_EXECUTION_FACTORY.newJobExecutionProgress();
+    }
+
+    /**
+     * Creates a new job execution step progress instance
+     *
+     * @return
+     */
+    public JobExecutionStepProgress newJobExecutionStepProgress() {
+        return JOB_EXECUTION_FACTORY.newJobExecutionStepProgress();
+    }
 }
@@ -21,4 +21,11 @@ import org.eclipse.kapua.model.KapuaEntityFactory;
  */
 public interface JobTargetFactory extends KapuaEntityFactory<JobTarget, JobTargetCreator, JobTargetQuery, JobTargetListResult> {
 
+    /**
+     * Instantiates a new {@link JobTargetOperation}.
+     *
+     * @return The newly instantiated {@link JobTargetOperation}.
+     * @since 1.0.0
+     */
+    JobTargetOperation newJobTargetOperation();
 }
@@ -0,0 +1,71 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Eurotech and/or its affiliates and others
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Eurotech - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.kapua.service.job.targets;
+
+import org.eclipse.kapua.model.id.KapuaId;
+
+import java.util.Date;
+
+/**
+ * {@link JobTargetOperation} definition.
+ * <p>
+ * It is the entry of the operation ledger of a {@link JobTarget}: the outcome of the last operation sent to the target by a step of the job,
+ * together with the fingerprint of the request and the job execution that sent it.<br>
+ * When the same job execution runs the step again with the same request, as when a target partition is taken over from a failed job engine node,
+ * a target whose last operation succeeded can be skipped instead of being sent the request again.
+ *
+ * @since 1.0.0
+ */
+public interface JobTargetOperation {
+
+    KapuaId getJobTargetId();
+
+    void setJobTargetId(KapuaId jobTargetId);
+
+    int getStepIndex();
+
+    void setStepIndex(int stepIndex);
+
+    /**
+     * Gets the {@link org.eclipse.kapua.service.job.execution.JobExecution} {@link KapuaId} that sent the request to the target.
+     *
+     * @return The {@link org.eclipse.kapua.service.job.execution.JobExecution} {@link KapuaId} that sent the request to the target.
+     * @since 1.0.0
+     */
+    KapuaId getJobExecutionId();
+
+    void setJobExecutionId(KapuaId jobExecutionId);
+
+    /**
+     * Gets the fingerprint of the request sent to the target.
+     *
+     * @return The fingerprint of the request sent to the target.
+     * @since 1.0.0
+     */
+    String getRequestFingerprint();
+
+    void setRequestFingerprint(String requestFingerprint);
+
+    /**
+     * Gets the outcome of the operation, either {@link JobTargetStatus#PROCESS_OK} or {@link JobTargetStatus#PROCESS_FAILED}.
+     *
+     * @return The outcome of the operation.
+     * @since 1.0.0
+     */
+    JobTargetStatus getStatus();
+
+    void setStatus(JobTargetStatus status);
+
+    Date getRecordedOn();
+
+    void setRecordedOn(Date recordedOn);
+}
@@ -12,12 +12,17 @@
 package org.eclipse.kapua.service.job.targets;
 
 import org.eclipse.kapua.KapuaException;
+import org.eclipse.kapua.model.id.KapuaId;
 import org.eclipse.kapua.model.query.KapuaQuery;
+import org.eclipse.kapua.service.KapuaBatchEntityService;
 import org.eclipse.kapua.service.KapuaDomainService;
 import org.eclipse.kapua.service.KapuaEntityService;
 import org.eclipse.kapua.service.KapuaUpdatableEntityService;
 import org.eclipse.kapua.service.config.KapuaConfigurableService;
 import org.eclipse.kapua.service.job.JobDomain;
+import org.eclipse.kapua.service.job.execution.JobExecutionProgress;
+
+import java.util.List;
 
 /**
  * {@link JobTargetService} exposes APIs to manage JobTarget objects.<br>
@@ -28,6 +33,7 @@ import org.eclipse.kapua.service.job.JobDomain;
  */
 public interface JobTargetService extends KapuaEntityService<JobTarget, JobTargetCreator>,
         KapuaUpdatableEntityService<JobTarget>,
+        KapuaBatchEntityService<JobTarget, JobTargetCreator>,
         KapuaDomainService<JobDomain>,
         KapuaConfigurableService {
 
@@ -38,6 +44,61 @@ public interface JobTargetService extends KapuaEntityService<JobTarget, JobTarge
         return JOB_DOMAIN;
     }
 
+    /**
+     * Updates the {@link JobTarget#getStatus()} and the {@link JobTarget#getStepIndex()} of the given {@link JobTarget}s of a {@link org.eclipse.kapua.service.job.Job}.<br>
+     * Unlike {@link #updateAll(List)} the {@link JobTarget}s are updated with a bulk update for each distinct status and step index pair, without reading them first.<br>
+     * As the update of a single {@link JobTarget}, the {@link JobTarget}s are updated only if their {@link JobTarget#getOptlock()} matches the stored one:
+     * otherwise none of them is updated and a {@link org.eclipse.kapua.KapuaOptimisticLockingException} is thrown.
+     *
+     * @param scopeId    The scope {@link KapuaId} of the {@link JobTarget}s.
+     * @param jobId      The {@link org.eclipse.kapua.service.job.Job} {@link KapuaId} of the {@link JobTarget}s.
+     * @param jobTargets The {@link JobTarget}s with the status and the step index to set.
+     * @return The number of updated {@link JobTarget}s.
+     * @throws KapuaException
+     * @since 1.0.0
+     */
+    int updateStatus(KapuaId scopeId, KapuaId jobId, List<JobTarget> jobTargets) throws KapuaException;
+
+    /**
+     * Updates the {@link JobTarget#getStatus()} and the {@link JobTarget#getStepIndex()} of the given {@link JobTarget}s of a {@link org.eclipse.kapua.service.job.Job}
+     * as {@link #updateStatus(KapuaId, KapuaId, List)} does, and adds the given counters to the {@link JobExecutionProgress} of the {@link org.eclipse.kapua.service.job.execution.JobExecution}
+     * which processed them.<br>
+     * Both are updated in the same transaction, so the progress counters always match the status of the {@link JobTarget}s.
+     * Each counter is incremented atomically, without reading the current value. The total number of targets is not changed.
+     *
+     * @param scopeId           The scope {@link KapuaId} of the {@link JobTarget}s.
+     * @param jobId             The {@link org.eclipse.kapua.service.job.Job} {@link KapuaId} of the {@link JobTarget}s.
+     * @param jobTargets        The {@link JobTarget}s with the status and the step index to set.
+     * @param jobExecutionId    The {@link org.eclipse.kapua.service.job.execution.JobExecution} {@link KapuaId} which processed the {@link JobTarget}s.
+     * @param progressIncrement The increments of the progress counters of the {@link org.eclipse.kapua.service.job.execution.JobExecution}.
+     * @return The number of updated {@link JobTarget}s.
+     * @throws KapuaException
+     * @since 1.0.0
+     */
+    int updateStatus(KapuaId scopeId, KapuaId jobId, List<JobTarget> jobTargets, KapuaId jobExecutionId, JobExecutionProgress progressIncrement) throws KapuaException;
+
+    /**
+     * Finds the last operation recorded for the given {@link JobTarget} by the step with the given index.
+     *
+     * @param scopeId     The scope {@link KapuaId} of the {@link JobTarget}.
+     * @param jobTargetId The {@link JobTarget} {@link KapuaId}.
+     * @param stepIndex   The index of the step.
+     * @return The recorded {@link JobTargetOperation}, or {@code null} if the step has never processed the {@link JobTarget}.
+     * @throws KapuaException
+     * @since 1.0.0
+     */
+    JobTargetOperation findOperation(KapuaId scopeId, KapuaId jobTargetId, int stepIndex) throws KapuaException;
+
+    /**
+     * Records the given {@link JobTargetOperation}, replacing the one previously recorded for the same {@link JobTarget} and step.
+     *
+     * @param scopeId   The scope {@link KapuaId} of the {@link JobTarget}.
+     * @param operation The {@link JobTargetOperation} to record.
+     * @throws KapuaException
+     * @since 1.0.0
+     */
+    void recordOperation(KapuaId scopeId, JobTargetOperation operation) throws KapuaException;
+
     /**
      * Returns the {@link JobTargetListResult} with elements matching the provided query.
      *
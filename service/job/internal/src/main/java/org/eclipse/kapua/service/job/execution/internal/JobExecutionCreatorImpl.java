@@ -26,6 +26,8 @@ public class JobExecutionCreatorImpl extends AbstractKapuaUpdatableEntityCreator
 
     private KapuaId jobId;
     private Date startedOn;
+    private long totalTargets;
+    private int stepCount;
 
     protected JobExecutionCreatorImpl(KapuaId scopeId) {
         super(scopeId);
@@ -50,4 +52,24 @@ public class JobExecutionCreatorImpl extends AbstractKapuaUpdatableEntityCreator
     public void setStartedOn(Date startedOn) {
         this.startedOn = startedOn;
     }
+
+    @Override
+    public long getTotalTargets() {
+        return totalTargets;
+    }
+
+    @Override
+    public void setTotalTargets(long totalTargets) {
+        this.totalTargets = totalTargets;
+    }
+
+    @Override
+    public int getStepCount() {
+        return stepCount;
+    }
+
+    @Override
+    public void setStepCount(int stepCount) {
+        this.stepCount = stepCount;
+    }
 }
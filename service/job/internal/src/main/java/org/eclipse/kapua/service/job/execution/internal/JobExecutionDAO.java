@@ -14,12 +14,18 @@ package org.eclipse.kapua.service.job.execution.internal;
 import org.eclipse.kapua.KapuaEntityNotFoundException;
 import org.eclipse.kapua.KapuaException;
 import org.eclipse.kapua.commons.jpa.EntityManager;
+import org.eclipse.kapua.commons.model.id.KapuaEid;
 import org.eclipse.kapua.commons.service.internal.ServiceDAO;
 import org.eclipse.kapua.model.id.KapuaId;
 import org.eclipse.kapua.model.query.KapuaQuery;
 import org.eclipse.kapua.service.job.execution.JobExecution;
 import org.eclipse.kapua.service.job.execution.JobExecutionCreator;
 import org.eclipse.kapua.service.job.execution.JobExecutionListResult;
+import org.eclipse.kapua.service.job.execution.JobExecutionProgress;
+import org.eclipse.kapua.service.job.execution.JobExecutionStepProgress;
+
+import java.math.BigInteger;
+import java.util.List;
 
 /**
  * JobExecution DAO
@@ -33,7 +39,7 @@ public class JobExecutionDAO {
     }
 
     /**
-     * Creates and return new JobExecution
+     * Creates and return new JobExecution, together with the progress counters of its first {@link JobExecutionCreator#getStepCount()} steps
      * 
      * @param em
      * @param jobExecutionCreator
@@ -48,9 +54,20 @@ public class JobExecutionDAO {
         JobExecutionImpl jobExecutionImpl = new JobExecutionImpl(jobExecutionCreator.getScopeId());
         jobExecutionImpl.setJobId(jobExecutionCreator.getJobId());
         jobExecutionImpl.setStartedOn(jobExecutionCreator.getStartedOn());
+        jobExecutionImpl.setTotalTargets(jobExecutionCreator.getTotalTargets());
         jobExecutionImpl.setEntityAttributes(jobExecutionCreator.getEntityAttributes());
 
-        return ServiceDAO.create(em, jobExecutionImpl);
+        JobExecution jobExecution = ServiceDAO.create(em, jobExecutionImpl);
+
+        //
+        // Create the progress counters of the steps
+        for (int stepIndex = 0; stepIndex < jobExecutionCreator.getStepCount(); stepIndex++) {
+            JobExecutionStepProgressImpl stepProgress = new JobExecutionStepProgressImpl();
+            stepProgress.setStepIndex(stepIndex);
+            em.persist(new JobExecutionStepProgressImpl(jobExecution.getId().getId(), stepProgress));
+        }
+
+        return jobExecution;
     }
 
     /**
@@ -126,4 +143,84 @@ public class JobExecutionDAO {
         return ServiceDAO.count(em, JobExecution.class, JobExecutionImpl.class, jobExecutionQuery);
     }
 
+    /**
+     * Finds the progress counters of the jobExecution
+     *
+     * @param em
+     * @param scopeId
+     * @param jobExecutionId
+     * @return the progress of the jobExecution or {@code null} if the jobExecution does not exist in the scope
+     */
+    public static JobExecutionProgress findProgress(EntityManager em, KapuaId scopeId, KapuaId jobExecutionId) {
+        List<Object[]> results = em.createQuery("SELECT e.jobId.eid, e.totalTargets, e.processedTargets, e.succeededTargets, e.failedTargets FROM JobExecution e " +
+                "WHERE e.scopeId.eid = :scopeId AND e.id.eid = :id", Object[].class)
+                .setParameter("scopeId", scopeId.getId())
+                .setParameter("id", jobExecutionId.getId())
+                .getResultList();
+        if (results.isEmpty()) {
+            return null;
+        }
+
+        Object[] counters = results.get(0);
+        JobExecutionProgressImpl jobExecutionProgress = new JobExecutionProgressImpl();
+        jobExecutionProgress.setJobId(new KapuaEid((BigInteger) counters[0]));
+        jobExecutionProgress.setJobExecutionId(jobExecutionId);
+        jobExecutionProgress.setTotalTargets(((Number) counters[1]).longValue());
+        jobExecutionProgress.setProcessedTargets(((Number) counters[2]).longValue());
+        jobExecutionProgress.setSucceededTargets(((Number) counters[3]).longValue());
+        jobExecutionProgress.setFailedTargets(((Number) counters[4]).longValue());
+        jobExecutionProgress.getStepProgresses().addAll(em.createNamedQuery("JobExecutionStepProgress.findByJobExecutionId", JobExecutionStepProgressImpl.class)
+                .setParameter("jobExecutionId", jobExecutionId.getId())
+                .getResultList());
+
+        return jobExecutionProgress;
+    }
+
+    /**
+     * Adds the given counters to the progress counters of the jobExecution.<br>
+     * The counters are incremented by bulk updates, so concurrent increments are not lost and the jobExecution is not read.
+     * The row of the counters of a step is created with the jobExecution when its steps are known (see {@link JobExecutionCreator#getStepCount()}),
+     * otherwise by its first increment: without the step count the chunks of a step are written one at a time, so the row is never created concurrently.
+     *
+     * @param em
+     * @param scopeId
+     * @param jobExecutionId
+     * @param progressIncrement
+     * @throws KapuaEntityNotFoundException
+     *             If the {@link JobExecution} is not found in the scope
+     */
+    public static void addProgress(EntityManager em, KapuaId scopeId, KapuaId jobExecutionId, JobExecutionProgress progressIncrement) throws KapuaEntityNotFoundException {
+        int updatedCount = em.createQuery("UPDATE JobExecution e SET " +
+                "e.processedTargets = e.processedTargets + :processedTargets, " +
+                "e.succeededTargets = e.succeededTargets + :succeededTargets, " +
+                "e.failedTargets = e.failedTargets + :failedTargets " +
+                "WHERE e.scopeId.eid = :scopeId AND e.id.eid = :id")
+                .setParameter("processedTargets", progressIncrement.getProcessedTargets())
+                .setParameter("succeededTargets", progressIncrement.getSucceededTargets())
+                .setParameter("failedTargets", progressIncrement.getFailedTargets())
+                .setParameter("scopeId", scopeId.getId())
+                .setParameter("id", jobExecutionId.getId())
+                .executeUpdate();
+        if (updatedCount == 0) {
+            throw new KapuaEntityNotFoundException(JobExecution.TYPE, jobExecutionId);
+        }
+
+        for (JobExecutionStepProgress stepProgressIncrement : progressIncrement.getStepProgresses()) {
+            int updatedStepCount = em.createQuery("UPDATE JobExecutionStepProgress p SET " +
+                    "p.processedTargets = p.processedTargets + :processedTargets, " +
+                    "p.succeededTargets = p.succeededTargets + :succeededTargets, " +
+                    "p.failedTargets = p.failedTargets + :failedTargets " +
+                    "WHERE p.jobExecutionId = :jobExecutionId AND p.stepIndex = :stepIndex")
+                    .setParameter("processedTargets", stepProgressIncrement.getProcessedTargets())
+                    .setParameter("succeededTargets", stepProgressIncrement.getSucceededTargets())
+                    .setParameter("failedTargets", stepProgressIncrement.getFailedTargets())
+                    .setParameter("jobExecutionId", jobExecutionId.getId())
+                    .setParameter("stepIndex", stepProgressIncrement.getStepIndex())
+                    .executeUpdate();
+            if (updatedStepCount == 0) {
+                em.persist(new JobExecutionStepProgressImpl(jobExecutionId.getId(), stepProgressIncrement));
+            }
+        }
+    }
+
 }
@@ -17,7 +17,9 @@ import org.eclipse.kapua.service.job.execution.JobExecution;
 import org.eclipse.kapua.service.job.execution.JobExecutionCreator;
 import org.eclipse.kapua.service.job.execution.JobExecutionFactory;
 import org.eclipse.kapua.service.job.execution.JobExecutionListResult;
+import org.eclipse.kapua.service.job.execution.JobExecutionProgress;
 import org.eclipse.kapua.service.job.execution.JobExecutionQuery;
+import org.eclipse.kapua.service.job.execution.JobExecutionStepProgress;
 
 /**
  * {@link JobExecutionFactory} implementation.
@@ -48,4 +50,14 @@ public class JobExecutionFactoryImpl implements JobExecutionFactory {
         return new JobExecutionListResultImpl();
     }
 
+    @Override
+    public JobExecutionProgress newJobExecutionProgress() {
+        return new JobExecutionProgressImpl();
+    }
+
+    @Override
+    public JobExecutionStepProgress newJobExecutionStepProgress() {
+        return new JobExecutionStepProgressImpl();
+    }
+
 }
@@ -15,6 +15,7 @@ import java.util.Date;
 
 import javax.persistence.AttributeOverride;
 import javax.persistence.AttributeOverrides;
+import javax.persistence.Basic;
 import javax.persistence.Column;
 import javax.persistence.Embedded;
 import javax.persistence.Entity;
@@ -47,6 +48,23 @@ public class JobExecutionImpl extends AbstractKapuaUpdatableEntity implements Jo
     @Column(name = "ended_on", nullable = true, updatable = true)
     public Date endedOn;
 
+    // The target counters are incremented by bulk updates only (see JobExecutionDAO#addProgress), so the entity updates never overwrite them
+    @Basic
+    @Column(name = "total_targets", nullable = false, updatable = false)
+    private long totalTargets;
+
+    @Basic
+    @Column(name = "processed_targets", nullable = false, updatable = false)
+    private long processedTargets;
+
+    @Basic
+    @Column(name = "succeeded_targets", nullable = false, updatable = false)
+    private long succeededTargets;
+
+    @Basic
+    @Column(name = "failed_targets", nullable = false, updatable = false)
+    private long failedTargets;
+
     public JobExecutionImpl() {
     }
 
@@ -80,4 +98,24 @@ public class JobExecutionImpl extends AbstractKapuaUpdatableEntity implements Jo
         this.endedOn = endedOn;
     }
 
+    public long getTotalTargets() {
+        return totalTargets;
+    }
+
+    public void setTotalTargets(long totalTargets) {
+        this.totalTargets = totalTargets;
+    }
+
+    public long getProcessedTargets() {
+        return processedTargets;
+    }
+
+    public long getSucceededTargets() {
+        return succeededTargets;
+    }
+
+    public long getFailedTargets() {
+        return failedTargets;
+    }
+
 }
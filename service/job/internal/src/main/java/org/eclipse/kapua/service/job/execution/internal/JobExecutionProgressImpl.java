@@ -0,0 +1,109 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Eurotech and/or its affiliates and others
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Eurotech - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.kapua.service.job.execution.internal;
+
+import org.eclipse.kapua.model.id.KapuaId;
+import org.eclipse.kapua.service.job.execution.JobExecutionProgress;
+import org.eclipse.kapua.service.job.execution.JobExecutionStepProgress;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * {@link JobExecutionProgress} implementation.
+ *
+ * @since 1.0.0
+ */
+public class JobExecutionProgressImpl implements JobExecutionProgress {
+
+    private KapuaId jobId;
+    private KapuaId jobExecutionId;
+    private long totalTargets;
+    private long processedTargets;
+    private long succeededTargets;
+    private long failedTargets;
+    private List<JobExecutionStepProgress> stepProgresses;
+
+    @Override
+    public KapuaId getJobId() {
+        return jobId;
+    }
+
+    @Override
+    public void setJobId(KapuaId jobId) {
+        this.jobId = jobId;
+    }
+
+    @Override
+    public KapuaId getJobExecutionId() {
+        return jobExecutionId;
+    }
+
+    @Override
+    public void setJobExecutionId(KapuaId jobExecutionId) {
+        this.jobExecutionId = jobExecutionId;
+    }
+
+    @Override
+    public long getTotalTargets() {
+        return totalTargets;
+    }
+
+    @Override
+    public void setTotalTargets(long totalTargets) {
+        this.totalTargets = totalTargets;
+    }
+
+    @Override
+    public long getProcessedTargets() {
+        return processedTargets;
+    }
+
+    @Override
+    public void setProcessedTargets(long processedTargets) {
+        this.processedTargets = processedTargets;
+    }
+
+    @Override
+    public long getSucceededTargets() {
+        return succeededTargets;
+    }
+
+    @Override
+    public void setSucceededTargets(long succeededTargets) {
+        this.succeededTargets = succeededTargets;
+    }
+
+    @Override
+    public long getFailedTargets() {
+        return failedTargets;
+    }
+
+    @Override
+    public void setFailedTargets(long failedTargets) {
+        this.failedTargets = failedTargets;
+    }
+
+    @Override
+    public List<JobExecutionStepProgress> getStepProgresses() {
+        if (stepProgresses == null) {
+            stepProgresses = new ArrayList<>();
+        }
+
+        return stepProgresses;
+    }
+
+    @Override
+    public void setStepProgresses(List<JobExecutionStepProgress> stepProgresses) {
+        this.stepProgresses = stepProgresses;
+    }
+}
@@ -26,6 +26,7 @@ import org.eclipse.kapua.service.job.execution.JobExecution;
 import org.eclipse.kapua.service.job.execution.JobExecutionCreator;
 import org.eclipse.kapua.service.job.execution.JobExecutionFactory;
 import org.eclipse.kapua.service.job.execution.JobExecutionListResult;
+import org.eclipse.kapua.service.job.execution.JobExecutionProgress;
 import org.eclipse.kapua.service.job.execution.JobExecutionQuery;
 import org.eclipse.kapua.service.job.execution.JobExecutionService;
 import org.eclipse.kapua.service.job.internal.JobEntityManagerFactory;
@@ -149,4 +150,20 @@ public class JobExecutionServiceImpl
         });
 
     }
+
+    @Override
+    public JobExecutionProgress findProgress(KapuaId scopeId, KapuaId jobExecutionId) throws KapuaException {
+        //
+        // Argument Validation
+        ArgumentValidator.notNull(scopeId, "scopeId");
+        ArgumentValidator.notNull(jobExecutionId, "jobExecutionId");
+
+        //
+        // Check Access
+        AUTHORIZATION_SERVICE.checkPermission(PERMISSION_FACTORY.newPermission(JOB_DOMAIN, Actions.read, scopeId));
+
+        //
+        // Do find
+        return entityManagerSession.onResult(em -> JobExecutionDAO.findProgress(em, scopeId, jobExecutionId));
+    }
 }
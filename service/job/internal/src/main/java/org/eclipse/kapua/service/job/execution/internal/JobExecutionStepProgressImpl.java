@@ -0,0 +1,163 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Eurotech and/or its affiliates and others
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Eurotech - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.kapua.service.job.execution.internal;
+
+import org.eclipse.kapua.service.job.execution.JobExecutionStepProgress;
+
+import javax.persistence.Basic;
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import javax.persistence.IdClass;
+import javax.persistence.NamedQueries;
+import javax.persistence.NamedQuery;
+import javax.persistence.Table;
+import java.io.Serializable;
+import java.math.BigInteger;
+import java.util.Objects;
+
+/**
+ * {@link JobExecutionStepProgress} implementation.
+ * <p>
+ * It is also the row of the step counters table of a {@link JobExecutionImpl}, created by the first chunk of targets written by the step
+ * and then updated by {@link JobExecutionDAO#addProgress(org.eclipse.kapua.commons.jpa.EntityManager, org.eclipse.kapua.model.id.KapuaId, org.eclipse.kapua.model.id.KapuaId, org.eclipse.kapua.service.job.execution.JobExecutionProgress)}.
+ *
+ * @since 1.0.0
+ */
+@Entity(name = "JobExecutionStepProgress")
+@IdClass(JobExecutionStepProgressImpl.JobExecutionStepProgressId.class)
+@NamedQueries({
+        @NamedQuery(name = "JobExecutionStepProgress.findByJobExecutionId", query = "SELECT p FROM JobExecutionStepProgress p WHERE p.jobExecutionId = :jobExecutionId ORDER BY p.stepIndex")
+})
+@Table(name = "job_job_execution_step_progress")
+public class JobExecutionStepProgressImpl implements JobExecutionStepProgress, Serializable {
+
+    private static final long serialVersionUID = 5046370383446474437L;
+
+    @Id
+    @Column(name = "job_execution_id", nullable = false, updatable = false)
+    private BigInteger jobExecutionId;
+
+    @Id
+    @Column(name = "step_index", nullable = false, updatable = false)
+    private int stepIndex;
+
+    @Basic
+    @Column(name = "processed_targets", nullable = false)
+    private long processedTargets;
+
+    @Basic
+    @Column(name = "succeeded_targets", nullable = false)
+    private long succeededTargets;
+
+    @Basic
+    @Column(name = "failed_targets", nullable = false)
+    private long failedTargets;
+
+    /**
+     * Constructor
+     */
+    public JobExecutionStepProgressImpl() {
+    }
+
+    /**
+     * Constructor
+     *
+     * @param jobExecutionId
+     * @param stepProgress
+     *            the initial counters of the step
+     */
+    public JobExecutionStepProgressImpl(BigInteger jobExecutionId, JobExecutionStepProgress stepProgress) {
+        this.jobExecutionId = jobExecutionId;
+        this.stepIndex = stepProgress.getStepIndex();
+        this.processedTargets = stepProgress.getProcessedTargets();
+        this.succeededTargets = stepProgress.getSucceededTargets();
+        this.failedTargets = stepProgress.getFailedTargets();
+    }
+
+    @Override
+    public int getStepIndex() {
+        return stepIndex;
+    }
+
+    @Override
+    public void setStepIndex(int stepIndex) {
+        this.stepIndex = stepIndex;
+    }
+
+    @Override
+    public long getProcessedTargets() {
+        return processedTargets;
+    }
+
+    @Override
+    public void setProcessedTargets(long processedTargets) {
+        this.processedTargets = processedTargets;
+    }
+
+    @Override
+    public long getSucceededTargets() {
+        return succeededTargets;
+    }
+
+    @Override
+    public void setSucceededTargets(long succeededTargets) {
+        this.succeededTargets = succeededTargets;
+    }
+
+    @Override
+    public long getFailedTargets() {
+        return failedTargets;
+    }
+
+    @Override
+    public void setFailedTargets(long failedTargets) {
+        this.failedTargets = failedTargets;
+    }
+
+    /**
+     * {@link JobExecutionStepProgressImpl} primary key
+     */
+    public static class JobExecutionStepProgressId implements Serializable {
+
+        private static final long serialVersionUID = -3170548223470531215L;
+
+        private BigInteger jobExecutionId;
+        private int stepIndex;
+
+        public JobExecutionStepProgressId() {
+        }
+
+        public JobExecutionStepProgressId(BigInteger jobExecutionId, int stepIndex) {
+            this.jobExecutionId = jobExecutionId;
+            this.stepIndex = stepIndex;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (!(obj instanceof JobExecutionStepProgressId)) {
+                return false;
+            }
+            JobExecutionStepProgressId other = (JobExecutionStepProgressId) obj;
+            return Objects.equals(jobExecutionId, other.jobExecutionId) && stepIndex == other.stepIndex;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(jobExecutionId, stepIndex);
+        }
+    }
+
+}
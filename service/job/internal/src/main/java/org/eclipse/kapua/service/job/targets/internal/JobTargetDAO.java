@@ -13,6 +13,7 @@ package org.eclipse.kapua.service.job.targets.internal;
 
 import org.eclipse.kapua.KapuaEntityNotFoundException;
 import org.eclipse.kapua.KapuaException;
+import org.eclipse.kapua.KapuaOptimisticLockingException;
 import org.eclipse.kapua.commons.jpa.EntityManager;
 import org.eclipse.kapua.commons.service.internal.ServiceDAO;
 import org.eclipse.kapua.model.id.KapuaId;
@@ -20,8 +21,18 @@ import org.eclipse.kapua.model.query.KapuaQuery;
 import org.eclipse.kapua.service.job.targets.JobTarget;
 import org.eclipse.kapua.service.job.targets.JobTargetCreator;
 import org.eclipse.kapua.service.job.targets.JobTargetListResult;
+import org.eclipse.kapua.service.job.targets.JobTargetOperation;
 import org.eclipse.kapua.service.job.targets.JobTargetStatus;
 
+import javax.persistence.OptimisticLockException;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
 /**
  * JobTarget DAO
  * 
@@ -45,14 +56,31 @@ public class JobTargetDAO {
             throws KapuaException {
         //
         // Create JobTarget
+        return ServiceDAO.create(em, newJobTarget(jobTargetCreator));
+    }
 
+    /**
+     * Creates and return new JobTarget in batch, without flushing the entity manager
+     * 
+     * @param em
+     * @param jobTargetCreator
+     * @return
+     * @throws KapuaException
+     */
+    public static JobTarget createInBatch(EntityManager em, JobTargetCreator jobTargetCreator)
+            throws KapuaException {
+        //
+        // Create JobTarget
+        return ServiceDAO.createInBatch(em, newJobTarget(jobTargetCreator));
+    }
+
+    private static JobTargetImpl newJobTarget(JobTargetCreator jobTargetCreator) {
         JobTargetImpl jobTargetImpl = new JobTargetImpl(jobTargetCreator.getScopeId());
         jobTargetImpl.setJobId(jobTargetCreator.getJobId());
         jobTargetImpl.setJobTargetId(jobTargetCreator.getJobTargetId());
         jobTargetImpl.setStepIndex(0);
         jobTargetImpl.setStatus(JobTargetStatus.PROCESS_AWAITING);
-
-        return ServiceDAO.create(em, jobTargetImpl);
+        return jobTargetImpl;
     }
 
     /**
@@ -72,6 +100,116 @@ public class JobTargetDAO {
         return ServiceDAO.update(em, JobTargetImpl.class, jobTargetImpl);
     }
 
+    /**
+     * Updates the provided jobTarget in batch, without flushing the entity manager
+     * 
+     * @param em
+     * @param jobTarget
+     * @return
+     * @throws KapuaException
+     */
+    public static JobTarget updateInBatch(EntityManager em, JobTarget jobTarget)
+            throws KapuaException {
+        //
+        // Update jobTarget
+        JobTargetImpl jobTargetImpl = (JobTargetImpl) jobTarget;
+
+        return ServiceDAO.updateInBatch(em, JobTargetImpl.class, jobTargetImpl);
+    }
+
+    /**
+     * Updates the status and the step index of the provided jobTargets of a job, with one bulk update for each distinct (status, step index, optlock) triple.<br>
+     * As the entity update, each jobTarget is updated only if its optlock matches the stored one.
+     * 
+     * @param em
+     * @param scopeId
+     * @param jobId
+     * @param jobTargets
+     * @param modifiedBy
+     * @return the number of updated jobTargets
+     * @throws KapuaOptimisticLockingException if a jobTarget has been modified or deleted since it was read
+     */
+    public static int updateStatusInBatch(EntityManager em, KapuaId scopeId, KapuaId jobId, List<JobTarget> jobTargets, KapuaId modifiedBy)
+            throws KapuaOptimisticLockingException {
+        //
+        // Group the jobTarget ids by status, step index and optlock
+        Map<StatusUpdate, List<BigInteger>> jobTargetIdsByUpdate = new HashMap<>();
+        for (JobTarget jobTarget : jobTargets) {
+            jobTargetIdsByUpdate
+                    .computeIfAbsent(new StatusUpdate(jobTarget.getStatus(), jobTarget.getStepIndex(), jobTarget.getOptlock()), update -> new ArrayList<>())
+                    .add(jobTarget.getId().getId());
+        }
+
+        //
+        // Update each group
+        Date modifiedOn = new Date();
+        int updatedCount = 0;
+        for (Map.Entry<StatusUpdate, List<BigInteger>> updateEntry : jobTargetIdsByUpdate.entrySet()) {
+            StatusUpdate statusUpdate = updateEntry.getKey();
+            int groupUpdatedCount = em.createQuery("UPDATE JobTarget t SET t.status = :status, t.stepIndex = :stepIndex, " +
+                    "t.modifiedOn = :modifiedOn, t.modifiedBy.eid = :modifiedBy, t.optlock = t.optlock + 1 " +
+                    "WHERE t.scopeId.eid = :scopeId AND t.jobId.eid = :jobId AND t.id.eid IN :ids AND t.optlock = :optlock")
+                    .setParameter("status", statusUpdate.status)
+                    .setParameter("stepIndex", statusUpdate.stepIndex)
+                    .setParameter("modifiedOn", modifiedOn)
+                    .setParameter("modifiedBy", modifiedBy != null ? modifiedBy.getId() : null)
+                    .setParameter("scopeId", scopeId.getId())
+                    .setParameter("jobId", jobId.getId())
+                    .setParameter("ids", updateEntry.getValue())
+                    .setParameter("optlock", statusUpdate.optlock)
+                    .executeUpdate();
+
+            if (groupUpdatedCount != updateEntry.getValue().size()) {
+                throw new KapuaOptimisticLockingException(new OptimisticLockException("Some of the jobTargets " + updateEntry.getValue() + " have been modified or deleted since they were read"));
+            }
+            updatedCount += groupUpdatedCount;
+        }
+        return updatedCount;
+    }
+
+    /**
+     * Finds the operation recorded for the jobTarget by the step with the given index
+     * 
+     * @param em
+     * @param scopeId
+     * @param jobTargetId
+     * @param stepIndex
+     * @return the recorded operation or null if there is none
+     */
+    public static JobTargetOperation findOperation(EntityManager em, KapuaId scopeId, KapuaId jobTargetId, int stepIndex) {
+        List<JobTargetOperationImpl> operations = em.createQuery("SELECT o FROM JobTargetOperation o " +
+                "WHERE o.scopeId = :scopeId AND o.jobTargetId = :jobTargetId AND o.stepIndex = :stepIndex", JobTargetOperationImpl.class)
+                .setParameter("scopeId", scopeId.getId())
+                .setParameter("jobTargetId", jobTargetId.getId())
+                .setParameter("stepIndex", stepIndex)
+                .getResultList();
+        return operations.isEmpty() ? null : operations.get(0);
+    }
+
+    /**
+     * Records the operation of the jobTarget, updating the one already recorded for the same step if any
+     * 
+     * @param em
+     * @param scopeId
+     * @param operation
+     */
+    public static void recordOperation(EntityManager em, KapuaId scopeId, JobTargetOperation operation) {
+        int updatedCount = em.createQuery("UPDATE JobTargetOperation o SET " +
+                "o.jobExecutionId = :jobExecutionId, o.requestFingerprint = :requestFingerprint, o.status = :status, o.recordedOn = :recordedOn " +
+                "WHERE o.scopeId = :scopeId AND o.jobTargetId = :jobTargetId AND o.stepIndex = :stepIndex")
+                .setParameter("jobExecutionId", operation.getJobExecutionId().getId())
+                .setParameter("requestFingerprint", operation.getRequestFingerprint())
+                .setParameter("status", operation.getStatus())
+                .setParameter("recordedOn", operation.getRecordedOn())
+                .setParameter("scopeId", scopeId.getId())
+                .setParameter("jobTargetId", operation.getJobTargetId().getId())
+                .setParameter("stepIndex", operation.getStepIndex())
+                .executeUpdate();
+        if (updatedCount == 0) {
+            em.persist(new JobTargetOperationImpl(scopeId, operation));
+        }
+    }
+
     /**
      * Deletes the jobTarget by jobTarget identifier
      * 
@@ -128,4 +266,33 @@ public class JobTargetDAO {
         return ServiceDAO.count(em, JobTarget.class, JobTargetImpl.class, jobTargetQuery);
     }
 
+    /**
+     * Status, step index and optlock shared by the jobTargets updated with the same bulk update
+     */
+    private static class StatusUpdate {
+
+        private final JobTargetStatus status;
+        private final int stepIndex;
+        private final int optlock;
+
+        StatusUpdate(JobTargetStatus status, int stepIndex, int optlock) {
+            this.status = status;
+            this.stepIndex = stepIndex;
+            this.optlock = optlock;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (!(obj instanceof StatusUpdate)) {
+                return false;
+            }
+            StatusUpdate other = (StatusUpdate) obj;
+            return status == other.status && stepIndex == other.stepIndex && optlock == other.optlock;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(status, stepIndex, optlock);
+        }
+    }
 }
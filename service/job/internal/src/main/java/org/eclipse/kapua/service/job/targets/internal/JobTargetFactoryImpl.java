@@ -17,6 +17,7 @@ import org.eclipse.kapua.service.job.targets.JobTarget;
 import org.eclipse.kapua.service.job.targets.JobTargetCreator;
 import org.eclipse.kapua.service.job.targets.JobTargetFactory;
 import org.eclipse.kapua.service.job.targets.JobTargetListResult;
+import org.eclipse.kapua.service.job.targets.JobTargetOperation;
 import org.eclipse.kapua.service.job.targets.JobTargetQuery;
 
 /**
@@ -48,4 +49,9 @@ public class JobTargetFactoryImpl implements JobTargetFactory {
         return new JobTargetListResultImpl();
     }
 
+    @Override
+    public JobTargetOperation newJobTargetOperation() {
+        return new JobTargetOperationImpl();
+    }
+
 }
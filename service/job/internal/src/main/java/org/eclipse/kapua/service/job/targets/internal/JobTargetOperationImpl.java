@@ -0,0 +1,195 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Eurotech and/or its affiliates and others
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Eurotech - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.kapua.service.job.targets.internal;
+
+import org.eclipse.kapua.commons.model.id.KapuaEid;
+import org.eclipse.kapua.model.id.KapuaId;
+import org.eclipse.kapua.service.job.targets.JobTargetOperation;
+import org.eclipse.kapua.service.job.targets.JobTargetStatus;
+
+import javax.persistence.Basic;
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.EnumType;
+import javax.persistence.Enumerated;
+import javax.persistence.Id;
+import javax.persistence.IdClass;
+import javax.persistence.Table;
+import javax.persistence.Temporal;
+import javax.persistence.TemporalType;
+import java.io.Serializable;
+import java.math.BigInteger;
+import java.util.Date;
+import java.util.Objects;
+
+/**
+ * {@link JobTargetOperation} implementation.
+ * <p>
+ * It is also the row of the operation ledger table of a {@link JobTargetImpl}, with one row for each step that has processed the target.
+ *
+ * @since 1.0.0
+ */
+@Entity(name = "JobTargetOperation")
+@IdClass(JobTargetOperationImpl.JobTargetOperationId.class)
+@Table(name = "job_job_target_operation")
+public class JobTargetOperationImpl implements JobTargetOperation, Serializable {
+
+    private static final long serialVersionUID = -2934571120582733581L;
+
+    @Id
+    @Column(name = "job_target_id", nullable = false, updatable = false)
+    private BigInteger jobTargetId;
+
+    @Id
+    @Column(name = "step_index", nullable = false, updatable = false)
+    private int stepIndex;
+
+    @Basic
+    @Column(name = "scope_id", nullable = false, updatable = false)
+    private BigInteger scopeId;
+
+    @Basic
+    @Column(name = "job_execution_id", nullable = false)
+    private BigInteger jobExecutionId;
+
+    @Basic
+    @Column(name = "request_fingerprint", nullable = false)
+    private String requestFingerprint;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "status", nullable = false)
+    private JobTargetStatus status;
+
+    @Temporal(TemporalType.TIMESTAMP)
+    @Column(name = "recorded_on", nullable = false)
+    private Date recordedOn;
+
+    /**
+     * Constructor
+     */
+    public JobTargetOperationImpl() {
+    }
+
+    /**
+     * Constructor
+     *
+     * @param scopeId
+     * @param operation
+     *            the operation to record
+     */
+    public JobTargetOperationImpl(KapuaId scopeId, JobTargetOperation operation) {
+        this.scopeId = scopeId.getId();
+        setJobTargetId(operation.getJobTargetId());
+        this.stepIndex = operation.getStepIndex();
+        setJobExecutionId(operation.getJobExecutionId());
+        this.requestFingerprint = operation.getRequestFingerprint();
+        this.status = operation.getStatus();
+        this.recordedOn = operation.getRecordedOn();
+    }
+
+    @Override
+    public KapuaId getJobTargetId() {
+        return jobTargetId != null ? new KapuaEid(jobTargetId) : null;
+    }
+
+    @Override
+    public void setJobTargetId(KapuaId jobTargetId) {
+        this.jobTargetId = jobTargetId != null ? jobTargetId.getId() : null;
+    }
+
+    @Override
+    public int getStepIndex() {
+        return stepIndex;
+    }
+
+    @Override
+    public void setStepIndex(int stepIndex) {
+        this.stepIndex = stepIndex;
+    }
+
+    @Override
+    public KapuaId getJobExecutionId() {
+        return jobExecutionId != null ? new KapuaEid(jobExecutionId) : null;
+    }
+
+    @Override
+    public void setJobExecutionId(KapuaId jobExecutionId) {
+        this.jobExecutionId = jobExecutionId != null ? jobExecutionId.getId() : null;
+    }
+
+    @Override
+    public String getRequestFingerprint() {
+        return requestFingerprint;
+    }
+
+    @Override
+    public void setRequestFingerprint(String requestFingerprint) {
+        this.requestFingerprint = requestFingerprint;
+    }
+
+    @Override
+    public JobTargetStatus getStatus() {
+        return status;
+    }
+
+    @Override
+    public void setStatus(JobTargetStatus status) {
+        this.status = status;
+    }
+
+    @Override
+    public Date getRecordedOn() {
+        return recordedOn;
+    }
+
+    @Override
+    public void setRecordedOn(Date recordedOn) {
+        this.recordedOn = recordedOn;
+    }
+
+    /**
+     * {@link JobTargetOperationImpl} primary key
+     */
+    public static class JobTargetOperationId implements Serializable {
+
+        private static final long serialVersionUID = 7351162906375211542L;
+
+        private BigInteger jobTargetId;
+        private int stepIndex;
+
+        public JobTargetOperationId() {
+        }
+
+        public JobTargetOperationId(BigInteger jobTargetId, int stepIndex) {
+            this.jobTargetId = jobTargetId;
+            this.stepIndex = stepIndex;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (!(obj instanceof JobTargetOperationId)) {
+                return false;
+            }
+            JobTargetOperationId other = (JobTargetOperationId) obj;
+            return Objects.equals(jobTargetId, other.jobTargetId) && stepIndex == other.stepIndex;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(jobTargetId, stepIndex);
+        }
+    }
+
+}
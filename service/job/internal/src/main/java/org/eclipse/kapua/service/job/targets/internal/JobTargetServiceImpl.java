@@ -14,22 +14,31 @@ package org.eclipse.kapua.service.job.targets.internal;
 import org.eclipse.kapua.KapuaEntityNotFoundException;
 import org.eclipse.kapua.KapuaException;
 import org.eclipse.kapua.commons.configuration.AbstractKapuaConfigurableResourceLimitedService;
+import org.eclipse.kapua.commons.security.KapuaSecurityUtils;
 import org.eclipse.kapua.commons.util.ArgumentValidator;
 import org.eclipse.kapua.locator.KapuaLocator;
 import org.eclipse.kapua.locator.KapuaProvider;
+import org.eclipse.kapua.model.KapuaBatchResult;
 import org.eclipse.kapua.model.domain.Actions;
 import org.eclipse.kapua.model.id.KapuaId;
 import org.eclipse.kapua.model.query.KapuaQuery;
 import org.eclipse.kapua.service.authorization.AuthorizationService;
 import org.eclipse.kapua.service.authorization.permission.PermissionFactory;
+import org.eclipse.kapua.service.job.execution.JobExecutionProgress;
+import org.eclipse.kapua.service.job.execution.internal.JobExecutionDAO;
 import org.eclipse.kapua.service.job.internal.JobEntityManagerFactory;
 import org.eclipse.kapua.service.job.targets.JobTarget;
 import org.eclipse.kapua.service.job.targets.JobTargetCreator;
 import org.eclipse.kapua.service.job.targets.JobTargetFactory;
 import org.eclipse.kapua.service.job.targets.JobTargetListResult;
+import org.eclipse.kapua.service.job.targets.JobTargetOperation;
 import org.eclipse.kapua.service.job.targets.JobTargetQuery;
 import org.eclipse.kapua.service.job.targets.JobTargetService;
 
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
 /**
  * {@link JobTargetService} implementation
  *
@@ -64,6 +73,21 @@ public class JobTargetServiceImpl extends AbstractKapuaConfigurableResourceLimit
         return entityManagerSession.onTransactedInsert(em -> JobTargetDAO.create(em, creator));
     }
 
+    @Override
+    public KapuaBatchResult<JobTarget> createAll(List<JobTargetCreator> creators) throws KapuaException {
+        Set<KapuaId> checkedScopeIds = new HashSet<>();
+        return onTransactedBatchInsert(JobTargetService.class, "createAll", creators, creator -> {
+            //
+            // Argument validation
+            ArgumentValidator.notNull(creator, "jobTargetCreator");
+            ArgumentValidator.notNull(creator.getScopeId(), "jobTargetCreator.scopeId");
+
+            //
+            // Check access
+            checkWriteAccess(checkedScopeIds, creator.getScopeId());
+        }, JobTargetDAO::createInBatch);
+    }
+
     @Override
     public JobTarget update(JobTarget jobTarget) throws KapuaException {
         //
@@ -87,6 +111,99 @@ public class JobTargetServiceImpl extends AbstractKapuaConfigurableResourceLimit
         return entityManagerSession.onTransactedResult(em -> JobTargetDAO.update(em, jobTarget));
     }
 
+    @Override
+    public KapuaBatchResult<JobTarget> updateAll(List<JobTarget> jobTargets) throws KapuaException {
+        Set<KapuaId> checkedScopeIds = new HashSet<>();
+        return onTransactedBatchUpdate(JobTargetService.class, "updateAll", jobTargets, JobTargetImpl.class, jobTarget -> {
+            //
+            // Argument Validation
+            ArgumentValidator.notNull(jobTarget, "jobTarget");
+            ArgumentValidator.notNull(jobTarget.getScopeId(), "jobTarget.scopeId");
+            ArgumentValidator.notNull(jobTarget.getId(), "jobTarget.id");
+
+            //
+            // Check access
+            checkWriteAccess(checkedScopeIds, jobTarget.getScopeId());
+        }, JobTargetDAO::updateInBatch);
+    }
+
+    @Override
+    public int updateStatus(KapuaId scopeId, KapuaId jobId, List<JobTarget> jobTargets) throws KapuaException {
+        return updateStatus(scopeId, jobId, jobTargets, null, null);
+    }
+
+    @Override
+    public int updateStatus(KapuaId scopeId, KapuaId jobId, List<JobTarget> jobTargets, KapuaId jobExecutionId, JobExecutionProgress progressIncrement) throws KapuaException {
+        //
+        // Argument Validation
+        ArgumentValidator.notNull(scopeId, "scopeId");
+        ArgumentValidator.notNull(jobId, "jobId");
+        ArgumentValidator.notNull(jobTargets, "jobTargets");
+        for (JobTarget jobTarget : jobTargets) {
+            ArgumentValidator.notNull(jobTarget, "jobTarget");
+            ArgumentValidator.notNull(jobTarget.getId(), "jobTarget.id");
+            ArgumentValidator.notNull(jobTarget.getStatus(), "jobTarget.status");
+        }
+
+        //
+        // Check access
+        AUTHORIZATION_SERVICE.checkPermission(PERMISSION_FACTORY.newPermission(JOB_DOMAIN, Actions.write, scopeId));
+
+        if (jobTargets.isEmpty()) {
+            return 0;
+        }
+
+        //
+        // Do update
+        KapuaId modifiedBy = KapuaSecurityUtils.getSession().getUserId();
+        return entityManagerSession.onTransactedResult(em -> {
+            int updatedCount = JobTargetDAO.updateStatusInBatch(em, scopeId, jobId, jobTargets, modifiedBy);
+
+            if (jobExecutionId != null && progressIncrement != null) {
+                JobExecutionDAO.addProgress(em, scopeId, jobExecutionId, progressIncrement);
+            }
+
+            return updatedCount;
+        });
+    }
+
+    @Override
+    public JobTargetOperation findOperation(KapuaId scopeId, KapuaId jobTargetId, int stepIndex) throws KapuaException {
+        //
+        // Argument Validation
+        ArgumentValidator.notNull(scopeId, "scopeId");
+        ArgumentValidator.notNull(jobTargetId, "jobTargetId");
+
+        //
+        // Check Access
+        AUTHORIZATION_SERVICE.checkPermission(PERMISSION_FACTORY.newPermission(JOB_DOMAIN, Actions.read, scopeId));
+
+        //
+        // Do find
+        return entityManagerSession.onResult(em -> JobTargetDAO.findOperation(em, scopeId, jobTargetId, stepIndex));
+    }
+
+    @Override
+    public void recordOperation(KapuaId scopeId, JobTargetOperation operation) throws KapuaException {
+        //
+        // Argument Validation
+        ArgumentValidator.notNull(scopeId, "scopeId");
+        ArgumentValidator.notNull(operation, "operation");
+        ArgumentValidator.notNull(operation.getJobTargetId(), "operation.jobTargetId");
+        ArgumentValidator.notNull(operation.getJobExecutionId(), "operation.jobExecutionId");
+        ArgumentValidator.notEmptyOrNull(operation.getRequestFingerprint(), "operation.requestFingerprint");
+        ArgumentValidator.notNull(operation.getStatus(), "operation.status");
+        ArgumentValidator.notNull(operation.getRecordedOn(), "operation.recordedOn");
+
+        //
+        // Check Access
+        AUTHORIZATION_SERVICE.checkPermission(PERMISSION_FACTORY.newPermission(JOB_DOMAIN, Actions.write, scopeId));
+
+        //
+        // Do record
+        entityManagerSession.onTransactedAction(em -> JobTargetDAO.recordOperation(em, scopeId, operation));
+    }
+
     @Override
     public void delete(KapuaId scopeId, KapuaId jobTargetId) throws KapuaException {
         //
@@ -156,4 +273,14 @@ public class JobTargetServiceImpl extends AbstractKapuaConfigurableResourceLimit
         // Do query
         return entityManagerSession.onResult(em -> JobTargetDAO.count(em, query));
     }
+
+    /**
+     * Checks the write access to the given scope, once for each scope of a batch
+     */
+    private void checkWriteAccess(Set<KapuaId> checkedScopeIds, KapuaId scopeId) throws KapuaException {
+        if (!checkedScopeIds.contains(scopeId)) {
+            AUTHORIZATION_SERVICE.checkPermission(PERMISSION_FACTORY.newPermission(JOB_DOMAIN, Actions.write, scopeId));
+            checkedScopeIds.add(scopeId);
+        }
+    }
 }
@@ -12,8 +12,10 @@
 
 DROP TABLE IF EXISTS job_job_step_properties;
 DROP TABLE IF EXISTS sys_configuration;
+DROP TABLE IF EXISTS job_job_execution_step_progress;
 DROP TABLE IF EXISTS job_job_execution;
 DROP TABLE IF EXISTS job_job_step;
+DROP TABLE IF EXISTS job_job_target_operation;
 DROP TABLE IF EXISTS job_job_target;
 DROP TABLE IF EXISTS job_job;
 
@@ -10,6 +10,7 @@
  *     Eurotech - initial API and implementation
  *******************************************************************************/
 
+DROP TABLE IF EXISTS job_job_target_operation;
 DROP TABLE IF EXISTS job_job_target;
 
 DROP TABLE IF EXISTS DATABASECHANGELOG;
@@ -33,6 +33,13 @@ import org.eclipse.kapua.service.authorization.permission.PermissionFactory;
 import org.eclipse.kapua.service.job.internal.JobEntityManagerFactory;
 import org.eclipse.kapua.service.job.JobJAXBContextProvider;
 import org.eclipse.kapua.service.job.common.CommonData;
+import org.eclipse.kapua.service.job.execution.ExecutionData;
+import org.eclipse.kapua.service.job.execution.JobExecution;
+import org.eclipse.kapua.service.job.execution.JobExecutionCreator;
+import org.eclipse.kapua.service.job.execution.JobExecutionFactory;
+import org.eclipse.kapua.service.job.execution.JobExecutionProgress;
+import org.eclipse.kapua.service.job.execution.JobExecutionService;
+import org.eclipse.kapua.service.job.execution.JobExecutionStepProgress;
 import org.eclipse.kapua.service.job.internal.JobData;
 import org.eclipse.kapua.service.job.targets.internal.JobTargetFactoryImpl;
 import org.eclipse.kapua.service.job.targets.internal.JobTargetServiceImpl;
@@ -48,6 +55,9 @@ import org.slf4j.LoggerFactory;
 import javax.inject.Inject;
 import java.math.BigInteger;
 import java.security.acl.Permission;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
 
 // ****************************************************************************************
 // * Implementation of Gherkin steps used in JobStepService.feature scenarios.     *
@@ -71,17 +81,22 @@ public class JobTargetsServiceTestSteps extends AbstractKapuaSteps {
     private CommonData commonData;
     private JobData jobData;
     private TargetData targetData;
+    private ExecutionData executionData;
 
     // Step service objects
     private JobTargetService targetService;
     private JobTargetFactory targetFactory;
 
+    // Optlocks of the job targets before their first status update
+    private Map<KapuaId, Integer> updatedTargetOptlocks = new HashMap<>();
+
     // Default constructor
     @Inject
-    public JobTargetsServiceTestSteps(CommonData commonData, JobData jobData, TargetData targetData) {
+    public JobTargetsServiceTestSteps(CommonData commonData, JobData jobData, TargetData targetData, ExecutionData executionData) {
         this.commonData = commonData;
         this.jobData = jobData;
         this.targetData = targetData;
+        this.executionData = executionData;
     }
 
     // ************************************************************************************
@@ -276,6 +291,122 @@ public class JobTargetsServiceTestSteps extends AbstractKapuaSteps {
         }
     }
 
+    @When("^I update the status of the queried job targets to \"(.+)\" with the step index (\\d+)$")
+    public void updateQueriedTargetsStatus(String stat, int stepIndex)
+            throws Exception {
+
+        for (JobTarget tmpTarget : targetData.targetList.getItems()) {
+            updatedTargetOptlocks.putIfAbsent(tmpTarget.getId(), tmpTarget.getOptlock());
+            tmpTarget.setStatus(parseJobTargetStatusFromString(stat));
+            tmpTarget.setStepIndex(stepIndex);
+        }
+
+        try {
+            commonData.primeException();
+            commonData.itemCount = targetService.updateStatus(commonData.currentScopeId, jobData.job.getId(), targetData.targetList.getItems());
+        } catch (KapuaException ex) {
+            commonData.verifyException(ex);
+        }
+    }
+
+    @When("^I update the status of the queried job targets to \"(.+)\" with the step index (\\d+) and the progress of the job execution$")
+    public void updateQueriedTargetsStatusAndProgress(String stat, int stepIndex)
+            throws Exception {
+
+        updateQueriedTargetsStatusAndProgress(stat, stepIndex, executionData.execution.getId());
+    }
+
+    @When("^I update the status of the queried job targets to \"(.+)\" with the step index (\\d+) and the progress of a job execution of another scope$")
+    public void updateQueriedTargetsStatusAndOtherScopeProgress(String stat, int stepIndex)
+            throws Exception {
+
+        JobExecutionCreator executionCreator = getJobExecutionFactory().newCreator(new KapuaEid(BigInteger.valueOf(2)));
+        executionCreator.setJobId(jobData.job.getId());
+        executionCreator.setStartedOn(new Date());
+        JobExecution otherScopeExecution = getJobExecutionService().create(executionCreator);
+
+        updateQueriedTargetsStatusAndProgress(stat, stepIndex, otherScopeExecution.getId());
+    }
+
+    private void updateQueriedTargetsStatusAndProgress(String stat, int stepIndex, KapuaId jobExecutionId) {
+
+        JobTargetStatus status = parseJobTargetStatusFromString(stat);
+        long targetCount = targetData.targetList.getSize();
+        for (JobTarget tmpTarget : targetData.targetList.getItems()) {
+            updatedTargetOptlocks.putIfAbsent(tmpTarget.getId(), tmpTarget.getOptlock());
+            tmpTarget.setStatus(status);
+            tmpTarget.setStepIndex(stepIndex);
+        }
+
+        JobExecutionStepProgress stepProgressIncrement = getJobExecutionFactory().newJobExecutionStepProgress();
+        stepProgressIncrement.setStepIndex(stepIndex);
+        stepProgressIncrement.setProcessedTargets(targetCount);
+        stepProgressIncrement.setSucceededTargets(JobTargetStatus.PROCESS_OK.equals(status) ? targetCount : 0);
+        stepProgressIncrement.setFailedTargets(JobTargetStatus.PROCESS_OK.equals(status) ? 0 : targetCount);
+
+        JobExecutionProgress progressIncrement = getJobExecutionFactory().newJobExecutionProgress();
+        progressIncrement.setProcessedTargets(stepProgressIncrement.getProcessedTargets());
+        progressIncrement.setSucceededTargets(stepProgressIncrement.getSucceededTargets());
+        progressIncrement.setFailedTargets(stepProgressIncrement.getFailedTargets());
+        progressIncrement.getStepProgresses().add(stepProgressIncrement);
+
+        try {
+            commonData.primeException();
+            commonData.itemCount = targetService.updateStatus(commonData.currentScopeId, jobData.job.getId(), targetData.targetList.getItems(), jobExecutionId, progressIncrement);
+        } catch (KapuaException ex) {
+            commonData.verifyException(ex);
+        }
+    }
+
+    @Then("^The job execution has (\\d+) processed, (\\d+) succeeded and (\\d+) failed targets$")
+    public void checkJobExecutionProgress(long processedTargets, long succeededTargets, long failedTargets)
+            throws Exception {
+
+        JobExecutionProgress progress = getJobExecutionService().findProgress(commonData.currentScopeId, executionData.execution.getId());
+        assertNotNull(progress);
+        assertEquals(processedTargets, progress.getProcessedTargets());
+        assertEquals(succeededTargets, progress.getSucceededTargets());
+        assertEquals(failedTargets, progress.getFailedTargets());
+    }
+
+    @Then("^The step (\\d+) of the job execution has (\\d+) processed, (\\d+) succeeded and (\\d+) failed targets$")
+    public void checkJobExecutionStepProgress(int stepIndex, long processedTargets, long succeededTargets, long failedTargets)
+            throws Exception {
+
+        JobExecutionProgress progress = getJobExecutionService().findProgress(commonData.currentScopeId, executionData.execution.getId());
+        assertNotNull(progress);
+        JobExecutionStepProgress stepProgress = progress.getStepProgresses().stream()
+                .filter(tmpStepProgress -> tmpStepProgress.getStepIndex() == stepIndex)
+                .findFirst()
+                .orElse(null);
+        assertNotNull("No progress for the step " + stepIndex, stepProgress);
+        assertEquals(processedTargets, stepProgress.getProcessedTargets());
+        assertEquals(succeededTargets, stepProgress.getSucceededTargets());
+        assertEquals(failedTargets, stepProgress.getFailedTargets());
+    }
+
+    @Then("^The queried job targets have the status \"(.+)\", the step index (\\d+) and the optlock of the first update$")
+    public void checkQueriedTargetsStatus(String stat, int stepIndex) {
+
+        assertFalse("No job target was queried!", targetData.targetList.isEmpty());
+        for (JobTarget tmpTarget : targetData.targetList.getItems()) {
+            assertEquals(parseJobTargetStatusFromString(stat), tmpTarget.getStatus());
+            assertEquals(stepIndex, tmpTarget.getStepIndex());
+            // the optlock is incremented by the update, as by the update of a single target
+            assertEquals(updatedTargetOptlocks.get(tmpTarget.getId()) + 1, tmpTarget.getOptlock());
+        }
+    }
+
+    @Then("^The queried job targets have the status \"(.+)\" and the step index (\\d+)$")
+    public void checkQueriedTargetsStatusOnly(String stat, int stepIndex) {
+
+        assertFalse("No job target was queried!", targetData.targetList.isEmpty());
+        for (JobTarget tmpTarget : targetData.targetList.getItems()) {
+            assertEquals(parseJobTargetStatusFromString(stat), tmpTarget.getStatus());
+            assertEquals(stepIndex, tmpTarget.getStepIndex());
+        }
+    }
+
     @Then("^The target step index is indeed (\\d+)$")
     public void checkTargetStepIndex(int i) {
 
@@ -337,4 +468,13 @@ public class JobTargetsServiceTestSteps extends AbstractKapuaSteps {
             default: return JobTargetStatus.PROCESS_FAILED;
         }
     }
+
+    // The job execution service is registered by the job execution steps
+    private JobExecutionService getJobExecutionService() {
+        return locator.getService(JobExecutionService.class);
+    }
+
+    private JobExecutionFactory getJobExecutionFactory() {
+        return locator.getFactory(JobExecutionFactory.class);
+    }
 }
@@ -98,6 +98,32 @@ Scenario: Update a job target status
     When I update the job target step status to "PROCESS_AWAITING"
     Then The target step status is indeed "PROCESS_AWAITING"
 
+Scenario: Update the status of the job targets in bulk
+
+    Given I create a job with the name "TestJob1"
+    And A regular job target item
+    And A regular job target item
+    And A regular job target item
+    When I query the targets for the current job
+    And I update the status of the queried job targets to "PROCESS_OK" with the step index 1
+    Then No exception was thrown
+    And There are exactly 3 items
+    When I query the targets for the current job
+    Then The queried job targets have the status "PROCESS_OK", the step index 1 and the optlock of the first update
+
+Scenario: Update the status of outdated job targets in bulk
+
+    Given I create a job with the name "TestJob1"
+    And A regular job target item
+    And A regular job target item
+    When I query the targets for the current job
+    And I update the status of the queried job targets to "PROCESS_OK" with the step index 1
+    Given I expect the exception "KapuaOptimisticLockingException" with the text "modified or deleted by another transaction"
+    When I update the status of the queried job targets to "PROCESS_FAILED" with the step index 2
+    Then An exception was thrown
+    When I query the targets for the current job
+    Then The queried job targets have the status "PROCESS_OK", the step index 1 and the optlock of the first update
+
 #Scenario: Update a job target step exception
 #
 #    Given I create a job with the name "TestJob1"
@@ -109,3 +135,34 @@ Scenario: Job target factory sanity checks
 
     When I test the sanity of the job target factory
 
+Scenario: Update the status of the job targets in bulk with the progress of the job execution
+
+    Given I create a job with the name "TestJob1"
+    And A regular job execution item
+    And A regular job target item
+    And A regular job target item
+    When I query the targets for the current job
+    And I update the status of the queried job targets to "PROCESS_OK" with the step index 0 and the progress of the job execution
+    Then No exception was thrown
+    And The job execution has 2 processed, 2 succeeded and 0 failed targets
+    And The step 0 of the job execution has 2 processed, 2 succeeded and 0 failed targets
+    When I query the targets for the current job
+    And I update the status of the queried job targets to "PROCESS_FAILED" with the step index 1 and the progress of the job execution
+    Then No exception was thrown
+    And The job execution has 4 processed, 2 succeeded and 2 failed targets
+    And The step 0 of the job execution has 2 processed, 2 succeeded and 0 failed targets
+    And The step 1 of the job execution has 2 processed, 0 succeeded and 2 failed targets
+
+Scenario: Update the status of the job targets in bulk with the progress of a job execution of another scope
+
+    Given I create a job with the name "TestJob1"
+    And A regular job execution item
+    And A regular job target item
+    And A regular job target item
+    When I query the targets for the current job
+    Given I expect the exception "KapuaEntityNotFoundException" with the text "jobExecution"
+    When I update the status of the queried job targets to "PROCESS_OK" with the step index 1 and the progress of a job execution of another scope
+    Then An exception was thrown
+    When I query the targets for the current job
+    Then The queried job targets have the status "PROCESS_AWAITING" and the step index 0
+    And The job execution has 0 processed, 0 succeeded and 0 failed targets
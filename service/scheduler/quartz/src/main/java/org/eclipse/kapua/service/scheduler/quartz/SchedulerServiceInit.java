@@ -12,6 +12,9 @@
 package org.eclipse.kapua.service.scheduler.quartz;
 
 import org.eclipse.kapua.KapuaException;
+import org.eclipse.kapua.service.scheduler.trigger.quartz.job.KapuaJobStartDispatcher;
+import org.eclipse.kapua.service.scheduler.trigger.quartz.job.KapuaTriggerMisfireListener;
+import org.quartz.Scheduler;
 import org.quartz.SchedulerException;
 import org.quartz.SchedulerFactory;
 import org.quartz.impl.StdSchedulerFactory;
@@ -29,7 +32,9 @@ public class SchedulerServiceInit {
         logger.info("Starting scheduler service...");
         SchedulerFactory sf = new StdSchedulerFactory();
         try {
-            sf.getScheduler().start();
+            Scheduler scheduler = sf.getScheduler();
+            scheduler.getListenerManager().addTriggerListener(new KapuaTriggerMisfireListener());
+            scheduler.start();
         } catch (SchedulerException e) {
             throw KapuaException.internalError(e, "Cannot start scheduler service");
         }
@@ -38,7 +43,7 @@ public class SchedulerServiceInit {
 
     public static void close() {
         logger.info("Stopping scheduler service...");
-        // do nothing
+        KapuaJobStartDispatcher.getInstance().shutdown();
         logger.info("Stopping scheduler service... DONE");
     }
 }
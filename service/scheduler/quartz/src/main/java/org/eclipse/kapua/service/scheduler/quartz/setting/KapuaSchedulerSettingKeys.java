@@ -23,7 +23,17 @@ public enum KapuaSchedulerSettingKeys implements SettingKey {
     /**
      * The key value in the configuration resources.
      */
-    SCHEDULER_KEY("scheduler.key");
+    SCHEDULER_KEY("scheduler.key"),
+
+    /**
+     * Number of threads that start the jobs fired by the triggers, so the Quartz threads are not blocked by the job start-up
+     */
+    SCHEDULER_JOB_START_THREADS("scheduler.job.start.threads"),
+
+    /**
+     * Maximum number of fired job starts waiting for a thread. The triggers fired when the queue is full are dropped
+     */
+    SCHEDULER_JOB_START_QUEUE_SIZE("scheduler.job.start.queue.size");
 
     private String key;
 
@@ -11,21 +11,25 @@
  *******************************************************************************/
 package org.eclipse.kapua.service.scheduler.trigger.quartz.job;
 
-import org.eclipse.kapua.KapuaEntityNotFoundException;
-import org.eclipse.kapua.commons.security.KapuaSecurityUtils;
-import org.eclipse.kapua.job.engine.JobEngineService;
-import org.eclipse.kapua.locator.KapuaLocator;
 import org.eclipse.kapua.model.id.KapuaId;
-import org.eclipse.kapua.service.job.JobService;
 import org.quartz.Job;
 import org.quartz.JobExecutionContext;
 import org.quartz.JobExecutionException;
 
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Quartz {@link Job} fired by the scheduler triggers.
+ * <p>
+ * It only records the fire lag of the trigger and hands the job start over to the {@link KapuaJobStartDispatcher}, returning without waiting for the job start-up,
+ * so the Quartz threads are never held by the starts. A start rejected right away by the dispatcher is thrown as {@link JobExecutionException}, the failures of the
+ * starts that are run are logged and counted by the dispatcher.
+ */
 public class KapuaJobLauncer implements Job {
 
-    KapuaLocator locator = KapuaLocator.getInstance();
-    JobService jobService = locator.getService(JobService.class);
-    JobEngineService jobEngineService = locator.getService(JobEngineService.class);
+    private final KapuaJobLauncherMetric metric = KapuaJobLauncherMetric.getInstance();
 
     private KapuaId scopeId;
     private KapuaId jobId;
@@ -35,16 +39,17 @@ public class KapuaJobLauncer implements Job {
 
     @Override
     public void execute(JobExecutionContext context) throws JobExecutionException {
-        try {
-            org.eclipse.kapua.service.job.Job job = KapuaSecurityUtils.doPrivileged(() -> jobService.find(getScopeId(), getJobId()));
-            if (job == null) {
-                throw new KapuaEntityNotFoundException(org.eclipse.kapua.service.job.Job.class.getName(), jobId);
-            }
-
-            KapuaSecurityUtils.doPrivileged(() -> jobEngineService.startJob(scopeId, jobId));
+        if (context.getScheduledFireTime() != null) {
+            metric.getFireLag().update(context.getFireTime().getTime() - context.getScheduledFireTime().getTime(), TimeUnit.MILLISECONDS);
+        }
 
-        } catch (Exception e) {
-            throw new JobExecutionException("Cannot start job!", e);
+        CompletableFuture<Void> jobStartFuture = KapuaJobStartDispatcher.getInstance().dispatch(getScopeId(), getJobId());
+        if (jobStartFuture.isCompletedExceptionally()) {
+            try {
+                jobStartFuture.join();
+            } catch (CompletionException e) {
+                throw new JobExecutionException("Cannot start job!", e.getCause());
+            }
         }
     }
 
@@ -0,0 +1,92 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Eurotech and/or its affiliates and others
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Eurotech - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.kapua.service.scheduler.trigger.quartz.job;
+
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.Timer;
+import org.eclipse.kapua.commons.metric.MetricServiceFactory;
+import org.eclipse.kapua.commons.metric.MetricsService;
+
+/**
+ * Metrics of the jobs started by the scheduler triggers.
+ *
+ * @since 1.0.0
+ */
+public class KapuaJobLauncherMetric {
+
+    private static final KapuaJobLauncherMetric JOB_LAUNCHER_METRIC = new KapuaJobLauncherMetric();
+
+    private Timer fireLag;
+    private Timer startTime;
+    private Counter misfire;
+    private Counter started;
+    private Counter coalesced;
+    private Counter rejected;
+    private Counter failure;
+
+    public static KapuaJobLauncherMetric getInstance() {
+        return JOB_LAUNCHER_METRIC;
+    }
+
+    private KapuaJobLauncherMetric() {
+        MetricsService metricsService = MetricServiceFactory.getInstance();
+        // trigger
+        fireLag = metricsService.getTimer("scheduler", "trigger", "fire_lag", "time", "s");
+        misfire = metricsService.getCounter("scheduler", "trigger", "misfire", "count");
+        // job start
+        startTime = metricsService.getTimer("scheduler", "job_start", "time", "s");
+        started = metricsService.getCounter("scheduler", "job_start", "success", "count");
+        coalesced = metricsService.getCounter("scheduler", "job_start", "coalesced", "count");
+        rejected = metricsService.getCounter("scheduler", "job_start", "rejected", "count");
+        failure = metricsService.getCounter("scheduler", "job_start", "failure", "count");
+    }
+
+    /**
+     * Delay between the scheduled fire time of a trigger and its actual fire time
+     */
+    public Timer getFireLag() {
+        return fireLag;
+    }
+
+    /**
+     * Time spent starting a fired job, from the dispatch to the job engine start
+     */
+    public Timer getStartTime() {
+        return startTime;
+    }
+
+    public Counter getMisfire() {
+        return misfire;
+    }
+
+    public Counter getStarted() {
+        return started;
+    }
+
+    /**
+     * Fired job starts dropped because a start of the same job was still pending or the job was already running
+     */
+    public Counter getCoalesced() {
+        return coalesced;
+    }
+
+    /**
+     * Fired job starts dropped because the dispatch queue was full or the dispatcher has been stopped before starting them
+     */
+    public Counter getRejected() {
+        return rejected;
+    }
+
+    public Counter getFailure() {
+        return failure;
+    }
+}
@@ -0,0 +1,218 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Eurotech and/or its affiliates and others
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Eurotech - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.kapua.service.scheduler.trigger.quartz.job;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Timer;
+import org.eclipse.kapua.KapuaEntityNotFoundException;
+import org.eclipse.kapua.KapuaException;
+import org.eclipse.kapua.commons.metric.MetricServiceFactory;
+import org.eclipse.kapua.commons.security.KapuaSecurityUtils;
+import org.eclipse.kapua.job.engine.JobEngineService;
+import org.eclipse.kapua.locator.KapuaLocator;
+import org.eclipse.kapua.model.id.KapuaId;
+import org.eclipse.kapua.service.job.Job;
+import org.eclipse.kapua.service.job.JobService;
+import org.eclipse.kapua.service.scheduler.quartz.setting.KapuaSchedulerSetting;
+import org.eclipse.kapua.service.scheduler.quartz.setting.KapuaSchedulerSettingKeys;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Starts the jobs fired by the scheduler triggers on its own threads, so the Quartz threads are not blocked by the job start-up.
+ * <p>
+ * A trigger that fires for a job whose start is still queued or in progress, or for a job that is already running, is coalesced with it:
+ * it is dropped and counted by {@link KapuaJobLauncherMetric#getCoalesced()} instead of failing the start.
+ * The pending starts are tracked by each scheduler node: triggers of the same job fired on different nodes are coalesced only when the job engine
+ * already reports the job as running, otherwise the start of one of them fails as before.
+ * <p>
+ * The queued starts are kept in memory only: they are dropped, and logged, when the scheduler is shut down, and lost if the node crashes.
+ *
+ * @since 1.0.0
+ */
+public class KapuaJobStartDispatcher {
+
+    private static final Logger LOG = LoggerFactory.getLogger(KapuaJobStartDispatcher.class);
+
+    private static final KapuaSchedulerSetting SCHEDULER_SETTING = KapuaSchedulerSetting.getInstance();
+
+    private static volatile KapuaJobStartDispatcher instance;
+    private static boolean queueGaugeRegistered;
+
+    private final JobService jobService;
+    private final JobEngineService jobEngineService;
+
+    private final KapuaJobLauncherMetric metric = KapuaJobLauncherMetric.getInstance();
+
+    private final Map<String, CompletableFuture<Void>> pendingJobStarts = new ConcurrentHashMap<>();
+    private final ThreadPoolExecutor executor;
+
+    private KapuaJobStartDispatcher() {
+        this(KapuaLocator.getInstance().getService(JobService.class),
+                KapuaLocator.getInstance().getService(JobEngineService.class),
+                SCHEDULER_SETTING.getInt(KapuaSchedulerSettingKeys.SCHEDULER_JOB_START_THREADS, 2),
+                SCHEDULER_SETTING.getInt(KapuaSchedulerSettingKeys.SCHEDULER_JOB_START_QUEUE_SIZE, 1000));
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param jobService       The {@link JobService} to find the fired {@link Job}s.
+     * @param jobEngineService The {@link JobEngineService} to start the fired {@link Job}s.
+     * @param threads          The number of threads starting the {@link Job}s.
+     * @param queueSize        The maximum number of starts waiting for a thread.
+     */
+    KapuaJobStartDispatcher(JobService jobService, JobEngineService jobEngineService, int threads, int queueSize) {
+        this.jobService = jobService;
+        this.jobEngineService = jobEngineService;
+
+        AtomicInteger threadCount = new AtomicInteger();
+        executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>(queueSize), runnable -> {
+            Thread thread = new Thread(runnable, "scheduler-job-start-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    public static synchronized KapuaJobStartDispatcher getInstance() {
+        if (instance == null) {
+            instance = new KapuaJobStartDispatcher();
+
+            // registered once, it reads the queue of the current instance
+            if (!queueGaugeRegistered) {
+                try {
+                    MetricServiceFactory.getInstance().registerGauge((Gauge<Integer>) () -> {
+                        KapuaJobStartDispatcher currentInstance = instance;
+                        return currentInstance != null ? currentInstance.executor.getQueue().size() : 0;
+                    }, "scheduler", "job_start", "queue", "size");
+                    queueGaugeRegistered = true;
+                } catch (KapuaException e) {
+                    LOG.warn("Cannot register scheduler job start queue gauge", e);
+                }
+            }
+        }
+        return instance;
+    }
+
+    /**
+     * Enqueues the start of the job, unless a start of the same job is already pending.
+     *
+     * @param scopeId The scope id of the {@link Job}.
+     * @param jobId   The id of the {@link Job}.
+     * @return The {@link CompletableFuture} of the start, which completes exceptionally if the start fails or it is dropped because the queue is full.
+     * It is already completed if the start has been coalesced with a pending one.
+     */
+    public CompletableFuture<Void> dispatch(KapuaId scopeId, KapuaId jobId) {
+        String jobKey = scopeId.toCompactId() + "/" + jobId.toCompactId();
+
+        CompletableFuture<Void> jobStartFuture = new CompletableFuture<>();
+        if (pendingJobStarts.putIfAbsent(jobKey, jobStartFuture) != null) {
+            metric.getCoalesced().inc();
+            LOG.info("Start of job {} coalesced with the pending one", jobKey);
+            return CompletableFuture.completedFuture(null);
+        }
+
+        try {
+            executor.execute(new JobStart(jobKey, scopeId, jobId, jobStartFuture));
+        } catch (RejectedExecutionException e) {
+            pendingJobStarts.remove(jobKey);
+            metric.getRejected().inc();
+            LOG.warn("Start of job {} dropped. The job start queue is full", jobKey);
+            jobStartFuture.completeExceptionally(e);
+        }
+        return jobStartFuture;
+    }
+
+    /**
+     * Stops the dispatcher threads. The queued job starts are dropped and logged.<br>
+     * If this is the shared instance, the next {@link #getInstance()} creates a new one.
+     */
+    public void shutdown() {
+        synchronized (KapuaJobStartDispatcher.class) {
+            if (instance == this) {
+                instance = null;
+            }
+        }
+
+        List<Runnable> droppedJobStarts = executor.shutdownNow();
+        if (!droppedJobStarts.isEmpty()) {
+            LOG.warn("Stopping the job start dispatcher with {} queued job starts. They are dropped", droppedJobStarts.size());
+        }
+
+        for (Runnable droppedJobStart : droppedJobStarts) {
+            JobStart jobStart = (JobStart) droppedJobStart;
+            pendingJobStarts.remove(jobStart.jobKey);
+            metric.getRejected().inc();
+            LOG.warn("Start of job {} dropped. The job start dispatcher has been stopped", jobStart.jobKey);
+            jobStart.jobStartFuture.completeExceptionally(new RejectedExecutionException("The job start dispatcher has been stopped"));
+        }
+    }
+
+    private void startJob(String jobKey, KapuaId scopeId, KapuaId jobId, CompletableFuture<Void> jobStartFuture) {
+        Timer.Context startTimeContext = metric.getStartTime().time();
+        try {
+            Job job = KapuaSecurityUtils.doPrivileged(() -> jobService.find(scopeId, jobId));
+            if (job == null) {
+                throw new KapuaEntityNotFoundException(Job.TYPE, jobId);
+            }
+
+            if (KapuaSecurityUtils.doPrivileged(() -> jobEngineService.isRunning(scopeId, jobId))) {
+                metric.getCoalesced().inc();
+                LOG.info("Start of job {} coalesced with the running execution", jobKey);
+            } else {
+                KapuaSecurityUtils.doPrivileged(() -> jobEngineService.startJob(scopeId, jobId));
+                metric.getStarted().inc();
+            }
+
+            pendingJobStarts.remove(jobKey);
+            jobStartFuture.complete(null);
+        } catch (Exception e) {
+            metric.getFailure().inc();
+            LOG.error("Cannot start job {}", jobKey, e);
+
+            pendingJobStarts.remove(jobKey);
+            jobStartFuture.completeExceptionally(e);
+        } finally {
+            startTimeContext.stop();
+        }
+    }
+
+    private class JobStart implements Runnable {
+
+        private final String jobKey;
+        private final KapuaId scopeId;
+        private final KapuaId jobId;
+        private final CompletableFuture<Void> jobStartFuture;
+
+        private JobStart(String jobKey, KapuaId scopeId, KapuaId jobId, CompletableFuture<Void> jobStartFuture) {
+            this.jobKey = jobKey;
+            this.scopeId = scopeId;
+            this.jobId = jobId;
+            this.jobStartFuture = jobStartFuture;
+        }
+
+        @Override
+        public void run() {
+            startJob(jobKey, scopeId, jobId, jobStartFuture);
+        }
+    }
+}
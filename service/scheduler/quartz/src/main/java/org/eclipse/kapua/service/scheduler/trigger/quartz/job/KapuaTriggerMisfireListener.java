@@ -0,0 +1,40 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Eurotech and/or its affiliates and others
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Eurotech - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.kapua.service.scheduler.trigger.quartz.job;
+
+import org.quartz.Trigger;
+import org.quartz.listeners.TriggerListenerSupport;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Quartz trigger listener that counts the misfired triggers in the {@link KapuaJobLauncherMetric}.
+ *
+ * @since 1.0.0
+ */
+public class KapuaTriggerMisfireListener extends TriggerListenerSupport {
+
+    private static final Logger LOG = LoggerFactory.getLogger(KapuaTriggerMisfireListener.class);
+
+    private final KapuaJobLauncherMetric metric = KapuaJobLauncherMetric.getInstance();
+
+    @Override
+    public String getName() {
+        return KapuaTriggerMisfireListener.class.getName();
+    }
+
+    @Override
+    public void triggerMisfired(Trigger trigger) {
+        metric.getMisfire().inc();
+        LOG.warn("Trigger {} misfired. Scheduled fire time was: {}", trigger.getKey(), trigger.getNextFireTime());
+    }
+}
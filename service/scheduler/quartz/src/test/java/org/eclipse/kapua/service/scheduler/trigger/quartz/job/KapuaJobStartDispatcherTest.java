@@ -0,0 +1,167 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Eurotech and/or its affiliates and others
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Eurotech - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.kapua.service.scheduler.trigger.quartz.job;
+
+import org.eclipse.kapua.KapuaEntityNotFoundException;
+import org.eclipse.kapua.commons.model.id.KapuaEid;
+import org.eclipse.kapua.job.engine.JobEngineService;
+import org.eclipse.kapua.model.id.KapuaId;
+import org.eclipse.kapua.service.job.Job;
+import org.eclipse.kapua.service.job.JobService;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import java.math.BigInteger;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link KapuaJobStartDispatcher} tests: coalescing of the starts of the same job, rejection of the starts when the queue is full,
+ * and the starts failed or dropped on shutdown
+ */
+public class KapuaJobStartDispatcherTest {
+
+    private static final KapuaId JOB_ID = new KapuaEid(BigInteger.valueOf(10));
+    private static final KapuaId OTHER_JOB_ID = new KapuaEid(BigInteger.valueOf(11));
+    private static final KapuaId THIRD_JOB_ID = new KapuaEid(BigInteger.valueOf(12));
+
+    private static final long TIMEOUT = 10;
+
+    private final CountDownLatch jobStartStarted = new CountDownLatch(1);
+    private final CountDownLatch jobStartReleased = new CountDownLatch(1);
+
+    private JobService jobService;
+    private JobEngineService jobEngineService;
+    private KapuaJobStartDispatcher jobStartDispatcher;
+
+    @Before
+    public void setUp() throws Exception {
+        jobService = Mockito.mock(JobService.class);
+        jobEngineService = Mockito.mock(JobEngineService.class);
+
+        Mockito.when(jobService.find(Mockito.any(KapuaId.class), Mockito.any(KapuaId.class))).thenReturn(Mockito.mock(Job.class));
+
+        // one thread and one queued start
+        jobStartDispatcher = new KapuaJobStartDispatcher(jobService, jobEngineService, 1, 1);
+    }
+
+    @After
+    public void tearDown() {
+        jobStartReleased.countDown();
+        jobStartDispatcher.shutdown();
+    }
+
+    @Test
+    public void testStart() throws Exception {
+        jobStartDispatcher.dispatch(KapuaId.ONE, JOB_ID).get(TIMEOUT, TimeUnit.SECONDS);
+
+        Mockito.verify(jobEngineService).startJob(KapuaId.ONE, JOB_ID);
+    }
+
+    @Test
+    public void testCoalescedWithPendingStart() throws Exception {
+        blockJobStart(JOB_ID);
+
+        CompletableFuture<Void> jobStartFuture = jobStartDispatcher.dispatch(KapuaId.ONE, JOB_ID);
+        jobStartStarted.await(TIMEOUT, TimeUnit.SECONDS);
+
+        // the start fired while the first one is in progress is dropped
+        CompletableFuture<Void> coalescedJobStartFuture = jobStartDispatcher.dispatch(KapuaId.ONE, JOB_ID);
+        Assert.assertTrue(coalescedJobStartFuture.isDone());
+        Assert.assertFalse(coalescedJobStartFuture.isCompletedExceptionally());
+
+        jobStartReleased.countDown();
+        jobStartFuture.get(TIMEOUT, TimeUnit.SECONDS);
+        Mockito.verify(jobEngineService, Mockito.times(1)).startJob(KapuaId.ONE, JOB_ID);
+
+        // and the following one is started again
+        jobStartDispatcher.dispatch(KapuaId.ONE, JOB_ID).get(TIMEOUT, TimeUnit.SECONDS);
+        Mockito.verify(jobEngineService, Mockito.times(2)).startJob(KapuaId.ONE, JOB_ID);
+    }
+
+    @Test
+    public void testCoalescedWithRunningJob() throws Exception {
+        Mockito.when(jobEngineService.isRunning(KapuaId.ONE, JOB_ID)).thenReturn(true);
+
+        jobStartDispatcher.dispatch(KapuaId.ONE, JOB_ID).get(TIMEOUT, TimeUnit.SECONDS);
+
+        Mockito.verify(jobEngineService, Mockito.never()).startJob(KapuaId.ONE, JOB_ID);
+    }
+
+    @Test
+    public void testRejectedWhenQueueFull() throws Exception {
+        blockJobStart(JOB_ID);
+
+        CompletableFuture<Void> jobStartFuture = jobStartDispatcher.dispatch(KapuaId.ONE, JOB_ID);
+        jobStartStarted.await(TIMEOUT, TimeUnit.SECONDS);
+        CompletableFuture<Void> queuedJobStartFuture = jobStartDispatcher.dispatch(KapuaId.ONE, OTHER_JOB_ID);
+
+        // the thread and the queue are busy
+        CompletableFuture<Void> rejectedJobStartFuture = jobStartDispatcher.dispatch(KapuaId.ONE, THIRD_JOB_ID);
+        Assert.assertTrue(rejectedJobStartFuture.isCompletedExceptionally());
+        assertFailure(RejectedExecutionException.class, rejectedJobStartFuture);
+
+        jobStartReleased.countDown();
+        jobStartFuture.get(TIMEOUT, TimeUnit.SECONDS);
+        queuedJobStartFuture.get(TIMEOUT, TimeUnit.SECONDS);
+
+        // the rejected start is not pending anymore
+        jobStartDispatcher.dispatch(KapuaId.ONE, THIRD_JOB_ID).get(TIMEOUT, TimeUnit.SECONDS);
+        Mockito.verify(jobEngineService).startJob(KapuaId.ONE, THIRD_JOB_ID);
+    }
+
+    @Test
+    public void testFailure() throws Exception {
+        Mockito.when(jobService.find(KapuaId.ONE, JOB_ID)).thenReturn(null);
+
+        assertFailure(KapuaEntityNotFoundException.class, jobStartDispatcher.dispatch(KapuaId.ONE, JOB_ID));
+        Mockito.verify(jobEngineService, Mockito.never()).startJob(KapuaId.ONE, JOB_ID);
+    }
+
+    @Test
+    public void testDroppedOnShutdown() throws Exception {
+        blockJobStart(JOB_ID);
+
+        jobStartDispatcher.dispatch(KapuaId.ONE, JOB_ID);
+        jobStartStarted.await(TIMEOUT, TimeUnit.SECONDS);
+        CompletableFuture<Void> queuedJobStartFuture = jobStartDispatcher.dispatch(KapuaId.ONE, OTHER_JOB_ID);
+
+        jobStartDispatcher.shutdown();
+
+        // the queued start is not lost silently
+        assertFailure(RejectedExecutionException.class, queuedJobStartFuture);
+        Mockito.verify(jobEngineService, Mockito.never()).startJob(KapuaId.ONE, OTHER_JOB_ID);
+    }
+
+    private void blockJobStart(KapuaId jobId) throws Exception {
+        Mockito.doAnswer(invocation -> {
+            jobStartStarted.countDown();
+            jobStartReleased.await(TIMEOUT, TimeUnit.SECONDS);
+            return null;
+        }).when(jobEngineService).startJob(KapuaId.ONE, jobId);
+    }
+
+    private static void assertFailure(Class<? extends Exception> expectedCause, CompletableFuture<Void> jobStartFuture) throws Exception {
+        try {
+            jobStartFuture.get(TIMEOUT, TimeUnit.SECONDS);
+            Assert.fail("The job start must fail");
+        } catch (ExecutionException e) {
+            Assert.assertTrue(expectedCause.isInstance(e.getCause()));
+        }
+    }
+}
@@ -15,6 +15,8 @@ import org.eclipse.kapua.KapuaEntityNotFoundException;
 import org.eclipse.kapua.KapuaException;
 import org.eclipse.kapua.commons.model.query.predicate.AttributePredicateImpl;
 import org.eclipse.kapua.commons.service.internal.AbstractKapuaService;
+import org.eclipse.kapua.commons.service.internal.cache.EntityCache;
+import org.eclipse.kapua.commons.service.internal.cache.EntityCacheManager;
 import org.eclipse.kapua.commons.util.ArgumentValidator;
 import org.eclipse.kapua.event.ServiceEvent;
 import org.eclipse.kapua.locator.KapuaLocator;
@@ -44,6 +46,8 @@ public class DomainRegistryServiceImpl extends AbstractKapuaService implements D
 
     private static final Logger LOGGER = LoggerFactory.getLogger(DomainRegistryServiceImpl.class);
 
+    private static final EntityCache DOMAIN_CACHE = EntityCacheManager.getCache("Domain", DomainImpl.class, AuthorizationEntityManagerFactory.getInstance());
+
     public DomainRegistryServiceImpl() {
         super(AuthorizationEntityManagerFactory.getInstance());
     }
@@ -84,6 +88,7 @@ public class DomainRegistryServiceImpl extends AbstractKapuaService implements D
 
             DomainDAO.delete(em, domainId);
         });
+        DOMAIN_CACHE.invalidate(domainId);
     }
 
     @Override
@@ -113,7 +118,7 @@ public class DomainRegistryServiceImpl extends AbstractKapuaService implements D
         PermissionFactory permissionFactory = locator.getFactory(PermissionFactory.class);
         authorizationService.checkPermission(permissionFactory.newPermission(DOMAIN_DOMAIN, Actions.read, KapuaId.ANY));
 
-        return entityManagerSession.onResult(em -> {
+        return entityManagerSession.onResult(em -> DOMAIN_CACHE.findByKey(em, DomainImpl.class, null, serviceName, () -> {
             DomainFactory domainFactory = locator.getFactory(DomainFactory.class);
             DomainQuery query = domainFactory.newQuery(null);
             query.setPredicate(new AttributePredicateImpl<>(DomainPredicates.SERVICE_NAME, serviceName));
@@ -121,7 +126,7 @@ public class DomainRegistryServiceImpl extends AbstractKapuaService implements D
             DomainListResult results = DomainDAO.query(em, query);
 
             return results.getFirstItem();
-        });
+        }));
     }
 
     @Override
@@ -25,7 +25,6 @@ import org.eclipse.kapua.model.domain.Actions;
 import org.eclipse.kapua.model.id.KapuaId;
 import org.eclipse.kapua.model.query.KapuaQuery;
 import org.eclipse.kapua.service.KapuaEntityService;
-import org.eclipse.kapua.service.account.Account;
 import org.eclipse.kapua.service.account.AccountService;
 import org.eclipse.kapua.service.authorization.AuthorizationService;
 import org.eclipse.kapua.service.authorization.group.Group;
@@ -203,7 +202,7 @@ public class PermissionImpl extends WildcardPermission implements Permission, or
      * <p>
      * In case of the {@link Permission#getForwardable()} equals to {@code true}, more lookup is required.<br>
      * If a parent account access the resources of one of its child accounts it won't have the direct permission to access it.
-     * A lookup of {@link Account#getParentAccountPath()} will be required to search if the current user scope id is
+     * A lookup of the account hierarchy ({@link AccountService#isAncestor(KapuaId, KapuaId)}) will be required to search if the current user scope id is
      * one of the parent of the given {@link Permission#getTargetScopeId()}
      * </p>
      *
@@ -239,7 +238,7 @@ public class PermissionImpl extends WildcardPermission implements Permission, or
      * <p>
      * It tries to forward {@code this} Permission to the {@link #getTargetScopeId()} of the given {@link org.apache.shiro.authz.Permission} parameter.<br>
      * This means that if the required permission has scope id 'B' and {@code this} {@link Permission} has scope id 'A',
-     * this methods search the {@link Account#getParentAccountPath()} of the scope id 'B' and checks the {@link Permission} forwarding {@code this} Permission
+     * this methods searches the ancestors of the scope id 'B' and checks the {@link Permission} forwarding {@code this} Permission
      * to the same level of the given {@link org.apache.shiro.authz.Permission}.
      * </p>
      * <p>
@@ -249,7 +248,7 @@ public class PermissionImpl extends WildcardPermission implements Permission, or
      * Account 'A' has a child account 'B', then 'B' has this parent account path: '/A/B';<br>
      * <br>
      * User 'A' tries to access a resource of account 'B' an the direct check {@link org.apache.shiro.authz.Permission#implies(org.apache.shiro.authz.Permission)} fails.
-     * So this method searches the parent account path of account 'B', found that 'A' is a parent of 'B'
+     * So this method searches the ancestors of account 'B', found that 'A' is a parent of 'B'
      * so then {@code this} {@link Permission} is checked again with 'B' as scopeId.
      * </p>
      *
@@ -261,18 +260,12 @@ public class PermissionImpl extends WildcardPermission implements Permission, or
         Permission permission = (Permission) p;
 
         try {
-            Account account = KapuaSecurityUtils.doPrivileged(() -> ACCOUNT_SERVICE.find(permission.getTargetScopeId()));
+            // If the scope id is not an ancestor of the target scope id, don't even try to check against
+            if (KapuaSecurityUtils.doPrivileged(() -> ACCOUNT_SERVICE.isAncestor(getTargetScopeId(), permission.getTargetScopeId()))) {
+                setTargetScopeId(permission.getTargetScopeId());
+                setParts(toString());
 
-            if (account != null && account.getScopeId() != null) {
-                String parentAccountPath = account.getParentAccountPath();
-
-                // If it doesn't contain the scope id in the parent, don't even try to check against
-                if (parentAccountPath.contains("/" + getTargetScopeId().toStringId() + "/")) {
-                    setTargetScopeId(permission.getTargetScopeId());
-                    setParts(toString());
-
-                    return super.implies(p);
-                }
+                return super.implies(p);
             }
         } catch (KapuaException e) {
             throw KapuaRuntimeException.internalError(e, "Error while forwarding permission: " + p.toString());
@@ -18,6 +18,8 @@ import org.eclipse.kapua.KapuaIllegalArgumentException;
 import org.eclipse.kapua.commons.configuration.AbstractKapuaConfigurableResourceLimitedService;
 import org.eclipse.kapua.commons.model.query.predicate.AndPredicateImpl;
 import org.eclipse.kapua.commons.model.query.predicate.AttributePredicateImpl;
+import org.eclipse.kapua.commons.service.internal.cache.EntityCache;
+import org.eclipse.kapua.commons.service.internal.cache.EntityCacheManager;
 import org.eclipse.kapua.commons.util.ArgumentValidator;
 import org.eclipse.kapua.event.ServiceEvent;
 import org.eclipse.kapua.locator.KapuaLocator;
@@ -59,6 +61,8 @@ public class RoleServiceImpl extends AbstractKapuaConfigurableResourceLimitedSer
 
     private static final RolePermissionFactory ROLE_PERMISSION_FACTORY = LOCATOR.getFactory(RolePermissionFactory.class);
 
+    private static final EntityCache ROLE_CACHE = EntityCacheManager.getCache("Role", RoleImpl.class, AuthorizationEntityManagerFactory.getInstance());
+
     public RoleServiceImpl() {
         super(RoleService.class.getName(), ROLE_DOMAIN, AuthorizationEntityManagerFactory.getInstance(), RoleService.class, RoleFactory.class);
     }
@@ -161,7 +165,9 @@ public class RoleServiceImpl extends AbstractKapuaConfigurableResourceLimitedSer
 
         //
         // Do update
-        return entityManagerSession.onTransactedInsert(em -> RoleDAO.update(em, role));
+        Role updatedRole = entityManagerSession.onTransactedInsert(em -> RoleDAO.update(em, role));
+        ROLE_CACHE.invalidate(role.getId());
+        return updatedRole;
     }
 
     @Override
@@ -184,6 +190,7 @@ public class RoleServiceImpl extends AbstractKapuaConfigurableResourceLimitedSer
         //
         // Do delete
         entityManagerSession.onTransactedAction(em -> RoleDAO.delete(em, roleId));
+        ROLE_CACHE.invalidate(roleId);
     }
 
     @Override
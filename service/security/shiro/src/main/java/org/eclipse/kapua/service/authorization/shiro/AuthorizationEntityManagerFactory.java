@@ -11,7 +11,9 @@
  *******************************************************************************/
 package org.eclipse.kapua.service.authorization.shiro;
 
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Map;
 
 import org.eclipse.kapua.KapuaException;
@@ -40,7 +42,8 @@ public class AuthorizationEntityManagerFactory extends AbstractEntityManagerFact
     private AuthorizationEntityManagerFactory() {
         super(PERSISTENCE_UNIT_NAME,
                 DATASOURCE_NAME,
-                UNIQUE_CONSTRAINTS);
+                UNIQUE_CONSTRAINTS,
+                new HashSet<>(Arrays.asList("Domain", "Role")));
     }
 
     /**
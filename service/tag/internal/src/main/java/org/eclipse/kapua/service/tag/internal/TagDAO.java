@@ -43,10 +43,30 @@ public class TagDAO extends ServiceDAO {
      */
     public static Tag create(EntityManager em, TagCreator creator)
             throws KapuaException {
-        Tag tag = new TagImpl(creator.getScopeId());
-        tag.setName(creator.getName());
+        return ServiceDAO.create(em, newTag(creator));
+    }
+
+    /**
+     * Creates and returns new {@link Tag} in batch, without flushing the {@link EntityManager}
+     * 
+     * @param em
+     *            The {@link EntityManager} that holds the transaction.
+     * @param creator
+     *            The {@link TagCreator} object from which create the new {@link Tag}.
+     * @return The newly created {@link Tag}.
+     * @throws KapuaException
+     *             On create error.
+     * @since 1.0.0
+     */
+    public static Tag createInBatch(EntityManager em, TagCreator creator)
+            throws KapuaException {
+        return ServiceDAO.createInBatch(em, newTag(creator));
+    }
 
-        return ServiceDAO.create(em, tag);
+    private static TagImpl newTag(TagCreator creator) {
+        TagImpl tag = new TagImpl(creator.getScopeId());
+        tag.setName(creator.getName());
+        return tag;
     }
 
     /**
@@ -65,6 +85,22 @@ public class TagDAO extends ServiceDAO {
         return ServiceDAO.update(em, TagImpl.class, tagImpl);
     }
 
+    /**
+     * Updates and returns the updated {@link Tag} in batch, without flushing the {@link EntityManager}
+     * 
+     * @param em
+     *            The {@link EntityManager} that holds the transaction.
+     * @param tag
+     *            The {@link Tag} to update
+     * @return The updated {@link Tag}.
+     * @throws KapuaEntityNotFoundException
+     *             If {@link Tag} is not found.
+     */
+    public static Tag updateInBatch(EntityManager em, Tag tag) throws KapuaEntityNotFoundException {
+        TagImpl tagImpl = (TagImpl) tag;
+        return ServiceDAO.updateInBatch(em, TagImpl.class, tagImpl);
+    }
+
     /**
      * Finds the {@link Tag} by {@link Tag} identifier
      * 
@@ -11,6 +11,12 @@
  *******************************************************************************/
 package org.eclipse.kapua.service.tag.internal;
 
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
 import org.eclipse.kapua.KapuaDuplicateNameException;
 import org.eclipse.kapua.KapuaEntityNotFoundException;
 import org.eclipse.kapua.KapuaException;
@@ -18,9 +24,11 @@ import org.eclipse.kapua.KapuaIllegalArgumentException;
 import org.eclipse.kapua.commons.configuration.AbstractKapuaConfigurableResourceLimitedService;
 import org.eclipse.kapua.commons.model.query.predicate.AndPredicateImpl;
 import org.eclipse.kapua.commons.model.query.predicate.AttributePredicateImpl;
+import org.eclipse.kapua.commons.service.internal.BatchItemValidator;
 import org.eclipse.kapua.commons.util.ArgumentValidator;
 import org.eclipse.kapua.locator.KapuaLocator;
 import org.eclipse.kapua.locator.KapuaProvider;
+import org.eclipse.kapua.model.KapuaBatchResult;
 import org.eclipse.kapua.model.domain.Actions;
 import org.eclipse.kapua.model.id.KapuaId;
 import org.eclipse.kapua.model.query.KapuaQuery;
@@ -84,6 +92,53 @@ public class TagServiceImpl extends AbstractKapuaConfigurableResourceLimitedServ
         return entityManagerSession.onTransactedInsert(em -> TagDAO.create(em, tagCreator));
     }
 
+    @Override
+    public KapuaBatchResult<Tag> createAll(List<TagCreator> tagCreators) throws KapuaException {
+        Set<KapuaId> checkedScopeIds = new HashSet<>();
+        Map<KapuaId, Integer> allowedTags = new HashMap<>();
+        Set<String> batchNames = new HashSet<>();
+        return onTransactedBatchInsert(TagService.class, "createAll", tagCreators, new BatchItemValidator<TagCreator>() {
+
+            private Map<String, KapuaId> chunkTagIds;
+
+            @Override
+            public void prepare(List<TagCreator> chunkItems) throws KapuaException {
+                Map<KapuaId, Set<String>> namesByScope = new HashMap<>();
+                for (TagCreator tagCreator : chunkItems) {
+                    if (tagCreator != null && tagCreator.getScopeId() != null && tagCreator.getName() != null) {
+                        namesByScope.computeIfAbsent(tagCreator.getScopeId(), scopeId -> new HashSet<>()).add(tagCreator.getName());
+                    }
+                }
+                chunkTagIds = findTagIdsByName(namesByScope);
+            }
+
+            @Override
+            public void validate(TagCreator tagCreator) throws KapuaException {
+                //
+                // Argument validation
+                ArgumentValidator.notNull(tagCreator, "tagCreator");
+                ArgumentValidator.notNull(tagCreator.getScopeId(), "tagCreator.scopeId");
+                ArgumentValidator.notEmptyOrNull(tagCreator.getName(), "tagCreator.name");
+
+                //
+                // Check Access
+                checkWriteAccess(checkedScopeIds, tagCreator.getScopeId());
+
+                //
+                // Check duplicate name in the batch and in the scope
+                String nameKey = nameKey(tagCreator.getScopeId(), tagCreator.getName());
+                if (batchNames.contains(nameKey) || chunkTagIds.containsKey(nameKey)) {
+                    throw new KapuaDuplicateNameException(tagCreator.getName());
+                }
+
+                //
+                // Check limit
+                reserveAllowedChildEntity(allowedTags, tagCreator.getScopeId(), "max tags reached");
+                batchNames.add(nameKey);
+            }
+        }, TagDAO::createInBatch);
+    }
+
     @Override
     public Tag update(Tag tag) throws KapuaException {
         //
@@ -121,6 +176,50 @@ public class TagServiceImpl extends AbstractKapuaConfigurableResourceLimitedServ
         return entityManagerSession.onTransactedInsert(em -> TagDAO.update(em, tag));
     }
 
+    @Override
+    public KapuaBatchResult<Tag> updateAll(List<Tag> tags) throws KapuaException {
+        Set<KapuaId> checkedScopeIds = new HashSet<>();
+        Set<String> batchNames = new HashSet<>();
+        return onTransactedBatchUpdate(TagService.class, "updateAll", tags, TagImpl.class, new BatchItemValidator<Tag>() {
+
+            private Map<String, KapuaId> chunkTagIds;
+
+            @Override
+            public void prepare(List<Tag> chunkItems) throws KapuaException {
+                Map<KapuaId, Set<String>> namesByScope = new HashMap<>();
+                for (Tag tag : chunkItems) {
+                    if (tag != null && tag.getScopeId() != null && tag.getName() != null) {
+                        namesByScope.computeIfAbsent(tag.getScopeId(), scopeId -> new HashSet<>()).add(tag.getName());
+                    }
+                }
+                chunkTagIds = findTagIdsByName(namesByScope);
+            }
+
+            @Override
+            public void validate(Tag tag) throws KapuaException {
+                //
+                // Argument validation
+                ArgumentValidator.notNull(tag, "tag");
+                ArgumentValidator.notNull(tag.getScopeId(), "tag.scopeId");
+                ArgumentValidator.notNull(tag.getId(), "tag.id");
+                ArgumentValidator.notEmptyOrNull(tag.getName(), "tag.name");
+
+                //
+                // Check Access
+                checkWriteAccess(checkedScopeIds, tag.getScopeId());
+
+                //
+                // Check duplicate name in the batch and in the scope
+                String nameKey = nameKey(tag.getScopeId(), tag.getName());
+                KapuaId namedTagId = chunkTagIds.get(nameKey);
+                if (batchNames.contains(nameKey) || (namedTagId != null && !namedTagId.equals(tag.getId()))) {
+                    throw new KapuaDuplicateNameException(tag.getName());
+                }
+                batchNames.add(nameKey);
+            }
+        }, TagDAO::updateInBatch);
+    }
+
     @Override
     public void delete(KapuaId scopeId, KapuaId tagId) throws KapuaException {
         //
@@ -190,4 +289,39 @@ public class TagServiceImpl extends AbstractKapuaConfigurableResourceLimitedServ
         // Do count
         return entityManagerSession.onResult(em -> TagDAO.count(em, query));
     }
+
+    /**
+     * Reads the ids of the tags with the given names, with one query for each scope
+     *
+     * @param namesByScope
+     * @return the tag ids, keyed by {@link #nameKey(KapuaId, String)}
+     * @throws KapuaException
+     */
+    private Map<String, KapuaId> findTagIdsByName(Map<KapuaId, Set<String>> namesByScope) throws KapuaException {
+        Map<String, KapuaId> tagIds = new HashMap<>();
+        for (Map.Entry<KapuaId, Set<String>> scopeNames : namesByScope.entrySet()) {
+            TagQuery query = new TagQueryImpl(scopeNames.getKey());
+            query.setPredicate(new AttributePredicateImpl<>(TagPredicates.NAME, scopeNames.getValue().toArray(new String[0])));
+
+            TagListResult tags = entityManagerSession.onResult(em -> TagDAO.query(em, query));
+            for (Tag tag : tags.getItems()) {
+                tagIds.put(nameKey(tag.getScopeId(), tag.getName()), tag.getId());
+            }
+        }
+        return tagIds;
+    }
+
+    private static String nameKey(KapuaId scopeId, String name) {
+        return scopeId.toCompactId() + "/" + name;
+    }
+
+    /**
+     * Checks the write access to the given scope, once for each scope of a batch
+     */
+    private void checkWriteAccess(Set<KapuaId> checkedScopeIds, KapuaId scopeId) throws KapuaException {
+        if (!checkedScopeIds.contains(scopeId)) {
+            AUTHORIZATION_SERVICE.checkPermission(PERMISSION_FACTORY.newPermission(TAG_DOMAIN, Actions.write, scopeId));
+            checkedScopeIds.add(scopeId);
+        }
+    }
 }
@@ -14,6 +14,7 @@ package org.eclipse.kapua.service.user;
 import org.eclipse.kapua.KapuaException;
 import org.eclipse.kapua.model.id.KapuaId;
 import org.eclipse.kapua.model.query.KapuaQuery;
+import org.eclipse.kapua.service.KapuaBatchEntityService;
 import org.eclipse.kapua.service.KapuaDomainService;
 import org.eclipse.kapua.service.KapuaEntityService;
 import org.eclipse.kapua.service.KapuaNamedEntityService;
@@ -29,6 +30,7 @@ import org.eclipse.kapua.service.config.KapuaConfigurableService;
  */
 public interface UserService extends KapuaEntityService<User, UserCreator>,
         KapuaUpdatableEntityService<User>,
+        KapuaBatchEntityService<User, UserCreator>,
         KapuaNamedEntityService<User>,
         KapuaDomainService<UserDomain>,
         KapuaConfigurableService {
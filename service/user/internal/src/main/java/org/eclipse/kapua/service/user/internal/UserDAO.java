@@ -39,6 +39,25 @@ public class UserDAO extends ServiceDAO {
             throws KapuaException {
         //
         // Create User
+        return ServiceDAO.create(em, newUser(userCreator));
+    }
+
+    /**
+     * Creates and return new User in batch, without flushing the entity manager
+     *
+     * @param em
+     * @param userCreator
+     * @return
+     * @throws KapuaException
+     */
+    public static User createInBatch(EntityManager em, UserCreator userCreator)
+            throws KapuaException {
+        //
+        // Create User
+        return ServiceDAO.createInBatch(em, newUser(userCreator));
+    }
+
+    private static UserImpl newUser(UserCreator userCreator) {
         UserImpl userImpl = new UserImpl(userCreator.getScopeId(),
                 userCreator.getName());
 
@@ -49,8 +68,7 @@ public class UserDAO extends ServiceDAO {
         userImpl.setExternalId(userCreator.getExternalId());
         userImpl.setStatus(userCreator.getUserStatus());
         userImpl.setExpirationDate(userCreator.getExpirationDate());
-
-        return ServiceDAO.create(em, userImpl);
+        return userImpl;
     }
 
     /**
@@ -70,6 +88,23 @@ public class UserDAO extends ServiceDAO {
         return ServiceDAO.update(em, UserImpl.class, userImpl);
     }
 
+    /**
+     * Updates the provided user in batch, without flushing the entity manager
+     *
+     * @param em
+     * @param user
+     * @return
+     * @throws KapuaException
+     */
+    public static User updateInBatch(EntityManager em, User user)
+            throws KapuaException {
+        //
+        // Update user
+        UserImpl userImpl = (UserImpl) user;
+
+        return ServiceDAO.updateInBatch(em, UserImpl.class, userImpl);
+    }
+
     /**
      * Deletes the user by user identifier
      *
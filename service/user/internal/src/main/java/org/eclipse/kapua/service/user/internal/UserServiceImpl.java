@@ -20,6 +20,7 @@ import org.eclipse.kapua.KapuaIllegalArgumentException;
 import org.eclipse.kapua.commons.configuration.AbstractKapuaConfigurableResourceLimitedService;
 import org.eclipse.kapua.commons.model.query.predicate.AttributePredicateImpl;
 import org.eclipse.kapua.commons.security.KapuaSecurityUtils;
+import org.eclipse.kapua.commons.service.internal.BatchItemValidator;
 import org.eclipse.kapua.commons.setting.system.SystemSetting;
 import org.eclipse.kapua.commons.setting.system.SystemSettingKey;
 import org.eclipse.kapua.commons.util.ArgumentValidator;
@@ -27,6 +28,7 @@ import org.eclipse.kapua.commons.util.CommonsValidationRegex;
 import org.eclipse.kapua.event.ServiceEvent;
 import org.eclipse.kapua.locator.KapuaLocator;
 import org.eclipse.kapua.locator.KapuaProvider;
+import org.eclipse.kapua.model.KapuaBatchResult;
 import org.eclipse.kapua.model.domain.Actions;
 import org.eclipse.kapua.model.id.KapuaId;
 import org.eclipse.kapua.model.query.KapuaQuery;
@@ -44,7 +46,12 @@ import org.eclipse.kapua.service.user.UserType;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.Objects;
+import java.util.Set;
 
 /**
  * {@link UserService} implementation.
@@ -70,18 +77,7 @@ public class UserServiceImpl extends AbstractKapuaConfigurableResourceLimitedSer
     public User create(UserCreator userCreator) throws KapuaException {
         //
         // Argument Validation
-        ArgumentValidator.notNull(userCreator.getScopeId().getId(), "userCreator.scopeId");
-        ArgumentValidator.notEmptyOrNull(userCreator.getName(), "userCreator.name");
-        ArgumentValidator.match(userCreator.getName(), CommonsValidationRegex.NAME_REGEXP, "userCreator.name");
-        ArgumentValidator.match(userCreator.getEmail(), CommonsValidationRegex.EMAIL_REGEXP, "userCreator.email");
-        ArgumentValidator.notNull(userCreator.getUserType(), "userCreator.userType");
-        ArgumentValidator.notNull(userCreator.getUserStatus(), "userCreator.userStatus");
-
-        if (userCreator.getUserType() != UserType.INTERNAL) {
-            ArgumentValidator.notEmptyOrNull(userCreator.getExternalId(), "userCreator.externalId");
-        } else {
-            ArgumentValidator.isEmptyOrNull(userCreator.getExternalId(), "userCreator.externalId");
-        }
+        validateCreateArguments(userCreator);
 
         int remainingChildEntities = allowedChildEntities(userCreator.getScopeId());
         if (remainingChildEntities <= 0) {
@@ -110,22 +106,61 @@ public class UserServiceImpl extends AbstractKapuaConfigurableResourceLimitedSer
         return entityManagerSession.onTransactedInsert(em -> UserDAO.create(em, userCreator));
     }
 
+    @Override
+    public KapuaBatchResult<User> createAll(List<UserCreator> userCreators) throws KapuaException {
+        Set<KapuaId> checkedScopeIds = new HashSet<>();
+        Map<KapuaId, Integer> allowedUsers = new HashMap<>();
+        Set<String> batchNames = new HashSet<>();
+        return onTransactedBatchInsert(UserService.class, "createAll", userCreators, new BatchItemValidator<UserCreator>() {
+
+            private Map<String, KapuaId> chunkUserScopeIds;
+
+            @Override
+            public void prepare(List<UserCreator> chunkItems) throws KapuaException {
+                Set<String> names = new HashSet<>();
+                for (UserCreator userCreator : chunkItems) {
+                    if (userCreator != null && userCreator.getName() != null) {
+                        names.add(userCreator.getName());
+                    }
+                }
+                chunkUserScopeIds = findUserScopeIdsByName(names);
+            }
+
+            @Override
+            public void validate(UserCreator userCreator) throws KapuaException {
+                //
+                // Argument Validation
+                ArgumentValidator.notNull(userCreator, "userCreator");
+                validateCreateArguments(userCreator);
+
+                //
+                // Check Access
+                checkWriteAccess(checkedScopeIds, userCreator.getScopeId());
+
+                //
+                // Check duplicate name in the batch and in the system, user names are unique across accounts
+                KapuaId namedUserScopeId = chunkUserScopeIds.get(userCreator.getName());
+                if (batchNames.contains(userCreator.getName()) || userCreator.getScopeId().equals(namedUserScopeId)) {
+                    throw new KapuaDuplicateNameException(userCreator.getName());
+                }
+                if (namedUserScopeId != null) {
+                    throw new KapuaDuplicateNameInAnotherAccountError(userCreator.getName());
+                }
+
+                //
+                // Check limit
+                reserveAllowedChildEntity(allowedUsers, userCreator.getScopeId(), "max users reached");
+                batchNames.add(userCreator.getName());
+            }
+        }, UserDAO::createInBatch);
+    }
+
     @Override
     //@RaiseServiceEvent
     public User update(User user) throws KapuaException {
         //
         // Argument validation
-        ArgumentValidator.notNull(user.getId().getId(), "user.id");
-        ArgumentValidator.notNull(user.getScopeId(), "user.scopeId");
-        ArgumentValidator.notEmptyOrNull(user.getName(), "user.name");
-        ArgumentValidator.match(user.getName(), CommonsValidationRegex.NAME_REGEXP, "user.name");
-        ArgumentValidator.match(user.getEmail(), CommonsValidationRegex.EMAIL_REGEXP, "user.email");
-
-        if (user.getUserType() != UserType.INTERNAL) {
-            ArgumentValidator.notEmptyOrNull(user.getExternalId(), "user.externalId");
-        } else {
-            ArgumentValidator.isEmptyOrNull(user.getExternalId(), "user.externalId");
-        }
+        validateUpdateArguments(user);
 
         //
         // Check Access
@@ -157,6 +192,42 @@ public class UserServiceImpl extends AbstractKapuaConfigurableResourceLimitedSer
         });
     }
 
+    @Override
+    public KapuaBatchResult<User> updateAll(List<User> users) throws KapuaException {
+        Set<KapuaId> checkedScopeIds = new HashSet<>();
+        return onTransactedBatchUpdate(UserService.class, "updateAll", users, UserImpl.class, user -> {
+            //
+            // Argument validation
+            ArgumentValidator.notNull(user, "user");
+            validateUpdateArguments(user);
+
+            //
+            // Check Access
+            checkWriteAccess(checkedScopeIds, user.getScopeId());
+        }, (em, user) -> {
+            //
+            // Check existence
+            User currentUser = UserDAO.find(em, user.getId());
+            if (currentUser == null || !currentUser.getScopeId().equals(user.getScopeId())) {
+                throw new KapuaEntityNotFoundException(User.TYPE, user.getId());
+            }
+
+            if (user.getStatus() != UserStatus.ENABLED || user.getExpirationDate() != null || !currentUser.getName().equals(user.getName())) {
+                //
+                // Check not deleting environment admin
+                validateSystemUser(user.getName());
+            }
+            if (!Objects.equals(currentUser.getUserType(), user.getUserType())) {
+                throw new KapuaIllegalArgumentException("userType", user.getUserType().toString());
+            }
+            if (!Objects.equals(currentUser.getExternalId(), user.getExternalId())) {
+                throw new KapuaIllegalArgumentException("externalId", user.getExternalId());
+            }
+
+            return UserDAO.updateInBatch(em, user);
+        });
+    }
+
     @Override
     //@RaiseServiceEvent
     public void delete(KapuaId scopeId, KapuaId userId) throws KapuaException {
@@ -272,6 +343,68 @@ public class UserServiceImpl extends AbstractKapuaConfigurableResourceLimitedSer
     //
     // -----------------------------------------------------------------------------------------
 
+    private void validateCreateArguments(UserCreator userCreator) throws KapuaException {
+        ArgumentValidator.notNull(userCreator.getScopeId().getId(), "userCreator.scopeId");
+        ArgumentValidator.notEmptyOrNull(userCreator.getName(), "userCreator.name");
+        ArgumentValidator.match(userCreator.getName(), CommonsValidationRegex.NAME_REGEXP, "userCreator.name");
+        ArgumentValidator.match(userCreator.getEmail(), CommonsValidationRegex.EMAIL_REGEXP, "userCreator.email");
+        ArgumentValidator.notNull(userCreator.getUserType(), "userCreator.userType");
+        ArgumentValidator.notNull(userCreator.getUserStatus(), "userCreator.userStatus");
+
+        if (userCreator.getUserType() != UserType.INTERNAL) {
+            ArgumentValidator.notEmptyOrNull(userCreator.getExternalId(), "userCreator.externalId");
+        } else {
+            ArgumentValidator.isEmptyOrNull(userCreator.getExternalId(), "userCreator.externalId");
+        }
+    }
+
+    private void validateUpdateArguments(User user) throws KapuaException {
+        ArgumentValidator.notNull(user.getId().getId(), "user.id");
+        ArgumentValidator.notNull(user.getScopeId(), "user.scopeId");
+        ArgumentValidator.notEmptyOrNull(user.getName(), "user.name");
+        ArgumentValidator.match(user.getName(), CommonsValidationRegex.NAME_REGEXP, "user.name");
+        ArgumentValidator.match(user.getEmail(), CommonsValidationRegex.EMAIL_REGEXP, "user.email");
+
+        if (user.getUserType() != UserType.INTERNAL) {
+            ArgumentValidator.notEmptyOrNull(user.getExternalId(), "user.externalId");
+        } else {
+            ArgumentValidator.isEmptyOrNull(user.getExternalId(), "user.externalId");
+        }
+    }
+
+    /**
+     * Reads the scopes of the users with the given names, in all the accounts, with a single query
+     *
+     * @param names
+     * @return the user scope ids, keyed by the user name
+     * @throws KapuaException
+     */
+    private Map<String, KapuaId> findUserScopeIdsByName(Set<String> names) throws KapuaException {
+        Map<String, KapuaId> userScopeIds = new HashMap<>();
+        if (names.isEmpty()) {
+            return userScopeIds;
+        }
+
+        UserQuery query = new UserQueryImpl(null);
+        query.setPredicate(new AttributePredicateImpl<>(UserPredicates.NAME, names.toArray(new String[0])));
+
+        UserListResult users = entityManagerSession.onResult(em -> UserDAO.query(em, query));
+        for (User user : users.getItems()) {
+            userScopeIds.put(user.getName(), user.getScopeId());
+        }
+        return userScopeIds;
+    }
+
+    /**
+     * Checks the write access to the given scope, once for each scope of a batch
+     */
+    private void checkWriteAccess(Set<KapuaId> checkedScopeIds, KapuaId scopeId) throws KapuaException {
+        if (!checkedScopeIds.contains(scopeId)) {
+            AUTHORIZATION_SERVICE.checkPermission(PERMISSION_FACTORY.newPermission(USER_DOMAIN, Actions.write, scopeId));
+            checkedScopeIds.add(scopeId);
+        }
+    }
+
     private User checkReadAccess(User user) throws KapuaException {
         if (user != null) {
             AUTHORIZATION_SERVICE.checkPermission(PERMISSION_FACTORY.newPermission(USER_DOMAIN, Actions.read, user.getScopeId()));
@@ -14,6 +14,7 @@ package org.eclipse.kapua.test.account;
 import java.math.BigInteger;
 import java.util.HashMap;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 
 import org.eclipse.kapua.KapuaException;
@@ -139,4 +140,16 @@ public class AccountServiceMock implements AccountService {
         // TODO Auto-generated method stub
         return null;
     }
+
+    @Override
+    public boolean isAncestor(KapuaId ancestorId, KapuaId accountId)
+            throws KapuaException {
+        throw KapuaException.internalError("Not implemented");
+    }
+
+    @Override
+    public List<KapuaId> findChildIds(KapuaId accountId)
+            throws KapuaException {
+        throw KapuaException.internalError("Not implemented");
+    }
 }
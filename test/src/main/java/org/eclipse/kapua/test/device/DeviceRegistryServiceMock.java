@@ -13,11 +13,14 @@ package org.eclipse.kapua.test.device;
 
 import java.util.HashMap;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 
 import org.eclipse.kapua.KapuaException;
+import org.eclipse.kapua.commons.model.KapuaBatchResultImpl;
 import org.eclipse.kapua.event.ServiceEvent;
 import org.eclipse.kapua.locator.KapuaProvider;
+import org.eclipse.kapua.model.KapuaBatchResult;
 import org.eclipse.kapua.model.config.metatype.KapuaTocd;
 import org.eclipse.kapua.model.id.KapuaId;
 import org.eclipse.kapua.model.query.KapuaQuery;
@@ -83,6 +86,32 @@ public class DeviceRegistryServiceMock implements DeviceRegistryService {
         return device;
     }
 
+    @Override
+    public KapuaBatchResult<Device> createAll(List<DeviceCreator> creators) throws KapuaException {
+        KapuaBatchResultImpl<Device> batchResult = new KapuaBatchResultImpl<>(creators.size());
+        for (int i = 0; i < creators.size(); i++) {
+            try {
+                batchResult.setSucceeded(i, create(creators.get(i)));
+            } catch (KapuaException e) {
+                batchResult.setFailed(i, e);
+            }
+        }
+        return batchResult;
+    }
+
+    @Override
+    public KapuaBatchResult<Device> updateAll(List<Device> entities) throws KapuaException {
+        KapuaBatchResultImpl<Device> batchResult = new KapuaBatchResultImpl<>(entities.size());
+        for (int i = 0; i < entities.size(); i++) {
+            try {
+                batchResult.setSucceeded(i, update(entities.get(i)));
+            } catch (KapuaException e) {
+                batchResult.setFailed(i, e);
+            }
+        }
+        return batchResult;
+    }
+
     @Override
     public Device findByClientId(KapuaId scopeId, String clientId) throws KapuaException {
         Iterator<DeviceMock> devices = deviceRegistry.values().iterator();
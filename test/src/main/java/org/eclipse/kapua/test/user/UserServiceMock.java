@@ -15,12 +15,15 @@ package org.eclipse.kapua.test.user;
 import java.math.BigInteger;
 import java.util.HashMap;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 
 import org.eclipse.kapua.KapuaException;
+import org.eclipse.kapua.commons.model.KapuaBatchResultImpl;
 import org.eclipse.kapua.commons.model.id.KapuaEid;
 import org.eclipse.kapua.event.ServiceEvent;
 import org.eclipse.kapua.locator.KapuaProvider;
+import org.eclipse.kapua.model.KapuaBatchResult;
 import org.eclipse.kapua.locator.guice.TestService;
 import org.eclipse.kapua.model.config.metatype.KapuaTocd;
 import org.eclipse.kapua.model.id.KapuaId;
@@ -75,6 +78,32 @@ public class UserServiceMock implements UserService {
         return userMock;
     }
 
+    @Override
+    public KapuaBatchResult<User> createAll(List<UserCreator> creators) throws KapuaException {
+        KapuaBatchResultImpl<User> batchResult = new KapuaBatchResultImpl<>(creators.size());
+        for (int i = 0; i < creators.size(); i++) {
+            try {
+                batchResult.setSucceeded(i, create(creators.get(i)));
+            } catch (KapuaException e) {
+                batchResult.setFailed(i, e);
+            }
+        }
+        return batchResult;
+    }
+
+    @Override
+    public KapuaBatchResult<User> updateAll(List<User> entities) throws KapuaException {
+        KapuaBatchResultImpl<User> batchResult = new KapuaBatchResultImpl<>(entities.size());
+        for (int i = 0; i < entities.size(); i++) {
+            try {
+                batchResult.setSucceeded(i, update(entities.get(i)));
+            } catch (KapuaException e) {
+                batchResult.setFailed(i, e);
+            }
+        }
+        return batchResult;
+    }
+
     @Override
     public void delete(KapuaId scopeId, KapuaId userId) throws KapuaException {
         if (!users.containsKey(userId)) {